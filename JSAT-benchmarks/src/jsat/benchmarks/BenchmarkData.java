@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.linear.DenseVector;
+import jsat.linear.SparseVector;
+import jsat.linear.Vec;
+import jsat.utils.random.XORWOW;
+
+/**
+ * Generates the synthetic inputs used by the benchmarks. All data is created
+ * from a fixed seed so that every run, and every release, measures the same
+ * work.
+ *
+ * @author Edward Raff
+ */
+public class BenchmarkData
+{
+    /**
+     * The seed used for all benchmark data
+     */
+    public static final long SEED = 0x5EED;
+
+    private BenchmarkData()
+    {
+    }
+
+    /**
+     * Creates a new random number generator with the benchmark seed
+     * @param offset an offset to the seed, so that different inputs to the
+     * same benchmark are not identical
+     * @return a random number generator
+     */
+    public static Random getRandom(int offset)
+    {
+        return new XORWOW(SEED + offset);
+    }
+
+    /**
+     * Creates a random vector
+     * @param dim the length of the vector
+     * @param density the fraction of values that are non-zero. A value of 1
+     * produces a {@link DenseVector}, and a {@link SparseVector} otherwise.
+     * @param rand the source of randomness
+     * @return a random vector
+     */
+    public static Vec randomVec(int dim, double density, Random rand)
+    {
+        if(density >= 1)
+        {
+            DenseVector x = new DenseVector(dim);
+            for(int i = 0; i < dim; i++)
+                x.set(i, rand.nextGaussian());
+            return x;
+        }
+        int nnz = Math.max(1, (int) (dim*density));
+        SparseVector x = new SparseVector(dim, nnz);
+        while(x.nnz() < nnz)
+            x.set(rand.nextInt(dim), rand.nextGaussian());
+        return x;
+    }
+
+    /**
+     * Creates a list of random vectors
+     * @param n the number of vectors
+     * @param dim the length of each vector
+     * @param density the fraction of values that are non-zero
+     * @param rand the source of randomness
+     * @return a list of random vectors
+     */
+    public static List<Vec> randomVecs(int n, int dim, double density, Random rand)
+    {
+        List<Vec> vecs = new ArrayList<>(n);
+        for(int i = 0; i < n; i++)
+            vecs.add(randomVec(dim, density, rand));
+        return vecs;
+    }
+
+    /**
+     * Creates a classification problem of Gaussian blobs, one per class, with
+     * enough overlap that the problem is not trivially separable. The class
+     * means depend only on the dimension and number of classes, so that
+     * separate calls can be used to create training and testing data.
+     *
+     * @param n the number of data points
+     * @param dim the number of numeric features
+     * @param classes the number of classes
+     * @param rand the source of randomness for the data points
+     * @return a classification data set
+     */
+    public static ClassificationDataSet classification(int n, int dim, int classes, Random rand)
+    {
+        Random meanRand = getRandom(dim*31+classes);
+        Vec[] means = new Vec[classes];
+        for(int c = 0; c < classes; c++)
+        {
+            means[c] = randomVec(dim, 1.0, meanRand);
+            means[c].mutableMultiply(2);
+        }
+        ClassificationDataSet data = new ClassificationDataSet(dim, new CategoricalData[0], new CategoricalData(classes));
+        for(int i = 0; i < n; i++)
+        {
+            int c = i % classes;
+            Vec x = randomVec(dim, 1.0, rand);
+            x.mutableAdd(means[c]);
+            data.addDataPoint(x, c);
+        }
+        return data;
+    }
+}
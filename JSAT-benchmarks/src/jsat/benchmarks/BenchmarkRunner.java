@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.benchmarks;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and records the results. All of the normal JMH command
+ * line options are accepted, such as a regular expression to select which
+ * benchmarks to run, {@code -p} to override parameters, and {@code -t} for
+ * the number of threads. <br>
+ * <br>
+ * Unless another result file is given with {@code -rff}, the full JMH results
+ * are written as JSON to {@value #DEFAULT_RESULT_FILE}. A compact baseline
+ * with one line per benchmark and parameter combination is also written to
+ * the file given by the {@code jsat.baseline} system property, or
+ * {@value #DEFAULT_BASELINE_FILE} by default. Baselines from two releases can
+ * be compared with {@link CompareBaselines}.
+ *
+ * @author Edward Raff
+ */
+public class BenchmarkRunner
+{
+    public static final String DEFAULT_RESULT_FILE = "jsat-benchmarks.json";
+    public static final String DEFAULT_BASELINE_FILE = "jsat-baseline.tsv";
+
+    public static void main(String[] args) throws Exception
+    {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if(cmd.shouldHelp())
+        {
+            cmd.showHelp();
+            return;
+        }
+        if(cmd.shouldList())
+        {
+            new Runner(cmd).list();
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmd);
+        if(!cmd.getResult().hasValue())
+            builder.result(DEFAULT_RESULT_FILE);
+        if(!cmd.getResultFormat().hasValue())
+            builder.resultFormat(ResultFormatType.JSON);
+
+        Collection<RunResult> results = new Runner(builder.build()).run();
+        File baseline = new File(System.getProperty("jsat.baseline", DEFAULT_BASELINE_FILE));
+        writeBaseline(results, baseline);
+        System.out.println("Baseline written to " + baseline.getAbsolutePath());
+    }
+
+    /**
+     * Writes the results as a sorted, tab separated file with the columns
+     * benchmark, parameters, mode, score, score error, and unit. Sorting makes
+     * the files easy to compare with standard diff tools.
+     *
+     * @param results the results to write
+     * @param file the file to write to
+     * @throws IOException
+     */
+    public static void writeBaseline(Collection<RunResult> results, File file) throws IOException
+    {
+        List<String> lines = new ArrayList<>();
+        for(RunResult r : results)
+        {
+            BenchmarkParams params = r.getParams();
+            StringBuilder paramStr = new StringBuilder();
+            for(String key : params.getParamsKeys())
+            {
+                if(paramStr.length() > 0)
+                    paramStr.append(',');
+                paramStr.append(key).append('=').append(params.getParam(key));
+            }
+            Result primary = r.getPrimaryResult();
+            lines.add(params.getBenchmark() + "\t" + paramStr + "\t" + params.getMode().shortLabel() + "\t"
+                    + primary.getScore() + "\t" + primary.getScoreError() + "\t" + primary.getScoreUnit());
+        }
+        Collections.sort(lines);
+
+        try(PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))
+        {
+            out.println("#benchmark\tparams\tmode\tscore\terror\tunit");
+            for(String line : lines)
+                out.println(line);
+        }
+    }
+}
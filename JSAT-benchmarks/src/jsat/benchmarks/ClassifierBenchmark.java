@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jsat.classifiers.CategoricalResults;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.classifiers.Classifier;
+import jsat.classifiers.knn.NearestNeighbour;
+import jsat.classifiers.linear.LogisticRegressionDCD;
+import jsat.classifiers.svm.PlattSMO;
+import jsat.classifiers.trees.DecisionTree;
+import jsat.classifiers.trees.RandomForest;
+import jsat.distributions.kernels.RBFKernel;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks the training time and scoring throughput of a representative
+ * set of classifiers. The scoring benchmark is single threaded per call, so
+ * multi-threaded scoring throughput can be measured with the JMH threads
+ * option ({@code -t}).
+ *
+ * @author Edward Raff
+ */
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassifierBenchmark
+{
+    @Param({"DecisionTree", "RandomForest", "LogisticRegressionDCD", "PlattSMO", "NearestNeighbour"})
+    public String classifier;
+
+    @Param({"5000"})
+    public int N;
+
+    @Param({"20"})
+    public int dim;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private ClassificationDataSet train;
+    private ClassificationDataSet test;
+    private Classifier trained;
+
+    static Classifier getClassifier(String name)
+    {
+        switch(name)
+        {
+            case "DecisionTree":
+                return new DecisionTree();
+            case "RandomForest":
+                return new RandomForest(50);
+            case "LogisticRegressionDCD":
+                return new LogisticRegressionDCD();
+            case "PlattSMO":
+                return new PlattSMO(new RBFKernel(Math.sqrt(20)));
+            case "NearestNeighbour":
+                return new NearestNeighbour(7);
+            default:
+                throw new IllegalArgumentException("Unknown classifier " + name);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Random rand = BenchmarkData.getRandom(4);
+        train = BenchmarkData.classification(N, dim, 2, rand);
+        test = BenchmarkData.classification(1000, dim, 2, rand);
+        trained = getClassifier(classifier);
+        trained.train(train, parallel);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Classifier train()
+    {
+        Classifier model = getClassifier(classifier);
+        model.train(train, parallel);
+        return model;
+    }
+
+    /**
+     * Scores all of the test points
+     * @return the number of test points labeled as class 0
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(1000)
+    public int score()
+    {
+        int count = 0;
+        for(int i = 0; i < test.size(); i++)
+        {
+            CategoricalResults r = trained.classify(test.getDataPoint(i));
+            if(r.mostLikely() == 0)
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two baselines written by {@link BenchmarkRunner}, printing the
+ * relative change of every benchmark present in both. <br>
+ * Usage: {@code CompareBaselines old.tsv new.tsv [threshold]} <br>
+ * A benchmark is reported as a regression if it became slower by more than
+ * the threshold (default 0.1, i.e., 10%) and by more than the combined score
+ * errors. The exit code is 1 if any regression was found, so the comparison
+ * can be used to fail a build.
+ *
+ * @author Edward Raff
+ */
+public class CompareBaselines
+{
+    /**
+     * One line of a baseline file
+     */
+    private static class Entry
+    {
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        public Entry(String mode, double score, double error, String unit)
+        {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        /**
+         * @return {@code true} if larger scores are better for this mode
+         */
+        boolean higherIsBetter()
+        {
+            return mode.equals("thrpt");
+        }
+    }
+
+    private static Map<String, Entry> read(String file) throws IOException
+    {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for(String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8))
+        {
+            if(line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] cols = line.split("\t", -1);
+            double error = Double.parseDouble(cols[4]);
+            entries.put(cols[0] + "\t" + cols[1] + "\t" + cols[2], new Entry(cols[2], Double.parseDouble(cols[3]), Double.isNaN(error) ? 0 : error, cols[5]));
+        }
+        return entries;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 2)
+        {
+            System.err.println("Usage: CompareBaselines old.tsv new.tsv [threshold]");
+            System.exit(2);
+        }
+        Map<String, Entry> oldRuns = read(args[0]);
+        Map<String, Entry> newRuns = read(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+
+        int regressions = 0;
+        for(Map.Entry<String, Entry> e : newRuns.entrySet())
+        {
+            Entry before = oldRuns.get(e.getKey());
+            Entry after = e.getValue();
+            if(before == null || !before.unit.equals(after.unit))
+                continue;
+            double change = (after.score - before.score) / before.score;
+            double worse = after.higherIsBetter() ? -change : change;
+            boolean significant = Math.abs(after.score - before.score) > before.error + after.error;
+            String status = "";
+            if(significant && worse > threshold)
+            {
+                status = "REGRESSION";
+                regressions++;
+            }
+            else if(significant && -worse > threshold)
+                status = "improved";
+            System.out.printf("%-10s %+8.1f%%  %s%n", status, 100*change, e.getKey().replace('\t', ' '));
+        }
+        System.out.println(regressions + " regression(s) found");
+        if(regressions > 0)
+            System.exit(1);
+    }
+}
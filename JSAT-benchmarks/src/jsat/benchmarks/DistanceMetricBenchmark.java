@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jsat.linear.Vec;
+import jsat.linear.distancemetrics.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks the cost of computing all distances from one query to a set of
+ * points, with and without the acceleration cache of the metric.
+ *
+ * @author Edward Raff
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DistanceMetricBenchmark
+{
+    @Param({"Euclidean", "SquaredEuclidean", "Manhattan", "Cosine", "Chebyshev"})
+    public String metric;
+
+    @Param({"20", "1000"})
+    public int dim;
+
+    @Param({"1.0", "0.05"})
+    public double density;
+
+    /**
+     * The number of points to compute the distance to
+     */
+    @Param({"1000"})
+    public int N;
+
+    private DistanceMetric dm;
+    private List<Vec> points;
+    private List<Double> cache;
+    private Vec query;
+    private List<Double> queryInfo;
+
+    static DistanceMetric getMetric(String name)
+    {
+        switch(name)
+        {
+            case "Euclidean":
+                return new EuclideanDistance();
+            case "SquaredEuclidean":
+                return new SquaredEuclideanDistance();
+            case "Manhattan":
+                return new ManhattanDistance();
+            case "Cosine":
+                return new CosineDistance();
+            case "Chebyshev":
+                return new ChebyshevDistance();
+            default:
+                throw new IllegalArgumentException("Unknown metric " + name);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Random rand = BenchmarkData.getRandom(2);
+        dm = getMetric(metric);
+        points = BenchmarkData.randomVecs(N, dim, density, rand);
+        cache = dm.getAccelerationCache(points);
+        query = BenchmarkData.randomVec(dim, density, rand);
+        queryInfo = dm.getQueryInfo(query);
+    }
+
+    @Benchmark
+    public double dist()
+    {
+        double sum = 0;
+        for(Vec x : points)
+            sum += dm.dist(query, x);
+        return sum;
+    }
+
+    @Benchmark
+    public double distCached()
+    {
+        double sum = 0;
+        for(int i = 0; i < points.size(); i++)
+            sum += dm.dist(i, query, queryInfo, points, cache);
+        return sum;
+    }
+}
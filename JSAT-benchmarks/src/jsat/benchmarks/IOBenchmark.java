@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.benchmarks;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jsat.DataSet;
+import jsat.DataStore;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.datatransform.DenseSparceTransform;
+import jsat.io.CSV;
+import jsat.io.JSATData;
+import jsat.io.LIBSVMLoader;
+import jsat.linear.Vec;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks loading the same data set from each of the supported file
+ * formats. The files are written once per trial to a temporary directory.
+ *
+ * @author Edward Raff
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IOBenchmark
+{
+    @Param({"50000"})
+    public int N;
+
+    @Param({"50"})
+    public int dim;
+
+    /**
+     * Fraction of non-zero values, where values below 1 cause the data to be
+     * stored sparsely in the formats that support it
+     */
+    @Param({"1.0", "0.1"})
+    public double density;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private File dir;
+    private File jsatFP64;
+    private File jsatFP32;
+    private File csv;
+    private File libsvm;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        Random rand = BenchmarkData.getRandom(5);
+        ClassificationDataSet data = BenchmarkData.classification(N, dim, 3, rand);
+        if(density < 1)
+        {
+            //zero out values at random so the data is sparse
+            for(int i = 0; i < data.size(); i++)
+            {
+                Vec x = data.getDataPoint(i).getNumericalValues();
+                for(int j = 0; j < dim; j++)
+                    if(rand.nextDouble() > density)
+                        x.set(j, 0.0);
+            }
+            data.applyTransform(new DenseSparceTransform(0.5));
+        }
+
+        dir = Files.createTempDirectory("jsat-bench").toFile();
+        jsatFP64 = new File(dir, "data64.jsat");
+        jsatFP32 = new File(dir, "data32.jsat");
+        csv = new File(dir, "data.csv");
+        libsvm = new File(dir, "data.libsvm");
+        try(OutputStream out = new BufferedOutputStream(new FileOutputStream(jsatFP64)))
+        {
+            JSATData.writeData(data, out, JSATData.FloatStorageMethod.FP64);
+        }
+        try(OutputStream out = new BufferedOutputStream(new FileOutputStream(jsatFP32)))
+        {
+            JSATData.writeData(data, out, JSATData.FloatStorageMethod.FP32);
+        }
+        CSV.write(data, csv.toPath());
+        try(OutputStream out = new BufferedOutputStream(new FileOutputStream(libsvm)))
+        {
+            LIBSVMLoader.write(data, out);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        for(File f : new File[]{jsatFP64, jsatFP32, csv, libsvm})
+            f.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public DataSet<?> jsatDataFP64() throws IOException
+    {
+        try(InputStream in = new BufferedInputStream(new FileInputStream(jsatFP64)))
+        {
+            return JSATData.load(in);
+        }
+    }
+
+    @Benchmark
+    public DataSet<?> jsatDataFP32() throws IOException
+    {
+        try(InputStream in = new BufferedInputStream(new FileInputStream(jsatFP32)))
+        {
+            return JSATData.load(in);
+        }
+    }
+
+    @Benchmark
+    public DataSet<?> jsatDataMapped() throws IOException
+    {
+        return JSATData.loadMapped(jsatFP64);
+    }
+
+    @Benchmark
+    public DataSet<?> csv() throws IOException
+    {
+        //CSV.write puts the class label in the first column
+        return CSV.readC(0, csv.toPath(), CSV.DEFAULT_DELIMITER, 0, CSV.DEFAULT_COMMENT, Collections.emptySet(), parallel);
+    }
+
+    @Benchmark
+    public DataSet<?> libsvm() throws IOException
+    {
+        return LIBSVMLoader.loadC(libsvm, 0.5, dim, DataStore.DEFAULT_STORE.emptyClone(), parallel);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import jsat.linear.DenseMatrix;
+import jsat.linear.Matrix;
+import jsat.linear.Vec;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of the core {@link Vec} operations for dense and sparse vectors.
+ *
+ * @author Edward Raff
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LinearAlgebraBenchmark
+{
+    @Param({"100", "10000"})
+    public int dim;
+
+    /**
+     * Fraction of non-zero values, where 1 means dense vectors are used
+     */
+    @Param({"1.0", "0.1", "0.01"})
+    public double density;
+
+    private Vec x;
+    private Vec y;
+    private Vec dense;
+    private Vec target;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Random rand = BenchmarkData.getRandom(0);
+        x = BenchmarkData.randomVec(dim, density, rand);
+        y = BenchmarkData.randomVec(dim, density, rand);
+        dense = BenchmarkData.randomVec(dim, 1.0, rand);
+        target = BenchmarkData.randomVec(dim, 1.0, rand);
+    }
+
+    @Benchmark
+    public double dot()
+    {
+        return x.dot(y);
+    }
+
+    @Benchmark
+    public double dotDense()
+    {
+        return x.dot(dense);
+    }
+
+    @Benchmark
+    public double pNormDist()
+    {
+        return x.pNormDist(2, y);
+    }
+
+    @Benchmark
+    public double pNorm()
+    {
+        return x.pNorm(2);
+    }
+
+    @Benchmark
+    public Vec mutableAdd()
+    {
+        target.mutableAdd(1e-6, x);
+        return target;
+    }
+
+    @Benchmark
+    public Vec add()
+    {
+        return x.add(y);
+    }
+
+    /**
+     * Benchmarks of dense matrix products, using a fork-join pool of the
+     * given size for the parallel versions
+     */
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @State(Scope.Thread)
+    public static class MatrixProducts
+    {
+        @Param({"64", "256", "1024"})
+        public int n;
+
+        @Param({"1", "4"})
+        public int threads;
+
+        private DenseMatrix A;
+        private DenseMatrix B;
+        private DenseMatrix C;
+        private Vec b;
+        private ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            Random rand = BenchmarkData.getRandom(1);
+            A = new DenseMatrix(n, n);
+            B = new DenseMatrix(n, n);
+            for(int i = 0; i < n; i++)
+                for(int j = 0; j < n; j++)
+                {
+                    A.set(i, j, rand.nextGaussian());
+                    B.set(i, j, rand.nextGaussian());
+                }
+            C = new DenseMatrix(n, n);
+            b = BenchmarkData.randomVec(n, 1.0, rand);
+            pool = new ForkJoinPool(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown()
+        {
+            pool.shutdown();
+        }
+
+        @Benchmark
+        public Matrix multiply()
+        {
+            C.zeroOut();
+            A.multiply(B, C, pool);
+            return C;
+        }
+
+        @Benchmark
+        public Matrix transposeMultiply()
+        {
+            C.zeroOut();
+            A.transposeMultiply(B, C, pool);
+            return C;
+        }
+
+        @Benchmark
+        public Matrix multiplyTranspose()
+        {
+            C.zeroOut();
+            A.multiplyTranspose(B, C, pool);
+            return C;
+        }
+
+        @Benchmark
+        public Vec multiplyVec()
+        {
+            return A.multiply(b);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.classifiers.Classifier;
+import jsat.classifiers.linear.LinearSGD;
+import jsat.classifiers.linear.PassiveAggressive;
+import jsat.linear.Vec;
+import jsat.lossfunctions.LogisticLoss;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks the training time of the online linear models on sparse, text
+ * like data, comparing sequential training against lock free Hogwild
+ * training. Training is always requested in parallel, so the
+ * {@code hogwild=false} case measures the single threaded path.
+ *
+ * @author Edward Raff
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OnlineLinearBenchmark
+{
+    @Param({"LinearSGD", "LinearSGD-L1", "PassiveAggressive"})
+    public String learner;
+
+    @Param({"50000"})
+    public int N;
+
+    @Param({"100000"})
+    public int dim;
+
+    @Param({"0.0005"})
+    public double density;
+
+    @Param({"false", "true"})
+    public boolean hogwild;
+
+    private ClassificationDataSet train;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Random rand = BenchmarkData.getRandom(5);
+        Vec w = BenchmarkData.randomVec(dim, 1.0, rand);
+        train = new ClassificationDataSet(dim, new CategoricalData[0], new CategoricalData(2));
+        for(int i = 0; i < N; i++)
+        {
+            Vec x = BenchmarkData.randomVec(dim, density, rand);
+            train.addDataPoint(x, x.dot(w) > 0 ? 1 : 0);
+        }
+    }
+
+    private Classifier getLearner()
+    {
+        switch(learner)
+        {
+            case "LinearSGD":
+            {
+                LinearSGD sgd = new LinearSGD(new LogisticLoss(), 1e-6, 0.0);
+                sgd.setEpochs(5);
+                sgd.setHogwild(hogwild);
+                return sgd;
+            }
+            case "LinearSGD-L1":
+            {
+                LinearSGD sgd = new LinearSGD(new LogisticLoss(), 1e-6, 1e-7);
+                sgd.setEpochs(5);
+                sgd.setHogwild(hogwild);
+                return sgd;
+            }
+            case "PassiveAggressive":
+            {
+                PassiveAggressive pa = new PassiveAggressive();
+                pa.setEpochs(5);
+                pa.setHogwild(hogwild);
+                return pa;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown learner " + learner);
+        }
+    }
+
+    @Benchmark
+    public Classifier train()
+    {
+        Classifier model = getLearner();
+        model.train(train, true);
+        return model;
+    }
+}
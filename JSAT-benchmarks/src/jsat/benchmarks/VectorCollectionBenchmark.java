@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jsat.linear.Vec;
+import jsat.linear.distancemetrics.EuclideanDistance;
+import jsat.linear.vectorcollection.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks building {@link VectorCollection}s and searching them for the
+ * nearest neighbors of a batch of queries.
+ *
+ * @author Edward Raff
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorCollectionBenchmark
+{
+    @Param({"VPTree", "KDTree", "BallTree", "CoverTree", "RandomBallCover", "VectorArray"})
+    public String collection;
+
+    @Param({"10000"})
+    public int N;
+
+    @Param({"4", "32"})
+    public int dim;
+
+    /**
+     * The number of neighbors to search for
+     */
+    @Param({"10"})
+    public int k;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private List<Vec> points;
+    private List<Vec> queries;
+    private VectorCollection<Vec> built;
+
+    static VectorCollection<Vec> getCollection(String name)
+    {
+        switch(name)
+        {
+            case "VPTree":
+                return new VPTree<>();
+            case "KDTree":
+                return new KDTree<>();
+            case "BallTree":
+                return new BallTree<>();
+            case "CoverTree":
+                return new CoverTree<>(new EuclideanDistance());
+            case "RandomBallCover":
+                return new RandomBallCover<>();
+            case "VectorArray":
+                return new VectorArray<>();
+            default:
+                throw new IllegalArgumentException("Unknown collection " + name);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Random rand = BenchmarkData.getRandom(3);
+        points = BenchmarkData.randomVecs(N, dim, 1.0, rand);
+        queries = BenchmarkData.randomVecs(1000, dim, 1.0, rand);
+        built = getCollection(collection);
+        built.build(parallel, points, new EuclideanDistance());
+    }
+
+    @Benchmark
+    public VectorCollection<Vec> build()
+    {
+        VectorCollection<Vec> vc = getCollection(collection);
+        vc.build(parallel, points, new EuclideanDistance());
+        return vc;
+    }
+
+    @Benchmark
+    public List<List<Integer>> knnQuery()
+    {
+        List<List<Integer>> neighbors = new ArrayList<>();
+        List<List<Double>> distances = new ArrayList<>();
+        built.search(queries, k, neighbors, distances, parallel);
+        return neighbors;
+    }
+
+    @Benchmark
+    public List<List<Integer>> rangeQuery()
+    {
+        List<List<Integer>> neighbors = new ArrayList<>();
+        List<List<Double>> distances = new ArrayList<>();
+        built.search(queries, 0, Math.sqrt(dim)*0.5, neighbors, distances, parallel);
+        return neighbors;
+    }
+}
@@ -0,0 +1,1281 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat;
+
+import java.io.ObjectStreamException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.DataPoint;
+import jsat.linear.DenseVector;
+import jsat.linear.IndexValue;
+import jsat.linear.SparseVector;
+import jsat.linear.Vec;
+import jsat.math.OnLineStatistics;
+import jsat.utils.DoubleList;
+import jsat.utils.IntList;
+
+/**
+ * A column major DataStore that compresses every column, picking the encoding
+ * that uses the least memory for each column independently. Numeric columns
+ * may be stored as:
+ * <ul>
+ * <li>dense doubles</li>
+ * <li>dense floats, when every value can be represented exactly as a float
+ * (or always, if lossy floats are allowed)</li>
+ * <li>dictionary encoding, where a column with few unique values stores a
+ * bit-packed index into a table of the unique values</li>
+ * <li>run-length encoding, for constant or sorted columns with long runs of
+ * the same value</li>
+ * <li>sparse columns, storing only the non-zero values (themselves encoded
+ * as doubles, floats, or a dictionary), with the row indices delta encoded as
+ * variable length integers</li>
+ * </ul>
+ * Categorical columns are bit-packed using only as many bits as needed for
+ * the number of options in each column. <br>
+ * <br>
+ * Data points are added to an uncompressed buffer, and the data is
+ * compressed when {@link #finishAdding() } is called. Columns are returned by
+ * {@link #getNumericColumn(int) } as read-only views of the compressed data
+ * that support efficient iteration over the non-zero values, which is how
+ * column-wise algorithms such as coordinate descent access them. Adding or
+ * altering data points after compression will return the store to the
+ * uncompressed buffer until {@link #finishAdding() } is called again.
+ *
+ * @author Edward Raff
+ */
+public class CompressedColumnStore implements DataStore
+{
+    /**
+     * Number of sparse entries between each checkpoint used for random access
+     * into the delta encoded indices
+     */
+    private static final int CHECKPOINT_INTERVAL = 64;
+    /**
+     * The maximum number of unique values a column can have to use dictionary
+     * encoding
+     */
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    /**
+     * The encoding used for a numeric column
+     */
+    public enum Encoding
+    {
+        DENSE_DOUBLE,
+        DENSE_FLOAT,
+        DENSE_DICTIONARY,
+        RUN_LENGTH,
+        SPARSE_DOUBLE,
+        SPARSE_FLOAT,
+        SPARSE_DICTIONARY,
+    }
+
+    private CategoricalData[] cat_info;
+    private final boolean lossyFloats;
+    /**
+     * Holds data points that have not yet been compressed. If non-null, this
+     * is the authoritative copy of the data.
+     */
+    private ColumnMajorStore staging;
+    private Column[] columns;
+    private PackedInts[] cat_columns;
+    private int size;
+
+    /**
+     * Creates a new empty compressed store that only uses lossless encodings
+     */
+    public CompressedColumnStore()
+    {
+        this(0, null);
+    }
+
+    /**
+     * Creates a new Data Store with the intent for a specific number of
+     * features known ahead of time. Only lossless encodings will be used.
+     *
+     * @param numNumeric the number of numeric features to be in the data store
+     * @param cat_info the information about the categorical data
+     */
+    public CompressedColumnStore(int numNumeric, CategoricalData[] cat_info)
+    {
+        this(numNumeric, cat_info, false);
+    }
+
+    /**
+     * Creates a new Data Store with the intent for a specific number of
+     * features known ahead of time.
+     *
+     * @param numNumeric the number of numeric features to be in the data store
+     * @param cat_info the information about the categorical data
+     * @param lossyFloats {@code true} to allow numeric values to be rounded to
+     * floats to save memory, {@code false} to only use floats when no
+     * precision would be lost.
+     */
+    public CompressedColumnStore(int numNumeric, CategoricalData[] cat_info, boolean lossyFloats)
+    {
+        this.cat_info = cat_info;
+        this.lossyFloats = lossyFloats;
+        this.staging = new ColumnMajorStore(numNumeric, cat_info, true);
+    }
+
+    /**
+     * Creates a new compressed store containing all the data points of the
+     * given store.
+     *
+     * @param source the data to compress
+     * @param lossyFloats {@code true} to allow numeric values to be rounded to
+     * floats to save memory, {@code false} to only use floats when no
+     * precision would be lost.
+     */
+    public CompressedColumnStore(DataStore source, boolean lossyFloats)
+    {
+        this(source.numNumeric(), source.getCategoricalDataInfo(), lossyFloats);
+        for(int i = 0; i < source.size(); i++)
+            addDataPoint(source.getDataPoint(i));
+        finishAdding();
+    }
+
+    /**
+     * Copy constructor
+     *
+     * @param toCopy the object to copy
+     */
+    public CompressedColumnStore(CompressedColumnStore toCopy)
+    {
+        if(toCopy.cat_info != null)
+            this.cat_info = CategoricalData.copyOf(toCopy.cat_info);
+        this.lossyFloats = toCopy.lossyFloats;
+        if(toCopy.staging != null)
+            this.staging = toCopy.staging.clone();
+        //compressed columns are never altered, so they can be shared
+        if(toCopy.columns != null)
+            this.columns = Arrays.copyOf(toCopy.columns, toCopy.columns.length);
+        if(toCopy.cat_columns != null)
+            this.cat_columns = Arrays.copyOf(toCopy.cat_columns, toCopy.cat_columns.length);
+        this.size = toCopy.size;
+    }
+
+    /**
+     * Returns the encoding used for the given numeric column. The store must
+     * be compressed for this to be meaningful.
+     *
+     * @param i the numeric column index
+     * @return the encoding used for the column, or {@code null} if the data
+     * has not been compressed yet
+     */
+    public Encoding getEncoding(int i)
+    {
+        if(staging != null)
+            return null;
+        return columns[i].encoding();
+    }
+
+    /**
+     * Returns the approximate number of bytes used to store the compressed
+     * numeric and categorical values.
+     *
+     * @return the approximate memory used by the compressed data, or -1 if the
+     * data has not been compressed yet
+     */
+    public long getCompressedBytes()
+    {
+        if(staging != null)
+            return -1;
+        long bytes = 0;
+        for(Column c : columns)
+            bytes += c.bytes();
+        for(PackedInts p : cat_columns)
+            bytes += p.bytes();
+        return bytes;
+    }
+
+    /**
+     * Moves the data back into the uncompressed buffer so it can be altered
+     */
+    private void decompress()
+    {
+        if(staging != null)
+            return;
+        ColumnMajorStore buffer = new ColumnMajorStore(columns.length, cat_info, true);
+        for(int i = 0; i < size; i++)
+            buffer.addDataPoint(getDataPoint(i));
+        buffer.finishAdding();
+        staging = buffer;
+        columns = null;
+        cat_columns = null;
+    }
+
+    @Override
+    public void setCategoricalDataInfo(CategoricalData[] cat_info)
+    {
+        this.cat_info = cat_info;
+        if(staging != null)
+            staging.setCategoricalDataInfo(cat_info);
+    }
+
+    @Override
+    public CategoricalData[] getCategoricalDataInfo()
+    {
+        return cat_info;
+    }
+
+    @Override
+    public void addDataPoint(DataPoint dp)
+    {
+        decompress();
+        staging.addDataPoint(dp);
+    }
+
+    @Override
+    public DataPoint getDataPoint(int i)
+    {
+        if(staging != null)
+            return staging.getDataPoint(i);
+        if(i >= size)
+            throw new IndexOutOfBoundsException("Requested datapoint " + i + " but index has only " + size + " datums");
+
+        int d_n = columns.length;
+        Vec x = new SparseVector(d_n);
+        for(int j = 0; j < d_n; j++)
+        {
+            double v = columns[j].get(i);
+            if(v != 0)
+                x.set(j, v);
+        }
+        if(x.nnz() > d_n/2)
+            x = new DenseVector(x);//denseify
+
+        int[] cat = new int[cat_columns.length];
+        for(int j = 0; j < cat.length; j++)
+            cat[j] = cat_columns[j].get(i)-1;
+
+        return new DataPoint(x, cat, cat_info);
+    }
+
+    @Override
+    public void finishAdding()
+    {
+        if(staging == null)
+            return;
+        staging.finishAdding();
+        if(cat_info == null)
+            cat_info = staging.getCategoricalDataInfo();
+
+        size = staging.size();
+        columns = new Column[staging.numNumeric()];
+        for(int j = 0; j < columns.length; j++)
+            columns[j] = encode(staging.getNumericColumn(j), size, lossyFloats);
+        cat_columns = new PackedInts[staging.numCategorical()];
+        for(int j = 0; j < cat_columns.length; j++)
+        {
+            int[] col = staging.getCatColumn(j);
+            int max = 0;
+            for(int v : col)
+                max = Math.max(max, v+1);
+            PackedInts packed = new PackedInts(size, PackedInts.bitsNeeded(max));
+            for(int i = 0; i < size; i++)
+                packed.set(i, col[i]+1);//+1 so that missing values (-1) are 0
+            cat_columns[j] = packed;
+        }
+        staging = null;
+    }
+
+    @Override
+    public int numNumeric()
+    {
+        if(staging != null)
+            return staging.numNumeric();
+        return columns.length;
+    }
+
+    @Override
+    public void setNumNumeric(int d)
+    {
+        if(d < 0)
+            throw new RuntimeException("Can not store a negative number of features (" +d + ")");
+        if(staging != null)
+        {
+            staging.setNumNumeric(d);
+            return;
+        }
+        int oldD = columns.length;
+        columns = Arrays.copyOf(columns, d);
+        for(int j = oldD; j < d; j++)//new columns are all zero
+            columns[j] = new RunLengthColumn(new double[]{0.0}, new int[]{size}, size);
+    }
+
+    @Override
+    public int numCategorical()
+    {
+        if(staging != null)
+            return staging.numCategorical();
+        return cat_columns.length;
+    }
+
+    @Override
+    public void setDataPoint(int i, DataPoint dp)
+    {
+        decompress();
+        staging.setDataPoint(i, dp);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * If the data has been compressed, a read-only view of the compressed
+     * column is returned.
+     */
+    @Override
+    public Vec getNumericColumn(int i)
+    {
+        if(staging != null)
+            return staging.getNumericColumn(i);
+        if (i < 0 || i >= numNumeric())
+            throw new IndexOutOfBoundsException("There is no index for column " + i);
+        return new ColumnVec(columns[i], size);
+    }
+
+    @Override
+    public int[] getCatColumn(int i)
+    {
+        if(staging != null)
+            return staging.getCatColumn(i);
+        if (i < 0 || i >= numCategorical())
+            throw new IndexOutOfBoundsException("There is no index for column " + i);
+        int[] toRet = new int[size];
+        for(int j = 0; j < size; j++)
+            toRet[j] = cat_columns[i].get(j)-1;
+        return toRet;
+    }
+
+    @Override
+    public Vec[] getNumericColumns(Set<Integer> skipColumns)
+    {
+        if(staging != null)
+            return staging.getNumericColumns(skipColumns);
+        Vec[] toRet = new Vec[numNumeric()];
+        for(int j = 0; j < toRet.length; j++)
+            if(!skipColumns.contains(j))
+                toRet[j] = new ColumnVec(columns[j], size);
+        return toRet;
+    }
+
+    @Override
+    public boolean rowMajor()
+    {
+        return false;
+    }
+
+    @Override
+    public int size()
+    {
+        if(staging != null)
+            return staging.size();
+        return size;
+    }
+
+    @Override
+    public OnLineStatistics getSparsityStats()
+    {
+        if(staging != null)
+            return staging.getSparsityStats();
+        OnLineStatistics stats = new OnLineStatistics();
+        for(Column c : columns)
+            stats.add(c.nnz() / (double) size);
+        return stats;
+    }
+
+    @Override
+    public CompressedColumnStore clone()
+    {
+        return new CompressedColumnStore(this);
+    }
+
+    @Override
+    public CompressedColumnStore emptyClone()
+    {
+        return new CompressedColumnStore(numNumeric(), cat_info, lossyFloats);
+    }
+
+    /**
+     * Selects the smallest encoding for the given column and creates it
+     *
+     * @param col the column of values
+     * @param n the number of rows
+     * @param lossyFloats whether or not floats may be used when precision
+     * would be lost
+     * @return the encoded column
+     */
+    private static Column encode(Vec col, int n, boolean lossyFloats)
+    {
+        IntList idx = new IntList();
+        DoubleList vals = new DoubleList();
+        for(IndexValue iv : col)
+            if(iv.getIndex() < n && iv.getValue() != 0)
+            {
+                idx.add(iv.getIndex());
+                vals.add(iv.getValue());
+            }
+        final int nnz = idx.size();
+
+        //count the runs of identical values, including the runs of zeros
+        int runs = 0;
+        int prevEnd = 0;
+        double prevVal = Double.NaN;
+        boolean first = true;
+        for(int k = 0; k < nnz; k++)
+        {
+            int i = idx.getI(k);
+            double v = vals.getD(k);
+            if(i > prevEnd)//gap of zeros
+            {
+                if(first || !sameValue(prevVal, 0.0))
+                    runs++;
+                prevVal = 0.0;
+                first = false;
+            }
+            if(first || !sameValue(prevVal, v))
+                runs++;
+            prevVal = v;
+            first = false;
+            prevEnd = i+1;
+        }
+        if(prevEnd < n && (first || !sameValue(prevVal, 0.0)))
+            runs++;
+
+        ValueStats nzStats = new ValueStats(vals, nnz, lossyFloats);
+        ValueStats denseStats = nnz < n ? nzStats.withZero() : nzStats;
+
+        long denseBytes = denseStats.bytes(n);
+        long rleBytes = (long) runs * (Double.BYTES + Integer.BYTES);
+        long sparseBytes = SparseColumn.indexBytes(idx) + nzStats.bytes(nnz);
+
+        if(denseBytes <= rleBytes && denseBytes <= sparseBytes)
+        {
+            double[] dense = new double[n];
+            for(int k = 0; k < nnz; k++)
+                dense[idx.getI(k)] = vals.getD(k);
+            return new DenseColumn(denseStats.encode(dense, n), n);
+        }
+        else if(rleBytes <= sparseBytes)
+        {
+            double[] runVals = new double[runs];
+            int[] runEnds = new int[runs];
+            int r = -1;
+            int pos = 0;
+            for(int k = 0; k <= nnz; k++)
+            {
+                int i = k < nnz ? idx.getI(k) : n;
+                if(i > pos)//zeros from pos to i
+                {
+                    if(r < 0 || !sameValue(runVals[r], 0.0))
+                        runVals[++r] = 0.0;
+                    runEnds[r] = i;
+                }
+                if(k == nnz)
+                    break;
+                double v = vals.getD(k);
+                if(r < 0 || !sameValue(runVals[r], v))
+                    runVals[++r] = v;
+                runEnds[r] = i+1;
+                pos = i+1;
+            }
+            return new RunLengthColumn(runVals, runEnds, n);
+        }
+        else
+            return new SparseColumn(idx, nzStats.encode(vals.getBackingArray(), nnz), n);
+    }
+
+    /**
+     * Compares values by their bit patterns, so that NaN is equal to itself
+     */
+    private static boolean sameValue(double a, double b)
+    {
+        return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+    }
+
+    /**
+     * Information about a sequence of values used to pick how to store them
+     */
+    private static class ValueStats
+    {
+        /**
+         * Unique values mapped to their dictionary index, or {@code null} if
+         * there are too many for a dictionary
+         */
+        Map<Double, Integer> unique;
+        boolean floatOK;
+
+        public ValueStats(DoubleList vals, int n, boolean lossyFloats)
+        {
+            floatOK = true;
+            unique = new HashMap<>();
+            for(int k = 0; k < n; k++)
+            {
+                double v = vals.getD(k);
+                if(floatOK && !lossyFloats && !Double.isNaN(v) && (double) (float) v != v)
+                    floatOK = false;
+                if(unique != null)
+                {
+                    unique.putIfAbsent(v, unique.size());
+                    if(unique.size() > MAX_DICTIONARY_SIZE)
+                        unique = null;
+                }
+            }
+        }
+
+        private ValueStats(ValueStats toCopy)
+        {
+            this.floatOK = toCopy.floatOK;
+            if(toCopy.unique != null)
+                this.unique = new HashMap<>(toCopy.unique);
+        }
+
+        /**
+         *
+         * @return a copy of these stats that also includes the value zero
+         */
+        public ValueStats withZero()
+        {
+            ValueStats s = new ValueStats(this);
+            if(s.unique != null)
+            {
+                s.unique.putIfAbsent(0.0, s.unique.size());
+                if(s.unique.size() > MAX_DICTIONARY_SIZE)
+                    s.unique = null;
+            }
+            return s;
+        }
+
+        private long dictBytes(int n)
+        {
+            if(unique == null)
+                return Long.MAX_VALUE;
+            return PackedInts.bytes(n, PackedInts.bitsNeeded(unique.size()-1)) + (long) Double.BYTES*unique.size();
+        }
+
+        public long bytes(int n)
+        {
+            long bytes = (long) n*(floatOK ? Float.BYTES : Double.BYTES);
+            return Math.min(bytes, dictBytes(n));
+        }
+
+        public Values encode(double[] vals, int n)
+        {
+            long dict = dictBytes(n);
+            if(dict < (long) n*(floatOK ? Float.BYTES : Double.BYTES))
+            {
+                double[] table = new double[unique.size()];
+                for(Map.Entry<Double, Integer> entry : unique.entrySet())
+                    table[entry.getValue()] = entry.getKey();
+                PackedInts codes = new PackedInts(n, PackedInts.bitsNeeded(table.length-1));
+                for(int k = 0; k < n; k++)
+                    codes.set(k, unique.get(vals[k]));
+                return new DictionaryValues(table, codes);
+            }
+            else if(floatOK)
+            {
+                float[] f = new float[n];
+                for(int k = 0; k < n; k++)
+                    f[k] = (float) vals[k];
+                return new FloatValues(f);
+            }
+            else
+                return new DoubleValues(Arrays.copyOf(vals, n));
+        }
+    }
+
+    /**
+     * A fixed length array of non-negative integers, each stored with the
+     * same number of bits.
+     */
+    private static class PackedInts
+    {
+        private final long[] words;
+        private final int bits;
+        private final long mask;
+
+        public PackedInts(int n, int bits)
+        {
+            this.bits = bits;
+            this.mask = (1L << bits)-1;
+            this.words = new long[(int) (((long) n*bits+63)/64)];
+        }
+
+        /**
+         *
+         * @param maxValue the largest value that needs to be stored
+         * @return the number of bits needed to store values in [0, maxValue]
+         */
+        public static int bitsNeeded(int maxValue)
+        {
+            return Math.max(32-Integer.numberOfLeadingZeros(maxValue), 1);
+        }
+
+        public static long bytes(int n, int bits)
+        {
+            return ((long) n*bits+63)/64*Long.BYTES;
+        }
+
+        public long bytes()
+        {
+            return (long) words.length*Long.BYTES;
+        }
+
+        public int get(int k)
+        {
+            long bitPos = (long) k*bits;
+            int w = (int) (bitPos >>> 6);
+            int off = (int) (bitPos & 63);
+            long val = words[w] >>> off;
+            if(off+bits > 64)
+                val |= words[w+1] << (64-off);
+            return (int) (val & mask);
+        }
+
+        public void set(int k, int value)
+        {
+            long v = value & mask;
+            long bitPos = (long) k*bits;
+            int w = (int) (bitPos >>> 6);
+            int off = (int) (bitPos & 63);
+            words[w] = (words[w] & ~(mask << off)) | (v << off);
+            if(off+bits > 64)
+            {
+                int spill = 64-off;
+                words[w+1] = (words[w+1] & ~(mask >>> spill)) | (v >>> spill);
+            }
+        }
+    }
+
+    /**
+     * A sequence of double values stored in some encoding
+     */
+    private static abstract class Values
+    {
+        abstract public double get(int k);
+
+        abstract public long bytes();
+
+        abstract public boolean isFloat();
+
+        abstract public boolean isDictionary();
+    }
+
+    private static class DoubleValues extends Values
+    {
+        private final double[] vals;
+
+        public DoubleValues(double[] vals)
+        {
+            this.vals = vals;
+        }
+
+        @Override
+        public double get(int k)
+        {
+            return vals[k];
+        }
+
+        @Override
+        public long bytes()
+        {
+            return (long) vals.length*Double.BYTES;
+        }
+
+        @Override
+        public boolean isFloat()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isDictionary()
+        {
+            return false;
+        }
+    }
+
+    private static class FloatValues extends Values
+    {
+        private final float[] vals;
+
+        public FloatValues(float[] vals)
+        {
+            this.vals = vals;
+        }
+
+        @Override
+        public double get(int k)
+        {
+            return vals[k];
+        }
+
+        @Override
+        public long bytes()
+        {
+            return (long) vals.length*Float.BYTES;
+        }
+
+        @Override
+        public boolean isFloat()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean isDictionary()
+        {
+            return false;
+        }
+    }
+
+    private static class DictionaryValues extends Values
+    {
+        private final double[] table;
+        private final PackedInts codes;
+
+        public DictionaryValues(double[] table, PackedInts codes)
+        {
+            this.table = table;
+            this.codes = codes;
+        }
+
+        @Override
+        public double get(int k)
+        {
+            return table[codes.get(k)];
+        }
+
+        @Override
+        public long bytes()
+        {
+            return codes.bytes() + (long) table.length*Double.BYTES;
+        }
+
+        @Override
+        public boolean isFloat()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isDictionary()
+        {
+            return true;
+        }
+    }
+
+    /**
+     * A compressed numeric column
+     */
+    private static abstract class Column
+    {
+        /**
+         * @param i the row
+         * @return the value in the given row
+         */
+        abstract public double get(int i);
+
+        /**
+         * @param start the first row to consider
+         * @return an iterator over the non-zero values from the given row
+         * onward
+         */
+        abstract public Iterator<IndexValue> nonZeroIterator(int start);
+
+        abstract public int nnz();
+
+        abstract public long bytes();
+
+        abstract public Encoding encoding();
+
+        /**
+         * @return {@code true} if iterating over the non-zero values is
+         * cheaper than visiting every row
+         */
+        abstract public boolean isSparse();
+    }
+
+    private static class DenseColumn extends Column
+    {
+        private final Values vals;
+        private final int n;
+        private final int nnz;
+
+        public DenseColumn(Values vals, int n)
+        {
+            this.vals = vals;
+            this.n = n;
+            int count = 0;
+            for(int i = 0; i < n; i++)
+                if(vals.get(i) != 0)
+                    count++;
+            this.nnz = count;
+        }
+
+        @Override
+        public double get(int i)
+        {
+            return vals.get(i);
+        }
+
+        @Override
+        public Iterator<IndexValue> nonZeroIterator(int start)
+        {
+            return new Iterator<IndexValue>()
+            {
+                int pos = advance(start);
+                final IndexValue iv = new IndexValue(-1, 0);
+
+                private int advance(int i)
+                {
+                    while(i < n && vals.get(i) == 0)
+                        i++;
+                    return i;
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return pos < n;
+                }
+
+                @Override
+                public IndexValue next()
+                {
+                    if(pos >= n)
+                        throw new NoSuchElementException();
+                    iv.setIndex(pos);
+                    iv.setValue(vals.get(pos));
+                    pos = advance(pos+1);
+                    return iv;
+                }
+            };
+        }
+
+        @Override
+        public int nnz()
+        {
+            return nnz;
+        }
+
+        @Override
+        public long bytes()
+        {
+            return vals.bytes();
+        }
+
+        @Override
+        public Encoding encoding()
+        {
+            if(vals.isDictionary())
+                return Encoding.DENSE_DICTIONARY;
+            return vals.isFloat() ? Encoding.DENSE_FLOAT : Encoding.DENSE_DOUBLE;
+        }
+
+        @Override
+        public boolean isSparse()
+        {
+            return false;
+        }
+    }
+
+    private static class RunLengthColumn extends Column
+    {
+        private final double[] runVals;
+        /**
+         * The exclusive end row of each run
+         */
+        private final int[] runEnds;
+        private final int n;
+        private final int nnz;
+
+        public RunLengthColumn(double[] runVals, int[] runEnds, int n)
+        {
+            this.runVals = runVals;
+            this.runEnds = runEnds;
+            this.n = n;
+            int count = 0;
+            for(int r = 0; r < runVals.length; r++)
+                if(runVals[r] != 0)
+                    count += runEnds[r] - (r == 0 ? 0 : runEnds[r-1]);
+            this.nnz = count;
+        }
+
+        private int runOf(int i)
+        {
+            int r = Arrays.binarySearch(runEnds, i);
+            //an exact match means i is the first row of the next run
+            return r >= 0 ? r+1 : -r-1;
+        }
+
+        @Override
+        public double get(int i)
+        {
+            return runVals[runOf(i)];
+        }
+
+        @Override
+        public Iterator<IndexValue> nonZeroIterator(int start)
+        {
+            return new Iterator<IndexValue>()
+            {
+                int pos = start;
+                int run = start < n ? runOf(start) : runVals.length;
+                final IndexValue iv = new IndexValue(-1, 0);
+
+                {
+                    skipZeros();
+                }
+
+                private void skipZeros()
+                {
+                    while(run < runVals.length && runVals[run] == 0)
+                        pos = runEnds[run++];
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return run < runVals.length;
+                }
+
+                @Override
+                public IndexValue next()
+                {
+                    if(run >= runVals.length)
+                        throw new NoSuchElementException();
+                    iv.setIndex(pos);
+                    iv.setValue(runVals[run]);
+                    if(++pos >= runEnds[run])
+                    {
+                        run++;
+                        skipZeros();
+                    }
+                    return iv;
+                }
+            };
+        }
+
+        @Override
+        public int nnz()
+        {
+            return nnz;
+        }
+
+        @Override
+        public long bytes()
+        {
+            return (long) runVals.length*(Double.BYTES+Integer.BYTES);
+        }
+
+        @Override
+        public Encoding encoding()
+        {
+            return Encoding.RUN_LENGTH;
+        }
+
+        @Override
+        public boolean isSparse()
+        {
+            return true;
+        }
+    }
+
+    private static class SparseColumn extends Column
+    {
+        private final int n;
+        private final int nnz;
+        /**
+         * The gaps between consecutive non-zero rows, as variable length
+         * integers
+         */
+        private final byte[] deltas;
+        /**
+         * The row of every {@link #CHECKPOINT_INTERVAL}'th non-zero entry
+         */
+        private final int[] checkRow;
+        /**
+         * The position in {@link #deltas} just after the row of every
+         * {@link #CHECKPOINT_INTERVAL}'th non-zero entry
+         */
+        private final int[] checkPos;
+        private final Values vals;
+
+        public SparseColumn(IntList idx, Values vals, int n)
+        {
+            this.n = n;
+            this.nnz = idx.size();
+            this.vals = vals;
+            this.deltas = new byte[(int) varIntBytes(idx)];
+            int numChecks = (nnz+CHECKPOINT_INTERVAL-1)/CHECKPOINT_INTERVAL;
+            this.checkRow = new int[numChecks];
+            this.checkPos = new int[numChecks];
+            int pos = 0;
+            int prev = 0;
+            for(int k = 0; k < nnz; k++)
+            {
+                int i = idx.getI(k);
+                pos = writeVarInt(deltas, pos, i-prev);
+                prev = i;
+                if(k % CHECKPOINT_INTERVAL == 0)
+                {
+                    checkRow[k/CHECKPOINT_INTERVAL] = i;
+                    checkPos[k/CHECKPOINT_INTERVAL] = pos;
+                }
+            }
+        }
+
+        private static long varIntBytes(IntList idx)
+        {
+            long bytes = 0;
+            int prev = 0;
+            for(int k = 0; k < idx.size(); k++)
+            {
+                int delta = idx.getI(k)-prev;
+                prev = idx.getI(k);
+                do
+                {
+                    bytes++;
+                    delta >>>= 7;
+                }
+                while(delta != 0);
+            }
+            return bytes;
+        }
+
+        /**
+         * @param idx the sorted non-zero indices
+         * @return the number of bytes needed to store the indices
+         */
+        static long indexBytes(IntList idx)
+        {
+            long checks = (idx.size()+CHECKPOINT_INTERVAL-1)/CHECKPOINT_INTERVAL;
+            return varIntBytes(idx) + checks*2*Integer.BYTES;
+        }
+
+        private static int writeVarInt(byte[] buf, int pos, int val)
+        {
+            while((val & ~0x7F) != 0)
+            {
+                buf[pos++] = (byte) ((val & 0x7F) | 0x80);
+                val >>>= 7;
+            }
+            buf[pos++] = (byte) val;
+            return pos;
+        }
+
+        /**
+         * Iterates over the non-zero entries by decoding the deltas
+         */
+        private class SparseIter implements Iterator<IndexValue>
+        {
+            /**
+             * The index of the next non-zero entry
+             */
+            int k;
+            /**
+             * The row of the next non-zero entry
+             */
+            int row;
+            /**
+             * Position in deltas after the next entry's row
+             */
+            int pos;
+            final IndexValue iv = new IndexValue(-1, 0);
+
+            public SparseIter(int start)
+            {
+                //find the last checkpoint at or before start
+                int c = Arrays.binarySearch(checkRow, start);
+                if(c < 0)
+                    c = -c-2;
+                if(c < 0)
+                    c = 0;
+                k = c*CHECKPOINT_INTERVAL;
+                if(k < nnz)
+                {
+                    row = checkRow[c];
+                    pos = checkPos[c];
+                }
+                while(k < nnz && row < start)
+                    advance();
+            }
+
+            private void advance()
+            {
+                k++;
+                if(k >= nnz)
+                    return;
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do
+                {
+                    b = deltas[pos++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                }
+                while((b & 0x80) != 0);
+                row += delta;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return k < nnz;
+            }
+
+            @Override
+            public IndexValue next()
+            {
+                if(k >= nnz)
+                    throw new NoSuchElementException();
+                iv.setIndex(row);
+                iv.setValue(vals.get(k));
+                advance();
+                return iv;
+            }
+        }
+
+        @Override
+        public double get(int i)
+        {
+            SparseIter iter = new SparseIter(i);
+            if(iter.hasNext() && iter.row == i)
+                return vals.get(iter.k);
+            return 0.0;
+        }
+
+        @Override
+        public Iterator<IndexValue> nonZeroIterator(int start)
+        {
+            return new SparseIter(start);
+        }
+
+        @Override
+        public int nnz()
+        {
+            return nnz;
+        }
+
+        @Override
+        public long bytes()
+        {
+            return deltas.length + (long) checkRow.length*2*Integer.BYTES + vals.bytes();
+        }
+
+        @Override
+        public Encoding encoding()
+        {
+            if(vals.isDictionary())
+                return Encoding.SPARSE_DICTIONARY;
+            return vals.isFloat() ? Encoding.SPARSE_FLOAT : Encoding.SPARSE_DOUBLE;
+        }
+
+        @Override
+        public boolean isSparse()
+        {
+            return true;
+        }
+    }
+
+    /**
+     * A read-only vector view of a compressed column
+     */
+    private static class ColumnVec extends Vec
+    {
+        private static final long serialVersionUID = -2460129464981474127L;
+        private final Column column;
+        private final int n;
+
+        public ColumnVec(Column column, int n)
+        {
+            this.column = column;
+            this.n = n;
+        }
+
+        @Override
+        public int length()
+        {
+            return n;
+        }
+
+        @Override
+        public double get(int index)
+        {
+            if (index < 0 || index >= n)
+                throw new IndexOutOfBoundsException("Index " + index + " is not valid for a vector of length " + n);
+            return column.get(index);
+        }
+
+        @Override
+        public void set(int index, double val)
+        {
+            throw new UnsupportedOperationException("Compressed data can not be altered");
+        }
+
+        @Override
+        public int nnz()
+        {
+            return column.nnz();
+        }
+
+        @Override
+        public Iterator<IndexValue> getNonZeroIterator(int start)
+        {
+            return column.nonZeroIterator(start);
+        }
+
+        @Override
+        public boolean canBeMutated()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isSparse()
+        {
+            return column.isSparse();
+        }
+
+        @Override
+        public Vec clone()
+        {
+            if(isSparse())
+                return new SparseVector(this);
+            return new DenseVector(this);
+        }
+
+        @Override
+        public void setLength(int length)
+        {
+            throw new UnsupportedOperationException("Compressed data can not be altered");
+        }
+
+        private Object writeReplace() throws ObjectStreamException
+        {
+            return clone();
+        }
+    }
+}
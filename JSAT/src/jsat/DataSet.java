@@ -109,6 +109,7 @@ public abstract class DataSet<Type extends DataSet>
         {
             for(int i = 0; i < this.datapoints.size(); i++)
                 store.addDataPoint(this.getDataPoint(i));
+            store.finishAdding();
         }
         this.datapoints = store;
     }
@@ -267,12 +268,11 @@ public abstract class DataSet<Type extends DataSet>
         if (mutate && dt instanceof InPlaceTransform)
         {
             final InPlaceTransform ipt = (InPlaceTransform) dt;
-            ParallelUtils.range(size(), parallel)
-                    .forEach(i->ipt.mutableTransform(getDataPoint(i)));
+            ParallelUtils.run(parallel, size(), i->ipt.mutableTransform(getDataPoint(i)));
         }
         else
 	{
-            ParallelUtils.range(size(), parallel).forEach(i->setDataPoint(i, dt.transform(getDataPoint(i))));
+            ParallelUtils.run(parallel, size(), i->setDataPoint(i, dt.transform(getDataPoint(i))));
 	    this.datapoints.setNumNumeric(getDataPoint(0).numNumericalValues());
 	    this.datapoints.setCategoricalDataInfo(getDataPoint(0).getCategoricalData());
 	}
@@ -513,7 +513,45 @@ public abstract class DataSet<Type extends DataSet>
      * @return a new dataset that is a specified subset of this dataset, and 
      * backed by the same values
      */
-    abstract protected Type getSubset(List<Integer> indicies);
+    protected Type getSubset(List<Integer> indicies)
+    {
+        int[] rows = new int[indicies.size()];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = indicies.get(i);
+        return getSubset(rows);
+    }
+    
+    /**
+     * Creates a new dataset that is a view of the given rows of this dataset.
+     * No data points are copied, the view is backed by a {@link SubsetStore}
+     * over the same data store as this dataset. The weights and target values
+     * of the rows are copied, so they may be altered in the view without
+     * effecting this dataset. Adding or replacing data points in the view will
+     * not effect this dataset either.
+     *
+     * @param rows the indices of the data points to include in the new
+     * dataset, in the order they will be placed. An index may be repeated.
+     * @return a new dataset that is a view of the given rows of this dataset
+     */
+    public Type getSubset(int[] rows)
+    {
+        Type subset = subsetOf(SubsetStore.of(datapoints, rows), rows);
+        if (weights != null)
+            for (int i = 0; i < rows.length; i++)
+                subset.setWeight(i, getWeight(rows[i]));
+        subset.numericalVariableNames.putAll(numericalVariableNames);
+        return subset;
+    }
+    
+    /**
+     * Creates a new dataset of the same type as this one, using the given data
+     * store and the target values of the given rows of this dataset.
+     *
+     * @param store the store holding the data points of the new dataset
+     * @param rows the rows of this dataset that the new dataset contains
+     * @return a new dataset backed by the given store
+     */
+    abstract protected Type subsetOf(DataStore store, int[] rows);
     
     /**
      * This method returns a dataset that is a subset of this dataset, where
@@ -72,40 +72,9 @@ public class SimpleDataSet extends DataSet<SimpleDataSet>
     }
     
     @Override
-    protected SimpleDataSet getSubset(List<Integer> indicies)
+    protected SimpleDataSet subsetOf(DataStore store, int[] rows)
     {
-	if (this.datapoints.rowMajor())
-	{
-	    SimpleDataSet newData = new SimpleDataSet(numNumerVals, categories);
-	    for(int i : indicies)
-		newData.add(getDataPoint(i));
-	    return newData;
-	}
-	else //copy columns at a time to make it faster please! 
-	{
-	    int new_n = indicies.size();
-	    //when we do the vectors, due to potential sparse inputs, we want to do this faster when iterating over values that may/may-not be good and spaced oddly
-	    Map<Integer, Integer> old_indx_to_new = new HashMap<>(indicies.size());
-	    for(int new_i = 0; new_i < indicies.size(); new_i++)
-		old_indx_to_new.put(indicies.get(new_i), new_i);
-	    
-	    DataStore new_ds = this.datapoints.emptyClone();
-	    Iterator<DataPoint> data_iter = this.datapoints.getRowIter();
-	    int orig_pos = 0;
-	    while(data_iter.hasNext())
-	    {
-		DataPoint dp = data_iter.next();
-		if(old_indx_to_new.containsKey(orig_pos))
-		{
-		    DataPoint new_dp = new DataPoint(dp.getNumericalValues().clone(),Arrays.copyOf( dp.getCategoricalValues(), this.getNumCategoricalVars()), categories);
-		    new_ds.addDataPoint(new_dp);
-		}
-		orig_pos++;
-	    }
-	    new_ds.finishAdding();
-	    
-	    return new SimpleDataSet(new_ds);
-	}
+        return new SimpleDataSet(store);
     }
     
     /**
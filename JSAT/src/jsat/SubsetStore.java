@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package jsat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.DataPoint;
+import jsat.linear.DenseVector;
+import jsat.linear.IndexValue;
+import jsat.linear.SparseVector;
+import jsat.linear.Vec;
+import jsat.math.OnLineStatistics;
+
+/**
+ * A SubsetStore is a read-mostly view of some of the rows of another
+ * {@link DataStore}. The rows are given by an array of indices into the base
+ * store, which may be in any order and may contain duplicates. No data points
+ * are copied, so many subsets of the same data (such as cross validation
+ * folds, or bootstrap samples) can be created cheaply and used concurrently.
+ * <br><br>
+ * Changes to the data points of the base store will be visible in the view.
+ * If a data point is added to or replaced in the view, the view first copies
+ * its rows into a new store of the same type as the base, and after that
+ * behaves as an independent store.
+ *
+ * @author Edward Raff
+ */
+public class SubsetStore implements DataStore
+{
+    private DataStore base;
+    private int[] rows;
+    /**
+     * The independent copy of this view, made the first time the view is
+     * altered. {@code null} until then.
+     */
+    private DataStore copy;
+    /**
+     * Whether the columns made from a row major base store should be sparse.
+     * Found on the first request for a column, and {@code null} until then.
+     */
+    private Boolean sparseColumns;
+
+    /**
+     * Creates a new view of the given rows of a data store.
+     *
+     * @param base the store to get data points from
+     * @param rows the indices of the rows of the base store that make up this
+     * view, which will be used directly
+     */
+    public SubsetStore(DataStore base, int[] rows)
+    {
+        this.base = base;
+        this.rows = rows;
+    }
+
+    /**
+     * Copy constructor
+     * @param toCopy the object to copy
+     */
+    public SubsetStore(SubsetStore toCopy)
+    {
+        this.base = toCopy.base;
+        if (toCopy.rows != null)
+            this.rows = Arrays.copyOf(toCopy.rows, toCopy.rows.length);
+        if (toCopy.copy != null)
+            this.copy = toCopy.copy.clone();
+        this.sparseColumns = toCopy.sparseColumns;
+    }
+
+    /**
+     * Creates a view of the given rows of a data store. If the store is itself
+     * an unaltered view, the new view will refer to the original store
+     * directly.
+     *
+     * @param store the store to get data points from
+     * @param rows the indices of the rows of the store that make up the view
+     * @return a view of the rows of the given store
+     */
+    public static SubsetStore of(DataStore store, int[] rows)
+    {
+        if (store instanceof SubsetStore && ((SubsetStore) store).copy == null)
+        {
+            SubsetStore view = (SubsetStore) store;
+            int[] baseRows = new int[rows.length];
+            for (int i = 0; i < rows.length; i++)
+                baseRows[i] = view.rows[rows[i]];
+            return new SubsetStore(view.base, baseRows);
+        }
+        return new SubsetStore(store, rows);
+    }
+
+    /**
+     * Creates a single view that contains the rows of every given store in
+     * order, skipping one of them. This is only possible if every store is an
+     * unaltered view of the same base store.
+     *
+     * @param stores the stores to combine
+     * @param exception the index of the store to skip, or a negative value to
+     * use all of them
+     * @return a view containing the rows of all the stores but the indicated
+     * one, or {@code null} if the stores are not all views of the same data
+     */
+    public static SubsetStore combineAllBut(List<? extends DataStore> stores, int exception)
+    {
+        DataStore commonBase = null;
+        int total = 0;
+        for (int i = 0; i < stores.size(); i++)
+        {
+            if (!(stores.get(i) instanceof SubsetStore))
+                return null;
+            SubsetStore view = (SubsetStore) stores.get(i);
+            if (view.copy != null || (commonBase != null && view.base != commonBase))
+                return null;
+            commonBase = view.base;
+            if (i != exception)
+                total += view.rows.length;
+        }
+        if (commonBase == null)
+            return null;
+
+        int[] combined = new int[total];
+        int pos = 0;
+        for (int i = 0; i < stores.size(); i++)
+            if (i != exception)
+            {
+                int[] r = ((SubsetStore) stores.get(i)).rows;
+                System.arraycopy(r, 0, combined, pos, r.length);
+                pos += r.length;
+            }
+        return new SubsetStore(commonBase, combined);
+    }
+
+    /**
+     * Makes this view an independent copy of its data, so that it may be
+     * altered without changing the base store.
+     */
+    private void makeCopy()
+    {
+        if (copy != null)
+            return;
+        DataStore newStore = base.emptyClone();
+        for (int i : rows)
+            newStore.addDataPoint(base.getDataPoint(i));
+        newStore.finishAdding();
+        copy = newStore;
+        base = null;
+        rows = null;
+    }
+
+    @Override
+    public void setCategoricalDataInfo(CategoricalData[] cat_info)
+    {
+        makeCopy();
+        copy.setCategoricalDataInfo(cat_info);
+    }
+
+    @Override
+    public CategoricalData[] getCategoricalDataInfo()
+    {
+        return copy != null ? copy.getCategoricalDataInfo() : base.getCategoricalDataInfo();
+    }
+
+    @Override
+    public void addDataPoint(DataPoint dp)
+    {
+        makeCopy();
+        sparseColumns = null;
+        copy.addDataPoint(dp);
+    }
+
+    @Override
+    public DataPoint getDataPoint(int i)
+    {
+        if (copy != null)
+            return copy.getDataPoint(i);
+        return base.getDataPoint(rows[i]);
+    }
+
+    @Override
+    public void finishAdding()
+    {
+        if (copy != null)
+            copy.finishAdding();
+    }
+
+    @Override
+    public int numNumeric()
+    {
+        return copy != null ? copy.numNumeric() : base.numNumeric();
+    }
+
+    @Override
+    public void setNumNumeric(int d)
+    {
+        if (copy == null && d == base.numNumeric())
+            return;
+        makeCopy();
+        copy.setNumNumeric(d);
+    }
+
+    @Override
+    public int numCategorical()
+    {
+        return copy != null ? copy.numCategorical() : base.numCategorical();
+    }
+
+    @Override
+    public void setDataPoint(int i, DataPoint dp)
+    {
+        makeCopy();
+        sparseColumns = null;
+        copy.setDataPoint(i, dp);
+    }
+
+    @Override
+    public int[] getCatColumn(int i)
+    {
+        if (copy != null)
+            return copy.getCatColumn(i);
+        if (i < 0 || i >= numCategorical())
+            throw new IndexOutOfBoundsException("There is no index for column " + i);
+        int[] toRet = new int[rows.length];
+        if (base.rowMajor())
+            for (int z = 0; z < rows.length; z++)
+                toRet[z] = base.getDataPoint(rows[z]).getCategoricalValue(i);
+        else
+        {
+            int[] baseCol = base.getCatColumn(i);
+            for (int z = 0; z < rows.length; z++)
+                toRet[z] = baseCol[rows[z]];
+        }
+        return toRet;
+    }
+
+    @Override
+    public Vec[] getNumericColumns(Set<Integer> skipColumns)
+    {
+        if (copy != null)
+            return copy.getNumericColumns(skipColumns);
+        final int n = rows.length;
+        Vec[] cols = new Vec[numNumeric()];
+
+        if (base.rowMajor())
+        {
+            boolean sparse = sparseColumns();
+            for (int j = 0; j < cols.length; j++)
+                if (!skipColumns.contains(j))
+                    cols[j] = sparse ? new SparseVector(n) : new DenseVector(n);
+            for (int i = 0; i < n; i++)
+                for (IndexValue iv : base.getDataPoint(rows[i]).getNumericalValues())
+                {
+                    int col = iv.getIndex();
+                    if (cols[col] != null)
+                        cols[col].set(i, iv.getValue());
+                }
+            return cols;
+        }
+
+        int[][] positions = rowPositions();
+        Vec[] baseCols = base.getNumericColumns(skipColumns);
+        for (int j = 0; j < cols.length; j++)
+            if (baseCols[j] != null)
+                cols[j] = gather(baseCols[j], positions);
+        return cols;
+    }
+
+    @Override
+    public Vec getNumericColumn(int i)
+    {
+        if (copy != null)
+            return copy.getNumericColumn(i);
+        if (i < 0 || i >= numNumeric())
+            throw new IndexOutOfBoundsException("There is no index for column " + i);
+        if (base.rowMajor())
+        {
+            boolean sparse = sparseColumns();
+            Vec col = sparse ? new SparseVector(rows.length) : new DenseVector(rows.length);
+            for (int p = 0; p < rows.length; p++)
+            {
+                double v = base.getDataPoint(rows[p]).getNumericalValues().get(i);
+                if (v != 0)
+                    col.set(p, v);
+            }
+            return col;
+        }
+        return gather(base.getNumericColumn(i), rowPositions());
+    }
+
+    /**
+     * 
+     * @return {@code true} if columns made from a row major base store should
+     * be sparse
+     */
+    private boolean sparseColumns()
+    {
+        if (sparseColumns == null)
+            sparseColumns = getSparsityStats().getMean() < 0.6;
+        return sparseColumns;
+    }
+
+    /**
+     * For every row of the base store, creates a linked list of the positions
+     * in this view that it appears at.
+     *
+     * @return an array with the first position of each base row (or -1 if it
+     * does not appear), followed by an array with the next position of each
+     * position (or -1 if it is the last)
+     */
+    private int[][] rowPositions()
+    {
+        int[] head = new int[base.size()];
+        Arrays.fill(head, -1);
+        int[] next = new int[rows.length];
+        for (int p = rows.length - 1; p >= 0; p--)
+        {
+            next[p] = head[rows[p]];
+            head[rows[p]] = p;
+        }
+        return new int[][]{head, next};
+    }
+
+    /**
+     * Gathers the values of the rows of this view from a column of the base
+     * store. Sparse columns are gathered in time proportional to their number
+     * of non-zero values.
+     *
+     * @param baseCol the column from the base store
+     * @param positions the result of {@link #rowPositions() }
+     * @return the column of this view
+     */
+    private Vec gather(Vec baseCol, int[][] positions)
+    {
+        final int n = rows.length;
+        if (!baseCol.isSparse())
+        {
+            DenseVector col = new DenseVector(n);
+            for (int p = 0; p < n; p++)
+                col.set(p, baseCol.get(rows[p]));
+            return col;
+        }
+
+        int[] head = positions[0];
+        int[] next = positions[1];
+        int nnz = 0;
+        for (IndexValue iv : baseCol)
+            for (int p = head[iv.getIndex()]; p >= 0; p = next[p])
+                nnz++;
+        long[] packed = new long[nnz];
+        double[] vals = new double[nnz];
+        int pos = 0;
+        for (IndexValue iv : baseCol)
+            for (int p = head[iv.getIndex()]; p >= 0; p = next[p])
+            {
+                //position in the high bits, value index in the low bits, so that sorting orders by position
+                packed[pos] = (((long) p) << 32) | pos;
+                vals[pos++] = iv.getValue();
+            }
+        Arrays.sort(packed);
+        int[] indexes = new int[nnz];
+        double[] values = new double[nnz];
+        for (int z = 0; z < nnz; z++)
+        {
+            indexes[z] = (int) (packed[z] >>> 32);
+            values[z] = vals[(int) packed[z]];
+        }
+        return new SparseVector(indexes, values, n, nnz);
+    }
+
+    @Override
+    public boolean rowMajor()
+    {
+        return copy != null ? copy.rowMajor() : base.rowMajor();
+    }
+
+    @Override
+    public int size()
+    {
+        return copy != null ? copy.size() : rows.length;
+    }
+
+    @Override
+    public OnLineStatistics getSparsityStats()
+    {
+        if (copy != null)
+            return copy.getSparsityStats();
+        OnLineStatistics stats = new OnLineStatistics();
+        if (base.rowMajor())
+        {
+            for (int i : rows)
+            {
+                Vec v = base.getDataPoint(i).getNumericalValues();
+                if (v.isSparse())
+                    stats.add(v.nnz() / (double) v.length());
+                else
+                    stats.add(1.0);
+            }
+        }
+        else
+        {
+            for (Vec v : getNumericColumns(Collections.EMPTY_SET))
+                if (v.isSparse())
+                    stats.add(v.nnz() / (double) rows.length);
+                else
+                    stats.add(1.0);
+        }
+        return stats;
+    }
+
+    @Override
+    public SubsetStore clone()
+    {
+        return new SubsetStore(this);
+    }
+
+    @Override
+    public DataStore emptyClone()
+    {
+        return copy != null ? copy.emptyClone() : base.emptyClone();
+    }
+}
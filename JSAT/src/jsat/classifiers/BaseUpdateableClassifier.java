@@ -4,6 +4,8 @@ package jsat.classifiers;
 import java.util.Collections;
 import jsat.utils.IntList;
 import jsat.utils.ListUtils;
+import jsat.utils.SystemInfo;
+import jsat.utils.concurrent.ParallelUtils;
 
 /**
  * A base implementation of the UpdateableClassifier. 
@@ -95,6 +97,42 @@ public abstract class BaseUpdateableClassifier implements UpdateableClassifier
         }
     }
 
+    /**
+     * Performs Hogwild style training on an updateable classifier. Every thread
+     * calls the update method at the same time, with no locking, for a
+     * different part of a random ordering of the data set. This is only valid
+     * for models whose updates can tolerate being interleaved, such as sparse
+     * additive updates to a weight vector.
+     *
+     * @param dataSet the data set to train from
+     * @param toTrain the classifier to train
+     * @param epochs the number of passes through the data set
+     */
+    public static void trainEpochsHogwild(ClassificationDataSet dataSet, UpdateableClassifier toTrain, int epochs)
+    {
+        if(epochs < 1)
+            throw new IllegalArgumentException("epochs must be positive");
+        toTrain.setUp(dataSet.getCategories(), dataSet.getNumNumericalVars(), 
+                dataSet.getPredicting());
+        final int N = dataSet.size();
+        final int P = Math.min(SystemInfo.LogicalCores, N);
+        IntList randomOrder = new IntList(N);
+        ListUtils.addRange(randomOrder, 0, N, 1);
+        for (int epoch = 0; epoch < epochs; epoch++)
+        {
+            Collections.shuffle(randomOrder);
+            //interleave the threads so that they move through the data at the same pace
+            ParallelUtils.run(true, P, (id) ->
+            {
+                for (int pos = id; pos < N; pos += P)
+                {
+                    final int i = randomOrder.getI(pos);
+                    toTrain.update(dataSet.getDataPoint(i), dataSet.getWeight(i), dataSet.getDataPointCategory(i));
+                }
+            });
+        }
+    }
+
     @Override
     abstract public UpdateableClassifier clone();
     
@@ -4,6 +4,7 @@ package jsat.classifiers;
 import java.util.*;
 import jsat.DataSet;
 import jsat.DataStore;
+import jsat.SubsetStore;
 import jsat.linear.DenseVector;
 import jsat.linear.IndexValue;
 import jsat.linear.Vec;
@@ -179,6 +180,27 @@ public class ClassificationDataSet extends DataSet<ClassificationDataSet>
         CategoricalData[] categories = list.get(0).getCategories();
         CategoricalData predicting = list.get(0).getPredicting();
         
+        //if the folds are views of the same data, the combination can be a view too
+        List<DataStore> stores = new ArrayList<>(list.size());
+        for (ClassificationDataSet cds : list)
+            stores.add(cds.datapoints);
+        SubsetStore combined = SubsetStore.combineAllBut(stores, exception);
+        if (combined != null)
+        {
+            IntList new_targets = new IntList(combined.size());
+            for (int i = 0; i < list.size(); i++)
+                if (i != exception)
+                    new_targets.addAll(list.get(i).targets);
+            ClassificationDataSet cds = new ClassificationDataSet(combined, new_targets, predicting);
+            int pos = 0;
+            for (int i = 0; i < list.size(); i++)
+                if (i != exception)
+                    for (int j = 0; j < list.get(i).size(); j++, pos++)
+                        if (list.get(i).weights != null)
+                            cds.setWeight(pos, list.get(i).getWeight(j));
+            return cds;
+        }
+        
 	if(list.get(0).rowMajor())
 	{
 	    ClassificationDataSet cds = new ClassificationDataSet(numer, categories, predicting);
@@ -270,44 +292,12 @@ public class ClassificationDataSet extends DataSet<ClassificationDataSet>
     }
     
     @Override
-    protected ClassificationDataSet getSubset(List<Integer> indicies)
+    protected ClassificationDataSet subsetOf(DataStore store, int[] rows)
     {
-	if (this.datapoints.rowMajor())
-	{
-	    ClassificationDataSet newData = new ClassificationDataSet(numNumerVals, categories, predicting);
-	    for (int i : indicies)
-		newData.addDataPoint(getDataPoint(i), getDataPointCategory(i));
-
-	    return newData;
-	}
-	else //copy columns at a time to make it faster please! 
-	{
-	    int new_n = indicies.size();
-	    //when we do the vectors, due to potential sparse inputs, we want to do this faster when iterating over values that may/may-not be good and spaced oddly
-	    Map<Integer, Integer> old_indx_to_new = new HashMap<>(indicies.size());
-	    for(int new_i = 0; new_i < indicies.size(); new_i++)
-		old_indx_to_new.put(indicies.get(new_i), new_i);
-	    
-	    DataStore new_ds = this.datapoints.emptyClone();
-	    Iterator<DataPoint> data_iter = this.datapoints.getRowIter();
-	    IntList new_targets = new IntList();
-	    int orig_pos = 0;
-	    while(data_iter.hasNext())
-	    {
-		DataPoint dp = data_iter.next();
-		if(old_indx_to_new.containsKey(orig_pos))
-		{
-		    DataPoint new_dp = new DataPoint(dp.getNumericalValues().clone(),Arrays.copyOf( dp.getCategoricalValues(), this.getNumCategoricalVars()), categories);
-		    new_ds.addDataPoint(new_dp);
-		    new_targets.add(this.getDataPointCategory(orig_pos));
-		}
-		orig_pos++;
-	    }
-	    new_ds.finishAdding();
-	    
-	    
-	    return new ClassificationDataSet(new_ds, new_targets);
-	}
+        IntList newTargets = new IntList(rows.length);
+        for (int i : rows)
+            newTargets.add(targets.getI(i));
+        return new ClassificationDataSet(store, newTargets, predicting);
     }
     
  
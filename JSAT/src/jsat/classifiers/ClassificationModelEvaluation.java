@@ -24,6 +24,10 @@ import jsat.utils.random.RandomUtil;
  */
 public class ClassificationModelEvaluation
 {
+    /**
+     * The most test points that will be transformed and classified at once
+     */
+    private static final int CLASSIFY_BLOCK_SIZE = 1024;
     /**
      * The model to evaluate
      */
@@ -307,6 +311,9 @@ public class ClassificationModelEvaluation
             scoresToUpdate.put(score, score);
         }
 
+        final boolean transforming = curProcess.getNumberOfTransforms() > 0;
+        final int numOfClasses = dataSet.getClassSize();
+
         ParallelUtils.run(parallel, testSet.size(), (start, end) ->
         {
             //create a local set of scores to update
@@ -316,32 +323,45 @@ public class ClassificationModelEvaluation
             Set<ClassificationScore> localScores = new HashSet<>();
             for (Entry<ClassificationScore, ClassificationScore> entry : scoresToUpdate.entrySet())
                 localScores.add(entry.getKey().clone());
-            for (int i = start; i < end; i++)
+            
+            //transform and classify a block at a time, so models can use their batch methods
+            for (int blockStart = start; blockStart < end; blockStart += CLASSIFY_BLOCK_SIZE)
             {
-                DataPoint dp = testSet.getDataPoint(i);
-                dp = curProcess.transform(dp);
-                double w_i = testSet.getWeight(i);
+                int blockEnd = Math.min(end, blockStart + CLASSIFY_BLOCK_SIZE);
+                int[] rows = new int[blockEnd - blockStart];
+                for (int i = blockStart; i < blockEnd; i++)
+                    rows[i - blockStart] = i;
+                ClassificationDataSet block = testSet.getSubset(rows);
+                if (transforming)
+                    block.applyTransform(curProcess);
+                double[][] probs = new double[rows.length][numOfClasses];
                 long stratClass = System.currentTimeMillis();
-                CategoricalResults result = classifierToUse.classify(dp);
-                localClassificationTime += (System.currentTimeMillis() - stratClass);
-
-                for (ClassificationScore score : localScores)
-                    score.addResult(result, testSet.getDataPointCategory(i), w_i);
+                classifierToUse.classify(block, probs);
+                localClassificationTime += System.currentTimeMillis() - stratClass;
 
-                if (predictions != null)
-                {
-                    predictions[i] = result;
-                    truths[i] = testSet.getDataPointCategory(i);
-                    pointWeights[i] = w_i;
-                }
-                final int trueCat = testSet.getDataPointCategory(i);
-                synchronized (confusionMatrix[trueCat])
+                for (int i = blockStart; i < blockEnd; i++)
                 {
-                    confusionMatrix[trueCat][result.mostLikely()] += w_i;
+                    double w_i = testSet.getWeight(i);
+                    CategoricalResults result = new CategoricalResults(probs[i - blockStart]);
+
+                    for (ClassificationScore score : localScores)
+                        score.addResult(result, testSet.getDataPointCategory(i), w_i);
+
+                    if (predictions != null)
+                    {
+                        predictions[i] = result;
+                        truths[i] = testSet.getDataPointCategory(i);
+                        pointWeights[i] = w_i;
+                    }
+                    final int trueCat = testSet.getDataPointCategory(i);
+                    synchronized (confusionMatrix[trueCat])
+                    {
+                        confusionMatrix[trueCat][result.mostLikely()] += w_i;
+                    }
+                    if (trueCat == result.mostLikely())
+                        localCorrect += w_i;
+                    localSumOfWeights += w_i;
                 }
-                if (trueCat == result.mostLikely())
-                    localCorrect += w_i;
-                localSumOfWeights += w_i;
             }
 
             synchronized (confusionMatrix)
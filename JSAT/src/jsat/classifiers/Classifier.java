@@ -2,9 +2,14 @@
 package jsat.classifiers;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import jsat.DataSet;
 import jsat.exceptions.FailedToFitException;
 import jsat.exceptions.ModelMismatchException;
 import jsat.exceptions.UntrainedModelException;
+import jsat.linear.Matrix;
+import jsat.linear.Vec;
 
 /**
  * A Classifier is used to predict the target class of new unseen data points. 
@@ -22,6 +27,71 @@ public interface Classifier extends Cloneable, Serializable
      */
     public CategoricalResults classify(DataPoint data);
     
+    /**
+     * Performs classification on every data point in the given data set. If 
+     * the data set has only numeric features, this is done by 
+     * {@link #classifyBatch(java.util.List, double[][]) }.
+     * 
+     * @param data the data to classify
+     * @param out the array to store the class probabilities in, of size
+     * {@link DataSet#size() } by the number of classes
+     * @throws UntrainedModelException if the method is called before the model has been trained
+     * @throws ModelMismatchException if the given data is incompatible with the model
+     */
+    default public void classify(DataSet data, double[][] out)
+    {
+        if(data.getNumCategoricalVars() == 0)
+        {
+            classifyBatch(data.getDataVectors(), out);
+            return;
+        }
+        for(int i = 0; i < data.size(); i++)
+        {
+            CategoricalResults result = classify(data.getDataPoint(i));
+            for(int j = 0; j < result.size(); j++)
+                out[i][j] = result.getProb(j);
+        }
+    }
+    
+    /**
+     * Performs classification on every vector in the given list, where each 
+     * vector holds only numeric features. Models that can score many points at
+     * once, such as with a matrix product, should override this method. 
+     * 
+     * @param X the vectors to classify
+     * @param out the array to store the class probabilities in, of size
+     * {@code X.size()} by the number of classes
+     * @throws UntrainedModelException if the method is called before the model has been trained
+     * @throws ModelMismatchException if the given data is incompatible with the model
+     */
+    default public void classifyBatch(List<Vec> X, double[][] out)
+    {
+        for(int i = 0; i < X.size(); i++)
+        {
+            CategoricalResults result = classify(new DataPoint(X.get(i)));
+            for(int j = 0; j < result.size(); j++)
+                out[i][j] = result.getProb(j);
+        }
+    }
+    
+    /**
+     * Performs classification on every row of the given matrix, where each 
+     * row holds only numeric features. 
+     * 
+     * @param X the matrix to classify, with one data point per row
+     * @param out the array to store the class probabilities in, of size
+     * {@link Matrix#rows() } by the number of classes
+     * @throws UntrainedModelException if the method is called before the model has been trained
+     * @throws ModelMismatchException if the given data is incompatible with the model
+     */
+    default public void classifyBatch(Matrix X, double[][] out)
+    {
+        List<Vec> rows = new ArrayList<>(X.rows());
+        for(int i = 0; i < X.rows(); i++)
+            rows.add(X.getRowView(i));
+        classifyBatch(rows, out);
+    }
+    
     /**
      * Trains the classifier and constructs a model for classification using the 
      * given data set. If the training method knows how, it will used the 
@@ -132,7 +132,7 @@ public class OneVSAll implements Classifier, Parameterized
         
         int numer = dataSet.getNumNumericalVars();
         CategoricalData[] categories = dataSet.getCategories();
-        ParallelUtils.range(0, oneVsAlls.length, parallel && concurrentTraining).forEach( i ->
+        ParallelUtils.run(parallel && concurrentTraining, oneVsAlls.length, i ->
         {
             final ClassificationDataSet cds = 
                     new ClassificationDataSet(numer, categories, new CategoricalData(2));
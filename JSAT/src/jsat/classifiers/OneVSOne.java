@@ -4,14 +4,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jsat.parameters.Parameter.ParameterHolder;
 import jsat.parameters.Parameterized;
+import jsat.utils.concurrent.ParallelUtils;
 
-import jsat.utils.FakeExecutor;
-import jsat.utils.SystemInfo;
 
 /**
  * A One VS One classifier extends binary decision classifiers into multi-class 
@@ -117,7 +115,7 @@ public class OneVSOne implements Classifier, Parameterized
             dataByCategory.add(dataSet.getSamples(i));
         
         final CountDownLatch latch = new CountDownLatch(oneVone.length*(oneVone.length-1)/2);
-        ExecutorService threadPool = parallel ? Executors.newFixedThreadPool(SystemInfo.LogicalCores) : new FakeExecutor();
+        ExecutorService threadPool = ParallelUtils.getNewExecutor(parallel);
         
         for(int i = 0; i < oneVone.length; i++)
         {
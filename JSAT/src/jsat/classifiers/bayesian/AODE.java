@@ -82,7 +82,7 @@ public class AODE extends BaseUpdateableClassifier
         setUp(dataSet.getCategories(), dataSet.getNumNumericalVars(), 
                 dataSet.getPredicting());
 
-        ParallelUtils.range(odes.length, parallel).forEach(z->
+        ParallelUtils.run(parallel, odes.length, z->
         {
             ODE ode = odes[z];
             for (int i = 0; i < dataSet.size(); i++)
@@ -7,7 +7,11 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import jsat.classifiers.*;
 import jsat.classifiers.knn.NearestNeighbour;
+import jsat.classifiers.trees.CompiledTrees;
 import jsat.classifiers.trees.DecisionTree;
+import jsat.classifiers.trees.TreeLearner;
+import jsat.classifiers.trees.TreeNodeVisitor;
+import jsat.exceptions.UntrainedModelException;
 import jsat.math.OnLineStatistics;
 import jsat.parameters.*;
 import jsat.regression.RegressionDataSet;
@@ -277,16 +281,7 @@ public class Bagging implements Classifier, Regressor, Parameterized
      */
     public static ClassificationDataSet getSampledDataSet(ClassificationDataSet dataSet, int[] sampledCounts)
     {
-        ClassificationDataSet destination = new ClassificationDataSet(dataSet.getNumNumericalVars(), dataSet.getCategories(), dataSet.getPredicting());
-            
-            for (int i = 0; i < sampledCounts.length; i++)
-                for(int j = 0; j < sampledCounts[i]; j++)
-                {
-                    DataPoint dp = dataSet.getDataPoint(i);
-                    destination.addDataPoint(dp.getNumericalValues(), dp.getCategoricalValues(), dataSet.getDataPointCategory(i));
-                }
-            
-            return destination;
+        return dataSet.getSubset(sampledRows(sampledCounts));
     }
     
     /**
@@ -300,16 +295,10 @@ public class Bagging implements Classifier, Regressor, Parameterized
      */
     public static ClassificationDataSet getWeightSampledDataSet(ClassificationDataSet dataSet, int[] sampledCounts)
     {
-        ClassificationDataSet destination = new ClassificationDataSet(dataSet.getNumNumericalVars(), dataSet.getCategories(), dataSet.getPredicting());
-
-        for (int i = 0; i < sampledCounts.length; i++)
-        {
-            if(sampledCounts[i] <= 0)
-                continue;
-            DataPoint dp = dataSet.getDataPoint(i);
-            destination.addDataPoint(dp, dataSet.getDataPointCategory(i), dataSet.getWeight(i)*sampledCounts[i]);
-        }
-
+        int[] rows = sampledIndices(sampledCounts);
+        ClassificationDataSet destination = dataSet.getSubset(rows);
+        for (int i = 0; i < rows.length; i++)
+            destination.setWeight(i, dataSet.getWeight(rows[i])*sampledCounts[rows[i]]);
         return destination;
     }
     
@@ -323,14 +312,7 @@ public class Bagging implements Classifier, Regressor, Parameterized
      */
     public static RegressionDataSet getSampledDataSet(RegressionDataSet dataSet, int[] sampledCounts)
     {
-        RegressionDataSet destination = new RegressionDataSet(dataSet.getNumNumericalVars(), dataSet.getCategories());
-        for (int i = 0; i < sampledCounts.length; i++)
-            for (int j = 0; j < sampledCounts[i]; j++)
-            {
-                DataPoint dp = dataSet.getDataPoint(i);
-                destination.addDataPoint(dp, dataSet.getTargetValue(i));
-            }
-        return destination;
+        return dataSet.getSubset(sampledRows(sampledCounts));
     }
     
     /**
@@ -344,18 +326,50 @@ public class Bagging implements Classifier, Regressor, Parameterized
      */
     public static RegressionDataSet getWeightSampledDataSet(RegressionDataSet dataSet, int[] sampledCounts)
     {
-        RegressionDataSet destination = new RegressionDataSet(dataSet.getNumNumericalVars(), dataSet.getCategories());
-
-        for (int i = 0; i < sampledCounts.length; i++)
-        {
-            if(sampledCounts[i] <= 0)
-                continue;
-            DataPoint dp = dataSet.getDataPoint(i);
-            destination.addDataPoint(dp, dataSet.getTargetValue(i), dataSet.getWeight(i)*sampledCounts[i]);
-        }
-
+        int[] rows = sampledIndices(sampledCounts);
+        RegressionDataSet destination = dataSet.getSubset(rows);
+        for (int i = 0; i < rows.length; i++)
+            destination.setWeight(i, dataSet.getWeight(rows[i])*sampledCounts[rows[i]]);
         return destination;
     }
+    
+    /**
+     * Returns the rows of a sampled data set, where a row sampled multiple
+     * times is repeated
+     * @param sampledCounts the number of times each row was sampled
+     * @return the indices of the sampled rows
+     */
+    private static int[] sampledRows(int[] sampledCounts)
+    {
+        int total = 0;
+        for (int count : sampledCounts)
+            total += count;
+        int[] rows = new int[total];
+        int pos = 0;
+        for (int i = 0; i < sampledCounts.length; i++)
+            for (int j = 0; j < sampledCounts[i]; j++)
+                rows[pos++] = i;
+        return rows;
+    }
+    
+    /**
+     * Returns the rows that were sampled at least once
+     * @param sampledCounts the number of times each row was sampled
+     * @return the indices of the sampled rows, each given once
+     */
+    private static int[] sampledIndices(int[] sampledCounts)
+    {
+        int total = 0;
+        for (int count : sampledCounts)
+            if (count > 0)
+                total++;
+        int[] rows = new int[total];
+        int pos = 0;
+        for (int i = 0; i < sampledCounts.length; i++)
+            if (sampledCounts[i] > 0)
+                rows[pos++] = i;
+        return rows;
+    }
 
     /**
      * Performs the sampling based on the number of data points, storing the 
@@ -455,6 +469,37 @@ public class Bagging implements Classifier, Regressor, Parameterized
         threadPool.shutdownNow();
     }
 
+    /**
+     * Compiles the trained ensemble into a flat, array based form that can
+     * make predictions faster than walking each tree. This is only possible
+     * when the base learner is a {@link TreeLearner}.
+     *
+     * @param numNumeric the number of numeric features of the training data
+     * @param catInfo the categorical feature information of the training data
+     * @return the compiled ensemble
+     * @throws UnsupportedOperationException if the base learners are not trees
+     * @see CompiledTrees
+     */
+    public CompiledTrees compile(int numNumeric, CategoricalData[] catInfo)
+    {
+        if(learners == null || learners.isEmpty())
+            throw new UntrainedModelException("Model has not yet been trained");
+        List<TreeNodeVisitor> roots = new ArrayList<>(learners.size());
+        for(Object learner : learners)
+            if(learner instanceof TreeLearner)
+                roots.add(((TreeLearner) learner).getTreeNodeVisitor());
+            else
+                throw new UnsupportedOperationException("Only ensembles of tree learners can be compiled, not " + learner.getClass().getSimpleName());
+        double[] weights = new double[roots.size()];
+        if(baseClassifier != null)
+        {
+            Arrays.fill(weights, 1.0);
+            return new CompiledTrees(roots, weights, CompiledTrees.Combination.VOTE, predicting.getNumOfCategories(), numNumeric, catInfo);
+        }
+        Arrays.fill(weights, 1.0/roots.size());
+        return new CompiledTrees(roots, weights, CompiledTrees.Combination.SUM, 0, numNumeric, catInfo);
+    }
+
     @Override
     public Bagging clone()
     {
@@ -16,6 +16,7 @@ import jsat.exceptions.FailedToFitException;
 import jsat.linear.ConcatenatedVec;
 import jsat.linear.DenseVector;
 import jsat.linear.IndexValue;
+import jsat.linear.Matrix;
 import jsat.linear.SubVector;
 import jsat.linear.Vec;
 import jsat.lossfunctions.LossC;
@@ -248,6 +249,30 @@ public class LinearBatch implements Classifier, Regressor, Parameterized, Simple
         final Vec x = data.getNumericalValues();
         return ((LossR)loss).getRegression(ws[0].dot(x)+bs[0]);
     }
+
+    @Override
+    public void classifyBatch(List<Vec> X, double[][] out)
+    {
+        LinearTools.classify((LossC) loss, LinearTools.scores(this, X), out);
+    }
+
+    @Override
+    public void classifyBatch(Matrix X, double[][] out)
+    {
+        LinearTools.classify((LossC) loss, LinearTools.scores(this, X), out);
+    }
+
+    @Override
+    public void regressBatch(List<Vec> X, double[] out)
+    {
+        LinearTools.regress((LossR) loss, LinearTools.scores(this, X), out);
+    }
+
+    @Override
+    public void regressBatch(Matrix X, double[] out)
+    {
+        LinearTools.regress((LossR) loss, LinearTools.scores(this, X), out);
+    }
     
    
     @Override
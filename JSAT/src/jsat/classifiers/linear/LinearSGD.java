@@ -1,19 +1,23 @@
 package jsat.classifiers.linear;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import jsat.DataSet;
 import jsat.SimpleWeightVectorModel;
 import jsat.classifiers.BaseUpdateableClassifier;
 import jsat.classifiers.CategoricalData;
 import jsat.classifiers.CategoricalResults;
+import jsat.classifiers.ClassificationDataSet;
 import jsat.classifiers.DataPoint;
 import jsat.distributions.Distribution;
 import jsat.distributions.LogUniform;
 import jsat.exceptions.FailedToFitException;
 import jsat.linear.DenseVector;
 import jsat.linear.IndexValue;
+import jsat.linear.Matrix;
 import jsat.linear.ScaledVector;
 import jsat.linear.Vec;
 import jsat.lossfunctions.HingeLoss;
@@ -30,6 +34,11 @@ import jsat.parameters.Parameterized;
 import jsat.regression.BaseUpdateableRegressor;
 import jsat.regression.RegressionDataSet;
 import jsat.regression.UpdateableRegressor;
+import jsat.utils.IntList;
+import jsat.utils.ListUtils;
+import jsat.utils.SystemInfo;
+import jsat.utils.concurrent.ParallelUtils;
+import jsat.utils.random.RandomUtil;
 
 /**
  * LinearSGD learns either a classification or regression problem depending on 
@@ -46,8 +55,14 @@ import jsat.regression.UpdateableRegressor;
  * the number of data points is not present in the implementation at this time. 
  * Setting {@link #setLambda1(double) &lambda;<sub>1</sub>} to the desired value 
  * divided by the number of unique data points in the whole set will result in 
- * the correct regularization penalty being applied. 
- * 
+ * the correct regularization penalty being applied. <br>
+ * <br>
+ * Training is sequential by default. If {@link #setHogwild(boolean) Hogwild}
+ * training is enabled, calls to train with {@code parallel} set to
+ * {@code true} will have every thread update the shared weight vectors
+ * without any locking, which is efficient when the data is sparse and updates
+ * rarely collide.
+ *
  * See:
  * <ul>
  * <li>Tsuruoka, Y., Tsujii, J.,&amp;Ananiadou, S. (2009). <i>Stochastic gradient 
@@ -55,6 +70,9 @@ import jsat.regression.UpdateableRegressor;
  * penalty</i>. Proceedings of the Joint Conference of the 47th Annual Meeting 
  * of the ACL and the 4th International Joint Conference on Natural Language 
  * Processing of the AFNLP, 1, 477. doi:10.3115/1687878.1687946</li>
+ * <li>Niu, F., Recht, B., Re, C.,&amp;Wright, S. J. (2011). <i>HOGWILD!: A
+ * Lock-Free Approach to Parallelizing Stochastic Gradient Descent</i>. In
+ * Advances in Neural Information Processing Systems 24 (pp. 693–701).</li>
  * </ul>
  * @author Edward Raff
  */
@@ -75,6 +93,7 @@ public class LinearSGD extends BaseUpdateableClassifier implements UpdateableReg
     private double l1U;
     private double[][] l1Q;
     private boolean useBias = true;
+    private boolean hogwild = false;
 
     /**
      * Creates a new LinearSGD learner for multi-class classification problems. 
@@ -128,6 +147,8 @@ public class LinearSGD extends BaseUpdateableClassifier implements UpdateableReg
         this.lambda1 = toClone.lambda1;
         this.l1U = toClone.l1U;
         this.useBias = toClone.useBias;
+        this.hogwild = toClone.hogwild;
+        this.epochs = toClone.epochs;
         this.gradientUpdater = toClone.gradientUpdater;
         if(toClone.l1Q != null)
         {
@@ -289,6 +310,37 @@ public class LinearSGD extends BaseUpdateableClassifier implements UpdateableReg
     {
         return useBias;
     }
+
+    /**
+     * Sets whether or not Hogwild style training should be used when training
+     * in parallel. When enabled, every thread updates the shared weight
+     * vectors from a different part of the data without any locking. The
+     * regularization penalties are applied lazily, only to the features that
+     * are present in each data point, so that the updates stay sparse. This
+     * results in the same model as sequential training when only one thread
+     * is used, and the {@link #setGradientUpdater(jsat.math.optimization.stochastic.GradientUpdater)
+     * gradient updater} only alters the weights of features that are present
+     * in the gradient (such as {@link SimpleSGD} and
+     * {@link jsat.math.optimization.stochastic.AdaGrad AdaGrad}). <br>
+     * Hogwild training works best on sparse data sets, where two threads
+     * rarely update the same feature at the same time.
+     *
+     * @param hogwild {@code true} to use lock free parallel training
+     */
+    public void setHogwild(boolean hogwild)
+    {
+        this.hogwild = hogwild;
+    }
+
+    /**
+     * Returns whether or not Hogwild style training is used when training in
+     * parallel
+     * @return {@code true} if lock free parallel training is used
+     */
+    public boolean isHogwild()
+    {
+        return hogwild;
+    }
     
     @Override
     public LinearSGD clone()
@@ -357,7 +409,19 @@ public class LinearSGD extends BaseUpdateableClassifier implements UpdateableReg
         
         applyL2Reg(eta_t);
         
-        //apply gradient updates
+        gradientStep(x, targetClass, eta_t);
+        
+        applyL1Reg(eta_t, x);
+    }
+
+    /**
+     * Applies the gradient updates for a classification problem
+     * @param x the input vector
+     * @param targetClass the true class of the input
+     * @param eta_t the learning rate to use
+     */
+    private void gradientStep(Vec x, int targetClass, final double eta_t)
+    {
         if(ws.length == 1)
         {
             final double y = targetClass*2-1;
@@ -378,8 +442,19 @@ public class LinearSGD extends BaseUpdateableClassifier implements UpdateableReg
                 performGradientUpdate(i, eta_t, lossD, x);
             }
         }
+    }
+
+    /**
+     * Applies the gradient update for a regression problem
+     * @param x the input vector
+     * @param targetValue the true value of the input
+     * @param eta_t the learning rate to use
+     */
+    private void gradientStep(Vec x, double targetValue, final double eta_t)
+    {
+        final double lossD = ((LossR)loss).getDeriv(ws[0].dot(x)+bs[0], targetValue);
         
-        applyL1Reg(eta_t, x);
+        performGradientUpdate(0, eta_t, lossD, x);
     }
 
     /**
@@ -406,9 +481,7 @@ public class LinearSGD extends BaseUpdateableClassifier implements UpdateableReg
         
         applyL2Reg(eta_t);
         
-        final double lossD = ((LossR)loss).getDeriv(ws[0].dot(x)+bs[0], targetValue);
-        
-        performGradientUpdate(0, eta_t, lossD, x);
+        gradientStep(x, targetValue, eta_t);
         
         applyL1Reg(eta_t, x);
     }
@@ -436,6 +509,30 @@ public class LinearSGD extends BaseUpdateableClassifier implements UpdateableReg
         return ((LossR)loss).getRegression(ws[0].dot(x)+bs[0]);
     }
 
+    @Override
+    public void classifyBatch(List<Vec> X, double[][] out)
+    {
+        LinearTools.classify((LossC) loss, LinearTools.scores(this, X), out);
+    }
+
+    @Override
+    public void classifyBatch(Matrix X, double[][] out)
+    {
+        LinearTools.classify((LossC) loss, LinearTools.scores(this, X), out);
+    }
+
+    @Override
+    public void regressBatch(List<Vec> X, double[] out)
+    {
+        LinearTools.regress((LossR) loss, LinearTools.scores(this, X), out);
+    }
+
+    @Override
+    public void regressBatch(Matrix X, double[] out)
+    {
+        LinearTools.regress((LossR) loss, LinearTools.scores(this, X), out);
+    }
+
     @Override
     public boolean supportsWeightedData()
     {
@@ -464,31 +561,82 @@ public class LinearSGD extends BaseUpdateableClassifier implements UpdateableReg
         if(lambda1 > 0)
         {
             l1U += eta_t*lambda1;//line 6: in Tsuruoka et al paper, figure 2
-            for(int k = 0; k < ws.length; k++)
+            applyL1Penalty(x, l1U);
+        }
+    }
+
+    /**
+     * Applies the cumulative L1 penalty to the features present in the input
+     * @param x the input vector the update is from
+     * @param u the total L1 penalty that every weight should have received
+     */
+    private void applyL1Penalty(Vec x, final double u)
+    {
+        for(int k = 0; k < ws.length; k++)
+        {
+            final Vec w_k = ws[k];
+            final double[] l1Q_k = l1Q[k];
+            for(IndexValue iv : x)
             {
-                final Vec w_k = ws[k];
-                final double[] l1Q_k = l1Q[k];
-                for(IndexValue iv : x)
-                {
-                    final int i = iv.getIndex();
-                    //see "APPLYPENALTY(i)" on line 15: from Figure 2 in Tsuruoka et al paper
-                    final double z = w_k.get(i);
-                    double newW_i = 0;
-                    if (z > 0)
-                        newW_i = Math.max(0, z - (l1U + l1Q_k[i]));
-                    else if(z < 0)
-                        newW_i = Math.min(0, z + (l1U - l1Q_k[i]));
-                    l1Q_k[i] += (newW_i - z);
-                    w_k.set(i, newW_i);
-                }
+                final int i = iv.getIndex();
+                //see "APPLYPENALTY(i)" on line 15: from Figure 2 in Tsuruoka et al paper
+                final double z = w_k.get(i);
+                double newW_i = 0;
+                if (z > 0)
+                    newW_i = Math.max(0, z - (u + l1Q_k[i]));
+                else if(z < 0)
+                    newW_i = Math.min(0, z + (u - l1Q_k[i]));
+                l1Q_k[i] += (newW_i - z);
+                w_k.set(i, newW_i);
             }
         }
     }
 
+    /**
+     * Brings the L2 regularization of the given features up to date. 
+     * @param x the input vector whose features should be updated
+     * @param to the time to update to
+     * @param logDecay the log of the total decay at each time
+     * @param last the time each feature was last updated to
+     */
+    private void catchUpL2(Vec x, final int to, final double[] logDecay, final int[] last)
+    {
+        for(IndexValue iv : x)
+        {
+            final int j = iv.getIndex();
+            final int from = last[j];
+            //another thread may already be further along
+            if(from >= to)
+                continue;
+            last[j] = to;
+            final double scale = Math.exp(logDecay[to]-logDecay[from]);
+            for(Vec w_k : ws)
+                w_k.set(j, w_k.get(j)*scale);
+        }
+    }
+
+    @Override
+    public void train(ClassificationDataSet dataSet, boolean parallel)
+    {
+        if(parallel && hogwild)
+        {
+            setUp(dataSet.getCategories(), dataSet.getNumNumericalVars(), dataSet.getPredicting());
+            trainHogwild(dataSet, (x, i, eta_t) -> gradientStep(x, dataSet.getDataPointCategory(i), eta_t));
+        }
+        else
+            train(dataSet);
+    }
+
     @Override
     public void train(RegressionDataSet dataSet, boolean parallel)
     {
-        train(dataSet);
+        if(parallel && hogwild)
+        {
+            setUp(dataSet.getCategories(), dataSet.getNumNumericalVars());
+            trainHogwild(dataSet, (x, i, eta_t) -> gradientStep(x, dataSet.getTargetValue(i), eta_t));
+        }
+        else
+            train(dataSet);
     }
 
     @Override
@@ -497,6 +645,80 @@ public class LinearSGD extends BaseUpdateableClassifier implements UpdateableReg
         BaseUpdateableRegressor.trainEpochs(dataSet, this, getEpochs());
     }
 
+    /**
+     * Performs the gradient update for one data point during Hogwild training
+     */
+    private interface HogwildStep
+    {
+        public void apply(Vec x, int i, double eta_t);
+    }
+
+    /**
+     * Trains the model with lock free updates from every thread. Each thread
+     * processes every P'th data point of a random ordering of the data, so
+     * that all threads make progress through the learning rate schedule at
+     * the same pace. The model must already be set up.
+     *
+     * @param dataSet the data set to train from
+     * @param step the gradient update to perform for each data point
+     */
+    private void trainHogwild(DataSet dataSet, HogwildStep step)
+    {
+        final int N = dataSet.size();
+        final int D = ws[0].length();
+        final int P = Math.min(SystemInfo.LogicalCores, N);
+        final double[] etas = new double[N];
+        //logL2[t] is the log of the L2 decay from the first t updates of the epoch
+        final double[] logL2 = new double[N+1];
+        //cumL1[t] is the L1 penalty from the first t updates of the epoch
+        final double[] cumL1 = new double[N+1];
+        final int[] lastL2 = new int[D];
+        
+        IntList order = new IntList(N);
+        ListUtils.addRange(order, 0, N, 1);
+        Random rand = RandomUtil.getRandom();
+        
+        for(int epoch = 0; epoch < epochs; epoch++)
+        {
+            Collections.shuffle(order, rand);
+            for(int t = 0; t < N; t++)
+            {
+                etas[t] = decay.rate(time+t, eta);
+                logL2[t+1] = logL2[t] + Math.log1p(-etas[t]*lambda0);
+                cumL1[t+1] = cumL1[t] + etas[t]*lambda1;
+            }
+            final double l1UStart = l1U;
+            
+            ParallelUtils.run(true, P, (id) ->
+            {
+                for(int t = id; t < N; t += P)
+                {
+                    final int i = order.getI(t);
+                    Vec x = dataSet.getDataPoint(i).getNumericalValues();
+                    if(lambda0 > 0)
+                        catchUpL2(x, t+1, logL2, lastL2);
+                    step.apply(x, i, etas[t]);
+                    if(lambda1 > 0)
+                        applyL1Penalty(x, l1UStart + cumL1[t+1]);
+                }
+            });
+            
+            //bring every feature up to date before the next epoch
+            if(lambda0 > 0)
+            {
+                for(int j = 0; j < D; j++)
+                {
+                    final double scale = Math.exp(logL2[N]-logL2[lastL2[j]]);
+                    for(Vec w_k : ws)
+                        w_k.set(j, w_k.get(j)*scale);
+                }
+                Arrays.fill(lastL2, 0);
+            }
+            time += N;
+            l1U = l1UStart + cumL1[N];
+        }
+    }
+
     @Override
     public Vec getRawWeight(int index)
     {
@@ -1,11 +1,17 @@
 package jsat.classifiers.linear;
 
 import java.util.List;
+import jsat.SimpleWeightVectorModel;
 import jsat.classifiers.ClassificationDataSet;
+import jsat.linear.DenseMatrix;
 import jsat.linear.DenseVector;
+import jsat.linear.Matrix;
 import jsat.linear.Vec;
 import static java.lang.Math.*;
 import jsat.linear.IndexValue;
+import jsat.lossfunctions.LossC;
+import jsat.lossfunctions.LossMC;
+import jsat.lossfunctions.LossR;
 
 /**
  * This class provides static helper methods that may be useful for various
@@ -16,6 +22,12 @@ import jsat.linear.IndexValue;
 public class LinearTools
 {
 
+    /**
+     * The number of dense vectors copied into a matrix at a time when scoring
+     * a list of vectors
+     */
+    private static final int SCORE_BLOCK = 1024;
+
     private LinearTools()
     {
     }
@@ -110,4 +122,136 @@ public class LinearTools
         return 1/(C*N);
     }
     
+    /**
+     * Computes the raw scores <i>w<sub>k</sub><sup>T</sup> x + b<sub>k</sub></i>
+     * of a linear model for every row of the given matrix, using one matrix
+     * product for all of the model's weight vectors.
+     *
+     * @param model the linear model to score with
+     * @param X the data points to score, one per row
+     * @return a matrix with a row for each data point, and a column for each
+     * weight vector of the model
+     */
+    public static Matrix scores(SimpleWeightVectorModel model, Matrix X)
+    {
+        Matrix S = X.multiplyTranspose(weightMatrix(model, X.cols()));
+        addBias(model, S);
+        return S;
+    }
+
+    /**
+     * Computes the raw scores <i>w<sub>k</sub><sup>T</sup> x + b<sub>k</sub></i>
+     * of a linear model for every vector in the given list. When the model has
+     * several weight vectors and the inputs are dense, blocks of inputs are
+     * scored with a matrix product. Otherwise each input is scored with dot
+     * products, which is cheaper for sparse inputs.
+     *
+     * @param model the linear model to score with
+     * @param X the data points to score
+     * @return a matrix with a row for each data point, and a column for each
+     * weight vector of the model
+     */
+    public static Matrix scores(SimpleWeightVectorModel model, List<Vec> X)
+    {
+        final int K = model.numWeightsVecs();
+        Matrix S = new DenseMatrix(X.size(), K);
+        if(X.isEmpty())
+            return S;
+        boolean dense = K > 1;
+        for(int i = 0; i < X.size() && dense; i++)
+            dense = !X.get(i).isSparse();
+        
+        if(!dense)
+        {
+            for(int k = 0; k < K; k++)
+            {
+                Vec w_k = model.getRawWeight(k);
+                for(int i = 0; i < X.size(); i++)
+                    S.set(i, k, w_k.dot(X.get(i)));
+            }
+        }
+        else
+        {
+            final int d = X.get(0).length();
+            Matrix W = weightMatrix(model, d);
+            for(int start = 0; start < X.size(); start += SCORE_BLOCK)
+            {
+                int end = Math.min(start+SCORE_BLOCK, X.size());
+                Matrix X_b = new DenseMatrix(end-start, d);
+                for(int i = start; i < end; i++)
+                    X.get(i).copyTo(X_b.getRowView(i-start));
+                Matrix S_b = X_b.multiplyTranspose(W);
+                for(int i = start; i < end; i++)
+                    S_b.getRowView(i-start).copyTo(S.getRowView(i));
+            }
+        }
+        addBias(model, S);
+        return S;
+    }
+
+    /**
+     * Converts the raw scores of a linear model into the probability of each
+     * class.
+     *
+     * @param loss the loss function used by the model, which must be a
+     * {@link LossMC} if there is more than one column of scores
+     * @param S the raw scores, with one row per data point
+     * @param out the array to store the class probabilities in
+     */
+    public static void classify(LossC loss, Matrix S, double[][] out)
+    {
+        if(S.cols() == 1)
+        {
+            for(int i = 0; i < S.rows(); i++)
+                loss.getClassification(S.get(i, 0), out[i]);
+            return;
+        }
+        LossMC lossMC = (LossMC) loss;
+        Vec pred = new DenseVector(S.cols());
+        for(int i = 0; i < S.rows(); i++)
+        {
+            S.getRowView(i).copyTo(pred);
+            lossMC.process(pred, pred);
+            lossMC.getClassification(pred, out[i]);
+        }
+    }
+
+    /**
+     * Converts the raw scores of a linear model into regression predictions.
+     *
+     * @param loss the loss function used by the model
+     * @param S the raw scores, with one row per data point and a single column
+     * @param out the array to store the predicted values in
+     */
+    public static void regress(LossR loss, Matrix S, double[] out)
+    {
+        for(int i = 0; i < S.rows(); i++)
+            out[i] = loss.getRegression(S.get(i, 0));
+    }
+
+    /**
+     * 
+     * @param model the linear model
+     * @param d the number of features
+     * @return a matrix with each weight vector of the model as a row
+     */
+    private static Matrix weightMatrix(SimpleWeightVectorModel model, int d)
+    {
+        Matrix W = new DenseMatrix(model.numWeightsVecs(), d);
+        for(int k = 0; k < W.rows(); k++)
+            model.getRawWeight(k).copyTo(W.getRowView(k));
+        return W;
+    }
+
+    private static void addBias(SimpleWeightVectorModel model, Matrix S)
+    {
+        for(int k = 0; k < S.cols(); k++)
+        {
+            double b_k = model.getBias(k);
+            if(b_k != 0)
+                for(int i = 0; i < S.rows(); i++)
+                    S.increment(i, k, b_k);
+        }
+    }
+    
 }
@@ -11,6 +11,7 @@ import jsat.classifiers.svm.PlattSMO;
 import jsat.distributions.Distribution;
 import jsat.exceptions.FailedToFitException;
 import jsat.linear.DenseVector;
+import jsat.linear.Matrix;
 import jsat.linear.Vec;
 import jsat.lossfunctions.LogisticLoss;
 import jsat.parameters.Parameter;
@@ -194,6 +195,21 @@ public class LogisticRegressionDCD implements Classifier, Parameterized, SingleW
         return LogisticLoss.classify(w.dot(data.getNumericalValues())+bias);
     }
 
+    @Override
+    public void classifyBatch(List<Vec> X, double[][] out)
+    {
+        for(int i = 0; i < X.size(); i++)
+            LogisticLoss.classify(w.dot(X.get(i))+bias, out[i]);
+    }
+
+    @Override
+    public void classifyBatch(Matrix X, double[][] out)
+    {
+        Matrix S = LinearTools.scores(this, X);
+        for(int i = 0; i < S.rows(); i++)
+            LogisticLoss.classify(S.get(i, 0), out[i]);
+    }
+
     @Override
     public void train(ClassificationDataSet dataSet, boolean parallel)
     {
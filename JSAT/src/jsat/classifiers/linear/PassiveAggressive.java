@@ -40,6 +40,7 @@ public class PassiveAggressive implements UpdateableClassifier, BinaryScoreClass
     private double eps = 0.001;
     private Vec w;
     private Mode mode;
+    private boolean hogwild = false;
 
     /**
      * Creates a new Passive Aggressive learner that does 10 epochs and uses
@@ -170,6 +171,30 @@ public class PassiveAggressive implements UpdateableClassifier, BinaryScoreClass
         return epochs;
     }
 
+    /**
+     * Sets whether or not Hogwild style training should be used when training
+     * in parallel. When enabled, every thread updates the shared weight vector
+     * from a different part of the data without any locking. This works best
+     * on sparse data sets, where two threads rarely update the same feature at
+     * the same time.
+     *
+     * @param hogwild {@code true} to use lock free parallel training
+     */
+    public void setHogwild(boolean hogwild)
+    {
+        this.hogwild = hogwild;
+    }
+
+    /**
+     * Returns whether or not Hogwild style training is used when training in
+     * parallel
+     * @return {@code true} if lock free parallel training is used
+     */
+    public boolean isHogwild()
+    {
+        return hogwild;
+    }
+
     @Override
     public Vec getRawWeight()
     {
@@ -227,7 +252,10 @@ public class PassiveAggressive implements UpdateableClassifier, BinaryScoreClass
     @Override
     public void train(ClassificationDataSet dataSet, boolean parallel)
     {
-        train(dataSet);
+        if(parallel && hogwild)
+            BaseUpdateableClassifier.trainEpochsHogwild(dataSet, this, epochs);
+        else
+            train(dataSet);
     }
 
     @Override
@@ -312,7 +340,10 @@ public class PassiveAggressive implements UpdateableClassifier, BinaryScoreClass
     @Override
     public void train(RegressionDataSet dataSet, boolean parallel)
     {
-        train(dataSet);
+        if(parallel && hogwild)
+            BaseUpdateableRegressor.trainEpochsHogwild(dataSet, this, epochs);
+        else
+            train(dataSet);
     }
 
     @Override
@@ -327,6 +358,7 @@ public class PassiveAggressive implements UpdateableClassifier, BinaryScoreClass
         PassiveAggressive clone = new PassiveAggressive(epochs, mode);
         clone.eps = this.eps;
         clone.C = this.C;
+        clone.hogwild = this.hogwild;
         if(this.w != null)
             clone.w = this.w;
         
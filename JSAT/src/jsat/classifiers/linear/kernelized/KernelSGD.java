@@ -10,6 +10,7 @@ import jsat.classifiers.ClassificationDataSet;
 import jsat.classifiers.DataPoint;
 import jsat.classifiers.UpdateableClassifier;
 import jsat.classifiers.linear.LinearSGD;
+import jsat.classifiers.linear.LinearTools;
 import jsat.distributions.Distribution;
 import jsat.distributions.LogUniform;
 import jsat.distributions.kernels.KernelPoint;
@@ -18,6 +19,7 @@ import jsat.distributions.kernels.KernelTrick;
 import jsat.distributions.kernels.RBFKernel;
 import jsat.exceptions.FailedToFitException;
 import jsat.linear.DenseVector;
+import jsat.linear.Matrix;
 import jsat.linear.Vec;
 import jsat.lossfunctions.LossC;
 import jsat.lossfunctions.LossFunc;
@@ -401,6 +403,23 @@ public class KernelSGD implements UpdateableClassifier, UpdateableRegressor, Par
         return ((LossR)loss).getRegression(kpoint.dot(x, qi));
     }
 
+    @Override
+    public void classifyBatch(List<Vec> X, double[][] out)
+    {
+        if(kpoint != null)
+            for(int i = 0; i < X.size(); i++)
+                ((LossC)loss).getClassification(kpoint.dot(X.get(i)), out[i]);
+        else
+            LinearTools.classify((LossC)loss, kpoints.dot(X), out);
+    }
+
+    @Override
+    public void regressBatch(List<Vec> X, double[] out)
+    {
+        for(int i = 0; i < X.size(); i++)
+            out[i] = ((LossR)loss).getRegression(kpoint.dot(X.get(i)));
+    }
+
     @Override
     public void train(ClassificationDataSet dataSet, boolean parallel)
     {
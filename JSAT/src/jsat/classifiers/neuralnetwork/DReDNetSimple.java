@@ -16,6 +16,7 @@ import jsat.classifiers.neuralnetwork.activations.SoftmaxLayer;
 import jsat.classifiers.neuralnetwork.initializers.ConstantInit;
 import jsat.classifiers.neuralnetwork.initializers.GaussianNormalInit;
 import jsat.classifiers.neuralnetwork.regularizers.Max2NormRegularizer;
+import jsat.linear.Matrix;
 import jsat.linear.SparseVector;
 import jsat.linear.Vec;
 import jsat.math.optimization.stochastic.AdaDelta;
@@ -135,6 +136,15 @@ public class DReDNetSimple implements Classifier, Parameterized
         return new CategoricalResults(y.arrayCopy());
     }
 
+    @Override
+    public void classifyBatch(List<Vec> X, double[][] out)
+    {
+        Matrix Y = network.feedfoward(X);
+        for(int i = 0; i < X.size(); i++)
+            for(int j = 0; j < Y.rows(); j++)
+                out[i][j] = Y.get(j, i);
+    }
+
     @Override
     public void train(ClassificationDataSet dataSet, boolean parallel)
     {
@@ -167,8 +177,8 @@ public class DReDNetSimple implements Classifier, Parameterized
                 Ymini.clear();
                 for(int j = i; j < to; j++)
                 {
-                    Xmini.add(X.get(j));
-                    Ymini.add(Y.get(j));
+                    Xmini.add(X.get(randOrder.getI(j)));
+                    Ymini.add(Y.get(randOrder.getI(j)));
                 }
                 
                 double localErr;
@@ -206,6 +216,8 @@ public class DReDNetSimple implements Classifier, Parameterized
 
         network.setEta(1.0);
         network.setGradientUpdater(new AdaDelta());
+        //the layers are usually small relative to the batch, so split the batch
+        network.setDataParallel(true);
         
         
         network.setup();
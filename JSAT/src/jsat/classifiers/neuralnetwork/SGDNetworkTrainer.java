@@ -5,7 +5,9 @@ package jsat.classifiers.neuralnetwork;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -20,6 +22,7 @@ import jsat.classifiers.neuralnetwork.regularizers.Max2NormRegularizer;
 import jsat.classifiers.neuralnetwork.regularizers.WeightRegularizer;
 import jsat.linear.DenseMatrix;
 import jsat.linear.DenseVector;
+import jsat.linear.IndexValue;
 import jsat.linear.Matrix;
 import jsat.linear.Vec;
 import jsat.math.decayrates.DecayRate;
@@ -27,6 +30,7 @@ import jsat.math.decayrates.NoDecay;
 import jsat.math.optimization.stochastic.GradientUpdater;
 import jsat.math.optimization.stochastic.SimpleSGD;
 import jsat.utils.SystemInfo;
+import jsat.utils.concurrent.ParallelUtils;
 import jsat.utils.random.RandomUtil;
 import jsat.utils.random.XORWOW;
 
@@ -129,11 +133,15 @@ public class SGDNetworkTrainer implements Serializable
     private int time;
     
     /**
-     * Matrices for storing the activations of each layer 
+     * Whether or not each mini batch should be split across threads when 
+     * training in parallel
      */
-    private Matrix[] activations;
-    private Matrix[] unactivated;
-    private Matrix[] deltas;
+    private boolean dataParallel = false;
+    /**
+     * The reusable buffers for each thread. The first is used when the whole 
+     * mini batch is processed at once. 
+     */
+    private transient Worker[] workers;
     
     /**
      * Creates a new SGD network training that uses dropout
@@ -158,6 +166,7 @@ public class SGDNetworkTrainer implements Serializable
         this.updater = toCopy.updater.clone();
         this.setDropoutInput(toCopy.getDropoutInput());
         this.setDropoutHidden(toCopy.getDropoutHidden());
+        this.dataParallel = toCopy.dataParallel;
         if(toCopy.W != null)
         {
             this.W = new ArrayList<Matrix>();
@@ -186,7 +195,7 @@ public class SGDNetworkTrainer implements Serializable
                 for(GradientUpdater item : updaters)
                     copyUpdaters.add(item.clone());
             }
-            this.B_updaters = new ArrayList<GradientUpdater>(toCopy.B_updaters);
+            this.B_updaters = new ArrayList<GradientUpdater>(toCopy.B_updaters.size());
             for(GradientUpdater item : toCopy.B_updaters)
                     this.B_updaters.add(item.clone());
         }
@@ -238,6 +247,33 @@ public class SGDNetworkTrainer implements Serializable
         return p_o;
     }
 
+    /**
+     * Sets whether or not each mini batch should be split across threads when 
+     * an {@link ExecutorService} is given to 
+     * {@link #updateMiniBatch(java.util.List, java.util.List, java.util.concurrent.ExecutorService) }.
+     * When enabled, every thread performs the forward and backward passes 
+     * over its own part of the mini batch, and the gradients from each thread 
+     * are summed. Otherwise, the threads are used to parallelize each matrix 
+     * operation over the whole mini batch. Splitting the mini batch is usually
+     * faster for networks with small layers and many data points. 
+     * 
+     * @param dataParallel {@code true} to split each mini batch across threads
+     */
+    public void setDataParallel(boolean dataParallel)
+    {
+        this.dataParallel = dataParallel;
+    }
+
+    /**
+     * 
+     * @return {@code true} if each mini batch is split across threads when 
+     * training in parallel
+     */
+    public boolean isDataParallel()
+    {
+        return dataParallel;
+    }
+
     /**
      * Sets the decay rate on the global learning rate over time
      * @param etaDecay the decay rate to use
@@ -439,10 +475,7 @@ public class SGDNetworkTrainer implements Serializable
             B_updaters.get(B_updaters.size()-1).setup(layerSizes[l]);
         }
         
-        activations = new Matrix[layersActivation.size()];
-        unactivated = new Matrix[layersActivation.size()];
-        deltas = new Matrix[layersActivation.size()];
-        
+        workers = null;
     }
     
     /**
@@ -456,7 +489,7 @@ public class SGDNetworkTrainer implements Serializable
         W_updaters = null;
         B_deltas = null;
         B_updaters = null;
-        activations = unactivated = deltas = null;
+        workers = null;
         W.get(0).mutableMultiply(1.0-p_i);
         B.get(0).mutableMultiply(1.0-p_i);
         for(int i = 1; i < W.size(); i++)
@@ -489,47 +522,153 @@ public class SGDNetworkTrainer implements Serializable
      */
     public double updateMiniBatch(List<Vec> x, List<Vec> y, ExecutorService ex)
     {
-        Random rand = RandomUtil.getRandom();
         for(Matrix w : W_deltas)
             w.zeroOut();
         for(Vec b : B_deltas)
             b.zeroOut();
         
-        for(int i = 0; i < layersActivation.size(); i++)
-        {
-            //TODO isntead of making a whole new matrix every time, use a submatrix when bigger and enlarge when too small
-            if(activations[i] == null || activations[i].cols() != x.size())
-                activations[i] = new DenseMatrix(layerSizes[i+1], x.size());
-            if(unactivated[i] == null || unactivated[i].cols() != x.size())
-                unactivated[i] = new DenseMatrix(layerSizes[i+1], x.size());
-            if(deltas[i] == null || deltas[i].cols() != x.size())
-                deltas[i] = new DenseMatrix(layerSizes[i+1], x.size());
-        }
+        double errorMade;
+        if(dataParallel && ex != null && x.size() > 1)
+            errorMade = dataParallelPass(x, y, ex);
+        else
+            errorMade = pass(getWorker(0), x, y, 0, x.size(), W_deltas, B_deltas, ex, RandomUtil.getRandom());
+        
+        final double invXsize = 1.0/x.size();
+        for(Matrix w : W_deltas)
+            w.mutableMultiply(invXsize);
+        for(Vec b : B_deltas)
+            b.mutableMultiply(invXsize);
+
+        double eta_cur = etaDecay.rate(time++, eta);
+        if(ex == null)
+            applyGradient(eta_cur);
+        else
+            applyGradient(eta_cur, ex);
+        
+        return errorMade;
+    }
+    
+    /**
+     * Performs the forward and backward pass over part of a mini batch, and 
+     * adds the (unnormalized) gradients to the given lists
+     * @param worker the buffers to use
+     * @param x the list of input values
+     * @param y the list of output values
+     * @param from the first index of the mini batch to use, inclusive
+     * @param to the last index of the mini batch to use, exclusive
+     * @param W_d the weight gradients to add to
+     * @param B_d the bias gradients to add to
+     * @param ex the source of threads for parallel computation, may be 
+     * {@code null}
+     * @param rand the source of randomness for dropout
+     * @return the error incurred on the given part of the mini batch
+     */
+    private double pass(Worker worker, List<Vec> x, List<Vec> y, int from, int to, List<Matrix> W_d, List<Vec> B_d, ExecutorService ex, Random rand)
+    {
+        Workspace ws = worker.getWorkspace(layerSizes, to-from);
         
-        Matrix X = new DenseMatrix(layerSizes[0], x.size());
-        for (int j = 0; j < x.size(); j++)
-            x.get(j).copyTo(X.getColumnView(j));
+        final Matrix X = ws.X;
+        X.zeroOut();
+        for (int j = from; j < to; j++)
+            for(IndexValue iv : x.get(j))
+                X.set(iv.getIndex(), j-from, iv.getValue());
         
         if(p_i > 0)
             applyDropout(X, p_i_intThresh, rand, ex);
         
+        feedforward(X, ws.activations, ws.unactivated, ex, rand);
         
-        double errorMade = 0;
+        double errorMade = backpropagateError(ws.deltas, ws.activations, x.subList(from, to), y.subList(from, to), 0, ex, ws.unactivated);
         
-        feedforward(X, activations, unactivated, ex, rand);
+        accumulateUpdates(X, ws.activations, ws.deltas, W_d, B_d, ex);
         
-        errorMade = backpropagateError(deltas, activations, x, y, errorMade, ex, unactivated);
+        return errorMade;
+    }
+    
+    /**
+     * Splits the mini batch across threads, where each thread computes the 
+     * gradient of its own part, and then sums the gradients into 
+     * {@link #W_deltas} and {@link #B_deltas}. 
+     * @param x the list of input values
+     * @param y the list of output values
+     * @param ex the source of threads for parallel computation
+     * @return the error incurred on the given mini batch
+     */
+    private double dataParallelPass(final List<Vec> x, final List<Vec> y, ExecutorService ex)
+    {
+        final int N = x.size();
+        final int P = Math.min(SystemInfo.LogicalCores, N);
+        //create everything up front, so that threads only read the workers array
+        for(int id = 0; id < P; id++)
+        {
+            Worker worker = getWorker(id);
+            if(worker.W_deltas == null)
+            {
+                worker.W_deltas = new ArrayList<Matrix>(W_deltas.size());
+                worker.B_deltas = new ArrayList<Vec>(B_deltas.size());
+                for(int l = 0; l < W_deltas.size(); l++)
+                {
+                    worker.W_deltas.add(new DenseMatrix(W_deltas.get(l).rows(), W_deltas.get(l).cols()));
+                    worker.B_deltas.add(new DenseVector(B_deltas.get(l).length()));
+                }
+            }
+        }
         
-        accumulateUpdates(X, activations, deltas, ex, x);
-
-        double eta_cur = etaDecay.rate(time++, eta);
-        if(ex == null)
-            applyGradient(eta_cur);
-        else
-            applyGradient(eta_cur, ex);
+        final double[] errors = new double[P];
+        ParallelUtils.run(true, P, (id) ->
+        {
+            Worker worker = workers[id];
+            for(Matrix w : worker.W_deltas)
+                w.zeroOut();
+            for(Vec b : worker.B_deltas)
+                b.zeroOut();
+            int from = ParallelUtils.getStartBlock(N, id, P);
+            int to = ParallelUtils.getEndBlock(N, id, P);
+            errors[id] = pass(worker, x, y, from, to, worker.W_deltas, worker.B_deltas, null, RandomUtil.getRandom());
+        }, ex);
+        
+        //reduce the gradients of every thread
+        for(int l = 0; l < W_deltas.size(); l++)
+        {
+            final int L = l;
+            final Matrix W_dl = W_deltas.get(l);
+            ParallelUtils.run(true, W_dl.rows(), (start, end) ->
+            {
+                for(int id = 0; id < P; id++)
+                {
+                    final Matrix W_dl_id = workers[id].W_deltas.get(L);
+                    for(int i = start; i < end; i++)
+                        W_dl.getRowView(i).mutableAdd(W_dl_id.getRowView(i));
+                }
+            }, ex);
+            for(int id = 0; id < P; id++)
+                B_deltas.get(l).mutableAdd(workers[id].B_deltas.get(l));
+        }
         
+        double errorMade = 0;
+        for(double err : errors)
+            errorMade += err;
         return errorMade;
     }
+    
+    /**
+     * 
+     * @param id the id of the thread
+     * @return the buffers for the given thread
+     */
+    private Worker getWorker(int id)
+    {
+        if(workers == null || workers.length <= id)
+        {
+            Worker[] newWorkers = new Worker[Math.max(id+1, SystemInfo.LogicalCores)];
+            if(workers != null)
+                System.arraycopy(workers, 0, newWorkers, 0, workers.length);
+            workers = newWorkers;
+        }
+        if(workers[id] == null)
+            workers[id] = new Worker();
+        return workers[id];
+    }
 
     private void feedforward(Matrix X, Matrix[] activationsM, Matrix[] unactivatedM, ExecutorService ex, Random rand)
     {
@@ -545,55 +684,62 @@ public class SGDNetworkTrainer implements Serializable
             else
                 W.get(l).multiply(a_lprev, z_l, ex);
 
-            //add the bias term back in
             final Vec B_l = B.get(l);
-            if (ex == null)
+            if (p_o > 0 && l != layersActivation.size() - 1)
             {
-                for (int i = 0; i < z_l.rows(); i++)
-                {
-                    final double B_li = B_l.get(i);
-                    for (int j = 0; j < z_l.cols(); j++)
-                        z_l.increment(i, j, B_li);
-                }
+                //dropout is applied after the bias, but before the activation
+                addBias(z_l, B_l, ex);
+                applyDropout(z_l, p_o_intThresh, rand, ex);
+                layersActivation.get(l).activate(z_l, a_l, false);
             }
-            else
+            else//add the bias and activate in one pass
+                layersActivation.get(l).activate(z_l, B_l, a_l, false);
+        }
+    }
+
+    /**
+     * Adds the bias term of each neuron to its inputs
+     * @param z_l the inputs to a layer, with one column per data point
+     * @param B_l the bias of each neuron in the layer
+     * @param ex the source of threads for parallel computation, or {@code null} 
+     */
+    private static void addBias(final Matrix z_l, final Vec B_l, ExecutorService ex)
+    {
+        if (ex == null)
+        {
+            ActivationLayer.addBias(z_l, B_l, false);
+            return;
+        }
+        
+        final CountDownLatch latch = new CountDownLatch(SystemInfo.LogicalCores);
+        for (int id = 0; id < SystemInfo.LogicalCores; id++)
+        {
+            final int ID = id;
+            ex.submit(new Runnable()
             {
-                final CountDownLatch latch = new CountDownLatch(SystemInfo.LogicalCores);
-                for (int id = 0; id < SystemInfo.LogicalCores; id++)
+
+                @Override
+                public void run()
                 {
-                    final int ID = id;
-                    ex.submit(new Runnable()
+                    for (int i = ID; i < z_l.rows(); i += SystemInfo.LogicalCores)
                     {
-
-                        @Override
-                        public void run()
-                        {
-                            for (int i = ID; i < z_l.rows(); i += SystemInfo.LogicalCores)
-                            {
-                                final double B_li = B_l.get(i);
-                                for (int j = 0; j < z_l.cols(); j++)
-                                    z_l.increment(i, j, B_li);
-                            }
-                            latch.countDown();
-                        }
-                    });
-
+                        final double B_li = B_l.get(i);
+                        for (int j = 0; j < z_l.cols(); j++)
+                            z_l.increment(i, j, B_li);
+                    }
+                    latch.countDown();
                 }
+            });
 
-                try
-                {
-                    latch.await();
-                }
-                catch (InterruptedException ex1)
-                {
-                    Logger.getLogger(SGDNetworkTrainer.class.getName()).log(Level.SEVERE, null, ex1);
-                }
-            }
+        }
 
-            if (p_o > 0 && l != layersActivation.size() - 1)
-                applyDropout(z_l, p_o_intThresh, rand, ex);
-            
-            layersActivation.get(l).activate(z_l, a_l, false);
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException ex1)
+        {
+            Logger.getLogger(SGDNetworkTrainer.class.getName()).log(Level.SEVERE, null, ex1);
         }
     }
 
@@ -623,6 +769,42 @@ public class SGDNetworkTrainer implements Serializable
         return a_lprev;
     }
     
+    /**
+     * Feeds a batch of patterns through the network and computes their 
+     * activations. Each layer is computed for many patterns at once with a 
+     * matrix product, working through the batch in blocks to bound the memory 
+     * used for the hidden activations. 
+     * @param x the input vectors to feed forward through the network
+     * @return a matrix where the <i>i'th</i> column is the final activation 
+     * for the <i>i'th</i> input
+     */
+    public Matrix feedfoward(List<Vec> x)
+    {
+        final int blockSize = 1024;
+        final int L = layersActivation.size();
+        Matrix out = new DenseMatrix(layerSizes[L], x.size());
+        for(int start = 0; start < x.size(); start += blockSize)
+        {
+            int end = Math.min(start+blockSize, x.size());
+            Matrix a_lprev = new DenseMatrix(layerSizes[0], end-start);
+            for (int j = start; j < end; j++)
+                for(IndexValue iv : x.get(j))
+                    a_lprev.set(iv.getIndex(), j-start, iv.getValue());
+            
+            for (int l = 0; l < L; l++)
+            {
+                Matrix z_l = W.get(l).multiply(a_lprev);
+                Matrix a_l = new DenseMatrix(z_l.rows(), z_l.cols());
+                layersActivation.get(l).activate(z_l, B.get(l), a_l, false);
+                a_lprev = a_l;
+            }
+            
+            for (int j = start; j < end; j++)
+                a_lprev.getColumnView(j-start).copyTo(out.getColumnView(j));
+        }
+        return out;
+    }
+    
     private double backpropagateError(Matrix[] deltasM, Matrix[] activationsM, List<Vec> x, List<Vec> y, double errorMade, ExecutorService ex, Matrix[] unactivatedM)
     {
         //backpropagate the error
@@ -653,28 +835,26 @@ public class SGDNetworkTrainer implements Serializable
         return errorMade;
     }
 
-    private void accumulateUpdates(Matrix X, Matrix[] activationsM, Matrix[] deltasM, ExecutorService ex, final List<Vec> x)
+    private void accumulateUpdates(Matrix X, Matrix[] activationsM, Matrix[] deltasM, List<Matrix> W_d, List<Vec> B_d, ExecutorService ex)
     {
-        final double invXsize = 1.0/x.size();
         //accumulate updates
         for (int l = 0; l < layersActivation.size(); l++)
         {
             final Matrix a_lprev = (l == 0 ? X : activationsM[(l - 1)]);
             final Matrix delta_l = deltasM[l];
             if(ex == null)
-                delta_l.multiplyTranspose(a_lprev, W_deltas.get(l));
+                delta_l.multiplyTranspose(a_lprev, W_d.get(l));
             else
-                delta_l.multiplyTranspose(a_lprev, W_deltas.get(l), ex);
-            W_deltas.get(l).mutableMultiply(invXsize);
+                delta_l.multiplyTranspose(a_lprev, W_d.get(l), ex);
             
-            final Vec B_delta_l = B_deltas.get(l);
+            final Vec B_delta_l = B_d.get(l);
             if(ex == null)
                 for(int i = 0; i < delta_l.rows(); i++)
                 {
                     double change = 0;
                     for(int j = 0; j < delta_l.cols(); j++)
                         change += delta_l.get(i, j);
-                    B_delta_l.increment(i, change*invXsize);
+                    B_delta_l.increment(i, change);
                 }
             else
             {
@@ -692,7 +872,7 @@ public class SGDNetworkTrainer implements Serializable
                                 double change = 0;
                                 for(int j = 0; j < delta_l.cols(); j++)
                                     change += delta_l.get(i, j);
-                                B_delta_l.increment(i, change*invXsize);
+                                B_delta_l.increment(i, change);
                             }
                             latch.countDown();
                         }
@@ -816,6 +996,70 @@ public class SGDNetworkTrainer implements Serializable
         }
     }
 
+    /**
+     * The matrices needed for the forward and backward passes over a mini 
+     * batch of a specific size
+     */
+    private static class Workspace
+    {
+        /**
+         * The inputs, with one column per data point
+         */
+        final Matrix X;
+        /**
+         * Matrices for storing the activations of each layer 
+         */
+        final Matrix[] activations;
+        final Matrix[] unactivated;
+        final Matrix[] deltas;
+
+        public Workspace(int[] layerSizes, int n)
+        {
+            X = new DenseMatrix(layerSizes[0], n);
+            activations = new Matrix[layerSizes.length-1];
+            unactivated = new Matrix[layerSizes.length-1];
+            deltas = new Matrix[layerSizes.length-1];
+            for(int i = 0; i < activations.length; i++)
+            {
+                activations[i] = new DenseMatrix(layerSizes[i+1], n);
+                unactivated[i] = new DenseMatrix(layerSizes[i+1], n);
+                deltas[i] = new DenseMatrix(layerSizes[i+1], n);
+            }
+        }
+    }
+    
+    /**
+     * The buffers used by one thread, which are kept between mini batches
+     */
+    private static class Worker
+    {
+        /**
+         * The workspace for each batch size seen. Normally this is only the 
+         * mini batch size, and the size of the last partial batch of an epoch.
+         */
+        final Map<Integer, Workspace> workspaces = new HashMap<Integer, Workspace>();
+        /**
+         * The gradients computed by this thread, only used when splitting mini
+         * batches across threads
+         */
+        List<Matrix> W_deltas;
+        List<Vec> B_deltas;
+        
+        public Workspace getWorkspace(int[] layerSizes, int n)
+        {
+            Workspace ws = workspaces.get(n);
+            if(ws == null)
+            {
+                //don't hold on to an unbounded number of odd sizes
+                if(workspaces.size() >= 4)
+                    workspaces.clear();
+                ws = new Workspace(layerSizes, n);
+                workspaces.put(n, ws);
+            }
+            return ws;
+        }
+    }
+
     @Override
     protected SGDNetworkTrainer clone()
     {
@@ -27,7 +27,45 @@ public interface ActivationLayer extends Serializable
      * column major implementation
      */
     public void activate(Matrix input, Matrix output, boolean rowMajor);
-    
+
+    /**
+     * Adds a bias term to each input, and then computes the activation
+     * function of this layer. The input matrix is altered to contain the
+     * biased values, as they are needed for backpropagation. Implementations
+     * should override this method to do both in one pass over the data.
+     *
+     * @param input the raw input to compute the activation for, which will
+     * have the bias added to it
+     * @param bias the bias for each neuron in this layer
+     * @param output the location to store the activation in
+     * @param rowMajor {@code true} if the information per input is stored in
+     * rows, {@code false} if the inputs were stored by column. This parameter
+     * does not indicate if the matrices themselves are backed by a row or
+     * column major implementation
+     */
+    default public void activate(Matrix input, Vec bias, Matrix output, boolean rowMajor)
+    {
+        addBias(input, bias, rowMajor);
+        activate(input, output, rowMajor);
+    }
+
+    /**
+     * Adds a bias term to each input
+     * @param input the values to add the bias to
+     * @param bias the bias for each neuron
+     * @param rowMajor {@code true} if the information per input is stored in
+     * rows, {@code false} if the inputs were stored by column.
+     */
+    public static void addBias(Matrix input, Vec bias, boolean rowMajor)
+    {
+        if(rowMajor)
+            for(int i = 0; i < input.rows(); i++)
+                input.getRowView(i).mutableAdd(bias);
+        else
+            for(int i = 0; i < input.rows(); i++)
+                input.getRowView(i).mutableAdd(bias.get(i));
+    }
+
     /**
      * This method computes the backpropagated error to a given layer. Often 
      * denoted as &delta;<sup>l</sup> = w<sup><small>l+1</small> <b>T</b></sup> 
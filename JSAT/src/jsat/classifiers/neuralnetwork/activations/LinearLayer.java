@@ -24,6 +24,18 @@ public class LinearLayer implements ActivationLayer
     {
         input.copyTo(output);
     }
+
+    @Override
+    public void activate(Matrix input, Vec bias, Matrix output, boolean rowMajor)
+    {
+        for(int i = 0; i < input.rows(); i++)
+            for(int j = 0; j < input.cols(); j++)
+            {
+                double z = input.get(i, j) + (rowMajor ? bias.get(j) : bias.get(i));
+                input.set(i, j, z);
+                output.set(i, j, z);
+            }
+    }
     
     @Override
     public void backprop(Vec input, Vec output, Vec delta_partial, Vec errout)
@@ -30,6 +30,18 @@ public class SigmoidLayer implements ActivationLayer
                 output.set(i, j, 1.0/(1+Math.exp(-input.get(i, j))));
     }
 
+    @Override
+    public void activate(Matrix input, Vec bias, Matrix output, boolean rowMajor)
+    {
+        for(int i = 0; i < input.rows(); i++)
+            for(int j = 0; j < input.cols(); j++)
+            {
+                double z = input.get(i, j) + (rowMajor ? bias.get(j) : bias.get(i));
+                input.set(i, j, z);
+                output.set(i, j, 1.0/(1+Math.exp(-z)));
+            }
+    }
+
     @Override
     public void backprop(Vec input, Vec output, Vec delta_partial, Vec errout)
     {
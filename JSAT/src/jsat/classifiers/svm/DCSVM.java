@@ -350,7 +350,10 @@ public class DCSVM extends SupportVectorLearner implements Classifier, Parameter
                 }
 
                 SVMnoBias svm = new SVMnoBias(getKernel());
-                if(cache_size > 0)
+                svm.setSharedCache(getSharedCache());
+                if(getSharedCache() != null)
+                    svm.setCacheMode(CacheMode.ROWS);
+                else if(cache_size > 0)
                     svm.setCacheSize(V_alphas.size(), cache_size);
                 else
                     svm.setCacheMode(CacheMode.NONE);
@@ -373,7 +376,10 @@ public class DCSVM extends SupportVectorLearner implements Classifier, Parameter
         if(l_early == 0)//fully solve the problem! Refinement step was done implicitly in above loop 
         {
             SVMnoBias svm = new SVMnoBias(getKernel());
-            if (cache_size > 0)
+            svm.setSharedCache(getSharedCache());
+            if(getSharedCache() != null)
+                svm.setCacheMode(CacheMode.ROWS);
+            else if (cache_size > 0)
                 svm.setCacheSize(dataSet.size(), cache_size );
             else
                 svm.setCacheMode(CacheMode.NONE);
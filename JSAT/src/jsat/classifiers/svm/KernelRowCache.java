@@ -0,0 +1,582 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.classifiers.svm;
+
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import jsat.distributions.kernels.KernelTrick;
+import jsat.parameters.Parameter;
+
+/**
+ * This class provides a cache of rows of a kernel matrix that may be shared
+ * between many {@link SupportVectorLearner support vector learners} at once.
+ * The total memory used by the cache is bounded by a fixed number of bytes,
+ * rather than a number of rows per model. <br>
+ * <br>
+ * Rows are identified by the object the training data came from (compared by
+ * identity), the kernel and its parameter values, and the row index. This
+ * means that when many models with the same kernel are trained on the same
+ * data set, such as when {@link jsat.parameters.GridSearch GridSearch} searches
+ * over the regularization parameter of an SVM, the kernel rows computed by
+ * one model will be re-used by all the others. The data set should not be
+ * altered while rows from it are in the cache. <br>
+ * <br>
+ * Which row is removed when the cache is full is decided by an
+ * {@link EvictionPolicy}, and rows may optionally be stored as {@code float}
+ * values to fit twice as many rows into the same amount of memory. Counts of
+ * the hits, misses, and evictions are kept so that the size of the cache can
+ * be tuned.
+ *
+ * @author Edward Raff
+ */
+public class KernelRowCache
+{
+    /**
+     * Approximate number of bytes used by the bookkeeping of each row, in
+     * addition to the values stored.
+     */
+    private static final int ROW_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private final EvictionPolicy eviction;
+    private final boolean useFloats;
+
+    private final ConcurrentHashMap<RowKey, Row> rows = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    /**
+     * Logical clock used to order accesses to the rows
+     */
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * The data sources seen so far, each with a unique ID
+     */
+    private final List<SourceRef> sources = new ArrayList<>();
+    private final ReferenceQueue<Object> deadSources = new ReferenceQueue<>();
+    private int nextSourceID = 0;
+
+    /**
+     * Decides which row of the cache will be evicted when space is needed.
+     * Given the access statistics of every row, the row with the smallest
+     * priority is evicted first.
+     */
+    public interface EvictionPolicy extends Serializable
+    {
+        /**
+         * Computes the priority of keeping a row in the cache.
+         *
+         * @param lastAccess the logical time of the last access to the row,
+         * larger values are more recent
+         * @param accessCount the number of times the row has been accessed
+         * @param active whether or not the learner that uses the row has
+         * marked the row as being in its current working set
+         * @return the priority of the row, the lowest priority row is evicted
+         */
+        public long priority(long lastAccess, long accessCount, boolean active);
+    }
+
+    /**
+     * The standard eviction policies
+     */
+    public enum StandardEviction implements EvictionPolicy
+    {
+        /**
+         * The least recently used row is evicted
+         */
+        LRU
+        {
+            @Override
+            public long priority(long lastAccess, long accessCount, boolean active)
+            {
+                return lastAccess;
+            }
+        },
+        /**
+         * The least frequently used row is evicted, with ties broken by
+         * the least recently used.
+         */
+        LFU
+        {
+            @Override
+            public long priority(long lastAccess, long accessCount, boolean active)
+            {
+                //access count in the high bits, recency in the low bits
+                return (Math.min(accessCount, (1L << 22)) << 40) | (lastAccess & ((1L << 40)-1));
+            }
+        },
+        /**
+         * Rows that are not in the working set of the learner are evicted
+         * first, in least recently used order. If all rows are in the working
+         * set, the least recently used row is evicted. This mirrors the
+         * shrinking heuristic of SMO solvers, where rows of variables at their
+         * bounds are unlikely to be needed again soon.
+         */
+        WORKING_SET
+        {
+            @Override
+            public long priority(long lastAccess, long accessCount, boolean active)
+            {
+                return active ? lastAccess + (1L << 62) : lastAccess;
+            }
+        };
+    }
+
+    /**
+     * Creates a new kernel row cache that uses LRU eviction and stores rows
+     * as doubles.
+     *
+     * @param maxBytes the maximum number of bytes of memory to use
+     */
+    public KernelRowCache(long maxBytes)
+    {
+        this(maxBytes, StandardEviction.LRU, false);
+    }
+
+    /**
+     * Creates a new kernel row cache
+     *
+     * @param maxBytes the maximum number of bytes of memory to use
+     * @param eviction the policy to determine which row to remove when the
+     * cache is full
+     * @param useFloats {@code true} to store kernel values as floats, which
+     * halves the memory used per row at the cost of precision. {@code false}
+     * to store them as doubles
+     */
+    public KernelRowCache(long maxBytes, EvictionPolicy eviction, boolean useFloats)
+    {
+        if(maxBytes <= 0)
+            throw new IllegalArgumentException("Cache size must be positive, not " + maxBytes);
+        this.maxBytes = maxBytes;
+        this.eviction = Objects.requireNonNull(eviction);
+        this.useFloats = useFloats;
+    }
+
+    /**
+     * Returns the number of bytes that a single row of the given length will
+     * use in a cache.
+     *
+     * @param rowLength the number of values in the row
+     * @param useFloats {@code true} if the cache stores floats, {@code false}
+     * for doubles
+     * @return the number of bytes used by such a row
+     */
+    public static long bytesPerRow(int rowLength, boolean useFloats)
+    {
+        return (long) rowLength*(useFloats ? Float.BYTES : Double.BYTES) + ROW_OVERHEAD;
+    }
+
+    /**
+     * Returns the portion of this cache that holds the rows of the kernel
+     * matrix for the given data and kernel.
+     *
+     * @param source the object that the training vectors came from, usually
+     * the data set. Compared by identity.
+     * @param kernel the kernel being used. A copy of its current parameter
+     * values is used to identify the rows.
+     * @param rowLength the number of values in each row of the kernel matrix
+     * @return the partition of the cache for the given data and kernel
+     */
+    public Partition getPartition(Object source, KernelTrick kernel, int rowLength)
+    {
+        return new Partition(sourceID(source), kernelKey(kernel), rowLength);
+    }
+
+    /**
+     * Creates a string that identifies the kernel by its type and parameter
+     * values.
+     */
+    private static String kernelKey(KernelTrick kernel)
+    {
+        StringBuilder sb = new StringBuilder(kernel.getClass().getName());
+        for(Parameter param : kernel.getParameters())
+            sb.append(';').append(param.getASCIIName()).append('=').append(param.getValueString());
+        return sb.toString();
+    }
+
+    private synchronized int sourceID(Object source)
+    {
+        purgeDeadSources();
+        for(SourceRef ref : sources)
+            if(ref.get() == source)
+                return ref.id;
+        SourceRef ref = new SourceRef(source, nextSourceID++, deadSources);
+        sources.add(ref);
+        return ref.id;
+    }
+
+    /**
+     * Removes the rows of any data source that has been garbage collected,
+     * as they can never be requested again.
+     */
+    private synchronized void purgeDeadSources()
+    {
+        Reference<?> dead;
+        while((dead = deadSources.poll()) != null)
+        {
+            int id = ((SourceRef) dead).id;
+            sources.remove(dead);
+            Iterator<Map.Entry<RowKey, Row>> iter = rows.entrySet().iterator();
+            while(iter.hasNext())
+            {
+                Map.Entry<RowKey, Row> entry = iter.next();
+                if(entry.getKey().source == id)
+                {
+                    iter.remove();
+                    usedBytes.addAndGet(-entry.getValue().bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes rows until the cache is within its memory budget.
+     *
+     * @param keep a row that should not be removed
+     */
+    private synchronized void evictIfNeeded(RowKey keep)
+    {
+        purgeDeadSources();
+        while(usedBytes.get() > maxBytes)
+        {
+            RowKey victimKey = null;
+            long victimPriority = Long.MAX_VALUE;
+            for(Map.Entry<RowKey, Row> entry : rows.entrySet())
+            {
+                if(entry.getKey().equals(keep))
+                    continue;
+                Row r = entry.getValue();
+                long p = eviction.priority(r.lastAccess, r.accessCount, r.active);
+                if(victimKey == null || p < victimPriority)
+                {
+                    victimKey = entry.getKey();
+                    victimPriority = p;
+                }
+            }
+            if(victimKey == null)
+                return;
+            Row victim = rows.remove(victimKey);
+            if(victim != null)
+            {
+                usedBytes.addAndGet(-victim.bytes);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes all rows from the cache. The statistics are not reset.
+     */
+    public synchronized void clear()
+    {
+        rows.clear();
+        usedBytes.set(0);
+    }
+
+    /**
+     * Resets the hit, miss, and eviction counts to zero.
+     */
+    public void resetStatistics()
+    {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     *
+     * @return the number of times a requested row was found in the cache
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     *
+     * @return the number of times a requested row was not in the cache
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     *
+     * @return the number of rows that have been removed to make space for
+     * others
+     */
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    /**
+     *
+     * @return the approximate number of bytes currently used by the cache
+     */
+    public long getUsedBytes()
+    {
+        return usedBytes.get();
+    }
+
+    /**
+     *
+     * @return the maximum number of bytes this cache will use
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     *
+     * @return the number of rows currently stored in the cache
+     */
+    public int getNumRows()
+    {
+        return rows.size();
+    }
+
+    /**
+     *
+     * @return the policy used to select rows to evict
+     */
+    public EvictionPolicy getEvictionPolicy()
+    {
+        return eviction;
+    }
+
+    /**
+     *
+     * @return {@code true} if rows are stored as floats, {@code false} if
+     * stored as doubles
+     */
+    public boolean isUsingFloats()
+    {
+        return useFloats;
+    }
+
+    /**
+     * The portion of the cache that holds the rows of one kernel matrix.
+     */
+    public class Partition
+    {
+        private final int source;
+        private final String kernel;
+        private final int rowLength;
+
+        private Partition(int source, String kernel, int rowLength)
+        {
+            this.source = source;
+            this.kernel = kernel;
+            this.rowLength = rowLength;
+        }
+
+        /**
+         * Returns the given row of the kernel matrix, creating a new row if it
+         * is not already in the cache. A newly created row has every value set
+         * to {@link Double#NaN}, and values are expected to be filled in
+         * lazily as they are computed. Rows that do not fit into the cache at
+         * all will still be returned, but will not be stored.
+         *
+         * @param r the index of the row
+         * @return the row of the kernel matrix
+         */
+        public Row getRow(int r)
+        {
+            RowKey key = new RowKey(source, kernel, r);
+            Row row = rows.get(key);
+            if(row != null)
+            {
+                hits.incrementAndGet();
+                row.touch(clock.incrementAndGet());
+                return row;
+            }
+
+            misses.incrementAndGet();
+            row = useFloats ? new FloatRow(rowLength) : new DoubleRow(rowLength);
+            row.bytes = bytesPerRow(rowLength, useFloats);
+            row.touch(clock.incrementAndGet());
+            if(row.bytes > maxBytes)//can't store it
+                return row;
+
+            Row prev = rows.putIfAbsent(key, row);
+            if(prev != null)//another thread beat us to it
+                return prev;
+            if(usedBytes.addAndGet(row.bytes) > maxBytes)
+                evictIfNeeded(key);
+            return row;
+        }
+
+        /**
+         * Marks whether or not a row is in the current working set of the
+         * learner. This is used by {@link StandardEviction#WORKING_SET}, and
+         * has no effect if the row is not in the cache.
+         *
+         * @param r the index of the row
+         * @param active {@code true} if the row is in the working set
+         */
+        public void setActive(int r, boolean active)
+        {
+            Row row = rows.get(new RowKey(source, kernel, r));
+            if(row != null)
+                row.active = active;
+        }
+
+        /**
+         *
+         * @return the number of values in each row
+         */
+        public int getRowLength()
+        {
+            return rowLength;
+        }
+    }
+
+    /**
+     * A row of the kernel matrix. Values that have not yet been computed are
+     * {@link Double#NaN}.
+     */
+    public static abstract class Row
+    {
+        private volatile long lastAccess;
+        private volatile long accessCount;
+        private volatile boolean active = true;
+        private long bytes;
+
+        private void touch(long time)
+        {
+            lastAccess = time;
+            accessCount++;//races only make the count approximate
+        }
+
+        /**
+         * Returns a value of the row
+         *
+         * @param j the column index
+         * @return the kernel value, or {@link Double#NaN} if not yet computed
+         */
+        abstract public double get(int j);
+
+        /**
+         * Sets a value of the row
+         *
+         * @param j the column index
+         * @param value the kernel value
+         */
+        abstract public void set(int j, double value);
+    }
+
+    private static class DoubleRow extends Row
+    {
+        private final double[] vals;
+
+        public DoubleRow(int length)
+        {
+            vals = new double[length];
+            Arrays.fill(vals, Double.NaN);
+        }
+
+        @Override
+        public double get(int j)
+        {
+            return vals[j];
+        }
+
+        @Override
+        public void set(int j, double value)
+        {
+            vals[j] = value;
+        }
+    }
+
+    private static class FloatRow extends Row
+    {
+        private final float[] vals;
+
+        public FloatRow(int length)
+        {
+            vals = new float[length];
+            Arrays.fill(vals, Float.NaN);
+        }
+
+        @Override
+        public double get(int j)
+        {
+            return vals[j];
+        }
+
+        @Override
+        public void set(int j, double value)
+        {
+            vals[j] = (float) value;
+        }
+    }
+
+    private static class RowKey
+    {
+        private final int source;
+        private final String kernel;
+        private final int row;
+
+        public RowKey(int source, String kernel, int row)
+        {
+            this.source = source;
+            this.kernel = kernel;
+            this.row = row;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (31*source + kernel.hashCode())*31 + row;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(!(obj instanceof RowKey))
+                return false;
+            RowKey other = (RowKey) obj;
+            return this.source == other.source && this.row == other.row && this.kernel.equals(other.kernel);
+        }
+    }
+
+    private static class SourceRef extends WeakReference<Object>
+    {
+        private final int id;
+
+        public SourceRef(Object referent, int id, ReferenceQueue<Object> q)
+        {
+            super(referent, q);
+            this.id = id;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import jsat.parameters.*;
 import jsat.parameters.Parameter.WarmParameter;
 import jsat.regression.*;
 import jsat.utils.ListUtils;
+import jsat.utils.concurrent.ParallelUtils;
 
 /**
  * An implementation of SVMs using Platt's Sequential Minimum Optimization (SMO) 
@@ -33,6 +34,11 @@ import jsat.utils.ListUtils;
  starts should be from algorithms that will have a similar solution to
  PlattSMO.
  <br><br>
+ * By default, the first order working set selection of Keerthi et al. is
+ * used. A {@link #setSecondOrder(boolean) second order} solver in the style of
+ * LIBSVM may be used instead, which usually needs far fewer iterations, can
+ * shrink the problem as it is solved, and can make use of multiple cores.
+ * <br><br>
  * See:<br>
  * <ul>
  * <li>Platt, J. C. (1998). <i>Sequential Minimal Optimization: A Fast Algorithm
@@ -52,6 +58,12 @@ import jsat.utils.ListUtils;
  * . <i>Improvements to the SMO algorithm for SVM regression</i>. IEEE 
  * transactions on neural networks / a publication of the IEEE Neural Networks 
  * Council, 11(5), 1188–93. doi:10.1109/72.870050</li>
+ * <li>Fan, R.-E., Chen, P.-H.,&amp;Lin, C.-J. (2005). <i>Working Set
+ * Selection Using Second Order Information for Training Support Vector
+ * Machines</i>. Journal of Machine Learning Research, 6, 1889–1918.</li>
+ * <li>Chang, C.-C.,&amp;Lin, C.-J. (2011). <i>LIBSVM: A library for support
+ * vector machines</i>. ACM Transactions on Intelligent Systems and
+ * Technology, 2(3), 27:1–27:27. doi:10.1145/1961189.1961199</li>
  * </ul>
  * 
  * @author Edward Raff
@@ -71,6 +83,8 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
 
     private int maxIterations = 10000;
     private boolean modificationOne = true;
+    private boolean secondOrder = false;
+    private boolean shrinking = true;
     
     protected double[] fcache;
     
@@ -174,25 +188,63 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
     @Override
     public void train(ClassificationDataSet dataSet, Classifier warmSolution, boolean parallel)
     {
-        train(dataSet, warmSolution);
+        if(secondOrder)
+            trainC_secondOrder(dataSet, parallel);
+        else
+            trainC_warm_and_normal(dataSet, warmSolution);
     }
     
     @Override
     public void train(ClassificationDataSet dataSet, boolean parallel)
     {
-        train(dataSet);
+        train(dataSet, null, parallel);
     }
 
     @Override
     public void train(ClassificationDataSet dataSet, Classifier warmSolution)
     {
-        trainC_warm_and_normal(dataSet, warmSolution);
+        train(dataSet, warmSolution, false);
     }
 
     @Override
     public void train(ClassificationDataSet dataSet)
     {
-        trainC_warm_and_normal(dataSet, null);
+        train(dataSet, null, false);
+    }
+    
+    private void trainC_secondOrder(ClassificationDataSet dataSet, boolean parallel)
+    {
+        if(dataSet.getClassSize() != 2)
+            throw new FailedToFitException("SVM does not support non binary decisions");
+        
+        final int N = dataSet.size();
+        vecs = new ArrayList<Vec>(N);
+        label = new double[N];
+        double[] p = new double[N];
+        double[] C_i = new double[N];
+        for(int i = 0; i < N; i++)
+        {
+            vecs.add(dataSet.getDataPoint(i).getNumericalValues());
+            label[i] = dataSet.getDataPointCategory(i) == 0 ? -1 : 1;
+            p[i] = -1;
+            C_i[i] = C*dataSet.getWeight(i);
+        }
+        
+        setCacheSource(dataSet);
+        setCacheMode(getCacheMode());//Initiates the cahce
+        
+        alphas = new double[N];
+        ExecutorService threadPool = ParallelUtils.getNewExecutor(parallel);
+        b = new SecondOrderSolver(N, label, p, C_i, alphas, parallel, threadPool).solve();
+        threadPool.shutdownNow();
+        
+        //collapse label into signed alphas
+        for(int i = 0; i < label.length; i++)
+            alphas[i] *= label[i];
+        label = null;
+        
+        setCacheMode(null);
+        setAlphas(alphas);
     }
     
     private void trainC_warm_and_normal(ClassificationDataSet dataSet, Classifier warmSolution)
@@ -237,6 +289,7 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
         if(allWeightsAreOne)//if everything == 1, don't waste the memory storying it
             weights = new ConstantVector(1.0, N);
         
+        setCacheSource(dataSet);
         setCacheMode(getCacheMode());//Initiates the cahce
         
         //initialize alphas array to all zero
@@ -428,6 +481,7 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
     private void updateSet(int i1, double a1, double C )
     {
         I0[i1] = a1 > 0 && a1 < C;
+        setRowActive(i1, I0[i1]);
     }
     
     private double fuzzyClamp(double val, double max)
@@ -458,6 +512,7 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
         I1[i] = a_i == 0 && as_i == 0;
         I2[i] = a_i == 0 && as_i == C;
         I3[i] = a_i == C && as_i == 0;
+        setRowActive(i, I0[i]);
     }
 
     /**
@@ -1070,6 +1125,538 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
         return sum;
     }
 
+    /**
+     * The second order SMO solver of Fan et al., with the shrinking and
+     * gradient reconstruction of LIBSVM. It solves the dual problem <br>
+     * min<sub>&alpha;</sub> &frac12; &alpha;<sup>T</sup> Q &alpha; +
+     * p<sup>T</sup> &alpha; <br>
+     * s.t. y<sup>T</sup> &alpha; = 0, 0 &le; &alpha;<sub>i</sub> &le;
+     * C<sub>i</sub> <br>
+     * where Q<sub>ij</sub> = y<sub>i</sub> y<sub>j</sub> k(x<sub>i</sub>,
+     * x<sub>j</sub>), y<sub>i</sub> &isin; {-1, 1}, and the i'th variable
+     * belongs to the (i mod N)'th training vector. This lets &epsilon;-SVR
+     * use two variables for each vector. <br>
+     * Kernel rows are indexed by vector, and only the values needed by the
+     * active variables are computed. 
+     */
+    private class SecondOrderSolver
+    {
+        /**
+         * Used in place of a non positive curvature
+         */
+        private static final double TAU = 1e-12;
+        /**
+         * Ranges with fewer values than this are done by the calling thread
+         */
+        private static final int MIN_PARALLEL_WORK = 256;
+        
+        /**
+         * The number of training vectors
+         */
+        private final int N;
+        /**
+         * The number of variables, a multiple of N
+         */
+        private final int l;
+        private final double[] y;
+        private final double[] p;
+        private final double[] C_i;
+        private final double[] alpha;
+        /**
+         * Gradient of the objective, only current for the active variables
+         */
+        private final double[] G;
+        /**
+         * G_bar<sub>i</sub> = &sum;<sub>j : &alpha;<sub>j</sub> = C<sub>j</sub></sub>
+         * C<sub>j</sub> Q<sub>ij</sub>, used to reconstruct the gradient
+         */
+        private final double[] G_bar;
+        /**
+         * k(x<sub>i</sub>, x<sub>i</sub>), by vector
+         */
+        private final double[] QD;
+        /**
+         * A permutation of the variables, where the first {@link #activeSize}
+         * have not been shrunk
+         */
+        private final int[] active;
+        private int activeSize;
+        /**
+         * The vectors used by at least one active variable
+         */
+        private int[] activeVecs;
+        private int activeVecsSize;
+        private final int[] allVecs;
+        /**
+         * Kernel rows for the working set, by vector
+         */
+        private final double[] row_i, row_j;
+        private boolean unshrink = false;
+        private int ws_i, ws_j;
+        
+        private final boolean parallel;
+        private final ExecutorService threadPool;
+
+        public SecondOrderSolver(int N, double[] y, double[] p, double[] C_i, double[] alpha, boolean parallel, ExecutorService threadPool)
+        {
+            this.N = N;
+            this.l = y.length;
+            this.y = y;
+            this.p = p;
+            this.C_i = C_i;
+            this.alpha = alpha;
+            this.parallel = parallel;
+            this.threadPool = threadPool;
+            
+            //all alphas start at zero, so the gradient is just p
+            G = Arrays.copyOf(p, l);
+            G_bar = new double[l];
+            active = new int[l];
+            for(int i = 0; i < l; i++)
+                active[i] = i;
+            activeSize = l;
+            allVecs = Arrays.copyOf(active, N);
+            activeVecs = allVecs;
+            activeVecsSize = N;
+            row_i = new double[N];
+            row_j = new double[N];
+            
+            QD = new double[N];
+            ParallelUtils.run(parallel && N >= MIN_PARALLEL_WORK, N, (start, end)->
+            {
+                for(int i = start; i < end; i++)
+                    QD[i] = kEval(i, i);
+            }, threadPool);
+        }
+        
+        private int vec(int i)
+        {
+            return i < N ? i : i % N;
+        }
+        
+        private boolean isUpper(int i)
+        {
+            return alpha[i] >= C_i[i];
+        }
+        
+        private boolean isLower(int i)
+        {
+            return alpha[i] <= 0;
+        }
+        
+        private void fillRow(int v, double[] row, int[] indices, int count)
+        {
+            kEvalRow(v, indices, count, row, parallel && count >= MIN_PARALLEL_WORK, threadPool);
+        }
+        
+        /**
+         * Runs the solver to completion
+         * @return the value of rho, the negated bias term
+         */
+        public double solve()
+        {
+            final long maxIter = Math.max(maxIterations, 100L*l);
+            int counter = Math.min(l, 1000)+1;
+            for(long iter = 0; iter < maxIter; iter++)
+            {
+                if(--counter == 0)
+                {
+                    counter = Math.min(l, 1000);
+                    if(shrinking)
+                        doShrinking();
+                }
+                
+                if(!selectWorkingSet())
+                {
+                    //make sure the whole problem is optimal, not just the active part
+                    reconstructGradient();
+                    if(!selectWorkingSet())
+                        break;
+                    counter = 1;//shrink again on the next iteration
+                }
+                
+                takeStep(ws_i, ws_j);
+            }
+            
+            reconstructGradient();
+            return calculateRho();
+        }
+        
+        /**
+         * Selects the working set using second order information, storing it
+         * in {@link #ws_i} and {@link #ws_j}. The kernel row of ws_i is left in
+         * {@link #row_i}.
+         *
+         * @return {@code false} if the active variables are already optimal
+         */
+        private boolean selectWorkingSet()
+        {
+            double Gmax = Double.NEGATIVE_INFINITY;
+            int i = -1;
+            for(int pos = 0; pos < activeSize; pos++)
+            {
+                final int t = active[pos];
+                if(y[t] == 1)
+                {
+                    if(!isUpper(t) && -G[t] >= Gmax)
+                    {
+                        Gmax = -G[t];
+                        i = t;
+                    }
+                }
+                else if(!isLower(t) && G[t] >= Gmax)
+                {
+                    Gmax = G[t];
+                    i = t;
+                }
+            }
+            if(i < 0)
+                return false;
+            
+            final int v_i = vec(i);
+            fillRow(v_i, row_i, activeVecs, activeVecsSize);
+            final double QD_i = QD[v_i];
+            
+            double Gmax2 = Double.NEGATIVE_INFINITY;
+            double objDiffMin = Double.POSITIVE_INFINITY;
+            int j = -1;
+            for(int pos = 0; pos < activeSize; pos++)
+            {
+                final int t = active[pos];
+                final double gradDiff;
+                if(y[t] == 1)
+                {
+                    if(isLower(t))
+                        continue;
+                    gradDiff = Gmax + G[t];
+                    Gmax2 = max(Gmax2, G[t]);
+                }
+                else
+                {
+                    if(isUpper(t))
+                        continue;
+                    gradDiff = Gmax - G[t];
+                    Gmax2 = max(Gmax2, -G[t]);
+                }
+                
+                if(gradDiff > 0)
+                {
+                    final int v_t = vec(t);
+                    //the labels cancel out for both cases
+                    double quad = QD_i + QD[v_t] - 2*row_i[v_t];
+                    if(quad <= 0)
+                        quad = TAU;
+                    final double objDiff = -gradDiff*gradDiff/quad;
+                    if(objDiff <= objDiffMin)
+                    {
+                        j = t;
+                        objDiffMin = objDiff;
+                    }
+                }
+            }
+            
+            if(Gmax + Gmax2 < 2*tolerance || j < 0)
+                return false;
+            ws_i = i;
+            ws_j = j;
+            return true;
+        }
+        
+        private void takeStep(final int i, final int j)
+        {
+            final int v_i = vec(i), v_j = vec(j);
+            fillRow(v_j, row_j, activeVecs, activeVecsSize);
+            final double C1 = C_i[i], C2 = C_i[j];
+            final double alpha1 = alpha[i], alpha2 = alpha[j];
+            final boolean wasUpper1 = isUpper(i), wasUpper2 = isUpper(j);
+            
+            double quad = QD[v_i] + QD[v_j] - 2*row_i[v_j];
+            if(quad <= 0)
+                quad = TAU;
+            
+            double a1 = alpha1, a2 = alpha2;
+            if(y[i] != y[j])
+            {
+                final double delta = (-G[i]-G[j])/quad;
+                final double diff = a1 - a2;
+                a1 += delta;
+                a2 += delta;
+                
+                if(diff > 0)
+                {
+                    if(a2 < 0)
+                    {
+                        a2 = 0;
+                        a1 = diff;
+                    }
+                }
+                else if(a1 < 0)
+                {
+                    a1 = 0;
+                    a2 = -diff;
+                }
+                
+                if(diff > C1 - C2)
+                {
+                    if(a1 > C1)
+                    {
+                        a1 = C1;
+                        a2 = C1 - diff;
+                    }
+                }
+                else if(a2 > C2)
+                {
+                    a2 = C2;
+                    a1 = C2 + diff;
+                }
+            }
+            else
+            {
+                final double delta = (G[i]-G[j])/quad;
+                final double sum = a1 + a2;
+                a1 -= delta;
+                a2 += delta;
+                
+                if(sum > C1)
+                {
+                    if(a1 > C1)
+                    {
+                        a1 = C1;
+                        a2 = sum - C1;
+                    }
+                }
+                else if(a2 < 0)
+                {
+                    a2 = 0;
+                    a1 = sum;
+                }
+                
+                if(sum > C2)
+                {
+                    if(a2 > C2)
+                    {
+                        a2 = C2;
+                        a1 = sum - C2;
+                    }
+                }
+                else if(a1 < 0)
+                {
+                    a1 = 0;
+                    a2 = sum;
+                }
+            }
+            alpha[i] = a1;
+            alpha[j] = a2;
+            
+            //update the gradient of the active variables
+            final double delta1 = y[i]*(a1-alpha1);
+            final double delta2 = y[j]*(a2-alpha2);
+            ParallelUtils.run(parallel && activeSize >= MIN_PARALLEL_WORK, activeSize, (start, end)->
+            {
+                for(int pos = start; pos < end; pos++)
+                {
+                    final int t = active[pos];
+                    final int v_t = vec(t);
+                    G[t] += y[t]*(delta1*row_i[v_t] + delta2*row_j[v_t]);
+                }
+            }, threadPool);
+            
+            //update G_bar for every variable if a bound changed
+            updateG_bar(i, v_i, wasUpper1, row_i);
+            updateG_bar(j, v_j, wasUpper2, row_j);
+        }
+        
+        private void updateG_bar(final int i, final int v_i, final boolean wasUpper, final double[] row)
+        {
+            if(wasUpper == isUpper(i))
+                return;
+            fillRow(v_i, row, allVecs, N);
+            final double c = (wasUpper ? -C_i[i] : C_i[i])*y[i];
+            ParallelUtils.run(parallel && l >= MIN_PARALLEL_WORK, l, (start, end)->
+            {
+                for(int t = start; t < end; t++)
+                    G_bar[t] += c*y[t]*row[vec(t)];
+            }, threadPool);
+        }
+        
+        /**
+         * Removes variables from the active set that are at a bound and are
+         * unlikely to move.
+         */
+        private void doShrinking()
+        {
+            double Gmax1 = Double.NEGATIVE_INFINITY;//max { -y_i G_i | i in I_up }
+            double Gmax2 = Double.NEGATIVE_INFINITY;//max { y_i G_i | i in I_low }
+            for(int pos = 0; pos < activeSize; pos++)
+            {
+                final int t = active[pos];
+                if(y[t] == 1)
+                {
+                    if(!isUpper(t))
+                        Gmax1 = max(Gmax1, -G[t]);
+                    if(!isLower(t))
+                        Gmax2 = max(Gmax2, G[t]);
+                }
+                else
+                {
+                    if(!isUpper(t))
+                        Gmax2 = max(Gmax2, -G[t]);
+                    if(!isLower(t))
+                        Gmax1 = max(Gmax1, G[t]);
+                }
+            }
+            
+            //close to the solution, unshrink once so that the final shrinking is done on an accurate gradient
+            if(!unshrink && Gmax1 + Gmax2 <= 2*tolerance*10)
+            {
+                unshrink = true;
+                reconstructGradient();
+            }
+            
+            boolean shrunk = false;
+            for(int pos = 0; pos < activeSize; )
+            {
+                final int t = active[pos];
+                if(beShrunk(t, Gmax1, Gmax2))
+                {
+                    active[pos] = active[--activeSize];
+                    active[activeSize] = t;
+                    setRowActive(vec(t), false);
+                    shrunk = true;
+                }
+                else
+                    pos++;
+            }
+            if(shrunk)
+                updateActiveVecs();
+        }
+        
+        private boolean beShrunk(int t, double Gmax1, double Gmax2)
+        {
+            if(isUpper(t))
+            {
+                if(y[t] == 1)
+                    return -G[t] > Gmax1;
+                else
+                    return -G[t] > Gmax2;
+            }
+            else if(isLower(t))
+            {
+                if(y[t] == 1)
+                    return G[t] > Gmax2;
+                else
+                    return G[t] > Gmax1;
+            }
+            return false;
+        }
+        
+        /**
+         * Recomputes the gradient of the shrunk variables and makes every
+         * variable active again.
+         */
+        private void reconstructGradient()
+        {
+            if(activeSize == l)
+                return;
+            
+            //the vectors used by the inactive variables
+            boolean[] used = new boolean[N];
+            int[] inactiveVecs = new int[N];
+            int inactiveVecsSize = 0;
+            for(int pos = activeSize; pos < l; pos++)
+            {
+                final int t = active[pos];
+                G[t] = G_bar[t] + p[t];
+                if(!used[vec(t)])
+                {
+                    used[vec(t)] = true;
+                    inactiveVecs[inactiveVecsSize++] = vec(t);
+                }
+            }
+            
+            for(int pos = 0; pos < activeSize; pos++)
+            {
+                final int j = active[pos];
+                if(isLower(j) || isUpper(j))//only free variables are missing from G_bar
+                    continue;
+                fillRow(vec(j), row_j, inactiveVecs, inactiveVecsSize);
+                final double c = alpha[j]*y[j];
+                for(int pos2 = activeSize; pos2 < l; pos2++)
+                {
+                    final int t = active[pos2];
+                    G[t] += c*y[t]*row_j[vec(t)];
+                }
+            }
+            
+            for(int pos = activeSize; pos < l; pos++)
+                setRowActive(vec(active[pos]), true);
+            activeSize = l;
+            updateActiveVecs();
+        }
+        
+        private void updateActiveVecs()
+        {
+            if(activeSize == l)
+            {
+                activeVecs = allVecs;
+                activeVecsSize = N;
+            }
+            else if(l == N)//one variable per vector
+            {
+                activeVecs = active;
+                activeVecsSize = activeSize;
+            }
+            else
+            {
+                boolean[] used = new boolean[N];
+                activeVecs = new int[N];
+                activeVecsSize = 0;
+                for(int pos = 0; pos < activeSize; pos++)
+                {
+                    final int v = vec(active[pos]);
+                    if(!used[v])
+                    {
+                        used[v] = true;
+                        activeVecs[activeVecsSize++] = v;
+                    }
+                }
+            }
+        }
+        
+        private double calculateRho()
+        {
+            int nrFree = 0;
+            double ub = Double.POSITIVE_INFINITY, lb = Double.NEGATIVE_INFINITY, sumFree = 0;
+            for(int t = 0; t < l; t++)
+            {
+                final double yG = y[t]*G[t];
+                if(isUpper(t))
+                {
+                    if(y[t] == -1)
+                        ub = min(ub, yG);
+                    else
+                        lb = max(lb, yG);
+                }
+                else if(isLower(t))
+                {
+                    if(y[t] == 1)
+                        ub = min(ub, yG);
+                    else
+                        lb = max(lb, yG);
+                }
+                else
+                {
+                    nrFree++;
+                    sumFree += yG;
+                }
+            }
+            
+            if(nrFree > 0)
+                return sumFree/nrFree;
+            return (ub+lb)/2;
+        }
+    }
+
     @Override
     public PlattSMO clone()
     {
@@ -1086,11 +1673,15 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
         copy.eps = this.eps;
         copy.epsilon = this.epsilon;
         copy.maxIterations = this.maxIterations;
+        copy.modificationOne = this.modificationOne;
+        copy.secondOrder = this.secondOrder;
+        copy.shrinking = this.shrinking;
         if(this.label != null)
             copy.label = Arrays.copyOf(this.label, this.label.length);
         copy.tolerance = this.tolerance;
         if(this.vecs != null)
             copy.vecs = new ArrayList<Vec>(this.vecs);
+        copy.setSharedCache(this.getSharedCache());
         copy.setCacheMode(this.getCacheMode());
         copy.setCacheValue(this.getCacheValue());
         
@@ -1168,6 +1759,61 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
         return modificationOne;
     }
 
+    /**
+     * Sets whether or not the second order solver should be used. This solver
+     * selects the pair of variables to update that gives the greatest
+     * decrease of the objective, rather than the pair that most violates the
+     * optimality conditions, and usually needs far fewer iterations. When
+     * training in parallel, the kernel rows and gradient updates are split
+     * across cores. <br>
+     * When using the second order solver, the
+     * {@link #setMaxIterations(int) maximum number of iterations} is the
+     * number of variable pairs to update, and will be increased to at least
+     * 100 times the number of data points. The
+     * {@link #setModificationOne(boolean) modification} in use is ignored,
+     * and warm starts are not used.
+     *
+     * @param secondOrder {@code true} to use the second order solver,
+     * {@code false} to use the first order solver of Keerthi et al.
+     */
+    public void setSecondOrder(boolean secondOrder)
+    {
+        this.secondOrder = secondOrder;
+    }
+
+    /**
+     * Returns {@code true} if the second order solver is in use
+     * @return {@code true} if the second order solver is in use
+     */
+    public boolean isSecondOrder()
+    {
+        return secondOrder;
+    }
+
+    /**
+     * Sets whether or not the second order solver will shrink the problem
+     * while training. Shrinking temporarily removes data points that are at a
+     * bound of the solution and are unlikely to change, which avoids kernel
+     * evaluations against them. The gradient is reconstructed before
+     * finishing, so the solution does not change. This has no effect unless
+     * {@link #setSecondOrder(boolean) the second order solver} is in use.
+     *
+     * @param shrinking {@code true} to shrink the problem while training
+     */
+    public void setShrinking(boolean shrinking)
+    {
+        this.shrinking = shrinking;
+    }
+
+    /**
+     * Returns {@code true} if shrinking is used by the second order solver
+     * @return {@code true} if shrinking is used by the second order solver
+     */
+    public boolean isShrinking()
+    {
+        return shrinking;
+    }
+
     /**
      * Sets the tolerance for the solution. Higher values converge to worse 
      * solutions, but do so faster
@@ -1196,7 +1842,7 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
     @Override
     public void train(RegressionDataSet dataSet, boolean parallel)
     {
-        train(dataSet);
+        train(dataSet, null, parallel);
     }
 
     /**
@@ -1229,17 +1875,69 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
     @Override
     public void train(RegressionDataSet dataSet, Regressor warmSolution, boolean parallel)
     {
-        train(dataSet, warmSolution);
+        if(secondOrder)
+            trainR_secondOrder(dataSet, parallel);
+        else
+            trainR_warm_and_normal(dataSet, warmSolution);
     }
     
     @Override
     public void train(RegressionDataSet dataSet)
     {
-        train(dataSet, (Regressor)null);
+        train(dataSet, null, false);
     }
 
     @Override
     public void train(RegressionDataSet dataSet, Regressor warmSolution)
+    {
+        train(dataSet, warmSolution, false);
+    }
+    
+    private void trainR_secondOrder(RegressionDataSet dataSet, boolean parallel)
+    {
+        final int N = dataSet.size();
+        vecs = new ArrayList<Vec>(N);
+        //variable i is alpha_i, and variable N+i is alpha*_i
+        double[] y = new double[2*N];
+        double[] p = new double[2*N];
+        double[] C_i = new double[2*N];
+        for(int i = 0; i < N; i++)
+        {
+            vecs.add(dataSet.getDataPoint(i).getNumericalValues());
+            final double z_i = dataSet.getTargetValue(i);
+            y[i] = 1;
+            y[N+i] = -1;
+            p[i] = epsilon - z_i;
+            p[N+i] = epsilon + z_i;
+            C_i[i] = C_i[N+i] = C*dataSet.getWeight(i);
+        }
+        
+        setCacheSource(dataSet);
+        setCacheMode(getCacheMode());//Initiates the cahce
+        
+        double[] alpha2 = new double[2*N];
+        ExecutorService threadPool = ParallelUtils.getNewExecutor(parallel);
+        b = -new SecondOrderSolver(N, y, p, C_i, alpha2, parallel, threadPool).solve();
+        threadPool.shutdownNow();
+        
+        //SVMs are usualy sparse, we dont need to keep all the original vectors!
+        alphas = new double[N];
+        int supportVectorCount = 0;
+        for(int i = 0; i < N; i++)
+            if(alpha2[i] != alpha2[N+i])//Its a support vector
+            {
+                ListUtils.swap(vecs, supportVectorCount, i);
+                alphas[supportVectorCount++] = alpha2[i]-alpha2[N+i];
+            }
+
+        vecs = new ArrayList<Vec>(vecs.subList(0, supportVectorCount));
+        alphas = Arrays.copyOfRange(alphas, 0, supportVectorCount);
+        
+        setCacheMode(null);
+        setAlphas(alphas);
+    }
+
+    private void trainR_warm_and_normal(RegressionDataSet dataSet, Regressor warmSolution)
     {
         final int N = dataSet.size();
         vecs = new ArrayList<Vec>(N);
@@ -1260,6 +1958,7 @@ public class PlattSMO extends SupportVectorLearner implements BinaryScoreClassif
         if(allWeightsAreOne)//if everything == 1, don't waste the memory storying it
             weights = new ConstantVector(1.0, N);
         
+        setCacheSource(dataSet);
         setCacheMode(getCacheMode());//Initiates the cahce
         
         I0 = new boolean[N];
@@ -301,6 +301,7 @@ public class SVMnoBias extends SupportVectorLearner implements BinaryScoreClassi
         label = new short[N];
         for(int i = 0; i < N; i++)
             label[i] = (short) (dataSet.getDataPointCategory(i)*2-1);
+        setCacheSource(dataSet);
         setCacheMode(getCacheMode());//Initiates the cahce
         //initialize alphas array to all zero
         alphas = new double[N];//zero is default value
@@ -3,13 +3,14 @@ package jsat.classifiers.svm;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import jsat.distributions.kernels.KernelTrick;
 import jsat.distributions.kernels.LinearKernel;
 import jsat.linear.Vec;
 import jsat.parameters.Parameter.ParameterHolder;
 import jsat.utils.DoubleList;
 import jsat.utils.ListUtils;
-import jsat.utils.concurrent.ConcurrentCacheLRU;
+import jsat.utils.concurrent.ParallelUtils;
 
 /**
  * Base class for support vector style learners. This means that the learner
@@ -19,6 +20,10 @@ import jsat.utils.concurrent.ConcurrentCacheLRU;
  * have to be a Support Vector machine.
  * <br><br>
  * This class provides caching mechanism to transparently provide faster kernel.
+ * When using {@link CacheMode#ROWS}, a {@link KernelRowCache} may be
+ * {@link #setSharedCache(jsat.classifiers.svm.KernelRowCache) shared} between
+ * many learners, so that models trained on the same data with the same kernel
+ * re-use each others kernel rows.
  *
  * @author Edward Raff
  */
@@ -52,26 +57,31 @@ public abstract class SupportVectorLearner implements Serializable
     protected List<Double> accelCache = null;
 
     private double[][] fullCache;
+    /**
+     * The cache to use for {@link CacheMode#ROWS} that may be shared with
+     * other learners. If {@code null}, a private cache will be created
+     */
+    private transient KernelRowCache sharedCache;
+    /**
+     * The object the training vectors came from, used to identify rows in a
+     * shared cache
+     */
+    private transient Object cacheSource;
     /**
      * Stores rows of a cache matrix.
      */
-    private ConcurrentCacheLRU<Integer, double[]> partialCache;
+    private transient KernelRowCache.Partition partialCache;
     /**
      * We allow algorithms that know they are going to access a specific row to
      * hint, and save that row in this object to avoid overhead of hitting the
      * LRU. See {@link #accessingRow(int) }
      */
-    private double[] specific_row_cache_values = null;
+    private KernelRowCache.Row specific_row_cache_values = null;
     /**
      * The row that has been explicitly cached
      */
     private int specific_row_cache_row = -1;
     
-    /**
-     * Holds an available row for inserting into the cache, null if not
-     * available. All values already set to Nan
-     */
-    private double[] availableRow;
     private int cacheConst = 500;
 
     /**
@@ -172,12 +182,10 @@ public abstract class SupportVectorLearner implements Serializable
             for(int i = 0; i < toCopy.fullCache.length; i++)
                 this.fullCache[i] = Arrays.copyOf(toCopy.fullCache[i], toCopy.fullCache[i].length);
         }
+        this.sharedCache = toCopy.sharedCache;
+        this.cacheSource = toCopy.cacheSource;
         if(toCopy.partialCache != null)//TODO handling this better needs to be done
-        {
             setCacheMode(cacheMode);
-            //        if(toCopy.availableRow != null)
-//            this.availableRow = Arrays.copyOf(toCopy.availableRow, toCopy.availableRow.length);
-        }
 
         this.cacheConst = toCopy.cacheConst;
 
@@ -193,11 +201,58 @@ public abstract class SupportVectorLearner implements Serializable
         this.kernel = kernel;
     }
 
+    /**
+     * Sets the kernel row cache to use when in {@link CacheMode#ROWS}. The
+     * same cache object may be given to many learners, including ones
+     * training concurrently, in which case rows computed by one learner will
+     * be re-used by any other learner training on the same data with the same
+     * kernel. The shared cache is kept by {@link #clone() clones} of this
+     * learner, making it easy to share a cache between all the models created
+     * by a parameter search. If {@code null}, each learner will use a private
+     * cache with the number of rows given by {@link #setCacheValue(int) }.
+     *
+     * @param sharedCache the cache to use, or {@code null} to use a private
+     * cache
+     */
+    public void setSharedCache(KernelRowCache sharedCache)
+    {
+        this.sharedCache = sharedCache;
+    }
+
+    /**
+     * Returns the kernel row cache shared by this learner, or {@code null} if
+     * none has been set.
+     *
+     * @return the shared kernel row cache in use, or {@code null}
+     */
+    public KernelRowCache getSharedCache()
+    {
+        return sharedCache;
+    }
+
+    /**
+     * Sets the object that the training vectors were obtained from. This is
+     * used to identify the rows of the kernel matrix in a
+     * {@link #setSharedCache(jsat.classifiers.svm.KernelRowCache) shared cache},
+     * and should be called by training algorithms before initializing the
+     * cache if {@link #vecs} is in the same order as the given source. If not
+     * set, rows can not be shared with other learners.
+     *
+     * @param source the object the training vectors came from, compared by
+     * identity
+     */
+    protected void setCacheSource(Object source)
+    {
+        this.cacheSource = source;
+    }
+
     /**
      * Sets the cache value, which may be interpreted differently by different
      * caching schemes. <br>
      * This is currently only used for {@link CacheMode#ROWS}, where the value
-     * indicates how many rows will be cached.
+     * indicates how many rows will be cached if a
+     * {@link #setSharedCache(jsat.classifiers.svm.KernelRowCache) shared cache}
+     * is not being used.
      *
      * @param cacheValue the cache value to be used
      */
@@ -268,7 +323,9 @@ public abstract class SupportVectorLearner implements Serializable
         {
             fullCache = null;
             partialCache = null;
-            availableRow = null;
+            specific_row_cache_row = -1;
+            specific_row_cache_values = null;
+            cacheSource = null;
             return;
         }
         this.cacheMode = cacheMode;
@@ -296,7 +353,16 @@ public abstract class SupportVectorLearner implements Serializable
         }
         else if(cacheMode == CacheMode.ROWS && vecs != null)
         {
-            partialCache = new ConcurrentCacheLRU<Integer, double[]>(cacheConst);
+            if(sharedCache != null && cacheSource != null)
+                partialCache = sharedCache.getPartition(cacheSource, kernel, N);
+            else
+            {
+                KernelRowCache rowCache = sharedCache;
+                if(rowCache == null)
+                    rowCache = new KernelRowCache(Math.max(cacheConst, 1)*KernelRowCache.bytesPerRow(N, false));
+                //without a known source, the vecs list is the only safe key
+                partialCache = rowCache.getPartition(vecs, kernel, N);
+            }
         }
         else if(cacheMode == CacheMode.NONE)
             fullCache = null;
@@ -369,31 +435,66 @@ public abstract class SupportVectorLearner implements Serializable
         }
         else if(cacheMode == CacheMode.ROWS)
         {
-            double[] cache;
+            KernelRowCache.Row cache;
             if(specific_row_cache_row == a)
                 cache = specific_row_cache_values;
             else
-                cache = partialCache.get(a);
-            if (cache == null)//not present
-            {
-                //make a row
-                cache = new double[vecs.size()];
-                Arrays.fill(cache, Double.NaN);
-
-                double[] cache_missed = partialCache.putIfAbsentAndGet(a, cache);
-                if(cache_missed != null)
-                    cache = cache_missed;
-
-                if (Double.isNaN(cache[b]))
-                    return cache[b] = k(a, b);
-                else
-                    return cache[b];
+                cache = partialCache.getRow(a);
 
+            double val = cache.get(b);
+            if (Double.isNaN(val))//lazy init
+            {
+                val = k(a, b);
+                cache.set(b, val);
             }
+            return val;
         }
         return k(a, b);
     }
-    
+
+    /**
+     * Performs the kernel evaluations between the a'th vector and several
+     * other vectors in the {@link #vecs} array, making use of the cache. The
+     * value of k(a, b) for every b in the first {@code count} values of
+     * {@code indices} is stored in {@code out[b]}. Other values of {@code out}
+     * are not altered.
+     *
+     * @param a the index of the row vector
+     * @param indices the indices of the vectors to evaluate against
+     * @param count the number of values to use from {@code indices}
+     * @param out the array to store the kernel values in, indexed by vector
+     * @param parallel {@code true} if the evaluations should be split across
+     * threads
+     * @param threadPool the source of threads when in parallel
+     */
+    protected void kEvalRow(final int a, final int[] indices, final int count, final double[] out, boolean parallel, ExecutorService threadPool)
+    {
+        final KernelRowCache.Row row;
+        if(cacheMode == CacheMode.ROWS)
+            row = specific_row_cache_row == a ? specific_row_cache_values : partialCache.getRow(a);
+        else
+            row = null;
+        ParallelUtils.run(parallel, count, (start, end)->
+        {
+            for(int t = start; t < end; t++)
+            {
+                final int b = indices[t];
+                if(row == null)
+                {
+                    out[b] = kEval(a, b);
+                    continue;
+                }
+                double val = row.get(b);
+                if (Double.isNaN(val))//lazy init
+                {
+                    val = k(a, b);
+                    row.set(b, val);
+                }
+                out[b] = val;
+            }
+        }, threadPool);
+    }
+
     /**
      * This method allows the caller to hint that they are about to access many
      * kernel values for a specific row. The row may be selected out from the
@@ -417,22 +518,27 @@ public abstract class SupportVectorLearner implements Serializable
         
         if(cacheMode == CacheMode.ROWS)
         {
-            double[] cache = partialCache.get(r);
-            if (cache == null)//not present
-            {
-                //make a row
-                cache = new double[vecs.size()];
-                Arrays.fill(cache, Double.NaN);
-
-                double[] cache_missed = partialCache.putIfAbsentAndGet(r, cache);
-                if(cache_missed != null)
-                    cache = cache_missed;
-            }
-            specific_row_cache_values = cache;
+            specific_row_cache_values = partialCache.getRow(r);
             specific_row_cache_row = r;
         }
     }
 
+    /**
+     * This method allows the caller to hint whether or not a row of the kernel
+     * matrix is in the current working set of the algorithm, which may be used
+     * by the {@link KernelRowCache.EvictionPolicy eviction policy} of the
+     * cache when {@link CacheMode#ROWS} is in use.
+     *
+     * @param r the row of the kernel matrix
+     * @param active {@code true} if the row is likely to be needed again
+     * soon, {@code false} otherwise.
+     */
+    protected void setRowActive(int r, boolean active)
+    {
+        if(cacheMode == CacheMode.ROWS && partialCache != null)
+            partialCache.setActive(r, active);
+    }
+
     /**
      * Internal kernel eval source. Only call directly if you KNOW you will not
      * be re-using the resulting value and intentionally wish to skip the
@@ -0,0 +1,474 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.classifiers.trees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import jsat.DataSet;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.linear.IndexValue;
+import jsat.linear.Vec;
+import jsat.regression.RegressionDataSet;
+import jsat.utils.concurrent.ParallelUtils;
+
+/**
+ * Holds the bin of every numeric feature of every row of a data set, as given
+ * by a {@link NumericBinning}. The codes are computed once, and then shared by
+ * every node of a tree (or every tree of an ensemble) trained on the data set.
+ * Nodes refer to their data by row index with a {@link Subset}, so that
+ * splitting a node only partitions arrays of indices and weights, and never
+ * copies data points.
+ *
+ * @author Edward Raff
+ */
+public class BinnedData
+{
+    /**
+     * Bin code used to mark missing values. A {@link NumericBinning} never
+     * produces more than 255 bins, so this code is never a real bin.
+     */
+    static final byte NAN_BIN = (byte) 0xFF;
+
+    /**
+     * The data set that was binned
+     */
+    final DataSet data;
+    /**
+     * The binning used to create the codes
+     */
+    final NumericBinning binning;
+    /**
+     * The bin code of every row, for every numeric feature. The code of row
+     * <i>i</i> for feature <i>j</i> is {@code codes[j][i]}.
+     */
+    final byte[][] codes;
+    /**
+     * The class label of every row, or {@code null} if the data set is not a
+     * classification data set
+     */
+    final int[] labels;
+    /**
+     * The target value of every row, or {@code null} if the data set is not a
+     * regression data set
+     */
+    final double[] targets;
+
+    /**
+     * Computes the bin codes of every row of the given data set
+     *
+     * @param data the data set to bin
+     * @param binning the binning of the numeric features of the data set
+     * @param parallel {@code true} if multiple threads should be used
+     */
+    public BinnedData(DataSet data, NumericBinning binning, boolean parallel)
+    {
+        this.data = data;
+        this.binning = binning;
+        final int D = data.getNumNumericalVars();
+        final int N = data.size();
+        codes = new byte[D][N];
+        //a sparse vector skips its zeros, so start every row in the bin of zero
+        for(int j = 0; j < D; j++)
+            Arrays.fill(codes[j], (byte) binning.getBin(j, 0.0));
+
+        ParallelUtils.run(parallel, N, (start, end) ->
+        {
+            for(int i = start; i < end; i++)
+            {
+                Vec x = data.getDataPoint(i).getNumericalValues();
+                for(IndexValue iv : x)
+                {
+                    int j = iv.getIndex();
+                    double v = iv.getValue();
+                    codes[j][i] = Double.isNaN(v) ? NAN_BIN : (byte) binning.getBin(j, v);
+                }
+            }
+        });
+
+        if(data instanceof ClassificationDataSet)
+        {
+            labels = new int[N];
+            for(int i = 0; i < N; i++)
+                labels[i] = ((ClassificationDataSet) data).getDataPointCategory(i);
+        }
+        else
+            labels = null;
+        if(data instanceof RegressionDataSet)
+            targets = ((RegressionDataSet) data).getTargetValues().arrayCopy();
+        else
+            targets = null;
+    }
+
+    /**
+     * Copy constructor that shares the codes of the given binned data, but
+     * uses new target values
+     *
+     * @param toCopy the binned data to share the codes of
+     * @param targets the target value of every row
+     */
+    private BinnedData(BinnedData toCopy, double[] targets)
+    {
+        this.data = toCopy.data;
+        this.binning = toCopy.binning;
+        this.codes = toCopy.codes;
+        this.labels = toCopy.labels;
+        this.targets = targets;
+    }
+
+    /**
+     * Returns a view of this binned regression data set that uses the given
+     * target values in place of the ones in the data set. The bin codes are
+     * shared, not recomputed, so models that fit many trees to changing
+     * targets on the same rows, such as boosting, only need to bin once.
+     *
+     * @param targets the target value of every row
+     * @return a view of this binned data with the given target values
+     */
+    public BinnedData withTargets(double[] targets)
+    {
+        if(targets.length != data.size())
+            throw new IllegalArgumentException("Expected " + data.size() + " target values, not " + targets.length);
+        return new BinnedData(this, targets);
+    }
+
+    /**
+     * Returns a subset of every row of the data set, with the weight each row
+     * has in the data set
+     *
+     * @return a subset containing every row
+     */
+    public Subset allRows()
+    {
+        int[] rows = new int[data.size()];
+        double[] weights = new double[rows.length];
+        for(int i = 0; i < rows.length; i++)
+        {
+            rows[i] = i;
+            weights[i] = data.getWeight(i);
+        }
+        return new Subset(rows, weights);
+    }
+
+    /**
+     * Returns a view of the given rows of a data set, with the weights the
+     * rows have in the subset
+     *
+     * @param <T> the type of the data set
+     * @param data the data set that was binned
+     * @param subset the rows of the data set to include
+     * @return a data set backed by the given one, containing only the rows of
+     * the subset
+     */
+    static <T extends DataSet<T>> T toDataSet(T data, Subset subset)
+    {
+        T toRet = data.getSubset(subset.rows);
+        for(int i = 0; i < subset.size(); i++)
+            toRet.setWeight(i, subset.weights[i]);
+        return toRet;
+    }
+
+    /**
+     * Returns the given rows of this binned regression data set as a
+     * regression data set, with the weights the rows have in the subset and
+     * the target values of this binned data
+     *
+     * @param subset the rows of the data set to include
+     * @return a data set containing only the rows of the subset
+     */
+    RegressionDataSet toRegressionDataSet(Subset subset)
+    {
+        RegressionDataSet toRet = toDataSet((RegressionDataSet) data, subset);
+        for(int i = 0; i < subset.size(); i++)
+            toRet.setTargetValue(i, targets[subset.rows[i]]);
+        return toRet;
+    }
+
+    /**
+     * The rows of a {@link BinnedData} that reach one node of a tree, and the
+     * weight of each row at that node. A row may be given a smaller weight than
+     * it has in the data set, such as when a row with a missing value is sent
+     * down every path of a split. A row may also appear more than once.
+     */
+    public static class Subset
+    {
+        /**
+         * The index of each row in the binned data set
+         */
+        final int[] rows;
+        /**
+         * The weight of each row
+         */
+        final double[] weights;
+        /**
+         * The histograms of these rows, or {@code null} if none have been
+         * started
+         */
+        Histograms histograms;
+
+        /**
+         * Creates a new subset
+         *
+         * @param rows the index of each row in the binned data set
+         * @param weights the weight of each row
+         */
+        public Subset(int[] rows, double[] weights)
+        {
+            this.rows = rows;
+            this.weights = weights;
+        }
+
+        /**
+         *
+         * @return the number of rows in this subset
+         */
+        public int size()
+        {
+            return rows.length;
+        }
+    }
+
+    /**
+     * The per bin statistics of the rows of a {@link Subset}, for each numeric
+     * feature. The histogram of a feature is only computed the first time it
+     * is asked for. <br>
+     * The rows of a split are the rows of its parent, so the histogram of one
+     * path of a split is the parent's histogram minus the histograms of the
+     * other paths. When the parent already has the histogram of a feature, and
+     * the other paths have fewer rows than this one, it is found that way
+     * instead of from the rows themselves. Features the parent did not use,
+     * such as when each node picks a random subset of features, are computed
+     * from the rows.<br>
+     * Each bin holds the number of rows in the bin, followed by {@code width}
+     * weighted sums: the weight of each class for classification, or the
+     * weight, weighted target, and weighted squared target for regression. The
+     * bin after the last holds the rows with a missing value.
+     */
+    static class Histograms
+    {
+        final BinnedData binned;
+        final Subset subset;
+        /**
+         * The number of weighted sums kept for each bin
+         */
+        final int width;
+        /**
+         * The value subtracted from every regression target before summing,
+         * which reduces cancellation when finding the squared error. Every
+         * node of a tree uses the same shift, so histograms can be subtracted.
+         */
+        final double shift;
+        private final AtomicReferenceArray<double[]> hists;
+
+        /**
+         * The histograms of the parent node, or {@code null} if these
+         * histograms can only be computed from the rows.
+         */
+        private Histograms parent;
+        /**
+         * The histograms of the other paths of the parent's split
+         */
+        private List<Histograms> siblings;
+        /**
+         * The rows of the parent with a missing value for the split, with the
+         * weight they had in the parent
+         */
+        private Subset removed;
+        /**
+         * The rows with a missing value for the split, with the weight they
+         * were given in each path of the split
+         */
+        private Subset added;
+
+        /**
+         * Creates a new set of histograms that will be computed from the rows
+         * of the given subset
+         *
+         * @param binned the binned data set
+         * @param subset the rows to compute the histograms of
+         * @param width the number of weighted sums to keep for each bin
+         * @param shift the value to subtract from every regression target
+         */
+        Histograms(BinnedData binned, Subset subset, int width, double shift)
+        {
+            this.binned = binned;
+            this.subset = subset;
+            this.width = width;
+            this.shift = shift;
+            this.hists = new AtomicReferenceArray<>(binned.codes.length);
+        }
+
+        /**
+         * Creates the histograms for each path of a split of these rows. The
+         * path with the most rows will find its histograms by subtraction.
+         *
+         * @param splits the rows that follow each path of the split
+         * @param removed the rows with a missing value for the split, with the
+         * weight they have in this subset
+         * @param added the rows with a missing value for the split, with the
+         * weight they were given in each path
+         */
+        void split(List<Subset> splits, Subset removed, Subset added)
+        {
+            int largest = 0;
+            for(int i = 1; i < splits.size(); i++)
+                if(splits.get(i).size() > splits.get(largest).size())
+                    largest = i;
+            List<Histograms> others = new ArrayList<>(splits.size()-1);
+            for(int i = 0; i < splits.size(); i++)
+            {
+                Subset s = splits.get(i);
+                s.histograms = new Histograms(binned, s, width, shift);
+                if(i != largest)
+                    others.add(s.histograms);
+            }
+            Histograms toSubtract = splits.get(largest).histograms;
+            toSubtract.parent = this;
+            toSubtract.siblings = others;
+            toSubtract.removed = removed;
+            toSubtract.added = added;
+        }
+
+        /**
+         * Drops the references to the parent's histograms. Should be called
+         * once the histograms of every feature these rows will split on have
+         * been computed.
+         */
+        void release()
+        {
+            parent = null;
+            siblings = null;
+            removed = added = null;
+        }
+
+        /**
+         * Returns the number of values stored for each bin
+         *
+         * @return the stride between bins of a histogram
+         */
+        int stride()
+        {
+            return width+1;
+        }
+
+        /**
+         * Returns the histogram of the given feature, computing it if needed
+         *
+         * @param feature the numeric feature
+         * @return the histogram of the feature. It must not be altered.
+         */
+        double[] get(int feature)
+        {
+            double[] h = hists.get(feature);
+            if(h != null)
+                return h;
+
+            Histograms p = parent;
+            double[] fromParent = p == null ? null : p.hists.get(feature);
+            if(fromParent != null && cheaperToSubtract(fromParent.length))
+            {
+                h = Arrays.copyOf(fromParent, fromParent.length);
+                for(Histograms sibling : siblings)
+                {
+                    double[] s = sibling.get(feature);
+                    for(int i = 0; i < h.length; i++)
+                        h[i] -= s[i];
+                }
+                add(h, feature, removed, -1);
+                add(h, feature, added, 1);
+                clean(h);
+            }
+            else
+            {
+                h = new double[(binned.binning.getNumBins(feature)+1)*stride()];
+                add(h, feature, subset, 1);
+            }
+
+            //another thread may have computed it at the same time, use the first
+            if(!hists.compareAndSet(feature, null, h))
+                return hists.get(feature);
+            return h;
+        }
+
+        /**
+         * Compares the work of subtracting histograms, which touches the rows
+         * of the other paths and every value of each histogram, against the
+         * work of adding up the rows of this subset.
+         *
+         * @param length the number of values in one histogram
+         * @return {@code true} if finding a histogram from the parent's is
+         * expected to be cheaper than computing it from the rows
+         */
+        private boolean cheaperToSubtract(int length)
+        {
+            long otherRows = removed.size() + added.size();
+            for(Histograms sibling : siblings)
+                otherRows += sibling.subset.size();
+            return otherRows + (long) length*(siblings.size()+1) < subset.size();
+        }
+
+        /**
+         * Adds the given rows to a histogram
+         *
+         * @param h the histogram to add to
+         * @param feature the numeric feature of the histogram
+         * @param rows the rows to add, and their weights
+         * @param sign 1 to add the rows, or -1 to remove them
+         */
+        private void add(double[] h, int feature, Subset rows, double sign)
+        {
+            final byte[] codes = binned.codes[feature];
+            final int missing = binned.binning.getNumBins(feature);
+            final int stride = stride();
+            for(int i = 0; i < rows.size(); i++)
+            {
+                int row = rows.rows[i];
+                double w = sign*rows.weights[i];
+                int pos = (codes[row] == NAN_BIN ? missing : codes[row] & 0xFF)*stride;
+                h[pos] += sign;
+                if(binned.labels != null)
+                    h[pos+1+binned.labels[row]] += w;
+                else
+                {
+                    double y = binned.targets[row]-shift;
+                    h[pos+1] += w;
+                    h[pos+2] += w*y;
+                    h[pos+3] += w*y*y;
+                }
+            }
+        }
+
+        /**
+         * Removes the round off left in a histogram found by subtraction, so
+         * that empty bins are exactly zero and class weights are never
+         * negative
+         *
+         * @param h the histogram to clean
+         */
+        private void clean(double[] h)
+        {
+            final int stride = stride();
+            for(int pos = 0; pos < h.length; pos += stride)
+                if(h[pos] == 0)
+                    Arrays.fill(h, pos, pos+stride, 0.0);
+                else if(binned.labels != null)
+                    for(int k = 1; k < stride; k++)
+                        h[pos+k] = Math.max(h[pos+k], 0.0);
+        }
+    }
+}
@@ -0,0 +1,658 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.classifiers.trees;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import jsat.DataSet;
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.CategoricalResults;
+import jsat.classifiers.DataPoint;
+import jsat.linear.DenseVector;
+import jsat.linear.Vec;
+import jsat.utils.DoubleList;
+import jsat.utils.IntList;
+
+/**
+ * This class holds a compiled, read-only copy of one or more trees described
+ * by {@link TreeNodeVisitor TreeNodeVisitors}. Every node of every tree is
+ * stored in a set of flat arrays (split feature, threshold, children, leaf
+ * values), so prediction is a tight loop over primitive arrays rather than a
+ * walk over a graph of node objects. Predictions are the same as those
+ * obtained from the original trees, including the handling of missing values
+ * and disabled (pruned) paths. <br>
+ * <br>
+ * The batch prediction methods do not allocate any objects per data point, and
+ * write their results into arrays provided by the caller. A compiled model is
+ * immutable and may be used by many threads at once. <br>
+ * <br>
+ * Compiled trees are normally obtained from the {@code compile} method of a
+ * tree based model, such as {@link RandomForest#compile(int, jsat.classifiers.CategoricalData[]) }.
+ * Compilation requires every node to split on at most one feature. Nodes that
+ * split on a numeric feature must report their threshold through
+ * {@link TreeNodeVisitor#getSplitThreshold() }, and the path and local result
+ * of a node must depend only on the value of the feature it splits on.
+ *
+ * @author Edward Raff
+ */
+public class CompiledTrees implements Serializable
+{
+    private static final long serialVersionUID = -3570298318497815474L;
+
+    /**
+     * Controls how the outputs of each tree are combined into one prediction
+     */
+    public enum Combination
+    {
+        /**
+         * The weighted sum of the outputs of each tree is used. For
+         * classification, this is a weighted sum of each tree's class
+         * probabilities.
+         */
+        SUM,
+        /**
+         * Only valid for classification. Each tree casts a vote, with its
+         * weight, for its most likely class. The votes are normalized to sum
+         * to one.
+         */
+        VOTE
+    }
+
+    private final int numNumeric;
+    /**
+     * The number of categories of each categorical feature
+     */
+    private final int[] catCounts;
+    /**
+     * The number of classes for classification, or zero for regression
+     */
+    private final int numClasses;
+    /**
+     * The length of each leaf value, max(1, numClasses)
+     */
+    private final int K;
+    private final Combination combination;
+    private final int[] roots;
+    private final double[] treeWeights;
+
+    /**
+     * The feature each node splits on. Numeric features start from 0 and
+     * categorical features from {@link #numNumeric}. Leaves have a negative
+     * value.
+     */
+    private final int[] feature;
+    /**
+     * The threshold for numeric splits
+     */
+    private final double[] threshold;
+    /**
+     * Index of the first child of a node, the children of a node are
+     * contiguous. For leaves, the offset into {@link #leafValues}
+     */
+    private final int[] firstChild;
+    /**
+     * The number of children of each node
+     */
+    private final int[] numPaths;
+    /**
+     * The node to go to when the split feature is missing, or -1 if the
+     * children should be averaged using {@link #childWeight}.
+     */
+    private final int[] missingNode;
+    /**
+     * The weight given to this node when its parent averages its children
+     * because of a missing value
+     */
+    private final double[] childWeight;
+    /**
+     * For categorical splits, the offset into {@link #catPaths}
+     */
+    private final int[] catOffset;
+    /**
+     * The path taken for each category value of categorical splits, -1
+     * indicates a missing value
+     */
+    private final int[] catPaths;
+    private final double[] leafValues;
+
+    /**
+     * Compiles the given trees.
+     *
+     * @param trees the root nodes of each tree to compile
+     * @param treeWeights the weight to apply to each tree's output
+     * @param combination how to combine the output of each tree
+     * @param numClasses the number of target classes for classification, or
+     * zero if the trees should be compiled for regression
+     * @param numNumeric the number of numeric features the trees were trained
+     * on
+     * @param catInfo the categorical feature information for the data the
+     * trees were trained on
+     */
+    public CompiledTrees(List<TreeNodeVisitor> trees, double[] treeWeights, Combination combination, int numClasses, int numNumeric, CategoricalData[] catInfo)
+    {
+        if(trees.size() != treeWeights.length)
+            throw new IllegalArgumentException("Must provide one weight per tree, not " + treeWeights.length + " for " + trees.size() + " trees");
+        if(combination == Combination.VOTE && numClasses <= 0)
+            throw new IllegalArgumentException("Voting is only supported for classification");
+        this.numNumeric = numNumeric;
+        this.catCounts = new int[catInfo == null ? 0 : catInfo.length];
+        for(int i = 0; i < catCounts.length; i++)
+            catCounts[i] = catInfo[i].getNumOfCategories();
+        this.numClasses = numClasses;
+        this.K = Math.max(1, numClasses);
+        this.combination = combination;
+        this.treeWeights = Arrays.copyOf(treeWeights, treeWeights.length);
+
+        Builder b = new Builder();
+        roots = new int[trees.size()];
+        for(int t = 0; t < roots.length; t++)
+        {
+            roots[t] = b.newNode();
+            b.compileFull(trees.get(t), roots[t]);
+        }
+
+        feature = b.feature.streamInts().toArray();
+        threshold = Arrays.copyOf(b.threshold.getBackingArray(), feature.length);
+        firstChild = b.firstChild.streamInts().toArray();
+        numPaths = b.numPaths.streamInts().toArray();
+        missingNode = b.missingNode.streamInts().toArray();
+        childWeight = Arrays.copyOf(b.childWeight.getBackingArray(), feature.length);
+        catOffset = b.catOffset.streamInts().toArray();
+        catPaths = b.catPaths.streamInts().toArray();
+        leafValues = Arrays.copyOf(b.leafValues.getBackingArray(), b.leafValues.size());
+    }
+
+    /**
+     *
+     * @return the total number of nodes, over all trees
+     */
+    public int getNodeCount()
+    {
+        return feature.length;
+    }
+
+    /**
+     *
+     * @return the number of trees compiled
+     */
+    public int getTreeCount()
+    {
+        return roots.length;
+    }
+
+    /**
+     * Accumulates the weighted output of the tree rooted at node {@code n}
+     * into {@code out}. Exactly one of {@code x} and {@code row} should be
+     * non-null.
+     */
+    private void accumulate(int n, Vec x, double[] row, int[] cat, double weight, double[] out)
+    {
+        while(true)
+        {
+            final int f = feature[n];
+            if(f < 0)//leaf
+            {
+                final int off = firstChild[n];
+                for(int k = 0; k < K; k++)
+                    out[k] += weight*leafValues[off+k];
+                return;
+            }
+            int path;
+            if(f < numNumeric)
+            {
+                double v = row != null ? row[f] : x.get(f);
+                if(Double.isNaN(v))
+                    path = -1;
+                else
+                    path = v <= threshold[n] ? 0 : 1;
+            }
+            else
+            {
+                int c = cat[f-numNumeric];
+                if(c < 0 || c >= catCounts[f-numNumeric])
+                    path = -1;
+                else
+                    path = catPaths[catOffset[n]+c];
+            }
+
+            if(path >= 0)
+                n = firstChild[n]+path;
+            else if(missingNode[n] >= 0)
+                n = missingNode[n];
+            else//average the children
+            {
+                final int end = firstChild[n]+numPaths[n];
+                for(int c = firstChild[n]; c < end; c++)
+                    if(childWeight[c] != 0)
+                        accumulate(c, x, row, cat, weight*childWeight[c], out);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Computes the combined output of every tree
+     * @param scratch an array of length K to use as temporary space
+     */
+    private void predict(Vec x, double[] row, int[] cat, double[] out, double[] scratch)
+    {
+        Arrays.fill(out, 0, K, 0.0);
+        if(combination == Combination.SUM)
+        {
+            for(int t = 0; t < roots.length; t++)
+                accumulate(roots[t], x, row, cat, treeWeights[t], out);
+            return;
+        }
+        //else, VOTE
+        for(int t = 0; t < roots.length; t++)
+        {
+            Arrays.fill(scratch, 0.0);
+            accumulate(roots[t], x, row, cat, 1.0, scratch);
+            int top = 0;
+            for(int k = 1; k < K; k++)
+                if(scratch[k] > scratch[top])
+                    top = k;
+            out[top] += treeWeights[t];
+        }
+        double sum = 0;
+        for(int k = 0; k < K; k++)
+            sum += out[k];
+        if(sum != 0)
+            for(int k = 0; k < K; k++)
+                out[k] /= sum;
+    }
+
+    private void checkClassification()
+    {
+        if(numClasses <= 0)
+            throw new UnsupportedOperationException("Trees were compiled for regression, not classification");
+    }
+
+    private void checkRegression()
+    {
+        if(numClasses > 0)
+            throw new UnsupportedOperationException("Trees were compiled for classification, not regression");
+    }
+
+    /**
+     * Performs classification on the given data point
+     * @param data the data point to classify
+     * @return the class probabilities
+     */
+    public CategoricalResults classify(DataPoint data)
+    {
+        checkClassification();
+        double[] out = new double[K];
+        predict(data.getNumericalValues(), null, data.getCategoricalValues(), out, new double[K]);
+        return new CategoricalResults(out);
+    }
+
+    /**
+     * Performs classification on every data point in the given data set.
+     * @param data the data to classify
+     * @param out the array to store the class probabilities in, of size
+     * {@link DataSet#size() } by the number of classes
+     */
+    public void classify(DataSet data, double[][] out)
+    {
+        checkClassification();
+        double[] scratch = new double[K];
+        for(int i = 0; i < data.size(); i++)
+        {
+            DataPoint dp = data.getDataPoint(i);
+            predict(dp.getNumericalValues(), null, dp.getCategoricalValues(), out[i], scratch);
+        }
+    }
+
+    /**
+     * Performs classification on every row of the given matrix, where each
+     * row contains only numeric features.
+     * @param X the rows to classify
+     * @param out the array to store the class probabilities in, of size
+     * {@code X.length} by the number of classes
+     */
+    public void classify(double[][] X, double[][] out)
+    {
+        checkClassification();
+        checkNumericOnly();
+        double[] scratch = new double[K];
+        for(int i = 0; i < X.length; i++)
+            predict(null, X[i], null, out[i], scratch);
+    }
+
+    /**
+     * Performs regression on the given data point
+     * @param data the data point to regress
+     * @return the predicted target value
+     */
+    public double regress(DataPoint data)
+    {
+        checkRegression();
+        double[] out = new double[1];
+        predict(data.getNumericalValues(), null, data.getCategoricalValues(), out, null);
+        return out[0];
+    }
+
+    /**
+     * Performs regression on every data point in the given data set
+     * @param data the data to regress
+     * @param out the array to store the predicted values in
+     */
+    public void regress(DataSet data, double[] out)
+    {
+        checkRegression();
+        double[] tmp = new double[1];
+        for(int i = 0; i < data.size(); i++)
+        {
+            DataPoint dp = data.getDataPoint(i);
+            predict(dp.getNumericalValues(), null, dp.getCategoricalValues(), tmp, null);
+            out[i] = tmp[0];
+        }
+    }
+
+    /**
+     * Performs regression on every row of the given matrix, where each row
+     * contains only numeric features.
+     * @param X the rows to regress
+     * @param out the array to store the predicted values in
+     */
+    public void regress(double[][] X, double[] out)
+    {
+        checkRegression();
+        checkNumericOnly();
+        double[] tmp = new double[1];
+        for(int i = 0; i < X.length; i++)
+        {
+            predict(null, X[i], null, tmp, null);
+            out[i] = tmp[0];
+        }
+    }
+
+    private void checkNumericOnly()
+    {
+        if(catCounts.length > 0)
+            throw new UnsupportedOperationException("Trees use categorical features, data must be given as DataPoints");
+    }
+
+    /**
+     * Holds the growing arrays during compilation
+     */
+    private class Builder
+    {
+        IntList feature = new IntList();
+        DoubleList threshold = new DoubleList();
+        IntList firstChild = new IntList();
+        IntList numPaths = new IntList();
+        IntList missingNode = new IntList();
+        DoubleList childWeight = new DoubleList();
+        IntList catOffset = new IntList();
+        IntList catPaths = new IntList();
+        DoubleList leafValues = new DoubleList();
+
+        /**
+         * Allocates a new node, which starts out as a leaf
+         * @return the index of the new node
+         */
+        int newNode()
+        {
+            feature.add(-1);
+            threshold.add(Double.NaN);
+            firstChild.add(-1);
+            numPaths.add(0);
+            missingNode.add(-1);
+            childWeight.add(0.0);
+            catOffset.add(-1);
+            return feature.size()-1;
+        }
+
+        /**
+         * Allocates a block of contiguous nodes
+         * @param count the number of nodes
+         * @return the index of the first node
+         */
+        int newNodes(int count)
+        {
+            int start = feature.size();
+            for(int i = 0; i < count; i++)
+                newNode();
+            return start;
+        }
+
+        DataPoint probe()
+        {
+            return new DataPoint(new DenseVector(numNumeric), new int[catCounts.length], null);
+        }
+
+        void setLeaf(int n, TreeNodeVisitor node, DataPoint dp)
+        {
+            feature.set(n, -1);
+            firstChild.set(n, leafValues.size());
+            if(numClasses > 0)
+            {
+                CategoricalResults cr = node.localClassify(dp);
+                for(int k = 0; k < K; k++)
+                    leafValues.add(cr.getProb(k));
+            }
+            else
+                leafValues.add(node.localRegress(dp));
+        }
+
+        /**
+         * Returns the single feature used by the node, or -1 if it uses none
+         */
+        int splitFeature(TreeNodeVisitor node)
+        {
+            Collection<Integer> used = node.featuresUsed();
+            if(used.isEmpty())
+                return -1;
+            if(used.size() > 1)
+                throw new UnsupportedOperationException("Can only compile nodes that split on a single feature");
+            return used.iterator().next();
+        }
+
+        /**
+         * Creates a data point that will take the given path from the node
+         */
+        DataPoint probeFor(int f, double thresh, int tableOff, int path)
+        {
+            DataPoint dp = probe();
+            if(f < numNumeric)
+            {
+                if(Double.isNaN(thresh) && path == 0)//path is unreachable
+                    return null;
+                dp.getNumericalValues().set(f, path == 0 ? thresh : Math.nextUp(thresh));
+            }
+            else
+            {
+                int c = -1;
+                for(int i = 0; i < catCounts[f-numNumeric]; i++)
+                    if(catPaths.getI(tableOff+i) == path)
+                    {
+                        c = i;
+                        break;
+                    }
+                if(c < 0)//path is unreachable
+                    return null;
+                dp.getCategoricalValues()[f-numNumeric] = c;
+            }
+            return dp;
+        }
+
+        DataPoint missingProbe(int f)
+        {
+            DataPoint dp = probe();
+            if(f < numNumeric)
+                dp.getNumericalValues().set(f, Double.NaN);
+            else
+                dp.getCategoricalValues()[f-numNumeric] = -1;
+            return dp;
+        }
+
+        /**
+         * Sets up node {@code n} as a split on the feature used by the given
+         * node, and allocates its children.
+         *
+         * @return the path taken by missing values, or -1 if they are averaged
+         */
+        int setSplit(int n, TreeNodeVisitor node, int f, int paths)
+        {
+            feature.set(n, f);
+            numPaths.set(n, paths);
+            if(f < numNumeric)
+            {
+                //a NaN threshold is kept as is, sending every value down the second path
+                double t = node.getSplitThreshold();
+                if(paths != 2)
+                    throw new UnsupportedOperationException("Numeric splits must be binary");
+                threshold.set(n, t);
+            }
+            else
+            {
+                catOffset.set(n, catPaths.size());
+                DataPoint dp = probe();
+                for(int c = 0; c < catCounts[f-numNumeric]; c++)
+                {
+                    dp.getCategoricalValues()[f-numNumeric] = c;
+                    int path = node.getPath(dp);
+                    if(path >= paths)
+                        throw new UnsupportedOperationException("Node returned an invalid path");
+                    catPaths.add(path);
+                }
+            }
+            firstChild.set(n, newNodes(paths));
+            return node.getPath(missingProbe(f));
+        }
+
+        /**
+         * Compiles the given node into {@code n}, such that it behaves as
+         * {@link TreeNodeVisitor#classify(jsat.classifiers.DataPoint) } and
+         * {@link TreeNodeVisitor#regress(jsat.classifiers.DataPoint) }.
+         */
+        void compileFull(TreeNodeVisitor node, int n)
+        {
+            if(node.isLeaf())
+            {
+                compileLocal(node, n);
+                return;
+            }
+            int f = splitFeature(node);
+            int paths = node.childrenCount();
+            if(f < 0)
+            {
+                if(paths == 1)//every point goes to the same child
+                    compileFull(node.getChild(0), n);
+                else
+                    throw new UnsupportedOperationException("Can only compile nodes that split on a single feature");
+                return;
+            }
+            int missingPath = setSplit(n, node, f, paths);
+            final int start = firstChild.getI(n);
+            for(int p = 0; p < paths; p++)
+                if(node.isPathDisabled(p))
+                    compileLocalPath(node, n, f, p, start+p);
+                else
+                    compileFull(node.getChild(p), start+p);
+
+            if(missingPath >= 0)
+            {
+                missingNode.set(n, start+missingPath);
+                return;
+            }
+            //missing values are averaged over the children that are enabled
+            double sum = 0;
+            for(int p = 0; p < paths; p++)
+                if(!node.isPathDisabled(p))
+                    sum += node.getPathWeight(p);
+            if(sum == 0)//all paths disabled, use local result
+            {
+                int m = newNode();
+                setLeaf(m, node, missingProbe(f));
+                missingNode.set(n, m);
+                return;
+            }
+            double scale = sum < 1.0-1e-5 ? 1/(sum+1e-6) : 1.0;
+            for(int p = 0; p < paths; p++)
+                if(!node.isPathDisabled(p))
+                    childWeight.set(start+p, node.getPathWeight(p)*scale);
+        }
+
+        /**
+         * Compiles the local result of the node for data that goes down path
+         * {@code p} into {@code m}
+         */
+        void compileLocalPath(TreeNodeVisitor node, int n, int f, int p, int m)
+        {
+            DataPoint dp = probeFor(f, threshold.getD(n), catOffset.getI(n), p);
+            if(dp == null)//unreachable path
+                dp = probe();
+            setLeaf(m, node, dp);
+        }
+
+        /**
+         * Compiles the given node into {@code n}, such that it behaves as
+         * {@link TreeNodeVisitor#localClassify(jsat.classifiers.DataPoint) }
+         * and {@link TreeNodeVisitor#localRegress(jsat.classifiers.DataPoint) }
+         */
+        void compileLocal(TreeNodeVisitor node, int n)
+        {
+            int f = splitFeature(node);
+            int paths = node.childrenCount();
+            if(f < 0 || paths <= 1 || (f < numNumeric && Double.isNaN(node.getSplitThreshold())))
+            {
+                setLeaf(n, node, probe());
+                return;
+            }
+            //remember where we started, so we can undo the split if it is not needed
+            final int nodesBefore = feature.size(), valuesBefore = leafValues.size(), catsBefore = catPaths.size();
+            setSplit(n, node, f, paths);
+            final int start = firstChild.getI(n);
+            for(int p = 0; p < paths; p++)
+                compileLocalPath(node, n, f, p, start+p);
+            //the local result for missing values is not always one of the paths
+            int m = newNode();
+            setLeaf(m, node, missingProbe(f));
+            missingNode.set(n, m);
+
+            //if every result is the same, collapse back to a single leaf
+            for(int i = valuesBefore+K; i < leafValues.size(); i++)
+                if(leafValues.getD(i) != leafValues.getD(valuesBefore + (i-valuesBefore)%K))
+                    return;
+            truncate(feature, nodesBefore);
+            truncate(threshold, nodesBefore);
+            truncate(firstChild, nodesBefore);
+            truncate(numPaths, nodesBefore);
+            truncate(missingNode, nodesBefore);
+            truncate(childWeight, nodesBefore);
+            truncate(catOffset, nodesBefore);
+            truncate(catPaths, catsBefore);
+            truncate(leafValues, valuesBefore+K);
+            feature.set(n, -1);
+            threshold.set(n, Double.NaN);
+            firstChild.set(n, valuesBefore);
+            numPaths.set(n, 0);
+            missingNode.set(n, -1);
+            catOffset.set(n, -1);
+        }
+
+        void truncate(List<?> list, int size)
+        {
+            list.subList(size, list.size()).clear();
+        }
+    }
+}
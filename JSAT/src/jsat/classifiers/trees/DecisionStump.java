@@ -86,6 +86,12 @@ public class DecisionStump implements Classifier, Regressor, Parameterized
      * split to occur.
      */
     private int minResultSplitSize = 10;
+    /**
+     * The maximum number of bins to quantize numeric features into when
+     * searching for a split. A value of zero indicates that the exact, sorting
+     * based search should be used.
+     */
+    private int maxNumericBins = 0;
 
     /**
      * Creates a new decision stump
@@ -166,6 +172,35 @@ public class DecisionStump implements Classifier, Regressor, Parameterized
         return minResultSplitSize;
     }
     
+    /**
+     * Sets the maximum number of bins to use for numeric features. When a
+     * positive value is given, each numeric feature is quantized into at most
+     * this many bins, and the best split is found from a histogram of the bins
+     * rather than by sorting the values. This is much faster on large data
+     * sets, at the cost of only considering split thresholds on the bin
+     * boundaries. A value of zero (the default) uses the exact search.
+     *
+     * @param maxNumericBins the maximum number of bins to use, or zero to
+     * disable binning
+     */
+    public void setMaxNumericBins(int maxNumericBins)
+    {
+        if(maxNumericBins != 0 && (maxNumericBins < 2 || maxNumericBins > NumericBinning.MAX_BINS))
+            throw new IllegalArgumentException("Number of bins must be zero or in the range [2, " + NumericBinning.MAX_BINS + "], not " + maxNumericBins);
+        this.maxNumericBins = maxNumericBins;
+    }
+
+    /**
+     * Returns the maximum number of bins used for numeric features, or zero if
+     * the exact search is used.
+     *
+     * @return the maximum number of bins used for numeric features
+     */
+    public int getMaxNumericBins()
+    {
+        return maxNumericBins;
+    }
+
     /**
      * Returns the attribute that this stump has decided to use to compute
      * results. Numeric features start from 0, and categorical features start
@@ -294,6 +329,24 @@ public class DecisionStump implements Classifier, Regressor, Parameterized
         }
     }
     
+    /**
+     * If this stump splits on a numeric attribute, returns the threshold such
+     * that values less than or equal to it take path 0, and larger values
+     * take path 1.
+     *
+     * @return the split threshold, or {@link Double#NaN} if this stump does
+     * not make a numeric split
+     */
+    public double getSplitThreshold()
+    {
+        if(getNumberOfPaths() != 2 || splittingAttribute < catAttributes.length)
+            return Double.NaN;
+        if(results != null)//classification
+            return boundries.get(0);
+        else
+            return regressionResults[2];
+    }
+    
     /**
      * Returns the number of paths that this decision stump leads to. The stump may not ever 
      * direct a data point on some of the paths. A result of 1 path means that all data points 
@@ -381,6 +434,12 @@ public class DecisionStump implements Classifier, Regressor, Parameterized
         if(predicting == null)
             throw new RuntimeException("Predicting value has not been set");
         
+        if(maxNumericBins > 0 && data.getNumNumericalVars() > 0)//find numeric splits from histograms of the bins
+        {
+            BinnedData binned = new BinnedData(data, new NumericBinning(data, maxNumericBins), parallel);
+            return toDataSets(data, trainC(binned, binned.allRows(), options, parallel));
+        }
+        
         catAttributes = data.getCategories();
         numNumericFeatures = data.getNumNumericalVars();
         final ImpurityScore origScoreObj = getClassGainScore(data);
@@ -711,7 +770,7 @@ public class DecisionStump implements Classifier, Regressor, Parameterized
         return tmp;
         
     }
-        
+    
     /**
      * Distributes a list of datapoints that had missing values to each split, re-weighted by the indicated fractions 
      * @param <T>
@@ -765,6 +824,12 @@ public class DecisionStump implements Classifier, Regressor, Parameterized
     
     public List<RegressionDataSet> trainR(final RegressionDataSet data, Set<Integer> options, boolean parallel)
     {
+        if(maxNumericBins > 0 && data.getNumNumericalVars() > 0)//find numeric splits from histograms of the bins
+        {
+            BinnedData binned = new BinnedData(data, new NumericBinning(data, maxNumericBins), parallel);
+            return toDataSets(data, trainR(binned, binned.allRows(), options, parallel));
+        }
+        
         catAttributes = data.getCategories();
         numNumericFeatures = data.getNumNumericalVars();
         //Not enough points for a split to occur
@@ -972,6 +1037,580 @@ public class DecisionStump implements Classifier, Regressor, Parameterized
         return bestSplit;
     }
     
+    /**
+     * Performs the same task as {@link #trainC(jsat.classifiers.ClassificationDataSet, java.util.Set, boolean) },
+     * but on the given rows of a binned data set. Numeric splits are found from
+     * a histogram of the class weights in each bin, and the rows are
+     * partitioned by index instead of being copied into new data sets.
+     *
+     * @param binned the binned classification data set
+     * @param node the rows to train on, and their weights
+     * @param options the set of attributes that this classifier may choose
+     * from. The attribute it does choose will be removed from the set.
+     * @param parallel whether or not to use multiple threads
+     * @return the rows, and their weights, that follow each path
+     */
+    List<BinnedData.Subset> trainC(final BinnedData binned, final BinnedData.Subset node, Set<Integer> options, boolean parallel)
+    {
+        if(predicting == null)
+            throw new RuntimeException("Predicting value has not been set");
+        
+        final ClassificationDataSet data = (ClassificationDataSet) binned.data;
+        catAttributes = data.getCategories();
+        numNumericFeatures = data.getNumNumericalVars();
+        final int N = predicting.getNumOfCategories();
+        final ImpurityScore origScoreObj = new ImpurityScore(N, gainMethod);
+        for(int i = 0; i < node.size(); i++)
+            origScoreObj.addPoint(node.weights[i], binned.labels[node.rows[i]]);
+        if(node.histograms == null)
+            node.histograms = new BinnedData.Histograms(binned, node, N, 0.0);
+        final BinnedData.Histograms hist = node.histograms;
+        
+        List<BinnedData.Subset> bestSplit = new ArrayList<>();
+        if(origScoreObj.getScore() == 0.0 || node.size() < minResultSplitSize*2)//Then all data points belond to the same category!
+        {
+            results = new CategoricalResults[1];//Only one path! 
+            results[0] = new CategoricalResults(N);
+            results[0].setProb(binned.labels[node.rows[0]], 1.0);
+            pathRatio = new double[]{0};
+            node.histograms = null;
+            bestSplit.add(node);
+            return bestSplit;
+        }
+        
+        final AtomicDouble bestGain = new AtomicDouble(-1);
+        //the bin to split after, and the scores of each path, of the best split
+        final int[] bestBin = new int[]{-1};
+        final ImpurityScore[][] bestScores = new ImpurityScore[1][];
+        //the fraction of the weight of a missing value that goes down each path
+        final double[][] bestFracs = new double[1][];
+        splittingAttribute = -1;
+        final CountDownLatch latch = new CountDownLatch(options.size());
+        
+        ExecutorService ex = parallel ? ParallelUtils.CACHED_THREAD_POOL : new FakeExecutor();
+        for(final int attribute :  options)
+        {
+            ex.submit(() ->
+            {
+                try
+                {
+                    ImpurityScore[] split_scores;
+                    double[] fracs;
+                    double gain;
+                    int bin = -1;
+                    if(attribute < catAttributes.length)//Then we are doing a categorical split
+                    {
+                        split_scores = new ImpurityScore[catAttributes[attribute].getNumOfCategories()];
+                        for(int i = 0; i < split_scores.length; i++)
+                            split_scores[i] = new ImpurityScore(N, gainMethod);
+                        int[] counts = new int[split_scores.length];
+                        double missingSum = 0.0;
+                        for(int i = 0; i < node.size(); i++)
+                        {
+                            int val = data.getDataPoint(node.rows[i]).getCategoricalValue(attribute);
+                            if(val >= 0)
+                            {
+                                split_scores[val].addPoint(node.weights[i], binned.labels[node.rows[i]]);
+                                counts[val]++;
+                            }
+                            else
+                                missingSum += node.weights[i];
+                        }
+                        
+                        int pathsTaken = 0;
+                        for(int count : counts)
+                            if(count > 0)
+                                pathsTaken++;
+                        if(pathsTaken <= 1)//not a good path, avoid looping on this junk. Can be caused by missing data
+                            return;
+                        
+                        double newSum = origScoreObj.getSumOfWeights()-missingSum;
+                        fracs = new double[split_scores.length];
+                        for(int i = 0; i < fracs.length; i++)
+                            fracs[i] = split_scores[i].getSumOfWeights()/newSum;
+                        gain = ImpurityScore.gain(origScoreObj, newSum/origScoreObj.getSumOfWeights(), split_scores);
+                    }
+                    else//Spliting on a numerical value
+                    {
+                        split_scores = new ImpurityScore[2];
+                        double[] gainRet = new double[1];
+                        bin = createNumericCSplit(hist, attribute-catAttributes.length, origScoreObj, gainRet, split_scores);
+                        if(bin < 0)
+                            return;
+                        gain = gainRet[0];
+                        double weightScale = split_scores[0].getSumOfWeights()/(split_scores[0].getSumOfWeights() + split_scores[1].getSumOfWeights()+0.0);
+                        fracs = new double[]{weightScale, 1-weightScale};
+                    }
+                    
+                    if(gain > bestGain.get())
+                    {
+                        synchronized(bestGain)
+                        {
+                            if(gain > bestGain.get())//double check incase changed
+                            {
+                                bestGain.set(gain);
+                                splittingAttribute = attribute;
+                                bestBin[0] = bin;
+                                bestScores[0] = split_scores;
+                                bestFracs[0] = fracs;
+                            }
+                        }
+                    }
+                }
+                finally
+                {
+                    latch.countDown();
+                }
+            });
+        }
+        
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException ex1)
+        {
+            Logger.getLogger(DecisionStump.class.getName()).log(Level.SEVERE, null, ex1);
+            throw new FailedToFitException(ex1);
+        }
+        
+        if(splittingAttribute == -1)//We could not find a good split at all
+        {
+            results = new CategoricalResults[] {new CategoricalResults(getPriors(data, node))};
+            pathRatio = new double[]{1};
+            node.histograms = null;
+            bestSplit.add(node);
+            return bestSplit;
+        }
+        if(splittingAttribute < catAttributes.length || removeContinuousAttributes)
+            options.remove(splittingAttribute);
+        
+        ImpurityScore[] split_scores = bestScores[0];
+        pathRatio = new double[split_scores.length];
+        double sum = 1e-8;
+        for(int i = 0; i < split_scores.length; i++)
+            sum += (pathRatio[i] = split_scores[i].getSumOfWeights());
+        for(int i = 0; i < split_scores.length; i++)
+            pathRatio[i] /= sum;
+        
+        bestSplit = partition(binned, node, splittingAttribute, bestBin[0], bestFracs[0]);
+        results = new CategoricalResults[bestSplit.size()];
+        for(int i = 0; i < bestSplit.size(); i++)
+            results[i] = new CategoricalResults(getPriors(data, bestSplit.get(i)));
+        if(splittingAttribute >= catAttributes.length)
+        {
+            boundries = Arrays.asList(binned.binning.getThreshold(splittingAttribute-catAttributes.length, bestBin[0]), Double.POSITIVE_INFINITY);
+            owners = Arrays.asList(0, 1);
+        }
+        
+        return bestSplit;
+    }
+    
+    /**
+     * Finds the best binary split on a numeric attribute from a histogram of
+     * the class weights in each bin. 
+     * 
+     * @param hist the histograms of the rows to split
+     * @param attribute the numeric attribute to try and find a split on
+     * @param origScore the score value for the rows we are splitting
+     * @param finalGain array used to return the gain of the best split at
+     * index zero
+     * @param subScores array of length 2, will contain the scores of the left
+     * and right paths
+     * @return the last bin to go down the left path, or -1 if no acceptable
+     * split was found
+     */
+    private int createNumericCSplit(BinnedData.Histograms hist, int attribute,
+            ImpurityScore origScore, double[] finalGain, ImpurityScore[] subScores)
+    {
+        final int B = hist.binned.binning.getNumBins(attribute);
+        if(B < 2)//only one value, can't split
+            return -1;
+        final int N = predicting.getNumOfCategories();
+        //the count and the weight of each class in each bin, missing values are in bin B
+        final double[] h = hist.get(attribute);
+        final int stride = hist.stride();
+        
+        ImpurityScore rightSide = origScore.clone();
+        ImpurityScore leftSide = new ImpurityScore(N, gainMethod);
+        //remove any Missing Value nodes from considering from the start 
+        double nanWeightRemoved = 0;
+        for(int y = 0; y < N; y++)
+        {
+            double w = h[B*stride+1+y];
+            if(w != 0)
+            {
+                nanWeightRemoved += w;
+                rightSide.removePoint(w, y);
+            }
+        }
+        int nonNaN = 0;
+        for(int b = 0; b < B; b++)
+            nonNaN += (int) h[b*stride];
+        
+        if(nonNaN < minResultSplitSize*2)//Too many values were NaN for us to do any more splitting
+            return -1;
+        double wholeRescale = rightSide.getSumOfWeights()/(rightSide.getSumOfWeights()+nanWeightRemoved);
+        
+        double bestGain = Double.NEGATIVE_INFINITY;
+        int bestBin = -1;
+        int leftCount = 0;
+        for(int b = 0; b < B-1; b++)
+        {
+            int binCount = (int) h[b*stride];
+            if(binCount == 0)//same split as the previous bin
+                continue;
+            leftCount += binCount;
+            for(int y = 0; y < N; y++)
+            {
+                double w = h[b*stride+1+y];
+                if(w != 0)
+                {
+                    leftSide.addPoint(w, y);
+                    rightSide.removePoint(w, y);
+                }
+            }
+            if(leftCount < minResultSplitSize)
+                continue;
+            else if(nonNaN-leftCount < minResultSplitSize)
+                break;
+            
+            double curGain = ImpurityScore.gain(origScore, wholeRescale, leftSide, rightSide);
+
+            if(curGain >= bestGain)
+            {
+                bestGain = curGain;
+                bestBin = b;
+                subScores[0] = leftSide.clone();
+                subScores[1] = rightSide.clone();
+            }
+        }
+        
+        finalGain[0] = bestGain;
+        return bestBin;
+    }
+    
+    /**
+     * Performs the same task as {@link #trainR(jsat.regression.RegressionDataSet, java.util.Set, boolean) },
+     * but on the given rows of a binned data set. Numeric splits are found from
+     * the sums of the target values in each bin, and the rows are partitioned
+     * by index instead of being copied into new data sets.
+     *
+     * @param binned the binned regression data set
+     * @param node the rows to train on, and their weights
+     * @param options the set of attributes that this regressor may choose
+     * from. The attribute it does choose will be removed from the set.
+     * @param parallel whether or not to use multiple threads
+     * @return the rows, and their weights, that follow each path, or
+     * {@code null} if no split could be found
+     */
+    List<BinnedData.Subset> trainR(final BinnedData binned, final BinnedData.Subset node, Set<Integer> options, boolean parallel)
+    {
+        final RegressionDataSet data = (RegressionDataSet) binned.data;
+        catAttributes = data.getCategories();
+        numNumericFeatures = data.getNumNumericalVars();
+        //Not enough points for a split to occur
+        if(node.size() <= minResultSplitSize*2)
+        {
+            splittingAttribute = catAttributes.length;
+            double avg = 0.0;
+            double sum = 0.0;
+            for(int i = 0; i < node.size(); i++)
+            {
+                avg += binned.targets[node.rows[i]]*node.weights[i];
+                sum += node.weights[i];
+            }
+            regressionResults = new double[]{avg/sum};
+            
+            node.histograms = null;
+            List<BinnedData.Subset> toRet = new ArrayList<>(1);
+            toRet.add(node);
+            return toRet;
+        }
+        //targets are shifted to reduce cancellation, children keep the shift of the root so that histograms can be subtracted
+        if(node.histograms == null)
+            node.histograms = new BinnedData.Histograms(binned, node, 3, binned.targets[node.rows[0]]);
+        final BinnedData.Histograms hist = node.histograms;
+        
+        final AtomicDouble lowestSplitSqrdError = new AtomicDouble(Double.MAX_VALUE);
+        //the bin to split after for the best numeric split
+        final int[] bestBin = new int[]{-1};
+        final CountDownLatch latch = new CountDownLatch(options.size());
+        
+        ExecutorService ex = parallel ? ParallelUtils.CACHED_THREAD_POOL : new FakeExecutor();
+        for(final int attribute :  options)
+        {
+            ex.submit(() ->
+            {
+                try
+                {
+                    //The squared error for this split
+                    double thisSplitSqrdErr;
+                    //Contains the means of each split
+                    double[] thisMeans;
+                    double[] thisRatio;
+                    int bin = -1;
+                    
+                    if(attribute < catAttributes.length)
+                    {
+                        OnLineStatistics[] stats = new OnLineStatistics[catAttributes[attribute].getNumOfCategories()];
+                        for(int i = 0; i < stats.length; i++)
+                            stats[i] = new OnLineStatistics();
+                        for(int i = 0; i < node.size(); i++)
+                        {
+                            int category = data.getDataPoint(node.rows[i]).getCategoricalValue(attribute);
+                            if(category >= 0)
+                                stats[category].add(binned.targets[node.rows[i]], node.weights[i]);
+                        }
+                        thisMeans = new double[stats.length];
+                        thisRatio = new double[stats.length];
+                        thisSplitSqrdErr = 0.0;
+                        double sum = 0;
+                        for(int i = 0; i < stats.length; i++)
+                        {
+                            sum += (thisRatio[i] = stats[i].getSumOfWeights());
+                            thisSplitSqrdErr += stats[i].getVarance()*stats[i].getSumOfWeights();
+                            thisMeans[i] = stats[i].getMean();
+                        }
+                        for(int i = 0; i < stats.length; i++)
+                            thisRatio[i] /= sum;
+                    }
+                    else//binary split from a histogram of the bins
+                    {
+                        thisMeans = new double[3];
+                        thisRatio = new double[2];
+                        double[] errRet = new double[1];
+                        bin = createNumericRSplit(hist, attribute-catAttributes.length, thisMeans, thisRatio, errRet);
+                        thisSplitSqrdErr = bin < 0 ? Double.NEGATIVE_INFINITY : errRet[0];
+                    }
+                    
+                    //numerical issue check. When we get a REALLy good split, error can be a tiny negative value due to numerical instability. Check and swap sign if small
+                    if(Math.abs(thisSplitSqrdErr) < 1e-13)//no need to check sign, make simpler
+                        thisSplitSqrdErr = Math.abs(thisSplitSqrdErr);
+                    //Now compare what weve done
+                    if(thisSplitSqrdErr >= 0 && thisSplitSqrdErr < lowestSplitSqrdError.get())
+                    {
+                        synchronized(lowestSplitSqrdError)
+                        {
+                            if(thisSplitSqrdErr < lowestSplitSqrdError.get())
+                            {
+                                lowestSplitSqrdError.set(thisSplitSqrdErr);
+                                splittingAttribute = attribute;
+                                regressionResults = thisMeans;
+                                pathRatio = thisRatio;
+                                bestBin[0] = bin;
+                            }
+                        }
+                    }
+                }
+                finally
+                {
+                    latch.countDown();
+                }
+            });
+        }
+        
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException ex1)
+        {
+            Logger.getLogger(DecisionStump.class.getName()).log(Level.SEVERE, null, ex1);
+            throw new FailedToFitException(ex1);
+        }
+        
+        //Removal of attribute from list if needed
+        if(splittingAttribute < catAttributes.length || removeContinuousAttributes)
+            options.remove(splittingAttribute);
+        
+        if(lowestSplitSqrdError.get() == Double.MAX_VALUE)//no good option selected. Keep old behavior, return null in that case
+        {
+            node.histograms = null;
+            return null;
+        }
+        return partition(binned, node, splittingAttribute, bestBin[0], pathRatio);
+    }
+    
+    /**
+     * Finds the binary split on a numeric attribute that minimizes the 
+     * weighted squared error, using the sums of the target values in each bin. 
+     * 
+     * @param hist the histograms of the rows to split
+     * @param numAttri the numeric attribute to split on
+     * @param thisMeans an array of length 3, will contain the mean of the left
+     * and right paths, followed by the split value
+     * @param thisRatio an array of length 2, will contain the fraction of 
+     * weight that went down each path
+     * @param errRet array used to return the squared error of the best split
+     * at index zero
+     * @return the last bin to go down the left path, or -1 if no acceptable
+     * split was found
+     */
+    private int createNumericRSplit(BinnedData.Histograms hist, int numAttri, double[] thisMeans, double[] thisRatio, double[] errRet)
+    {
+        final int B = hist.binned.binning.getNumBins(numAttri);
+        if(B < 2)
+            return -1;
+        //the count, sum of weights, weighted targets, and weighted squared targets per bin
+        final double[] h = hist.get(numAttri);
+        final int stride = hist.stride();
+        final double shift = hist.shift;
+        double W = 0, S1 = 0, S2 = 0;
+        int nonNaN = 0;
+        for(int b = 0; b < B; b++)
+        {
+            nonNaN += (int) h[b*stride];
+            W += h[b*stride+1];
+            S1 += h[b*stride+2];
+            S2 += h[b*stride+3];
+        }
+        
+        if(nonNaN < minResultSplitSize*2)
+            return -1;
+        
+        double bestErr = Double.POSITIVE_INFINITY;
+        int bestBin = -1;
+        int leftCount = 0;
+        double lW = 0, lS1 = 0, lS2 = 0;
+        for(int b = 0; b < B-1; b++)
+        {
+            int binCount = (int) h[b*stride];
+            if(binCount == 0)//same split as the previous bin
+                continue;
+            leftCount += binCount;
+            lW += h[b*stride+1];
+            lS1 += h[b*stride+2];
+            lS2 += h[b*stride+3];
+            if(leftCount < minResultSplitSize)
+                continue;
+            else if(nonNaN-leftCount < minResultSplitSize)
+                break;
+            double rW = W-lW, rS1 = S1-lS1, rS2 = S2-lS2;
+            if(lW <= 0 || rW <= 0)
+                continue;
+            double err = (lS2-lS1*lS1/lW) + (rS2-rS1*rS1/rW);
+            if(err < bestErr && !Double.isInfinite(err))
+            {
+                bestErr = err;
+                bestBin = b;
+                thisMeans[0] = lS1/lW+shift;
+                thisMeans[1] = rS1/rW+shift;
+                //Third spot contains the split value!
+                thisMeans[2] = hist.binned.binning.getThreshold(numAttri, b);
+                thisRatio[0] = lW/W;
+                thisRatio[1] = rW/W;
+            }
+        }
+        
+        errRet[0] = Math.max(bestErr, 0.0);
+        return bestBin;
+    }
+    
+    /**
+     * Partitions the rows of a node by the path they follow on the given
+     * attribute. Rows with a missing value follow every path, with their
+     * weight scaled by the fraction given for each path. If the node has
+     * histograms, each path is given histograms that can be found from them.
+     * 
+     * @param binned the binned data set
+     * @param node the rows to partition, and their weights
+     * @param attribute the attribute that was split on
+     * @param bin the last bin that goes down the left path, if the attribute
+     * is numeric
+     * @param fracs the fraction of weight a missing value sends down each path
+     * @return the rows, and their weights, that follow each path
+     */
+    private List<BinnedData.Subset> partition(BinnedData binned, BinnedData.Subset node, int attribute, int bin, double[] fracs)
+    {
+        final int paths = fracs.length;
+        IntList[] rows = new IntList[paths];
+        DoubleList[] weights = new DoubleList[paths];
+        for(int j = 0; j < paths; j++)
+        {
+            rows[j] = new IntList();
+            weights[j] = new DoubleList();
+        }
+        
+        IntList wasMissing = new IntList();
+        for(int i = 0; i < node.size(); i++)
+        {
+            int row = node.rows[i];
+            int path;
+            if(attribute < catAttributes.length)
+                path = binned.data.getDataPoint(row).getCategoricalValue(attribute);
+            else
+            {
+                byte code = binned.codes[attribute-catAttributes.length][row];
+                path = code == BinnedData.NAN_BIN ? -1 : (code & 0xFF) <= bin ? 0 : 1;
+            }
+            if(path < 0)
+                wasMissing.add(i);
+            else
+            {
+                rows[path].add(row);
+                weights[path].add(node.weights[i]);
+            }
+        }
+        
+        //the missing rows as they were in the node, and as they were given to each path
+        IntList removedRows = new IntList(wasMissing.size());
+        DoubleList removedWeights = new DoubleList(wasMissing.size());
+        IntList addedRows = new IntList();
+        DoubleList addedWeights = new DoubleList();
+        for(int i : wasMissing)
+        {
+            removedRows.add(node.rows[i]);
+            removedWeights.add(node.weights[i]);
+            for(int j = 0; j < paths; j++)
+            {
+                double nw = fracs[j] * node.weights[i];
+                if (Double.isNaN(nw))//happens when no weight is available
+                    continue;
+                if (nw <= 1e-13)
+                    continue;
+                rows[j].add(node.rows[i]);
+                weights[j].add(nw);
+                addedRows.add(node.rows[i]);
+                addedWeights.add(nw);
+            }
+        }
+        
+        List<BinnedData.Subset> splits = new ArrayList<>(paths);
+        for(int j = 0; j < paths; j++)
+            splits.add(toSubset(rows[j], weights[j]));
+        if(node.histograms != null)
+        {
+            node.histograms.split(splits, toSubset(removedRows, removedWeights), toSubset(addedRows, addedWeights));
+            node.histograms.release();
+            node.histograms = null;
+        }
+        return splits;
+    }
+    
+    private static BinnedData.Subset toSubset(IntList rows, DoubleList weights)
+    {
+        return new BinnedData.Subset(rows.streamInts().toArray(), Arrays.copyOf(weights.getBackingArray(), weights.size()));
+    }
+    
+    /**
+     * Converts the rows that follow each path of a binned split back into data
+     * sets, so that they can be returned by the methods that take a data set.
+     * 
+     * @param data the data set that was binned
+     * @param splits the rows, and their weights, that follow each path
+     * @return a view of the rows that follow each path
+     */
+    private static <T extends DataSet<T>> List<T> toDataSets(T data, List<BinnedData.Subset> splits)
+    {
+        if(splits == null)
+            return null;
+        List<T> toRet = new ArrayList<>(splits.size());
+        for(BinnedData.Subset split : splits)
+            toRet.add(BinnedData.toDataSet(data, split));
+        return toRet;
+    }
+    
     private static <T extends DataSet<T>> List<T> listOfLists(T type, int n )
     {
         List<T> aSplit = new ArrayList<>(n);
@@ -1013,6 +1652,32 @@ public class DecisionStump implements Classifier, Regressor, Parameterized
         return cgs;
     }
 
+    /**
+     * Computes the prior probability of each class, as 
+     * {@link ClassificationDataSet#getPriors() } does, for the given rows of
+     * a data set
+     * @param data the data set 
+     * @param subset the rows of the data set, and their weights
+     * @return the prior probability of each class
+     */
+    private double[] getPriors(ClassificationDataSet data, BinnedData.Subset subset)
+    {
+        double[] priors = new double[data.getClassSize()];
+        
+        double sum = 0.0;
+        for(int i = 0; i < subset.size(); i++)
+        {
+            double w = subset.weights[i];
+            priors[data.getDataPointCategory(subset.rows[i])] += w;
+            sum += w;
+        }
+        
+        for(int i = 0; i < priors.length; i++)
+            priors[i] /= sum;
+        
+        return priors;
+    }
+
     @Override
     public DecisionStump clone()
     {
@@ -1040,6 +1705,7 @@ public class DecisionStump implements Classifier, Regressor, Parameterized
         copy.minResultSplitSize = this.minResultSplitSize;
         copy.gainMethod = this.gainMethod;
         copy.numNumericFeatures = this.numNumericFeatures;
+        copy.maxNumericBins = this.maxNumericBins;
         return copy;
     }
 }
@@ -6,6 +6,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import jsat.DataSet;
 import jsat.classifiers.CategoricalData;
 import jsat.classifiers.CategoricalResults;
 import jsat.classifiers.ClassificationDataSet;
@@ -17,6 +18,7 @@ import static jsat.classifiers.trees.TreePruner.*;
 import jsat.classifiers.trees.TreePruner.PruningMethod;
 import jsat.exceptions.FailedToFitException;
 import jsat.exceptions.ModelMismatchException;
+import jsat.exceptions.UntrainedModelException;
 import jsat.parameters.Parameter;
 import jsat.parameters.Parameterized;
 import jsat.regression.RegressionDataSet;
@@ -78,6 +80,13 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
 
     public void train(RegressionDataSet dataSet, Set<Integer> options, boolean parallel)
     {
+        if(getMaxNumericBins() > 0 && dataSet.getNumNumericalVars() > 0)
+        {
+            BinnedData binned = new BinnedData(dataSet, new NumericBinning(dataSet, getMaxNumericBins()), parallel);
+            trainR(binned, binned.allRows(), options, parallel);
+            return;
+        }
+        predicting = null;
         ModifiableCountDownLatch mcdl = new ModifiableCountDownLatch(1);
         root = makeNodeR(dataSet, options, 0, parallel, mcdl);
         try
@@ -97,6 +106,56 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
         //TODO add pruning for regression 
     }
     
+    /**
+     * Trains this tree for regression on some of the rows of a data set whose
+     * numeric features have already been binned. Models that train many trees
+     * on the same feature values, such as boosting, can use this to bin the
+     * data only once, and to train each tree on a sample of the rows or on new
+     * {@link BinnedData#withTargets(double[]) target values}. The tree is built
+     * with binned splits even if {@link #getMaxNumericBins() binning} is not
+     * enabled.
+     *
+     * @param binned the binned regression data set
+     * @param rows the rows to train on, and their weights
+     * @param parallel whether or not to use multiple cores in training
+     */
+    public void train(BinnedData binned, BinnedData.Subset rows, boolean parallel)
+    {
+        Set<Integer> options = new IntSet(binned.data.getNumFeatures());
+        for(int i = 0; i < binned.data.getNumFeatures(); i++)
+            options.add(i);
+        trainR(binned, rows, options, parallel);
+    }
+    
+    /**
+     * Trains this tree for regression on the given rows of a binned data set
+     *
+     * @param binned the binned regression data set
+     * @param rows the rows to train on, and their weights
+     * @param options the attributes that this tree may select from
+     * @param parallel whether or not to use multiple cores in training
+     */
+    void trainR(BinnedData binned, BinnedData.Subset rows, Set<Integer> options, boolean parallel)
+    {
+        predicting = null;
+        ModifiableCountDownLatch mcdl = new ModifiableCountDownLatch(1);
+        root = makeNodeR(binned, rows, options, 0, parallel, mcdl);
+        try
+        {
+            mcdl.await();
+        }
+        catch (InterruptedException ex)
+        {
+            Logger.getLogger(DecisionTree.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        if(root == null)//fitting issure, most likely too few datums. try just a stump 
+        {
+            DecisionStump stump = new DecisionStump();
+            stump.train(binned.toRegressionDataSet(rows), parallel);
+            root = new Node(stump);
+        }
+    }
+    
     /**
      * Creates a Decision Tree that uses {@link PruningMethod#REDUCED_ERROR}
      * pruning on a held out 10% of the data.
@@ -207,6 +266,33 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
         return baseStump.getMinResultSplitSize();
     }
     
+    /**
+     * Sets the maximum number of bins to use for numeric features. When
+     * positive, each numeric feature is quantized once into at most this many
+     * bins before the tree is built, and every node finds its split from a
+     * histogram of the bins instead of sorting the values. A value of zero
+     * (the default) uses the exact search.
+     *
+     * @param maxNumericBins the maximum number of bins, in the range [2, 255],
+     * or zero to disable binning
+     * @see DecisionStump#setMaxNumericBins(int) 
+     */
+    public void setMaxNumericBins(int maxNumericBins)
+    {
+        baseStump.setMaxNumericBins(maxNumericBins);
+    }
+
+    /**
+     * Returns the maximum number of bins used for numeric features, or zero if
+     * the exact search is used.
+     *
+     * @return the maximum number of bins used for numeric features
+     */
+    public int getMaxNumericBins()
+    {
+        return baseStump.getMaxNumericBins();
+    }
+
     /**
      * Sets the maximum depth that this classifier may build trees to. 
      * @param maxDepth the maximum depth of the trained tree
@@ -318,6 +404,12 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
      */
     protected void trainC(ClassificationDataSet dataSet, Set<Integer> options, boolean parallel)
     {
+        if(getMaxNumericBins() > 0 && dataSet.getNumNumericalVars() > 0)
+        {
+            BinnedData binned = new BinnedData(dataSet, new NumericBinning(dataSet, getMaxNumericBins()), parallel);
+            trainC(binned, binned.allRows(), options, parallel);
+            return;
+        }
         if(dataSet.size() < minSamples)
             throw new FailedToFitException("There are only " + 
                     dataSet.size() + 
@@ -327,6 +419,71 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
         
         ModifiableCountDownLatch mcdl = new ModifiableCountDownLatch(1);
         
+        List<ClassificationDataSet> trainTest = pruningSplit(dataSet);
+        
+        this.root = makeNodeC(dataSet, options, 0, parallel, mcdl);
+        
+        try
+        {
+            mcdl.await();
+        }
+        catch (InterruptedException ex)
+        {
+            System.err.println(ex.getMessage());
+            Logger.getLogger(DecisionTree.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        
+        pruneOrStump(trainTest.get(0), trainTest.get(1), parallel);
+    }
+    
+    /**
+     * Trains this tree for classification on the given rows of a binned data
+     * set
+     *
+     * @param binned the binned classification data set
+     * @param rows the rows to train on, and their weights
+     * @param options the attributes that this tree may select from
+     * @param parallel whether or not to use multiple cores in training
+     */
+    void trainC(BinnedData binned, BinnedData.Subset rows, Set<Integer> options, boolean parallel)
+    {
+        if(rows.size() < minSamples)
+            throw new FailedToFitException("There are only " + 
+                    rows.size() + 
+                    " data points in the sample set, at least " + minSamples + 
+                    " are needed to make a tree");
+        ClassificationDataSet dataSet = (ClassificationDataSet) binned.data;
+        this.predicting = dataSet.getPredicting();
+        
+        ModifiableCountDownLatch mcdl = new ModifiableCountDownLatch(1);
+        
+        List<ClassificationDataSet> trainTest = pruningSplit(BinnedData.toDataSet(dataSet, rows));
+        
+        this.root = makeNodeC(binned, rows, options, 0, parallel, mcdl);
+        
+        try
+        {
+            mcdl.await();
+        }
+        catch (InterruptedException ex)
+        {
+            System.err.println(ex.getMessage());
+            Logger.getLogger(DecisionTree.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        
+        pruneOrStump(trainTest.get(0), trainTest.get(1), parallel);
+    }
+    
+    /**
+     * Sets aside the portion of the data that will be used for pruning
+     * 
+     * @param dataSet the data set the tree will be trained on
+     * @return a list of two data sets, the training data followed by the
+     * testing data for pruning. The testing data is {@code null} if no 
+     * pruning will be done.
+     */
+    private List<ClassificationDataSet> pruningSplit(ClassificationDataSet dataSet)
+    {
         ClassificationDataSet train = dataSet;
 	ClassificationDataSet test = null;
 	
@@ -344,18 +501,19 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
                 test = train;
         }
         
-        this.root = makeNodeC(dataSet, options, 0, parallel, mcdl);
-        
-        try
-        {
-            mcdl.await();
-        }
-        catch (InterruptedException ex)
-        {
-            System.err.println(ex.getMessage());
-            Logger.getLogger(DecisionTree.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        
+        return Arrays.asList(train, test);
+    }
+    
+    /**
+     * Prunes the tree once it has been built, or makes it a single stump if no
+     * tree could be built
+     *
+     * @param train the training data from {@link #pruningSplit(jsat.classifiers.ClassificationDataSet) }
+     * @param test the testing data from {@link #pruningSplit(jsat.classifiers.ClassificationDataSet) }
+     * @param parallel whether or not to use multiple cores in training
+     */
+    private void pruneOrStump(ClassificationDataSet train, ClassificationDataSet test, boolean parallel)
+    {
         if(root == null)//fitting issure, most likely too few datums. try just a stump 
         {
             DecisionStump stump = new DecisionStump();
@@ -406,7 +564,10 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
                 {
                     (parallel ? ParallelUtils.CACHED_THREAD_POOL : new FakeExecutor()).submit(() ->
                     {
+                        //hold the latch until the child is stored, the child's own count down may release it
+                        mcdl.countUp();
                         node.paths[ii] = makeNodeC(splitI, new IntSet(options), depth+1, parallel, mcdl);
+                        mcdl.countDown();
                     });
                 }
                 else
@@ -462,7 +623,10 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
                     (parallel ? ParallelUtils.CACHED_THREAD_POOL : new FakeExecutor())
                     .submit(() ->
                     {
+                        //hold the latch until the child is stored, the child's own count down may release it
+                        mcdl.countUp();
                         node.paths[ii] = makeNodeR(splitI, new IntSet(options), depth+1, parallel, mcdl);
+                        mcdl.countDown();
                     });
                 }
                 else
@@ -473,6 +637,114 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
         return node;
     }
     
+    /**
+     * Makes a new node for classification from the given rows of a binned data
+     * set
+     * @param binned the binned classification data set
+     * @param rows the rows that reach this node, and their weights
+     * @param options the attributes that this tree may select from
+     * @param depth the current depth of the tree
+     * @param parallel whether or not to use multiple threads when training
+     * @param mcdl count down latch 
+     * @return the node created, or null if no node was created
+     */
+    Node makeNodeC(final BinnedData binned, BinnedData.Subset rows, final Set<Integer> options, final int depth,
+            final boolean parallel, final ModifiableCountDownLatch mcdl)
+    {
+        //figure out what level of parallelism we are going to use, feature wise or depth wise
+        boolean mePara = (1L<<depth) < SystemInfo.LogicalCores*2;//should THIS node use the Stump parallelism
+        boolean depthPara = (1L<<(depth+1)) >= SystemInfo.LogicalCores*2;//should the NEXT node use the stump parallelism
+
+        if(depth > maxDepth || options.isEmpty() || rows.size() < minSamples || rows.size() == 0)
+        {
+            mcdl.countDown();
+            return null;
+        }
+        DecisionStump stump = baseStump.clone();
+        stump.setPredicting(this.predicting);
+        final List<BinnedData.Subset> splits = stump.trainC(binned, rows, options, mePara && parallel);
+        
+        final Node node = new Node(stump);
+        if(stump.getNumberOfPaths() > 1)//If there is 1 path, we are perfectly classifier - nothing more to do 
+            for(int i = 0; i < node.paths.length; i++)
+            {
+                final int ii = i;
+                final BinnedData.Subset splitI = splits.get(i);
+                mcdl.countUp();
+                if(depthPara)
+                {
+                    (parallel ? ParallelUtils.CACHED_THREAD_POOL : new FakeExecutor()).submit(() ->
+                    {
+                        //hold the latch until the child is stored, the child's own count down may release it
+                        mcdl.countUp();
+                        node.paths[ii] = makeNodeC(binned, splitI, new IntSet(options), depth+1, parallel, mcdl);
+                        mcdl.countDown();
+                    });
+                }
+                else
+                    node.paths[ii] = makeNodeC(binned, splitI, new IntSet(options), depth+1, parallel, mcdl);
+            }
+        
+        mcdl.countDown();
+        return node;
+    }
+    
+    /**
+     * Makes a new node for regression from the given rows of a binned data set
+     * @param binned the binned regression data set
+     * @param rows the rows that reach this node, and their weights
+     * @param options the attributes that this tree may select from 
+     * @param depth the current depth of the tree
+     * @param parallel whether or not to perform parallel computation 
+     * @param mcdl count down latch 
+     * @return the node created, or null if no node was created
+     */
+    Node makeNodeR(final BinnedData binned, BinnedData.Subset rows, final Set<Integer> options, final int depth,
+            final boolean parallel, final ModifiableCountDownLatch mcdl)
+    {
+        //figure out what level of parallelism we are going to use, feature wise or depth wise
+        boolean mePara = (1L<<depth) < SystemInfo.LogicalCores*2;//should THIS node use the Stump parallelism
+        boolean depthPara = (1L<<(depth+1)) >= SystemInfo.LogicalCores*2;//should the NEXT node use the stump parallelism
+        
+        if(depth > maxDepth || options.isEmpty() || rows.size() < minSamples || rows.size() == 0)
+        {
+            mcdl.countDown();
+            return null;
+        }
+        DecisionStump stump = baseStump.clone();
+        final List<BinnedData.Subset> splits = stump.trainR(binned, rows, options, mePara && parallel);
+        if(splits == null)//an error occured, probably not enough data for many categorical values
+        {
+            mcdl.countDown();
+            return null;
+        }
+        
+        final Node node = new Node(stump);
+        if(stump.getNumberOfPaths() > 1)//If there is 1 path, we are perfectly classifier - nothing more to do 
+            for(int i = 0; i < node.paths.length; i++)
+            {
+                final int ii = i;
+                final BinnedData.Subset splitI = splits.get(i);
+                mcdl.countUp();
+                if(depthPara)
+                {
+                    (parallel ? ParallelUtils.CACHED_THREAD_POOL : new FakeExecutor())
+                    .submit(() ->
+                    {
+                        //hold the latch until the child is stored, the child's own count down may release it
+                        mcdl.countUp();
+                        node.paths[ii] = makeNodeR(binned, splitI, new IntSet(options), depth+1, parallel, mcdl);
+                        mcdl.countDown();
+                    });
+                }
+                else
+                    node.paths[ii] = makeNodeR(binned, splitI, new IntSet(options), depth+1, parallel, mcdl);
+            }
+        
+        mcdl.countDown();
+        return node;
+    }
+    
     public void trainC(ClassificationDataSet dataSet, Set<Integer> options)
     {
         trainC(dataSet, options, false);
@@ -502,6 +774,23 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
         return root;
     }
     
+    /**
+     * Compiles the trained tree into a flat, array based form that can make
+     * predictions without walking the node objects of the tree.
+     *
+     * @param numNumeric the number of numeric features of the training data
+     * @param catInfo the categorical feature information of the training data
+     * @return the compiled tree
+     * @see CompiledTrees
+     */
+    public CompiledTrees compile(int numNumeric, CategoricalData[] catInfo)
+    {
+        if(root == null)
+            throw new UntrainedModelException("Model has not yet been trained");
+        return new CompiledTrees(Arrays.asList(root), new double[]{1.0}, CompiledTrees.Combination.SUM, 
+                predicting == null ? 0 : predicting.getNumOfCategories(), numNumeric, catInfo);
+    }
+    
     protected static class Node extends TreeNodeVisitor
     {
         private static final long serialVersionUID = -7507748424627088734L;
@@ -597,6 +886,12 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
             return paths[child] == null;
         }
 
+        @Override
+        public double getSplitThreshold()
+        {
+            return stump.getSplitThreshold();
+        }
+
         @Override
         public Collection<Integer> featuresUsed()
         {
@@ -612,7 +907,7 @@ public class DecisionTree implements Classifier, Regressor, Parameterized, TreeL
     {
         List<Parameter> toRet = new ArrayList<>(Parameter.getParamsFromMethods(this));
         for (Parameter param : baseStump.getParameters())//We kno the two setGainMethods will colide
-            if(!param.getName().contains("Gain Method") && !param.getName().contains("Numeric Handling"))
+            if(!param.getName().contains("Gain Method") && !param.getName().contains("Numeric Handling") && !param.getName().contains("Max Numeric Bins"))
                 toRet.add(param);
         return Collections.unmodifiableList(toRet);
     }
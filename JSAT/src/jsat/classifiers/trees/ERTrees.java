@@ -2,6 +2,9 @@
 package jsat.classifiers.trees;
 
 import static java.lang.Math.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import jsat.DataSet;
@@ -10,6 +13,7 @@ import jsat.classifiers.CategoricalResults;
 import jsat.classifiers.ClassificationDataSet;
 import jsat.classifiers.DataPoint;
 import jsat.exceptions.FailedToFitException;
+import jsat.exceptions.UntrainedModelException;
 import jsat.math.OnLineStatistics;
 import jsat.regression.RegressionDataSet;
 import jsat.utils.FakeExecutor;
@@ -254,6 +258,12 @@ public class ERTrees extends ExtraTree
         return mean/forrest.length;
     }
 
+    @Override
+    public void train(RegressionDataSet dataSet)
+    {
+        train(dataSet, false);
+    }
+
     @Override
     public void train(RegressionDataSet dataSet, boolean parallel)
     {
@@ -262,6 +272,7 @@ public class ERTrees extends ExtraTree
         if(useDefaultStopSize)
             baseTree.setStopSize(5);
         
+        predicting = null;
         doTraining(parallel, dataSet);
     }
     
@@ -271,6 +282,34 @@ public class ERTrees extends ExtraTree
         return new ERTrees(this);
     }
 
+    /**
+     * Compiles the trained ensemble into a flat, array based form that can
+     * make predictions faster than walking each tree, and without allocating
+     * objects per data point.
+     *
+     * @param numNumeric the number of numeric features of the training data
+     * @param catInfo the categorical feature information of the training data
+     * @return the compiled ensemble
+     * @see CompiledTrees
+     */
+    @Override
+    public CompiledTrees compile(int numNumeric, CategoricalData[] catInfo)
+    {
+        if(forrest == null)
+            throw new UntrainedModelException("Model has not yet been trained");
+        List<TreeNodeVisitor> roots = new ArrayList<>(forrest.length);
+        for(ExtraTree tree : forrest)
+            roots.add(tree.getTreeNodeVisitor());
+        double[] weights = new double[roots.size()];
+        if(predicting != null)
+        {
+            Arrays.fill(weights, 1.0);
+            return new CompiledTrees(roots, weights, CompiledTrees.Combination.VOTE, predicting.getNumOfCategories(), numNumeric, catInfo);
+        }
+        Arrays.fill(weights, 1.0/roots.size());
+        return new CompiledTrees(roots, weights, CompiledTrees.Combination.SUM, 0, numNumeric, catInfo);
+    }
+
     @Override
     public TreeNodeVisitor getTreeNodeVisitor()
     {
@@ -8,6 +8,7 @@ import jsat.classifiers.ClassificationDataSet;
 import jsat.classifiers.Classifier;
 import jsat.classifiers.DataPoint;
 import jsat.classifiers.trees.ImpurityScore.ImpurityMeasure;
+import jsat.exceptions.UntrainedModelException;
 import jsat.math.OnLineStatistics;
 import jsat.parameters.Parameterized;
 import jsat.regression.RegressionDataSet;
@@ -543,6 +544,23 @@ public class ExtraTree implements Classifier, Regressor, TreeLearner, Parameteri
     {
         return root;
     }
+    
+    /**
+     * Compiles the trained tree into a flat, array based form that can make
+     * predictions without walking the node objects of the tree.
+     *
+     * @param numNumeric the number of numeric features of the training data
+     * @param catInfo the categorical feature information of the training data
+     * @return the compiled tree
+     * @see CompiledTrees
+     */
+    public CompiledTrees compile(int numNumeric, CategoricalData[] catInfo)
+    {
+        if(root == null)
+            throw new UntrainedModelException("Model has not yet been trained");
+        return new CompiledTrees(Arrays.asList(root), new double[]{1.0}, CompiledTrees.Combination.SUM, 
+                predicting == null ? 0 : predicting.getNumOfCategories(), numNumeric, catInfo);
+    }
 
     /**
      * Add lists to a list of lists
@@ -585,6 +603,7 @@ public class ExtraTree implements Classifier, Regressor, TreeLearner, Parameteri
     @Override
     public void train(RegressionDataSet dataSet)
     {
+        predicting = null;
         Random rand = RandomUtil.getRandom();
         IntList features = new IntList(dataSet.getNumFeatures());
         ListUtils.addRange(features, 0, dataSet.getNumFeatures(), 1);
@@ -715,6 +734,12 @@ public class ExtraTree implements Classifier, Regressor, TreeLearner, Parameteri
                 return 1;
         }
 
+        @Override
+        public double getSplitThreshold()
+        {
+            return threshold;
+        }
+
         @Override
         public TreeNodeVisitor clone()
         {
@@ -824,6 +849,8 @@ public class ExtraTree implements Classifier, Regressor, TreeLearner, Parameteri
         @Override
         public int childrenCount()
         {
+            if(children == null)
+                return 0;
             return children.length;
         }
 
@@ -956,6 +983,12 @@ public class ExtraTree implements Classifier, Regressor, TreeLearner, Parameteri
                 return 1;
         }
 
+        @Override
+        public double getSplitThreshold()
+        {
+            return threshold;
+        }
+
         @Override
         public TreeNodeVisitor clone()
         {
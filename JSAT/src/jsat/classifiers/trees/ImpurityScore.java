@@ -39,9 +39,17 @@ public class ImpurityScore implements Cloneable
         CLASSIFICATION_ERROR
     }
     
+    private static final double LOG_2 = log(2);
+    
     private double sumOfWeights;
     private double[] counts;
     private ImpurityMeasure impurityMeasure;
+    /**
+     * The value of {@link #getScore() } for the current counts, or NaN if it
+     * has not been computed since they last changed. Split searches compare
+     * many splits against the same score of the whole data.
+     */
+    private double score = Double.NaN;
     
     /**
      * Creates a new impurity score that can be updated
@@ -65,6 +73,7 @@ public class ImpurityScore implements Cloneable
         this.sumOfWeights = toClone.sumOfWeights;
         this.counts = Arrays.copyOf(toClone.counts, toClone.counts.length);
         this.impurityMeasure = toClone.impurityMeasure;
+        this.score = toClone.score;
     }
     
     /**
@@ -76,6 +85,7 @@ public class ImpurityScore implements Cloneable
     {
         counts[targetClass] -= weight;
         sumOfWeights -= weight;
+        score = Double.NaN;
     }
    
     /**
@@ -87,6 +97,7 @@ public class ImpurityScore implements Cloneable
     {
         counts[targetClass] += weight;
         sumOfWeights += weight;
+        score = Double.NaN;
     }
 
     /**
@@ -99,17 +110,19 @@ public class ImpurityScore implements Cloneable
     {
         if(sumOfWeights <= 0)
             return 0;
+        if(!Double.isNaN(this.score))
+            return this.score;
         double score = 0.0;
 
         if (impurityMeasure == ImpurityMeasure.INFORMATION_GAIN_RATIO
                 || impurityMeasure == ImpurityMeasure.INFORMATION_GAIN
                 || impurityMeasure == ImpurityMeasure.NMI)
         {
-            for (Double count : counts)
+            for (double count : counts)
             {
                 double p = count / sumOfWeights;
                 if (p > 0)
-                    score += p * log(p) / log(2);
+                    score += p * log(p) / LOG_2;
             }
         }
         else if (impurityMeasure == ImpurityMeasure.GINI)
@@ -129,7 +142,7 @@ public class ImpurityScore implements Cloneable
             score = 1.0 - maxClass;
         }
 
-        return abs(score);
+        return this.score = abs(score);
     }
 
     /**
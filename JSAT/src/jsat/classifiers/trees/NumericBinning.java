@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.classifiers.trees;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+import jsat.DataSet;
+import jsat.linear.IndexValue;
+import jsat.linear.Vec;
+import jsat.utils.IntList;
+import jsat.utils.ListUtils;
+import jsat.utils.random.RandomUtil;
+
+/**
+ * This class quantizes every numeric feature of a data set into a small number
+ * of bins, so that a tree can find the best split on a numeric feature by
+ * building a histogram of the data in each bin, instead of sorting the values
+ * at every node. Each bin is described by an upper boundary, and a value
+ * <i>x</i> belongs to the first bin with a boundary greater than or equal to
+ * <i>x</i>. Splitting after bin <i>b</i> is thus the same as the rule
+ * <i>x &le; boundary(b)</i>, which matches the rule used by
+ * {@link DecisionStump}. <br>
+ * <br>
+ * When a feature has fewer unique values than the number of bins, the
+ * boundaries are placed between every pair of unique values and the binned
+ * split search will find exactly the same splits as the sorting search.
+ * Otherwise, boundaries are placed at (unweighted) quantiles of the data. A
+ * binning object is immutable once created, and may be shared between many
+ * trees trained on the same data.
+ *
+ * @author Edward Raff
+ */
+public class NumericBinning implements Serializable
+{
+    private static final long serialVersionUID = 2936815373092457210L;
+
+    /**
+     * The maximum number of bins that may be used, so that every bin index can
+     * be stored in a single byte.
+     */
+    public static final int MAX_BINS = 255;
+    /**
+     * The default number of data points that will be sampled to estimate the
+     * quantiles of each feature.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 200000;
+
+    /**
+     * The sorted upper boundaries of each bin for every numeric feature. The
+     * last bin of each feature has no boundary, so there are
+     * {@code boundaries[j].length+1} bins for feature <i>j</i>.
+     */
+    private double[][] boundaries;
+
+    /**
+     * Creates a new binning of the numeric features of the given data set
+     *
+     * @param data the data set to bin
+     * @param maxBins the maximum number of bins to use for each feature
+     */
+    public NumericBinning(DataSet data, int maxBins)
+    {
+        this(data, maxBins, DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * Creates a new binning of the numeric features of the given data set
+     *
+     * @param data the data set to bin
+     * @param maxBins the maximum number of bins to use for each feature
+     * @param sampleSize the maximum number of data points to use to estimate
+     * the bin boundaries
+     */
+    public NumericBinning(DataSet data, int maxBins, int sampleSize)
+    {
+        if(maxBins < 2 || maxBins > MAX_BINS)
+            throw new IllegalArgumentException("Number of bins must be in the range [2, " + MAX_BINS + "], not " + maxBins);
+        if(sampleSize < 1)
+            throw new IllegalArgumentException("Sample size must be positive, not " + sampleSize);
+
+        final int D = data.getNumNumericalVars();
+        final int N = data.size();
+
+        //Select the rows to estimate from
+        IntList rows;
+        if (N <= sampleSize)
+            rows = IntList.range(N);
+        else
+        {
+            rows = new IntList(sampleSize);
+            Random rand = RandomUtil.getRandom();
+            ListUtils.randomSample(IntList.range(N), rows, sampleSize, rand);
+        }
+
+        //grab the values one row at a time, so we don't make D passes over the data
+        double[][] columns = new double[D][rows.size()];
+        for(int r = 0; r < rows.size(); r++)
+        {
+            Vec x = data.getDataPoint(rows.getI(r)).getNumericalValues();
+            for(IndexValue iv : x)
+                columns[iv.getIndex()][r] = iv.getValue();
+        }
+
+        boundaries = new double[D][];
+        for(int j = 0; j < D; j++)
+        {
+            boundaries[j] = computeBoundaries(columns[j], maxBins);
+            columns[j] = null;//let GC have it
+        }
+    }
+
+    /**
+     * Copy constructor
+     * @param toCopy the object to copy
+     */
+    public NumericBinning(NumericBinning toCopy)
+    {
+        this.boundaries = new double[toCopy.boundaries.length][];
+        for(int j = 0; j < boundaries.length; j++)
+            this.boundaries[j] = Arrays.copyOf(toCopy.boundaries[j], toCopy.boundaries[j].length);
+    }
+
+    /**
+     * Computes the bin boundaries for a single feature
+     * @param vals the values of the feature, will be altered
+     * @param maxBins the maximum number of bins
+     * @return the array of bin boundaries
+     */
+    private static double[] computeBoundaries(double[] vals, int maxBins)
+    {
+        //move NaNs to the end and ignore them
+        int n = 0;
+        for(int i = 0; i < vals.length; i++)
+            if(!Double.isNaN(vals[i]))
+                vals[n++] = vals[i];
+        Arrays.sort(vals, 0, n);
+
+        int unique = 0;
+        for(int i = 0; i < n; i++)
+            if(i == 0 || vals[i] != vals[i-1])
+                unique++;
+
+        double[] bounds = new double[Math.max(Math.min(unique, maxBins)-1, 0)];
+        int pos = 0;
+        if(unique <= maxBins)//one bin per unique value
+        {
+            for(int i = 1; i < n; i++)
+                if(vals[i] != vals[i-1])
+                    bounds[pos++] = (vals[i-1]+vals[i])/2;
+        }
+        else//place boundaries at quantiles
+        {
+            for(int q = 1; q < maxBins; q++)
+            {
+                int i = (int) ((long) q * n / maxBins);
+                double lo = vals[Math.max(i-1, 0)];
+                //find the next value larger than lo, so the boundary falls between unique values
+                while(i < n && vals[i] <= lo)
+                    i++;
+                if(i >= n)
+                    break;
+                double b = (lo+vals[i])/2;
+                if(pos == 0 || b > bounds[pos-1])
+                    bounds[pos++] = b;
+            }
+        }
+
+        return Arrays.copyOf(bounds, pos);
+    }
+
+    /**
+     *
+     * @return the number of numeric features this binning was created for
+     */
+    public int getNumFeatures()
+    {
+        return boundaries.length;
+    }
+
+    /**
+     * Returns the number of bins used for the given numeric feature. This may
+     * be less than the maximum number of bins requested.
+     *
+     * @param feature the numeric feature index
+     * @return the number of bins for the feature
+     */
+    public int getNumBins(int feature)
+    {
+        return boundaries[feature].length+1;
+    }
+
+    /**
+     * Returns the bin that the given value belongs to.
+     *
+     * @param feature the numeric feature index
+     * @param value the value of the feature, must not be NaN
+     * @return the bin index, in the range [0, {@link #getNumBins(int) })
+     */
+    public int getBin(int feature, double value)
+    {
+        final double[] b = boundaries[feature];
+        int pos = Arrays.binarySearch(b, value);
+        return pos < 0 ? -pos-1 : pos;
+    }
+
+    /**
+     * Returns the threshold that separates the given bin from the next one.
+     * All values less than or equal to the threshold belong to the given bin
+     * or an earlier one.
+     *
+     * @param feature the numeric feature index
+     * @param bin the bin index, in the range [0, {@link #getNumBins(int) }-1)
+     * @return the upper boundary of the bin
+     */
+    public double getThreshold(int feature, int bin)
+    {
+        return boundaries[feature][bin];
+    }
+}
@@ -110,6 +110,30 @@ public class RandomDecisionTree extends DecisionTree
         return super.makeNodeR(dataPoints, options, depth, parallel, mcdl); //To change body of generated methods, choose Tools | Templates.
     }
 
+    @Override
+    Node makeNodeC(BinnedData binned, BinnedData.Subset rows, Set<Integer> options, int depth, boolean parallel, ModifiableCountDownLatch mcdl)
+    {
+        if(rows.size() == 0)
+        {
+            mcdl.countDown();
+            return null;
+        }
+        fillWithRandomFeatures(options, binned.data.getNumFeatures());
+        return super.makeNodeC(binned, rows, options, depth, parallel, mcdl);
+    }
+
+    @Override
+    Node makeNodeR(BinnedData binned, BinnedData.Subset rows, Set<Integer> options, int depth, boolean parallel, ModifiableCountDownLatch mcdl)
+    {
+        if(rows.size() == 0)
+        {
+            mcdl.countDown();
+            return null;
+        }
+        fillWithRandomFeatures(options, binned.data.getNumFeatures());
+        return super.makeNodeR(binned, rows, options, depth, parallel, mcdl);
+    }
+
     private void fillWithRandomFeatures(Set<Integer> options, final int featureCount)
     {
         options.clear();
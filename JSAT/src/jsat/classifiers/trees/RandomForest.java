@@ -1,6 +1,7 @@
 package jsat.classifiers.trees;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
@@ -18,11 +19,14 @@ import jsat.classifiers.Classifier;
 import jsat.classifiers.DataPoint;
 import jsat.classifiers.boosting.Bagging;
 import jsat.classifiers.trees.ImpurityScore.ImpurityMeasure;
+import jsat.exceptions.UntrainedModelException;
 import jsat.math.OnLineStatistics;
 import jsat.parameters.Parameterized;
 import jsat.regression.RegressionDataSet;
 import jsat.regression.Regressor;
+import jsat.utils.DoubleList;
 import jsat.utils.FakeExecutor;
+import jsat.utils.IntList;
 import jsat.utils.IntSet;
 import jsat.utils.ListUtils;
 import jsat.utils.SystemInfo;
@@ -158,6 +162,33 @@ public class RandomForest implements Classifier, Regressor, Parameterized
         return maxForestSize;
     }
 
+    /**
+     * Sets the maximum number of bins to use for numeric features. When
+     * positive, each numeric feature is quantized once for the whole forest,
+     * and every tree finds its splits from histograms of the bins instead of
+     * sorting the values at each node. A value of zero (the default) uses the
+     * exact search.
+     *
+     * @param maxNumericBins the maximum number of bins, in the range [2, 255],
+     * or zero to disable binning
+     * @see DecisionTree#setMaxNumericBins(int) 
+     */
+    public void setMaxNumericBins(int maxNumericBins)
+    {
+        baseLearner.setMaxNumericBins(maxNumericBins);
+    }
+
+    /**
+     * Returns the maximum number of bins used for numeric features, or zero if
+     * the exact search is used.
+     *
+     * @return the maximum number of bins used for numeric features
+     */
+    public int getMaxNumericBins()
+    {
+        return baseLearner.getMaxNumericBins();
+    }
+
     /**
      * Sets whether or not to compute the out of bag error during training
      * @param useOutOfBagError <tt>true</tt> to compute the out of bag error, <tt>false</tt> to skip it
@@ -294,6 +325,13 @@ public class RandomForest implements Classifier, Regressor, Parameterized
         else
             baseLearner.setRandomFeatureCount(featureSamples);
         
+        //bin once for the whole forest, every tree is trained on rows of the same data
+        final BinnedData binned;
+        if(baseLearner.getMaxNumericBins() > 0 && dataSet.getNumNumericalVars() > 0)
+            binned = new BinnedData(dataSet, new NumericBinning(dataSet, baseLearner.getMaxNumericBins()), parallel);
+        else
+            binned = null;
+        
         int roundsToDistribut = maxForestSize;
         int roundShare = roundsToDistribut / SystemInfo.LogicalCores;//The number of rounds each thread gets
         int extraRounds = roundsToDistribut % SystemInfo.LogicalCores;//The number of extra rounds that need to get distributed
@@ -321,7 +359,7 @@ public class RandomForest implements Classifier, Regressor, Parameterized
         while (roundsToDistribut > 0)
         {
             int extra = (extraRounds-- > 0) ? 1 : 0;
-            Future<LearningWorker> future = threadPool.submit(new LearningWorker(dataSet, roundShare + extra, new Random(rand.nextInt()), counts, pred));
+            Future<LearningWorker> future = threadPool.submit(new LearningWorker(dataSet, binned, roundShare + extra, new Random(rand.nextInt()), counts, pred));
             roundsToDistribut -= (roundShare + extra);
             futures.add(future);
         }
@@ -381,6 +419,33 @@ public class RandomForest implements Classifier, Regressor, Parameterized
 
     }
 
+    /**
+     * Compiles the trained forest into a flat, array based form that can make
+     * predictions faster than walking each tree, and without allocating
+     * objects per data point.
+     *
+     * @param numNumeric the number of numeric features of the training data
+     * @param catInfo the categorical feature information of the training data
+     * @return the compiled forest
+     * @see CompiledTrees
+     */
+    public CompiledTrees compile(int numNumeric, CategoricalData[] catInfo)
+    {
+        if(forest == null || forest.isEmpty())
+            throw new UntrainedModelException("Model has not yet been trained");
+        List<TreeNodeVisitor> roots = new ArrayList<>(forest.size());
+        for(DecisionTree tree : forest)
+            roots.add(tree.getTreeNodeVisitor());
+        double[] weights = new double[roots.size()];
+        if(predicting != null)
+        {
+            Arrays.fill(weights, 1.0);
+            return new CompiledTrees(roots, weights, CompiledTrees.Combination.VOTE, predicting.getNumOfCategories(), numNumeric, catInfo);
+        }
+        Arrays.fill(weights, 1.0/roots.size());
+        return new CompiledTrees(roots, weights, CompiledTrees.Combination.SUM, 0, numNumeric, catInfo);
+    }
+
     @Override
     public RandomForest clone()
     {
@@ -413,6 +478,10 @@ public class RandomForest implements Classifier, Regressor, Parameterized
         int toLearn;
         List<DecisionTree> learned;
         DataSet dataSet;
+        /**
+         * The binned data set, or {@code null} if the trees do not use binning
+         */
+        BinnedData binned;
         Random random;
         OnLineStatistics[] fi;
         /**
@@ -422,9 +491,10 @@ public class RandomForest implements Classifier, Regressor, Parameterized
   
         private int[][] counts;
 
-        public LearningWorker(DataSet dataSet, int toLearn, Random random, int[][] counts, AtomicDoubleArray pred)
+        public LearningWorker(DataSet dataSet, BinnedData binned, int toLearn, Random random, int[][] counts, AtomicDoubleArray pred)
         {
             this.dataSet = dataSet;
+            this.binned = binned;
             this.toLearn = toLearn;
             this.random = random;
             this.learned = new ArrayList<DecisionTree>(toLearn);
@@ -457,7 +527,23 @@ public class RandomForest implements Classifier, Regressor, Parameterized
                                 
                 RandomDecisionTree learner = baseLearner.clone();
                 
-                if(dataSet instanceof ClassificationDataSet)
+                if(binned != null)//train on the sampled rows of the binned data, weighted by how often they were sampled
+                {
+                    IntList rows = new IntList();
+                    DoubleList weights = new DoubleList();
+                    for(int j = 0; j < sampleCounts.length; j++)
+                        if(sampleCounts[j] > 0)
+                        {
+                            rows.add(j);
+                            weights.add(dataSet.getWeight(j)*sampleCounts[j]);
+                        }
+                    BinnedData.Subset sample = new BinnedData.Subset(rows.streamInts().toArray(), weights.getVecView().arrayCopy());
+                    if(dataSet instanceof ClassificationDataSet)
+                        learner.trainC(binned, sample, features, false);
+                    else
+                        learner.trainR(binned, sample, features, false);
+                }
+                else if(dataSet instanceof ClassificationDataSet)
                     learner.trainC(Bagging.getWeightSampledDataSet((ClassificationDataSet)dataSet, sampleCounts), features);
                 else //It must be regression!
                     learner.train(Bagging.getWeightSampledDataSet((RegressionDataSet)dataSet, sampleCounts), features);
@@ -491,25 +577,11 @@ public class RandomForest implements Classifier, Regressor, Parameterized
                 
                 if(useOutOfBagImportance)
                 {
-                    DataSet oob;
-                    if(dataSet instanceof ClassificationDataSet)
-                    {
-                        ClassificationDataSet cds = (ClassificationDataSet)dataSet;
-                        ClassificationDataSet oob_ = new ClassificationDataSet(cds.getNumNumericalVars(), cds.getCategories(), cds.getPredicting());
-                        for(int j = 0; j < sampleCounts.length; j++)
-                            if(sampleCounts[j] == 0)
-                                oob_.addDataPoint(cds.getDataPoint(j), cds.getDataPointCategory(j));
-                        oob = oob_;
-                    }
-                    else//regression
-                    {
-                        RegressionDataSet rds = (RegressionDataSet)dataSet;
-                        RegressionDataSet oob_ = new RegressionDataSet(rds.getNumNumericalVars(), rds.getCategories());
-                        for(int j = 0; j < sampleCounts.length; j++)
-                            if(sampleCounts[j] == 0)
-                                oob_.addDataPoint(rds.getDataPoint(j), rds.getTargetValue(j));
-                        oob = oob_;
-                    }
+                    IntList oobRows = new IntList();
+                    for(int j = 0; j < sampleCounts.length; j++)
+                        if(sampleCounts[j] == 0)
+                            oobRows.add(j);
+                    DataSet oob = dataSet.getSubset(oobRows.streamInts().toArray());
                     
                     double[] oob_import = importanceMeasure.getImportanceStats(learner, oob);
                     for(int j = 0; j < fi.length; j++)
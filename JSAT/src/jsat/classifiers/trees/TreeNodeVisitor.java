@@ -112,6 +112,22 @@ public abstract class TreeNodeVisitor implements Serializable, Cloneable
      */
     abstract public int getPath(DataPoint dp);
     
+    /**
+     * Optional operation!<br>
+     * If this node picks its path by comparing a single numeric feature to a
+     * threshold, this returns that threshold. Data points with a value less
+     * than or equal to the threshold take path 0, and larger values take path
+     * 1. This allows the tree to be compiled into a flat form by 
+     * {@link CompiledTrees}.
+     *
+     * @return the threshold used by this node, or {@link Double#NaN} if this
+     * node does not make a numeric threshold split
+     */
+    public double getSplitThreshold()
+    {
+        return Double.NaN;
+    }
+    
     /**
      * Returns the relative weight of each path, which should be an indication
      * of how much of the training data went down each path. By default, returns 1.0/{@link #childrenCount()
@@ -136,7 +152,7 @@ public abstract class TreeNodeVisitor implements Serializable, Cloneable
             {
                 double sum = 0;
                 DenseVector resultSum = null;
-                for(int child = 0; child < childrenCount(); child++)
+                for(int child = 0; child < node.childrenCount(); child++)
                 {
                     if(node.isPathDisabled(child))
                         continue;
@@ -192,7 +208,7 @@ public abstract class TreeNodeVisitor implements Serializable, Cloneable
             {
                 double sum = 0;
                 double resultSum = 0;
-                for(int child = 0; child < childrenCount(); child++)
+                for(int child = 0; child < node.childrenCount(); child++)
                 {
                     if(node.isPathDisabled(child))
                         continue;
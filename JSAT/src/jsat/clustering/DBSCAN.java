@@ -9,6 +9,7 @@ import jsat.linear.distancemetrics.DistanceMetric;
 import jsat.linear.distancemetrics.EuclideanDistance;
 import jsat.linear.distancemetrics.TrainableDistanceMetric;
 import jsat.linear.vectorcollection.DefaultVectorCollection;
+import jsat.linear.vectorcollection.KNNGraph;
 import jsat.linear.vectorcollection.VectorCollection;
 import jsat.linear.vectorcollection.VectorCollectionUtils;
 import jsat.math.OnLineStatistics;
@@ -105,15 +106,34 @@ public class DBSCAN extends ClustererBase
         TrainableDistanceMetric.trainIfNeeded(dm, dataSet, parallel);
         vc.build(parallel, getVecIndexPairs(dataSet), dm);
         
-        List<List<Integer>> neighbors = new ArrayList<>();
-        List<List<Double>> distances = new ArrayList<>();
-        vc.search(vc, minPts+1, neighbors, distances, parallel);
+        return cluster(dataSet, minPts, KNNGraph.build(vc, minPts, parallel), parallel, designations);
+    }
+    
+    /**
+     * Performs clustering, estimating the radius from the distance of each
+     * point to its <i>minPts</i>'th nearest neighbor in the given graph.
+     * Sharing a graph avoids re-computing the nearest neighbors when they are
+     * already known.
+     *
+     * @param dataSet the data set to cluster
+     * @param minPts the minimum number of points needed to form a cluster
+     * @param graph the nearest neighbor graph of the data set, with at least
+     * <i>minPts</i> neighbors per point
+     * @param parallel {@code true} if multiple threads should be used
+     * @param designations the array to store the cluster assignments in, or
+     * {@code null}
+     * @return the cluster assignment of every point
+     */
+    public int[] cluster(DataSet dataSet, int minPts, KNNGraph graph, boolean parallel, int[] designations)
+    {
+        graph.checkCompatible(dataSet.size(), minPts);
+        TrainableDistanceMetric.trainIfNeeded(dm, dataSet, parallel);
         
         OnLineStatistics stats = ParallelUtils.run(parallel, dataSet.size(), (start, end)->
         {
             OnLineStatistics s = new OnLineStatistics();
             for(int i = start; i < end; i++)
-                s.add(distances.get(i).get(minPts));
+                s.add(graph.getDistance(i, minPts-1));
             return s;
         }, (t, u)->t.apply(t, u));
         
@@ -19,7 +19,6 @@ package jsat.clustering;
 import java.util.*;
 import jsat.DataSet;
 import jsat.linear.Vec;
-import jsat.linear.VecPaired;
 import jsat.linear.distancemetrics.DistanceMetric;
 import jsat.linear.distancemetrics.EuclideanDistance;
 import jsat.linear.vectorcollection.*;
@@ -209,6 +208,29 @@ public class HDBSCAN implements Clusterer, Parameterized
 
     @Override
     public int[] cluster(DataSet dataSet, boolean parallel, int[] designations)
+    {
+        @SuppressWarnings("unchecked")
+        final List<Vec> X = dataSet.getDataVectors();
+        VectorCollection<Vec> X_vc = vc.clone();
+        X_vc.build(parallel, X, dm);
+        
+        return cluster(dataSet, KNNGraph.build(X_vc, Math.max(1, m_pts-1), parallel), parallel, designations);
+    }
+    
+    /**
+     * Performs clustering, using the given graph to find the core distance of
+     * each point. Sharing a graph avoids re-computing the nearest neighbors
+     * when they are already known.
+     *
+     * @param dataSet the data set to cluster
+     * @param graph the nearest neighbor graph of the data set, with at least
+     * <i>m_pts</i>-1 neighbors per point
+     * @param parallel {@code true} if multiple threads should be used
+     * @param designations the array to store the cluster assignments in, or
+     * {@code null}
+     * @return the cluster assignment of every point
+     */
+    public int[] cluster(DataSet dataSet, KNNGraph graph, boolean parallel, int[] designations)
     {
         if(designations == null)
             designations = new int[dataSet.size()];
@@ -216,18 +238,17 @@ public class HDBSCAN implements Clusterer, Parameterized
         @SuppressWarnings("unchecked")
         final List<Vec> X = dataSet.getDataVectors();
         final int N = X.size();
+        graph.checkCompatible(N, m_pts-1);
         List<Double> cache = dm.getAccelerationCache(X, parallel);
-        VectorCollection<Vec> X_vc = vc.clone();
-        X_vc.build(parallel, X, dm);
         //1. Compute the core distance w.r.t. m_pts for all data objects in X.
         /*
          * (Core Distance): The core distance of an object x_p ∈ X w.r.t. m_pts, 
          * d_core(x_p), is the distance from x_p to its m_pts-nearest neighbor (incl. x_p)
          */
-        List<List<? extends VecPaired<Vec, Double>>> allNearestNeighbors = VectorCollectionUtils.allNearestNeighbors(X_vc, X, m_pts, parallel);
         double[] core = new double[N];
-        for(int i = 0; i < N; i++)
-            core[i] = allNearestNeighbors.get(i).get(m_pts-1).getPair();
+        if(m_pts > 1)//the graph does not include x_p, so that is the (m_pts-1)'th neighbor
+            for(int i = 0; i < N; i++)
+                core[i] = graph.getDistance(i, m_pts-2);
         
         //2. Compute an MST of G_{m_pts}, the Mutual Reachability Graph.
         
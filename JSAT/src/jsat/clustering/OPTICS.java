@@ -511,6 +511,26 @@ public class OPTICS extends ClustererBase implements Parameterized
 
     @Override
     public int[] cluster(DataSet dataSet, int[] designations)
+    {
+        return cluster(dataSet, null, false, designations);
+    }
+    
+    /**
+     * Performs clustering, estimating the search radius from the distance of
+     * each point to its <i>minPts</i>'th nearest neighbor in the given graph.
+     * Sharing a graph avoids re-computing the nearest neighbors when they are
+     * already known.
+     *
+     * @param dataSet the data set to cluster
+     * @param graph the nearest neighbor graph of the data set, with at least
+     * <i>minPts</i> neighbors per point, or {@code null} to compute the
+     * neighbors as needed
+     * @param parallel ignored, OPTICS is computed serially
+     * @param designations the array to store the cluster assignments in, or
+     * {@code null}
+     * @return the cluster assignment of every point
+     */
+    public int[] cluster(DataSet dataSet, KNNGraph graph, boolean parallel, int[] designations)
     {
         if(dataSet.getNumNumericalVars() < 1)
             throw new ClusterFailureException("OPTICS requires numeric features, and non are present.");
@@ -536,7 +556,16 @@ public class OPTICS extends ClustererBase implements Parameterized
 
         //Estimate radius value
 
-        OnLineStatistics stats = VectorCollectionUtils.getKthNeighborStats(vc, allVecs, minPts+1);
+        OnLineStatistics stats;
+        if(graph == null)
+            stats = VectorCollectionUtils.getKthNeighborStats(vc, allVecs, minPts+1);
+        else
+        {
+            graph.checkCompatible(n, minPts);
+            stats = new OnLineStatistics();
+            for(int i = 0; i < n; i++)//graph does not include self, so one less
+                stats.add(graph.getDistance(i, minPts-1));
+        }
 
         radius = stats.getMean() + stats.getStandardDeviation() * 3;
 
@@ -226,7 +226,7 @@ public class HamerlyKMeans extends KMeans
             }, (a, b) -> a + b);
             
             //acumulate all deltas
-            ParallelUtils.range(cP.length, parallel).forEach(i -> 
+            ParallelUtils.run(parallel, cP.length, i -> 
             {
                 for (Vec[] deltas : allLocalDeltas)
                 {
@@ -9,8 +9,11 @@ import jsat.classifiers.CategoricalData;
 import jsat.classifiers.DataPoint;
 import jsat.linear.DenseMatrix;
 import jsat.linear.DenseVector;
+import jsat.linear.IncrementalSVD;
 import jsat.linear.Matrix;
+import jsat.linear.RandomizedSVD;
 import jsat.linear.Vec;
+import jsat.utils.random.RandomUtil;
 
 /**
  * Principle Component Analysis is a method that attempts to create a basis of 
@@ -27,7 +30,14 @@ import jsat.linear.Vec;
  * For PCA to work correctly, a {@link ZeroMeanTransform} should 
  * be applied to the data set first. If not done, the first 
  * dimension of PCA may contain noise and become uninformative,
- * possibly throwing off the computation of the other PCs
+ * possibly throwing off the computation of the other PCs<br>
+ * <br>
+ * By default the PCs are found with the NIPALS algorithm. When
+ * {@link #setRandomized(boolean) randomized} is enabled, a
+ * {@link RandomizedSVD randomized SVD} is used instead, which makes only a few
+ * passes over the data and does not make sparse data dense. The PCs may also be
+ * learned from mini-batches with {@link #partialFit(jsat.DataSet) partialFit},
+ * which only needs memory for the current batch.
  * 
  * @author Edward Raff
  * @see ZeroMeanTransform
@@ -42,6 +52,12 @@ public class PCA implements DataTransform
     private Matrix P;
     private int maxPCs;
     private double threshold;
+    private boolean randomized = false;
+    /**
+     * The state of the mini-batch updates, {@code null} if
+     * {@link #partialFit(jsat.DataSet) } has not been used.
+     */
+    private IncrementalSVD incremental;
     
     /**
      * Creates a new object for performing PCA that stops at 50 principal components. This may not be optimal for any particular dataset
@@ -131,6 +147,50 @@ public class PCA implements DataTransform
 
     @Override
     public void fit(DataSet dataSet)
+    {
+        fit(dataSet, false);
+    }
+
+    /**
+     * Learns the principal components of the given data set, discarding any
+     * previous state.
+     *
+     * @param dataSet the data set to learn from
+     * @param parallel {@code true} if multiple threads should be used when
+     * the {@link #setRandomized(boolean) randomized} algorithm is used.
+     */
+    public void fit(DataSet dataSet, boolean parallel)
+    {
+        incremental = null;
+        if(!randomized)
+        {
+            fitNIPALS(dataSet);
+            return;
+        }
+        int PCs = Math.min(dataSet.size(), dataSet.getNumNumericalVars());
+        PCs = Math.min(maxPCs, PCs);
+        RandomizedSVD svd = new RandomizedSVD(dataSet.getDataVectors(), null, null, PCs, 10, 4, RandomUtil.getRandom(), parallel);
+        P = svd.getVt();
+    }
+
+    /**
+     * Updates the principal components with a new mini-batch of data. Only the
+     * current PCs and the given batch are kept in memory, so this can be used
+     * on data sets that are too large to fit in memory. The first call will
+     * discard any PCs learned by {@link #fit(jsat.DataSet) }.
+     *
+     * @param batch the next batch of data to learn from
+     */
+    public void partialFit(DataSet batch)
+    {
+        if(incremental == null)
+            incremental = new IncrementalSVD(maxPCs, false);
+        incremental.update(batch.getDataVectors());
+        if(incremental.getVt() != null)
+            P = incremental.getVt();
+    }
+
+    private void fitNIPALS(DataSet dataSet)
     {
         //Edwad, don't forget. This is: Nonlinear Iterative PArtial Least Squares (NIPALS) algo
         List<Vec> scores = new ArrayList<Vec>();
@@ -200,6 +260,9 @@ public class PCA implements DataTransform
             this.P = other.P.clone();
         this.maxPCs = other.maxPCs;
         this.threshold = other.threshold;
+        this.randomized = other.randomized;
+        if(other.incremental != null)
+            this.incremental = other.incremental.clone();
     }
 
     /**
@@ -237,6 +300,31 @@ public class PCA implements DataTransform
     {
         return threshold;
     }
+
+    /**
+     * Sets whether the PCs should be found with a randomized SVD, or with the
+     * NIPALS algorithm. The randomized algorithm is much faster when many PCs
+     * are wanted, and does not need a dense copy of the data. The
+     * {@link #setThreshold(double) threshold} is only used by NIPALS.
+     *
+     * @param randomized {@code true} to use the randomized SVD,
+     * {@code false} to use NIPALS
+     */
+    public void setRandomized(boolean randomized)
+    {
+        this.randomized = randomized;
+    }
+
+    /**
+     * Returns {@code true} if the randomized SVD is used, or {@code false} if
+     * NIPALS is used.
+     *
+     * @return {@code true} if the randomized SVD is used
+     */
+    public boolean isRandomized()
+    {
+        return randomized;
+    }
     
     /**
      * Returns the first non zero column
@@ -1,12 +1,14 @@
 package jsat.datatransform;
 
 import java.util.Comparator;
+import java.util.List;
 import jsat.DataSet;
 import jsat.classifiers.DataPoint;
 import jsat.distributions.Distribution;
 import jsat.distributions.discrete.UniformDiscrete;
 import jsat.linear.*;
 import static jsat.linear.MatrixStatistics.*;
+import jsat.utils.random.RandomUtil;
 
 /**
  * An extension of {@link PCA} that attempts to capture the variance, and make 
@@ -16,7 +18,15 @@ import static jsat.linear.MatrixStatistics.*;
  * dimension shrinks<br>
  * <br>
  * The Whitened PCA is more computational expensive than the normal PCA 
- * algorithm, but transforming the data takes the same time. 
+ * algorithm, but transforming the data takes the same time. <br>
+ * <br>
+ * By default the full covariance matrix is computed and decomposed, which
+ * needs O(<i>d</i><sup>2</sup>) memory. When
+ * {@link #setRandomized(boolean) randomized} is enabled, only the top
+ * {@link #getDimensions() dimensions} eigenvectors of the covariance are
+ * found with a {@link RandomizedSVD} of the centered data, without forming
+ * the covariance or making sparse data dense. The transform can also be
+ * learned from mini-batches with {@link #partialFit(jsat.DataSet) partialFit}.
  * 
  * @author Edward Raff
  */
@@ -38,6 +48,16 @@ public class WhitenedPCA extends DataTransformBase
      * <tt>y</tt> = <tt>transform</tt> * x
      */
     protected Matrix transform;
+    private boolean randomized = false;
+    /**
+     * The state of the mini-batch updates, {@code null} if
+     * {@link #partialFit(jsat.DataSet) } has not been used.
+     */
+    private IncrementalSVD incremental;
+    /**
+     * The sum of the squared weights seen by {@link #incremental}
+     */
+    private double incrementalSumOfSquaredWeights;
 
     /**
      * Creates a new WhitenedPCA transform that uses up to 50 dimensions for the
@@ -88,7 +108,81 @@ public class WhitenedPCA extends DataTransformBase
     @Override
     public void fit(DataSet dataSet)
     {
-        setUpTransform(getSVD(dataSet));
+        fit(dataSet, false);
+    }
+
+    /**
+     * Learns the whitening transform from the given data set, discarding any
+     * previous state.
+     *
+     * @param dataSet the data set to whiten
+     * @param parallel {@code true} if multiple threads should be used when
+     * the {@link #setRandomized(boolean) randomized} algorithm is used.
+     */
+    public void fit(DataSet dataSet, boolean parallel)
+    {
+        incremental = null;
+        if(!randomized)
+        {
+            setUpTransform(getSVD(dataSet));
+            return;
+        }
+
+        List<Vec> X = dataSet.getDataVectors();
+        double[] weights = new double[X.size()];
+        double sumOfWeights = 0, sumOfSquaredWeights = 0;
+        for(int i = 0; i < weights.length; i++)
+        {
+            weights[i] = dataSet.getWeight(i);
+            sumOfWeights += weights[i];
+            sumOfSquaredWeights += weights[i]*weights[i];
+        }
+        int k = Math.min(dimensions, Math.min(X.size(), dataSet.getNumNumericalVars()));
+        RandomizedSVD svd = new RandomizedSVD(X, weights, meanVector(dataSet), k, 10, 4, RandomUtil.getRandom(), parallel);
+        setUpTransform(svd.getVt().transpose(), toEigenValues(svd.getSingularValues(), sumOfWeights, sumOfSquaredWeights));
+    }
+
+    /**
+     * Updates the whitening transform with a new mini-batch of data. Only the
+     * top {@link #getDimensions() dimensions} eigenvectors of the covariance
+     * and the given batch are kept in memory, so this can be used on data sets
+     * that are too large to fit in memory. The first call will discard the
+     * transform learned by {@link #fit(jsat.DataSet) }.
+     *
+     * @param batch the next batch of data to learn from
+     */
+    public void partialFit(DataSet batch)
+    {
+        if(incremental == null)
+        {
+            incremental = new IncrementalSVD(dimensions, true);
+            incrementalSumOfSquaredWeights = 0;
+        }
+        double[] weights = new double[batch.size()];
+        for(int i = 0; i < weights.length; i++)
+        {
+            weights[i] = batch.getWeight(i);
+            incrementalSumOfSquaredWeights += weights[i]*weights[i];
+        }
+        incremental.update(batch.getDataVectors(), weights);
+        if(incremental.getVt() != null)
+            setUpTransform(incremental.getVt().transpose(), toEigenValues(incremental.getSingularValues(), incremental.getSumOfWeights(), incrementalSumOfSquaredWeights));
+    }
+
+    /**
+     * Converts the singular values of the weighted and centered data into
+     * the eigenvalues of its covariance matrix, using the same normalization
+     * as {@link MatrixStatistics#covarianceMatrix(jsat.linear.Vec, jsat.DataSet) }
+     */
+    private static double[] toEigenValues(double[] s, double sumOfWeights, double sumOfSquaredWeights)
+    {
+        double denom = sumOfWeights*sumOfWeights - sumOfSquaredWeights;
+        //only one point seen so far, avoid dividing by zero
+        double scale = denom > 0 ? sumOfWeights/denom : 1/sumOfWeights;
+        double[] lambda = new double[s.length];
+        for(int i = 0; i < s.length; i++)
+            lambda[i] = s[i]*s[i]*scale;
+        return lambda;
     }
     
     /**
@@ -149,6 +243,10 @@ public class WhitenedPCA extends DataTransformBase
         this.regularization = other.regularization;
         this.dimensions = other.dimensions;
         this.transform = other.transform.clone();
+        this.randomized = other.randomized;
+        if(other.incremental != null)
+            this.incremental = other.incremental.clone();
+        this.incrementalSumOfSquaredWeights = other.incrementalSumOfSquaredWeights;
     }
 
     /**
@@ -185,14 +283,27 @@ public class WhitenedPCA extends DataTransformBase
      */
     protected void setUpTransform(SingularValueDecomposition svd)
     {
-        Vec diag = new DenseVector(dimensions);
-        
-        double[] s = svd.getSingularValues();
+        setUpTransform(svd.getU(), svd.getSingularValues());
+    }
+
+    /**
+     * Creates the {@link #transform transform matrix} to be used when 
+     * converting data points.
+     * 
+     * @param U the <i>d</i> x <i>k</i> matrix with the eigenvectors of the
+     * covariance as its columns, where <i>k</i> may be less than <i>d</i>
+     * @param s the eigenvalues of the covariance, sorted from largest to
+     * smallest
+     */
+    protected void setUpTransform(Matrix U, double[] s)
+    {
+        int dims = Math.min(dimensions, Math.min(s.length, U.cols()));
+        Vec diag = new DenseVector(dims);
         
-        for(int i = 0; i < dimensions; i++)
+        for(int i = 0; i < dims; i++)
             diag.set(i, 1.0/Math.sqrt(s[i]+regularization));
         
-        transform = new SubMatrix(svd.getU().transpose(), 0, 0, dimensions, s.length).clone();
+        transform = new SubMatrix(U.transpose(), 0, 0, dims, U.rows()).clone();
         
         Matrix.diagMult(diag, transform);
     }
@@ -229,6 +340,32 @@ public class WhitenedPCA extends DataTransformBase
         return regularization;
     }
 
+    /**
+     * Sets whether the transform should be learned from a randomized SVD of
+     * the data, or from the full covariance matrix. The randomized version
+     * only finds the top {@link #getDimensions() dimensions} eigenvectors,
+     * which is much faster and uses less memory when the number of features
+     * is large.
+     *
+     * @param randomized {@code true} to use a randomized SVD, {@code false}
+     * to decompose the full covariance matrix
+     */
+    public void setRandomized(boolean randomized)
+    {
+        this.randomized = randomized;
+    }
+
+    /**
+     * Returns {@code true} if a randomized SVD is used to learn the
+     * transform.
+     *
+     * @return {@code true} if a randomized SVD is used
+     */
+    public boolean isRandomized()
+    {
+        return randomized;
+    }
+
     @Override
     public DataTransform clone()
     {
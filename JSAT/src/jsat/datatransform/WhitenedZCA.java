@@ -7,7 +7,12 @@ import jsat.linear.*;
 /**
  * An extension of {@link WhitenedPCA}, is the Whitened Zero Component Analysis.
  * Whitened ZCA can not project to a lower dimension, as it rotates the output 
- * in the original dimension.
+ * in the original dimension. <br>
+ * When {@link #setRandomized(boolean) randomized} or
+ * {@link #partialFit(jsat.DataSet) mini-batch} learning is used, only the top
+ * {@link #getDimensions() dimensions} eigenvectors of the covariance are
+ * known. The output is then the whitened projection onto that subspace,
+ * rotated back into the original dimension.
  * 
  * @author Edward Raff
  */
@@ -78,9 +83,23 @@ public class WhitenedZCA extends WhitenedPCA implements InPlaceTransform
     @Override
     public void fit(DataSet dataSet)
     {
-        super.fit(dataSet);
+        fit(dataSet, false);
+    }
+
+    @Override
+    public void fit(DataSet dataSet, boolean parallel)
+    {
+        super.fit(dataSet, parallel);
         tempVecs = getThreadLocal(dataSet.getNumNumericalVars());
     }
+
+    @Override
+    public void partialFit(DataSet batch)
+    {
+        super.partialFit(batch);
+        if(tempVecs == null)
+            tempVecs = getThreadLocal(batch.getNumNumericalVars());
+    }
     
     
 
@@ -100,15 +119,16 @@ public class WhitenedZCA extends WhitenedPCA implements InPlaceTransform
     }
 
     @Override
-    protected void setUpTransform(SingularValueDecomposition svd)
+    protected void setUpTransform(Matrix U, double[] s)
     {
-        double[] s = svd.getSingularValues();
-        Vec diag = new DenseVector(s.length);
+        int k = Math.min(s.length, U.cols());
+        Vec diag = new DenseVector(k);
 
-        for(int i = 0; i < s.length; i++)
+        for(int i = 0; i < k; i++)
             diag.set(i, 1.0/Math.sqrt(s[i]+regularization));
         
-        Matrix U = svd.getU();
+        if(k < U.cols())
+            U = new SubMatrix(U, 0, 0, U.rows(), k);
         
         transform = U.multiply(Matrix.diag(diag)).multiply(U.transpose());
     }
@@ -19,6 +19,7 @@ import jsat.linear.Matrix;
 import jsat.linear.RowColumnOps;
 import jsat.linear.Vec;
 import jsat.parameters.Parameter.ParameterHolder;
+import jsat.utils.concurrent.ParallelUtils;
 import jsat.utils.random.RandomUtil;
 
 /**
@@ -135,6 +136,18 @@ public class KernelPCA extends DataTransformBase
 
     @Override
     public void fit(DataSet ds)
+    {
+        fit(ds, false);
+    }
+
+    /**
+     * Learns the kernel principal components of the given data set.
+     *
+     * @param ds the data set to learn from
+     * @param parallel {@code true} if multiple threads should be used to
+     * compute the kernel matrix and its eigen decomposition
+     */
+    public void fit(DataSet ds, boolean parallel)
     {
         if(ds.size() <= basisSize)
         {
@@ -156,7 +169,7 @@ public class KernelPCA extends DataTransformBase
         rowAvg = new double[K.rows()];
         allAvg = 0;
         
-        for(int i = 0; i < K.rows(); i++)
+        ParallelUtils.run(parallel, K.rows(), (i)->
         {
             Vec x_i = vecs[i];
             for(int j = i; j < K.cols(); j++)
@@ -166,7 +179,7 @@ public class KernelPCA extends DataTransformBase
 
                 K.set(j, i, K_ij);//K = K'
             }
-        }
+        });
         
         //Get row / col info to perform centering. Since K is symetric, the row 
         //and col info are the same
@@ -191,7 +204,7 @@ public class KernelPCA extends DataTransformBase
                 K.set(i, j, K.get(i, j) - rowAvg[i] - rowAvg[j] + allAvg);
         
         
-        EigenValueDecomposition evd = new EigenValueDecomposition(K);
+        EigenValueDecomposition evd = parallel ? new EigenValueDecomposition(K, ParallelUtils.CACHED_THREAD_POOL) : new EigenValueDecomposition(K);
         evd.sortByEigenValue(new Comparator<Double>() 
         {
             @Override
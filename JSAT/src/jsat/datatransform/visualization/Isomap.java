@@ -29,6 +29,7 @@ import jsat.linear.*;
 import jsat.linear.distancemetrics.DistanceMetric;
 import jsat.linear.distancemetrics.EuclideanDistance;
 import jsat.linear.vectorcollection.DefaultVectorCollection;
+import jsat.linear.vectorcollection.KNNGraph;
 import jsat.linear.vectorcollection.VectorCollection;
 import jsat.utils.FakeExecutor;
 import jsat.utils.FibHeap;
@@ -146,6 +147,24 @@ public class Isomap implements VisualizationTransform
     
     @Override
     public <Type extends DataSet> Type transform(DataSet<Type> d, boolean parallel)
+    {
+        return transform(d, null, parallel);
+    }
+    
+    /**
+     * Transforms the given data set, using the given nearest neighbor graph
+     * rather than computing it. Sharing a graph avoids re-computing the
+     * nearest neighbors when they are already known.
+     *
+     * @param <Type> the type of the data set
+     * @param d the data set to transform
+     * @param graph the nearest neighbor graph of the data set, with at least
+     * as many neighbors per point as {@link #getNeighbors() }, or
+     * {@code null} to compute it
+     * @param parallel {@code true} if multiple threads should be used
+     * @return the transformed data set
+     */
+    public <Type extends DataSet> Type transform(DataSet<Type> d, KNNGraph graph, boolean parallel)
     {
         final int N = d.size();
         final Matrix delta = new DenseMatrix(N, N);
@@ -160,47 +179,43 @@ public class Isomap implements VisualizationTransform
         final List<VecPaired<Vec, Integer>> vecs = new ArrayList<>(N);
         for(int i = 0; i < N; i++)
             vecs.add(new VecPaired<>(d.getDataPoint(i).getNumericalValues(), i));
-        vc.build(parallel, vecs, dm);
         final List<Double> cache = dm.getAccelerationCache(vecs, parallel);
                 
-        final int knn = searchNeighbors+1;//+1 b/c we are closest to ourselves
+        final int knn = searchNeighbors;
+        if(graph == null)
+        {
+            vc.build(parallel, vecs, dm);
+            graph = KNNGraph.build(vc, knn, parallel);
+        }
+        else
+            graph.checkCompatible(N, knn);
+        final KNNGraph neighborGraph = graph;
         
-        //bleh, ugly generics...
-        final List<List<? extends VecPaired<VecPaired<Vec, Integer>, Double>>> neighborGraph = new ArrayList<>();
-        for (int i = 0; i < N; i++)
-            neighborGraph.add(null);
-            
+        //the weight of each edge, which may be altered for c-isomap
+        final double[][] weights = new double[N][knn];
         final double[] avgNeighborDist = new double[N];
         
-        //do knn search and store results so we can do distances
         ParallelUtils.run(parallel, N, (i)->
         {
-            List<? extends VecPaired<VecPaired<Vec, Integer>, Double>> neighbors = vc.search(vecs.get(i).getVector(), knn);
-            neighborGraph.set(i, neighbors);
             //Compute stats that may be used for c-isomap version
-            for (int z = 1; z < neighbors.size(); z++)
+            for (int z = 0; z < knn; z++)
             {
-                VecPaired<VecPaired<Vec, Integer>, Double> neighbor = neighbors.get(z);
-                double dist = neighbor.getPair();
-                avgNeighborDist[i] += dist;
+                weights[i][z] = neighborGraph.getDistance(i, z);
+                avgNeighborDist[i] += weights[i][z];
             }
-            avgNeighborDist[i] /= (neighbors.size()-1);
+            avgNeighborDist[i] /= knn;
         });
         
         if(c_isomap)
         {
-            int i = 0;
-            for(List<? extends VecPaired<VecPaired<Vec, Integer>, Double>> neighbors : neighborGraph)
-            {
-                for(VecPaired<VecPaired<Vec, Integer>, Double> neighbor : neighbors)
-                    neighbor.setPair(neighbor.getPair()/Math.sqrt(avgNeighborDist[neighbor.getVector().getPair()]+avgNeighborDist[i]+1e-6));
-                i++;
-            }
+            for(int i = 0; i < N; i++)
+                for(int z = 0; z < knn; z++)
+                    weights[i][z] /= Math.sqrt(avgNeighborDist[neighborGraph.getNeighbor(i, z)]+avgNeighborDist[i]+1e-6);
         }
         
         ParallelUtils.run(parallel, N, (k)->
         {
-            double[] tmp_dist = dijkstra(neighborGraph, k);
+            double[] tmp_dist = dijkstra(neighborGraph, weights, k);
             for (int i = 0; i < N; i++)
             {
                 tmp_dist[i] = Math.min(tmp_dist[i], delta.get(k, i));
@@ -239,7 +254,7 @@ public class Isomap implements VisualizationTransform
         return (Type) transformed;
     }
 
-    private double[] dijkstra(List<List<? extends VecPaired<VecPaired<Vec, Integer>, Double>>> neighborGraph, int sourceIndex)
+    private double[] dijkstra(KNNGraph neighborGraph, double[][] weights, int sourceIndex)
     {
         //TODO generalize and move this out into some other class as a static method 
         final int N = neighborGraph.size();
@@ -258,12 +273,10 @@ public class Isomap implements VisualizationTransform
             FibHeap.FibNode<Integer> u = Q.removeMin();
             int u_indx = u.getValue();
 
-            List<? extends VecPaired<VecPaired<Vec, Integer>, Double>> neighbors = neighborGraph.get(u_indx);
-            for (int z = 1; z < neighbors.size(); z++)
+            for (int z = 0; z < weights[u_indx].length; z++)
             {
-                VecPaired<VecPaired<Vec, Integer>, Double> neighbor = neighbors.get(z);
-                int j = neighbor.getVector().getPair();
-                double u_j_dist = neighbor.getPair();
+                int j = neighborGraph.getNeighbor(u_indx, z);
+                double u_j_dist = weights[u_indx][z];
                 double alt = dist[u_indx] + u_j_dist;
 
                 if (alt < dist[j])
@@ -27,6 +27,7 @@ import jsat.linear.DenseVector;
 import jsat.linear.Vec;
 import jsat.linear.distancemetrics.DistanceMetric;
 import jsat.linear.distancemetrics.EuclideanDistance;
+import jsat.linear.vectorcollection.KNNGraph;
 import jsat.utils.SystemInfo;
 import jsat.utils.concurrent.ParallelUtils;
 import jsat.utils.random.RandomUtil;
@@ -181,6 +182,24 @@ public class LargeViz implements VisualizationTransform
 
     @Override
     public <Type extends DataSet> Type transform(DataSet<Type> d, boolean parallel)
+    {
+        return transform(d, null, parallel);
+    }
+    
+    /**
+     * Transforms the given data set, using the given nearest neighbor graph
+     * rather than computing it. Sharing a graph avoids re-computing the
+     * nearest neighbors when they are already known.
+     *
+     * @param <Type> the type of the data set
+     * @param d the data set to transform
+     * @param graph the nearest neighbor graph of the data set, which must
+     * have at least min(3*perplexity, N-1) neighbors per point, or
+     * {@code null} to compute it
+     * @param parallel {@code true} if multiple threads should be used
+     * @return the transformed data set
+     */
+    public <Type extends DataSet> Type transform(DataSet<Type> d, KNNGraph graph, boolean parallel)
     {
         Random rand = RandomUtil.getRandom();
         final ThreadLocal<Random> local_rand = ThreadLocal.withInitial(RandomUtil::getRandom);
@@ -206,7 +225,10 @@ public class LargeViz implements VisualizationTransform
          */
         final int[][] nearMe = new int[N][knn];
         
-        TSNE.computeP(d, parallel, rand, knn, nearMe, nearMePij, dm_source, perplexity);
+        if(graph == null)
+            TSNE.computeP(d, parallel, rand, knn, nearMe, nearMePij, dm_source, perplexity);
+        else
+            TSNE.computeP(d, parallel, rand, knn, graph, nearMe, nearMePij, dm_source, perplexity);
         
         final double[][] nearMeSample = new double[N][knn];
         
@@ -26,6 +26,7 @@ import jsat.linear.*;
 import jsat.linear.distancemetrics.DistanceMetric;
 import jsat.linear.distancemetrics.EuclideanDistance;
 import jsat.linear.vectorcollection.DefaultVectorCollection;
+import jsat.linear.vectorcollection.KNNGraph;
 import jsat.linear.vectorcollection.VectorCollection;
 import jsat.math.FastMath;
 import jsat.math.optimization.stochastic.*;
@@ -67,6 +68,7 @@ public class TSNE implements VisualizationTransform
     private int T = 1000;
     private double perplexity = 30;
     private double theta = 0.5;
+    private VectorCollection<Vec> vc = new DefaultVectorCollection<>();
     /**
      * The target embedding dimension, hard coded to 2 for now
      */
@@ -141,9 +143,49 @@ public class TSNE implements VisualizationTransform
     {
         return T;
     }
+
+    /**
+     * Sets the collection used to find the nearest neighbors of each point
+     * when computing the input similarities. An approximate collection such
+     * as {@link jsat.linear.vectorcollection.HNSW} can greatly reduce this
+     * cost for large, high dimensional, data sets.
+     *
+     * @param vc the vector collection to use for nearest neighbor searches
+     */
+    public void setVectorCollection(VectorCollection<Vec> vc)
+    {
+        this.vc = vc;
+    }
+
+    /**
+     *
+     * @return the vector collection used for nearest neighbor searches
+     */
+    public VectorCollection<Vec> getVectorCollection()
+    {
+        return vc;
+    }
     
     @Override
     public <Type extends DataSet> Type transform(DataSet<Type> d, boolean parallel)
+    {
+        return transform(d, null, parallel);
+    }
+    
+    /**
+     * Transforms the given data set, using the given nearest neighbor graph
+     * rather than computing it. Sharing a graph avoids re-computing the
+     * nearest neighbors when they are already known.
+     *
+     * @param <Type> the type of the data set
+     * @param d the data set to transform
+     * @param graph the nearest neighbor graph of the data set, which must
+     * have at least min(3*perplexity, N-1) neighbors per point, or
+     * {@code null} to compute it
+     * @param parallel {@code true} if multiple threads should be used
+     * @return the transformed data set
+     */
+    public <Type extends DataSet> Type transform(DataSet<Type> d, KNNGraph graph, boolean parallel)
     {
         Random rand = RandomUtil.getRandom();
         final int N = d.size();
@@ -166,7 +208,10 @@ public class TSNE implements VisualizationTransform
          */
         final int[][] nearMe = new int[N][knn];
         
-        computeP(d, parallel, rand, knn, nearMe, nearMePij, dm, perplexity);
+        if(graph == null)
+            computeP(d, parallel, rand, knn, nearMe, nearMePij, dm, perplexity, vc);
+        else
+            computeP(d, parallel, rand, knn, graph, nearMe, nearMePij, dm, perplexity);
         
         Normal normalDIst = new Normal(0, 1e-4);
         /**
@@ -295,39 +340,57 @@ public class TSNE implements VisualizationTransform
      * @param perplexity the perplexity value for the effective nearest neighbor search and weighting
      */
     protected static void computeP(DataSet d, boolean parallel, Random rand, final int knn, final int[][] nearMe, final double[][] nearMePij, final DistanceMetric dm, final double perplexity)
+    {
+        computeP(d, parallel, rand, knn, nearMe, nearMePij, dm, perplexity, new DefaultVectorCollection<>());
+    }
+
+    /**
+     * 
+     * @param d the dataset to search
+     * @param parallel {@code true} if computation should be done with multiple threads, {@code false} for single threaded
+     * @param rand source of randomness
+     * @param knn the number of neighbors to search for
+     * @param nearMe each row is the set of knn indices returned by the NN search
+     * @param nearMePij the symmetrized neighbor probability
+     * @param dm the distance metric to use for determining closeness
+     * @param perplexity the perplexity value for the effective nearest neighbor search and weighting
+     * @param vc_template the collection to use for the nearest neighbor search. A clone of it will be built, so the given object is not altered
+     */
+    protected static void computeP(DataSet d, boolean parallel, Random rand, final int knn, final int[][] nearMe, final double[][] nearMePij, final DistanceMetric dm, final double perplexity, VectorCollection<Vec> vc_template)
     {
         @SuppressWarnings("unchecked")
         final List<Vec> vecs = d.getDataVectors();
-        final List<Double> accelCache = dm.getAccelerationCache(vecs, parallel);
-        final int N = vecs.size();
         
-        final VectorCollection<Vec> vc = new DefaultVectorCollection<>();
+        final VectorCollection<Vec> vc = vc_template.clone();
         vc.build(parallel, vecs, dm);
         
-        final List<List<? extends VecPaired<Vec, Double>>> neighbors = new ArrayList<>(N);
-        for(int i = 0; i < N; i++)
-            neighbors.add(null);
-        
+        computeP(d, parallel, rand, knn, KNNGraph.build(vc, knn, parallel), nearMe, nearMePij, dm, perplexity);
+    }
+    
+    /**
+     * 
+     * @param d the dataset to search
+     * @param parallel {@code true} if computation should be done with multiple threads, {@code false} for single threaded
+     * @param rand source of randomness
+     * @param knn the number of neighbors to use
+     * @param graph the nearest neighbor graph of the dataset, with at least knn neighbors per point
+     * @param nearMe each row is the set of knn indices of the nearest neighbors
+     * @param nearMePij the symmetrized neighbor probability
+     * @param dm the distance metric to use for determining closeness
+     * @param perplexity the perplexity value for the effective nearest neighbor search and weighting
+     */
+    protected static void computeP(DataSet d, boolean parallel, Random rand, final int knn, final KNNGraph graph, final int[][] nearMe, final double[][] nearMePij, final DistanceMetric dm, final double perplexity)
+    {
+        @SuppressWarnings("unchecked")
+        final List<Vec> vecs = d.getDataVectors();
+        final List<Double> accelCache = dm.getAccelerationCache(vecs, parallel);
+        final int N = vecs.size();
+        graph.checkCompatible(N, knn);
         
+        for(int i = 0; i < N; i++)
+            for(int j = 0; j < knn; j++)
+                nearMe[i][j] = graph.getNeighbor(i, j);
         
-        //new scope b/c I don't want to leark the silly vecIndex thing
-        {
-            //Used to map vecs back to their index so we can store only the ones we need in nearMe
-            final IdentityHashMap<Vec, Integer> vecIndex = new IdentityHashMap<>(N);
-            for(int i = 0; i < N; i++)
-                vecIndex.put(vecs.get(i), i);
-
-            ParallelUtils.run(parallel, N, (i)->
-            {
-                Vec x_i = vecs.get(i);
-                List<? extends VecPaired<Vec, Double>> closest = vc.search(x_i, knn+1);//+1 b/c self is closest
-                neighbors.set(i, closest);
-                for (int j = 1; j < closest.size(); j++)
-                {
-                    nearMe[i][j - 1] = vecIndex.get(closest.get(j).getVector());
-                }
-            });
-        }
         //Now lets figure out everyone's sigmas
         final double[] sigma = new double[N];
         
@@ -336,9 +399,8 @@ public class TSNE implements VisualizationTransform
         
         for(int i = 0; i < N; i++)//first lets figure out a min/max range
         {
-            List<? extends VecPaired<Vec, Double>> n_i = neighbors.get(i);
-            double min = n_i.get(1).getPair();
-            double max = n_i.get(Math.min(knn, n_i.size()-1)).getPair();
+            double min = graph.getDistance(i, 0);
+            double max = graph.getDistance(i, knn-1);
             minSigma.set(Math.min(minSigma.get(), Math.max(min, 1e-9)));//avoid seting 0 as min
             maxSigma.set(Math.max(maxSigma.get(), max));
         }
@@ -353,7 +415,7 @@ public class TSNE implements VisualizationTransform
                 try
                 {
                     double sigma_i = Zeroin.root(1e-2, 100, minSigma.get(), maxSigma.get(),
-                            (double x) -> perp(i, nearMe, x, neighbors, vecs, accelCache, dm) - perplexity);
+                            (double x) -> perp(i, nearMe, x, graph, vecs, accelCache, dm) - perplexity);
 
                     sigma[i] = sigma_i;
                 }
@@ -381,7 +443,7 @@ public class TSNE implements VisualizationTransform
             for(int j_indx = 0; j_indx < knn; j_indx++)
             {
                 int j = nearMe[i][j_indx];
-                nearMePij[i][j_indx] =  p_ij(i, j, sigma[i], sigma[j], neighbors, vecs, accelCache, dm);
+                nearMePij[i][j_indx] =  p_ij(i, j, sigma[i], sigma[j], knn, graph, vecs, accelCache, dm);
             }
         });
     }
@@ -479,10 +541,11 @@ public class TSNE implements VisualizationTransform
      * @param j
      * @param i
      * @param sigma
-     * @param neighbors
+     * @param knn the number of neighbors of each point to use
+     * @param graph the nearest neighbor graph
      * @return 
      */
-    private static double p_j_i(int j, int i, double sigma, List<List<? extends VecPaired<Vec, Double>>> neighbors, List<Vec> vecs, List<Double> accelCache, DistanceMetric dm)
+    private static double p_j_i(int j, int i, double sigma, int knn, KNNGraph graph, List<Vec> vecs, List<Double> accelCache, DistanceMetric dm)
     {
         /*
          * "Because we are only interested in modeling pairwise similarities, we
@@ -490,23 +553,18 @@ public class TSNE implements VisualizationTransform
          */
         if(i == j)
             return 0;
-        //nearest is self, use taht to get indexed values
-        Vec x_j = neighbors.get(j).get(0).getVector();
-//        Vec x_i = neighbors.get(i).get(0).getVector();
         
         final double sigmaSqrdInv = 1/(2*(sigma*sigma));
         
         double numer = 0;
         double denom = 0;
         boolean jIsNearBy = false;
-        final List<? extends VecPaired<Vec, Double>> neighbors_i = neighbors.get(i);
-        for (int k = 1; k < neighbors_i.size(); k++)//SUM over k != i
+        for (int k = 0; k < knn; k++)//SUM over k != i, the graph does not include i
         {
-            VecPaired<Vec, Double> neighbor_ik = neighbors_i.get(k);
-            final double d_ik = neighbor_ik.getPair();
+            final double d_ik = graph.getDistance(i, k);
             denom += FastMath.exp(-(d_ik*d_ik)*sigmaSqrdInv);
             
-            if(neighbor_ik.getVector() == x_j)//intentionally doing object equals check - should be same object
+            if(graph.getNeighbor(i, k) == j)
             {
                 jIsNearBy = true;//yay, dont have to compute the distance ourselves
                 numer = FastMath.exp(-(d_ik*d_ik) * sigmaSqrdInv);
@@ -522,26 +580,26 @@ public class TSNE implements VisualizationTransform
         return numer/(denom+1e-9);
     }
     
-    private static double p_ij(int i, int j, double sigma_i, double sigma_j, List<List<? extends VecPaired<Vec, Double>>> neighbors, List<Vec> vecs, List<Double> accelCache, DistanceMetric dm)
+    private static double p_ij(int i, int j, double sigma_i, double sigma_j, int knn, KNNGraph graph, List<Vec> vecs, List<Double> accelCache, DistanceMetric dm)
     {
-        return (p_j_i(j, i, sigma_i, neighbors, vecs, accelCache, dm)+p_j_i(i, j, sigma_j, neighbors, vecs, accelCache, dm))/(2*neighbors.size());
+        return (p_j_i(j, i, sigma_i, knn, graph, vecs, accelCache, dm)+p_j_i(i, j, sigma_j, knn, graph, vecs, accelCache, dm))/(2*graph.size());
     }
     
     /**
      * Computes the perplexity for the specified data point using the given sigma
      * @param i the data point to get the perplexity of
      * @param sigma the bandwidth to use
-     * @param neighbors the set of nearest neighbors to consider
+     * @param graph the nearest neighbors to consider
      * @return the perplexity 2<sup>H(P<sub>i</sub>)</sup>
      */
-    private static double perp(int i, int[][] nearMe, double sigma, List<List<? extends VecPaired<Vec, Double>>> neighbors, List<Vec> vecs, List<Double> accelCache, DistanceMetric dm)
+    private static double perp(int i, int[][] nearMe, double sigma, KNNGraph graph, List<Vec> vecs, List<Double> accelCache, DistanceMetric dm)
     {
         //section 2 of Maaten, L. Van Der, & Hinton, G. (2008). Visualizing Data using t-SNE. Journal of Machine Learning Research, 9, 2579–2605.
         double hp = 0;
 
         for(int j_indx =0; j_indx < nearMe[i].length; j_indx++)
         {
-            double p_ji = p_j_i(nearMe[i][j_indx], i, sigma, neighbors, vecs, accelCache, dm);
+            double p_ji = p_j_i(nearMe[i][j_indx], i, sigma, nearMe[i].length, graph, vecs, accelCache, dm);
 
             if (p_ji > 0)
                 hp += p_ji * FastMath.log2(p_ji);
@@ -2,6 +2,7 @@ package jsat.distributions.kernels;
 
 import java.util.List;
 import jsat.linear.Vec;
+import jsat.linear.VecOps;
 import jsat.parameters.Parameter;
 import jsat.utils.DoubleList;
 
@@ -45,8 +46,8 @@ public abstract class BaseL2Kernel implements KernelTrick
     protected double getSqrdNorm(int i, int j, List<? extends Vec> vecs, List<Double> cache)
     {
         if(cache == null)
-            return Math.pow(vecs.get(i).pNormDist(2.0, vecs.get(j)), 2);
-        return cache.get(i)+cache.get(j)-2*vecs.get(i).dot(vecs.get(j));
+            return VecOps.distanceSquared(vecs.get(i), vecs.get(j));
+        return DoubleList.getD(cache, i)+DoubleList.getD(cache, j)-2*VecOps.dot(vecs.get(i), vecs.get(j));
     }
     
     /**
@@ -58,7 +59,7 @@ public abstract class BaseL2Kernel implements KernelTrick
      */
     protected double getSqrdNorm(int i, List<? extends Vec> vecs, List<Double> cache)
     {
-        return cache.get(i);
+        return DoubleList.getD(cache, i);
     }
     
     /**
@@ -73,8 +74,8 @@ public abstract class BaseL2Kernel implements KernelTrick
     protected double getSqrdNorm(int i, Vec y, List<Double> qi, List<? extends Vec> vecs, List<Double> cache)
     {
         if(cache == null)
-            return Math.pow(vecs.get(i).pNormDist(2.0, y), 2);
-        return cache.get(i)+qi.get(0)-2*vecs.get(i).dot(y);
+            return VecOps.distanceSquared(vecs.get(i), y);
+        return DoubleList.getD(cache, i)+DoubleList.getD(qi, 0)-2*VecOps.dot(vecs.get(i), y);
     }
 
     @Override
@@ -82,7 +83,7 @@ public abstract class BaseL2Kernel implements KernelTrick
     {
         DoubleList cache = new DoubleList(trainingSet.size());
         for(int i = 0; i < trainingSet.size(); i++)
-            cache.add(trainingSet.get(i).dot(trainingSet.get(i)));
+            cache.add(VecOps.dot(trainingSet.get(i), trainingSet.get(i)));
         return cache;
     }
 
@@ -90,14 +91,14 @@ public abstract class BaseL2Kernel implements KernelTrick
     public List<Double> getQueryInfo(Vec q)
     {
         DoubleList dl = new DoubleList(1);
-        dl.add(q.dot(q));
+        dl.add(VecOps.dot(q, q));
         return dl;
     }
 
     @Override
     public void addToCache(Vec newVec, List<Double> cache)
     {
-        cache.add(newVec.dot(newVec));
+        cache.add(VecOps.dot(newVec, newVec));
     }
 
     @Override
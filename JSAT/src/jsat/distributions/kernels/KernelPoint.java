@@ -320,7 +320,7 @@ public class KernelPoint
         if(this.kernelAccel == null || x.kernelAccel == null)
             mergedCache = null;
         else
-            mergedCache = ListUtils.mergedView(this.kernelAccel, x.kernelAccel);
+            mergedCache = new DoubleList(ListUtils.mergedView(this.kernelAccel, x.kernelAccel));
         
         double dot = 0;
         for(int i = 0; i < this.alpha.size(); i++)
@@ -4,7 +4,9 @@ import static java.lang.Math.abs;
 import static java.lang.Math.pow;
 import java.util.*;
 import static jsat.distributions.kernels.KernelPoint.getH;
+import jsat.linear.DenseMatrix;
 import jsat.linear.IndexValue;
+import jsat.linear.Matrix;
 import jsat.linear.Vec;
 import jsat.utils.DoubleList;
 import jsat.utils.random.RandomUtil;
@@ -229,6 +231,51 @@ public class KernelPoints
         return dots;
     }
     
+    /**
+     * Computes the dot product between each KernelPoint in this set and every
+     * vector in the given list. The kernel is evaluated once for each pair of 
+     * input and basis vector, and the resulting kernel matrix is multiplied 
+     * by the weights of all the KernelPoints at once. The inputs are processed
+     * in blocks so that the kernel matrix stays small. 
+     * 
+     * @param X the vectors to contribute to the dot products
+     * @return a matrix where the value at (<i>i</i>, <i>j</i>) is the dot 
+     * product of the <i>i'th</i> vector and the <i>j'th</i> KernelPoint
+     */
+    public Matrix dot(List<? extends Vec> X)
+    {
+        final int blockSize = 1024;
+        Matrix dots = new DenseMatrix(X.size(), points.size());
+        final List<Vec> vecs = points.get(0).vecs;
+        final List<Double> cache = points.get(0).kernelAccel;
+        if(vecs.isEmpty())
+            return dots;
+        Matrix alphas = new DenseMatrix(vecs.size(), points.size());
+        for(int j = 0; j < points.size(); j++)
+        {
+            DoubleList alpha = points.get(j).alpha;
+            for(int i = 0; i < vecs.size(); i++)
+                alphas.set(i, j, alpha.getD(i));
+        }
+        
+        for(int start = 0; start < X.size(); start += blockSize)
+        {
+            int end = Math.min(start+blockSize, X.size());
+            Matrix K_b = new DenseMatrix(end-start, vecs.size());
+            for(int i = start; i < end; i++)
+            {
+                Vec x = X.get(i);
+                List<Double> qi = k.getQueryInfo(x);
+                for(int j = 0; j < vecs.size(); j++)
+                    K_b.set(i-start, j, k.eval(j, x, qi, vecs, cache));
+            }
+            Matrix dots_b = K_b.multiply(alphas);
+            for(int i = start; i < end; i++)
+                dots_b.getRowView(i-start).copyTo(dots.getRowView(i));
+        }
+        return dots;
+    }
+    
     /**
      * Computes the dot product between the {@code k}'th KernelPoint and the 
      * given KernelPoint 
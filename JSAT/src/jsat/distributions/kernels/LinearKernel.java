@@ -4,6 +4,7 @@ package jsat.distributions.kernels;
 import java.util.Arrays;
 import java.util.List;
 import jsat.linear.Vec;
+import jsat.linear.VecOps;
 import jsat.parameters.DoubleParameter;
 import jsat.parameters.Parameter;
 
@@ -60,7 +61,7 @@ public class LinearKernel extends BaseKernelTrick
     @Override
     public double eval(Vec a, Vec b)
     {
-        return a.dot(b) + c;
+        return VecOps.dot(a, b) + c;
     }
 
     @Override
@@ -7,6 +7,7 @@ import jsat.distributions.Distribution;
 import jsat.distributions.LogUniform;
 import jsat.distributions.discrete.UniformDiscrete;
 import jsat.linear.Vec;
+import jsat.linear.VecOps;
 import jsat.parameters.DoubleParameter;
 import jsat.parameters.Parameter;
 
@@ -109,7 +110,7 @@ public class PolynomialKernel extends BaseKernelTrick
     @Override
     public double eval(Vec a, Vec b)
     {
-        return Math.pow(c+a.dot(b)*alpha, degree);
+        return Math.pow(c+VecOps.dot(a, b)*alpha, degree);
     }
 
     @Override
@@ -12,6 +12,7 @@ import jsat.distributions.Exponential;
 import jsat.distributions.LogUniform;
 import jsat.distributions.Uniform;
 import jsat.linear.Vec;
+import jsat.linear.VecOps;
 import jsat.linear.distancemetrics.EuclideanDistance;
 import jsat.math.OnLineStatistics;
 import jsat.text.GreekLetters;
@@ -55,7 +56,7 @@ public class RBFKernel extends BaseL2Kernel
     {
         if(a == b)//Same refrence means dist of 0, exp(0) = 1
             return 1;
-        return Math.exp(-Math.pow(a.pNormDist(2, b),2) * sigmaSqrd2Inv);
+        return Math.exp(-VecOps.distanceSquared(a, b) * sigmaSqrd2Inv);
     }
 
     @Override
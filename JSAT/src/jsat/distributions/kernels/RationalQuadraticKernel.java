@@ -5,6 +5,7 @@ import java.util.List;
 import jsat.DataSet;
 import jsat.distributions.Distribution;
 import jsat.linear.Vec;
+import jsat.linear.VecOps;
 import jsat.linear.distancemetrics.EuclideanDistance;
 
 /**
@@ -52,7 +53,7 @@ public class RationalQuadraticKernel extends BaseL2Kernel
     @Override
     public double eval(Vec a, Vec b)
     {
-        double dist = Math.pow(a.pNormDist(2, b), 2);
+        double dist = VecOps.distanceSquared(a, b);
         return 1-dist/(dist+c);
     }
 
@@ -7,6 +7,7 @@ import jsat.distributions.Distribution;
 import jsat.distributions.LogUniform;
 import jsat.distributions.Uniform;
 import jsat.linear.Vec;
+import jsat.linear.VecOps;
 import jsat.parameters.Parameter;
 
 /**
@@ -89,7 +90,7 @@ public class SigmoidKernel extends BaseKernelTrick
     @Override
     public double eval(Vec a, Vec b)
     {
-        return Math.tanh(alpha*a.dot(b)+c);
+        return Math.tanh(alpha*VecOps.dot(a, b)+c);
     }
     
     /**
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a file that <i>start</i> within a given byte range, using
+ * a small re-usable buffer so that memory use does not depend on the size of
+ * the range. Ranges do not need to be aligned to line boundaries: a line that
+ * crosses the end of a range is read in full by the range it starts in, and
+ * skipped by the range after it. This allows a file to be cut into arbitrary
+ * chunks that are parsed independently and in parallel, with every line
+ * belonging to exactly one chunk. <br>
+ * Both {@code '\n'} and {@code '\r'} are treated as line terminators, and
+ * empty lines are never returned. <br>
+ * <br>
+ * The reader is also a {@link CharSequence} over its buffer, with each byte
+ * interpreted as a single character, so that the current line can be given to
+ * the parsers in {@link jsat.utils.StringUtils} without creating a string. The
+ * current line is the range [{@link #lineStart() }, {@link #lineEnd() }), and
+ * is only valid until the next call to {@link #nextLine() }.
+ *
+ * @author Edward Raff
+ */
+class ByteRangeLineReader implements CharSequence
+{
+    /**
+     * The default size of the read buffer, which will grow only if a single
+     * line does not fit in it
+     */
+    static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+
+    private final FileChannel channel;
+    private final long rangeEnd;
+    private byte[] buffer;
+    /**
+     * The file position of the first byte in the buffer
+     */
+    private long bufferFilePos;
+    /**
+     * The number of valid bytes in the buffer
+     */
+    private int bufferLength;
+    /**
+     * The index in the buffer of the next byte to process
+     */
+    private int pos;
+    private boolean eof = false;
+    private int lineStart;
+    private int lineEnd;
+
+    /**
+     * Creates a new reader for the lines starting in the given range.
+     *
+     * @param channel the channel to read from. Only positional reads are
+     * used, so the same channel may be shared by many readers at once.
+     * @param start the first byte (inclusive) of the range
+     * @param end the last byte (exclusive) of the range
+     * @param bufferSize the initial size of the read buffer
+     */
+    public ByteRangeLineReader(FileChannel channel, long start, long end, int bufferSize)
+    {
+        this.channel = channel;
+        this.rangeEnd = end;
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+        this.bufferFilePos = start;
+        this.bufferLength = 0;
+        this.pos = 0;
+
+        if(start > 0 && start < end)
+        {
+            //if we are not at the start of a line, that line belongs to the previous range
+            ByteBuffer prev = ByteBuffer.allocate(1);
+            read(prev, start-1);
+            if(!isNewLine(prev.get(0)))
+                while(true)
+                {
+                    lineStart = pos;//nothing to keep while skipping
+                    if(!ensureAvailable() || isNewLine(buffer[pos]))
+                        break;
+                    pos++;
+                }
+        }
+    }
+
+    private static boolean isNewLine(byte b)
+    {
+        return b == '\n' || b == '\r';
+    }
+
+    private int read(ByteBuffer dst, long position)
+    {
+        try
+        {
+            int total = 0;
+            while(dst.hasRemaining())
+            {
+                int r = channel.read(dst, position+total);
+                if(r < 0)
+                    break;
+                total += r;
+            }
+            return total;
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Makes sure that the byte at {@link #pos} is in the buffer, reading more
+     * of the file if needed. Bytes before the start of the current line are
+     * discarded when reading more.
+     *
+     * @return {@code true} if there is a byte to process, {@code false} if the
+     * end of the file has been reached.
+     */
+    private boolean ensureAvailable()
+    {
+        if(pos < bufferLength)
+            return true;
+        if(eof)
+            return false;
+        //move the partial line to the front
+        int keep = Math.min(lineStart, pos);
+        if(keep > 0)
+        {
+            System.arraycopy(buffer, keep, buffer, 0, bufferLength-keep);
+            bufferFilePos += keep;
+            bufferLength -= keep;
+            pos -= keep;
+            lineStart -= keep;
+            lineEnd = Math.max(lineEnd-keep, 0);
+        }
+        if(bufferLength == buffer.length)//one line bigger than the whole buffer
+            buffer = Arrays.copyOf(buffer, buffer.length*2);
+
+        int r = read(ByteBuffer.wrap(buffer, bufferLength, buffer.length-bufferLength), bufferFilePos+bufferLength);
+        if(r <= 0)
+        {
+            eof = true;
+            return false;
+        }
+        bufferLength += r;
+        return true;
+    }
+
+    /**
+     * Advances to the next non-empty line that starts in this reader's range.
+     *
+     * @return {@code true} if a line was found, or {@code false} if there are
+     * no more lines in the range
+     */
+    public boolean nextLine()
+    {
+        //skip the new line characters
+        do
+            lineStart = lineEnd = pos;
+        while(ensureAvailable() && isNewLine(buffer[pos++]));
+        pos = lineStart;
+        if(!ensureAvailable() || bufferFilePos + lineStart >= rangeEnd)
+            return false;
+        while(ensureAvailable() && !isNewLine(buffer[pos]))
+            pos++;
+        lineEnd = pos;
+        return true;
+    }
+
+    /**
+     *
+     * @return the index in this sequence of the first character of the
+     * current line
+     */
+    public int lineStart()
+    {
+        return lineStart;
+    }
+
+    /**
+     *
+     * @return the index in this sequence after the last character of the
+     * current line
+     */
+    public int lineEnd()
+    {
+        return lineEnd;
+    }
+
+    /**
+     *
+     * @return the position in the file of the next line that would be read
+     */
+    public long filePosition()
+    {
+        return bufferFilePos + pos;
+    }
+
+    /**
+     * Decodes part of the current line as a string
+     *
+     * @param start the first index (inclusive)
+     * @param end the last index (exclusive)
+     * @param charset the character set of the file
+     * @return the decoded string
+     */
+    public String toString(int start, int end, Charset charset)
+    {
+        return new String(buffer, start, end-start, charset);
+    }
+
+    /**
+     * Splits the range [start, end) into the given number of nearly equal
+     * sized pieces. The pieces do not need to align with lines.
+     *
+     * @param start the first byte (inclusive)
+     * @param end the last byte (exclusive)
+     * @param pieces the number of pieces
+     * @return an array of length {@code pieces+1}, where the i'th piece is
+     * the range [a[i], a[i+1])
+     */
+    public static long[] split(long start, long end, int pieces)
+    {
+        long[] bounds = new long[pieces+1];
+        for(int i = 0; i <= pieces; i++)
+            bounds[i] = start + (end-start)*i/pieces;
+        return bounds;
+    }
+
+    @Override
+    public int length()
+    {
+        return bufferLength;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        return (char) (buffer[index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        return new String(buffer, start, end-start, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString()
+    {
+        return subSequence(lineStart, lineEnd).toString();
+    }
+}
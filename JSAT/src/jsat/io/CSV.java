@@ -25,13 +25,17 @@ import jsat.regression.RegressionDataSet;
 import jsat.utils.DoubleList;
 import jsat.utils.StringUtils;
 import static java.lang.Character.isWhitespace;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReference;
 import jsat.DataStore;
 import jsat.SimpleDataSet;
 import jsat.linear.*;
 import jsat.utils.*;
+import jsat.utils.concurrent.ParallelUtils;
 
 /**
  * Provides a reader and writer for CSV style datasets. This CSV reader supports
@@ -54,6 +58,14 @@ public class CSV
 {
     public static final char DEFAULT_DELIMITER = ',';
     public static final char DEFAULT_COMMENT = '#';
+    /**
+     * The target number of bytes in each chunk when reading a file in chunks
+     */
+    private static final long CHUNK_SIZE = 1 << 24;
+    /**
+     * The smallest chunk to split a file into for parallel parsing
+     */
+    private static final long MIN_SPLIT_SIZE = 1 << 16;
 
     private CSV()
     {
@@ -580,6 +592,25 @@ public class CSV
             for(int i = 0; i < cat_array.length; i++)
                 cat_array[i]= catDataMap.get(cat_indx_to_csv_column.get(i));
             
+        return toDataSet(totalCols, cat_array, target_data, all_vecs, all_cats, catTargets, regressionTargets, numeric_target, cat_target);
+    }
+    
+    /**
+     * Creates the data set of the right type once all rows have been read
+     *
+     * @param totalCols the number of columns in the CSV
+     * @param cat_array the categorical feature information
+     * @param target_data the information for the target class, if any
+     * @param all_vecs the numeric features of each row
+     * @param all_cats the categorical features of each row
+     * @param catTargets the class of each row, if classification
+     * @param regressionTargets the target value of each row, if regression
+     * @param numeric_target the numeric target column, or -1
+     * @param cat_target the categorical target column, or -1
+     * @return the data set
+     */
+    private static DataSet<?> toDataSet(int totalCols, CategoricalData[] cat_array, CategoricalData target_data, List<Vec> all_vecs, List<int[]> all_cats, IntList catTargets, DoubleList regressionTargets, int numeric_target, int cat_target)
+    {
         if(cat_target >= 0)
         {
             ClassificationDataSet d = new ClassificationDataSet(totalCols - cat_array.length-1, cat_array, target_data);
@@ -607,7 +638,291 @@ public class CSV
 
             return d;
         }
-        
+    }
+    
+    /**
+     * Reads in a CSV dataset as a regression dataset. The file is read
+     * directly as bytes and, if requested, split into chunks that are parsed
+     * in parallel. The file must use an ASCII compatible encoding, and lines
+     * containing only a comment are skipped.
+     *
+     * @param numeric_target_column the column index (starting from zero) of the
+     * feature that will be the target regression value
+     * @param path the CSV file to read
+     * @param delimiter the delimiter to separate columns, usually a comma
+     * @param lines_to_skip the number of lines to skip when reading in the CSV
+     * (used to skip header information)
+     * @param comment the character used to indicate the start of a comment.
+     * Once this character is reached, anything at and after the character will
+     * be ignored.
+     * @param cat_cols a set of the indices to treat as categorical features.
+     * @param parallel {@code true} if the file should be parsed with multiple
+     * threads
+     * @return the regression dataset from the given CSV file
+     * @throws IOException
+     */
+    public static RegressionDataSet readR(int numeric_target_column, Path path, char delimiter, int lines_to_skip, char comment, Set<Integer> cat_cols, boolean parallel) throws IOException
+    {
+        return (RegressionDataSet) readCSV(path, lines_to_skip, delimiter, comment, cat_cols, numeric_target_column, -1, parallel);
+    }
+    
+    /**
+     * Reads in a CSV dataset as a classification dataset. The file is read
+     * directly as bytes and, if requested, split into chunks that are parsed
+     * in parallel. The file must use an ASCII compatible encoding, and lines
+     * containing only a comment are skipped.
+     *
+     * @param classification_target the column index (starting from zero) of the
+     * feature that will be the categorical target value
+     * @param path the CSV file to read
+     * @param delimiter the delimiter to separate columns, usually a comma
+     * @param lines_to_skip the number of lines to skip when reading in the CSV
+     * (used to skip header information)
+     * @param comment the character used to indicate the start of a comment.
+     * Once this character is reached, anything at and after the character will
+     * be ignored.
+     * @param cat_cols a set of the indices to treat as categorical features.
+     * @param parallel {@code true} if the file should be parsed with multiple
+     * threads
+     * @return the classification dataset from the given CSV file
+     * @throws IOException 
+     */
+    public static ClassificationDataSet readC(int classification_target, Path path, char delimiter, int lines_to_skip, char comment, Set<Integer> cat_cols, boolean parallel) throws IOException
+    {
+        return (ClassificationDataSet) readCSV(path, lines_to_skip, delimiter, comment, cat_cols, -1, classification_target, parallel);
+    }
+    
+    /**
+     * Reads in the given CSV dataset as a simple CSV file. The file is read
+     * directly as bytes and, if requested, split into chunks that are parsed
+     * in parallel. The file must use an ASCII compatible encoding, and lines
+     * containing only a comment are skipped.
+     *
+     * @param path the CSV file to read
+     * @param delimiter the delimiter to separate columns, usually a comma
+     * @param lines_to_skip the number of lines to skip when reading in the CSV
+     * (used to skip header information)
+     * @param comment the character used to indicate the start of a comment.
+     * Once this character is reached, anything at and after the character will
+     * be ignored.
+     * @param cat_cols a set of the indices to treat as categorical features.
+     * @param parallel {@code true} if the file should be parsed with multiple
+     * threads
+     * @return a simple dataset of the given CSV file
+     * @throws IOException 
+     */
+    public static SimpleDataSet read(Path path, char delimiter, int lines_to_skip, char comment, Set<Integer> cat_cols, boolean parallel) throws IOException
+    {
+        return (SimpleDataSet) readCSV(path, lines_to_skip, delimiter, comment, cat_cols, -1, -1, parallel);
+    }
+    
+    /**
+     * The rows parsed from one chunk of a CSV file. Categorical values are
+     * stored with an index local to the chunk, and are mapped to the final
+     * sorted index once all chunks are done.
+     */
+    private static class CSVChunk
+    {
+        List<Vec> vecs = new ArrayList<>();
+        List<int[]> cats = new ArrayList<>();
+        DoubleList regressionTargets = new DoubleList();
+        IntList catTargets = new IntList();
+        /**
+         * For each categorical column, the map from each string to its local
+         * index, based on order seen
+         */
+        Map<Integer, Map<String, Integer>> seenCats = new HashMap<>();
+        int totalCols = -1;
+    }
+    
+    private static DataSet<?> readCSV(Path path, int lines_to_skip, char delimiter, char comment, Set<Integer> cat_col, int numeric_target, int cat_target, boolean parallel) throws IOException
+    {
+        final Charset charset = Charset.defaultCharset();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            //find where the header ends
+            ByteRangeLineReader header = new ByteRangeLineReader(channel, 0, size, ByteRangeLineReader.DEFAULT_BUFFER_SIZE);
+            for(int i = 0; i < lines_to_skip; i++)
+                header.nextLine();
+            long dataStart = header.filePosition();
+            
+            int chunks = (int) Math.min((size-dataStart+CHUNK_SIZE-1)/CHUNK_SIZE, Integer.MAX_VALUE/2);
+            if(parallel)//make sure every core has something to do
+                chunks = Math.max(chunks, (int) Math.min(SystemInfo.LogicalCores*4, (size-dataStart)/MIN_SPLIT_SIZE));
+            chunks = Math.max(chunks, 1);
+            long[] bounds = ByteRangeLineReader.split(dataStart, size, chunks);
+            CSVChunk[] results = new CSVChunk[chunks];
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            
+            ParallelUtils.run(parallel, chunks, (int c) ->
+            {
+                try
+                {
+                    ByteRangeLineReader line = new ByteRangeLineReader(channel, bounds[c], bounds[c+1], ByteRangeLineReader.DEFAULT_BUFFER_SIZE);
+                    CSVChunk chunk = new CSVChunk();
+                    DoubleList numericFeats = new DoubleList();
+                    IntList catFeats = new IntList();
+                    while(line.nextLine())
+                    {
+                        int end = line.lineEnd();
+                        for(int i = line.lineStart(); i < end; i++)
+                            if(line.charAt(i) == comment)
+                                end = i;
+                        int fieldStart = line.lineStart();
+                        while(fieldStart < end && isWhitespace(line.charAt(fieldStart)))
+                            fieldStart++;
+                        if(fieldStart == end)//only a comment or white space
+                            continue;
+                        
+                        int cur_column = 0;
+                        for(int i = fieldStart; i <= end; i++)
+                        {
+                            if(i < end && line.charAt(i) != delimiter)
+                                continue;
+                            //trim the white space around the value
+                            int s = fieldStart, e = i;
+                            while(s < e && isWhitespace(line.charAt(s)))
+                                s++;
+                            while(e > s && isWhitespace(line.charAt(e-1)))
+                                e--;
+                            
+                            if(cat_col.contains(cur_column) || cur_column == cat_target)
+                            {
+                                int val;
+                                if(s == e)
+                                    val = -1;
+                                else
+                                {
+                                    Map<String, Integer> map = chunk.seenCats.computeIfAbsent(cur_column, k -> new HashMap<>());
+                                    String cat_op = line.toString(s, e, charset);
+                                    Integer indx = map.get(cat_op);
+                                    if(indx == null)
+                                        map.put(cat_op, indx = map.size());
+                                    val = indx;
+                                }
+                                
+                                if (cur_column == cat_target)
+                                    if (val == -1)
+                                        throw new RuntimeException("Categorical column can't have missing values!");
+                                    else
+                                        chunk.catTargets.add(val);
+                                else
+                                    catFeats.add(val);
+                            }
+                            else//numeric feature
+                            {
+                                double val = s == e ? Double.NaN : StringUtils.parseDouble(line, s, e);
+                                if(cur_column == numeric_target)
+                                    chunk.regressionTargets.add(val);
+                                else
+                                    numericFeats.add(val);
+                            }
+                            
+                            cur_column++;
+                            fieldStart = i+1;
+                        }
+                        
+                        if(chunk.totalCols < 0)
+                            chunk.totalCols = cur_column;
+                        else if(chunk.totalCols != cur_column)
+                            throw new RuntimeException("Inconsistent number of columns in CSV");
+                        
+                        chunk.vecs.add(new DenseVector(Arrays.copyOf(numericFeats.getBackingArray(), numericFeats.size())));
+                        int[] cat_vals = new int[catFeats.size()];
+                        for(int i = 0; i < cat_vals.length; i++)
+                            cat_vals[i] = catFeats.getI(i);
+                        chunk.cats.add(cat_vals);
+                        numericFeats.clear();
+                        catFeats.clear();
+                    }
+                    results[c] = chunk;
+                }
+                catch(RuntimeException ex)
+                {
+                    failure.compareAndSet(null, ex);
+                }
+            });
+            if(failure.get() != null)
+                throw failure.get();
+            
+            int totalCols = -1;
+            for(CSVChunk chunk : results)
+                if(chunk.totalCols >= 0)
+                    if(totalCols < 0)
+                        totalCols = chunk.totalCols;
+                    else if(totalCols != chunk.totalCols)
+                        throw new RuntimeException("Inconsistent number of columns in CSV");
+            
+            //categorical features are stored in column order
+            List<Integer> catFeatCols = new IntList();
+            for(int col : new TreeSet<>(cat_col))
+                if(col != cat_target && col < totalCols)
+                    catFeatCols.add(col);
+            List<Integer> allCatCols = new IntList(catFeatCols);
+            if(cat_target >= 0)
+                allCatCols.add(cat_target);
+            
+            /*
+             * sort the union of the options seen by every chunk so that we get
+             * the same feature index ordering regardless of the order they 
+             * occurred in the data, and build the translation for each chunk
+             */
+            CategoricalData[] cat_array = new CategoricalData[catFeatCols.size()];
+            CategoricalData target_data = null;
+            int[][][] translators = new int[chunks][allCatCols.size()][];
+            for(int j = 0; j < allCatCols.size(); j++)
+            {
+                int col = allCatCols.get(j);
+                Set<String> options = new HashSet<>();
+                for(CSVChunk chunk : results)
+                    options.addAll(chunk.seenCats.getOrDefault(col, Collections.emptyMap()).keySet());
+                List<String> sortedOrder = new ArrayList<>(options);
+                Collections.sort(sortedOrder);
+                
+                CategoricalData cd = new CategoricalData(sortedOrder.size());
+                Map<String, Integer> true_index = new HashMap<>();
+                for(int i = 0; i < sortedOrder.size(); i++)
+                {
+                    cd.setOptionName(sortedOrder.get(i), i);
+                    true_index.put(sortedOrder.get(i), i);
+                }
+                if(col == cat_target)
+                    target_data = cd;
+                else
+                    cat_array[j] = cd;
+                
+                for(int c = 0; c < chunks; c++)
+                {
+                    Map<String, Integer> local = results[c].seenCats.getOrDefault(col, Collections.emptyMap());
+                    translators[c][j] = new int[local.size()];
+                    for(Map.Entry<String, Integer> entry : local.entrySet())
+                        translators[c][j][entry.getValue()] = true_index.get(entry.getKey());
+                }
+            }
+            
+            List<Vec> all_vecs = new ArrayList<>();
+            List<int[]> all_cats = new ArrayList<>();
+            IntList catTargets = new IntList();
+            DoubleList regressionTargets = new DoubleList();
+            for(int c = 0; c < chunks; c++)
+            {
+                CSVChunk chunk = results[c];
+                for(int[] cat_vals : chunk.cats)
+                    for(int i = 0; i < cat_vals.length; i++)
+                        if(cat_vals[i] >= 0)//if -1 its a missing value
+                            cat_vals[i] = translators[c][i][cat_vals[i]];
+                if(cat_target >= 0)
+                    for(int i = 0; i < chunk.catTargets.size(); i++)
+                        catTargets.add(translators[c][catFeatCols.size()][chunk.catTargets.getI(i)]);
+                all_vecs.addAll(chunk.vecs);
+                all_cats.addAll(chunk.cats);
+                regressionTargets.addAll(chunk.regressionTargets);
+                results[c] = null;
+            }
+            
+            return toDataSet(totalCols, cat_array, target_data, all_vecs, all_cats, catTargets, regressionTargets, numeric_target, cat_target);
+        }
     }
     
     /**
@@ -17,6 +17,10 @@
 package jsat.io;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -93,6 +97,18 @@ public class JSATData
                 throw new UnsupportedOperationException("Not supported ."); 
             }
             
+            @Override
+            protected double readFP(ByteBuffer buf, int pos)
+            {
+                throw new UnsupportedOperationException("Not supported ."); 
+            }
+            
+            @Override
+            protected int bytesPerValue()
+            {
+                throw new UnsupportedOperationException("Not supported ."); 
+            }
+            
             @Override
             protected boolean noLoss(double orig) 
             {
@@ -114,12 +130,30 @@ public class JSATData
                 return in.readDouble();
             }
             
+            @Override
+            protected double readFP(ByteBuffer buf, int pos)
+            {
+                return buf.getDouble(pos);
+            }
+            
+            @Override
+            protected int bytesPerValue()
+            {
+                return 8;
+            }
+            
             @Override
             protected boolean noLoss(double orig) 
             {
                 return true;
             }
         },
+        /**
+         * Values are stored as 32 bit floats. Data sets written this way are
+         * loaded back using {@link FloatDenseVector} and
+         * {@link FloatSparseVector}, so they take only half the memory once
+         * loaded as well.
+         */
         FP32 
         {
             @Override
@@ -134,6 +168,18 @@ public class JSATData
                 return in.readFloat();
             }
             
+            @Override
+            protected double readFP(ByteBuffer buf, int pos)
+            {
+                return buf.getFloat(pos);
+            }
+            
+            @Override
+            protected int bytesPerValue()
+            {
+                return 4;
+            }
+            
             @Override
             protected boolean noLoss(double orig) 
             {
@@ -156,6 +202,18 @@ public class JSATData
                 return in.readShort();
             }
             
+            @Override
+            protected double readFP(ByteBuffer buf, int pos)
+            {
+                return buf.getShort(pos);
+            }
+            
+            @Override
+            protected int bytesPerValue()
+            {
+                return 2;
+            }
+            
             @Override
             protected boolean noLoss(double orig) 
             {
@@ -176,6 +234,18 @@ public class JSATData
                 return in.readByte();
             }
             
+            @Override
+            protected double readFP(ByteBuffer buf, int pos)
+            {
+                return buf.get(pos);
+            }
+            
+            @Override
+            protected int bytesPerValue()
+            {
+                return 1;
+            }
+            
             @Override
             protected boolean noLoss(double orig) 
             {
@@ -196,6 +266,18 @@ public class JSATData
                 return in.readByte() & 0xff;
             }
             
+            @Override
+            protected double readFP(ByteBuffer buf, int pos)
+            {
+                return buf.get(pos) & 0xff;
+            }
+            
+            @Override
+            protected int bytesPerValue()
+            {
+                return 1;
+            }
+            
             @Override
             protected boolean noLoss(double orig) 
             {
@@ -207,6 +289,22 @@ public class JSATData
         
         abstract protected double readFP(DataInputStream in) throws IOException;
         
+        /**
+         * Reads a value stored by this method from an absolute position in a
+         * buffer, without altering the buffer's position
+         *
+         * @param buf the buffer to read from
+         * @param pos the absolute position of the value in the buffer
+         * @return the value stored at the position
+         */
+        abstract protected double readFP(ByteBuffer buf, int pos);
+        
+        /**
+         * 
+         * @return the number of bytes used to store each value
+         */
+        abstract protected int bytesPerValue();
+        
         abstract protected boolean noLoss(double orig);
         
         static public <Type extends DataSet<Type>> FloatStorageMethod getMethod(DataSet<Type> data, FloatStorageMethod method)
@@ -601,6 +699,105 @@ public class JSATData
         return (RegressionDataSet) load(inRaw, backingStore);
     }
     
+    /**
+     * Loads a JSAT dataset by memory mapping the given file, rather than
+     * reading the data points into memory. The data points are backed by a
+     * {@link MappedDataStore}, and only the targets, weights, and the location
+     * of each data point in the file are kept on the heap. This allows using
+     * datasets that are larger than the available memory, and makes loading
+     * nearly instant. The file must not be altered while the dataset is in
+     * use. <br>
+     * The DataSet will be returned as either a {@link SimpleDataSet},
+     * {@link ClassificationDataSet}, or {@link RegressionDataSet} depending on
+     * what type of dataset was originally written out. The file must not be
+     * compressed.
+     *
+     * @param file the file to map
+     * @return a dataset backed by the mapped file
+     * @throws IOException 
+     */
+    public static DataSet<?> loadMapped(File file) throws IOException
+    {
+        return loadMapped(file, false, MappedDataStore.MAX_SEGMENT_SIZE);
+    }
+    
+    /**
+     * Loads a JSAT dataset as a {@link SimpleDataSet} by memory mapping the
+     * given file. So long as the file is valid, this will not fail.
+     *
+     * @param file the file to map
+     * @return a SimpleDataSet backed by the mapped file
+     * @throws IOException 
+     * @see #loadMapped(java.io.File) 
+     */
+    public static SimpleDataSet loadSimpleMapped(File file) throws IOException
+    {
+        return (SimpleDataSet) loadMapped(file, true, MappedDataStore.MAX_SEGMENT_SIZE);
+    }
+    
+    /**
+     * Loads a JSAT dataset by memory mapping the given file.
+     *
+     * @param file the file to map
+     * @param forceAsStandard {@code true} for for the dataset to be loaded as a
+     * {@link SimpleDataSet}, otherwise it will be determined based on the file
+     * contents.
+     * @param maxSegmentSize the maximum number of bytes to map with a single
+     * buffer
+     * @return a dataset backed by the mapped file
+     * @throws IOException 
+     */
+    static DataSet<?> loadMapped(File file, boolean forceAsStandard, long maxSegmentSize) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            //read the header through a stream, keeping track of where the data points start
+            final long[] headerBytes = new long[1];
+            InputStream counting = new FilterInputStream(new BufferedInputStream(Channels.newInputStream(channel)))
+            {
+                @Override
+                public int read() throws IOException
+                {
+                    int b = super.read();
+                    if(b >= 0)
+                        headerBytes[0]++;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException
+                {
+                    int n = super.read(b, off, len);
+                    if(n > 0)
+                        headerBytes[0] += n;
+                    return n;
+                }
+            };
+            Header header = readHeader(new DataInputStream(counting), forceAsStandard);
+            
+            DoubleList targets = new DoubleList();
+            DoubleList weights = new DoubleList();
+            MappedDataStore store = new MappedDataStore(channel, headerBytes[0], header, targets, weights, maxSegmentSize);
+            
+            DataSet toRet;
+            switch(header.marker)
+            {
+                case CLASSIFICATION:
+                    IntList targets_i = IntList.view(targets.stream().mapToInt(Double::intValue).toArray());
+                    toRet =  new ClassificationDataSet(store, targets_i, header.predicting);
+                    break;
+                case REGRESSION:
+                    toRet =  new RegressionDataSet(store, targets);
+                    break;
+                default:
+                    toRet =  new SimpleDataSet(store);
+            }
+            for(int i = 0; i < weights.size(); i++)
+                toRet.setWeight(i, weights.getD(i));
+            return toRet;
+        }
+    }
+    
     /**
      * This loads a JSAT dataset from an input stream, and will not do any of
      * its own buffering. The DataSet will be returned as either a
@@ -646,56 +843,14 @@ public class JSATData
     {
         DataInputStream in = new DataInputStream(inRaw);
         
-        byte[] magic_number = new byte[MAGIC_NUMBER.length];
-        in.readFully(magic_number);
-        String magic = new String(magic_number, "US-ASCII");
-        
-        if(!magic.startsWith("JSAT_"))
-            throw new RuntimeException("data does not contain magic number");
-        
-        DatasetTypeMarker marker = DatasetTypeMarker.values()[in.readByte()];
-        FloatStorageMethod fpStore = FloatStorageMethod.values()[in.readByte()];
-        
-        int numNumeric = in.readInt();
-        int numCat = in.readInt();
-        int N = in.readInt();
-        
-        if(forceAsStandard)
-            marker = DatasetTypeMarker.STANDARD;
-        
-        if(marker == DatasetTypeMarker.CLASSIFICATION)
-            numCat--;
-        else if(marker == DatasetTypeMarker.REGRESSION)
-            numNumeric--;
-        
-        CategoricalData[] categories = new CategoricalData[numCat];
-        CategoricalData predicting = null;//may not be used
-        
-        for(int i = 0; i < categories.length; i++)
-        {
-            //first, whats the name of the i'th category
-            String name = readString(in);
-            int k = in.readInt();//output the number of categories 
-            
-            categories[i] = new CategoricalData(k);
-            categories[i].setCategoryName(name);
-            
-            for(int j = 0; j < k; j++)//the option names
-                categories[i].setOptionName(readString(in), j);
-        }
-        
-        if(marker == DatasetTypeMarker.CLASSIFICATION)
-        {
-            //first, whats the name of the i'th category
-            String name = readString(in);
-            int k = in.readInt();//output the number of categories 
-            
-            predicting = new CategoricalData(k);
-            predicting.setCategoryName(name);
-            
-            for(int j = 0; j < k; j++)//the option names
-                predicting.setOptionName(readString(in), j);
-        }
+        Header header = readHeader(in, forceAsStandard);
+        DatasetTypeMarker marker = header.marker;
+        FloatStorageMethod fpStore = header.fpStore;
+        int numNumeric = header.numNumeric;
+        int numCat = header.numCat;
+        int N = header.N;
+        CategoricalData[] categories = header.categories;
+        CategoricalData predicting = header.predicting;
         
         //used for both numeric and categorical target storage
         DoubleList targets = new DoubleList();
@@ -734,13 +889,33 @@ public class JSATData
                     if(marker == DatasetTypeMarker.REGRESSION)
                         nnz--;//don't count the target value
                     int[] indicies = new int[nnz];
-                    double[] values = new double[nnz];
-                    for(int j = 0; j < nnz; j++)
+                    if(fpStore == FloatStorageMethod.FP32)//keep the values as floats
                     {
-                        indicies[j] = in.readInt();
-                        values[j] = fpStore.readFP(in);
+                        float[] values = new float[nnz];
+                        for(int j = 0; j < nnz; j++)
+                        {
+                            indicies[j] = in.readInt();
+                            values[j] = in.readFloat();
+                        }
+                        numericVals = new FloatSparseVector(indicies, values, numNumeric, nnz);
                     }
-                    numericVals = new SparseVector(indicies, values, numNumeric, nnz);
+                    else
+                    {
+                        double[] values = new double[nnz];
+                        for(int j = 0; j < nnz; j++)
+                        {
+                            indicies[j] = in.readInt();
+                            values[j] = fpStore.readFP(in);
+                        }
+                        numericVals = new SparseVector(indicies, values, numNumeric, nnz);
+                    }
+                }
+                else if(fpStore == FloatStorageMethod.FP32)
+                {
+                    float[] values = new float[numNumeric];
+                    for(int j = 0; j < numNumeric; j++)
+                        values[j] = in.readFloat();
+                    numericVals = new FloatDenseVector(values);
                 }
                 else
                 {
@@ -803,6 +978,104 @@ public class JSATData
 	return toRet;
     }
     
+    /**
+     * The information stored at the start of every JSAT data file, describing
+     * how the data points that follow it are stored.
+     */
+    static class Header
+    {
+        DatasetTypeMarker marker;
+        FloatStorageMethod fpStore;
+        /**
+         * The number of numeric features, not counting a regression target
+         */
+        int numNumeric;
+        /**
+         * The number of categorical features, not counting a class label
+         */
+        int numCat;
+        /**
+         * The number of data points, or a negative value if unknown
+         */
+        int N;
+        CategoricalData[] categories;
+        CategoricalData predicting;
+    }
+    
+    /**
+     * Reads the header of a JSAT data file, leaving the stream at the start of
+     * the first data point.
+     *
+     * @param in the stream to read from
+     * @param forceAsStandard {@code true} if the data should be treated as a
+     * {@link SimpleDataSet}, so that any target values become normal features
+     * @return the header information
+     * @throws IOException 
+     */
+    static Header readHeader(DataInputStream in, boolean forceAsStandard) throws IOException
+    {
+        byte[] magic_number = new byte[MAGIC_NUMBER.length];
+        in.readFully(magic_number);
+        String magic = new String(magic_number, "US-ASCII");
+        
+        if(!magic.startsWith("JSAT_"))
+            throw new RuntimeException("data does not contain magic number");
+        
+        Header header = new Header();
+        DatasetTypeMarker marker = DatasetTypeMarker.values()[in.readByte()];
+        FloatStorageMethod fpStore = FloatStorageMethod.values()[in.readByte()];
+        
+        int numNumeric = in.readInt();
+        int numCat = in.readInt();
+        int N = in.readInt();
+        
+        if(forceAsStandard)
+            marker = DatasetTypeMarker.STANDARD;
+        
+        if(marker == DatasetTypeMarker.CLASSIFICATION)
+            numCat--;
+        else if(marker == DatasetTypeMarker.REGRESSION)
+            numNumeric--;
+        
+        CategoricalData[] categories = new CategoricalData[numCat];
+        CategoricalData predicting = null;//may not be used
+        
+        for(int i = 0; i < categories.length; i++)
+        {
+            //first, whats the name of the i'th category
+            String name = readString(in);
+            int k = in.readInt();//output the number of categories 
+            
+            categories[i] = new CategoricalData(k);
+            categories[i].setCategoryName(name);
+            
+            for(int j = 0; j < k; j++)//the option names
+                categories[i].setOptionName(readString(in), j);
+        }
+        
+        if(marker == DatasetTypeMarker.CLASSIFICATION)
+        {
+            //first, whats the name of the i'th category
+            String name = readString(in);
+            int k = in.readInt();//output the number of categories 
+            
+            predicting = new CategoricalData(k);
+            predicting.setCategoryName(name);
+            
+            for(int j = 0; j < k; j++)//the option names
+                predicting.setOptionName(readString(in), j);
+        }
+        
+        header.marker = marker;
+        header.fpStore = fpStore;
+        header.numNumeric = numNumeric;
+        header.numCat = numCat;
+        header.N = N;
+        header.categories = categories;
+        header.predicting = predicting;
+        return header;
+    }
+    
     private static void writeString(String s, DataOutputStream out) throws IOException
     {
         boolean isAscii = true;
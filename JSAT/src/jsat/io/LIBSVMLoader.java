@@ -1,19 +1,30 @@
 package jsat.io;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import jsat.DataSet;
 import jsat.DataStore;
 import jsat.RowMajorStore;
 import jsat.classifiers.CategoricalData;
 import jsat.classifiers.ClassificationDataSet;
 import jsat.classifiers.DataPoint;
+import jsat.classifiers.DataPointPair;
+import jsat.classifiers.UpdateableClassifier;
 import jsat.datatransform.DenseSparceTransform;
 import jsat.linear.*;
 import jsat.regression.RegressionDataSet;
+import jsat.regression.UpdateableRegressor;
 import jsat.utils.DoubleList;
 import jsat.utils.IntList;
 import jsat.utils.StringUtils;
+import jsat.utils.SystemInfo;
+import jsat.utils.concurrent.ParallelUtils;
 
 /**
  * Loads a LIBSVM data file into a {@link DataSet}. LIVSM files do not indicate 
@@ -34,12 +45,24 @@ import jsat.utils.StringUtils;
  * have incompatible vector lengths. To resolve this issue, use the loading 
  * methods that include the optional {@code vectorLength} parameter to specify 
  * the length before hand. 
+ * <br><br>
+ * Large files can be loaded with multiple threads by the methods that take a
+ * {@link File} and a {@code parallel} flag, or consumed one point at a time
+ * without loading the whole file by {@link #stream(java.io.File, int) }.
  * 
  * @author Edward Raff
  */
 public class LIBSVMLoader
 {
     private static boolean fastLoad = true;
+    /**
+     * The target number of bytes in each chunk when loading a file in chunks
+     */
+    private static final long CHUNK_SIZE = 1 << 24;
+    /**
+     * The smallest chunk to split a file into for parallel parsing
+     */
+    private static final long MIN_SPLIT_SIZE = 1 << 16;
 
     private LIBSVMLoader()
     {
@@ -275,7 +298,6 @@ public class LIBSVMLoader
          * The category "label" for each value loaded in
          */
         List<Double> labelVals = new DoubleList();
-        Map<Double, Integer> possibleCats = new HashMap<>();
         int maxLen= 1;
         
         STATE state = STATE.INITIAL;
@@ -306,8 +328,6 @@ public class LIBSVMLoader
                 {
                     double label = Double.parseDouble(processBuffer.toString());
 
-                    if (!possibleCats.containsKey(label) && classification)
-                        possibleCats.put(label, possibleCats.size());
                     labelVals.add(label);
                     
                     sparceVecs.addDataPoint(new DataPoint(new SparseVector(maxLen, 0)));
@@ -355,8 +375,6 @@ public class LIBSVMLoader
                     {
                         double label = Double.parseDouble(processBuffer.toString());
 
-                        if (!possibleCats.containsKey(label) && classification)
-                            possibleCats.put(label, possibleCats.size());
                         labelVals.add(label);
 
                         //clean up and move to new state
@@ -464,6 +482,27 @@ public class LIBSVMLoader
             }
         }
         
+        return finishLoad(sparceVecs, labelVals, maxLen, sparseRatio, vectorLength, classification, store);
+    }
+    
+    /**
+     * Performs the work shared by all loaders once every line has been read:
+     * checking the vector length, mapping labels to class indices, and
+     * building the data set.
+     *
+     * @param sparceVecs the store of all the loaded points
+     * @param labelVals the label of each point, in order
+     * @param maxLen the largest vector length observed
+     * @param sparseRatio the fraction of non zero values to qualify a data
+     * point as sparse
+     * @param vectorLength the requested vector length, or a negative value
+     * @param classification {@code true} to treat as classification,
+     * {@code false} to treat as regression
+     * @param store the type of store requested by the caller
+     * @return the data set
+     */
+    private static DataSet finishLoad(DataStore sparceVecs, List<Double> labelVals, int maxLen, double sparseRatio, int vectorLength, boolean classification, DataStore store)
+    {
         if (vectorLength > 0)
             if (maxLen > vectorLength)
                 throw new RuntimeException("Length given was " + vectorLength + ", but observed length was " + maxLen);
@@ -472,11 +511,10 @@ public class LIBSVMLoader
 
         if(classification)
         {
-            CategoricalData predicting = new CategoricalData(possibleCats.size());
-
             //Give categories a unique ordering to avoid loading issues based on the order categories are presented
-            List<Double> allCatKeys = new DoubleList(possibleCats.keySet());
+            List<Double> allCatKeys = new DoubleList(new HashSet<>(labelVals));
             Collections.sort(allCatKeys);
+            Map<Double, Integer> possibleCats = new HashMap<>();
             for(int i = 0; i < allCatKeys.size(); i++)
                 possibleCats.put(allCatKeys.get(i), i);
             //apply to target values now 
@@ -505,6 +543,327 @@ public class LIBSVMLoader
         }
     }
     
+    /**
+     * Loads a new regression data set from a LIBSVM file, assuming the label is
+     * a numeric target value to predict. The file is read directly as bytes
+     * and, if requested, split into chunks that are parsed in parallel. The
+     * result is the same as the single threaded {@link #loadR(java.io.Reader, double, int, jsat.DataStore)
+     * }, but the file must use an ASCII compatible encoding.
+     *
+     * @param file the file to load
+     * @param sparseRatio the fraction of non zero values to qualify a data 
+     * point as sparse
+     * @param vectorLength the pre-determined length of each vector. If given a 
+     * negative value, the largest non-zero index observed in the data will be 
+     * used as the length. 
+     * @param store the type of store to use for data
+     * @param parallel {@code true} if the file should be parsed with multiple
+     * threads
+     * @return a regression data set
+     * @throws IOException if an error occurred reading the file
+     */
+    public static RegressionDataSet loadR(File file, double sparseRatio, int vectorLength, DataStore store, boolean parallel) throws IOException
+    {
+        return (RegressionDataSet) loadG(file, sparseRatio, vectorLength, false, store, parallel);
+    }
+    
+    /**
+     * Loads a new classification data set from a LIBSVM file, assuming the
+     * label is a nominal target value. The file is read directly as bytes
+     * and, if requested, split into chunks that are parsed in parallel. The
+     * result is the same as the single threaded {@link #loadC(java.io.Reader, double, int, jsat.DataStore)
+     * }, but the file must use an ASCII compatible encoding.
+     *
+     * @param file the file to load
+     * @param sparseRatio the fraction of non zero values to qualify a data 
+     * point as sparse
+     * @param vectorLength the pre-determined length of each vector. If given a 
+     * negative value, the largest non-zero index observed in the data will be 
+     * used as the length. 
+     * @param store the type of store to use for the data
+     * @param parallel {@code true} if the file should be parsed with multiple
+     * threads
+     * @return a classification data set
+     * @throws IOException if an error occurred reading the file
+     */
+    public static ClassificationDataSet loadC(File file, double sparseRatio, int vectorLength, DataStore store, boolean parallel) throws IOException
+    {
+        return (ClassificationDataSet) loadG(file, sparseRatio, vectorLength, true, store, parallel);
+    }
+    
+    /**
+     * Chunked loader for both Classification and Regression interpretations.
+     * Each chunk of the file is parsed into its own lists, which are then
+     * added to the store in file order.
+     */
+    private static DataSet loadG(File file, double sparseRatio, int vectorLength, boolean classification, DataStore store, boolean parallel) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            int chunks = (int) Math.min((size+CHUNK_SIZE-1)/CHUNK_SIZE, Integer.MAX_VALUE/2);
+            if(parallel)//make sure every core has something to do
+                chunks = Math.max(chunks, (int) Math.min(SystemInfo.LogicalCores*4, size/MIN_SPLIT_SIZE));
+            chunks = Math.max(chunks, 1);
+            long[] bounds = ByteRangeLineReader.split(0, size, chunks);
+            
+            DoubleList[] chunkLabels = new DoubleList[chunks];
+            List<SparseVector>[] chunkVecs = new List[chunks];
+            int[] chunkMaxLen = new int[chunks];
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            
+            ParallelUtils.run(parallel, chunks, (int c) ->
+            {
+                try
+                {
+                    ByteRangeLineReader reader = new ByteRangeLineReader(channel, bounds[c], bounds[c+1], ByteRangeLineReader.DEFAULT_BUFFER_SIZE);
+                    IntList indices = new IntList();
+                    DoubleList values = new DoubleList();
+                    DoubleList labels = new DoubleList();
+                    List<SparseVector> vecs = new ArrayList<>();
+                    int maxLen = 1;
+                    while(reader.nextLine())
+                    {
+                        labels.add(parseLine(reader, indices, values));
+                        SparseVector vec = toVec(indices, values, -1);
+                        maxLen = Math.max(maxLen, vec.length());
+                        vecs.add(vec);
+                    }
+                    chunkLabels[c] = labels;
+                    chunkVecs[c] = vecs;
+                    chunkMaxLen[c] = maxLen;
+                }
+                catch(RuntimeException ex)
+                {
+                    failure.compareAndSet(null, ex);
+                }
+            });
+            if(failure.get() != null)
+                throw failure.get();
+            
+            DataStore sparceVecs = store.emptyClone();
+            sparceVecs.setCategoricalDataInfo(new CategoricalData[0]);
+            DoubleList labelVals = new DoubleList();
+            int maxLen = 1;
+            for(int c = 0; c < chunks; c++)
+            {
+                for(SparseVector vec : chunkVecs[c])
+                    sparceVecs.addDataPoint(new DataPoint(vec));
+                labelVals.addAll(chunkLabels[c]);
+                maxLen = Math.max(maxLen, chunkMaxLen[c]);
+                //let the chunk be collected once it is in the store
+                chunkVecs[c] = null;
+                chunkLabels[c] = null;
+            }
+            
+            return finishLoad(sparceVecs, labelVals, maxLen, sparseRatio, vectorLength, classification, store);
+        }
+    }
+    
+    /**
+     * Returns a stream over the points of a LIBSVM file, paired with the raw
+     * label of each line. Lines are parsed only as the stream is consumed, so
+     * the whole file never needs to be held in memory. This makes it possible
+     * to train an {@link UpdateableClassifier} or {@link UpdateableRegressor}
+     * on files larger than memory. The label is given as found in the file,
+     * so for classification it is up to the caller to map the labels to
+     * class indices. <br>
+     * The stream is ordered, and if made {@link Stream#parallel() parallel}
+     * will split the file into byte ranges that are parsed concurrently.
+     * Every vector is a {@link SparseVector}. <br>
+     * The stream holds the file open, and should be closed once finished,
+     * i.e., used in a try-with-resources statement.
+     *
+     * @param file the file to read
+     * @param vectorLength the length of each vector. Since the file is not
+     * read ahead of time, this must be known in advance.
+     * @return a stream of each point and its label
+     * @throws IOException if an error occurred opening the file
+     */
+    public static Stream<DataPointPair<Double>> stream(File file, int vectorLength) throws IOException
+    {
+        if(vectorLength <= 0)
+            throw new IllegalArgumentException("vector length must be positive, not " + vectorLength);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        return StreamSupport.stream(new LIBSVMSpliterator(channel, 0, channel.size(), vectorLength), false)
+                .onClose(() ->
+                {
+                    try
+                    {
+                        channel.close();
+                    }
+                    catch (IOException ex)
+                    {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+    }
+    
+    /**
+     * Parses the current line of the reader.
+     *
+     * @param line the reader positioned at the line to parse
+     * @param indices the list to store the zero based index of each feature
+     * in, will be cleared first
+     * @param values the list to store the value of each feature in, will be
+     * cleared first
+     * @return the label of the line
+     */
+    private static double parseLine(ByteRangeLineReader line, IntList indices, DoubleList values)
+    {
+        indices.clear();
+        values.clear();
+        int pos = line.lineStart();
+        final int end = line.lineEnd();
+        while(pos < end && Character.isWhitespace(line.charAt(pos)))
+            pos++;
+        
+        int tokenEnd = pos;
+        while(tokenEnd < end && !Character.isWhitespace(line.charAt(tokenEnd)))
+            tokenEnd++;
+        double label;
+        try
+        {
+            label = Double.parseDouble(line.subSequence(pos, tokenEnd).toString());
+        }
+        catch(NumberFormatException ex)
+        {
+            throw new RuntimeException("Invalid LIBSVM file, bad label: " + line);
+        }
+        pos = tokenEnd;
+        
+        while(true)
+        {
+            while(pos < end && Character.isWhitespace(line.charAt(pos)))
+                pos++;
+            if(pos == end)
+                break;
+            int colon = pos;
+            while(colon < end && Character.isDigit(line.charAt(colon)))
+                colon++;
+            if(colon == pos || colon == end || line.charAt(colon) != ':')
+                throw new RuntimeException("Invalid LIBSVM file, bad feature: " + line);
+            tokenEnd = colon+1;
+            while(tokenEnd < end && !Character.isWhitespace(line.charAt(tokenEnd)))
+                tokenEnd++;
+            int index = StringUtils.parseInt(line, pos, colon)-1;
+            if(index < 0)
+                throw new RuntimeException("Invalid LIBSVM file, indices must start from 1: " + line);
+            indices.add(index);
+            values.add(StringUtils.parseDouble(line, colon+1, tokenEnd));
+            pos = tokenEnd;
+        }
+        
+        return label;
+    }
+    
+    /**
+     * Creates a sparse vector from the parsed features of a line
+     *
+     * @param indices the zero based feature indices
+     * @param values the feature values
+     * @param length the length of the vector, or a negative value to use the
+     * largest index
+     * @return the vector for the line
+     */
+    private static SparseVector toVec(IntList indices, DoubleList values, int length)
+    {
+        int maxIndex = -1;
+        boolean sorted = true;
+        int nnz = 0;
+        for(int i = 0; i < indices.size(); i++)
+        {
+            int index = indices.getI(i);
+            sorted &= index > maxIndex;
+            maxIndex = Math.max(maxIndex, index);
+            if(values.getD(i) != 0)
+                nnz++;
+        }
+        if(length < 0)
+            length = Math.max(maxIndex+1, 1);
+        else if(maxIndex >= length)
+            throw new RuntimeException("Length given was " + length + ", but observed length was " + (maxIndex+1));
+        
+        if(!sorted)//unusual, let the vector handle the ordering
+        {
+            SparseVector vec = new SparseVector(length, nnz);
+            for(int i = 0; i < indices.size(); i++)
+                vec.set(indices.getI(i), values.getD(i));
+            return vec;
+        }
+        
+        int[] idx = new int[nnz];
+        double[] vals = new double[nnz];
+        int used = 0;
+        for(int i = 0; i < indices.size(); i++)
+            if(values.getD(i) != 0)
+            {
+                idx[used] = indices.getI(i);
+                vals[used++] = values.getD(i);
+            }
+        return new SparseVector(idx, vals, length, used);
+    }
+    
+    /**
+     * Spliterator over the lines in a byte range of a LIBSVM file. It can be
+     * split until it begins reading, with each split taking half of the
+     * remaining bytes.
+     */
+    private static class LIBSVMSpliterator implements Spliterator<DataPointPair<Double>>
+    {
+        private final FileChannel channel;
+        private long start;
+        private final long end;
+        private final int vectorLength;
+        private ByteRangeLineReader reader;
+        private final IntList indices = new IntList();
+        private final DoubleList values = new DoubleList();
+
+        public LIBSVMSpliterator(FileChannel channel, long start, long end, int vectorLength)
+        {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.vectorLength = vectorLength;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super DataPointPair<Double>> action)
+        {
+            if(reader == null)
+                reader = new ByteRangeLineReader(channel, start, end, ByteRangeLineReader.DEFAULT_BUFFER_SIZE);
+            if(!reader.nextLine())
+                return false;
+            double label = parseLine(reader, indices, values);
+            action.accept(new DataPointPair<>(new DataPoint(toVec(indices, values, vectorLength)), label));
+            return true;
+        }
+
+        @Override
+        public Spliterator<DataPointPair<Double>> trySplit()
+        {
+            if(reader != null || end-start < 2*MIN_SPLIT_SIZE)
+                return null;
+            long mid = start + (end-start)/2;
+            LIBSVMSpliterator prefix = new LIBSVMSpliterator(channel, start, mid, vectorLength);
+            start = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            //number of lines is unknown, the bytes remaining is an upper bound
+            return reader == null ? end-start : end-reader.filePosition();
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+    
     /**
      * Writes out the given classification data set as a LIBSVM data file
      * @param data the data set to write to a file
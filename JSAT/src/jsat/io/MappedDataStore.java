@@ -0,0 +1,752 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.io;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import jsat.DataStore;
+import jsat.RowMajorStore;
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.DataPoint;
+import jsat.io.JSATData.DatasetTypeMarker;
+import jsat.io.JSATData.FloatStorageMethod;
+import jsat.linear.DenseVector;
+import jsat.linear.FloatDenseVector;
+import jsat.linear.FloatSparseVector;
+import jsat.linear.IndexValue;
+import jsat.linear.SparseVector;
+import jsat.linear.Vec;
+import jsat.math.OnLineStatistics;
+import jsat.utils.DoubleList;
+import jsat.utils.IntList;
+
+/**
+ * A read-only {@link DataStore} that memory maps a file written by
+ * {@link JSATData}, so that data sets larger than the Java heap can be used
+ * without loading them. The only per-row information kept on the heap is the
+ * offset of each row in the file. Data points and numeric columns are returned
+ * as light weight {@link Vec} views that read directly from the mapped file,
+ * which is left to the operating system to page in and out as needed. <br>
+ * <br>
+ * Views returned by this store can not be altered, and will throw an
+ * {@link UnsupportedOperationException} if any attempt is made to do so. Their
+ * {@link Vec#clone() clone} method returns a normal, mutable, in-memory copy.
+ * Data points that are {@link #setDataPoint(int, jsat.classifiers.DataPoint)
+ * replaced} or {@link #addDataPoint(jsat.classifiers.DataPoint) added} after
+ * loading are kept on the heap, and the file is never written to. <br>
+ * <br>
+ * Instances are obtained with {@link JSATData#loadMapped(java.io.File) }.
+ *
+ * @author Edward Raff
+ */
+public class MappedDataStore implements DataStore
+{
+    /**
+     * The default maximum number of bytes mapped by a single buffer
+     */
+    static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * The mapped regions of the file. Every row is contained within a single
+     * segment.
+     */
+    private ByteBuffer[] segments;
+    /**
+     * The index of the first row contained in each segment
+     */
+    private int[] segmentFirstRow;
+    /**
+     * The offset of each row within its segment
+     */
+    private int[] rowOffset;
+    /**
+     * The number of rows stored in the mapped file
+     */
+    private int mappedRows;
+
+    private FloatStorageMethod fpStore;
+    /**
+     * Number of bytes used per floating point value
+     */
+    private int fpBytes;
+    /**
+     * The number of numeric values stored for every row in the file
+     */
+    private int fileNumeric;
+    /**
+     * The number of categorical values stored for every row in the file
+     */
+    private int fileCat;
+    /**
+     * Number of bytes from the start of a row to its sparse flag
+     */
+    private int flagOffset;
+    private boolean hasLabel;
+    private boolean hasTarget;
+
+    private int num_numeric;
+    private CategoricalData[] cat_info;
+    /**
+     * Data points that have replaced rows of the file, or {@code null} if no
+     * rows have been replaced.
+     */
+    private DataPoint[] replaced;
+    /**
+     * Data points that have been added after the rows in the file
+     */
+    private List<DataPoint> appended;
+
+    /**
+     * Creates a new store by scanning the rows of a JSAT data file, and
+     * mapping the file into memory.
+     *
+     * @param channel the channel to map from, it may be closed once this
+     * constructor returns
+     * @param dataStart the position in the file of the first row
+     * @param header the header of the file
+     * @param targets the list to add the target value of each row to, or
+     * {@code null} if there are no targets
+     * @param weights the list to add the weight of each row to
+     * @param maxSegmentSize the maximum number of bytes to map in one buffer
+     * @throws IOException
+     */
+    MappedDataStore(FileChannel channel, long dataStart, JSATData.Header header, DoubleList targets, DoubleList weights, long maxSegmentSize) throws IOException
+    {
+        this.fpStore = header.fpStore;
+        this.fpBytes = fpStore.bytesPerValue();
+        this.fileNumeric = header.numNumeric;
+        this.fileCat = header.numCat;
+        this.hasLabel = header.marker == DatasetTypeMarker.CLASSIFICATION;
+        this.hasTarget = header.marker == DatasetTypeMarker.REGRESSION;
+        this.flagOffset = fpBytes + 4 * fileCat + (hasLabel ? 4 : 0);
+        this.num_numeric = header.numNumeric;
+        this.cat_info = header.categories;
+        this.appended = new ArrayList<>();
+
+        final long fileSize = channel.size();
+        final int N = header.N < 0 ? Integer.MAX_VALUE : header.N;
+        List<ByteBuffer> segs = new ArrayList<>();
+        IntList firstRows = new IntList();
+        IntList offsets = new IntList();
+
+        long segStart = dataStart;
+        ByteBuffer seg = channel.map(FileChannel.MapMode.READ_ONLY, segStart, Math.min(maxSegmentSize, fileSize - segStart));
+        long pos = dataStart;
+        int row = 0;
+        while (row < N && pos < fileSize)
+        {
+            int local = (int) (pos - segStart);
+            long size = rowSize(seg, local);
+            if (size < 0 || local + size > seg.limit())//row is not fully in this segment
+            {
+                if (segStart + seg.limit() >= fileSize)
+                    break;//incomplete last row, same as reaching the end of the stream
+                if (local == 0)
+                    throw new IOException("Row " + row + " is too large to be mapped");
+                segStart = pos;
+                seg = channel.map(FileChannel.MapMode.READ_ONLY, segStart, Math.min(maxSegmentSize, fileSize - segStart));
+                continue;
+            }
+            if (segs.isEmpty() || segs.get(segs.size() - 1) != seg)
+            {
+                segs.add(seg);
+                firstRows.add(row);
+            }
+            offsets.add(local);
+            weights.add(fpStore.readFP(seg, local));
+            if (hasLabel)
+                targets.add(seg.getInt(local + flagOffset - 4));
+            else if (hasTarget)//target is the last value of the row
+                targets.add(fpStore.readFP(seg, (int) (local + size - fpBytes)));
+
+            pos += size;
+            row++;
+        }
+
+        this.mappedRows = row;
+        this.segments = segs.toArray(new ByteBuffer[segs.size()]);
+        this.segmentFirstRow = new int[firstRows.size()];
+        for (int i = 0; i < segmentFirstRow.length; i++)
+            segmentFirstRow[i] = firstRows.getI(i);
+        this.rowOffset = new int[offsets.size()];
+        for (int i = 0; i < rowOffset.length; i++)
+            rowOffset[i] = offsets.getI(i);
+    }
+
+    /**
+     * Copy constructor. The mapped file is shared between both objects, but
+     * replaced and added data points are not.
+     *
+     * @param toCopy the object to copy
+     */
+    public MappedDataStore(MappedDataStore toCopy)
+    {
+        this.segments = toCopy.segments;
+        this.segmentFirstRow = toCopy.segmentFirstRow;
+        this.rowOffset = toCopy.rowOffset;
+        this.mappedRows = toCopy.mappedRows;
+        this.fpStore = toCopy.fpStore;
+        this.fpBytes = toCopy.fpBytes;
+        this.fileNumeric = toCopy.fileNumeric;
+        this.fileCat = toCopy.fileCat;
+        this.flagOffset = toCopy.flagOffset;
+        this.hasLabel = toCopy.hasLabel;
+        this.hasTarget = toCopy.hasTarget;
+        this.num_numeric = toCopy.num_numeric;
+        if (toCopy.cat_info != null)
+            this.cat_info = CategoricalData.copyOf(toCopy.cat_info);
+        if (toCopy.replaced != null)
+            this.replaced = Arrays.copyOf(toCopy.replaced, toCopy.replaced.length);
+        this.appended = new ArrayList<>(toCopy.appended);
+    }
+
+    /**
+     * Computes the number of bytes used by the row starting at the given
+     * position.
+     *
+     * @return the size of the row, or -1 if the segment does not contain
+     * enough bytes to determine the size
+     */
+    private long rowSize(ByteBuffer seg, int local)
+    {
+        long fixed = (long) local + flagOffset + 1;
+        if (fixed > seg.limit())
+            return -1;
+        if (seg.get(local + flagOffset) == 0)//dense
+            return flagOffset + 1 + (long) fpBytes * (fileNumeric + (hasTarget ? 1 : 0));
+        if (fixed + 4 > seg.limit())
+            return -1;
+        int count = seg.getInt((int) fixed);//includes the target for regression
+        return flagOffset + 1 + 4 + (long) count * (4 + fpBytes);
+    }
+
+    /**
+     * @return the number of data points stored in the mapped file, which does
+     * not include any data points added since loading
+     */
+    public int getMappedSize()
+    {
+        return mappedRows;
+    }
+
+    private ByteBuffer segmentOf(int row)
+    {
+        int s = Arrays.binarySearch(segmentFirstRow, row);
+        if (s < 0)
+            s = -s - 2;
+        return segments[s];
+    }
+
+    /**
+     * Returns a view of the numeric values of a row of the mapped file
+     */
+    private Vec rowVec(ByteBuffer buf, int off)
+    {
+        if (buf.get(off + flagOffset) == 0)
+            return new MappedDenseVec(buf, off + flagOffset + 1, fileNumeric, fpStore);
+        int nnz = buf.getInt(off + flagOffset + 1) - (hasTarget ? 1 : 0);
+        return new MappedSparseVec(buf, off + flagOffset + 1 + 4, nnz, fileNumeric, fpStore);
+    }
+
+    /**
+     * Reads a single numeric value of a row of the mapped file, without
+     * creating a view of the whole row
+     */
+    private double numericValue(int row, int column)
+    {
+        ByteBuffer buf = segmentOf(row);
+        int off = rowOffset[row] + flagOffset;
+        if (buf.get(off) == 0)
+            return fpStore.readFP(buf, off + 1 + column * fpBytes);
+        final int stride = 4 + fpBytes;
+        final int start = off + 1 + 4;
+        int lo = 0, hi = buf.getInt(off + 1) - (hasTarget ? 1 : 0);
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            int index = buf.getInt(start + mid * stride);
+            if (index == column)
+                return fpStore.readFP(buf, start + mid * stride + 4);
+            else if (index < column)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return 0.0;
+    }
+
+    @Override
+    public void setCategoricalDataInfo(CategoricalData[] cat_info)
+    {
+        this.cat_info = cat_info;
+    }
+
+    @Override
+    public CategoricalData[] getCategoricalDataInfo()
+    {
+        return cat_info;
+    }
+
+    @Override
+    public void addDataPoint(DataPoint dp)
+    {
+        appended.add(dp);
+    }
+
+    @Override
+    public DataPoint getDataPoint(int i)
+    {
+        if (i < 0 || i >= size())
+            throw new IndexOutOfBoundsException("Requested datapoint " + i + " but store has only " + size() + " datums");
+        if (i >= mappedRows)
+            return appended.get(i - mappedRows);
+        if (replaced != null && replaced[i] != null)
+            return replaced[i];
+
+        ByteBuffer buf = segmentOf(i);
+        int off = rowOffset[i];
+        int[] cats = new int[fileCat];
+        for (int j = 0; j < cats.length; j++)
+            cats[j] = buf.getInt(off + fpBytes + 4 * j);
+        return new DataPoint(rowVec(buf, off), cats, cat_info);
+    }
+
+    @Override
+    public void setDataPoint(int i, DataPoint dp)
+    {
+        if (i >= mappedRows)
+        {
+            appended.set(i - mappedRows, dp);
+            return;
+        }
+        synchronized (this)
+        {
+            if (replaced == null)
+                replaced = new DataPoint[mappedRows];
+        }
+        replaced[i] = dp;
+    }
+
+    @Override
+    public void finishAdding()
+    {
+        //NOP, nothing to clean up
+    }
+
+    @Override
+    public int numNumeric()
+    {
+        return num_numeric;
+    }
+
+    @Override
+    public void setNumNumeric(int d)
+    {
+        if (d < 0)
+            throw new RuntimeException("Can not store a negative number of features (" + d + ")");
+        num_numeric = d;
+    }
+
+    @Override
+    public int numCategorical()
+    {
+        return cat_info == null ? 0 : cat_info.length;
+    }
+
+    /**
+     * {@inheritDoc }<br>
+     * <br>
+     * So long as no data points have been replaced or added, the returned
+     * vector is a read-only view of the mapped file, and no copy of the column
+     * is made.
+     */
+    @Override
+    public Vec getNumericColumn(int i)
+    {
+        if (i < 0 || i >= numNumeric())
+            throw new IndexOutOfBoundsException("There is no index for column " + i);
+        if (replaced == null && appended.isEmpty() && num_numeric == fileNumeric)
+            return new MappedColumnVec(i);
+        return getNumericColumns(Collections.EMPTY_SET)[i];
+    }
+
+    @Override
+    public int[] getCatColumn(int i)
+    {
+        if (i < 0 || i >= numCategorical())
+            throw new IndexOutOfBoundsException("There is no index for column " + i);
+        int[] toRet = new int[size()];
+        for (int z = 0; z < size(); z++)
+        {
+            if (z < mappedRows && (replaced == null || replaced[z] == null) && i < fileCat)
+                toRet[z] = segmentOf(z).getInt(rowOffset[z] + fpBytes + 4 * i);
+            else
+                toRet[z] = getDataPoint(z).getCategoricalValue(i);
+        }
+        return toRet;
+    }
+
+    @Override
+    public Vec[] getNumericColumns(Set<Integer> skipColumns)
+    {
+        boolean sparse = getSparsityStats().getMean() < 0.6;
+        Vec[] cols = new Vec[numNumeric()];
+
+        for (int i = 0; i < cols.length; i++)
+            if (!skipColumns.contains(i))
+                cols[i] = sparse ? new SparseVector(size()) : new DenseVector(size());
+
+        for (int i = 0; i < size(); i++)
+        {
+            Vec v = getDataPoint(i).getNumericalValues();
+
+            for (IndexValue iv : v)
+            {
+                int col = iv.getIndex();
+                if (col < cols.length && cols[col] != null)
+                    cols[col].set(i, iv.getValue());
+            }
+        }
+
+        return cols;
+    }
+
+    @Override
+    public int size()
+    {
+        return mappedRows + appended.size();
+    }
+
+    @Override
+    public OnLineStatistics getSparsityStats()
+    {
+        OnLineStatistics stats = new OnLineStatistics();
+        for (int i = 0; i < size(); i++)
+        {
+            Vec v = getDataPoint(i).getNumericalValues();
+            if (v.isSparse())
+                stats.add(v.nnz() / (double) v.length());
+            else
+                stats.add(1.0);
+        }
+
+        return stats;
+    }
+
+    @Override
+    public MappedDataStore clone()
+    {
+        return new MappedDataStore(this);
+    }
+
+    /**
+     * A mapped file can not be created empty, so this returns a
+     * {@link RowMajorStore} with the same feature information as this store.
+     *
+     * @return a new, empty, in-memory data store
+     */
+    @Override
+    public DataStore emptyClone()
+    {
+        return new RowMajorStore(num_numeric, cat_info);
+    }
+
+    /**
+     * Read-only view of a dense row in the mapped file
+     */
+    private static class MappedDenseVec extends Vec
+    {
+        private static final long serialVersionUID = -2171352480154375129L;
+        private final ByteBuffer buf;
+        private final int start;
+        private final int length;
+        private final FloatStorageMethod fpStore;
+        private final int fpBytes;
+
+        public MappedDenseVec(ByteBuffer buf, int start, int length, FloatStorageMethod fpStore)
+        {
+            this.buf = buf;
+            this.start = start;
+            this.length = length;
+            this.fpStore = fpStore;
+            this.fpBytes = fpStore.bytesPerValue();
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public double get(int index)
+        {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException("Index " + index + " is not valid for a vector of length " + length);
+            return fpStore.readFP(buf, start + index * fpBytes);
+        }
+
+        @Override
+        public void set(int index, double val)
+        {
+            throw new UnsupportedOperationException("Mapped data can not be altered");
+        }
+
+        @Override
+        public boolean canBeMutated()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isSparse()
+        {
+            return false;
+        }
+
+        @Override
+        public Vec clone()
+        {
+            if(fpStore == FloatStorageMethod.FP32)
+                return new FloatDenseVector(this);
+            return new DenseVector(this);
+        }
+
+        @Override
+        public void setLength(int length)
+        {
+            throw new UnsupportedOperationException("Mapped data can not be altered");
+        }
+
+        private Object writeReplace() throws ObjectStreamException
+        {
+            return clone();
+        }
+    }
+
+    /**
+     * Read-only view of a sparse row in the mapped file. Each non-zero is
+     * stored as an int index followed by its value.
+     */
+    private static class MappedSparseVec extends Vec
+    {
+        private static final long serialVersionUID = 3326427587373613458L;
+        private final ByteBuffer buf;
+        private final int start;
+        private final int nnz;
+        private final int length;
+        private final FloatStorageMethod fpStore;
+        private final int stride;
+
+        public MappedSparseVec(ByteBuffer buf, int start, int nnz, int length, FloatStorageMethod fpStore)
+        {
+            this.buf = buf;
+            this.start = start;
+            this.nnz = nnz;
+            this.length = length;
+            this.fpStore = fpStore;
+            this.stride = 4 + fpStore.bytesPerValue();
+        }
+
+        private int indexAt(int pos)
+        {
+            return buf.getInt(start + pos * stride);
+        }
+
+        private double valueAt(int pos)
+        {
+            return fpStore.readFP(buf, start + pos * stride + 4);
+        }
+
+        /**
+         * Binary search for the given index, returning the position of the
+         * first stored index greater than or equal to it.
+         */
+        private int search(int index)
+        {
+            int lo = 0, hi = nnz;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (indexAt(mid) < index)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public int nnz()
+        {
+            return nnz;
+        }
+
+        @Override
+        public double get(int index)
+        {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException("Index " + index + " is not valid for a vector of length " + length);
+            int pos = search(index);
+            if (pos < nnz && indexAt(pos) == index)
+                return valueAt(pos);
+            return 0.0;
+        }
+
+        @Override
+        public void set(int index, double val)
+        {
+            throw new UnsupportedOperationException("Mapped data can not be altered");
+        }
+
+        @Override
+        public boolean canBeMutated()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isSparse()
+        {
+            return true;
+        }
+
+        @Override
+        public Iterator<IndexValue> getNonZeroIterator(int start)
+        {
+            final int startPos = search(start);
+            return new Iterator<IndexValue>()
+            {
+                int pos = startPos;
+                final IndexValue indexValue = new IndexValue(-1, Double.NaN);
+
+                @Override
+                public boolean hasNext()
+                {
+                    return pos < nnz;
+                }
+
+                @Override
+                public IndexValue next()
+                {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    indexValue.setIndex(indexAt(pos));
+                    indexValue.setValue(valueAt(pos++));
+                    return indexValue;
+                }
+            };
+        }
+
+        @Override
+        public Vec clone()
+        {
+            if(fpStore == FloatStorageMethod.FP32)
+                return new FloatSparseVector(this);
+            return new SparseVector(this);
+        }
+
+        @Override
+        public void setLength(int length)
+        {
+            throw new UnsupportedOperationException("Mapped data can not be altered");
+        }
+
+        private Object writeReplace() throws ObjectStreamException
+        {
+            return clone();
+        }
+    }
+
+    /**
+     * Read-only view of a numeric column of the mapped file
+     */
+    private class MappedColumnVec extends Vec
+    {
+        private static final long serialVersionUID = 5016046302370441375L;
+        private final int column;
+
+        public MappedColumnVec(int column)
+        {
+            this.column = column;
+        }
+
+        @Override
+        public int length()
+        {
+            return mappedRows;
+        }
+
+        @Override
+        public double get(int index)
+        {
+            if (index < 0 || index >= mappedRows)
+                throw new IndexOutOfBoundsException("Index " + index + " is not valid for a vector of length " + mappedRows);
+            return numericValue(index, column);
+        }
+
+        @Override
+        public void set(int index, double val)
+        {
+            throw new UnsupportedOperationException("Mapped data can not be altered");
+        }
+
+        @Override
+        public boolean canBeMutated()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isSparse()
+        {
+            return false;
+        }
+
+        @Override
+        public Vec clone()
+        {
+            return new DenseVector(this);
+        }
+
+        @Override
+        public void setLength(int length)
+        {
+            throw new UnsupportedOperationException("Mapped data can not be altered");
+        }
+
+        private Object writeReplace() throws ObjectStreamException
+        {
+            return clone();
+        }
+    }
+}
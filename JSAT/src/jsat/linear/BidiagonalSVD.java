@@ -0,0 +1,529 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import jsat.utils.IndexTable;
+
+/**
+ * Computes the singular value decomposition of a bidiagonal matrix with the
+ * divide and conquer algorithm of Gu and Eisenstat. The recursion works on
+ * lower bidiagonal matrices of size (m+1) x m, which split into two smaller
+ * matrices of the same shape when one column is removed. The two halves are
+ * solved recursively (and in parallel), and then merged by solving a
+ * {@link SecularEquation secular equation} for each singular value of a
+ * matrix that is zero except for its first column and diagonal. As in
+ * {@link TridiagonalEigen}, the vector defining the merge is recomputed from
+ * the singular values so that the singular vectors stay orthogonal, and
+ * converged values are deflated. <br>
+ * <br>
+ * See: Gu, M.,&amp;Eisenstat, S. C. (1995). <i>A Divide-and-Conquer Algorithm
+ * for the Bidiagonal SVD</i>. SIAM Journal on Matrix Analysis and
+ * Applications, 16(1), 79–92.
+ *
+ * @author Edward Raff
+ */
+class BidiagonalSVD
+{
+    /**
+     * Problems with this many columns or fewer are solved directly
+     */
+    static final int LEAF_SIZE = 24;
+    private static final double EPS = Math.ulp(1.0);
+
+    /**
+     * The left singular vectors of the (m+1) x m matrix, as m+1 columns. The
+     * last column spans the left null space.
+     */
+    private double[][] Q;
+    /**
+     * The m singular values, in ascending order
+     */
+    private double[] s;
+    /**
+     * The right singular vectors, as m columns
+     */
+    private double[][] W;
+
+    private BidiagonalSVD(double[][] Q, double[] s, double[][] W)
+    {
+        this.Q = Q;
+        this.s = s;
+        this.W = W;
+    }
+
+    /**
+     * Computes the SVD of the n x n upper bidiagonal matrix <b>B</b> =
+     * <b>U</b> &Sigma; <b>V</b><sup>T</sup>
+     *
+     * @param d the n diagonal values of <b>B</b>, which will be replaced by
+     * the singular values in descending order
+     * @param e the n-1 super diagonal values of <b>B</b>
+     * @param pool the pool to use, or {@code null} to compute serially
+     * @return an array with the columns of <b>U</b> and the columns of
+     * <b>V</b>
+     */
+    static double[][][] solve(double[] d, double[] e, ForkJoinPool pool)
+    {
+        final int n = d.length;
+        double scale = 0;
+        for(double v : d)
+            scale = Math.max(scale, Math.abs(v));
+        for(int i = 0; i < n-1; i++)
+            scale = Math.max(scale, Math.abs(e[i]));
+        if(scale == 0)
+        {
+            double[][] I = new double[n][n];
+            for(int i = 0; i < n; i++)
+                I[i][i] = 1;
+            return new double[][][]{I, I.clone()};
+        }
+
+        //B^T padded with a zero row is lower bidiagonal of the form we work with
+        double[] a = new double[n];
+        double[] b = new double[n];
+        for(int i = 0; i < n; i++)
+            a[i] = d[i]/scale;
+        for(int i = 0; i < n-1; i++)
+            b[i] = e[i]/scale;
+
+        //split into independent blocks wherever a super diagonal is negligible
+        final double[] vals = new double[n];
+        final double[][] U = new double[n][];
+        final double[][] V = new double[n][];
+        int blocks = 0;
+        int start = 0;
+        for(int i = 0; i < n; i++)
+        {
+            if(i < n-1 && Math.abs(b[i]) > EPS*(Math.abs(a[i])+Math.abs(a[i+1])))
+                continue;
+            b[i] = 0;
+            final int len = i+1-start;
+            if(len == 1 && n > 1)//trivial, and may be all zero
+            {
+                vals[start] = Math.abs(a[start]);
+                U[start] = new double[n];
+                U[start][start] = a[start] < 0 ? -1 : 1;
+                V[start] = new double[n];
+                V[start][start] = 1;
+                blocks++;
+                start = i+1;
+                continue;
+            }
+            //split off the last column so that the null vector is exactly the padding row
+            BidiagonalSVD result = solve(a, b, start, len, len-1, pool);
+            //[B^T; 0] = Q S W^T, so B = W S Q^T with Q restricted to the first len rows
+            for(int j = 0; j < len; j++)
+            {
+                vals[start+j] = result.s[j];
+                if(len == n)
+                {
+                    U[j] = result.W[j];
+                    V[j] = Arrays.copyOf(result.Q[j], n);
+                }
+                else
+                {
+                    U[start+j] = new double[n];
+                    V[start+j] = new double[n];
+                    System.arraycopy(result.W[j], 0, U[start+j], start, len);
+                    System.arraycopy(result.Q[j], 0, V[start+j], start, len);
+                }
+            }
+            blocks++;
+            start = i+1;
+        }
+
+        IndexTable order = blocks > 1 ? new IndexTable(vals) : null;
+        double[][] Us = new double[n][];
+        double[][] Vs = new double[n][];
+        for(int j = 0; j < n; j++)
+        {
+            int src = n-1-j;//descending order
+            if(order != null)
+                src = order.index(src);
+            d[j] = vals[src]*scale;
+            Us[j] = U[src];
+            Vs[j] = V[src];
+        }
+        return new double[][][]{Us, Vs};
+    }
+
+    private static BidiagonalSVD solve(final double[] a, final double[] b, final int off, final int m, final ForkJoinPool pool)
+    {
+        if(m <= LEAF_SIZE)
+            return leaf(a, b, off, m);
+        return solve(a, b, off, m, m/2, pool);
+    }
+
+    /**
+     * Solves the problem by removing column {@code k}
+     */
+    private static BidiagonalSVD solve(final double[] a, final double[] b, final int off, final int m, final int k, final ForkJoinPool pool)
+    {
+        final BidiagonalSVD[] halves = new BidiagonalSVD[2];
+        ParallelRange.both(m*m >= ParallelRange.MIN_TASK_WORK ? pool : null,
+                () -> halves[0] = solve(a, b, off, k, pool),
+                () -> halves[1] = solve(a, b, off+k+1, m-k-1, pool));
+        final BidiagonalSVD top = halves[0], bot = halves[1];
+        final double alpha = a[off+k], beta = b[off+k];
+        final int m2 = m-k-1;
+        final double[] q1 = top.Q[k], q2 = bot.Q[m2];
+
+        //rotate the two null vectors so that only one of them is hit by the removed column
+        final double r0 = alpha*q1[k], s0 = beta*q2[0];
+        final double r = Math.hypot(r0, s0);
+        final double c = r == 0 ? 1 : r0/r, s = r == 0 ? 0 : s0/r;
+
+        //the middle matrix is z e_0^T + diag(D), in terms of these left and right bases
+        final double[] z = new double[m];
+        final double[] D = new double[m];
+        final double[][] left = new double[m][];
+        final double[][] right = new double[m][];
+        z[0] = r;
+        left[0] = new double[m+1];
+        for(int i = 0; i <= k; i++)
+            left[0][i] = c*q1[i];
+        for(int i = 0; i <= m2; i++)
+            left[0][k+1+i] = s*q2[i];
+        right[0] = new double[m];
+        right[0][k] = 1;
+        for(int j = 0; j < k; j++)
+        {
+            z[1+j] = alpha*top.Q[j][k];
+            D[1+j] = top.s[j];
+            left[1+j] = Arrays.copyOf(top.Q[j], m+1);
+            right[1+j] = Arrays.copyOf(top.W[j], m);
+        }
+        for(int j = 0; j < m2; j++)
+        {
+            z[k+1+j] = beta*bot.Q[j][0];
+            D[k+1+j] = bot.s[j];
+            left[k+1+j] = new double[m+1];
+            System.arraycopy(bot.Q[j], 0, left[k+1+j], k+1, m2+1);
+            right[k+1+j] = new double[m];
+            System.arraycopy(bot.W[j], 0, right[k+1+j], k+1, m2);
+        }
+        final double[] nullVec = new double[m+1];
+        for(int i = 0; i <= k; i++)
+            nullVec[i] = -s*q1[i];
+        for(int i = 0; i <= m2; i++)
+            nullVec[k+1+i] = c*q2[i];
+
+        return merge(z, D, left, right, nullVec, k, pool);
+    }
+
+    /**
+     * Computes the SVD of the matrix z e_0<sup>T</sup> + diag(D), where
+     * {@code D[0]} is zero, and rotates the given bases by the result.
+     *
+     * @param left the m left basis vectors, each of length m+1. These may be
+     * altered.
+     * @param right the m right basis vectors, each of length m. These may be
+     * altered.
+     * @param nullVec the left null vector
+     * @param k the removed column. Basis vectors 1 to k are only non zero up to
+     * index k, and the ones after are only non zero after index k.
+     */
+    private static BidiagonalSVD merge(final double[] z, final double[] D, final double[][] left, final double[][] right, final double[] nullVec, final int k, final ForkJoinPool pool)
+    {
+        final int m = z.length;
+        //which parts of the basis vectors may be non zero: 1 for the top, 2 for the bottom, 3 for both
+        final int[] leftParts = new int[m];
+        final int[] rightParts = new int[m];
+        leftParts[0] = 3;
+        rightParts[0] = 1;
+        for(int j = 1; j < m; j++)
+            leftParts[j] = rightParts[j] = j <= k ? 1 : 2;
+        double dMax = 0, zMax = 0;
+        for(int i = 0; i < m; i++)
+        {
+            dMax = Math.max(dMax, D[i]);
+            zMax = Math.max(zMax, Math.abs(z[i]));
+        }
+        final double tol = 8*EPS*Math.max(dMax, zMax);
+        if(Math.abs(z[0]) <= tol)
+            z[0] = tol;
+
+        //deflation, in order of increasing D
+        final IndexTable it = new IndexTable(D);
+        final boolean[] deflated = new boolean[m];
+        final int[] kept = new int[m];
+        kept[0] = 0;
+        int K = 1;
+        int prev = -1;
+        for(int pos = 0; pos < m; pos++)
+        {
+            final int i = it.index(pos);
+            if(i == 0)
+                continue;
+            if(Math.abs(z[i]) <= tol)
+            {
+                deflated[i] = true;
+                continue;
+            }
+            if(D[i] <= tol)
+            {
+                //rotate z[i] into z[0], which only touches the left basis
+                final double t = Math.hypot(z[0], z[i]);
+                final double cn = z[0]/t, sn = z[i]/t;
+                z[0] = t;
+                z[i] = 0;
+                rotate(left[0], left[i], cn, sn);
+                leftParts[i] = 3;
+                deflated[i] = true;
+                continue;
+            }
+            if(prev >= 0 && D[i]-D[prev] <= tol)
+            {
+                //rotate z[prev] into z[i], on both sides since the D values are the same
+                final double t = Math.hypot(z[prev], z[i]);
+                final double cn = z[i]/t, sn = z[prev]/t;
+                z[i] = t;
+                z[prev] = 0;
+                rotate(left[i], left[prev], cn, sn);
+                rotate(right[i], right[prev], cn, sn);
+                leftParts[i] = leftParts[prev] = leftParts[i] | leftParts[prev];
+                rightParts[i] = rightParts[prev] = rightParts[i] | rightParts[prev];
+                deflated[prev] = true;
+                K--;
+            }
+            kept[K++] = i;
+            prev = i;
+        }
+
+        final int Kf = K;
+        final double[] dk = new double[Kf];
+        final double[] zk = new double[Kf];
+        final double[] w = new double[Kf];
+        for(int a = 0; a < Kf; a++)
+        {
+            dk[a] = a == 0 ? 0 : D[kept[a]];
+            zk[a] = z[kept[a]];
+            w[a] = zk[a]*zk[a];
+        }
+
+        //roots, with delta[j][i] = dk[i] - sigma_j and sum[j][i] = dk[i] + sigma_j
+        final double[] sigma = new double[Kf];
+        final double[][] delta = new double[Kf][];
+        final double[][] sum = new double[Kf][];
+        ParallelRange.run(pool, 0, Kf, 10L*Kf, (start, end) ->
+        {
+            for(int j = start; j < end; j++)
+            {
+                delta[j] = new double[Kf];
+                sum[j] = new double[Kf];
+                sigma[j] = SecularEquation.singular(j, dk, w, delta[j], sum[j]);
+            }
+        });
+
+        //recompute z from the roots (Lowner's theorem), so the vectors are orthogonal
+        final double[] zHat = new double[Kf];
+        ParallelRange.run(pool, 0, Kf, Kf, (start, end) ->
+        {
+            for(int i = start; i < end; i++)
+            {
+                double prod = -delta[i][i]*sum[i][i];
+                for(int j = 0; j < Kf; j++)
+                    if(j != i)
+                        prod *= (delta[j][i]/(dk[i]-dk[j]))*(sum[j][i]/(dk[i]+dk[j]));
+                zHat[i] = Math.copySign(Math.sqrt(Math.abs(prod)), zk[i]);
+            }
+        });
+
+        //singular vectors of the middle matrix, one per row
+        final double[][] Um = new double[Kf][Kf];
+        final double[][] Vm = new double[Kf][Kf];
+        ParallelRange.run(pool, 0, Kf, 4L*Kf, (start, end) ->
+        {
+            for(int j = start; j < end; j++)
+            {
+                final double[] u = Um[j], v = Vm[j];
+                final double[] del = delta[j], sm = sum[j];
+                double uNorm = 0, vNorm = 1;
+                v[0] = -1;
+                for(int i = 0; i < Kf; i++)
+                {
+                    u[i] = zHat[i]/(del[i]*sm[i]);
+                    uNorm += u[i]*u[i];
+                    if(i > 0)
+                    {
+                        v[i] = dk[i]*u[i];
+                        vNorm += v[i]*v[i];
+                    }
+                }
+                uNorm = 1/Math.sqrt(uNorm);
+                vNorm = 1/Math.sqrt(vNorm);
+                for(int i = 0; i < Kf; i++)
+                {
+                    u[i] *= uNorm;
+                    v[i] *= vNorm;
+                }
+            }
+        });
+
+        final double[][] newLeft = new double[Kf][m+1];
+        final double[][] newRight = new double[Kf][m];
+        rotateBasis(Um, left, leftParts, kept, Kf, k+1, newLeft, pool);
+        rotateBasis(Vm, right, rightParts, kept, Kf, k+1, newRight, pool);
+
+        //combine with the deflated vectors, in ascending order
+        final double[] vals = new double[m];
+        final double[][] Ls = new double[m][];
+        final double[][] Rs = new double[m][];
+        int pos = 0;
+        for(int i = 1; i < m; i++)
+            if(deflated[i])
+            {
+                vals[pos] = D[i];
+                Ls[pos] = left[i];
+                Rs[pos++] = right[i];
+            }
+        for(int a = 0; a < Kf; a++)
+        {
+            vals[pos] = sigma[a];
+            Ls[pos] = newLeft[a];
+            Rs[pos++] = newRight[a];
+        }
+        IndexTable order = new IndexTable(vals);
+        final double[] sOut = new double[m];
+        final double[][] Q = new double[m+1][];
+        final double[][] W = new double[m][];
+        for(int i = 0; i < m; i++)
+        {
+            sOut[i] = vals[order.index(i)];
+            Q[i] = Ls[order.index(i)];
+            W[i] = Rs[order.index(i)];
+        }
+        Q[m] = nullVec;
+        return new BidiagonalSVD(Q, sOut, W);
+    }
+
+    /**
+     * Computes out = M basis, where the rows of the basis are the kept basis
+     * vectors. The top and bottom parts of the vectors are done separately,
+     * so that the vectors that are zero in one part are skipped.
+     *
+     * @param split the index the bottom part of the vectors starts at
+     */
+    private static void rotateBasis(double[][] M, double[][] basis, int[] parts, int[] kept, int K, int split, double[][] out, ForkJoinPool pool)
+    {
+        final int len = out.length == 0 ? 0 : out[0].length;
+        for(int part = 1; part <= 2; part++)
+        {
+            int count = 0;
+            for(int a = 0; a < K; a++)
+                if((parts[kept[a]] & part) != 0)
+                    count++;
+            final double[][] M_sub = new double[K][count];
+            final double[][] basis_sub = new double[count][];
+            for(int a = 0, c = 0; a < K; a++)
+                if((parts[kept[a]] & part) != 0)
+                {
+                    for(int j = 0; j < K; j++)
+                        M_sub[j][c] = M[j][a];
+                    basis_sub[c++] = basis[kept[a]];
+                }
+            if(part == 1)
+                PackedGEMM.gemm(M_sub, false, basis_sub, false, out, 0, K, 0, split, 0, count, pool);
+            else
+                PackedGEMM.gemm(M_sub, false, basis_sub, false, out, 0, K, split, len, 0, count, pool);
+        }
+    }
+
+    /**
+     * Replaces x and y with c x + s y and c y - s x
+     */
+    private static void rotate(double[] x, double[] y, double c, double s)
+    {
+        for(int i = 0; i < x.length; i++)
+        {
+            double xi = x[i], yi = y[i];
+            x[i] = c*xi + s*yi;
+            y[i] = c*yi - s*xi;
+        }
+    }
+
+    /**
+     * Solves a small problem directly with the QR iteration based SVD, and
+     * finds the null vector it does not compute with Gram-Schmidt.
+     */
+    private static BidiagonalSVD leaf(double[] a, double[] b, int off, int m)
+    {
+        if(m == 0)
+            return new BidiagonalSVD(new double[][]{{1.0}}, new double[0], new double[0][]);
+        DenseMatrix B = new DenseMatrix(m+1, m);
+        for(int i = 0; i < m; i++)
+        {
+            B.set(i, i, a[off+i]);
+            B.set(i+1, i, b[off+i]);
+        }
+        SingularValueDecomposition svd = new SingularValueDecomposition(B, 100);
+        Matrix U = svd.getU();
+        Matrix V = svd.getV();
+        double[] sv = svd.getSingularValues();
+
+        double[][] Q = new double[m+1][];
+        double[] s = new double[m];
+        double[][] W = new double[m][];
+        for(int j = 0; j < m; j++)
+        {
+            int src = m-1-j;//ascending order
+            s[j] = sv[src];
+            Q[j] = new double[m+1];
+            for(int i = 0; i <= m; i++)
+                Q[j][i] = U.get(i, src);
+            W[j] = new double[m];
+            for(int i = 0; i < m; i++)
+                W[j][i] = V.get(i, src);
+        }
+
+        //the standard basis vector with the smallest projection gives the most accurate null vector
+        int best = 0;
+        double bestNorm = Double.POSITIVE_INFINITY;
+        for(int r = 0; r <= m; r++)
+        {
+            double proj = 0;
+            for(int j = 0; j < m; j++)
+                proj += Q[j][r]*Q[j][r];
+            if(proj < bestNorm)
+            {
+                bestNorm = proj;
+                best = r;
+            }
+        }
+        double[] nullVec = new double[m+1];
+        nullVec[best] = 1;
+        for(int pass = 0; pass < 2; pass++)
+            for(int j = 0; j < m; j++)
+            {
+                double dot = 0;
+                for(int i = 0; i <= m; i++)
+                    dot += Q[j][i]*nullVec[i];
+                for(int i = 0; i <= m; i++)
+                    nullVec[i] -= dot*Q[j][i];
+            }
+        double norm = 0;
+        for(double v : nullVec)
+            norm += v*v;
+        norm = 1/Math.sqrt(norm);
+        for(int i = 0; i <= m; i++)
+            nullVec[i] *= norm;
+        Q[m] = nullVec;
+        return new BidiagonalSVD(Q, s, W);
+    }
+}
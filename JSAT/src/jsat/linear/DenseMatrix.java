@@ -5,7 +5,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -13,6 +12,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import jsat.utils.FakeExecutor;
+import jsat.utils.concurrent.ParallelUtils;
 import static java.lang.Math.*;
 import static jsat.linear.GenericMatrix.NB2;
 import static jsat.utils.SystemInfo.*;
@@ -133,39 +133,6 @@ public class DenseMatrix extends GenericMatrix
                 x.increment(j, c*b_i*A_i[j]);
         }
     }
-    @SuppressWarnings("unused")
-    private Matrix blockMultiply(Matrix b)
-    {
-        if(!canMultiply(this, b))
-            throw new ArithmeticException("Matrix dimensions do not agree");
-        DenseMatrix result = new DenseMatrix(this.rows(), b.cols());
-        ///Should choose step size such that 2*NB2^2 * dataTypeSize <= CacheSize
-        
-        int iLimit = result.rows();
-        int jLimit = result.cols();
-        int kLimit = this.cols();
-        
-        for(int i0 = 0; i0 < iLimit; i0+=NB2)
-            for(int k0 = 0; k0 < kLimit; k0+=NB2)
-                for(int j0 = 0; j0 < jLimit; j0+=NB2)
-                {
-                    for(int i = i0; i < min(i0+NB2, iLimit); i++)
-                    {
-                        double[] c_row_i = result.matrix[i];
-                        
-                        for(int k = k0; k < min(k0+NB2, kLimit); k++)
-                        {
-                            double a = this.matrix[i][k];
-                            
-                            for(int j = j0; j < min(j0+NB2, jLimit); j++)
-                                c_row_i[j] += a * b.get(k, j);
-                            }
-                        }
-                    }
-        
-        return result;
-    }
-
     /**
      * Copies the values from A_k to vk
      * @param k the k+1 index copying will start at
@@ -262,70 +229,6 @@ public class DenseMatrix extends GenericMatrix
             matrix[i] = new double[cols()];
     }
     
-    private class BlockMultRun implements Runnable
-    {
-        final CountDownLatch latch;
-        final DenseMatrix result;
-        final DenseMatrix b;
-        final int kLimit, jLimit, iLimit, threadID;
-        
-        public BlockMultRun(CountDownLatch latch, DenseMatrix result, DenseMatrix b, int threadID)
-        {
-            this.latch = latch;
-            this.result = result;
-            this.b = b;
-            this.kLimit = cols();
-            this.jLimit = result.cols();
-            this.iLimit = result.rows();
-            this.threadID = threadID;
-        }
-        
-        @Override
-        public void run()
-        {
-            for (int i0 = NB2 * threadID; i0 < iLimit; i0 += NB2 * LogicalCores)
-                for (int k0 = 0; k0 < kLimit; k0 += NB2)
-                    for (int j0 = 0; j0 < jLimit; j0 += NB2)
-                        for (int i = i0; i < min(i0 + NB2, iLimit); i++)
-                        {
-                            final double[] Ci = result.matrix[i];
-
-                            for (int k = k0; k < min(k0 + NB2, kLimit); k++)
-                            {
-                                double a = matrix[i][k];
-                                double[] Bk = b.matrix[k];
-
-                                for (int j = j0; j < min(j0 + NB2, jLimit); j++)
-                                    Ci[j] += a * Bk[j];
-                            }
-                        }
-
-            latch.countDown();
-        }
-        
-    }
-    
-    private void blockMultiply(DenseMatrix b, ExecutorService threadPool, DenseMatrix C)
-    {
-        if(!canMultiply(this, b))
-            throw new ArithmeticException("Matrix dimensions do not agree");
-        else if(this.rows() != C.rows() || b.cols() != C.cols())
-            throw new ArithmeticException("Destination matrix does not match the multiplication dimensions");
-        
-        CountDownLatch latch = new CountDownLatch(LogicalCores);
-        
-        for(int threadID = 0; threadID < LogicalCores; threadID++)
-            threadPool.submit(new BlockMultRun(latch, C, b, threadID));
-        try
-        {
-            latch.await();
-        }
-        catch (InterruptedException ex)
-        {
-            Logger.getLogger(DenseMatrix.class.getName()).log(Level.SEVERE, null, ex);
-        }
-    }
-    
     @Override
     public void transposeMultiply(final Matrix b, Matrix C)
     {
@@ -340,7 +243,6 @@ public class DenseMatrix extends GenericMatrix
             throw new ArithmeticException("Matrix dimensions do not agree [" + this.cols() + ", " + this.rows()+ "] * [" + b.rows() + ", " + b.cols() + "]");
         else if(this.cols() != C.rows() || b.cols() != C.cols())
             throw new ArithmeticException("Destination matrix does not have matching dimensions");
-        final DenseMatrix A = this;
         
         //We only want to take care of the case where everything is of this class. Else let the generic version handle quirks
          if( !(b instanceof DenseMatrix && C instanceof  DenseMatrix) )
@@ -349,57 +251,29 @@ public class DenseMatrix extends GenericMatrix
              return;
          }
         
-        final int iLimit = C.rows();
-        final int jLimit = C.cols();
-        final int kLimit = this.rows();
-        final int blockStep = Math.min(NB2, Math.max(iLimit/LogicalCores, 1));//reduce block size so we can use all cores if needed.
-        
-        final CountDownLatch cdl = new CountDownLatch(LogicalCores);
-        
-        for(int threadNum = 0; threadNum < LogicalCores; threadNum++)
+        final DenseMatrix B = (DenseMatrix) b;
+        final DenseMatrix CC = (DenseMatrix) C;
+        if(PackedGEMM.worthPacking(C.rows(), C.cols(), this.rows()))
         {
-            final int threadID = threadNum;
-            threadPool.submit(new Runnable() {
-
-                public void run()
-                {
-                    DenseMatrix BB = (DenseMatrix) b;
-                    DenseMatrix CC = (DenseMatrix) C;
-                    for (int i0 = blockStep * threadID; i0 < iLimit; i0 += blockStep * LogicalCores)
-                        for (int k0 = 0; k0 < kLimit; k0 += blockStep)
-                            for (int j0 = 0; j0 < jLimit; j0 += blockStep)
-                            {
-                                for (int k = k0; k < min(k0 + blockStep, kLimit); k++)
-                                {
-                                    double[] A_row_k = A.matrix[k];
-                                    double[] B_row_k = BB.matrix[k];
-
-                                    for (int i = i0; i < min(i0 + blockStep, iLimit); i++)
-                                    {
-                                        final double a = A_row_k[i];
-                                        final double[] c_row_i = CC.matrix[i];
-
-                                        for (int j = j0; j < min(j0 + blockStep, jLimit); j++)
-                                            c_row_i[j] += a * B_row_k[j];
-                                    }
-                                }
-                            }
-                    
-                    cdl.countDown();
-                }
-            });
+            PackedGEMM.gemm(this.matrix, true, B.matrix, false, CC.matrix, C.rows(), C.cols(), this.rows(), PackedGEMM.asForkJoin(threadPool));
+            return;
         }
         
-        
-        try
+        //small enough that a simple loop over the rows of A and B is fastest
+        for (int k = 0; k < this.rows(); k++)
         {
-            cdl.await();
-        }
-        catch (InterruptedException ex)
-        {
-            Logger.getLogger(DenseMatrix.class.getName()).log(Level.SEVERE, null, ex);
+            double[] A_row_k = this.matrix[k];
+            double[] B_row_k = B.matrix[k];
+
+            for (int i = 0; i < A_row_k.length; i++)
+            {
+                final double a = A_row_k[i];
+                final double[] c_row_i = CC.matrix[i];
+
+                for (int j = 0; j < B_row_k.length; j++)
+                    c_row_i[j] += a * B_row_k[j];
+            }
         }
-        
     }
     
     @Override
@@ -432,6 +306,11 @@ public class DenseMatrix extends GenericMatrix
 
         DenseMatrix result = (DenseMatrix) C;
         DenseMatrix B = (DenseMatrix) b;
+        if(PackedGEMM.worthPacking(rows(), b.cols(), cols()))
+        {
+            PackedGEMM.gemm(this.matrix, false, B.matrix, false, result.matrix, rows(), b.cols(), cols(), null);
+            return;
+        }
         //Pull out the index operations to hand optimize for speed. 
         double[] Arowi;
         double[] Browk;
@@ -452,51 +331,6 @@ public class DenseMatrix extends GenericMatrix
 
     }
     
-    /**
-     * this is a direct conversion of the outer most loop of {@link #multiply(jsat.linear.Matrix) } 
-     */
-    private class MultRun implements Runnable
-    {
-        
-        final CountDownLatch latch;
-        final DenseMatrix A;
-        final DenseMatrix B, result;
-        final int threadID;
-
-        public MultRun(CountDownLatch latch, DenseMatrix A, DenseMatrix result, DenseMatrix B, int threadID)
-        {
-            this.latch = latch;
-            this.A = A;
-            this.result = result;
-            this.B = B;
-            this.threadID = threadID;
-        }
-        
-        public void run()
-        {
-
-            //Pull out the index operations to hand optimize for speed. 
-            double[] Ai;
-            double[] Bi;
-            double[] Ci;
-            for (int i = 0 + threadID; i < result.rows(); i += LogicalCores)
-            {
-                Ai = A.matrix[i];
-                Ci = result.matrix[i];
-
-                for (int k = 0; k < A.cols(); k++)
-                {
-                    double a = Ai[k];
-                    Bi = B.matrix[k];
-                    for (int j = 0; j < Ci.length; j++)
-                        Ci[j] += a * Bi[j];
-                }
-            }
-
-            latch.countDown();
-        }
-    }
-
     @Override
     public void multiply(Matrix b, Matrix C, ExecutorService threadPool)
     {
@@ -506,30 +340,48 @@ public class DenseMatrix extends GenericMatrix
             super.multiply(b, C, threadPool);
             return;
         }
-        
-        if(this.rows()/NB2 >= LogicalCores)//Perform block execution only when we have a large enough matrix to keep ever core busy!
-        {
-            blockMultiply((DenseMatrix)b, threadPool, (DenseMatrix)C);
-            return;
-        }
         if(!canMultiply(this, b))
             throw new ArithmeticException("Matrix dimensions do not agree");
         else if(this.rows() != C.rows() || b.cols() != C.cols())
             throw new ArithmeticException("Destination matrix does not match the multiplication dimensions");
-        CountDownLatch cdl = new CountDownLatch(LogicalCores);
         
-        for (int threadID = 0; threadID < LogicalCores; threadID++)
-            threadPool.submit(new MultRun(cdl, this, (DenseMatrix)C, (DenseMatrix)b, threadID));
-            
-        try
+        if(!PackedGEMM.worthPacking(rows(), b.cols(), cols()))
+        {
+            multiply(b, C);
+            return;
+        }
+        PackedGEMM.gemm(this.matrix, false, ((DenseMatrix) b).matrix, false, ((DenseMatrix) C).matrix, rows(), b.cols(), cols(), PackedGEMM.asForkJoin(threadPool));
+    }
+    
+    @Override
+    public void multiplyTranspose(Matrix b, Matrix C)
+    {
+        if(!(b instanceof DenseMatrix && C instanceof DenseMatrix) || !PackedGEMM.worthPacking(rows(), b.rows(), cols()))
         {
-            cdl.await();
+            super.multiplyTranspose(b, C);
+            return;
         }
-        catch (InterruptedException ex)
+        if(this.cols() != b.cols())
+            throw new ArithmeticException("Matrix dimensions do not agree");
+        else if (this.rows() != C.rows() || b.rows() != C.cols())
+            throw new ArithmeticException("Target Matrix is no the correct size");
+        PackedGEMM.gemm(this.matrix, false, ((DenseMatrix) b).matrix, true, ((DenseMatrix) C).matrix, rows(), b.rows(), cols(), null);
+    }
+
+    @Override
+    public void multiplyTranspose(Matrix b, Matrix C, ExecutorService threadPool)
+    {
+        if(this.cols() != b.cols())
+            throw new ArithmeticException("Matrix dimensions do not agree");
+        else if (this.rows() != C.rows() || b.rows() != C.cols())
+            throw new ArithmeticException("Destination matrix does not have matching dimensions");
+        
+        if(!(b instanceof DenseMatrix && C instanceof DenseMatrix) || !PackedGEMM.worthPacking(rows(), b.rows(), cols()))
         {
-            //faulre? Gah - try seriel
-            this.multiply(b, C);
+            super.multiplyTranspose(b, C, threadPool);
+            return;
         }
+        PackedGEMM.gemm(this.matrix, false, ((DenseMatrix) b).matrix, true, ((DenseMatrix) C).matrix, rows(), b.rows(), cols(), PackedGEMM.asForkJoin(threadPool));
     }
     
     @Override
@@ -896,9 +748,8 @@ public class DenseMatrix extends GenericMatrix
         double[] vk;
         double TwoOverBeta;
         int k, threadID, N, M;
-        CountDownLatch latch;
 
-        public QRRun(DenseMatrix A, DenseMatrix Q, double[] vk, double TwoOverBeta, int k, int threadID, CountDownLatch latch)
+        public QRRun(DenseMatrix A, DenseMatrix Q, double[] vk, double TwoOverBeta, int k, int threadID)
         {
             this.A = A;
             this.Q = Q;
@@ -906,7 +757,6 @@ public class DenseMatrix extends GenericMatrix
             this.TwoOverBeta = TwoOverBeta;
             this.k = k;
             this.threadID = threadID;
-            this.latch = latch;
             this.N = A.rows();
             this.M = A.cols();
         }
@@ -948,7 +798,6 @@ public class DenseMatrix extends GenericMatrix
                 for(int i = k; i < M; i++)
                     A_j[i] -= y*vk[i];
             }
-            latch.countDown();
         }
         
     }
@@ -995,17 +844,8 @@ public class DenseMatrix extends GenericMatrix
             
             double TwoOverBeta = 2.0/beta;
             
-            CountDownLatch latch = new CountDownLatch(LogicalCores);
-            for(int threadID = 0; threadID < LogicalCores; threadID++)
-                threadPool.submit(new QRRun(A, Q, vk, TwoOverBeta, k, threadID, latch));
-            try
-            {
-                latch.await();
-            }
-            catch (InterruptedException ex)
-            {
-                Logger.getLogger(DenseMatrix.class.getName()).log(Level.SEVERE, null, ex);
-            }
+            final int kk = k;
+            ParallelUtils.run(true, LogicalCores, (threadID) -> new QRRun(A, Q, vk, TwoOverBeta, kk, threadID).run(), threadPool);
         }
         qr[0] = Q;
         if(isSquare())
@@ -19,8 +19,8 @@ public class DenseVector extends Vec
 
     private static final long serialVersionUID = -889493251793828933L;
     protected double[] array;
-    private int startIndex;
-    private int endIndex;
+    protected int startIndex;
+    protected int endIndex;
 
     /**
      * Creates a new Dense Vector of zeros 
@@ -231,7 +231,11 @@ public class DenseVector extends Vec
         if(this.length() != v.length())
             throw new ArithmeticException("Vectors must have the same length");
         
-        if(v.isSparse())
+        if(v instanceof SparseVector)
+            return VecOps.dot((SparseVector) v, this);
+        else if(v instanceof DenseVector)
+            return VecOps.dot(this, (DenseVector) v);
+        else if(v.isSparse())
             return v.dot(this);
         
         double dot = 0;
@@ -275,7 +279,11 @@ public class DenseVector extends Vec
         if(this.length() !=  b.length())
             throw new ArithmeticException("Can not add vectors of unequal length");
         
-        if (b.isSparse())
+        if(b instanceof SparseVector)
+            VecOps.axpy(c, (SparseVector) b, this);
+        else if(b instanceof DenseVector)
+            VecOps.axpy(c, (DenseVector) b, this);
+        else if (b.isSparse())
             for (IndexValue iv : b)
                 array[iv.getIndex()] += c * iv.getValue();
         else
@@ -309,6 +317,8 @@ public class DenseVector extends Vec
     {
         if(this.length() != y.length())
             throw new ArithmeticException("Vectors must be of the same length");
+        if(p == 2 && (y instanceof SparseVector || y instanceof DenseVector))
+            return Math.sqrt(VecOps.distanceSquared(this, y));
         
         double norm = 0;
         if(y.isSparse())
@@ -317,20 +327,20 @@ public class DenseVector extends Vec
             for(IndexValue iv : y)   
             {
                 for(int i = lastIndx+1; i < iv.getIndex(); i++)//add all the indecies we skipped
-                    norm += Math.pow(Math.abs(array[i]), p);
+                    norm += Math.pow(Math.abs(array[startIndex+i]), p);
                 lastIndx = iv.getIndex();
                 //add current
-                norm += Math.pow(Math.abs(array[iv.getIndex()]-iv.getValue()), p);
+                norm += Math.pow(Math.abs(array[startIndex+iv.getIndex()]-iv.getValue()), p);
             }
             
             //Tailing zeros
             for(int i = lastIndx+1; i < y.length(); i++)
-                norm += Math.pow(Math.abs(array[i]), p);
+                norm += Math.pow(Math.abs(array[startIndex+i]), p);
         }
         else
         {
             for(int i = startIndex; i < endIndex; i++)
-                norm += Math.pow(Math.abs(array[i]-y.get(i)), p);
+                norm += Math.pow(Math.abs(array[i]-y.get(i-startIndex)), p);
         }
         return Math.pow(norm, 1.0/p);
     }
@@ -471,6 +481,14 @@ public class DenseVector extends Vec
         return false;
     }
 
+    @Override
+    public void forEachNonZero(NonZeroVisitor visitor)
+    {
+        for(int i = startIndex; i < endIndex; i++)
+            if(array[i] != 0)
+                visitor.visit(i-startIndex, array[i]);
+    }
+
     @Override
     public void setLength(int newLength)
     {
@@ -3,8 +3,9 @@ package jsat.linear;
 
 import java.io.Serializable;
 import static java.lang.Math.*;
-import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import jsat.math.Complex;
 import jsat.utils.DoubleList;
 import jsat.utils.IndexTable;
@@ -22,7 +23,10 @@ import jsat.utils.IndexTable;
  * <br><br> 
  * If A is symmetric, then A = V*D*V' where the eigenvalue
  * matrix D is diagonal and the eigenvector matrix V is orthogonal. V * V' equals the
- * identity matrix. 
+ * identity matrix. Symmetric matrices are reduced to tridiagonal form with 
+ * blocked Householder reflections, and the tridiagonal problem is solved by 
+ * divide and conquer, so that most of the work is done by matrix products that
+ * can use multiple cores when given an {@link ExecutorService}.
  * <br><br> 
  * If A is not symmetric, then the eigenvalue matrix D
  * is block diagonal with the real eigenvalues in 1-by-1 blocks and any complex
@@ -70,263 +74,6 @@ public class EigenValueDecomposition implements Serializable
      */
     private boolean complexResult;
 
-    /**
-     * Symmetric Householder reduction to tridiagonal form.
-     */
-    private void tred2()
-    {
-        for(int j = 0; j < n; j++)
-            d[j] = V.get(n-1, j);
-
-        // Householder reduction to tridiagonal form.
-
-        for (int i = n - 1; i > 0; i--)
-        {
-
-            // Scale to avoid under/overflow.
-
-            double scale = 0.0;
-            double h = 0.0;
-            for (int k = 0; k < i; k++)
-            {
-                scale = scale + abs(d[k]);
-            }
-            if (scale == 0.0)
-            {
-                e[i] = d[i - 1];
-                for (int j = 0; j < i; j++)
-                {
-                    d[j] = V.get(i-1, j);
-                    V.set(i, j, 0.0);
-                    V.set(j, i, 0.0);
-                }
-            }
-            else
-            {
-
-                // Generate Householder vector.
-
-                for (int k = 0; k < i; k++)
-                {
-                    d[k] /= scale;
-                    h += d[k] * d[k];
-                }
-                double f = d[i - 1];
-                double g = sqrt(h);
-                if (f > 0)
-                    g = -g;
-                e[i] = scale * g;
-                h -= f * g;
-                d[i - 1] = f - g;
-                Arrays.fill(e, 0, i, 0.0);
-
-                // Apply similarity transformation to remaining columns.
-
-                for (int j = 0; j < i; j++)
-                {
-                    f = d[j];
-                    V.set(j, i, f);
-                    g = e[j] + V.get(j, j) * f;
-                    for (int k = j + 1; k <= i - 1; k++)
-                    {
-                        g += V.get(k,j) * d[k];
-                        e[k] += V.get(k, j) * f;
-                    }
-                    e[j] = g;
-                }
-                f = 0.0;
-                for (int j = 0; j < i; j++)
-                {
-                    e[j] /= h;
-                    f += e[j] * d[j];
-                }
-                double hh = f / (h + h);
-                for (int j = 0; j < i; j++)
-                {
-                    e[j] -= hh * d[j];
-                }
-                for (int j = 0; j < i; j++)
-                {
-                    f = d[j];
-                    g = e[j];
-                    
-                    for (int k = j; k <= i - 1; k++)
-                    {
-                        V.increment(k, j, -(f * e[k] + g * d[k]));
-                    }
-                    d[j] = V.get(i-1, j);
-                    V.set(i, j, 0.0);
-                }
-            }
-            d[i] = h;
-        }
-
-
-        // Accumulate transformations.
-
-        for (int i = 0; i < n - 1; i++)
-        {
-            V.set(n-1, i, V.get(i, i));
-            V.set(i, i, 1.0);
-            double h = d[i + 1];
-            if (h != 0.0)
-            {
-                for (int k = 0; k <= i; k++)
-                {
-                    d[k] = V.get(k, i+1) / h;
-                }
-                for (int j = 0; j <= i; j++)
-                {
-                    double g = 0.0;
-                    for (int k = 0; k <= i; k++)
-                    {
-                        g += V.get(k, i+1) * V.get(k, j);
-                    }
-                    
-                    RowColumnOps.addMultCol(V, j, 0, i+1, -g, d);
-                }
-            }
-
-            RowColumnOps.fillCol(V, i+1, 0, i+1, 0.0);
-            
-        }
-        for (int j = 0; j < n; j++)
-        {
-            d[j] = V.get(n-1, j);
-            V.set(n-1, j, 0.0);
-        }
-        V.set(n-1, n-1, 1.0);
-        e[0] = 0.0;
-    }
-
-    /**
-     * Symmetric tridiagonal QL algorithm.
-     */
-    private void tql2()
-    {
-
-        //  This is derived from the Algol procedures tql2, by
-        //  Bowdler, Martin, Reinsch, and Wilkinson, Handbook for
-        //  Auto. Comp., Vol.ii-Linear Algebra, and the corresponding
-        //  Fortran subroutine in EISPACK.
-
-        for (int i = 1; i < n; i++)
-        {
-            e[i - 1] = e[i];
-        }
-        e[n - 1] = 0.0;
-
-        double f = 0.0;
-        double tst1 = 0.0;
-        double eps = pow(2.0, -52.0);
-        for (int l = 0; l < n; l++)
-        {
-
-            // Find small subdiagonal element
-
-            tst1 = max(tst1, abs(d[l]) + abs(e[l]));
-            int m = l;
-            while (m < n)
-            {
-                if (abs(e[m]) <= eps * tst1)
-                {
-                    break;
-                }
-                m++;
-            }
-
-            // If m == l, d[l] is an eigenvalue,
-            // otherwise, iterate.
-
-            if (m > l)
-            {
-                int iter = 0;
-                do
-                {
-                    iter = iter + 1;  // (Could check iteration count here.)
-
-                    // Compute implicit shift
-
-                    double g = d[l];
-                    double p = (d[l + 1] - g) / (2.0 * e[l]);
-                    double r = hypot(p, 1.0);
-                    if (p < 0)
-                    {
-                        r = -r;
-                    }
-                    d[l] = e[l] / (p + r);
-                    d[l + 1] = e[l] * (p + r);
-                    double dl1 = d[l + 1];
-                    double h = g - d[l];
-                    for (int i = l + 2; i < n; i++)
-                    {
-                        d[i] -= h;
-                    }
-                    f = f + h;
-
-                    // Implicit QL transformation.
-
-                    p = d[m];
-                    double c = 1.0;
-                    double c2 = c;
-                    double c3 = c;
-                    double el1 = e[l + 1];
-                    double s = 0.0;
-                    double s2 = 0.0;
-                    for (int i = m - 1; i >= l; i--)
-                    {
-                        c3 = c2;
-                        c2 = c;
-                        s2 = s;
-                        g = c * e[i];
-                        h = c * p;
-                        r = hypot(p, e[i]);
-                        e[i + 1] = s * r;
-                        s = e[i] / r;
-                        c = p / r;
-                        p = c * d[i] - s * g;
-                        d[i + 1] = h + s * (c * g + s * d[i]);
-
-                        // Accumulate transformation.
-
-                        columnOpTransform(V, 0, n - 1, i, c, s, 1);
-                    }
-                    p = -s * s2 * c3 * el1 * e[l] / dl1;
-                    e[l] = s * p;
-                    d[l] = c * p;
-
-                    // Check for convergence.
-
-                }
-                while (abs(e[l]) > eps * tst1);
-            }
-            d[l] = d[l] + f;
-            e[l] = 0.0;
-        }
-
-        // Sort eigenvalues and corresponding vectors.
-
-        for (int i = 0; i < n - 1; i++)
-        {
-            int k = i;
-            double p = d[i];
-            for (int j = i + 1; j < n; j++)
-            {
-                if (d[j] < p)
-                {
-                    k = j;
-                    p = d[j];
-                }
-            }
-            if (k != i)
-            {
-                d[k] = d[i];
-                d[i] = p;
-                RowColumnOps.swapCol(V, i, k);
-            }
-        }
-    }
-
     /**
      * Nonsymmetric reduction to Hessenberg form.
      */
@@ -639,6 +386,35 @@ public class EigenValueDecomposition implements Serializable
      * considered the same. 
      */
     public EigenValueDecomposition(Matrix A, double eps)
+    {
+        this(A, eps, null);
+    }
+    
+    /**
+     * Creates a new new Eigen Value Decomposition. The input matrix will not be
+     * altered. If the input is symmetric, a more efficient algorithm will be
+     * used, which will use multiple cores.
+     * 
+     * @param A the square matrix to work on.
+     * @param threadpool the source of threads for the computation
+     */
+    public EigenValueDecomposition(Matrix A, ExecutorService threadpool)
+    {
+        this(A, 1e-15, threadpool);
+    }
+    
+    /**
+     * Creates a new new Eigen Value Decomposition. The input matrix will not be
+     * altered. If the input is symmetric, a more efficient algorithm will be
+     * used, which will use multiple cores.
+     * 
+     * @param A the square matrix to work on.
+     * @param eps the numerical tolerance for differences in value to be 
+     * considered the same. 
+     * @param threadpool the source of threads for the computation, or 
+     * {@code null} to compute in the current thread
+     */
+    public EigenValueDecomposition(Matrix A, double eps, ExecutorService threadpool)
     {
         if (!A.isSquare())
             throw new ArithmeticException("");
@@ -648,18 +424,8 @@ public class EigenValueDecomposition implements Serializable
 
         if (Matrix.isSymmetric(A, eps) )
         {
-            //Would give it the transpose, but the input is symmetric. So its the same thing
-            Matrix VWork = A.clone();
-            V = new TransposeView(VWork);
-
-            // Tridiagonalize.
-            tred2();
-            
-            // Diagonalize.
-            tql2();
-            V = VWork.transpose();//Place back
+            symmetricDecomposition(A, PackedGEMM.asForkJoin(threadpool));
             complexResult = false;
-
         }
         else
         {
@@ -683,6 +449,30 @@ public class EigenValueDecomposition implements Serializable
         }
     }
     
+    /**
+     * Computes the decomposition of a symmetric matrix. The eigen values are
+     * placed in ascending order.
+     */
+    private void symmetricDecomposition(Matrix A, ForkJoinPool pool)
+    {
+        double[][] work = new double[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                work[i][j] = A.get(i, j);
+        double[] offDiag = new double[max(n - 1, 0)];
+        double[] tau = new double[max(n - 1, 0)];
+        HouseholderReduction.tridiagonalize(work, d, offDiag, tau, pool);
+        
+        //Z[j] is the j'th eigen vector of the tridiagonal matrix, transform them back to A's
+        double[][] Z = TridiagonalEigen.solve(d, offDiag, pool);
+        HouseholderReduction.applyReflectors(Z, n, n, work, false, 1, tau, n - 1, pool);
+        
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                work[i][j] = Z[j][i];
+        V = new DenseMatrix(work);
+    }
+    
     /**
      * Sorts the eigen values and the corresponding eigenvector columns by the 
      * associated eigen value. Sorting can not occur if complex values are 
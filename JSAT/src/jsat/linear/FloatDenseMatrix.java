@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.Arrays;
+
+/**
+ * A dense matrix that stores its values as single precision {@code float}s,
+ * using half the memory of a {@link DenseMatrix}. Values are rounded to the
+ * nearest float when stored, but matrix-vector and matrix-matrix products
+ * accumulate in double precision. <br>
+ * Decompositions such as {@link #lup() } and {@link #qr() } work in the
+ * precision of the matrix, so a {@link DenseMatrix} copy should be used when
+ * accurate factorizations are needed.
+ *
+ * @author Edward Raff
+ */
+public class FloatDenseMatrix extends GenericMatrix
+{
+
+    private static final long serialVersionUID = -6402781383457342150L;
+    private float[][] matrix;
+
+    /**
+     * Creates a new matrix of zeros
+     * @param rows the number of rows
+     * @param cols the number of columns
+     */
+    public FloatDenseMatrix(int rows, int cols)
+    {
+        matrix = new float[rows][cols];
+    }
+
+    /**
+     * Creates a new matrix that uses the given array for its values. The rows
+     * are not copied, and changes to the array will change the matrix.
+     *
+     * @param matrix the array to use, where every row must have the same
+     * length
+     */
+    public FloatDenseMatrix(float[][] matrix)
+    {
+        for(float[] row : matrix)
+            if(row.length != matrix[0].length)
+                throw new RuntimeException("Given matrix was not of consistent size (rows have diffrent lengths)");
+        this.matrix = matrix;
+    }
+
+    /**
+     * Creates a new matrix that has a copy of all the values of the given one,
+     * rounded to single precision
+     *
+     * @param toCopy the matrix to copy
+     */
+    public FloatDenseMatrix(Matrix toCopy)
+    {
+        this(toCopy.rows(), toCopy.cols());
+        toCopy.copyTo(this);
+    }
+
+    @Override
+    protected Matrix getMatrixOfSameType(int rows, int cols)
+    {
+        return new FloatDenseMatrix(rows, cols);
+    }
+
+    @Override
+    public double get(int i, int j)
+    {
+        return matrix[i][j];
+    }
+
+    @Override
+    public void set(int i, int j, double value)
+    {
+        matrix[i][j] = (float) value;
+    }
+
+    @Override
+    public void increment(int i, int j, double value)
+    {
+        matrix[i][j] += value;
+    }
+
+    @Override
+    public int rows()
+    {
+        return matrix.length;
+    }
+
+    @Override
+    public int cols()
+    {
+        return matrix[0].length;
+    }
+
+    @Override
+    public boolean isSparce()
+    {
+        return false;
+    }
+
+    @Override
+    public void mutableAdd(double c, Matrix b)
+    {
+        if(!sameDimensions(this, b))
+            throw new ArithmeticException("Matrix dimensions do not agree");
+
+        for(int i = 0; i < rows(); i++)
+            for(int j = 0; j < cols(); j++)
+                this.matrix[i][j] += c*b.get(i, j);
+    }
+
+    @Override
+    public void mutableMultiply(double c)
+    {
+        for(float[] row : matrix)
+            for(int j = 0; j < row.length; j++)
+                row[j] *= c;
+    }
+
+    @Override
+    public void multiply(Vec b, double z, Vec c)
+    {
+        if(this.cols() != b.length())
+            throw new ArithmeticException("Matrix dimensions do not agree, [" + rows() +"," + cols() + "] x [" + b.length() + ",1]" );
+        if(this.rows() != c.length())
+            throw new ArithmeticException("Target vector dimension does not agree with matrix dimensions. Matrix has " + rows() + " rows but tagert has " + c.length());
+
+        for(int i = 0; i < rows(); i++)
+        {
+            //does not copy the row, and accumulates the dot product as a double
+            FloatDenseVector row = new FloatDenseVector(matrix[i]);
+            c.increment(i, row.dot(b)*z);
+        }
+    }
+
+    @Override
+    public void transposeMultiply(double c, Vec b, Vec x)
+    {
+        if(this.rows() != b.length())
+            throw new ArithmeticException("Matrix dimensions do not agree, [" + cols() +"," + rows() + "] x [" + b.length() + ",1]" );
+        else if(this.cols() != x.length())
+            throw new ArithmeticException("Matrix dimensions do not agree with target vector");
+
+        double[] accum = new double[cols()];
+        for(IndexValue iv : b)
+        {
+            double b_i = iv.getValue();
+            float[] A_i = this.matrix[iv.getIndex()];
+            for(int j = 0; j < A_i.length; j++)
+                accum[j] += b_i*A_i[j];
+        }
+        for(int j = 0; j < accum.length; j++)
+            x.increment(j, c*accum[j]);
+    }
+
+    @Override
+    public void multiply(Matrix b, Matrix C)
+    {
+        if(!canMultiply(this, b))
+            throw new ArithmeticException("Matrix dimensions do not agree");
+        else if(this.rows() != C.rows() || b.cols() != C.cols())
+            throw new ArithmeticException("Target Matrix is no the correct size");
+
+        if(!(b instanceof FloatDenseMatrix))
+        {
+            super.multiply(b, C);
+            return;
+        }
+
+        //"pure row oriented" order, as in DenseMatrix, with a double precision row of C
+        float[][] B = ((FloatDenseMatrix) b).matrix;
+        double[] Crowi = new double[C.cols()];
+        for (int i = 0; i < rows(); i++)
+        {
+            float[] Arowi = this.matrix[i];
+            Arrays.fill(Crowi, 0.0);
+            for (int k = 0; k < Arowi.length; k++)
+            {
+                double a = Arowi[k];
+                if(a == 0)
+                    continue;
+                float[] Browk = B[k];
+                for (int j = 0; j < Crowi.length; j++)
+                    Crowi[j] += a * Browk[j];
+            }
+            for (int j = 0; j < Crowi.length; j++)
+                C.increment(i, j, Crowi[j]);
+        }
+    }
+
+    @Override
+    public void changeSize(int newRows, int newCols)
+    {
+        if(newRows <= 0)
+            throw new ArithmeticException("Matrix must have a positive number of rows");
+        if(newCols <= 0)
+            throw new ArithmeticException("Matrix must have a positive number of columns");
+        final int oldRow = matrix.length;
+        if(newCols != cols())
+            for(int i = 0; i < matrix.length; i++)
+                matrix[i] = Arrays.copyOf(matrix[i], newCols);
+        matrix = Arrays.copyOf(matrix, newRows);
+        for(int i = oldRow; i < newRows; i++)
+            matrix[i] = new float[newCols];
+    }
+
+    @Override
+    public void swapRows(int r1, int r2)
+    {
+        if(r1 >= rows() || r2 >= rows())
+            throw new ArithmeticException("Can not swap row, matrix is smaller then requested");
+        else if(r1 < 0 || r2 < 0)
+            throw new ArithmeticException("Can not swap row, there are no negative row indices");
+        float[] tmp = matrix[r1];
+        matrix[r1] = matrix[r2];
+        matrix[r2] = tmp;
+    }
+
+    @Override
+    public void zeroOut()
+    {
+        for(float[] row : matrix)
+            Arrays.fill(row, 0f);
+    }
+
+    @Override
+    public Vec getRowView(int r)
+    {
+        return new FloatDenseVector(matrix[r]);
+    }
+
+    @Override
+    public FloatDenseMatrix clone()
+    {
+        FloatDenseMatrix copy = new FloatDenseMatrix(rows(), cols());
+        for(int i = 0; i < matrix.length; i++)
+            System.arraycopy(matrix[i], 0, copy.matrix[i], 0, matrix[i].length);
+        return copy;
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import static java.lang.Math.*;
+import java.util.Arrays;
+
+/**
+ * A dense vector that stores its values as single precision {@code float}s,
+ * using half the memory of a {@link DenseVector}. Values given to this vector
+ * are rounded to the nearest float when stored, but all accumulations (such as
+ * {@link #dot(jsat.linear.Vec) }, {@link #pNormDist(double, jsat.linear.Vec) },
+ * and {@link #sum() }) are done in double precision.
+ *
+ * @author Edward Raff
+ */
+public class FloatDenseVector extends Vec
+{
+
+    private static final long serialVersionUID = -2466617386862389592L;
+    private float[] array;
+
+    /**
+     * Creates a new vector of zeros
+     * @param length the length of the vector
+     */
+    public FloatDenseVector(int length)
+    {
+        if(length < 0)
+            throw new ArithmeticException("You can not have a negative dimension vector");
+        array = new float[length];
+    }
+
+    /**
+     * Creates a new vector that uses the given array as its values. Its values
+     * will not be copied, and raw access and mutations to the given array may
+     * occur.
+     *
+     * @param array the backing array to use for a new vector of the same
+     * length
+     */
+    public FloatDenseVector(float[] array)
+    {
+        this.array = array;
+    }
+
+    /**
+     * Creates a new vector that contains a copy of the values in the given
+     * vector, rounded to single precision.
+     *
+     * @param toCopy the vector to copy
+     */
+    public FloatDenseVector(Vec toCopy)
+    {
+        this(toCopy.length());
+        for(IndexValue iv : toCopy)
+            array[iv.getIndex()] = (float) iv.getValue();
+    }
+
+    /**
+     * Returns the array backing this vector. Changes to the array will change
+     * the vector.
+     *
+     * @return the backing array
+     */
+    public float[] getBackingArray()
+    {
+        return array;
+    }
+
+    @Override
+    public int length()
+    {
+        return array.length;
+    }
+
+    @Override
+    public double get(int index)
+    {
+        return array[index];
+    }
+
+    @Override
+    public void set(int index, double val)
+    {
+        array[index] = (float) val;
+    }
+
+    @Override
+    public void increment(int index, double val)
+    {
+        array[index] += val;
+    }
+
+    @Override
+    public double min()
+    {
+        double result = array[0];
+        for(int i = 1; i < array.length; i++)
+            result = Math.min(result, array[i]);
+        return result;
+    }
+
+    @Override
+    public double max()
+    {
+        double result = array[0];
+        for(int i = 1; i < array.length; i++)
+            result = Math.max(result, array[i]);
+        return result;
+    }
+
+    @Override
+    public double sum()
+    {
+        //Kahan summation, see DenseVector
+        double sum = 0;
+        double c = 0;
+        for(int i = 0; i < array.length; i++)
+        {
+            double y = array[i] - c;
+            double t = sum+y;
+            c = (t - sum) - y;
+            sum = t;
+        }
+
+        return sum;
+    }
+
+    @Override
+    public double variance()
+    {
+        double mu = mean();
+        double tmp = 0;
+        for(int i = 0; i < array.length; i++)
+        {
+            double diff = array[i]-mu;
+            tmp += diff*diff;
+        }
+        return tmp/array.length;
+    }
+
+    @Override
+    public double dot(Vec v)
+    {
+        if(this.length() != v.length())
+            throw new ArithmeticException("Vectors must have the same length");
+
+        double dot = 0;
+        if(v instanceof FloatDenseVector)
+        {
+            float[] b = ((FloatDenseVector) v).array;
+            for(int i = 0; i < array.length; i++)
+                dot += array[i] * (double) b[i];
+        }
+        else if(v.isSparse())
+            for(IndexValue iv : v)
+                dot += array[iv.getIndex()] * iv.getValue();
+        else
+            for(int i = 0; i < array.length; i++)
+                dot += array[i] * v.get(i);
+
+        return dot;
+    }
+
+    @Override
+    public void multiply(double c, Matrix A, Vec b)
+    {
+        if(this.length() != A.rows())
+            throw new ArithmeticException("Vector x Matrix dimensions do not agree [1," + this.length() + "] x [" + A.rows() + ", " + A.cols() + "]");
+        if(b.length() != A.cols())
+            throw new ArithmeticException("Destination vector is not the right size");
+
+        for(int i = 0; i < array.length; i++)
+        {
+            double this_i = c*array[i];
+            if(this_i == 0)
+                continue;
+            for(int j = 0; j < A.cols(); j++)
+                b.increment(j, this_i*A.get(i, j));
+        }
+    }
+
+    @Override
+    public void mutableAdd(double c)
+    {
+        for(int i = 0; i < array.length; i++)
+            array[i] += c;
+    }
+
+    @Override
+    public void mutableAdd(double c, Vec b)
+    {
+        if(this.length() != b.length())
+            throw new ArithmeticException("Can not add vectors of unequal length");
+
+        if(b instanceof FloatDenseVector)
+        {
+            float[] b_array = ((FloatDenseVector) b).array;
+            for(int i = 0; i < array.length; i++)
+                array[i] += c * b_array[i];
+        }
+        else if(b.isSparse())
+            for(IndexValue iv : b)
+                array[iv.getIndex()] += c * iv.getValue();
+        else
+            for(int i = 0; i < array.length; i++)
+                array[i] += c * b.get(i);
+    }
+
+    @Override
+    public void mutableMultiply(double c)
+    {
+        for(int i = 0; i < array.length; i++)
+            array[i] *= c;
+    }
+
+    @Override
+    public void mutableDivide(double c)
+    {
+        for(int i = 0; i < array.length; i++)
+            array[i] /= c;
+    }
+
+    @Override
+    public void mutablePairwiseMultiply(Vec b)
+    {
+        if(this.length() != b.length())
+            throw new ArithmeticException("Vectors must have the same length");
+        for(int i = 0; i < array.length; i++)
+            array[i] *= b.get(i);
+    }
+
+    @Override
+    public void mutablePairwiseDivide(Vec b)
+    {
+        if(this.length() != b.length())
+            throw new ArithmeticException("Vectors must have the same length");
+        for(int i = 0; i < array.length; i++)
+            array[i] /= b.get(i);
+    }
+
+    /**
+     * Adds the given difference to the p-norm accumulator
+     */
+    private static double normTerm(double diff, double p)
+    {
+        if(p == 2)
+            return diff*diff;
+        else if(p == 1)
+            return abs(diff);
+        return pow(abs(diff), p);
+    }
+
+    @Override
+    public double pNormDist(double p, Vec y)
+    {
+        if(this.length() != y.length())
+            throw new ArithmeticException("Vectors must be of the same length");
+
+        double norm = 0;
+        if(Double.isInfinite(p))
+        {
+            for(int i = 0; i < array.length; i++)
+                norm = Math.max(norm, abs(array[i]-y.get(i)));
+            return norm;
+        }
+        if(y instanceof FloatDenseVector)
+        {
+            float[] b = ((FloatDenseVector) y).array;
+            for(int i = 0; i < array.length; i++)
+                norm += normTerm((double) array[i]-b[i], p);
+        }
+        else if(y.isSparse())
+        {
+            int lastIndx = -1;
+            for(IndexValue iv : y)
+            {
+                for(int i = lastIndx+1; i < iv.getIndex(); i++)//add all the indecies we skipped
+                    norm += normTerm(array[i], p);
+                lastIndx = iv.getIndex();
+                norm += normTerm(array[lastIndx]-iv.getValue(), p);
+            }
+            //Tailing zeros
+            for(int i = lastIndx+1; i < array.length; i++)
+                norm += normTerm(array[i], p);
+        }
+        else
+            for(int i = 0; i < array.length; i++)
+                norm += normTerm(array[i]-y.get(i), p);
+
+        if(p == 2)
+            return sqrt(norm);
+        else if(p == 1)
+            return norm;
+        return pow(norm, 1.0/p);
+    }
+
+    @Override
+    public double pNorm(double p)
+    {
+        if (p <= 0)
+            throw new IllegalArgumentException("norm must be a positive value, not " + p);
+        double result = 0;
+        if (Double.isInfinite(p))
+        {
+            for(int i = 0; i < array.length; i++)
+                result = Math.max(result, abs(array[i]));
+            return result;
+        }
+        for(int i = 0; i < array.length; i++)
+            result += normTerm(array[i], p);
+        if(p == 2)
+            return sqrt(result);
+        else if(p == 1)
+            return result;
+        return pow(result, 1/p);
+    }
+
+    @Override
+    public void zeroOut()
+    {
+        Arrays.fill(array, 0f);
+    }
+
+    @Override
+    public double[] arrayCopy()
+    {
+        double[] copy = new double[array.length];
+        for(int i = 0; i < array.length; i++)
+            copy[i] = array[i];
+        return copy;
+    }
+
+    @Override
+    public FloatDenseVector clone()
+    {
+        return new FloatDenseVector(Arrays.copyOf(array, array.length));
+    }
+
+    @Override
+    public boolean isSparse()
+    {
+        return false;
+    }
+
+    @Override
+    public void forEachNonZero(NonZeroVisitor visitor)
+    {
+        for(int i = 0; i < array.length; i++)
+            if(array[i] != 0)
+                visitor.visit(i, array[i]);
+    }
+
+    @Override
+    public void setLength(int newLength)
+    {
+        if(newLength < 0)
+            throw new ArithmeticException("Can not create an array of negative length");
+        for(int i = newLength; i < array.length; i++)
+            if(array[i] != 0)
+                throw new RuntimeException("Can't decrease the length of this vector from " + length() + " to " + newLength + " due to non-zero value");
+        array = Arrays.copyOf(array, newLength);
+    }
+}
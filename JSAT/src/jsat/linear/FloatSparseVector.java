@@ -0,0 +1,605 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import static java.lang.Math.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import jsat.math.Function1D;
+
+/**
+ * A sparse vector that stores its non zero values as single precision
+ * {@code float}s. This is the single precision counterpart to
+ * {@link SparseVector}: values are rounded to the nearest float when stored,
+ * but all accumulations (such as {@link #dot(jsat.linear.Vec) } and
+ * {@link #pNormDist(double, jsat.linear.Vec) }) are done in double precision.
+ *
+ * @author Edward Raff
+ */
+public class FloatSparseVector extends Vec
+{
+
+    private static final long serialVersionUID = 3578394016359148254L;
+    /**
+     * Length of the vector
+     */
+    private int length;
+    /**
+     * number of indices used in this vector
+     */
+    protected int used;
+    /**
+     * The mapping to true index values
+     */
+    protected int[] indexes;
+    /**
+     * The Corresponding values for each index
+     */
+    protected float[] values;
+
+    /**
+     * Creates a new sparse vector of the given length that is all zero values.
+     *
+     * @param length the length of the sparse vector
+     */
+    public FloatSparseVector(int length)
+    {
+        this(length, 10);
+    }
+
+    /**
+     * Creates a new sparse vector of the specified length, and pre-allocates
+     * enough internal state to hold {@code capacity} non zero values.
+     *
+     * @param length the length of the sparse vector
+     * @param capacity the number of non zero values to allocate space for
+     */
+    public FloatSparseVector(int length, int capacity)
+    {
+        this(new int[capacity], new float[capacity], length, 0);
+    }
+
+    /**
+     * Creates a new sparse vector backed by the given arrays. Modifying the
+     * arrays will modify the vector. The same requirements as
+     * {@link SparseVector#SparseVector(int[], double[], int, int) } apply.
+     *
+     * @param indexes the array to store the index locations in
+     * @param values the array to store the index values in
+     * @param length the length of the sparse vector
+     * @param used the number of non zero values in the vector taken from the
+     * given input arrays.
+     */
+    public FloatSparseVector(int[] indexes, float[] values, int length, int used)
+    {
+        if(values.length != indexes.length)
+            throw new IllegalArgumentException("Index and Value arrays must have the same length, instead index was " + indexes.length + " and values was " + values.length);
+        if(used < 0 || used > length || used > values.length)
+            throw new IllegalArgumentException("Bad used value. Used must be in the range of 0 and min of values length (" + values.length + ") and array length (" + length + "), instead was given " + used);
+        if(length <= 0)
+            throw new IllegalArgumentException("Length of sparse vector must be positive, not " + length);
+        this.used = used;
+        this.length = length;
+        this.indexes = indexes;
+        this.values = values;
+    }
+
+    /**
+     * Creates a new sparse vector by copying the values from another, rounded
+     * to single precision
+     *
+     * @param toCopy the vector to copy the values of
+     */
+    public FloatSparseVector(Vec toCopy)
+    {
+        this(toCopy.length(), toCopy.nnz());
+        for(IndexValue iv : toCopy)
+        {
+            float v = (float) iv.getValue();
+            if(v == 0)//can underflow
+                continue;
+            indexes[used] = iv.getIndex();
+            values[used++] = v;
+        }
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    @Override
+    public void setLength(int length)
+    {
+        if(used > 0 && length <= indexes[used-1])
+            throw new RuntimeException("Can not set the length to a value less then an index already in use");
+        this.length = length;
+    }
+
+    @Override
+    public int nnz()
+    {
+        return used;
+    }
+
+    /**
+     * Removes a non zero value by shifting everything to the right over by one
+     * @param nzIndex the index to remove (setting it to zero)
+     */
+    private void removeNonZero(int nzIndex)
+    {
+        System.arraycopy(indexes, nzIndex+1, indexes, nzIndex, used-nzIndex-1);
+        System.arraycopy(values, nzIndex+1, values, nzIndex, used-nzIndex-1);
+        used--;
+    }
+
+    /**
+     * Takes the negative insert location value returned by
+     * {@link Arrays#binarySearch(int[], int, int, int) } and inserts the value
+     * at that location.
+     */
+    private void insertValue(int insertLocation, int index, float val)
+    {
+        insertLocation = -(insertLocation+1);
+        if(used == indexes.length)//Full, expand
+        {
+            int newIndexesSize = Math.max(indexes.length*2, 8);
+            indexes = Arrays.copyOf(indexes, newIndexesSize);
+            values = Arrays.copyOf(values, newIndexesSize);
+        }
+
+        if(insertLocation < used)
+        {
+            System.arraycopy(indexes, insertLocation, indexes, insertLocation+1, used-insertLocation);
+            System.arraycopy(values, insertLocation, values, insertLocation+1, used-insertLocation);
+        }
+
+        indexes[insertLocation] = index;
+        values[insertLocation] = val;
+        used++;
+    }
+
+    @Override
+    public void increment(int index, double val)
+    {
+        if (index > length - 1 || index < 0)
+            throw new IndexOutOfBoundsException("Can not access an index larger then the vector or a negative index");
+        if(val == 0)
+            return;
+        int location = Arrays.binarySearch(indexes, 0, used, index);
+        if(location < 0)
+        {
+            if((float) val != 0)
+                insertValue(location, index, (float) val);
+        }
+        else
+        {
+            values[location] += val;
+            if(values[location] == 0.0f)
+                removeNonZero(location);
+        }
+    }
+
+    @Override
+    public double get(int index)
+    {
+        if (index > length - 1 || index < 0)
+            throw new IndexOutOfBoundsException("Can not access an index larger then the vector or a negative index");
+
+        int location = Arrays.binarySearch(indexes, 0, used, index);
+        if (location < 0)
+            return 0.0;
+        else
+            return values[location];
+    }
+
+    @Override
+    public void set(int index, double val)
+    {
+        if(index > length()-1 || index < 0)
+            throw new IndexOutOfBoundsException(index + " does not fit in [0," + length + ")");
+        float f = (float) val;
+
+        if(used > 0 && index > indexes[used-1])//fast path, just stick it on the end
+        {
+            if(f != 0)
+                insertValue(-used-1, index, f);
+            return;
+        }
+
+        int insertLocation = Arrays.binarySearch(indexes, 0, used, index);
+        if(insertLocation >= 0)
+        {
+            if(f != 0)
+                values[insertLocation] = f;
+            else
+                removeNonZero(insertLocation);
+        }
+        else if(f != 0)
+            insertValue(insertLocation, index, f);
+    }
+
+    @Override
+    public double min()
+    {
+        double result = used < length ? 0 : Double.POSITIVE_INFINITY;
+        for(int i = 0; i < used; i++)
+            result = Math.min(result, values[i]);
+        return result;
+    }
+
+    @Override
+    public double max()
+    {
+        double result = used < length ? 0 : Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < used; i++)
+            result = Math.max(result, values[i]);
+        return result;
+    }
+
+    @Override
+    public double sum()
+    {
+        //Kahan summation, see SparseVector
+        double sum = 0;
+        double c = 0;
+        for(int i = 0; i < used; i++)
+        {
+            double y = values[i] - c;
+            double t = sum+y;
+            c = (t - sum) - y;
+            sum = t;
+        }
+        return sum;
+    }
+
+    @Override
+    public double dot(Vec v)
+    {
+        if(this.length() != v.length())
+            throw new ArithmeticException("Vectors must have the same length");
+        double dot = 0;
+
+        if(v instanceof FloatSparseVector)
+        {
+            FloatSparseVector b = (FloatSparseVector) v;
+            int p1 = 0, p2 = 0;
+            while (p1 < used && p2 < b.used)
+            {
+                int a1 = indexes[p1], a2 = b.indexes[p2];
+                if (a1 == a2)
+                    dot += values[p1++] * (double) b.values[p2++];
+                else if (a1 > a2)
+                    p2++;
+                else
+                    p1++;
+            }
+        }
+        else if(v instanceof SparseVector)
+        {
+            SparseVector b = (SparseVector) v;
+            int p1 = 0, p2 = 0;
+            while (p1 < used && p2 < b.used)
+            {
+                int a1 = indexes[p1], a2 = b.indexes[p2];
+                if (a1 == a2)
+                    dot += values[p1++] * b.values[p2++];
+                else if (a1 > a2)
+                    p2++;
+                else
+                    p1++;
+            }
+        }
+        else if(v.isSparse())
+            return super.dot(v);
+        else// it is dense
+            for (int i = 0; i < used; i++)
+                dot += values[i] * v.get(indexes[i]);
+
+        return dot;
+    }
+
+    @Override
+    public void multiply(double c, Matrix A, Vec b)
+    {
+        if(this.length() != A.rows())
+            throw new ArithmeticException("Vector x Matrix dimensions do not agree");
+        else if(b.length() != A.cols())
+            throw new ArithmeticException("Destination vector is not the right size");
+
+        for(int i = 0; i < used; i++)
+        {
+            double val = c*this.values[i];
+            int index = this.indexes[i];
+            for(int j = 0; j < A.cols(); j++)
+                b.increment(j, val*A.get(index, j));
+        }
+    }
+
+    @Override
+    public void mutableAdd(double c)
+    {
+        if(c == 0.0)
+            return;
+        //adding a constant to every value defeats the purpose of a sparse vector
+        for(int i = 0; i < length(); i++)
+            this.set(i, get(i) + c);
+    }
+
+    @Override
+    public void mutableAdd(double c, Vec v)
+    {
+        if(this.length() != v.length())
+            throw new ArithmeticException("Can not add vectors of unequal length");
+        if(c == 0.0)
+            return;
+        if(!v.isSparse())
+        {
+            for(int i = 0; i < length(); i++)
+                this.set(i, this.get(i) + c*v.get(i));
+            return;
+        }
+        //merge the two sets of non zeros into new arrays
+        int[] newIndexes = new int[used+v.nnz()];
+        float[] newValues = new float[newIndexes.length];
+        int p1 = 0, z = 0;
+        for(IndexValue iv : v)
+        {
+            int a2 = iv.getIndex();
+            while(p1 < used && indexes[p1] < a2)
+            {
+                newIndexes[z] = indexes[p1];
+                newValues[z++] = values[p1++];
+            }
+            float newVal;
+            if(p1 < used && indexes[p1] == a2)
+                newVal = (float) (values[p1++] + c*iv.getValue());
+            else
+                newVal = (float) (c*iv.getValue());
+            if(newVal != 0)
+            {
+                newIndexes[z] = a2;
+                newValues[z++] = newVal;
+            }
+        }
+        while(p1 < used)
+        {
+            newIndexes[z] = indexes[p1];
+            newValues[z++] = values[p1++];
+        }
+        indexes = newIndexes;
+        values = newValues;
+        used = z;
+    }
+
+    @Override
+    public void mutableMultiply(double c)
+    {
+        if(c == 0.0)
+        {
+            zeroOut();
+            return;
+        }
+        for(int i = 0; i < used; i++)
+            values[i] *= c;
+    }
+
+    @Override
+    public void mutableDivide(double c)
+    {
+        if(c == 0 && used != length)
+            throw new ArithmeticException("Division by zero would occur");
+        for(int i = 0; i < used; i++)
+            values[i] /= c;
+    }
+
+    @Override
+    public void mutablePairwiseMultiply(Vec b)
+    {
+        if(this.length() != b.length())
+            throw new ArithmeticException("Vectors must have the same length");
+        for(int i = 0; i < used; i++)
+            values[i] *= b.get(indexes[i]);//zeros stay zero
+    }
+
+    @Override
+    public void mutablePairwiseDivide(Vec b)
+    {
+        if(this.length() != b.length())
+            throw new ArithmeticException("Vectors must have the same length");
+        for (int i = 0; i < used; i++)
+            values[i] /= b.get(indexes[i]);//zeros stay zero
+    }
+
+    @Override
+    public double pNormDist(double p, Vec y)
+    {
+        if(this.length() != y.length())
+            throw new ArithmeticException("Vectors must be of the same length");
+        final boolean inf = Double.isInfinite(p);
+        if(!y.isSparse() && !inf)
+            return y.pNormDist(p, this);//dense vectors know how to handle a sparse input
+
+        double norm = 0;
+        int p1 = 0;
+        for(IndexValue iv : y)
+        {
+            int a2 = iv.getIndex();
+            while(p1 < used && indexes[p1] < a2)
+                norm = accumulate(norm, values[p1++], p, inf);
+            if(p1 < used && indexes[p1] == a2)
+                norm = accumulate(norm, values[p1++] - iv.getValue(), p, inf);
+            else
+                norm = accumulate(norm, iv.getValue(), p, inf);
+        }
+        while(p1 < used)
+            norm = accumulate(norm, values[p1++], p, inf);
+
+        if(inf || p == 1)
+            return norm;
+        else if(p == 2)
+            return sqrt(norm);
+        return pow(norm, 1.0/p);
+    }
+
+    private static double accumulate(double norm, double diff, double p, boolean inf)
+    {
+        if(inf)
+            return Math.max(norm, abs(diff));
+        return norm + normTerm(diff, p);
+    }
+
+    private static double normTerm(double diff, double p)
+    {
+        if(p == 2)
+            return diff*diff;
+        else if(p == 1)
+            return abs(diff);
+        return pow(abs(diff), p);
+    }
+
+    @Override
+    public double pNorm(double p)
+    {
+        if (p <= 0)
+            throw new IllegalArgumentException("norm must be a positive value, not " + p);
+        double result = 0;
+        if (Double.isInfinite(p))
+        {
+            for (int i = 0; i < used; i++)
+                result = Math.max(result, abs(values[i]));
+            return result;
+        }
+        for (int i = 0; i < used; i++)
+            result += normTerm(values[i], p);
+        if(p == 2)
+            return sqrt(result);
+        else if(p == 1)
+            return result;
+        return pow(result, 1 / p);
+    }
+
+    @Override
+    public FloatSparseVector clone()
+    {
+        FloatSparseVector copy = new FloatSparseVector(length, Math.max(used, 10));
+        System.arraycopy(this.values, 0, copy.values, 0, this.used);
+        System.arraycopy(this.indexes, 0, copy.indexes, 0, this.used);
+        copy.used = this.used;
+        return copy;
+    }
+
+    @Override
+    public double[] arrayCopy()
+    {
+        double[] array = new double[length()];
+        for(int i = 0; i < used; i++)
+            array[indexes[i]] = values[i];
+        return array;
+    }
+
+    @Override
+    public void applyFunction(Function1D f)
+    {
+        if(f.f(0.0) != 0.0)
+            super.applyFunction(f);
+        else//Then we only need to apply it to the non zero values!
+        {
+            int skip = 0;
+            for(int i = 0; i < used; i++)
+            {
+                indexes[i-skip] = indexes[i];
+                values[i-skip] = (float) f.f(values[i]);
+                if(values[i-skip] == 0.0f)
+                    skip++;
+            }
+            used -= skip;
+        }
+    }
+
+    @Override
+    public void zeroOut()
+    {
+        this.used = 0;
+    }
+
+    @Override
+    public void forEachNonZero(NonZeroVisitor visitor)
+    {
+        for(int i = 0; i < used; i++)
+            visitor.visit(indexes[i], values[i]);
+    }
+
+    @Override
+    public Iterator<IndexValue> getNonZeroIterator(final int start)
+    {
+        if(used <= 0)
+            return Collections.emptyIterator();
+        final int startPos;
+        if(start <= indexes[0])
+            startPos = 0;
+        else
+        {
+            int tmpIndx = Arrays.binarySearch(indexes, 0, used, start);
+            if(tmpIndx >= 0)
+                startPos = tmpIndx;
+            else
+                startPos = -(tmpIndx)-1;
+        }
+        return new Iterator<IndexValue>()
+        {
+            int curUsedPos = startPos;
+            IndexValue indexValue = new IndexValue(-1, Double.NaN);
+
+            @Override
+            public boolean hasNext()
+            {
+                return curUsedPos < used;
+            }
+
+            @Override
+            public IndexValue next()
+            {
+                indexValue.setIndex(indexes[curUsedPos]);
+                indexValue.setValue(values[curUsedPos++]);
+                return indexValue;
+            }
+        };
+    }
+
+    @Override
+    public int hashCode()
+    {
+        //must match the hash of a dense vector with the same values
+        int result = 1;
+        for (int i = 0; i < used; i++)
+        {
+            long bits = Double.doubleToLongBits(values[i]);
+            result = 31 * result + (int)(bits ^ (bits >>> 32));
+            result = 31 * result + indexes[i];
+        }
+        return 31* result + length;
+    }
+
+    @Override
+    public boolean isSparse()
+    {
+        return true;
+    }
+}
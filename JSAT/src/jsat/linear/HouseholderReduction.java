@@ -0,0 +1,524 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Blocked Householder reductions of a dense matrix, stored as a raw
+ * {@code double[][]}, to the condensed forms used by the eigen and singular
+ * value decompositions. Following LAPACK, the reflectors for a panel of
+ * {@link #NB} columns are accumulated without touching the rest of the
+ * matrix, which is then updated all at once with a rank 2*{@link #NB}
+ * {@link PackedGEMM matrix product}. This moves most of the work out of
+ * memory bound matrix-vector products and into cache friendly (and parallel)
+ * matrix-matrix products. <br>
+ * The reflectors are left in the parts of the matrix that have been zeroed
+ * out, and can be applied to other matrices with
+ * {@link #applyReflectors(double[][], int, int, double[][], boolean, int, double[], int, java.util.concurrent.ForkJoinPool) applyReflectors}.
+ * <br><br>
+ * See: Dongarra, J. J., Sorensen, D. C.,&amp;Hammarling, S. J. (1989).
+ * <i>Block reduction of matrices to condensed forms for eigenvalue
+ * computations</i>. Journal of Computational and Applied Mathematics, 27(1),
+ * 215–227.
+ *
+ * @author Edward Raff
+ */
+class HouseholderReduction
+{
+    /**
+     * The number of columns reduced before the rest of the matrix is updated
+     */
+    static final int NB = 32;
+    /**
+     * The number of reflectors applied at a time by
+     * {@link #applyReflectors(double[][], int, int, double[][], boolean, int, double[], int, java.util.concurrent.ForkJoinPool) applyReflectors}.
+     * This is larger than {@link #NB} so that the matrix being transformed is
+     * read fewer times.
+     */
+    static final int APPLY_NB = 128;
+
+    private HouseholderReduction()
+    {
+    }
+
+    /**
+     * Reduces the symmetric matrix <b>A</b> to a symmetric tridiagonal matrix
+     * <b>T</b> = <b>Q</b><sup>T</sup> <b>A</b> <b>Q</b>. Only the lower
+     * triangle of <b>A</b> is used. The matrix <b>Q</b> =
+     * <b>H</b><sub>0</sub> ... <b>H</b><sub>n-2</sub> is a product of
+     * reflectors, where reflector <i>i</i> has its unit value at index
+     * <i>i+1</i> and the rest stored in column <i>i</i> of <b>A</b> below
+     * that.
+     *
+     * @param A the symmetric n x n matrix, which will be altered
+     * @param d will be filled with the n diagonal values of <b>T</b>
+     * @param e will be filled with the n-1 off diagonal values of <b>T</b>
+     * @param tau will be filled with the n-1 reflector scales
+     * @param pool the pool to use, or {@code null} to compute serially
+     */
+    static void tridiagonalize(final double[][] A, final double[] d, final double[] e, final double[] tau, final ForkJoinPool pool)
+    {
+        final int n = A.length;
+        //L = [V | W] and R = [-W | -V], so that L R^T is the pending update to A
+        final double[][] L = new double[n][2*NB];
+        final double[][] R = new double[n][2*NB];
+        final double[] col = new double[n];
+        final double[] y = new double[n];
+        final double[] p1 = new double[NB];
+        final double[] p2 = new double[NB];
+        //each chunk of rows in the product with the lower triangle needs its own output
+        final int chunks = pool == null ? 1 : 4*pool.getParallelism();
+        final double[][] partials = new double[chunks][n];
+
+        for(int s = 0; s < n; s += NB)
+        {
+            final int nb = Math.min(NB, n-s);
+            for(double[] row : L)
+                Arrays.fill(row, 0.0);
+            for(int q = 0; q < nb; q++)
+            {
+                final int i = s+q;
+                final double[] L_i = L[i];
+                //bring column i up to date
+                for(int r = i; r < n; r++)
+                {
+                    final double[] L_r = L[r];
+                    double v = A[r][i];
+                    for(int p = 0; p < q; p++)
+                        v -= L_r[p]*L_i[NB+p] + L_r[NB+p]*L_i[p];
+                    col[r] = v;
+                }
+                d[i] = col[i];
+                if(i == n-1)
+                    break;
+
+                final double t = house(col, i+1, n);
+                tau[i] = t;
+                e[i] = col[i+1];
+                col[i+1] = 1;
+                for(int r = i+1; r < n; r++)
+                    L[r][q] = col[r];
+                for(int r = i+2; r < n; r++)
+                    A[r][i] = col[r];
+                if(t == 0)
+                    continue;
+
+                //y = A v with the stale trailing matrix, then correct for the pending updates
+                final int start = i+1;
+                lowerSymv(A, col, y, partials, start, n, pool);
+                Arrays.fill(p1, 0, q, 0.0);
+                Arrays.fill(p2, 0, q, 0.0);
+                for(int r = start; r < n; r++)
+                {
+                    final double[] L_r = L[r];
+                    final double v = col[r];
+                    for(int p = 0; p < q; p++)
+                    {
+                        p1[p] += L_r[NB+p]*v;//W^T v
+                        p2[p] += L_r[p]*v;//V^T v
+                    }
+                }
+                double wv = 0;
+                for(int r = start; r < n; r++)
+                {
+                    final double[] L_r = L[r];
+                    double v = y[r];
+                    for(int p = 0; p < q; p++)
+                        v -= L_r[p]*p1[p] + L_r[NB+p]*p2[p];
+                    v *= t;
+                    y[r] = v;
+                    wv += v*col[r];
+                }
+                final double alpha = -0.5*t*wv;
+                for(int r = start; r < n; r++)
+                    L[r][NB+q] = y[r] + alpha*col[r];
+            }
+
+            final int next = s+nb;
+            if(next >= n)
+                break;
+            for(int r = s; r < n; r++)
+            {
+                final double[] L_r = L[r], R_r = R[r];
+                for(int p = 0; p < NB; p++)
+                {
+                    R_r[p] = -L_r[NB+p];
+                    R_r[NB+p] = -L_r[p];
+                }
+            }
+            //only the lower triangle is needed, so update it in strips of rows
+            for(int rb = next; rb < n; rb += 4*NB)
+            {
+                int re = Math.min(rb+4*NB, n);
+                PackedGEMM.gemm(L, false, R, true, A, rb, re, next, re, 0, 2*NB, pool);
+            }
+        }
+    }
+
+    /**
+     * Computes y = A v for the trailing block of A starting at row and column
+     * {@code start}, reading only the lower triangle so that each value is
+     * only loaded once.
+     *
+     * @param partials scratch space, with one array for each chunk of rows to
+     * compute in parallel
+     */
+    private static void lowerSymv(final double[][] A, final double[] v, final double[] y, final double[][] partials, final int start, final int n, ForkJoinPool pool)
+    {
+        final int size = n-start;
+        final int chunks = (long) size*size < 4*ParallelRange.MIN_TASK_WORK ? 1 : partials.length;
+        //row boundaries that give each chunk the same share of the triangle
+        final int[] bounds = new int[chunks+1];
+        for(int k = 0; k <= chunks; k++)
+            bounds[k] = start + (int) Math.round(size*Math.sqrt(k/(double) chunks));
+        ParallelRange.run(chunks == 1 ? null : pool, 0, chunks, ParallelRange.MIN_TASK_WORK, (a, b) ->
+        {
+            for(int k = a; k < b; k++)
+            {
+                final double[] out = chunks == 1 ? y : partials[k];
+                Arrays.fill(out, start, n, 0.0);
+                for(int r = bounds[k]; r < bounds[k+1]; r++)
+                {
+                    final double[] A_r = A[r];
+                    final double v_r = v[r];
+                    double dot = 0;
+                    for(int c = start; c < r; c++)
+                    {
+                        final double a_rc = A_r[c];
+                        dot += a_rc*v[c];
+                        out[c] += a_rc*v_r;
+                    }
+                    out[r] += dot + A_r[r]*v_r;
+                }
+            }
+        });
+        if(chunks > 1)
+        {
+            Arrays.fill(y, start, n, 0.0);
+            for(double[] partial : partials)
+                for(int c = start; c < n; c++)
+                    y[c] += partial[c];
+        }
+    }
+
+    /**
+     * Reduces the m x n matrix <b>A</b>, with m &ge; n, to an upper bidiagonal
+     * matrix <b>B</b> = <b>Q</b><sup>T</sup> <b>A</b> <b>P</b>. <br>
+     * <b>Q</b> = <b>H</b><sub>0</sub> ... <b>H</b><sub>n-1</sub>, where
+     * reflector <i>i</i> has its unit value at index <i>i</i> and the rest
+     * stored in column <i>i</i> of <b>A</b> below the diagonal. <br>
+     * <b>P</b> = <b>G</b><sub>0</sub> ... <b>G</b><sub>n-2</sub>, where
+     * reflector <i>i</i> has its unit value at index <i>i+1</i> and the rest
+     * stored in row <i>i</i> of <b>A</b> after index <i>i+1</i>.
+     *
+     * @param A the matrix to reduce, which will be altered
+     * @param n the number of columns of <b>A</b> to use
+     * @param d will be filled with the n diagonal values of <b>B</b>
+     * @param e will be filled with the n-1 super diagonal values of <b>B</b>
+     * @param tauQ will be filled with the n left reflector scales
+     * @param tauP will be filled with the n-1 right reflector scales
+     * @param pool the pool to use, or {@code null} to compute serially
+     */
+    static void bidiagonalize(final double[][] A, final int n, final double[] d, final double[] e, final double[] tauQ, final double[] tauP, final ForkJoinPool pool)
+    {
+        final int m = A.length;
+        //Lm = [V | X] and Rn = [-Y | -U], so that Lm Rn^T is the pending update to A
+        final double[][] Lm = new double[m][2*NB];
+        final double[][] Rn = new double[n][2*NB];
+        final double[] col = new double[m];
+        final double[] row = new double[n];
+        final double[] y = new double[n];
+        final double[] x = new double[m];
+        final double[] p1 = new double[NB];
+        final double[] p2 = new double[NB];
+
+        for(int s = 0; s < n; s += NB)
+        {
+            final int nb = Math.min(NB, n-s);
+            for(double[] r : Lm)
+                Arrays.fill(r, 0.0);
+            for(double[] r : Rn)
+                Arrays.fill(r, 0.0);
+            for(int q = 0; q < nb; q++)
+            {
+                final int i = s+q;
+                final double[] A_i = A[i];
+                final double[] Lm_i = Lm[i];
+                //bring column i up to date: A - V Y^T - X U^T
+                final double[] Rn_i = Rn[i];
+                for(int r = i; r < m; r++)
+                {
+                    final double[] Lm_r = Lm[r];
+                    double v = A[r][i];
+                    for(int p = 0; p < q; p++)
+                        v += Lm_r[p]*Rn_i[p] + Lm_r[NB+p]*Rn_i[NB+p];
+                    col[r] = v;
+                }
+                final double tq = house(col, i, m);
+                tauQ[i] = tq;
+                d[i] = col[i];
+                col[i] = 1;
+                for(int r = i; r < m; r++)
+                    Lm[r][q] = col[r];
+                for(int r = i+1; r < m; r++)
+                    A[r][i] = col[r];
+                if(i == n-1)
+                    break;
+
+                //Y[:,q] = tauQ (A^T v - Y (V^T v) - U (X^T v)) for the columns after i
+                final int cStart = i+1;
+                if(tq != 0)
+                {
+                    ParallelRange.run(pool, cStart, n, m-i, (a, b) ->
+                    {
+                        Arrays.fill(y, a, b, 0.0);
+                        for(int r = i; r < m; r++)
+                        {
+                            final double[] A_r = A[r];
+                            final double v = col[r];
+                            if(v != 0)
+                                for(int c = a; c < b; c++)
+                                    y[c] += A_r[c]*v;
+                        }
+                    });
+                    Arrays.fill(p1, 0, q, 0.0);
+                    Arrays.fill(p2, 0, q, 0.0);
+                    for(int r = i; r < m; r++)
+                    {
+                        final double[] Lm_r = Lm[r];
+                        final double v = col[r];
+                        for(int p = 0; p < q; p++)
+                        {
+                            p1[p] += Lm_r[p]*v;
+                            p2[p] += Lm_r[NB+p]*v;
+                        }
+                    }
+                    for(int c = cStart; c < n; c++)
+                    {
+                        final double[] Rn_c = Rn[c];
+                        double v = y[c];
+                        //Rn holds the negated Y and U
+                        for(int p = 0; p < q; p++)
+                            v += Rn_c[p]*p1[p] + Rn_c[NB+p]*p2[p];
+                        Rn_c[q] = -tq*v;
+                    }
+                }
+
+                //bring row i up to date: A - V Y^T - X U^T, now including the new Y column
+                for(int c = cStart; c < n; c++)
+                {
+                    final double[] Rn_c = Rn[c];
+                    double v = A_i[c];
+                    for(int p = 0; p <= q; p++)
+                        v += Lm_i[p]*Rn_c[p];
+                    for(int p = 0; p < q; p++)
+                        v += Lm_i[NB+p]*Rn_c[NB+p];
+                    row[c] = v;
+                }
+                final double tp = house(row, cStart, n);
+                tauP[i] = tp;
+                e[i] = row[cStart];
+                row[cStart] = 1;
+                for(int c = cStart; c < n; c++)
+                    Rn[c][NB+q] = -row[c];
+                System.arraycopy(row, cStart+1, A_i, cStart+1, n-cStart-1);
+                if(tp == 0)
+                    continue;
+
+                //X[:,q] = tauP (A u - V (Y^T u) - X (U^T u)) for the rows after i
+                final int rStart = i+1;
+                ParallelRange.run(pool, rStart, m, n-cStart, (a, b) ->
+                {
+                    for(int r = a; r < b; r++)
+                    {
+                        final double[] A_r = A[r];
+                        double v = 0;
+                        for(int c = cStart; c < n; c++)
+                            v += A_r[c]*row[c];
+                        x[r] = v;
+                    }
+                });
+                Arrays.fill(p1, 0, q+1, 0.0);
+                Arrays.fill(p2, 0, q, 0.0);
+                for(int c = cStart; c < n; c++)
+                {
+                    final double[] Rn_c = Rn[c];
+                    final double v = row[c];
+                    for(int p = 0; p <= q; p++)
+                        p1[p] -= Rn_c[p]*v;
+                    for(int p = 0; p < q; p++)
+                        p2[p] -= Rn_c[NB+p]*v;
+                }
+                for(int r = rStart; r < m; r++)
+                {
+                    final double[] Lm_r = Lm[r];
+                    double v = x[r];
+                    for(int p = 0; p <= q; p++)
+                        v -= Lm_r[p]*p1[p];
+                    for(int p = 0; p < q; p++)
+                        v -= Lm_r[NB+p]*p2[p];
+                    Lm_r[NB+q] = tp*v;
+                }
+            }
+
+            final int next = s+nb;
+            if(next >= n)
+                break;
+            PackedGEMM.gemm(Lm, false, Rn, true, A, next, m, next, n, 0, 2*NB, pool);
+        }
+    }
+
+    /**
+     * Computes <b>X</b> = <b>X</b> <b>Q</b><sup>T</sup>, where <b>Q</b> =
+     * <b>H</b><sub>0</sub> ... <b>H</b><sub>k-1</sub> is a product of
+     * reflectors left in a matrix by one of the reductions. If the rows of
+     * <b>X</b> are vectors <b>z</b>, each is replaced with <b>Q z</b>. The
+     * reflectors are applied in blocks of {@link #APPLY_NB} as
+     * <b>I</b> - <b>V T V</b><sup>T</sup>, so that the work is done by matrix
+     * products.
+     *
+     * @param X the matrix to alter
+     * @param rows the number of rows of <b>X</b> to alter
+     * @param cols the number of columns of <b>X</b>, which is the length of
+     * the reflectors
+     * @param store the matrix holding the reflectors
+     * @param rowStored {@code true} if reflector <i>i</i> is stored in row
+     * <i>i</i> of {@code store}, or {@code false} if in column <i>i</i>
+     * @param offset the unit value of reflector <i>i</i> is at index
+     * <i>i+offset</i>, and the rest of it follows
+     * @param tau the reflector scales
+     * @param count the number of reflectors <i>k</i>
+     * @param pool the pool to use, or {@code null} to compute serially
+     */
+    static void applyReflectors(final double[][] X, final int rows, final int cols, final double[][] store, final boolean rowStored, final int offset, final double[] tau, final int count, final ForkJoinPool pool)
+    {
+        final int blocks = (count+APPLY_NB-1)/APPLY_NB;
+        final double[][] Vt = new double[APPLY_NB][cols];
+        final double[][] T = new double[APPLY_NB][APPLY_NB];
+        final double[][] W = new double[rows][APPLY_NB];
+        for(int b = blocks-1; b >= 0; b--)
+        {
+            final int q0 = b*APPLY_NB;
+            final int nb = Math.min(APPLY_NB, count-q0);
+            final int first = q0+offset;
+            //gather the reflectors as rows
+            for(int q = 0; q < APPLY_NB; q++)
+            {
+                final double[] v = Vt[q];
+                Arrays.fill(v, 0.0);
+                if(q >= nb)
+                    continue;
+                final int g = q0+q;
+                final int unit = g+offset;
+                v[unit] = 1;
+                if(rowStored)
+                    System.arraycopy(store[g], unit+1, v, unit+1, cols-unit-1);
+                else
+                    for(int r = unit+1; r < cols; r++)
+                        v[r] = store[r][g];
+            }
+            //T, so that H_q0 ... H_q0+nb-1 = I - V T V^T
+            for(double[] t : T)
+                Arrays.fill(t, 0.0);
+            for(int q = 0; q < nb; q++)
+            {
+                final double t_q = tau[q0+q];
+                T[q][q] = t_q;
+                if(t_q == 0)
+                    continue;
+                final double[] v_q = Vt[q];
+                final double[] z = new double[q];
+                for(int p = 0; p < q; p++)
+                {
+                    final double[] v_p = Vt[p];
+                    double dot = 0;
+                    for(int r = first+q; r < cols; r++)
+                        dot += v_p[r]*v_q[r];
+                    z[p] = dot;
+                }
+                for(int p = 0; p < q; p++)
+                {
+                    double v = 0;
+                    for(int l = p; l < q; l++)
+                        v += T[p][l]*z[l];
+                    T[p][q] = -t_q*v;
+                }
+            }
+
+            //X = X - (X V) T^T V^T
+            for(double[] w : W)
+                Arrays.fill(w, 0.0);
+            PackedGEMM.gemm(X, false, Vt, true, W, 0, rows, 0, APPLY_NB, first, cols, pool);
+            ParallelRange.run(pool, 0, rows, (long) nb*nb/2, (a, c) ->
+            {
+                for(int r = a; r < c; r++)
+                {
+                    final double[] w = W[r];
+                    for(int q = 0; q < nb; q++)
+                    {
+                        double v = 0;
+                        for(int p = q; p < nb; p++)
+                            v += w[p]*T[q][p];
+                        w[q] = -v;
+                    }
+                }
+            });
+            PackedGEMM.gemm(W, false, Vt, false, X, 0, rows, first, cols, 0, APPLY_NB, pool);
+        }
+    }
+
+    /**
+     * Generates a Householder reflector <b>I</b> - &tau; <b>v v</b><sup>T</sup>
+     * that zeros out {@code x[start+1:end]}. On return {@code x[start]} holds
+     * the new value &beta; and {@code x[start+1:end]} holds the reflector
+     * <b>v</b> after its implicit unit value.
+     *
+     * @return the scale &tau;, which is zero if no reflection was needed
+     */
+    static double house(double[] x, int start, int end)
+    {
+        double alpha = x[start];
+        double xmax = 0;
+        for(int i = start+1; i < end; i++)
+            xmax = Math.max(xmax, Math.abs(x[i]));
+        double xnorm = 0;
+        if(xmax > 0)
+        {
+            //scale before squaring to avoid overflow
+            for(int i = start+1; i < end; i++)
+            {
+                double v = x[i]/xmax;
+                xnorm += v*v;
+            }
+            xnorm = xmax*Math.sqrt(xnorm);
+        }
+        if(xnorm == 0)
+        {
+            for(int i = start+1; i < end; i++)
+                x[i] = 0;
+            return 0;
+        }
+        double beta = -Math.copySign(Math.hypot(alpha, xnorm), alpha);
+        double scale = 1/(alpha-beta);
+        for(int i = start+1; i < end; i++)
+            x[i] *= scale;
+        x[start] = beta;
+        return (beta-alpha)/beta;
+    }
+}
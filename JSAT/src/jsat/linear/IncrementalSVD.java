@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Maintains the top-<i>k</i> right singular vectors and singular values of a
+ * matrix whose rows arrive in batches, without ever storing more than the
+ * current batch. Each {@link #update(java.util.List) update} stacks the
+ * current <i>k</i> x <i>d</i> summary &Sigma;<b>V</b><sup>T</sup> on top of
+ * the new rows and takes the SVD of that small matrix, so the memory used is
+ * O(<i>d</i> (<i>k</i>+<i>b</i>)) for batches of size <i>b</i>. <br>
+ * When centering is enabled the decomposition is of the rows with the running
+ * mean removed, using the correction term of Ross et al. so that the result
+ * matches what would be obtained by centering all of the data at once. <br>
+ * <br>
+ * See: Ross, D. A., Lim, J., Lin, R.-S.,&amp;Yang, M.-H. (2008).
+ * <i>Incremental Learning for Robust Visual Tracking</i>. International
+ * Journal of Computer Vision, 77(1-3), 125–141.
+ * doi:10.1007/s11263-007-0075-7
+ *
+ * @author Edward Raff
+ */
+public class IncrementalSVD implements Serializable, Cloneable
+{
+    private static final long serialVersionUID = -2873517962846402519L;
+    private int k;
+    private boolean center;
+    /**
+     * The k x d matrix of right singular vectors, or {@code null} before the
+     * first update
+     */
+    private Matrix V;
+    private double[] s;
+    private Vec mean;
+    private double sumOfWeights;
+
+    /**
+     * Creates a new incremental SVD
+     *
+     * @param k the maximum number of singular values to keep
+     * @param center {@code true} to compute the SVD of the mean centered data,
+     * {@code false} to use the rows as given
+     */
+    public IncrementalSVD(int k, boolean center)
+    {
+        if(k < 1)
+            throw new IllegalArgumentException("Number of singular values must be positive, not " + k);
+        this.k = k;
+        this.center = center;
+    }
+
+    /**
+     * Copy constructor
+     *
+     * @param toCopy the object to copy
+     */
+    public IncrementalSVD(IncrementalSVD toCopy)
+    {
+        this.k = toCopy.k;
+        this.center = toCopy.center;
+        if(toCopy.V != null)
+            this.V = toCopy.V.clone();
+        if(toCopy.s != null)
+            this.s = toCopy.s.clone();
+        if(toCopy.mean != null)
+            this.mean = toCopy.mean.clone();
+        this.sumOfWeights = toCopy.sumOfWeights;
+    }
+
+    /**
+     * Updates the decomposition with a new batch of rows, each with a weight
+     * of one.
+     *
+     * @param batch the new rows
+     */
+    public void update(List<? extends Vec> batch)
+    {
+        update(batch, null);
+    }
+
+    /**
+     * Updates the decomposition with a new batch of weighted rows. Each row
+     * is scaled by the square root of its weight, so that the squared
+     * singular values are weighted sums of squares.
+     *
+     * @param batch the new rows
+     * @param weights the weight of each row, or {@code null} to weight every
+     * row by one
+     */
+    public void update(List<? extends Vec> batch, double[] weights)
+    {
+        if(batch.isEmpty())
+            return;
+        final int d = batch.get(0).length();
+        if(mean != null && mean.length() != d)
+            throw new ArithmeticException("Batch has " + d + " columns, but " + mean.length() + " were expected");
+
+        double W_b = 0;
+        DenseVector mean_b = new DenseVector(d);
+        for(int i = 0; i < batch.size(); i++)
+        {
+            double w = weights == null ? 1.0 : weights[i];
+            W_b += w;
+            if(center)
+                mean_b.mutableAdd(w, batch.get(i));
+        }
+        if(W_b <= 0)
+            return;
+        mean_b.mutableDivide(W_b);
+
+        final int oldRows = V == null ? 0 : V.rows();
+        final boolean correction = center && sumOfWeights > 0;
+        DenseMatrix B = new DenseMatrix(oldRows + batch.size() + (correction ? 1 : 0), d);
+        for(int i = 0; i < oldRows; i++)
+        {
+            Vec row = B.getRowView(i);
+            row.mutableAdd(s[i], V.getRowView(i));
+        }
+        for(int i = 0; i < batch.size(); i++)
+        {
+            double sqrtW = Math.sqrt(weights == null ? 1.0 : weights[i]);
+            Vec row = B.getRowView(oldRows+i);
+            row.mutableAdd(sqrtW, batch.get(i));
+            if(center)
+                row.mutableAdd(-sqrtW, mean_b);
+        }
+        if(correction)
+        {
+            Vec row = B.getRowView(B.rows()-1);
+            row.mutableAdd(mean_b);
+            row.mutableSubtract(mean);
+            row.mutableMultiply(Math.sqrt(sumOfWeights*W_b/(sumOfWeights+W_b)));
+        }
+
+        SingularValueDecomposition svd = new SingularValueDecomposition(B);
+        double[] newS = svd.getSingularValues();
+        Matrix newV = svd.getV();//d x r, columns are the singular vectors
+        final int r = Math.min(k, newS.length);
+        s = new double[r];
+        V = new DenseMatrix(r, d);
+        for(int i = 0; i < r; i++)
+        {
+            s[i] = newS[i];
+            for(int j = 0; j < d; j++)
+                V.set(i, j, newV.get(j, i));
+        }
+
+        if(center)
+        {
+            if(mean == null)
+                mean = new DenseVector(d);
+            //mean += (mean_b - mean) W_b/(W+W_b)
+            Vec delta = mean_b.subtract(mean);
+            mean.mutableAdd(W_b/(sumOfWeights+W_b), delta);
+        }
+        sumOfWeights += W_b;
+    }
+
+    /**
+     * Returns the current <i>k</i> x <i>d</i> matrix <b>V</b><sup>T</sup> of
+     * right singular vectors, where each row is one singular vector. This is
+     * the transpose of the orientation returned by
+     * {@link SingularValueDecomposition#getV() }.
+     *
+     * @return the transposed matrix of right singular vectors, or
+     * {@code null} if no data has been seen
+     */
+    public Matrix getVt()
+    {
+        return V;
+    }
+
+    /**
+     * Returns the current singular values, sorted from largest to smallest.
+     *
+     * @return the array of singular values, or {@code null} if no data has
+     * been seen
+     */
+    public double[] getSingularValues()
+    {
+        return s;
+    }
+
+    /**
+     * Returns the weighted mean of all rows seen so far. This is only
+     * maintained when centering is enabled.
+     *
+     * @return the mean of the data, or {@code null} if centering is not used
+     * or no data has been seen
+     */
+    public Vec getMean()
+    {
+        return mean;
+    }
+
+    /**
+     * Returns the sum of the weights of all rows seen so far
+     *
+     * @return the sum of weights
+     */
+    public double getSumOfWeights()
+    {
+        return sumOfWeights;
+    }
+
+    @Override
+    public IncrementalSVD clone()
+    {
+        return new IncrementalSVD(this);
+    }
+}
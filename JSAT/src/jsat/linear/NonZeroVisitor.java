@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+/**
+ * A visitor over the non zero values of a vector, for use with 
+ * {@link Vec#forEachNonZero(jsat.linear.NonZeroVisitor) }. 
+ * 
+ * @author Edward Raff
+ */
+@FunctionalInterface
+public interface NonZeroVisitor
+{
+    /**
+     * Called once for each non zero value in a vector, in increasing order of
+     * index
+     * @param index the index of the value
+     * @param value the non zero value at that index
+     */
+    public void visit(int index, double value);
+}
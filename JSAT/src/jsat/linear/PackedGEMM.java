@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import jsat.utils.FakeExecutor;
+import jsat.utils.concurrent.ExecutionContext;
+import static jsat.utils.SystemInfo.L2CacheSize;
+
+/**
+ * Computes the dense matrix product <i>C = C + op(A) op(B)</i> on the raw
+ * {@code double[][]} storage of {@link DenseMatrix}, where <i>op</i> is either
+ * the identity or the transpose. <br>
+ * <br>
+ * The approach follows the GotoBLAS design. <i>C</i> is computed in blocks
+ * of {@link #MR}&times;{@link #NR} values, each held in local variables by a
+ * register blocked micro-kernel. The parts of <i>A</i> and <i>B</i> needed by
+ * the micro-kernel are first copied ("packed") into contiguous panels. The
+ * panels are sized so that a panel of <i>B</i> stays in the L1 cache and a
+ * block of <i>A</i> stays in the L2 cache, and the transposes are handled by
+ * the packing so the kernel itself is always the same.<br>
+ * <br>
+ * In parallel mode <i>C</i> is recursively split into disjoint tiles that are
+ * computed with a {@link ForkJoinPool}, so that no synchronization is needed
+ * and idle threads steal the remaining tiles.
+ *
+ * @author Edward Raff
+ */
+class PackedGEMM
+{
+    /**
+     * Number of rows of C computed by the micro-kernel
+     */
+    static final int MR = 4;
+    /**
+     * Number of columns of C computed by the micro-kernel
+     */
+    static final int NR = 4;
+    /**
+     * The depth of each packed panel, chosen so that a MR x KC panel of A and a
+     * KC x NR panel of B fit in the L1 cache together
+     */
+    static final int KC = 256;
+    /**
+     * The number of rows of A packed at a time, chosen to fill about half of
+     * the L2 cache
+     */
+    static final int MC = Math.max(MR*8, Math.min(512, L2CacheSize/(2*8*KC)/MR*MR));
+    /**
+     * The number of columns of B packed at a time
+     */
+    static final int NC = 2048;
+    /**
+     * Products with fewer multiplications than this are not worth packing
+     */
+    static final long MIN_PACKED_WORK = 48L*48*48;
+    /**
+     * Tiles of C with less work than this are not split into further tasks
+     */
+    static final long MIN_PARALLEL_WORK = 128L*128*128;
+
+    private PackedGEMM()
+    {
+    }
+
+    /**
+     * Returns {@code true} if the product of the given size is large enough
+     * that packing will be faster than a direct loop
+     *
+     * @param m the number of rows in C
+     * @param n the number of columns in C
+     * @param k the inner dimension
+     * @return {@code true} if {@link #gemm } should be used
+     */
+    static boolean worthPacking(int m, int n, int k)
+    {
+        return (long) m*n*k >= MIN_PACKED_WORK;
+    }
+
+    /**
+     * Computes <i>C = C + op(A) op(B)</i>. It is the caller's responsibility to
+     * make sure the dimensions agree.
+     *
+     * @param A the left hand matrix
+     * @param transA {@code true} if A is stored transposed, i.e., A has
+     * {@code k} rows.
+     * @param B the right hand matrix
+     * @param transB {@code true} if B is stored transposed, i.e., B has
+     * {@code n} rows.
+     * @param C the matrix to add the result to, of size m x n
+     * @param m the number of rows of C
+     * @param n the number of columns of C
+     * @param k the inner dimension of the product
+     * @param pool the pool to use, or {@code null} to compute serially
+     */
+    static void gemm(double[][] A, boolean transA, double[][] B, boolean transB, double[][] C, int m, int n, int k, ForkJoinPool pool)
+    {
+        gemm(A, transA, B, transB, C, 0, m, 0, n, 0, k, pool);
+    }
+
+    /**
+     * Computes <i>C = C + op(A) op(B)</i> for only the block of C with rows
+     * [i0, i1) and columns [j0, j1), using only the inner indices [k0, k1).
+     * The rows of op(A) and the columns of op(B) are indexed the same way as
+     * C, so that a trailing block of a larger matrix can be updated in place.
+     *
+     * @param A the left hand matrix
+     * @param transA {@code true} if A is stored transposed
+     * @param B the right hand matrix
+     * @param transB {@code true} if B is stored transposed
+     * @param C the matrix to add the result to
+     * @param i0 the first row of C to compute
+     * @param i1 the row of C to stop at (exclusive)
+     * @param j0 the first column of C to compute
+     * @param j1 the column of C to stop at (exclusive)
+     * @param k0 the first inner index of the product
+     * @param k1 the inner index to stop at (exclusive)
+     * @param pool the pool to use, or {@code null} to compute serially
+     */
+    static void gemm(double[][] A, boolean transA, double[][] B, boolean transB, double[][] C, int i0, int i1, int j0, int j1, int k0, int k1, ForkJoinPool pool)
+    {
+        if(i1 <= i0 || j1 <= j0 || k1 <= k0)
+            return;
+        Tile root = new Tile(A, transA, B, transB, C, i0, i1, j0, j1, k0, k1);
+        if(pool == null || (long) (i1-i0)*(j1-j0)*(k1-k0) < MIN_PARALLEL_WORK)
+            root.computeSerial();
+        else if(ForkJoinTask.getPool() == pool)//already a task in this pool, just fork from here
+            root.invoke();
+        else
+            pool.invoke(root);
+    }
+
+    /**
+     * Returns the fork-join pool to use for parallel work submitted by the
+     * older {@link ExecutorService} based methods. The given pool is used if
+     * it is a {@link ForkJoinPool}, the pool of its {@link ExecutionContext}
+     * if it is backed by one, and the pool of the current context otherwise.
+     * A {@link FakeExecutor}, or a context that does not allow the calling
+     * thread to split its work, means the work should be done serially.
+     *
+     * @param threadPool the pool given by the caller
+     * @return the pool to compute with, or {@code null} to compute serially
+     */
+    static ForkJoinPool asForkJoin(ExecutorService threadPool)
+    {
+        if(threadPool == null || threadPool instanceof FakeExecutor)
+            return null;
+        else if(threadPool instanceof ForkJoinPool)
+            return (ForkJoinPool) threadPool;
+        ExecutionContext context = ExecutionContext.of(threadPool);
+        if(context == null)
+            context = ExecutionContext.current();
+        return context.canFork() ? context.getPool() : null;
+    }
+
+    /**
+     * A rectangle [i0, i1) x [j0, j1) of C to compute. Tiles are split in half
+     * along their larger side until they are too small to be worth running as
+     * separate tasks.
+     */
+    private static class Tile extends RecursiveAction
+    {
+        private static final long serialVersionUID = 7310591628741063295L;
+        final double[][] A, B, C;
+        final boolean transA, transB;
+        final int i0, i1, j0, j1, k0, k1;
+
+        public Tile(double[][] A, boolean transA, double[][] B, boolean transB, double[][] C, int i0, int i1, int j0, int j1, int k0, int k1)
+        {
+            this.A = A;
+            this.transA = transA;
+            this.B = B;
+            this.transB = transB;
+            this.C = C;
+            this.i0 = i0;
+            this.i1 = i1;
+            this.j0 = j0;
+            this.j1 = j1;
+            this.k0 = k0;
+            this.k1 = k1;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int m = i1-i0, n = j1-j0, k = k1-k0;
+            if((long) m*n*k < MIN_PARALLEL_WORK || (m <= MR && n <= NR))
+            {
+                computeSerial();
+                return;
+            }
+            //split on a multiple of the micro-kernel size so no tile gets extra edge cases
+            if(m >= n)
+            {
+                int mid = i0 + Math.max(MR, (m/2)/MR*MR);
+                invokeAll(new Tile(A, transA, B, transB, C, i0, mid, j0, j1, k0, k1),
+                        new Tile(A, transA, B, transB, C, mid, i1, j0, j1, k0, k1));
+            }
+            else
+            {
+                int mid = j0 + Math.max(NR, (n/2)/NR*NR);
+                invokeAll(new Tile(A, transA, B, transB, C, i0, i1, j0, mid, k0, k1),
+                        new Tile(A, transA, B, transB, C, i0, i1, mid, j1, k0, k1));
+            }
+        }
+
+        /**
+         * Computes this tile in the current thread using the blocked algorithm
+         */
+        void computeSerial()
+        {
+            int nc = Math.min(NC, roundUp(j1-j0, NR));
+            int mc = Math.min(MC, roundUp(i1-i0, MR));
+            int kc = Math.min(KC, k1-k0);
+            double[] packedB = new double[kc*nc];
+            double[] packedA = new double[mc*kc];
+            double[] edge = new double[MR*NR];
+
+            for(int jc = j0; jc < j1; jc += NC)
+            {
+                int jEnd = Math.min(jc+NC, j1);
+                for(int pc = k0; pc < k1; pc += KC)
+                {
+                    int pEnd = Math.min(pc+KC, k1);
+                    int depth = pEnd-pc;
+                    packB(B, transB, pc, pEnd, jc, jEnd, packedB);
+                    for(int ic = i0; ic < i1; ic += MC)
+                    {
+                        int iEnd = Math.min(ic+MC, i1);
+                        packA(A, transA, ic, iEnd, pc, pEnd, packedA);
+                        for(int jr = jc; jr < jEnd; jr += NR)
+                        {
+                            int bOff = (jr-jc)*depth;
+                            int nr = Math.min(NR, jEnd-jr);
+                            for(int ir = ic; ir < iEnd; ir += MR)
+                                kernel(depth, packedA, (ir-ic)*depth, packedB, bOff, C, ir, jr, Math.min(MR, iEnd-ir), nr, edge);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int roundUp(int x, int multiple)
+    {
+        return (x+multiple-1)/multiple*multiple;
+    }
+
+    /**
+     * Copies the block of op(A) with rows [iStart, iEnd) and columns
+     * [pStart, pEnd) into micro-panels of {@link #MR} rows, stored column by
+     * column. Rows past the end are filled with zeros.
+     */
+    private static void packA(double[][] A, boolean transA, int iStart, int iEnd, int pStart, int pEnd, double[] dst)
+    {
+        int depth = pEnd-pStart;
+        for(int ir = iStart; ir < iEnd; ir += MR)
+        {
+            int base = (ir-iStart)*depth;
+            int mr = Math.min(MR, iEnd-ir);
+            if(!transA)
+            {
+                for(int r = 0; r < mr; r++)
+                {
+                    double[] A_r = A[ir+r];
+                    for(int p = 0; p < depth; p++)
+                        dst[base + p*MR + r] = A_r[pStart+p];
+                }
+            }
+            else
+            {
+                for(int p = 0; p < depth; p++)
+                {
+                    double[] A_p = A[pStart+p];
+                    for(int r = 0; r < mr; r++)
+                        dst[base + p*MR + r] = A_p[ir+r];
+                }
+            }
+            for(int r = mr; r < MR; r++)
+                for(int p = 0; p < depth; p++)
+                    dst[base + p*MR + r] = 0;
+        }
+    }
+
+    /**
+     * Copies the block of op(B) with rows [pStart, pEnd) and columns
+     * [jStart, jEnd) into micro-panels of {@link #NR} columns, stored row by
+     * row. Columns past the end are filled with zeros.
+     */
+    private static void packB(double[][] B, boolean transB, int pStart, int pEnd, int jStart, int jEnd, double[] dst)
+    {
+        int depth = pEnd-pStart;
+        for(int jr = jStart; jr < jEnd; jr += NR)
+        {
+            int base = (jr-jStart)*depth;
+            int nr = Math.min(NR, jEnd-jr);
+            if(!transB)
+            {
+                for(int p = 0; p < depth; p++)
+                {
+                    double[] B_p = B[pStart+p];
+                    for(int c = 0; c < nr; c++)
+                        dst[base + p*NR + c] = B_p[jr+c];
+                }
+            }
+            else
+            {
+                for(int c = 0; c < nr; c++)
+                {
+                    double[] B_c = B[jr+c];
+                    for(int p = 0; p < depth; p++)
+                        dst[base + p*NR + c] = B_c[pStart+p];
+                }
+            }
+            for(int c = nr; c < NR; c++)
+                for(int p = 0; p < depth; p++)
+                    dst[base + p*NR + c] = 0;
+        }
+    }
+
+    /**
+     * Computes a {@link #MR} x {@link #NR} block of C from packed panels of A
+     * and B, keeping all of the partial sums in local variables so that the
+     * JIT can hold them in registers. Only the first {@code mr} rows and
+     * {@code nr} columns are added to C.
+     */
+    private static void kernel(int depth, double[] a, int aOff, double[] b, int bOff, double[][] C, int i, int j, int mr, int nr, double[] edge)
+    {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+        for(int p = 0; p < depth; p++)
+        {
+            double a0 = a[aOff], a1 = a[aOff+1], a2 = a[aOff+2], a3 = a[aOff+3];
+            double b0 = b[bOff], b1 = b[bOff+1], b2 = b[bOff+2], b3 = b[bOff+3];
+            aOff += MR;
+            bOff += NR;
+
+            c00 += a0*b0; c01 += a0*b1; c02 += a0*b2; c03 += a0*b3;
+            c10 += a1*b0; c11 += a1*b1; c12 += a1*b2; c13 += a1*b3;
+            c20 += a2*b0; c21 += a2*b1; c22 += a2*b2; c23 += a2*b3;
+            c30 += a3*b0; c31 += a3*b1; c32 += a3*b2; c33 += a3*b3;
+        }
+
+        if(mr == MR && nr == NR)
+        {
+            double[] C0 = C[i], C1 = C[i+1], C2 = C[i+2], C3 = C[i+3];
+            C0[j] += c00; C0[j+1] += c01; C0[j+2] += c02; C0[j+3] += c03;
+            C1[j] += c10; C1[j+1] += c11; C1[j+2] += c12; C1[j+3] += c13;
+            C2[j] += c20; C2[j+1] += c21; C2[j+2] += c22; C2[j+3] += c23;
+            C3[j] += c30; C3[j+1] += c31; C3[j+2] += c32; C3[j+3] += c33;
+            return;
+        }
+
+        //edge of the matrix, only part of the block is used
+        edge[0] = c00; edge[1] = c01; edge[2] = c02; edge[3] = c03;
+        edge[4] = c10; edge[5] = c11; edge[6] = c12; edge[7] = c13;
+        edge[8] = c20; edge[9] = c21; edge[10] = c22; edge[11] = c23;
+        edge[12] = c30; edge[13] = c31; edge[14] = c32; edge[15] = c33;
+        for(int r = 0; r < mr; r++)
+        {
+            double[] C_r = C[i+r];
+            for(int c = 0; c < nr; c++)
+                C_r[j+c] += edge[r*NR+c];
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import jsat.utils.concurrent.LoopChunkRunner;
+
+/**
+ * Runs a loop over a range of indices as recursively split fork-join tasks.
+ * Unlike the latch based methods in
+ * {@link jsat.utils.concurrent.ParallelUtils}, this can be safely called from
+ * inside another task of the same pool, which the recursive decompositions
+ * rely on.
+ *
+ * @author Edward Raff
+ */
+class ParallelRange extends RecursiveAction
+{
+    private static final long serialVersionUID = -1858260587231475236L;
+    /**
+     * Ranges with less work than this are run in the current thread
+     */
+    static final long MIN_TASK_WORK = 1L << 14;
+
+    private final int start, end, grain;
+    private final LoopChunkRunner body;
+
+    private ParallelRange(int start, int end, int grain, LoopChunkRunner body)
+    {
+        this.start = start;
+        this.end = end;
+        this.grain = grain;
+        this.body = body;
+    }
+
+    /**
+     * Calls {@code body} on disjoint chunks that cover [start, end)
+     *
+     * @param pool the pool to use, or {@code null} to run serially
+     * @param start the first index
+     * @param end the index to stop at (exclusive)
+     * @param workPerItem a rough estimate of the cost of one index, used to
+     * decide how finely to split the range
+     * @param body the loop body to run
+     */
+    static void run(ForkJoinPool pool, int start, int end, long workPerItem, LoopChunkRunner body)
+    {
+        if(end <= start)
+            return;
+        int grain = (int) Math.max(1, Math.min(Integer.MAX_VALUE, MIN_TASK_WORK/Math.max(1, workPerItem)));
+        if(pool == null || end-start <= grain)
+            body.run(start, end);
+        else if(ForkJoinTask.getPool() == pool)
+            new ParallelRange(start, end, grain, body).invoke();
+        else
+            pool.invoke(new ParallelRange(start, end, grain, body));
+    }
+
+    /**
+     * Runs the two given tasks, in parallel if a pool is given
+     *
+     * @param pool the pool to use, or {@code null} to run serially
+     * @param a the first task
+     * @param b the second task
+     */
+    static void both(ForkJoinPool pool, Runnable a, Runnable b)
+    {
+        if(pool == null)
+        {
+            a.run();
+            b.run();
+        }
+        else
+        {
+            RecursiveAction task = new RecursiveAction()
+            {
+                private static final long serialVersionUID = 5349406201374658447L;
+
+                @Override
+                protected void compute()
+                {
+                    invokeAll(adapt(a), adapt(b));
+                }
+            };
+            if(ForkJoinTask.getPool() == pool)
+                task.invoke();
+            else
+                pool.invoke(task);
+        }
+    }
+
+    @Override
+    protected void compute()
+    {
+        if(end-start <= grain)
+            body.run(start, end);
+        else
+        {
+            int mid = start + (end-start)/2;
+            invokeAll(new ParallelRange(start, mid, grain, body), new ParallelRange(mid, end, grain, body));
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import jsat.utils.concurrent.ParallelUtils;
+import jsat.utils.random.RandomUtil;
+
+/**
+ * Computes the top-<i>k</i> right singular vectors and singular values of a
+ * matrix <b>A</b><sub>n,d</sub> given as a list of rows, using the randomized
+ * range finder of Halko et al. The rows are only ever accessed through their
+ * non zero values, so sparse inputs are never made dense, and the memory used
+ * is O(<i>d k</i>) no matter how many rows there are. Each
+ * {@link #RandomizedSVD(java.util.List, double[], jsat.linear.Vec, int, int, int, java.util.Random, boolean) power iteration}
+ * is one pass over the rows, and one more pass is used to compute the final
+ * values. <br>
+ * Optionally, each row may be weighted, and the SVD may be computed for the
+ * rows with a center vector subtracted from them, without forming the
+ * centered rows. This makes it simple to compute the principal components of
+ * a data set. <br>
+ * <br>
+ * See: Halko, N., Martinsson, P. G.,&amp;Tropp, J. A. (2011). <i>Finding
+ * Structure with Randomness: Probabilistic Algorithms for Constructing
+ * Approximate Matrix Decompositions</i>. SIAM Review, 53(2), 217–288.
+ * doi:10.1137/090771806
+ *
+ * @author Edward Raff
+ */
+public class RandomizedSVD
+{
+    /**
+     * The k x d matrix of right singular vectors, stored as rows
+     */
+    private Matrix V;
+    private double[] s;
+
+    /**
+     * Computes the top-<i>k</i> right singular vectors of the given rows
+     * using 10 extra samples and 4 power iterations.
+     *
+     * @param X the rows of the matrix to decompose
+     * @param k the number of singular values to compute
+     */
+    public RandomizedSVD(List<? extends Vec> X, int k)
+    {
+        this(X, k, false);
+    }
+
+    /**
+     * Computes the top-<i>k</i> right singular vectors of the given rows
+     * using 10 extra samples and 4 power iterations.
+     *
+     * @param X the rows of the matrix to decompose
+     * @param k the number of singular values to compute
+     * @param parallel {@code true} if the passes over the rows should be done
+     * in parallel
+     */
+    public RandomizedSVD(List<? extends Vec> X, int k, boolean parallel)
+    {
+        this(X, null, null, k, 10, 4, RandomUtil.getRandom(), parallel);
+    }
+
+    /**
+     * Computes the top-<i>k</i> right singular vectors of the matrix
+     * diag(<b>w</b>)<sup>&frac12;</sup> (<b>X</b> - <b>1</b>
+     * <b>c</b><sup>T</sup>)
+     *
+     * @param X the rows of the matrix to decompose
+     * @param weights the weight of each row, or {@code null} to weight every
+     * row by one
+     * @param center the vector to subtract from every row, or {@code null} to
+     * use the rows as given
+     * @param k the number of singular values to compute. This will be reduced
+     * to the minimum dimension of the matrix if it is larger.
+     * @param oversample the number of extra random directions to sample, which
+     * improves the accuracy of the smallest of the <i>k</i> values
+     * @param iterations the number of power iterations to perform, which
+     * improves accuracy when the singular values decay slowly
+     * @param rand the source of randomness
+     * @param parallel {@code true} if the passes over the rows should be done
+     * in parallel
+     */
+    public RandomizedSVD(List<? extends Vec> X, double[] weights, Vec center, int k, int oversample, int iterations, Random rand, boolean parallel)
+    {
+        if(X.isEmpty())
+            throw new ArithmeticException("Can not decompose a matrix with no rows");
+        if(k < 1)
+            throw new IllegalArgumentException("Number of singular values must be positive, not " + k);
+        if(oversample < 0 || iterations < 0)
+            throw new IllegalArgumentException("oversample and iterations must be non negative");
+        final int n = X.size();
+        final int d = X.get(0).length();
+        k = Math.min(k, Math.min(n, d));
+        final int l = Math.min(k + oversample, Math.min(n, d));
+
+        //Q is a d x l basis stored row major, so that row j is contiguous
+        double[] Q = new double[d*l];
+        for(int i = 0; i < Q.length; i++)
+            Q[i] = rand.nextGaussian();
+        orthonormalize(Q, d, l);
+
+        for(int iter = 0; iter < iterations; iter++)
+        {
+            Q = gramProduct(X, weights, center, Q, d, l, parallel);
+            orthonormalize(Q, d, l);
+        }
+
+        //Rayleigh-Ritz: G = Q^T A^T A Q is small, so we can get its eigen vectors directly
+        double[] Z = gramProduct(X, weights, center, Q, d, l, parallel);
+        double[][] G = new double[l][l];
+        for(int j = 0; j < d; j++)
+            for(int a = 0; a < l; a++)
+            {
+                final double q_ja = Q[j*l+a];
+                if(q_ja == 0)
+                    continue;
+                final double[] G_a = G[a];
+                for(int b = 0; b < l; b++)
+                    G_a[b] += q_ja*Z[j*l+b];
+            }
+        for(int a = 0; a < l; a++)//force it to be symmetric
+            for(int b = 0; b < a; b++)
+            {
+                double avg = (G[a][b]+G[b][a])/2;
+                G[a][b] = G[b][a] = avg;
+            }
+
+        EigenValueDecomposition evd = new EigenValueDecomposition(new DenseMatrix(G));
+        evd.sortByEigenValue((Double o1, Double o2) -> -Double.compare(o1, o2));
+        double[] lambda = evd.getRealEigenvalues();
+        Matrix W = evd.getVRaw();
+
+        s = new double[k];
+        for(int i = 0; i < k; i++)
+            s[i] = Math.sqrt(Math.max(lambda[i], 0.0));
+        //V = (Q W)^T, computed one row of Q at a time
+        double[][] W_t = new double[k][l];
+        for(int i = 0; i < k; i++)
+            for(int a = 0; a < l; a++)
+                W_t[i][a] = W.get(a, i);
+        double[][] V_raw = new double[k][d];
+        for(int j = 0; j < d; j++)
+            for(int i = 0; i < k; i++)
+            {
+                final double[] w_i = W_t[i];
+                double v = 0;
+                for(int a = 0; a < l; a++)
+                    v += Q[j*l+a]*w_i[a];
+                V_raw[i][j] = v;
+            }
+        V = new DenseMatrix(V_raw);
+    }
+
+    /**
+     * Computes <b>Z</b> = &Atilde;<sup>T</sup> &Atilde; <b>Q</b>, where
+     * &Atilde; is the weighted and centered version of <b>X</b>, in one pass
+     * over the rows.
+     *
+     * @return the d x l result, stored row major
+     */
+    private static double[] gramProduct(final List<? extends Vec> X, final double[] weights, final Vec center, final double[] Q, final int d, final int l, boolean parallel)
+    {
+        //Q^T c, so that the centering can be applied to the small projections
+        final double[] qc = new double[l];
+        if(center != null)
+            center.forEachNonZero((j, v)->
+            {
+                for(int a = 0; a < l; a++)
+                    qc[a] += v*Q[j*l+a];
+            });
+
+        //each chunk returns its part of X^T y, with the sum of y at the end
+        double[] acc = ParallelUtils.run(parallel, X.size(), (start, end)->
+        {
+            final double[] Z = new double[d*l+l];
+            final double[] y = new double[l];
+            for(int i = start; i < end; i++)
+            {
+                Vec x = X.get(i);
+                Arrays.fill(y, 0.0);
+                x.forEachNonZero((j, v)->
+                {
+                    final int off = j*l;
+                    for(int a = 0; a < l; a++)
+                        y[a] += v*Q[off+a];
+                });
+                final double w = weights == null ? 1.0 : weights[i];
+                for(int a = 0; a < l; a++)
+                {
+                    y[a] = w*(y[a]-qc[a]);
+                    Z[d*l+a] += y[a];
+                }
+                x.forEachNonZero((j, v)->
+                {
+                    final int off = j*l;
+                    for(int a = 0; a < l; a++)
+                        Z[off+a] += v*y[a];
+                });
+            }
+            return Z;
+        }, (a, b)->
+        {
+            for(int i = 0; i < a.length; i++)
+                a[i] += b[i];
+            return a;
+        });
+
+        double[] Z = Arrays.copyOf(acc, d*l);
+        //remove c (sum of y)^T to account for the centering
+        if(center != null)
+            center.forEachNonZero((j, v)->
+            {
+                for(int a = 0; a < l; a++)
+                    Z[j*l+a] -= v*acc[d*l+a];
+            });
+        return Z;
+    }
+
+    /**
+     * Makes the columns of the d x l row major matrix orthonormal in place,
+     * using modified Gram-Schmidt twice for numerical stability. Columns that
+     * are linearly dependent on the previous ones are set to zero.
+     */
+    private static void orthonormalize(double[] Q, int d, int l)
+    {
+        //work on a column major copy so the inner loops are contiguous
+        double[][] cols = new double[l][d];
+        for(int j = 0; j < d; j++)
+            for(int a = 0; a < l; a++)
+                cols[a][j] = Q[j*l+a];
+        for(int a = 0; a < l; a++)
+        {
+            final double[] q_a = cols[a];
+            final double origNorm = Math.sqrt(dot(q_a, q_a));
+            for(int pass = 0; pass < 2; pass++)
+                for(int b = 0; b < a; b++)
+                {
+                    final double[] q_b = cols[b];
+                    final double dot = dot(q_a, q_b);
+                    for(int j = 0; j < d; j++)
+                        q_a[j] -= dot*q_b[j];
+                }
+            final double norm = Math.sqrt(dot(q_a, q_a));
+            final double scale = norm <= 1e-12*origNorm || norm == 0 ? 0.0 : 1/norm;
+            for(int j = 0; j < d; j++)
+                q_a[j] *= scale;
+        }
+        for(int j = 0; j < d; j++)
+            for(int a = 0; a < l; a++)
+                Q[j*l+a] = cols[a][j];
+    }
+
+    private static double dot(double[] a, double[] b)
+    {
+        double sum = 0;
+        for(int i = 0; i < a.length; i++)
+            sum += a[i]*b[i];
+        return sum;
+    }
+
+    /**
+     * Returns the <i>k</i> x <i>d</i> matrix <b>V</b><sup>T</sup> of right
+     * singular vectors, where each row is one singular vector. The rows are in
+     * the same order as the {@link #getSingularValues() singular values}. This
+     * is the transpose of the orientation returned by
+     * {@link SingularValueDecomposition#getV() }.
+     *
+     * @return the transposed matrix of right singular vectors
+     */
+    public Matrix getVt()
+    {
+        return V;
+    }
+
+    /**
+     * Returns the singular values, sorted from largest to smallest.
+     *
+     * @return the array of singular values
+     */
+    public double[] getSingularValues()
+    {
+        return s;
+    }
+}
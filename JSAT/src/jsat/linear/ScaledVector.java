@@ -261,6 +261,13 @@ public class ScaledVector extends Vec
         return base.nnz();
     }
 
+    @Override
+    public void forEachNonZero(NonZeroVisitor visitor)
+    {
+        if(scale != 0)
+            base.forEachNonZero((i, v) -> visitor.visit(i, scale*v));
+    }
+
     @Override
     public Iterator<IndexValue> getNonZeroIterator(int start)
     {
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+/**
+ * Solves the secular equations that come up when merging the sub problems of
+ * the divide and conquer eigen and singular value solvers. For the symmetric
+ * eigen problem, the <i>j</i>'th root &lambda; of <br>
+ * 1 + &sum;<sub>i</sub> w<sub>i</sub> / (d<sub>i</sub> - &lambda;) = 0 <br>
+ * is found, and for the singular value problem the <i>j</i>'th root &sigma; of
+ * <br>
+ * 1 + &sum;<sub>i</sub> w<sub>i</sub> / (d<sub>i</sub><sup>2</sup> -
+ * &sigma;<sup>2</sup>) = 0 <br>
+ * where the <i>d</i> values are strictly increasing and the weights
+ * <i>w</i> are positive. <br>
+ * The root is stored as an offset from its closest pole, so that the
+ * differences <i>d<sub>i</sub> - &lambda;</i> needed for accurate eigen
+ * vectors can be returned without cancellation. The iteration is the "middle
+ * way" of Li, which fits a rational model to the two poles around the root
+ * and falls back to bisection when a step would leave the bracket. <br>
+ * <br>
+ * See: Li, R.-C. (1993). <i>Solving Secular Equations Stably and
+ * Efficiently</i>. LAPACK Working Note 89.
+ *
+ * @author Edward Raff
+ */
+class SecularEquation
+{
+    private static final int MAX_ITERATIONS = 200;
+    private static final double EPS = Math.ulp(1.0);
+
+    private SecularEquation()
+    {
+    }
+
+    /**
+     * Finds the <i>j</i>'th root of the eigen value secular equation
+     *
+     * @param j the index of the root, which lies in (d<sub>j</sub>,
+     * d<sub>j+1</sub>), or in (d<sub>j</sub>, d<sub>j</sub> + &sum; w) for the
+     * last root
+     * @param d the poles, in strictly increasing order
+     * @param w the positive weights
+     * @param delta will be filled with <i>d<sub>i</sub> - &lambda;</i>
+     * @return the root &lambda;
+     */
+    static double eigen(int j, double[] d, double[] w, double[] delta)
+    {
+        return solve(j, d, w, false, delta, null);
+    }
+
+    /**
+     * Finds the <i>j</i>'th root of the singular value secular equation. All
+     * of the poles must be non-negative.
+     *
+     * @param j the index of the root
+     * @param d the poles, in strictly increasing order
+     * @param w the positive weights
+     * @param delta will be filled with <i>d<sub>i</sub> - &sigma;</i>
+     * @param sum will be filled with <i>d<sub>i</sub> + &sigma;</i>
+     * @return the root &sigma;
+     */
+    static double singular(int j, double[] d, double[] w, double[] delta, double[] sum)
+    {
+        return solve(j, d, w, true, delta, sum);
+    }
+
+    private static double solve(final int j, final double[] d, final double[] w, final boolean singular, final double[] delta, final double[] sum)
+    {
+        final int K = d.length;
+        if(K == 1)
+        {
+            //root is d + w or sqrt(d^2 + w), no iteration needed
+            double tau = singular ? w[0]/(d[0] + Math.sqrt(d[0]*d[0]+w[0])) : w[0];
+            delta[0] = -tau;
+            if(singular)
+                sum[0] = 2*d[0]+tau;
+            return d[0]+tau;
+        }
+
+        //pick the pole closest to the root as the origin, and bracket the offset tau from it
+        int o;
+        double lo, hi;
+        if(j == K-1)
+        {
+            double wSum = 0;
+            for(int i = 0; i < K; i++)
+                wSum += w[i];
+            o = j;
+            lo = 0;
+            hi = singular ? wSum/(d[o] + Math.sqrt(d[o]*d[o]+wSum)) : wSum;
+        }
+        else
+        {
+            double half = (d[j+1]-d[j])/2;
+            if(evaluate(j, j, half, d, w, singular, delta, sum, null) >= 0)
+            {
+                o = j;
+                lo = 0;
+                hi = half;
+            }
+            else
+            {
+                o = j+1;
+                lo = -half;
+                hi = 0;
+            }
+        }
+
+        double[] derivs = new double[4];
+        double tau = (lo+hi)/2;
+        for(int iter = 0; iter < MAX_ITERATIONS; iter++)
+        {
+            double f = evaluate(j, o, tau, d, w, singular, delta, sum, derivs);
+            if(f == 0)
+                break;
+            if(f < 0)
+                lo = tau;
+            else
+                hi = tau;
+            final double psi = derivs[0], dpsi = derivs[1], phi = derivs[2], dphi = derivs[3];
+            if(Math.abs(f) <= 8*EPS*(K + Math.abs(psi) + Math.abs(phi)) || hi-lo <= 4*EPS*Math.max(Math.abs(lo), Math.abs(hi)))
+                break;
+
+            //fit f(x) = c + s/(D_j - x) + S/(D_j1 - x) in terms of the change x of the squared (singular) or plain root
+            final double D_j = diff(j, o, d, delta, sum, singular);
+            final double a = D_j*D_j*dpsi;
+            double eta;
+            if(j == K-1)
+            {
+                double c = f - D_j*dpsi;
+                eta = c == 0 ? Double.NaN : D_j + a/c;
+            }
+            else
+            {
+                final double D_j1 = diff(j+1, o, d, delta, sum, singular);
+                final double b = D_j1*D_j1*dphi;
+                final double c = f - D_j*dpsi - D_j1*dphi;
+                final double B = c*(D_j+D_j1) + a + b;
+                final double C = c*D_j*D_j1 + a*D_j1 + b*D_j;
+                if(c == 0)
+                    eta = B == 0 ? Double.NaN : C/B;
+                else
+                {
+                    double disc = B*B - 4*c*C;
+                    if(disc < 0)
+                        eta = Double.NaN;
+                    else
+                    {
+                        double sq = Math.sqrt(disc);
+                        double q = B >= 0 ? B + sq : B - sq;
+                        double eta1 = q/(2*c);
+                        double eta2 = q == 0 ? Double.NaN : 2*C/q;
+                        double tau1 = step(tau, eta1, d[o], singular);
+                        double tau2 = step(tau, eta2, d[o], singular);
+                        boolean ok1 = tau1 > lo && tau1 < hi;
+                        boolean ok2 = tau2 > lo && tau2 < hi;
+                        if(ok1 && ok2)
+                            eta = Math.abs(eta1) < Math.abs(eta2) ? eta1 : eta2;
+                        else
+                            eta = ok1 ? eta1 : eta2;
+                    }
+                }
+            }
+            double tauNew = step(tau, eta, d[o], singular);
+            if(!(tauNew > lo && tauNew < hi))
+                tauNew = (lo+hi)/2;
+            if(tauNew == tau)
+                break;
+            tau = tauNew;
+        }
+        //make sure the differences returned match the final root
+        evaluate(j, o, tau, d, w, singular, delta, sum, null);
+        return d[o]+tau;
+    }
+
+    /**
+     * The difference of the poles and root in the variable the model is fit
+     * in, i.e., d<sub>i</sub><sup>2</sup> - &sigma;<sup>2</sup> for singular
+     * values.
+     */
+    private static double diff(int i, int o, double[] d, double[] delta, double[] sum, boolean singular)
+    {
+        return singular ? delta[i]*sum[i] : delta[i];
+    }
+
+    /**
+     * Converts a step in the model's variable into a new offset from the
+     * origin pole
+     */
+    private static double step(double tau, double eta, double d_o, boolean singular)
+    {
+        if(Double.isNaN(eta))
+            return Double.NaN;
+        if(!singular)
+            return tau + eta;
+        //mu = sigma^2 - d_o^2 = tau (2 d_o + tau)
+        double mu = tau*(2*d_o+tau) + eta;
+        double s2 = d_o*d_o + mu;
+        if(s2 < 0)
+            return Double.NaN;
+        return mu/(d_o + Math.sqrt(s2));
+    }
+
+    /**
+     * Evaluates the secular function at the root d<sub>o</sub> + tau, filling
+     * in the differences to each pole.
+     *
+     * @param derivs if not {@code null}, will be filled with the sum and
+     * derivative of the terms for poles at or below <i>j</i> and then those
+     * above <i>j</i>
+     * @return the value of the secular function
+     */
+    private static double evaluate(int j, int o, double tau, double[] d, double[] w, boolean singular, double[] delta, double[] sum, double[] derivs)
+    {
+        final double d_o = d[o];
+        double psi = 0, dpsi = 0, phi = 0, dphi = 0;
+        for(int i = 0; i < d.length; i++)
+        {
+            double del = (d[i]-d_o) - tau;
+            delta[i] = del;
+            double D = del;
+            if(singular)
+            {
+                double s = (d[i]+d_o) + tau;
+                sum[i] = s;
+                D *= s;
+            }
+            double t = w[i]/D;
+            if(i <= j)
+            {
+                psi += t;
+                dpsi += t/D;
+            }
+            else
+            {
+                phi += t;
+                dphi += t/D;
+            }
+        }
+        if(derivs != null)
+        {
+            derivs[0] = psi;
+            derivs[1] = dpsi;
+            derivs[2] = phi;
+            derivs[3] = dphi;
+        }
+        return 1 + psi + phi;
+    }
+}
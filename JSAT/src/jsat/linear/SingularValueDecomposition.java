@@ -3,6 +3,7 @@ package jsat.linear;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import static java.lang.Math.*;
 import static jsat.linear.RowColumnOps.*;
 
@@ -11,7 +12,13 @@ import static jsat.linear.RowColumnOps.*;
  * where S is the diagonal matrix of the singular values sorted in descending order and are all non negative. 
  * <br> The SVD of a matrix has many practical uses, but is expensive to compute. 
  * <br><br>
- * Implementation adapted from the Public Domain work of <a href="http://math.nist.gov/javanumerics/jama/"> JAMA: A Java Matrix Package</a> 
+ * By default the matrix is reduced to bidiagonal form with blocked Householder 
+ * reflections, and the bidiagonal SVD is computed by divide and conquer. Most of
+ * the work is then done by matrix products that can use multiple cores when 
+ * given an {@link ExecutorService}. 
+ * <br><br>
+ * The QR iteration used by {@link #SingularValueDecomposition(jsat.linear.Matrix, int) }
+ * is adapted from the Public Domain work of <a href="http://math.nist.gov/javanumerics/jama/"> JAMA: A Java Matrix Package</a> 
  * <br>
  * <b>NOTE:</b> The current implementation has been revised and is now passing all test cases. 
  * However, it is still being tested. Use with awareness that it used to be bugged.
@@ -31,16 +38,29 @@ public class SingularValueDecomposition implements Cloneable, Serializable
     
     /**
      * Creates a new SVD of the matrix {@code A} such that A = U &Sigma; V<sup>T</sup>. The matrix 
-     * {@code  A} will be modified and used as temp space when computing the SVD. 
+     * {@code  A} may be modified and used as temp space when computing the SVD. 
      * @param A the matrix to create the SVD of
      */
     public SingularValueDecomposition(Matrix A)
     {
-        this(A, 100);
+        decompose(A, null);
+    }
+    
+    /**
+     * Creates a new SVD of the matrix {@code A} such that A = U &Sigma; V<sup>T</sup>, 
+     * using multiple cores. The matrix {@code  A} may be modified and used as 
+     * temp space when computing the SVD. 
+     * @param A the matrix to create the SVD of
+     * @param threadpool the source of threads for the computation
+     */
+    public SingularValueDecomposition(Matrix A, ExecutorService threadpool)
+    {
+        decompose(A, PackedGEMM.asForkJoin(threadpool));
     }
 
     /**
-     * Creates a new SVD of the matrix {@code A} such that A = U &Sigma; V<sup>T</sup>. The matrix 
+     * Creates a new SVD of the matrix {@code A} such that A = U &Sigma; V<sup>T</sup>, 
+     * using the QR iteration instead of divide and conquer. The matrix 
      * {@code  A} will be modified and used as temp space when computing the SVD. 
      * @param A the matrix to create the SVD of
      * @param maxIterations the maximum number of iterations to perform per singular value till convergence. 
@@ -95,6 +115,54 @@ public class SingularValueDecomposition implements Cloneable, Serializable
         }
     }
     
+    /**
+     * Computes the thin SVD by bidiagonalization and divide and conquer
+     * @param A the matrix to decompose
+     * @param pool the pool to use, or {@code null} to compute serially
+     */
+    private void decompose(Matrix A, ForkJoinPool pool)
+    {
+        //work with the tall version of A so that the bidiagonal matrix is upper
+        final boolean transposedWord = A.rows() < A.cols();
+        final int m = max(A.rows(), A.cols());
+        final int n = min(A.rows(), A.cols());
+        double[][] work = new double[m][n];
+        for (int i = 0; i < A.rows(); i++)
+            for (int j = 0; j < A.cols(); j++)
+                if (transposedWord)
+                    work[j][i] = A.get(i, j);
+                else
+                    work[i][j] = A.get(i, j);
+        
+        s = new double[n];
+        double[] e = new double[max(n - 1, 0)];
+        double[] tauQ = new double[n];
+        double[] tauP = new double[max(n - 1, 0)];
+        HouseholderReduction.bidiagonalize(work, n, s, e, tauQ, tauP, pool);
+        double[][][] UV = BidiagonalSVD.solve(s, e, pool);
+        
+        //rows hold the singular vectors, transform them back to the original space
+        double[][] left = new double[n][];
+        for (int j = 0; j < n; j++)
+            left[j] = Arrays.copyOf(UV[0][j], m);
+        HouseholderReduction.applyReflectors(left, n, m, work, false, 0, tauQ, n, pool);
+        double[][] right = UV[1];
+        HouseholderReduction.applyReflectors(right, n, n, work, true, 1, tauP, n - 1, pool);
+        
+        Matrix UU = new DenseMatrix(new TransposeView(new DenseMatrix(left)));
+        Matrix VV = new DenseMatrix(new TransposeView(new DenseMatrix(right)));
+        if (transposedWord)
+        {
+            U = VV;
+            V = UU;
+        }
+        else
+        {
+            U = UU;
+            V = VV;
+        }
+    }
+    
     /**
      * Sets the values for a SVD explicitly. This is not a copy constructor, and
      * will hold the given values. 
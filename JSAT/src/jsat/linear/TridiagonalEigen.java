@@ -0,0 +1,447 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import jsat.utils.IndexTable;
+
+/**
+ * Computes all the eigen values and eigen vectors of a symmetric tridiagonal
+ * matrix with Cuppen's divide and conquer algorithm. The matrix is split in
+ * half by a rank one tear, the two halves are solved recursively (and in
+ * parallel), and the results are merged by solving a
+ * {@link SecularEquation secular equation} for each eigen value. The merge
+ * follows Gu and Eisenstat, recomputing the rank one vector from the computed
+ * eigen values so that the eigen vectors stay orthogonal, and deflating
+ * values that are already converged so that they cost nothing. The bulk of the
+ * work is then one matrix product per merge. <br>
+ * <br>
+ * Eigen vectors are returned as an array of columns, so that
+ * {@code Q[j]} is the eigen vector for the <i>j</i>'th eigen value. <br>
+ * <br>
+ * See: Gu, M.,&amp;Eisenstat, S. C. (1995). <i>A Divide-and-Conquer
+ * Algorithm for the Symmetric Tridiagonal Eigenproblem</i>. SIAM Journal on
+ * Matrix Analysis and Applications, 16(1), 172–191.
+ *
+ * @author Edward Raff
+ */
+class TridiagonalEigen
+{
+    /**
+     * Problems of this size or smaller are solved directly with the QL
+     * algorithm
+     */
+    static final int LEAF_SIZE = 32;
+    private static final double EPS = Math.ulp(1.0);
+
+    private TridiagonalEigen()
+    {
+    }
+
+    /**
+     * Computes the eigen decomposition of the symmetric tridiagonal matrix
+     * with diagonal {@code d} and off diagonal {@code e}.
+     *
+     * @param d the diagonal values, which will be replaced by the eigen values
+     * in ascending order
+     * @param e the {@code d.length-1} off diagonal values, where
+     * {@code e[i]} is at (i, i+1). This array will be altered.
+     * @param pool the pool to use, or {@code null} to compute serially
+     * @return the eigen vectors, stored as columns
+     */
+    static double[][] solve(double[] d, double[] e, ForkJoinPool pool)
+    {
+        final int n = d.length;
+        double scale = 0;
+        for(double v : d)
+            scale = Math.max(scale, Math.abs(v));
+        for(int i = 0; i < n-1; i++)
+            scale = Math.max(scale, Math.abs(e[i]));
+        if(scale == 0)
+        {
+            double[][] Q = new double[n][n];
+            for(int i = 0; i < n; i++)
+                Q[i][i] = 1;
+            return Q;
+        }
+        for(int i = 0; i < n; i++)
+            d[i] /= scale;
+        for(int i = 0; i < n-1; i++)
+            e[i] /= scale;
+
+        //split into independent blocks wherever an off diagonal is negligible
+        double[][] Q = new double[n][];
+        int blocks = 0;
+        int start = 0;
+        for(int i = 0; i < n; i++)
+        {
+            if(i < n-1 && Math.abs(e[i]) > EPS*Math.sqrt(Math.abs(d[i]))*Math.sqrt(Math.abs(d[i+1])))
+                continue;
+            final int len = i+1-start;
+            double[][] Q_b = solve(d, e, start, len, pool);
+            if(len == n)
+                Q = Q_b;
+            else
+                for(int j = 0; j < len; j++)
+                {
+                    Q[start+j] = new double[n];
+                    System.arraycopy(Q_b[j], 0, Q[start+j], start, len);
+                }
+            blocks++;
+            start = i+1;
+        }
+
+        if(blocks > 1)//the blocks are each sorted, but not with respect to each other
+        {
+            IndexTable order = new IndexTable(d);
+            double[] vals = d.clone();
+            double[][] cols = Q.clone();
+            for(int i = 0; i < n; i++)
+            {
+                d[i] = vals[order.index(i)];
+                Q[i] = cols[order.index(i)];
+            }
+        }
+
+        for(int i = 0; i < n; i++)
+            d[i] *= scale;
+        return Q;
+    }
+
+    private static double[][] solve(final double[] d, final double[] e, final int off, final int n, final ForkJoinPool pool)
+    {
+        if(n <= LEAF_SIZE)
+            return ql(d, e, off, n);
+
+        final int m = n/2;
+        final double beta = e[off+m-1];
+        final double rho = Math.abs(beta);
+        d[off+m-1] -= rho;
+        d[off+m] -= rho;
+
+        final double[][][] halves = new double[2][][];
+        ParallelRange.both(n*n >= ParallelRange.MIN_TASK_WORK ? pool : null,
+                () -> halves[0] = solve(d, e, off, m, pool),
+                () -> halves[1] = solve(d, e, off+m, n-m, pool));
+        final double[][] Q1 = halves[0], Q2 = halves[1];
+
+        //rank one vector z = [last row of Q1; sign(beta) first row of Q2] / sqrt(2), with rho doubled to compensate
+        final double[] z = new double[n];
+        final double sign = beta < 0 ? -1 : 1;
+        final double invSqrt2 = 1/Math.sqrt(2);
+        for(int j = 0; j < m; j++)
+            z[j] = Q1[j][m-1]*invSqrt2;
+        for(int j = m; j < n; j++)
+            z[j] = sign*Q2[j-m][0]*invSqrt2;
+
+        //block diagonal basis, as columns
+        final double[][] basis = new double[n][];
+        for(int j = 0; j < m; j++)
+        {
+            basis[j] = new double[n];
+            System.arraycopy(Q1[j], 0, basis[j], 0, m);
+        }
+        for(int j = m; j < n; j++)
+        {
+            basis[j] = new double[n];
+            System.arraycopy(Q2[j-m], 0, basis[j], m, n-m);
+        }
+
+        return merge(d, off, n, m, z, 2*rho, basis, pool);
+    }
+
+    /**
+     * Computes the eigen decomposition of diag(D) + &rho; z z<sup>T</sup>,
+     * where the D values are in {@code d[off:off+n]} and are replaced by the
+     * new eigen values.
+     *
+     * @param m the basis columns before this index are only non zero in the
+     * first {@code m} rows, and the others only in the remaining rows
+     * @param basis the columns the rank one problem is expressed in. These
+     * may be altered.
+     * @return the eigen vectors as columns, in terms of the standard basis
+     */
+    private static double[][] merge(final double[] d, final int off, final int n, final int m, final double[] z, final double rho, final double[][] basis, final ForkJoinPool pool)
+    {
+        //which rows each basis column may be non zero in: 1 for the top, 2 for the bottom, 3 for both
+        final int[] rows = new int[n];
+        for(int j = 0; j < n; j++)
+            rows[j] = j < m ? 1 : 2;
+
+        final double[] D = Arrays.copyOfRange(d, off, off+n);
+        IndexTable it = new IndexTable(D);
+
+        double dMax = 0, zMax = 0;
+        for(int i = 0; i < n; i++)
+        {
+            dMax = Math.max(dMax, Math.abs(D[i]));
+            zMax = Math.max(zMax, Math.abs(z[i]));
+        }
+        final double tol = 8*EPS*Math.max(dMax, zMax);
+
+        //deflation, in order of increasing D
+        final boolean[] deflated = new boolean[n];
+        int[] kept = new int[n];
+        int K = 0;
+        if(rho*zMax <= tol)
+            Arrays.fill(deflated, true);
+        else
+        {
+            int prev = -1;
+            for(int pos = 0; pos < n; pos++)
+            {
+                final int i = it.index(pos);
+                if(rho*Math.abs(z[i]) <= tol)
+                {
+                    deflated[i] = true;
+                    continue;
+                }
+                if(prev >= 0)
+                {
+                    //rotate z[prev] into z[i], deflating prev if the two values are close enough
+                    final double s = z[prev], c = z[i];
+                    final double tau = Math.hypot(c, s);
+                    final double cn = c/tau, sn = s/tau;
+                    final double t = D[i]-D[prev];
+                    if(Math.abs(t*cn*sn) <= tol)
+                    {
+                        z[i] = tau;
+                        z[prev] = 0;
+                        final double[] b_p = basis[prev], b_i = basis[i];
+                        for(int r = 0; r < n; r++)
+                        {
+                            double bp = b_p[r], bi = b_i[r];
+                            b_p[r] = cn*bp - sn*bi;
+                            b_i[r] = sn*bp + cn*bi;
+                        }
+                        final double dp = D[prev], di = D[i];
+                        D[prev] = dp*cn*cn + di*sn*sn;
+                        D[i] = dp*sn*sn + di*cn*cn;
+                        rows[prev] = rows[i] = rows[prev] | rows[i];
+                        deflated[prev] = true;
+                        K--;
+                    }
+                }
+                kept[K++] = i;
+                prev = i;
+            }
+        }
+
+        //the kept values are still in increasing order, gather them up for the secular equation
+        final int Kf = K;
+        final double[] dk = new double[Kf];
+        final double[] zk = new double[Kf];
+        final double[] w = new double[Kf];
+        for(int a = 0; a < Kf; a++)
+        {
+            dk[a] = D[kept[a]];
+            zk[a] = z[kept[a]];
+            w[a] = rho*zk[a]*zk[a];
+        }
+
+        //roots, and delta[j][i] = dk[i] - lambda_j
+        final double[] lambda = new double[Kf];
+        final double[][] delta = new double[Kf][];
+        ParallelRange.run(pool, 0, Kf, 8L*Kf, (start, end) ->
+        {
+            for(int j = start; j < end; j++)
+            {
+                delta[j] = new double[Kf];
+                lambda[j] = SecularEquation.eigen(j, dk, w, delta[j]);
+            }
+        });
+
+        //recompute z from the roots (Lowner's theorem), so the vectors are orthogonal
+        final double[] zHat = new double[Kf];
+        ParallelRange.run(pool, 0, Kf, Kf, (start, end) ->
+        {
+            for(int i = start; i < end; i++)
+            {
+                double prod = -delta[i][i]/rho;
+                for(int j = 0; j < Kf; j++)
+                    if(j != i)
+                        prod *= delta[j][i]/(dk[i]-dk[j]);
+                zHat[i] = Math.copySign(Math.sqrt(Math.abs(prod)), zk[i]);
+            }
+        });
+
+        //eigen vectors of the rank one problem, one per row
+        final double[][] U = new double[Kf][Kf];
+        ParallelRange.run(pool, 0, Kf, 2L*Kf, (start, end) ->
+        {
+            for(int j = start; j < end; j++)
+            {
+                final double[] u = U[j];
+                final double[] del = delta[j];
+                double norm = 0;
+                for(int i = 0; i < Kf; i++)
+                {
+                    u[i] = zHat[i]/del[i];
+                    norm += u[i]*u[i];
+                }
+                norm = 1/Math.sqrt(norm);
+                for(int i = 0; i < Kf; i++)
+                    u[i] *= norm;
+            }
+        });
+
+        //rotate the kept basis columns by U, skipping the half of the rows that are zero for most columns
+        final double[][] newCols = new double[Kf][n];
+        for(int half = 1; half <= 2; half++)
+        {
+            int count = 0;
+            for(int a = 0; a < Kf; a++)
+                if((rows[kept[a]] & half) != 0)
+                    count++;
+            final double[][] U_sub = new double[Kf][count];
+            final double[][] basis_sub = new double[count][];
+            for(int a = 0, c = 0; a < Kf; a++)
+                if((rows[kept[a]] & half) != 0)
+                {
+                    for(int j = 0; j < Kf; j++)
+                        U_sub[j][c] = U[j][a];
+                    basis_sub[c++] = basis[kept[a]];
+                }
+            if(half == 1)
+                PackedGEMM.gemm(U_sub, false, basis_sub, false, newCols, 0, Kf, 0, m, 0, count, pool);
+            else
+                PackedGEMM.gemm(U_sub, false, basis_sub, false, newCols, 0, Kf, m, n, 0, count, pool);
+        }
+
+        //combine with the deflated columns, in ascending order
+        final double[] vals = new double[n];
+        final double[][] cols = new double[n][];
+        int pos = 0;
+        for(int i = 0; i < n; i++)
+            if(deflated[i])
+            {
+                vals[pos] = D[i];
+                cols[pos++] = basis[i];
+            }
+        for(int a = 0; a < Kf; a++)
+        {
+            vals[pos] = lambda[a];
+            cols[pos++] = newCols[a];
+        }
+        IndexTable order = new IndexTable(vals);
+        final double[][] Q = new double[n][];
+        for(int i = 0; i < n; i++)
+        {
+            d[off+i] = vals[order.index(i)];
+            Q[i] = cols[order.index(i)];
+        }
+        return Q;
+    }
+
+    /**
+     * Solves a small problem with the implicit QL algorithm, adapted from the
+     * JAMA tql2 routine.
+     */
+    private static double[][] ql(double[] dAll, double[] eAll, int off, int n)
+    {
+        double[] d = Arrays.copyOfRange(dAll, off, off+n);
+        double[] e = new double[n];
+        System.arraycopy(eAll, off, e, 0, n-1);
+        double[][] Q = new double[n][n];
+        for(int i = 0; i < n; i++)
+            Q[i][i] = 1;
+
+        double f = 0.0;
+        double tst1 = 0.0;
+        for (int l = 0; l < n; l++)
+        {
+            // Find small subdiagonal element
+            tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n)
+            {
+                if (Math.abs(e[m]) <= EPS * tst1)
+                    break;
+                m++;
+            }
+
+            // If m == l, d[l] is an eigenvalue, otherwise, iterate.
+            if (m > l)
+            {
+                do
+                {
+                    // Compute implicit shift
+                    double g = d[l];
+                    double p = (d[l + 1] - g) / (2.0 * e[l]);
+                    double r = Math.hypot(p, 1.0);
+                    if (p < 0)
+                        r = -r;
+                    d[l] = e[l] / (p + r);
+                    d[l + 1] = e[l] * (p + r);
+                    double dl1 = d[l + 1];
+                    double h = g - d[l];
+                    for (int i = l + 2; i < n; i++)
+                        d[i] -= h;
+                    f = f + h;
+
+                    // Implicit QL transformation.
+                    p = d[m];
+                    double c = 1.0;
+                    double c2 = c;
+                    double c3 = c;
+                    double el1 = e[l + 1];
+                    double s = 0.0;
+                    double s2 = 0.0;
+                    for (int i = m - 1; i >= l; i--)
+                    {
+                        c3 = c2;
+                        c2 = c;
+                        s2 = s;
+                        g = c * e[i];
+                        h = c * p;
+                        r = Math.hypot(p, e[i]);
+                        e[i + 1] = s * r;
+                        s = e[i] / r;
+                        c = p / r;
+                        p = c * d[i] - s * g;
+                        d[i + 1] = h + s * (c * g + s * d[i]);
+
+                        // Accumulate transformation on columns i and i+1
+                        final double[] q_i = Q[i], q_i1 = Q[i+1];
+                        for (int k = 0; k < n; k++)
+                        {
+                            double z = q_i1[k];
+                            q_i1[k] = c * z + s * q_i[k];
+                            q_i[k] = c * q_i[k] - s * z;
+                        }
+                    }
+                    p = -s * s2 * c3 * el1 * e[l] / dl1;
+                    e[l] = s * p;
+                    d[l] = c * p;
+                }
+                while (Math.abs(e[l]) > EPS * tst1);
+            }
+            d[l] = d[l] + f;
+            e[l] = 0.0;
+        }
+
+        IndexTable order = new IndexTable(d);
+        double[][] sorted = new double[n][];
+        for(int i = 0; i < n; i++)
+        {
+            dAll[off+i] = d[order.index(i)];
+            sorted[i] = Q[order.index(i)];
+        }
+        return sorted;
+    }
+}
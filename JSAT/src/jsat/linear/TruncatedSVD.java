@@ -6,7 +6,10 @@ package jsat.linear;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.Math.nextUp;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 /**
  * Computes the Truncated version of the Singular Value Decomposition (SVD).
@@ -17,7 +20,10 @@ import java.util.Arrays;
  * SVD using {@link SingularValueDecomposition}, as only the top-<i>k</i>
  * singular values and associated data will be computed. This implementation
  * also
- * supports sparse inputs.
+ * supports sparse inputs. <br>
+ * A {@link #TruncatedSVD(jsat.linear.Matrix, int, java.util.Random) randomized}
+ * version is also available, which uses {@link RandomizedSVD} and is much
+ * faster when <i>k</i> is large or the matrix has many rows.
  *
  * @author Edward Raff
  */
@@ -79,6 +85,33 @@ public class TruncatedSVD
         
     }
     
+    /**
+     * Creates a new SVD of the matrix {@code A} such that A &asymp; U &Sigma;
+     * V<sup>T</sup> using the randomized algorithm of {@link RandomizedSVD}.
+     * The matrix {@code A} is not altered, and sparse matrices will not be
+     * made dense.
+     *
+     * @param A the matrix to create the SVD of
+     * @param k the number of singular values to compute
+     * @param rand the source of randomness
+     */
+    public TruncatedSVD(Matrix A, int k, Random rand)
+    {
+        List<Vec> rows = new ArrayList<>(A.rows());
+        for(int i = 0; i < A.rows(); i++)
+            rows.add(A.getRowView(i));
+        RandomizedSVD rsvd = new RandomizedSVD(rows, null, null, k, 10, 4, rand, false);
+        V = rsvd.getVt();
+        s = rsvd.getSingularValues();
+        DenseVector invertS = new DenseVector(s.length);
+        for(int i = 0; i < s.length; i++)
+            if(s[i] != 0)//else, numerical issue
+                invertS.set(i, 1/s[i]);
+        //U = A V^T diag(1/s)
+        U = A.multiplyTranspose(V);
+        Matrix.diagMult(U, invertS);
+    }
+    
     private int sLength()
     {
         return min(U.rows(), V.rows());
@@ -1003,6 +1003,24 @@ public abstract class Vec implements Cloneable, Iterable<IndexValue>, Serializab
         return getNonZeroIterator(0);
     }
     
+    /**
+     * Calls the visitor with each non zero value in this vector, in increasing
+     * order of index. Unlike {@link #getNonZeroIterator() }, no 
+     * {@link IndexValue} objects need to be created, and implementations can
+     * traverse their storage directly. 
+     * 
+     * @param visitor the visitor to give each non zero index and value to
+     */
+    public void forEachNonZero(NonZeroVisitor visitor)
+    {
+        Iterator<IndexValue> iter = getNonZeroIterator();
+        while(iter.hasNext())
+        {
+            IndexValue iv = iter.next();
+            visitor.visit(iv.getIndex(), iv.getValue());
+        }
+    }
+    
     /**
      * Returns an iterator that will go over the non zero values in the given 
      * vector. The iterator does not support the {@link Iterator#remove() }
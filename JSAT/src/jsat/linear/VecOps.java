@@ -1,6 +1,7 @@
 
 package jsat.linear;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import jsat.math.Function;
 import jsat.math.Function1D;
@@ -147,4 +148,351 @@ public class VecOps
         
         return sum;
     }
+    
+    /**
+     * Computes the dot product between two vectors. When both vectors are 
+     * {@link SparseVector sparse} or {@link DenseVector dense}, specialized 
+     * kernels read their index and value arrays directly. Otherwise, this 
+     * falls back to {@link Vec#dot(jsat.linear.Vec) }. 
+     * 
+     * @param a the first vector
+     * @param b the second vector
+     * @return the dot product of the two vectors
+     */
+    public static double dot(Vec a, Vec b)
+    {
+        if(a instanceof SparseVector)
+        {
+            if(b instanceof SparseVector)
+                return dot((SparseVector) a, (SparseVector) b);
+            else if(b instanceof DenseVector)
+                return dot((SparseVector) a, (DenseVector) b);
+        }
+        else if(a instanceof DenseVector)
+        {
+            if(b instanceof SparseVector)
+                return dot((SparseVector) b, (DenseVector) a);
+            else if(b instanceof DenseVector)
+                return dot((DenseVector) a, (DenseVector) b);
+        }
+        return a.dot(b);
+    }
+    
+    /**
+     * Computes the squared Euclidean distance between two vectors. When both
+     * vectors are {@link SparseVector sparse} or {@link DenseVector dense}, 
+     * specialized kernels read their index and value arrays directly.
+     * 
+     * @param a the first vector
+     * @param b the second vector
+     * @return the squared Euclidean distance between the two vectors
+     */
+    public static double distanceSquared(Vec a, Vec b)
+    {
+        if(a.length() != b.length())
+            throw new ArithmeticException("Vectors must be of the same length");
+        if(a instanceof SparseVector)
+        {
+            if(b instanceof SparseVector)
+                return distanceSquared((SparseVector) a, (SparseVector) b);
+            else if(b instanceof DenseVector)
+                return distanceSquared((SparseVector) a, (DenseVector) b);
+        }
+        else if(a instanceof DenseVector)
+        {
+            if(b instanceof SparseVector)
+                return distanceSquared((SparseVector) b, (DenseVector) a);
+            else if(b instanceof DenseVector)
+                return distanceSquared((DenseVector) a, (DenseVector) b);
+        }
+        double d = a.pNormDist(2, b);
+        return d*d;
+    }
+    
+    /**
+     * Computes the cosine similarity between two vectors. 
+     * 
+     * @param a the first vector
+     * @param b the second vector
+     * @return the cosine similarity in [-1, 1], or zero if either vector is 
+     * all zeros
+     */
+    public static double cosine(Vec a, Vec b)
+    {
+        double denom = a.pNorm(2) * b.pNorm(2);
+        if(denom == 0)
+            return 0;
+        return dot(a, b)/denom;
+    }
+    
+    /**
+     * Performs the update <b>y</b> = <b>y</b> + c <b>x</b>. When both vectors
+     * are {@link SparseVector sparse} or {@link DenseVector dense}, specialized 
+     * kernels read their index and value arrays directly. When both are 
+     * sparse, the storage of <b>y</b> is grown at most once. Otherwise, this 
+     * falls back to {@link Vec#mutableAdd(double, jsat.linear.Vec) }. 
+     * 
+     * @param c the scalar constant to multiply <b>x</b> by
+     * @param x the vector to add to <b>y</b>
+     * @param y the vector to be altered
+     */
+    public static void axpy(double c, Vec x, Vec y)
+    {
+        if(c == 0)
+            return;
+        if(y instanceof DenseVector)
+        {
+            if(x instanceof SparseVector)
+            {
+                axpy(c, (SparseVector) x, (DenseVector) y);
+                return;
+            }
+            else if(x instanceof DenseVector)
+            {
+                axpy(c, (DenseVector) x, (DenseVector) y);
+                return;
+            }
+        }
+        else if(y instanceof SparseVector && x instanceof SparseVector)
+        {
+            axpy(c, (SparseVector) x, (SparseVector) y);
+            return;
+        }
+        y.mutableAdd(c, x);
+    }
+    
+    /**
+     * Sparse vectors whose number of non zeros differ by more than this factor
+     * are merged by searching for the indices of the smaller in the larger, 
+     * rather than walking both. 
+     */
+    private static final int GALLOP_RATIO = 16;
+    
+    static double dot(SparseVector a, SparseVector b)
+    {
+        if(a.used > b.used)
+        {
+            SparseVector tmp = a;
+            a = b;
+            b = tmp;
+        }
+        final int[] aIdx = a.indexes, bIdx = b.indexes;
+        final double[] aVal = a.values, bVal = b.values;
+        final int aUsed = a.used, bUsed = b.used;
+        double dot = 0;
+        if(aUsed*GALLOP_RATIO < bUsed)
+        {
+            int p2 = 0;
+            for(int p1 = 0; p1 < aUsed && p2 < bUsed; p1++)
+            {
+                int pos = Arrays.binarySearch(bIdx, p2, bUsed, aIdx[p1]);
+                if(pos >= 0)
+                {
+                    dot += aVal[p1]*bVal[pos];
+                    p2 = pos+1;
+                }
+                else
+                    p2 = -pos-1;
+            }
+            return dot;
+        }
+        
+        int p1 = 0, p2 = 0;
+        while (p1 < aUsed && p2 < bUsed)
+        {
+            int a1 = aIdx[p1], a2 = bIdx[p2];
+            if (a1 == a2)
+                dot += aVal[p1++] * bVal[p2++];
+            else if (a1 > a2)
+                p2++;
+            else
+                p1++;
+        }
+        return dot;
+    }
+    
+    static double dot(SparseVector a, DenseVector b)
+    {
+        final int[] aIdx = a.indexes;
+        if(a.used > 0 && aIdx[a.used-1] >= b.length())
+            throw new IndexOutOfBoundsException(aIdx[a.used-1] + " does not fit in [0," + b.length() + ")");
+        final double[] aVal = a.values;
+        final double[] bArray = b.array;
+        final int offset = b.startIndex;
+        double dot = 0;
+        for(int i = 0; i < a.used; i++)
+            dot += aVal[i] * bArray[offset+aIdx[i]];
+        return dot;
+    }
+    
+    static double dot(DenseVector a, DenseVector b)
+    {
+        if(a.length() != b.length())
+            throw new ArithmeticException("Vectors must have the same length");
+        final double[] aArray = a.array, bArray = b.array;
+        final int aOff = a.startIndex, bOff = b.startIndex;
+        final int n = a.endIndex-a.startIndex;
+        double dot = 0;
+        for(int i = 0; i < n; i++)
+            dot += aArray[aOff+i]*bArray[bOff+i];
+        return dot;
+    }
+    
+    static double distanceSquared(SparseVector a, SparseVector b)
+    {
+        final int[] aIdx = a.indexes, bIdx = b.indexes;
+        final double[] aVal = a.values, bVal = b.values;
+        final int aUsed = a.used, bUsed = b.used;
+        double dist = 0;
+        int p1 = 0, p2 = 0;
+        while (p1 < aUsed && p2 < bUsed)
+        {
+            int a1 = aIdx[p1], a2 = bIdx[p2];
+            double d;
+            if (a1 == a2)
+                d = aVal[p1++] - bVal[p2++];
+            else if (a1 > a2)
+                d = bVal[p2++];
+            else
+                d = aVal[p1++];
+            dist += d*d;
+        }
+        //One of them is now empty, so just sum up the rest
+        for(; p1 < aUsed; p1++)
+            dist += aVal[p1]*aVal[p1];
+        for(; p2 < bUsed; p2++)
+            dist += bVal[p2]*bVal[p2];
+        return dist;
+    }
+    
+    static double distanceSquared(SparseVector a, DenseVector b)
+    {
+        final int[] aIdx = a.indexes;
+        final double[] aVal = a.values;
+        final double[] bArray = b.array;
+        final int offset = b.startIndex;
+        final int n = b.endIndex-b.startIndex;
+        double dist = 0;
+        int i = 0;
+        for(int p = 0; p < a.used; p++)
+        {
+            final int indx = aIdx[p];
+            for(; i < indx; i++)//b values where a is zero
+                dist += bArray[offset+i]*bArray[offset+i];
+            double d = aVal[p]-bArray[offset+indx];
+            dist += d*d;
+            i = indx+1;
+        }
+        for(; i < n; i++)
+            dist += bArray[offset+i]*bArray[offset+i];
+        return dist;
+    }
+    
+    static double distanceSquared(DenseVector a, DenseVector b)
+    {
+        final double[] aArray = a.array, bArray = b.array;
+        final int aOff = a.startIndex, bOff = b.startIndex;
+        final int n = a.endIndex-a.startIndex;
+        double dist = 0;
+        for(int i = 0; i < n; i++)
+        {
+            double d = aArray[aOff+i]-bArray[bOff+i];
+            dist += d*d;
+        }
+        return dist;
+    }
+    
+    static void axpy(double c, SparseVector x, DenseVector y)
+    {
+        if(x.length() != y.length())
+            throw new ArithmeticException("Can not add vectors of unequal length");
+        final int[] xIdx = x.indexes;
+        final double[] xVal = x.values;
+        final double[] yArray = y.array;
+        final int offset = y.startIndex;
+        for(int i = 0; i < x.used; i++)
+            yArray[offset+xIdx[i]] += c*xVal[i];
+    }
+    
+    static void axpy(double c, DenseVector x, DenseVector y)
+    {
+        if(x.length() != y.length())
+            throw new ArithmeticException("Can not add vectors of unequal length");
+        final double[] xArray = x.array, yArray = y.array;
+        final int xOff = x.startIndex, yOff = y.startIndex;
+        final int n = x.endIndex-x.startIndex;
+        for(int i = 0; i < n; i++)
+            yArray[yOff+i] += c*xArray[xOff+i];
+    }
+    
+    static void axpy(double c, SparseVector x, SparseVector y)
+    {
+        final int[] xIdx = x.indexes;
+        final double[] xVal = x.values;
+        final int xUsed = x.used, yUsed = y.used;
+        if(xUsed > 0 && xIdx[xUsed-1] >= y.length())
+            throw new IndexOutOfBoundsException(xIdx[xUsed-1] + " does not fit in [0," + y.length() + ")");
+        //first pass, count how many indices of x are not in y
+        int newValues = 0;
+        int p1 = 0, p2 = 0;
+        while (p1 < xUsed)
+        {
+            if(p2 >= yUsed || xIdx[p1] < y.indexes[p2])
+            {
+                newValues++;
+                p1++;
+            }
+            else if(xIdx[p1] == y.indexes[p2])
+            {
+                p1++;
+                p2++;
+            }
+            else
+                p2++;
+        }
+        
+        if(newValues == 0)//every index is present, update in place
+        {
+            p2 = 0;
+            for(p1 = 0; p1 < xUsed; p1++)
+            {
+                while(y.indexes[p2] < xIdx[p1])
+                    p2++;
+                y.values[p2] += c*xVal[p1];
+            }
+            return;
+        }
+        
+        final int total = yUsed+newValues;
+        if(y.indexes.length < total)
+        {
+            int newSize = Math.max(total, y.indexes.length*3/2);
+            y.indexes = Arrays.copyOf(y.indexes, newSize);
+            y.values = Arrays.copyOf(y.values, newSize);
+        }
+        final int[] yIdx = y.indexes;
+        final double[] yVal = y.values;
+        //merge from the back, so that no value is overwritten before it is moved
+        p1 = xUsed-1;
+        p2 = yUsed-1;
+        for(int pos = total-1; pos >= 0 && p1 >= 0; pos--)
+        {
+            if(p2 >= 0 && yIdx[p2] > xIdx[p1])
+            {
+                yIdx[pos] = yIdx[p2];
+                yVal[pos] = yVal[p2--];
+            }
+            else if(p2 >= 0 && yIdx[p2] == xIdx[p1])
+            {
+                yIdx[pos] = yIdx[p2];
+                yVal[pos] = yVal[p2--] + c*xVal[p1--];
+            }
+            else
+            {
+                yIdx[pos] = xIdx[p1];
+                yVal[pos] = c*xVal[p1--];
+            }
+        }
+        y.used = total;
+    }
 }
@@ -7,6 +7,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jsat.linear.Vec;
+import jsat.linear.VecOps;
 import jsat.utils.DoubleList;
 import jsat.utils.FakeExecutor;
 import jsat.utils.SystemInfo;
@@ -43,7 +44,7 @@ public class CosineDistance implements DistanceMetric
         double denom = a.pNorm(2) * b.pNorm(2);
         if(denom == 0)
             return cosineToDistance(-1);
-        return cosineToDistance(Math.min(a.dot(b) / denom, 1));
+        return cosineToDistance(Math.min(VecOps.dot(a, b) / denom, 1));
     }
 
     @Override
@@ -107,10 +108,10 @@ public class CosineDistance implements DistanceMetric
         if(cache == null)
             return dist(vecs.get(a), vecs.get(b));
         
-        double denom = cache.get(a)*cache.get(b);
+        double denom = DoubleList.getD(cache, a)*DoubleList.getD(cache, b);
         if(denom == 0)
             return cosineToDistance(-1);
-        return cosineToDistance(Math.min(vecs.get(a).dot(vecs.get(b)) / denom, 1));
+        return cosineToDistance(Math.min(VecOps.dot(vecs.get(a), vecs.get(b)) / denom, 1));
     }
 
     @Override
@@ -119,10 +120,10 @@ public class CosineDistance implements DistanceMetric
         if(cache == null)
             return dist(vecs.get(a), b);
         
-        double denom = cache.get(a)*b.pNorm(2);
+        double denom = DoubleList.getD(cache, a)*b.pNorm(2);
         if(denom == 0)
             return cosineToDistance(-1);
-        return cosineToDistance(Math.min(vecs.get(a).dot(b) / denom, 1));
+        return cosineToDistance(Math.min(VecOps.dot(vecs.get(a), b) / denom, 1));
     }
 
     @Override
@@ -139,10 +140,10 @@ public class CosineDistance implements DistanceMetric
         if(cache == null)
             return dist(vecs.get(a), b);
         
-        double denom = cache.get(a)*qi.get(0);
+        double denom = DoubleList.getD(cache, a)*DoubleList.getD(qi, 0);
         if(denom == 0)
             return cosineToDistance(-1);
-        return cosineToDistance(Math.min(vecs.get(a).dot(b) / denom, 1));
+        return cosineToDistance(Math.min(VecOps.dot(vecs.get(a), b) / denom, 1));
     }
     
     /**
@@ -5,6 +5,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import jsat.linear.Vec;
+import jsat.utils.DoubleList;
 
 /**
  * A distance metric defines the distance between two points in a metric space. 
@@ -176,7 +177,7 @@ public interface DistanceMetric extends Cloneable, Serializable
 	if(cache_b != null)
 	{
 	    int factor = cache_b.size()/vecs_b.size();
-	    b_qi = cache_b.subList(b*factor, (b+1)*factor);
+	    b_qi = DoubleList.copyOfRange(cache_b, b*factor, (b+1)*factor);
 	}
 	return dist(a, b_vec, b_qi, vecs_a, cache_a);
     }
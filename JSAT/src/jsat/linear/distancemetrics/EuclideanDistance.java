@@ -8,6 +8,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import jsat.linear.IndexValue;
 import jsat.linear.Vec;
+import jsat.linear.VecOps;
 import jsat.utils.DoubleList;
 import jsat.utils.FakeExecutor;
 import jsat.utils.SystemInfo;
@@ -26,7 +27,7 @@ public class EuclideanDistance implements DenseSparseMetric
     @Override
     public double dist(Vec a, Vec b)
     {
-        return a.pNormDist(2, b);
+        return Math.sqrt(VecOps.distanceSquared(a, b));
     }
 
     @Override
@@ -112,7 +113,7 @@ public class EuclideanDistance implements DenseSparseMetric
             for(int i = start; i < end; i++)
             {
                 Vec v = vecs.get(i);
-                cache[i] = v.dot(v);
+                cache[i] = VecOps.dot(v, v);
             }
         });
         return DoubleList.view(cache, vecs.size());
@@ -124,7 +125,7 @@ public class EuclideanDistance implements DenseSparseMetric
         if(cache == null)
             return dist(vecs.get(a), vecs.get(b));
         
-        return Math.sqrt(Math.max(cache.get(a)+cache.get(b)-2*vecs.get(a).dot(vecs.get(b)), 0));//Max incase of numerical issues
+        return Math.sqrt(Math.max(DoubleList.getD(cache, a)+DoubleList.getD(cache, b)-2*VecOps.dot(vecs.get(a), vecs.get(b)), 0));//Max incase of numerical issues
     }
 
     @Override
@@ -133,14 +134,14 @@ public class EuclideanDistance implements DenseSparseMetric
         if(cache == null)
             return dist(vecs.get(a), b);
         
-        return Math.sqrt(Math.max(cache.get(a)+b.dot(b)-2*vecs.get(a).dot(b), 0));//Max incase of numerical issues
+        return Math.sqrt(Math.max(DoubleList.getD(cache, a)+VecOps.dot(b, b)-2*VecOps.dot(vecs.get(a), b), 0));//Max incase of numerical issues
     }
 
     @Override
     public List<Double> getQueryInfo(Vec q)
     {
         DoubleList qi = new DoubleList(1);
-        qi.add(q.dot(q));
+        qi.add(VecOps.dot(q, q));
         return qi;
     }
 
@@ -150,7 +151,7 @@ public class EuclideanDistance implements DenseSparseMetric
         if(cache == null)
             return dist(vecs.get(a), b);
         
-        return Math.sqrt(Math.max(cache.get(a)+qi.get(0)-2*vecs.get(a).dot(b), 0));//Max incase of numerical issues
+        return Math.sqrt(Math.max(DoubleList.getD(cache, a)+DoubleList.getD(qi, 0)-2*VecOps.dot(vecs.get(a), b), 0));//Max incase of numerical issues
     }
     
 }
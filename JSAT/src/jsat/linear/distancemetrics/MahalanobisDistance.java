@@ -92,7 +92,10 @@ public class MahalanobisDistance extends TrainableDistanceMetric
         if(Double.isNaN(det) || Double.isInfinite(det) || Math.abs(det) <= 1e-13)//Bad problem, use the SVD instead
         {
             lup = null;
-            svd = new SingularValueDecomposition(covariance);
+            if(parallel)
+                svd = new SingularValueDecomposition(covariance, ParallelUtils.CACHED_THREAD_POOL);
+            else
+                svd = new SingularValueDecomposition(covariance);
             S = svd.getPseudoInverse();
         }
         else if(parallel)
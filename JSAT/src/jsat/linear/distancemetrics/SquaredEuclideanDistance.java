@@ -6,8 +6,8 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import jsat.linear.SparseVector;
 import jsat.linear.Vec;
+import jsat.linear.VecOps;
 import jsat.utils.DoubleList;
 import jsat.utils.FakeExecutor;
 import jsat.utils.SystemInfo;
@@ -29,24 +29,7 @@ public class SquaredEuclideanDistance implements DistanceMetric
     {
         if (a.length() != b.length())
             throw new ArithmeticException("Length miss match, vectors must have the same length");
-        double d = 0;
-        
-        if( a instanceof SparseVector && b instanceof SparseVector)
-        {
-            //Just square the pNorm for now... not easy code to write, and the sparceness is more important
-            return Math.pow(a.pNormDist(2, b), 2);
-        }
-        else
-        {
-            double tmp;
-            for(int i = 0; i < a.length(); i++)
-            {
-                tmp = a.get(i) - b.get(i);
-                d += tmp*tmp;
-            }
-        }
-        
-        return d;
+        return VecOps.distanceSquared(a, b);
     }
 
     @Override
@@ -101,7 +84,7 @@ public class SquaredEuclideanDistance implements DistanceMetric
             for(int i = start; i < end; i++)
             {
                 Vec v = vecs.get(i);
-                cache[i] = v.dot(v);
+                cache[i] = VecOps.dot(v, v);
             }
         });
         return DoubleList.view(cache, vecs.size());
@@ -113,7 +96,7 @@ public class SquaredEuclideanDistance implements DistanceMetric
         if(cache == null)
             return dist(vecs.get(a), vecs.get(b));
         
-        return (cache.get(a)+cache.get(b)-2*vecs.get(a).dot(vecs.get(b)));
+        return (DoubleList.getD(cache, a)+DoubleList.getD(cache, b)-2*VecOps.dot(vecs.get(a), vecs.get(b)));
     }
 
     @Override
@@ -122,14 +105,14 @@ public class SquaredEuclideanDistance implements DistanceMetric
         if(cache == null)
             return dist(vecs.get(a), b);
         
-        return (cache.get(a)+b.dot(b)-2*vecs.get(a).dot(b));
+        return (DoubleList.getD(cache, a)+VecOps.dot(b, b)-2*VecOps.dot(vecs.get(a), b));
     }
 
     @Override
     public List<Double> getQueryInfo(Vec q)
     {
         DoubleList qi = new DoubleList(1);
-        qi.add(q.dot(q));
+        qi.add(VecOps.dot(q, q));
         return qi;
     }
 
@@ -139,6 +122,6 @@ public class SquaredEuclideanDistance implements DistanceMetric
         if(cache == null)
             return dist(vecs.get(a), b);
         
-        return (cache.get(a)+qi.get(0)-2*vecs.get(a).dot(b));
+        return (DoubleList.getD(cache, a)+DoubleList.getD(qi, 0)-2*VecOps.dot(vecs.get(a), b));
     }
 }
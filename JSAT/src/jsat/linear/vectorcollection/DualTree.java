@@ -27,10 +27,11 @@ import jsat.utils.IndexTable;
 import jsat.utils.IntList;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ForkJoinPool;
+import jsat.utils.concurrent.ExecutionContext;
 import java.util.concurrent.RecursiveAction;
 import java.util.function.BiFunction;
 import jsat.utils.ListUtils;
+import jsat.utils.SystemInfo;
 /**
  *
  * @author Edward Raff
@@ -64,6 +65,41 @@ public interface DualTree<V extends Vec> extends VectorCollection<V>
         }
         DualTree<V> Q = (DualTree<V>) VC;
         
+        List<BoundedSortedList<IndexDistPair>> allPriorities = searchKnn(Q, numNeighbors, parallel);
+        
+        neighbors.clear();
+        distances.clear();
+        for(int i = 0; i < Q.size(); i++)
+        {
+            IntList n = new IntList(numNeighbors);
+            DoubleList d = new DoubleList(numNeighbors);
+            
+            BoundedSortedList<IndexDistPair> knn = allPriorities.get(i);
+            for(int j = 0; j < knn.size(); j++)
+            {
+                IndexDistPair ip = knn.get(j);
+                n.add(ip.getIndex());
+                d.add(ip.getDist());
+            }
+            neighbors.add(n);
+            distances.add(d);
+            
+        }
+        
+    }
+    
+    /**
+     * Performs a dual tree search for the nearest neighbors of every point in
+     * the query tree.
+     *
+     * @param Q the query tree, which may be this tree
+     * @param numNeighbors the number of neighbors to find for each query
+     * @param parallel {@code true} if multiple threads should be used
+     * @return a sorted list of the nearest neighbors in this tree for every
+     * point in the query tree
+     */
+    default public List<BoundedSortedList<IndexDistPair>> searchKnn(DualTree<V> Q, int numNeighbors, boolean parallel)
+    {
         //Mpa each node to a cached value. This is used for recursive bound updates
         Map<IndexNode, Double> query_B_cache = parallel ? new ConcurrentHashMap<>(Q.size()) : new IdentityHashMap<>(Q.size());
         
@@ -130,26 +166,7 @@ public interface DualTree<V extends Vec> extends VectorCollection<V>
         
         traverse(Q, base, score, true, parallel);
         
-        
-        neighbors.clear();
-        distances.clear();
-        for(int i = 0; i < Q.size(); i++)
-        {
-            IntList n = new IntList(numNeighbors);
-            DoubleList d = new DoubleList(numNeighbors);
-            
-            BoundedSortedList<IndexDistPair> knn = allPriorities.get(i);
-            for(int j = 0; j < knn.size(); j++)
-            {
-                IndexDistPair ip = knn.get(j);
-                n.add(ip.getIndex());
-                d.add(ip.getDist());
-            }
-            neighbors.add(n);
-            distances.add(d);
-            
-        }
-        
+        return allPriorities;
     }
 
     default public double computeKnnBound(IndexNode query, int numNeighbors, List<BoundedSortedList<IndexDistPair>> allPriorities, Map<IndexNode, Double> query_B_cache)
@@ -234,7 +251,7 @@ public interface DualTree<V extends Vec> extends VectorCollection<V>
         final List<Double> other_cache = Q.getAccelerationCache();
         
         final int N_r = this.size();
-        final List<Double> wholeCache = this_cache == null ? null : ListUtils.mergedView(this_cache, other_cache);
+        final List<Double> wholeCache = this_cache == null ? null : new DoubleList(ListUtils.mergedView(this_cache, other_cache));
         final List<Vec> allVecs = new ArrayList<>(N_r+Q.size());
         for(int i = 0; i < N_r; i++)
             allVecs.add(this.get(i));
@@ -314,8 +331,9 @@ public interface DualTree<V extends Vec> extends VectorCollection<V>
             Q_root = new SelfAsChildNode<>(Q.getRoot());
         }
         
-        if(parallel)
-            ForkJoinPool.commonPool().invoke(new DualTreeTraversalAction(R_root, Q_root, base, score, improvedTraverse));
+        ExecutionContext context = ExecutionContext.current();
+        if(parallel && context.canFork())
+            context.invoke(new DualTreeTraversalAction(R_root, Q_root, base, score, improvedTraverse, 0.0, 0, DualTreeTraversalAction.maxParallelDepth()));
         else
             dual_depth_first(R_root, Q_root, base, score, improvedTraverse);
     }
@@ -573,6 +591,15 @@ public interface DualTree<V extends Vec> extends VectorCollection<V>
         }
     }
     
+    /**
+     * Parallel version of {@link #dual_depth_first(jsat.linear.vectorcollection.IndexNode, jsat.linear.vectorcollection.IndexNode, jsat.linear.vectorcollection.BaseCaseDT, jsat.linear.vectorcollection.ScoreDT, boolean) }.
+     * Near the root, only the larger node of each pair is split, which keeps
+     * the number of pairs created per level small and the sizes of the pairs
+     * balanced. The resulting pairs are forked so that idle threads may steal
+     * them. Once a pair is deep enough that there are many more tasks than
+     * threads, the rest of its traversal is done serially, which keeps the
+     * best-first order that makes pruning effective.
+     */
     class DualTreeTraversalAction extends RecursiveAction implements Comparable<DualTreeTraversalAction>
     {
         IndexNode n_r;
@@ -581,13 +608,21 @@ public interface DualTree<V extends Vec> extends VectorCollection<V>
         ScoreDT score;
         boolean improvedSearch;
         double priority;
+        /**
+         * The depth of this pair in the traversal
+         */
+        int depth;
+        /**
+         * The depth at which the traversal switches to the serial version
+         */
+        int maxDepth;
 
         public DualTreeTraversalAction(IndexNode n_r, IndexNode n_q, BaseCaseDT base, ScoreDT score, boolean improvedSearch)
         {
-            this(n_r, n_q, base, score, improvedSearch, 0.0);
+            this(n_r, n_q, base, score, improvedSearch, 0.0, 0, maxParallelDepth());
         }
 
-        public DualTreeTraversalAction(IndexNode n_r, IndexNode n_q, BaseCaseDT base, ScoreDT score, boolean improvedSearch, double priority)
+        public DualTreeTraversalAction(IndexNode n_r, IndexNode n_q, BaseCaseDT base, ScoreDT score, boolean improvedSearch, double priority, int depth, int maxDepth)
         {
             this.n_r = n_r;
             this.n_q = n_q;
@@ -595,9 +630,20 @@ public interface DualTree<V extends Vec> extends VectorCollection<V>
             this.score = score;
             this.improvedSearch = improvedSearch;
             this.priority = priority;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
         }
         
-        
+        /**
+         * 
+         * @return the depth at which enough tasks have been created to keep
+         * all cores busy when the work is uneven
+         */
+        static int maxParallelDepth()
+        {
+            //aim for about 64 tasks per core, splitting one node at a time
+            return 6 + (int) ceil(log(SystemInfo.LogicalCores)/log(2));
+        }
 
         @Override
         protected void compute()
@@ -616,87 +662,42 @@ public interface DualTree<V extends Vec> extends VectorCollection<V>
                     return;//Good job! No more work to do
             }
             
-            //Algo 10 in Thesis
+            if(depth >= maxDepth)
+            {
+                dual_depth_first(n_r, n_q, base, score, improvedSearch);
+                return;
+            }
 
             //3: {Perform base cases for points in node combination.}
             for(int i = 0; i < n_r.numPoints(); i++)
                 for(int j = 0; j < n_q.numPoints(); j++)
                     base.base_case(n_r.getPoint(i), n_q.getPoint(j));
 
-            //7: {Assemble list of combinations to recurse into.}
-            //8: q←empty priority queue
-            PriorityQueue<DualTreeTraversalAction> q = new PriorityQueue<>();
-
-            //9: if Nq andNr both have children then
-            if(n_q.hasChildren() && n_r.hasChildren())
-            {
-                //the Algorithm 10 version. Simpler but not as efficent
-                if(!improvedSearch)
-                {
-                    for(int i = 0; i < n_r.numChildren(); i++)
-                        for(int j = 0; j < n_q.numChildren(); j++)
-                        {
-                            IndexNode n_r_i = n_r.getChild(i);
-                            IndexNode n_q_j = n_q.getChild(j);
-
-                            double s = score.score(n_r_i, n_q_j, COMP_SCORE);
-                            if(!Double.isNaN(s))
-                                q.offer(new DualTreeTraversalAction(n_r_i, n_q_j, base, score, improvedSearch, s));
-                        }
-                }
-                else //Below is the Algo 13 version. 
-                {
-                    for(int c = 0; c < n_q.numChildren(); c++)
-                    {
-                        IndexNode n_q_c = n_q.getChild(c);
-                        List<DualTreeTraversalAction> q_qc =new ArrayList<>();
-                        boolean all_scores_same = true;
-                        for(int i = 0; i < n_r.numChildren(); i++)
-                        {
-                            IndexNode n_r_i = n_r.getChild(i);
-                            double s = score.score(n_r_i, n_q_c, COMP_SCORE);
-                            //check if all scores have the same value
-                            if(i > 0 && abs(q_qc.get(i-1).priority-s) < 1e-13)
-                                all_scores_same = false;
-                            q_qc.add(new DualTreeTraversalAction(n_r_i, n_q_c, base, score, improvedSearch, s));
-                        }
+            //Split one side of the pair. If both can be split, pick the larger
+            boolean splitRef;
+            if(n_r.hasChildren() && n_q.hasChildren())
+                splitRef = n_r.furthestDescendantDistance() >= n_q.furthestDescendantDistance();
+            else if(n_r.hasChildren())
+                splitRef = true;
+            else if(n_q.hasChildren())
+                splitRef = false;
+            else
+                return;//two leaves, all done
 
-                        if(all_scores_same)
-                        {
-                            double s = score.score(n_r, n_q_c, COMP_SCORE);
-                            if(s > q_qc.get(0).priority)
-                                q.offer(new DualTreeTraversalAction(n_r, n_q_c, base, score, improvedSearch, s));
-                            else
-                                q.addAll(q_qc);
-                        }
-                        else
-                            q.addAll(q_qc);
-                    }
-                }
-            }
-            else if(n_q.hasChildren()) //implicitly n_r has not children if this check passes
-            {
-                for(int j = 0; j < n_q.numChildren(); j++)
-                {
-                    IndexNode n_q_j = n_q.getChild(j);
-                    double s = score.score(n_r, n_q_j, COMP_SCORE);
-                    if (!Double.isNaN(s))
-                        q.offer(new DualTreeTraversalAction(n_r, n_q_j, base, score, improvedSearch, s));
-                }
-            }
-            else if(n_r.hasChildren())// implicitly n_q has no children if this check passes
+            IndexNode toSplit = splitRef ? n_r : n_q;
+            List<DualTreeTraversalAction> q = new ArrayList<>(toSplit.numChildren());
+            for(int c = 0; c < toSplit.numChildren(); c++)
             {
-                for (int i = 0; i < n_r.numChildren(); i++)
-                {
-                    IndexNode n_r_i = n_r.getChild(i);
-                    double s = score.score(n_r_i, n_q, COMP_SCORE);
-                    if (!Double.isNaN(s))
-                        q.offer(new DualTreeTraversalAction(n_r_i, n_q, base, score, improvedSearch, s));
-                }
+                IndexNode child = toSplit.getChild(c);
+                IndexNode r = splitRef ? child : n_r;
+                IndexNode qn = splitRef ? n_q : child;
+                double s = score.score(r, qn, COMP_SCORE);
+                if(!Double.isNaN(s))
+                    q.add(new DualTreeTraversalAction(r, qn, base, score, improvedSearch, s, depth+1, maxDepth));
             }
 
-
             //22: {Recurse into combinations with highest priority first.
+            Collections.sort(q);
             invokeAll(q);
         }
 
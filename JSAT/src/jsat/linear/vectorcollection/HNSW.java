@@ -0,0 +1,790 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear.vectorcollection;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntToDoubleFunction;
+import jsat.linear.Vec;
+import jsat.linear.distancemetrics.DistanceMetric;
+import jsat.linear.distancemetrics.EuclideanDistance;
+import jsat.utils.DoubleList;
+import jsat.utils.IntList;
+import jsat.utils.concurrent.ParallelUtils;
+import jsat.utils.random.RandomUtil;
+
+/**
+ * This class implements the Hierarchical Navigable Small World (HNSW) graph
+ * for approximate nearest neighbor search. Every point is a node in a
+ * proximity graph with a small number of links to nearby points, and a
+ * random, exponentially decreasing, fraction of the points are also included
+ * in sparser graphs on the layers above. A search greedily descends from the
+ * top layer to find a good starting point, and then does a best-first search
+ * of the bottom layer. This makes HNSW well suited to high dimensional data,
+ * where exact methods degrade to a brute force search. <br>
+ * <br>
+ * The quality of the graph and the search are controlled by three parameters:
+ * <ul>
+ * <li>{@link #setM(int) M}, the number of links per node. Larger values give
+ * better recall on higher dimensional data, at the cost of memory and
+ * construction time.</li>
+ * <li>{@link #setEfConstruction(int) efConstruction}, the size of the
+ * candidate list while inserting points. Larger values build a better graph
+ * more slowly.</li>
+ * <li>{@link #setEfSearch(int) efSearch}, the size of the candidate list when
+ * searching. This is the main trade-off between query speed and recall, and
+ * can be changed after the collection is built.</li>
+ * </ul>
+ * <br>
+ * Both k-NN and radius queries are approximate. Radius queries are answered
+ * with k-NN searches of increasing size until a neighbor outside the radius
+ * is found. <br>
+ * <br>
+ * Points may be {@link #insert(jsat.linear.Vec) inserted} from multiple
+ * threads at once, and concurrently with searches. The links of each node are
+ * protected by one of a fixed set of striped locks, so only inserts that
+ * touch the same part of the graph will contend. Parallel construction uses
+ * the same mechanism. <br>
+ * <br>
+ * See: Malkov, Y. A., & Yashunin, D. A. (2016). <i>Efficient and robust
+ * approximate nearest neighbor search using Hierarchical Navigable Small World
+ * graphs</i>. arXiv:1603.09320.
+ *
+ * @author Edward Raff
+ * @param <V> The type of vectors stored in this collection
+ */
+public class HNSW<V extends Vec> implements IncrementalCollection<V>
+{
+    private static final long serialVersionUID = -8197314726290463510L;
+    /**
+     * The number of locks used to protect the links of the nodes. Must be a
+     * power of two.
+     */
+    private static final int LOCK_STRIPES = 1024;
+
+    private int M;
+    private int efConstruction;
+    private int efSearch;
+    private DistanceMetric dm;
+    private List<V> vecs;
+    private List<Double> accelCache;
+    private List<Node> nodes;
+    private volatile int entryPoint;
+    private volatile int maxLevel;
+    private Random rand;
+
+    private transient Object[] locks;
+    private transient Object entryLock;
+    /**
+     * Inserting a point may grow the lists of points and nodes, which must
+     * not happen while another thread is reading them. Searches and the
+     * linking of new points hold the read lock, so they can run concurrently.
+     */
+    private transient ReentrantReadWriteLock storageLock;
+    private transient ThreadLocal<VisitedSet> visited;
+
+    /**
+     * Creates a new HNSW collection with M=16, efConstruction=200, and
+     * efSearch=50, using the Euclidean distance.
+     */
+    public HNSW()
+    {
+        this(new EuclideanDistance());
+    }
+
+    /**
+     * Creates a new HNSW collection with M=16, efConstruction=200, and
+     * efSearch=50
+     *
+     * @param dm the distance metric to use
+     */
+    public HNSW(DistanceMetric dm)
+    {
+        this(dm, 16, 200, 50);
+    }
+
+    /**
+     * Creates a new HNSW collection
+     *
+     * @param dm the distance metric to use
+     * @param M the number of links per node
+     * @param efConstruction the size of the candidate list during insertion
+     * @param efSearch the size of the candidate list during search
+     */
+    public HNSW(DistanceMetric dm, int M, int efConstruction, int efSearch)
+    {
+        setM(M);
+        setEfConstruction(efConstruction);
+        setEfSearch(efSearch);
+        this.dm = dm;
+        this.rand = RandomUtil.getRandom();
+        clear();
+        initTransient();
+    }
+
+    /**
+     * Creates a new HNSW collection and builds it
+     *
+     * @param list the points to add to the collection
+     * @param dm the distance metric to use
+     * @param parallel {@code true} if construction should be done in
+     * parallel, {@code false} for single threaded.
+     */
+    public HNSW(List<V> list, DistanceMetric dm, boolean parallel)
+    {
+        this(dm);
+        build(parallel, list, dm);
+    }
+
+    /**
+     * Copy constructor
+     *
+     * @param toCopy the object to copy
+     */
+    public HNSW(HNSW<V> toCopy)
+    {
+        this.M = toCopy.M;
+        this.efConstruction = toCopy.efConstruction;
+        this.efSearch = toCopy.efSearch;
+        this.dm = toCopy.dm.clone();
+        this.rand = RandomUtil.getRandom();
+        initTransient();
+        toCopy.storageLock.readLock().lock();
+        try
+        {
+            this.vecs = new ArrayList<>(toCopy.vecs);
+            this.accelCache = toCopy.accelCache == null ? null : new DoubleList(toCopy.accelCache);
+            this.nodes = new ArrayList<>(toCopy.nodes.size());
+            for (Node n : toCopy.nodes)
+                synchronized (toCopy.lockFor(this.nodes.size()))
+                {
+                    this.nodes.add(new Node(n));
+                }
+            synchronized (toCopy.entryLock)
+            {
+                this.entryPoint = toCopy.entryPoint;
+                this.maxLevel = toCopy.maxLevel;
+            }
+        }
+        finally
+        {
+            toCopy.storageLock.readLock().unlock();
+        }
+    }
+
+    private void initTransient()
+    {
+        locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++)
+            locks[i] = new Object();
+        entryLock = new Object();
+        storageLock = new ReentrantReadWriteLock();
+        visited = ThreadLocal.withInitial(VisitedSet::new);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        initTransient();
+    }
+
+    /**
+     * Removes all points from the collection
+     */
+    private void clear()
+    {
+        vecs = new ArrayList<>();
+        nodes = new ArrayList<>();
+        accelCache = dm.supportsAcceleration() ? new DoubleList() : null;
+        entryPoint = -1;
+        maxLevel = -1;
+    }
+
+    /**
+     * Sets the number of links each node has to its neighbors on each layer.
+     * The bottom layer allows twice as many links. Values in the range of 8
+     * to 48 are typical, with larger values needed for higher dimensional
+     * data. Changing this value only affects points inserted afterwards.
+     *
+     * @param M the number of links per node, must be at least 2
+     */
+    public void setM(int M)
+    {
+        if (M < 2)
+            throw new IllegalArgumentException("M must be at least 2, not " + M);
+        this.M = M;
+    }
+
+    /**
+     *
+     * @return the number of links per node
+     */
+    public int getM()
+    {
+        return M;
+    }
+
+    /**
+     * Sets the number of candidates considered when inserting a new point.
+     * Larger values create a more accurate graph, but increase the
+     * construction time.
+     *
+     * @param efConstruction the size of the candidate list during insertion
+     */
+    public void setEfConstruction(int efConstruction)
+    {
+        if (efConstruction < 1)
+            throw new IllegalArgumentException("efConstruction must be positive, not " + efConstruction);
+        this.efConstruction = efConstruction;
+    }
+
+    /**
+     *
+     * @return the size of the candidate list during insertion
+     */
+    public int getEfConstruction()
+    {
+        return efConstruction;
+    }
+
+    /**
+     * Sets the number of candidates considered when searching. Larger values
+     * increase the recall and the cost of a search. A k-NN search always
+     * considers at least <i>k</i> candidates.
+     *
+     * @param efSearch the size of the candidate list during search
+     */
+    public void setEfSearch(int efSearch)
+    {
+        if (efSearch < 1)
+            throw new IllegalArgumentException("efSearch must be positive, not " + efSearch);
+        this.efSearch = efSearch;
+    }
+
+    /**
+     *
+     * @return the size of the candidate list during search
+     */
+    public int getEfSearch()
+    {
+        return efSearch;
+    }
+
+    @Override
+    public void build(boolean parallel, List<V> collection, DistanceMetric dm)
+    {
+        this.dm = dm;
+        clear();
+        if (collection.isEmpty())
+            return;
+        vecs.addAll(collection);
+        List<Double> cache = dm.getAccelerationCache(vecs, parallel);
+        accelCache = cache == null ? null : new DoubleList(cache);
+        for (int i = 0; i < vecs.size(); i++)
+            nodes.add(new Node(randomLevel(), M));
+
+        //all storage is allocated, so the points can be linked in any order
+        link(0);
+        ParallelUtils.run(parallel, vecs.size()-1, (start, end) ->
+        {
+            for (int i = start; i < end; i++)
+                link(i+1);
+        });
+    }
+
+    @Override
+    public void insert(V x)
+    {
+        int id;
+        storageLock.writeLock().lock();
+        try
+        {
+            id = vecs.size();
+            vecs.add(x);
+            if (accelCache != null)
+                accelCache.addAll(dm.getQueryInfo(x));
+            nodes.add(new Node(randomLevel(), M));
+        }
+        finally
+        {
+            storageLock.writeLock().unlock();
+        }
+
+        storageLock.readLock().lock();
+        try
+        {
+            link(id);
+        }
+        finally
+        {
+            storageLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Draws the top layer for a new node. Must be called while holding the
+     * write lock, or from a single thread.
+     */
+    private int randomLevel()
+    {
+        double mL = 1/Math.log(M);
+        return (int) Math.min(-Math.log(1-rand.nextDouble())*mL, 64);
+    }
+
+    private Object lockFor(int id)
+    {
+        return locks[id & (LOCK_STRIPES-1)];
+    }
+
+    private double dist(int a, int b)
+    {
+        return dm.dist(a, b, vecs, accelCache);
+    }
+
+    /**
+     * Connects the given node, which must already be stored, into the graph.
+     *
+     * @param id the index of the node to connect
+     */
+    private void link(int id)
+    {
+        final int level = nodes.get(id).level();
+        int ep, L;
+        synchronized (entryLock)
+        {
+            ep = entryPoint;
+            L = maxLevel;
+            if (ep < 0)//first point
+            {
+                entryPoint = id;
+                maxLevel = level;
+                return;
+            }
+        }
+
+        IntToDoubleFunction distTo = i -> dist(i, id);
+        IndexDistPair cur = new IndexDistPair(ep, distTo.applyAsDouble(ep));
+        int[] buffer = new int[2*M];
+        for (int lc = L; lc > level; lc--)
+            cur = greedySearch(distTo, cur, lc, buffer);
+
+        List<IndexDistPair> entries = Collections.singletonList(cur);
+        for (int lc = Math.min(L, level); lc >= 0; lc--)
+        {
+            List<IndexDistPair> candidates = sorted(searchLayer(distTo, entries, efConstruction, lc));
+            IntList selected = selectNeighbors(candidates, M);
+            Node node = nodes.get(id);
+            synchronized (lockFor(id))
+            {
+                for (int j = 0; j < selected.size(); j++)
+                    node.links[lc][j] = selected.getI(j);
+                node.sizes[lc] = selected.size();
+            }
+            //add the reverse links, shrinking the neighbor's list if needed
+            for (int j = 0; j < selected.size(); j++)
+            {
+                int s = selected.getI(j);
+                addLink(s, id, lc, candidates);
+            }
+            entries = candidates;
+        }
+
+        if (level > L)
+            synchronized (entryLock)
+            {
+                if (level > maxLevel)
+                {
+                    maxLevel = level;
+                    entryPoint = id;
+                }
+            }
+    }
+
+    /**
+     * Adds a link from node {@code s} to node {@code id} on the given layer.
+     * If {@code s} already has the maximum number of links, the neighbor
+     * selection heuristic is used to decide which links to keep.
+     *
+     * @param s the node to add a link to
+     * @param id the new neighbor
+     * @param lc the layer
+     * @param candidates the candidates found when inserting {@code id}, used
+     * to avoid re-computing the distance between {@code s} and {@code id}
+     */
+    private void addLink(int s, int id, int lc, List<IndexDistPair> candidates)
+    {
+        Node n = nodes.get(s);
+        synchronized (lockFor(s))
+        {
+            int[] links = n.links[lc];
+            int size = n.sizes[lc];
+            if (size < links.length)
+            {
+                links[size] = id;
+                n.sizes[lc]++;
+                return;
+            }
+
+            double d_s = Double.NaN;
+            for (IndexDistPair c : candidates)
+                if (c.getIndex() == s)
+                {
+                    d_s = c.getDist();
+                    break;
+                }
+            if (Double.isNaN(d_s))
+                d_s = dist(s, id);
+
+            List<IndexDistPair> options = new ArrayList<>(size+1);
+            for (int j = 0; j < size; j++)
+                options.add(new IndexDistPair(links[j], dist(s, links[j])));
+            options.add(new IndexDistPair(id, d_s));
+            Collections.sort(options);
+            IntList keep = selectNeighbors(options, links.length);
+            for (int j = 0; j < keep.size(); j++)
+                links[j] = keep.getI(j);
+            n.sizes[lc] = keep.size();
+        }
+    }
+
+    /**
+     * The neighbor selection heuristic of the HNSW paper. A candidate is kept
+     * only if it is closer to the base point than to any of the neighbors
+     * already kept, which keeps links pointing in diverse directions and the
+     * graph connected across clusters.
+     *
+     * @param candidates the candidates, sorted by their distance to the base
+     * point
+     * @param max the maximum number of neighbors to select
+     * @return the selected neighbors
+     */
+    private IntList selectNeighbors(List<IndexDistPair> candidates, int max)
+    {
+        IntList selected = new IntList(Math.min(max, candidates.size()));
+        for (IndexDistPair c : candidates)
+        {
+            if (selected.size() >= max)
+                break;
+            boolean good = true;
+            for (int j = 0; j < selected.size() && good; j++)
+                if (dist(c.getIndex(), selected.getI(j)) < c.getDist())
+                    good = false;
+            if (good)
+                selected.add(c.getIndex());
+        }
+        return selected;
+    }
+
+    /**
+     * Copies the links of a node on a layer
+     *
+     * @param id the node
+     * @param lc the layer
+     * @param buffer the array to copy the links into
+     * @return the number of links
+     */
+    private int getLinks(int id, int lc, int[] buffer)
+    {
+        Node n = nodes.get(id);
+        synchronized (lockFor(id))
+        {
+            int size = n.sizes[lc];
+            System.arraycopy(n.links[lc], 0, buffer, 0, size);
+            return size;
+        }
+    }
+
+    /**
+     * Moves to the closest neighbor on the given layer until no neighbor is
+     * closer than the current point
+     */
+    private IndexDistPair greedySearch(IntToDoubleFunction distTo, IndexDistPair cur, int lc, int[] buffer)
+    {
+        boolean changed = true;
+        while (changed)
+        {
+            changed = false;
+            int size = getLinks(cur.getIndex(), lc, buffer);
+            for (int j = 0; j < size; j++)
+            {
+                double d = distTo.applyAsDouble(buffer[j]);
+                if (d < cur.getDist())
+                {
+                    cur = new IndexDistPair(buffer[j], d);
+                    changed = true;
+                }
+            }
+        }
+        return cur;
+    }
+
+    private static final Comparator<IndexDistPair> FARTHEST_FIRST = Collections.reverseOrder();
+
+    /**
+     * Best first search of one layer of the graph
+     *
+     * @param distTo the distance from each node to the query
+     * @param entries the points to start the search from
+     * @param ef the number of nearest points to keep
+     * @param lc the layer to search
+     * @return a heap of the nearest points found, with the farthest on top
+     */
+    private PriorityQueue<IndexDistPair> searchLayer(IntToDoubleFunction distTo, List<IndexDistPair> entries, int ef, int lc)
+    {
+        VisitedSet seen = visited.get();
+        seen.reset(nodes.size());
+        PriorityQueue<IndexDistPair> candidates = new PriorityQueue<>();
+        PriorityQueue<IndexDistPair> results = new PriorityQueue<>(ef+1, FARTHEST_FIRST);
+        for (IndexDistPair e : entries)
+        {
+            seen.visit(e.getIndex());
+            candidates.add(e);
+            results.add(e);
+            if (results.size() > ef)
+                results.poll();
+        }
+
+        int[] buffer = new int[2*M];
+        while (!candidates.isEmpty())
+        {
+            IndexDistPair c = candidates.poll();
+            if (c.getDist() > results.peek().getDist() && results.size() >= ef)
+                break;//everything left is farther than what we have
+            if (nodes.get(c.getIndex()).level() < lc)
+                continue;//can happen when starting from the candidates of a higher layer
+            int size = getLinks(c.getIndex(), lc, buffer);
+            for (int j = 0; j < size; j++)
+            {
+                int e = buffer[j];
+                if (!seen.visit(e))
+                    continue;
+                double d = distTo.applyAsDouble(e);
+                if (results.size() < ef || d < results.peek().getDist())
+                {
+                    IndexDistPair p = new IndexDistPair(e, d);
+                    candidates.add(p);
+                    results.add(p);
+                    if (results.size() > ef)
+                        results.poll();
+                }
+            }
+        }
+        return results;
+    }
+
+    private static List<IndexDistPair> sorted(PriorityQueue<IndexDistPair> heap)
+    {
+        List<IndexDistPair> list = new ArrayList<>(heap);
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Finds approximately the k nearest neighbors of the query. Must be
+     * called while holding the read lock.
+     */
+    private List<IndexDistPair> knn(Vec query, int k)
+    {
+        int ep, L;
+        synchronized (entryLock)
+        {
+            ep = entryPoint;
+            L = maxLevel;
+        }
+        if (ep < 0)
+            return Collections.emptyList();
+
+        final List<Double> qi = dm.getQueryInfo(query);
+        IntToDoubleFunction distTo = i -> dm.dist(i, query, qi, vecs, accelCache);
+        IndexDistPair cur = new IndexDistPair(ep, distTo.applyAsDouble(ep));
+        int[] buffer = new int[2*M];
+        for (int lc = L; lc > 0; lc--)
+            cur = greedySearch(distTo, cur, lc, buffer);
+        List<IndexDistPair> found = sorted(searchLayer(distTo, Collections.singletonList(cur), Math.max(efSearch, k), 0));
+        return found.size() > k ? found.subList(0, k) : found;
+    }
+
+    @Override
+    public void search(Vec query, int numNeighbors, List<Integer> neighbors, List<Double> distances)
+    {
+        neighbors.clear();
+        distances.clear();
+        storageLock.readLock().lock();
+        try
+        {
+            for (IndexDistPair p : knn(query, numNeighbors))
+            {
+                neighbors.add(p.getIndex());
+                distances.add(p.getDist());
+            }
+        }
+        finally
+        {
+            storageLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void search(Vec query, double range, List<Integer> neighbors, List<Double> distances)
+    {
+        neighbors.clear();
+        distances.clear();
+        storageLock.readLock().lock();
+        try
+        {
+            int N = vecs.size();
+            int k = Math.min(N, Math.max(efSearch, 16));
+            List<IndexDistPair> found = knn(query, k);
+            //keep looking farther until we find something outside the range
+            while (k < N && found.size() == k && found.get(k-1).getDist() <= range)
+            {
+                k = (int) Math.min(N, 2L*k);
+                found = knn(query, k);
+            }
+            for (IndexDistPair p : found)
+            {
+                if (p.getDist() > range)
+                    break;
+                neighbors.add(p.getIndex());
+                distances.add(p.getDist());
+            }
+        }
+        finally
+        {
+            storageLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void setDistanceMetric(DistanceMetric dm)
+    {
+        this.dm = dm;
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric()
+    {
+        return dm;
+    }
+
+    @Override
+    public V get(int indx)
+    {
+        return vecs.get(indx);
+    }
+
+    @Override
+    public List<Double> getAccelerationCache()
+    {
+        return accelCache;
+    }
+
+    @Override
+    public int size()
+    {
+        return vecs.size();
+    }
+
+    @Override
+    public HNSW<V> clone()
+    {
+        return new HNSW<>(this);
+    }
+
+    /**
+     * A point in the graph, storing its links on each layer it is in
+     */
+    private static class Node implements Serializable
+    {
+        private static final long serialVersionUID = 3406381626128475025L;
+        /**
+         * The links of this node on each layer, which are only valid up to
+         * the matching entry of {@link #sizes}
+         */
+        final int[][] links;
+        final int[] sizes;
+
+        public Node(int level, int M)
+        {
+            links = new int[level+1][];
+            sizes = new int[level+1];
+            for (int l = 0; l <= level; l++)
+                links[l] = new int[l == 0 ? 2*M : M];
+        }
+
+        public Node(Node toCopy)
+        {
+            links = new int[toCopy.links.length][];
+            for (int l = 0; l < links.length; l++)
+                links[l] = Arrays.copyOf(toCopy.links[l], toCopy.links[l].length);
+            sizes = Arrays.copyOf(toCopy.sizes, toCopy.sizes.length);
+        }
+
+        int level()
+        {
+            return links.length-1;
+        }
+    }
+
+    /**
+     * Marks which nodes have been visited by a search. Each search increments
+     * the epoch instead of clearing the array, so a search costs time
+     * proportional only to the nodes it visits.
+     */
+    private static class VisitedSet
+    {
+        int[] marks = new int[0];
+        int epoch = 0;
+
+        void reset(int size)
+        {
+            if (marks.length < size)
+            {
+                marks = new int[Math.max(size, marks.length*2)];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE)
+            {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * @param id the node to visit
+         * @return {@code true} if the node was not visited before
+         */
+        boolean visit(int id)
+        {
+            if (id >= marks.length)
+                marks = Arrays.copyOf(marks, Math.max(id+1, marks.length*2));
+            if (marks[id] == epoch)
+                return false;
+            marks[id] = epoch;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,665 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear.vectorcollection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import jsat.SimpleDataSet;
+import jsat.classifiers.DataPoint;
+import jsat.clustering.kmeans.HamerlyKMeans;
+import jsat.clustering.kmeans.KMeans;
+import jsat.linear.DenseVector;
+import jsat.linear.IndexValue;
+import jsat.linear.Vec;
+import jsat.linear.distancemetrics.DistanceMetric;
+import jsat.linear.distancemetrics.EuclideanDistance;
+import jsat.utils.IntList;
+import jsat.utils.concurrent.ParallelUtils;
+import jsat.utils.random.RandomUtil;
+
+/**
+ * This class implements an Inverted File index with Product Quantization
+ * (IVF-PQ) for approximate nearest neighbor search in the
+ * {@link EuclideanDistance Euclidean} space, using a small fraction of the
+ * memory needed to store the vectors themselves. <br>
+ * <br>
+ * A coarse quantizer, trained with {@link KMeans}, splits the data into a
+ * number of {@link #setLists(int) lists}. The residual of each vector from
+ * its list's center is split into {@link #setSubspaces(int) subspaces}, and
+ * each sub-vector is replaced by the index of the nearest of 256 centers
+ * learned for that subspace. Each vector is thus stored as one byte per
+ * subspace, rather than 8 bytes per dimension. <br>
+ * A query only visits the {@link #setProbes(int) closest lists}. For each
+ * list, a table of the distance from the query's residual to every subspace
+ * center is computed once, after which the distance to every vector in the
+ * list is a sum of table lookups. <br>
+ * <br>
+ * The distances returned are estimates, unless {@link #setReRank(int)
+ * re-ranking} is used. Re-ranking computes the exact distance to the best
+ * candidates found, reading them from the list given to
+ * {@link #build(boolean, java.util.List, jsat.linear.distancemetrics.DistanceMetric) build}.
+ * The index only keeps a reference to that list, so it may be backed by an
+ * on disk store such as {@link jsat.io.MappedDataStore}, in which case only
+ * the candidates are read from disk. <br>
+ * <br>
+ * Radius searches are approximate as well, and will only find points in the
+ * probed lists whose estimated distance is within the radius. <br>
+ * <br>
+ * See: Jégou, H., Douze, M., & Schmid, C. (2011). <i>Product quantization for
+ * nearest neighbor search</i>. IEEE Transactions on Pattern Analysis and
+ * Machine Intelligence, 33(1), 117–128.
+ *
+ * @author Edward Raff
+ * @param <V> The type of vectors stored in this collection
+ */
+public class IVFPQ<V extends Vec> implements VectorCollection<V>
+{
+    private static final long serialVersionUID = 4180251732092915366L;
+    /**
+     * The number of centers per subspace, so that codes fit in one byte
+     */
+    private static final int CODEBOOK_SIZE = 256;
+
+    private int lists;
+    private int subspaces;
+    private int probes;
+    private int reRank;
+    private int trainingSize;
+    private KMeans kmeans;
+
+    private List<V> vecs;
+    private int dim;
+    /**
+     * The centers of each list
+     */
+    private double[][] coarse;
+    /**
+     * The first dimension of each subspace, with a final entry equal to
+     * {@link #dim}
+     */
+    private int[] subStart;
+    /**
+     * The centers of each subspace. Center {@code c} of subspace {@code j}
+     * starts at {@code codebooks[j][c*subspaceLength]}
+     */
+    private double[][] codebooks;
+    /**
+     * The number of centers actually used in each subspace
+     */
+    private int codebookSize;
+    /**
+     * The indices of the vectors in each list
+     */
+    private int[][] listIds;
+    /**
+     * The codes of the vectors in each list, with {@link #subspaces} bytes
+     * per vector
+     */
+    private byte[][] listCodes;
+
+    /**
+     * Creates a new IVF-PQ index that uses the square root of the data set
+     * size as the number of lists, 8 subspaces, and probes 8 lists per query
+     * without re-ranking.
+     */
+    public IVFPQ()
+    {
+        this(0, 8);
+    }
+
+    /**
+     * Creates a new IVF-PQ index that probes 8 lists per query without
+     * re-ranking.
+     *
+     * @param lists the number of lists, or 0 to use the square root of the
+     * number of vectors
+     * @param subspaces the number of subspaces, and thus bytes, used to encode
+     * each vector
+     */
+    public IVFPQ(int lists, int subspaces)
+    {
+        setLists(lists);
+        setSubspaces(subspaces);
+        setProbes(8);
+        setReRank(0);
+        setTrainingSize(100000);
+        setKMeans(new HamerlyKMeans());
+    }
+
+    /**
+     * Copy constructor
+     *
+     * @param toCopy the object to copy
+     */
+    public IVFPQ(IVFPQ<V> toCopy)
+    {
+        this.lists = toCopy.lists;
+        this.subspaces = toCopy.subspaces;
+        this.probes = toCopy.probes;
+        this.reRank = toCopy.reRank;
+        this.trainingSize = toCopy.trainingSize;
+        this.kmeans = toCopy.kmeans.clone();
+        this.dim = toCopy.dim;
+        this.codebookSize = toCopy.codebookSize;
+        //the vectors are never altered, and may not fit in memory, so share them
+        this.vecs = toCopy.vecs;
+        if (toCopy.coarse != null)
+        {
+            this.coarse = new double[toCopy.coarse.length][];
+            for (int i = 0; i < coarse.length; i++)
+                this.coarse[i] = Arrays.copyOf(toCopy.coarse[i], toCopy.coarse[i].length);
+            this.subStart = Arrays.copyOf(toCopy.subStart, toCopy.subStart.length);
+            this.codebooks = new double[toCopy.codebooks.length][];
+            for (int j = 0; j < codebooks.length; j++)
+                this.codebooks[j] = Arrays.copyOf(toCopy.codebooks[j], toCopy.codebooks[j].length);
+            this.listIds = new int[toCopy.listIds.length][];
+            this.listCodes = new byte[toCopy.listCodes.length][];
+            for (int l = 0; l < listIds.length; l++)
+            {
+                this.listIds[l] = Arrays.copyOf(toCopy.listIds[l], toCopy.listIds[l].length);
+                this.listCodes[l] = Arrays.copyOf(toCopy.listCodes[l], toCopy.listCodes[l].length);
+            }
+        }
+    }
+
+    /**
+     * Sets the number of lists the coarse quantizer divides the data into.
+     * More lists make each query scan fewer vectors, but increase the chance
+     * that a nearest neighbor is in a list that is not probed.
+     *
+     * @param lists the number of lists, or 0 to use the square root of the
+     * number of vectors
+     */
+    public void setLists(int lists)
+    {
+        if (lists < 0)
+            throw new IllegalArgumentException("Number of lists must be non-negative, not " + lists);
+        this.lists = lists;
+    }
+
+    /**
+     *
+     * @return the number of lists, or 0 if the square root of the number of
+     * vectors is used
+     */
+    public int getLists()
+    {
+        return lists;
+    }
+
+    /**
+     * Sets the number of subspaces each vector is split into. Each subspace
+     * is stored as one byte, so this is the memory used per vector (not
+     * counting its index). More subspaces give more accurate distances. If
+     * this is larger than the dimension of the data, one subspace per
+     * dimension will be used.
+     *
+     * @param subspaces the number of subspaces to use
+     */
+    public void setSubspaces(int subspaces)
+    {
+        if (subspaces < 1)
+            throw new IllegalArgumentException("Number of subspaces must be positive, not " + subspaces);
+        this.subspaces = subspaces;
+    }
+
+    /**
+     *
+     * @return the number of subspaces used
+     */
+    public int getSubspaces()
+    {
+        return subspaces;
+    }
+
+    /**
+     * Sets the number of lists that are scanned for each query. This may be
+     * changed after the index is built, and is the main trade off between
+     * query speed and recall.
+     *
+     * @param probes the number of closest lists to scan
+     */
+    public void setProbes(int probes)
+    {
+        if (probes < 1)
+            throw new IllegalArgumentException("Number of probes must be positive, not " + probes);
+        this.probes = probes;
+    }
+
+    /**
+     *
+     * @return the number of closest lists to scan
+     */
+    public int getProbes()
+    {
+        return probes;
+    }
+
+    /**
+     * Sets the number of candidates whose exact distance is computed to
+     * produce the final result of a k-NN search. A value of 0 disables
+     * re-ranking, and the estimated distances are returned. A k-NN search
+     * always re-ranks at least <i>k</i> candidates when re-ranking is enabled.
+     *
+     * @param reRank the number of candidates to re-rank, or 0 for none
+     */
+    public void setReRank(int reRank)
+    {
+        if (reRank < 0)
+            throw new IllegalArgumentException("Number of candidates to re-rank must be non-negative, not " + reRank);
+        this.reRank = reRank;
+    }
+
+    /**
+     *
+     * @return the number of candidates to re-rank, or 0 for none
+     */
+    public int getReRank()
+    {
+        return reRank;
+    }
+
+    /**
+     * Sets the maximum number of vectors, sampled at random, used to train
+     * the quantizers. All vectors are encoded, regardless of this value.
+     *
+     * @param trainingSize the maximum number of vectors to train on
+     */
+    public void setTrainingSize(int trainingSize)
+    {
+        if (trainingSize < 1)
+            throw new IllegalArgumentException("Training size must be positive, not " + trainingSize);
+        this.trainingSize = trainingSize;
+    }
+
+    /**
+     *
+     * @return the maximum number of vectors to train on
+     */
+    public int getTrainingSize()
+    {
+        return trainingSize;
+    }
+
+    /**
+     * Sets the k-means algorithm used to learn the centers of the lists and
+     * the subspaces. It must use the Euclidean distance.
+     *
+     * @param kmeans the k-means algorithm to use
+     */
+    public void setKMeans(KMeans kmeans)
+    {
+        if (!(kmeans.getDistanceMetric() instanceof EuclideanDistance))
+            throw new IllegalArgumentException("k-means must use the Euclidean distance");
+        this.kmeans = kmeans;
+    }
+
+    /**
+     *
+     * @return the k-means algorithm used to learn the quantizers
+     */
+    public KMeans getKMeans()
+    {
+        return kmeans;
+    }
+
+    @Override
+    public void build(boolean parallel, List<V> collection, DistanceMetric dm)
+    {
+        setDistanceMetric(dm);
+        this.vecs = collection;
+        final int N = collection.size();
+        if (N == 0)
+        {
+            coarse = null;
+            return;
+        }
+        dim = collection.get(0).length();
+        final int m = Math.min(subspaces, dim);
+        subStart = new int[m+1];
+        for (int j = 0; j <= m; j++)
+            subStart[j] = (int) ((long) j * dim / m);
+
+        //select the training sample
+        IntList sample = IntList.range(N);
+        if (N > trainingSize)
+        {
+            Collections.shuffle(sample, RandomUtil.getRandom());
+            sample = new IntList(sample.subList(0, trainingSize));
+        }
+        final int n = sample.size();
+
+        //train the coarse quantizer
+        int L = Math.min(n, lists > 0 ? lists : (int) Math.max(1, Math.sqrt(N)));
+        List<DataPoint> train = new ArrayList<>(n);
+        for (int i : sample)
+            train.add(new DataPoint(collection.get(i)));
+        int[] trainList = new int[n];
+        coarse = train(new SimpleDataSet(train), L, parallel, trainList);
+
+        //train a codebook on the residuals of each subspace
+        codebookSize = Math.min(n, CODEBOOK_SIZE);
+        codebooks = new double[m][];
+        double[][] residuals = new double[n][];
+        for (int i = 0; i < n; i++)
+            residuals[i] = residual(collection.get(sample.getI(i)), coarse[trainList[i]]);
+        for (int j = 0; j < m; j++)
+        {
+            int start = subStart[j], len = subStart[j+1]-start;
+            List<DataPoint> subTrain = new ArrayList<>(n);
+            for (int i = 0; i < n; i++)
+                subTrain.add(new DataPoint(new DenseVector(residuals[i], start, start+len)));
+            double[][] centers = train(new SimpleDataSet(subTrain), codebookSize, parallel, new int[n]);
+            codebooks[j] = new double[codebookSize*len];
+            for (int c = 0; c < codebookSize; c++)
+                System.arraycopy(centers[c], 0, codebooks[j], c*len, len);
+        }
+        residuals = null;
+
+        //assign every vector to a list, then encode them in place
+        final int[] assignment = new int[N];
+        ParallelUtils.run(parallel, N, (start, end) ->
+        {
+            for (int i = start; i < end; i++)
+                assignment[i] = nearestList(collection.get(i));
+        });
+        int[] listSizes = new int[L];
+        final int[] position = new int[N];
+        for (int i = 0; i < N; i++)
+            position[i] = listSizes[assignment[i]]++;
+        listIds = new int[L][];
+        listCodes = new byte[L][];
+        for (int l = 0; l < L; l++)
+        {
+            listIds[l] = new int[listSizes[l]];
+            listCodes[l] = new byte[listSizes[l]*m];
+        }
+        ParallelUtils.run(parallel, N, (start, end) ->
+        {
+            for (int i = start; i < end; i++)
+            {
+                int l = assignment[i];
+                listIds[l][position[i]] = i;
+                encode(residual(collection.get(i), coarse[l]), listCodes[l], position[i]*m);
+            }
+        });
+    }
+
+    /**
+     * Runs k-means on the given data and returns the centers found
+     */
+    private double[][] train(SimpleDataSet data, int k, boolean parallel, int[] designations)
+    {
+        KMeans km = kmeans.clone();
+        km.setStoreMeans(true);
+        km.cluster(data, k, parallel, designations);
+        List<Vec> means = km.getMeans();
+        double[][] centers = new double[means.size()][];
+        for (int c = 0; c < centers.length; c++)
+            centers[c] = means.get(c).arrayCopy();
+        return centers;
+    }
+
+    private double[] residual(Vec x, double[] center)
+    {
+        double[] r = new double[dim];
+        if (x.isSparse())
+        {
+            for (int d = 0; d < dim; d++)
+                r[d] = -center[d];
+            for (IndexValue iv : x)
+                r[iv.getIndex()] += iv.getValue();
+        }
+        else
+            for (int d = 0; d < dim; d++)
+                r[d] = x.get(d) - center[d];
+        return r;
+    }
+
+    private static double sqrdDist(Vec x, double[] center)
+    {
+        double d = 0;
+        for (int i = 0; i < center.length; i++)
+        {
+            double diff = x.get(i) - center[i];
+            d += diff*diff;
+        }
+        return d;
+    }
+
+    private int nearestList(Vec x)
+    {
+        int best = 0;
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (int l = 0; l < coarse.length; l++)
+        {
+            double d = sqrdDist(x, coarse[l]);
+            if (d < bestDist)
+            {
+                bestDist = d;
+                best = l;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the code of the nearest center of each subspace of the residual
+     */
+    private void encode(double[] r, byte[] codes, int offset)
+    {
+        for (int j = 0; j < codebooks.length; j++)
+        {
+            int start = subStart[j], len = subStart[j+1]-start;
+            double[] cb = codebooks[j];
+            int best = 0;
+            double bestDist = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < codebookSize; c++)
+            {
+                double d = 0;
+                for (int i = 0; i < len; i++)
+                {
+                    double diff = r[start+i] - cb[c*len+i];
+                    d += diff*diff;
+                }
+                if (d < bestDist)
+                {
+                    bestDist = d;
+                    best = c;
+                }
+            }
+            codes[offset+j] = (byte) best;
+        }
+    }
+
+    /**
+     * Computes the squared distance from the residual of the query to every
+     * center of every subspace
+     *
+     * @param r the residual of the query from the center of a list
+     * @param table the array to store the distances in, with the distance to
+     * center {@code c} of subspace {@code j} at {@code j*codebookSize+c}
+     */
+    private void fillTable(double[] r, double[] table)
+    {
+        for (int j = 0; j < codebooks.length; j++)
+        {
+            int start = subStart[j], len = subStart[j+1]-start;
+            double[] cb = codebooks[j];
+            for (int c = 0; c < codebookSize; c++)
+            {
+                double d = 0;
+                for (int i = 0; i < len; i++)
+                {
+                    double diff = r[start+i] - cb[c*len+i];
+                    d += diff*diff;
+                }
+                table[j*codebookSize+c] = d;
+            }
+        }
+    }
+
+    /**
+     * @return the lists closest to the query, in order
+     */
+    private int[] probedLists(Vec query)
+    {
+        List<IndexDistPair> order = new ArrayList<>(coarse.length);
+        for (int l = 0; l < coarse.length; l++)
+            order.add(new IndexDistPair(l, sqrdDist(query, coarse[l])));
+        Collections.sort(order);
+        int[] probed = new int[Math.min(probes, coarse.length)];
+        for (int i = 0; i < probed.length; i++)
+            probed[i] = order.get(i).getIndex();
+        return probed;
+    }
+
+    /**
+     * Visits every vector in the probed lists with its estimated squared
+     * distance to the query
+     */
+    private void scan(Vec query, CodeVisitor visitor)
+    {
+        final int m = codebooks.length;
+        double[] table = new double[m*codebookSize];
+        for (int l : probedLists(query))
+        {
+            fillTable(residual(query, coarse[l]), table);
+            int[] ids = listIds[l];
+            byte[] codes = listCodes[l];
+            for (int i = 0, pos = 0; i < ids.length; i++, pos += m)
+            {
+                double d = 0;
+                for (int j = 0; j < m; j++)
+                    d += table[j*codebookSize + (codes[pos+j] & 0xFF)];
+                visitor.visit(ids[i], d);
+            }
+        }
+    }
+
+    private interface CodeVisitor
+    {
+        public void visit(int id, double sqrdDist);
+    }
+
+    @Override
+    public void search(Vec query, int numNeighbors, List<Integer> neighbors, List<Double> distances)
+    {
+        neighbors.clear();
+        distances.clear();
+        if (coarse == null)
+            return;
+        final int K = reRank > 0 ? Math.max(reRank, numNeighbors) : numNeighbors;
+        final PriorityQueue<IndexDistPair> heap = new PriorityQueue<>(K+1, Collections.reverseOrder());
+        scan(query, (id, d) ->
+        {
+            if (heap.size() < K)
+                heap.add(new IndexDistPair(id, d));
+            else if (d < heap.peek().getDist())
+            {
+                heap.poll();
+                heap.add(new IndexDistPair(id, d));
+            }
+        });
+
+        List<IndexDistPair> found = new ArrayList<>(heap.size());
+        EuclideanDistance euclid = new EuclideanDistance();
+        for (IndexDistPair p : heap)
+            if (reRank > 0)
+                found.add(new IndexDistPair(p.getIndex(), euclid.dist(query, vecs.get(p.getIndex()))));
+            else
+                found.add(new IndexDistPair(p.getIndex(), Math.sqrt(p.getDist())));
+        Collections.sort(found);
+        for (int i = 0; i < Math.min(numNeighbors, found.size()); i++)
+        {
+            neighbors.add(found.get(i).getIndex());
+            distances.add(found.get(i).getDist());
+        }
+    }
+
+    @Override
+    public void search(Vec query, double range, List<Integer> neighbors, List<Double> distances)
+    {
+        neighbors.clear();
+        distances.clear();
+        if (coarse == null)
+            return;
+        final double sqrdRange = range*range;
+        final List<IndexDistPair> found = new ArrayList<>();
+        EuclideanDistance euclid = new EuclideanDistance();
+        scan(query, (id, d) ->
+        {
+            if (d > sqrdRange)
+                return;
+            if (reRank > 0)
+            {
+                double exact = euclid.dist(query, vecs.get(id));
+                if (exact <= range)
+                    found.add(new IndexDistPair(id, exact));
+            }
+            else
+                found.add(new IndexDistPair(id, Math.sqrt(d)));
+        });
+        Collections.sort(found);
+        for (IndexDistPair p : found)
+        {
+            neighbors.add(p.getIndex());
+            distances.add(p.getDist());
+        }
+    }
+
+    @Override
+    public void setDistanceMetric(DistanceMetric dm)
+    {
+        if (!(dm instanceof EuclideanDistance))
+            throw new IllegalArgumentException("IVFPQ only works for Euclidean Distance Searches");
+    }
+
+    @Override
+    public DistanceMetric getDistanceMetric()
+    {
+        return new EuclideanDistance();
+    }
+
+    @Override
+    public V get(int indx)
+    {
+        return vecs.get(indx);
+    }
+
+    @Override
+    public List<Double> getAccelerationCache()
+    {
+        return null;
+    }
+
+    @Override
+    public int size()
+    {
+        return vecs == null ? 0 : vecs.size();
+    }
+
+    @Override
+    public IVFPQ<V> clone()
+    {
+        return new IVFPQ<>(this);
+    }
+}
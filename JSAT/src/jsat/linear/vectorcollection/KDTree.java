@@ -596,7 +596,10 @@ public class KDTree<V extends Vec> implements IncrementalCollection<V>
             //Right side first, it will start running on a different core
             threadpool.submit(() ->
             {
+                //hold the latch until the child is stored, its leaves may count it down to zero
+                mcdl.countUp();
                 node.setRight(buildTree(data_r, depth+1, threadpool, mcdl));
+                mcdl.countDown();
             });
             
             //now do the left here, 
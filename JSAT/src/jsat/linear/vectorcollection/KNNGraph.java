@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear.vectorcollection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import jsat.linear.Vec;
+import jsat.linear.distancemetrics.DistanceMetric;
+import jsat.utils.BoundedSortedList;
+import jsat.utils.DoubleList;
+import jsat.utils.IntList;
+import jsat.utils.concurrent.ParallelUtils;
+
+/**
+ * A KNNGraph stores the <i>k</i> nearest neighbors of every point in a data
+ * set, not counting the point itself. The neighbors of each point are sorted
+ * by distance, closest first. The graph is stored in flat {@code int} and
+ * {@code float} arrays, so it takes far less memory than lists of lists.<br>
+ * <br>
+ * Computing the all <i>k</i>-NN graph is often the most expensive part of
+ * algorithms such as {@link jsat.outlier.LOF LOF},
+ * {@link jsat.clustering.HDBSCAN HDBSCAN}, or
+ * {@link jsat.datatransform.visualization.TSNE t-SNE}. Those algorithms can
+ * accept a pre-computed graph, so that one graph can be shared between them.
+ * A graph built with a larger <i>k</i> than an algorithm needs can be used,
+ * in which case only the first neighbors of each point are used.
+ *
+ * @author Edward Raff
+ */
+public class KNNGraph implements Serializable
+{
+    private static final long serialVersionUID = -2953893713549627468L;
+    private final int k;
+    /**
+     * The neighbors of point {@code i} are stored starting at {@code i*k}
+     */
+    private final int[] neighbors;
+    private final float[] distances;
+
+    /**
+     * Creates a new graph from the given arrays, which are not copied.
+     *
+     * @param k the number of neighbors of each point
+     * @param neighbors the index of the neighbors of each point, with the
+     * neighbors of point {@code i} stored from {@code i*k} to
+     * {@code (i+1)*k-1} in sorted order
+     * @param distances the distance to each neighbor, in the same layout
+     */
+    public KNNGraph(int k, int[] neighbors, float[] distances)
+    {
+        if (k < 1)
+            throw new IllegalArgumentException("Number of neighbors must be positive, not " + k);
+        if (neighbors.length != distances.length || neighbors.length % k != 0)
+            throw new IllegalArgumentException("Neighbor and distance arrays must both have k entries per point");
+        this.k = k;
+        this.neighbors = neighbors;
+        this.distances = distances;
+    }
+
+    /**
+     * Computes the <i>k</i> nearest neighbor graph of the given vectors.
+     *
+     * @param <V> the type of vector
+     * @param X the vectors to find the neighbors of
+     * @param dm the distance metric to use
+     * @param k the number of neighbors to find for each point
+     * @param parallel {@code true} if multiple threads should be used
+     * @return the <i>k</i>-NN graph of the vectors
+     */
+    public static <V extends Vec> KNNGraph build(List<V> X, DistanceMetric dm, int k, boolean parallel)
+    {
+        return build(new DefaultVectorCollection<>(dm, X, parallel), k, parallel);
+    }
+
+    /**
+     * Computes the <i>k</i> nearest neighbor graph of all the points in the
+     * given collection. If the collection is a {@link DualTree}, a parallel
+     * dual tree search is used. Otherwise, each point is searched for
+     * separately.
+     *
+     * @param <V> the type of vector
+     * @param vc the collection to find the neighbors of, which must already be
+     * built
+     * @param k the number of neighbors to find for each point
+     * @param parallel {@code true} if multiple threads should be used
+     * @return the <i>k</i>-NN graph of the collection
+     */
+    @SuppressWarnings("unchecked")
+    public static <V extends Vec> KNNGraph build(VectorCollection<V> vc, int k, boolean parallel)
+    {
+        final int N = vc.size();
+        if (k < 1)
+            throw new IllegalArgumentException("Number of neighbors must be positive, not " + k);
+        if (k >= N)
+            throw new IllegalArgumentException("Can not find " + k + " neighbors in a collection of " + N + " points");
+        if (vc instanceof DefaultVectorCollection && ((DefaultVectorCollection) vc).base != null)
+            vc = ((DefaultVectorCollection<V>) vc).base;
+
+        int[] neighbors = new int[N*k];
+        float[] distances = new float[N*k];
+
+        if (vc instanceof DualTree)
+        {
+            DualTree<V> tree = (DualTree<V>) vc;
+            List<BoundedSortedList<IndexDistPair>> knn = tree.searchKnn(tree, k+1, parallel);
+            ParallelUtils.run(parallel, N, (start, end) ->
+            {
+                for (int i = start; i < end; i++)
+                    store(i, knn.get(i), k, neighbors, distances);
+            });
+        }
+        else
+        {
+            final VectorCollection<V> col = vc;
+            ParallelUtils.run(parallel, N, (start, end) ->
+            {
+                IntList n = new IntList(k+1);
+                DoubleList d = new DoubleList(k+1);
+                for (int i = start; i < end; i++)
+                {
+                    col.search(col.get(i), k+1, n, d);
+                    IndexDistPair[] found = new IndexDistPair[n.size()];
+                    for (int j = 0; j < found.length; j++)
+                        found[j] = new IndexDistPair(n.getI(j), d.getD(j));
+                    store(i, Arrays.asList(found), k, neighbors, distances);
+                }
+            });
+        }
+
+        return new KNNGraph(k, neighbors, distances);
+    }
+
+    /**
+     * Stores the neighbors of a point, skipping the point itself
+     *
+     * @param i the index of the point
+     * @param found the sorted <i>k+1</i> nearest neighbors of the point
+     */
+    private static void store(int i, List<IndexDistPair> found, int k, int[] neighbors, float[] distances)
+    {
+        int pos = i*k;
+        boolean skippedSelf = false;
+        for (int j = 0; j < found.size() && pos < (i+1)*k; j++)
+        {
+            IndexDistPair p = found.get(j);
+            //with duplicate points, self may not be in the list. Then the last is dropped
+            if (!skippedSelf && p.getIndex() == i)
+            {
+                skippedSelf = true;
+                continue;
+            }
+            neighbors[pos] = p.getIndex();
+            distances[pos++] = (float) p.getDist();
+        }
+    }
+
+    /**
+     *
+     * @return the number of points in the graph
+     */
+    public int size()
+    {
+        return neighbors.length / k;
+    }
+
+    /**
+     *
+     * @return the number of neighbors stored for each point
+     */
+    public int getK()
+    {
+        return k;
+    }
+
+    /**
+     * Returns the index of a neighbor of a point
+     *
+     * @param i the index of the point
+     * @param j the rank of the neighbor, where 0 is the nearest
+     * @return the index of the {@code j}'th nearest neighbor of point
+     * {@code i}
+     */
+    public int getNeighbor(int i, int j)
+    {
+        return neighbors[i*k+j];
+    }
+
+    /**
+     * Returns the distance from a point to one of its neighbors
+     *
+     * @param i the index of the point
+     * @param j the rank of the neighbor, where 0 is the nearest
+     * @return the distance from point {@code i} to its {@code j}'th nearest
+     * neighbor
+     */
+    public double getDistance(int i, int j)
+    {
+        return distances[i*k+j];
+    }
+
+    /**
+     * Checks that this graph can be used by an algorithm that needs
+     * {@code neededK} neighbors for each point of a data set of size
+     * {@code N}.
+     *
+     * @param N the number of points the graph should contain
+     * @param neededK the number of neighbors needed for each point
+     * @throws IllegalArgumentException if the graph is of the wrong size or
+     * has too few neighbors
+     */
+    public void checkCompatible(int N, int neededK)
+    {
+        if (size() != N)
+            throw new IllegalArgumentException("Graph is for " + size() + " points, but data set has " + N);
+        if (k < neededK)
+            throw new IllegalArgumentException("Graph stores " + k + " neighbors per point, but " + neededK + " are needed");
+    }
+}
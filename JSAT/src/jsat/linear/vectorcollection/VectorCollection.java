@@ -225,7 +225,7 @@ public interface VectorCollection<V extends Vec> extends Cloneable, Serializable
             distances.add(new ArrayList<>());
         }
         
-        ParallelUtils.range(Q.size(), parallel).forEach(i->
+        ParallelUtils.run(parallel, Q.size(), i->
         {
             //this gets everything up to max
             this.search(Q.get(i), r_max, neighbors.get(i), distances.get(i));
@@ -254,7 +254,7 @@ public interface VectorCollection<V extends Vec> extends Cloneable, Serializable
             distances.add(new ArrayList<>());
         }
         
-        ParallelUtils.range(Q.size(), parallel).forEach(i->
+        ParallelUtils.run(parallel, Q.size(), i->
         {
             //this gets everything up to max
             this.search(Q.get(i), numNeighbors, neighbors.get(i), distances.get(i));
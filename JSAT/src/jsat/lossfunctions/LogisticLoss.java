@@ -77,7 +77,18 @@ public class LogisticLoss implements LossC
     
     public static CategoricalResults classify(double score)
     {
-        CategoricalResults cr = new CategoricalResults(2);
+        double[] probs = new double[2];
+        classify(score, probs);
+        return new CategoricalResults(probs);
+    }
+    
+    /**
+     * Stores the probability of each class for the given score
+     * @param score the score for a data point
+     * @param out the array of length 2 to store the class probabilities in
+     */
+    public static void classify(double score, double[] out)
+    {
         final double p;
         if (score > 30)
             p = 1.0;
@@ -85,9 +96,8 @@ public class LogisticLoss implements LossC
             p = 0.0;
         else
             p = 1 / (1 + Math.exp(-score));
-        cr.setProb(0, 1 - p);
-        cr.setProb(1, p);
-        return cr;
+        out[0] = 1 - p;
+        out[1] = p;
     }
 
     @Override
@@ -126,6 +136,12 @@ public class LogisticLoss implements LossC
         return classify(score);
     }
 
+    @Override
+    public void getClassification(double score, double[] out)
+    {
+        classify(score, out);
+    }
+
     @Override
     public double getConjugate(double b, double pred, double y)
     {
@@ -50,6 +50,22 @@ public interface LossC extends LossFunc
      */
     public CategoricalResults getClassification(double score);    
     
+    /**
+     * Given the score value of a data point, this stores the probability of 
+     * each class in the given array. This produces the same values as 
+     * {@link #getClassification(double) }, but lets batch scoring avoid an 
+     * object per data point. 
+     * 
+     * @param score the score for a data point
+     * @param out the array to store the probability of each class in
+     */
+    default public void getClassification(double score, double[] out)
+    {
+        CategoricalResults cr = getClassification(score);
+        for(int i = 0; i < cr.size(); i++)
+            out[i] = cr.getProb(i);
+    }
+    
     @Override
     public LossC clone();
 }
@@ -53,4 +53,17 @@ public interface LossMC extends LossC
      * @return the classification results
      */
     public CategoricalResults getClassification(Vec processed);
+    
+    /**
+     * Given the {@link #process(jsat.linear.Vec, jsat.linear.Vec) processed} 
+     * predictions, stores the probability of each class in the given array. 
+     * @param processed the processed score/prediction vector
+     * @param out the array to store the probability of each class in
+     */
+    default public void getClassification(Vec processed, double[] out)
+    {
+        CategoricalResults cr = getClassification(processed);
+        for(int i = 0; i < cr.size(); i++)
+            out[i] = cr.getProb(i);
+    }
 }
@@ -44,4 +44,11 @@ public class SoftmaxLoss extends LogisticLoss implements LossMC
     {
         return new CategoricalResults(processed.arrayCopy());
     }
+
+    @Override
+    public void getClassification(Vec processed, double[] out)
+    {
+        for(int i = 0; i < processed.length(); i++)
+            out[i] = processed.get(i);
+    }
 }
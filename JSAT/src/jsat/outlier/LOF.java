@@ -16,7 +16,6 @@
  */
 package jsat.outlier;
 
-import java.util.ArrayList;
 import java.util.List;
 import jsat.DataSet;
 import jsat.classifiers.DataPoint;
@@ -24,6 +23,7 @@ import jsat.linear.Vec;
 import jsat.linear.distancemetrics.DistanceMetric;
 import jsat.linear.distancemetrics.EuclideanDistance;
 import jsat.linear.vectorcollection.DefaultVectorCollection;
+import jsat.linear.vectorcollection.KNNGraph;
 import jsat.linear.vectorcollection.VectorCollection;
 import jsat.utils.DoubleList;
 import jsat.utils.IntList;
@@ -85,6 +85,28 @@ public class LOF implements Outlier
     {
         return distanceMetric;
     }
+
+    /**
+     * Sets the collection used to find the nearest neighbors of each point.
+     * An approximate collection such as
+     * {@link jsat.linear.vectorcollection.HNSW} can greatly reduce the cost
+     * of fitting on large, high dimensional, data sets.
+     *
+     * @param vc the vector collection to use for nearest neighbor searches
+     */
+    public void setVectorCollection(VectorCollection<Vec> vc)
+    {
+        this.vc = vc;
+    }
+
+    /**
+     *
+     * @return the vector collection used for nearest neighbor searches
+     */
+    public VectorCollection<Vec> getVectorCollection()
+    {
+        return vc;
+    }
     
     
     
@@ -94,18 +116,36 @@ public class LOF implements Outlier
     {
         X = d.getDataVectors();
         vc.build(parallel, X, distanceMetric);
-        
+        fit(KNNGraph.build(vc, minPnts, parallel), parallel);
+    }
+    
+    /**
+     * Fits the model using the given nearest neighbor graph of the data set,
+     * rather than computing it. Sharing a graph avoids re-computing the
+     * nearest neighbors when they are already known.
+     *
+     * @param d the data set to fit to
+     * @param graph the nearest neighbor graph of the data set, with at least
+     * <i>minPnts</i> neighbors per point
+     * @param parallel {@code true} if multiple threads should be used
+     */
+    public void fit(DataSet d, KNNGraph graph, boolean parallel)
+    {
+        graph.checkCompatible(d.size(), minPnts);
+        X = d.getDataVectors();
+        vc.build(parallel, X, distanceMetric);
+        fit(graph, parallel);
+    }
+    
+    private void fit(KNNGraph graph, boolean parallel)
+    {
         int N = X.size();
         k_distance = new double[N];
-        List<List<Integer>> all_knn = new ArrayList<>();
-        List<List<Double>> all_knn_dists = new ArrayList<>();
-        
-        vc.search(X, minPnts+1, all_knn, all_knn_dists, parallel);//+1 to avoid self distance
         
         ParallelUtils.run(parallel, N, (start, end)->
         {
             for(int i = start; i < end; i++)
-                k_distance[i] = all_knn_dists.get(i).get(minPnts);
+                k_distance[i] = graph.getDistance(i, minPnts-1);
         });
         
         lrd_internal = new double[N];
@@ -115,10 +155,10 @@ public class LOF implements Outlier
             {
                 double reachSum = 0;
 
-                for(int j_indx = 1; j_indx < minPnts+1; j_indx++)
+                for(int j_indx = 0; j_indx < minPnts; j_indx++)
                 {
-                    int neighbor = all_knn.get(i).get(j_indx);
-                    double dist = all_knn_dists.get(i).get(j_indx);
+                    int neighbor = graph.getNeighbor(i, j_indx);
+                    double dist = graph.getDistance(i, j_indx);
                     reachSum += Math.max(k_distance[neighbor], dist);
                 }
                 
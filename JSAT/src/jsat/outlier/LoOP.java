@@ -16,7 +16,6 @@
  */
 package jsat.outlier;
 
-import java.util.ArrayList;
 import java.util.List;
 import jsat.DataSet;
 import jsat.classifiers.DataPoint;
@@ -24,6 +23,7 @@ import jsat.linear.Vec;
 import jsat.linear.distancemetrics.DistanceMetric;
 import jsat.linear.distancemetrics.EuclideanDistance;
 import jsat.linear.vectorcollection.DefaultVectorCollection;
+import jsat.linear.vectorcollection.KNNGraph;
 import jsat.linear.vectorcollection.VectorCollection;
 import jsat.math.SpecialMath;
 import jsat.utils.DoubleList;
@@ -102,19 +102,44 @@ public class LoOP implements Outlier
     {
         List<Vec> X = d.getDataVectors();
         vc.build(parallel, X, distanceMetric);
-        
-        int N = X.size();
+        fit(KNNGraph.build(vc, minPnts, parallel), parallel);
+    }
+    
+    /**
+     * Fits the model using the given nearest neighbor graph of the data set,
+     * rather than computing it. Sharing a graph avoids re-computing the
+     * nearest neighbors when they are already known.
+     *
+     * @param d the data set to fit to
+     * @param graph the nearest neighbor graph of the data set, with at least
+     * <i>minPnts</i> neighbors per point
+     * @param parallel {@code true} if multiple threads should be used
+     */
+    public void fit(DataSet d, KNNGraph graph, boolean parallel)
+    {
+        graph.checkCompatible(d.size(), minPnts);
+        List<Vec> X = d.getDataVectors();
+        vc.build(parallel, X, distanceMetric);
+        fit(graph, parallel);
+    }
+    
+    private void fit(KNNGraph graph, boolean parallel)
+    {
+        int N = graph.size();
         standard_distance = new double[N];
-        List<List<Integer>> all_knn = new ArrayList<>();
-        List<List<Double>> all_knn_dists = new ArrayList<>();
-        
-        vc.search(X, minPnts+1, all_knn, all_knn_dists, parallel);//+1 to avoid self distance
         
         ParallelUtils.run(parallel, N, (start, end)->
         {
             for(int i = start; i < end; i++)
-                standard_distance[i] = Math.sqrt(all_knn_dists.get(i).stream()
-                        .mapToDouble(z->z*z).sum()/minPnts+1e-6);
+            {
+                double sqrdSum = 0;
+                for(int j_indx = 0; j_indx < minPnts; j_indx++)
+                {
+                    double dist = graph.getDistance(i, j_indx);
+                    sqrdSum += dist*dist;
+                }
+                standard_distance[i] = Math.sqrt(sqrdSum/minPnts+1e-6);
+            }
         });
         
         double[] plof_internal = new double[N];
@@ -126,9 +151,9 @@ public class LoOP implements Outlier
             {
                 double neighborSD = 0;
 
-                for(int j_indx = 1; j_indx < minPnts+1; j_indx++)
+                for(int j_indx = 0; j_indx < minPnts; j_indx++)
                 {
-                    int neighbor = all_knn.get(i).get(j_indx);
+                    int neighbor = graph.getNeighbor(i, j_indx);
                     neighborSD += standard_distance[neighbor];
                 }
                 
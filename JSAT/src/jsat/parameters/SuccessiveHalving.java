@@ -0,0 +1,850 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.parameters;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import jsat.DataSet;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.classifiers.ClassificationModelEvaluation;
+import jsat.classifiers.Classifier;
+import jsat.classifiers.DataPoint;
+import jsat.classifiers.WarmClassifier;
+import jsat.distributions.Distribution;
+import jsat.exceptions.FailedToFitException;
+import jsat.regression.RegressionDataSet;
+import jsat.regression.RegressionModelEvaluation;
+import jsat.regression.Regressor;
+import jsat.regression.WarmRegressor;
+import jsat.utils.concurrent.ParallelUtils;
+import jsat.utils.random.RandomUtil;
+
+/**
+ * Successive Halving is a method for tuning the parameters of a classification
+ * or regression algorithm that avoids spending much time on hopeless
+ * candidates. All candidates are first evaluated with a small resource, and
+ * only the best 1/&eta; of them are promoted to the next <i>rung</i>, where
+ * they are evaluated with &eta; times as much resource. This repeats until the
+ * survivors are evaluated with the full resource, and the best of them is
+ * selected. <br>
+ * <br>
+ * By default the resource is the amount of data used. Every rung uses a
+ * random subsample of the data, with the final rung using all of it. If
+ * {@link #setBudgetParameter(java.lang.String, int) a budget parameter} is
+ * given, the resource is instead the value of that parameter, such as the
+ * number of iterations or epochs. In that case models that implement
+ * {@link WarmClassifier} or {@link WarmRegressor} are warm started from their
+ * models of the previous rung, so that only the additional iterations need to
+ * be paid for.<br>
+ * <br>
+ * Parameters can be given either a distribution to sample from, as in
+ * {@link RandomSearch}, or a set of values, as in {@link GridSearch}. If every
+ * parameter is given a set of values, every combination of them will be
+ * evaluated. Otherwise a number of random {@link #setTrials(int) trials} will
+ * be sampled. If {@link #setHyperband(boolean) Hyperband} is used, several
+ * brackets of successive halving are run that trade off the number of
+ * candidates against how small the first resource is, so that a poor choice of
+ * the {@link #setMinResource(double) minimum resource} is not catastrophic. The
+ * same cross validation folds are always used for every candidate, so that
+ * their scores are comparable within a rung.<br>
+ * <br>
+ * After training, the resource spent on each candidate can be obtained from
+ * {@link #getCandidates() }.
+ * <br><br>
+ * See:
+ * <ul>
+ * <li>Jamieson, K., &amp; Talwalkar, A. (2016). <i>Non-stochastic Best Arm
+ * Identification and Hyperparameter Optimization</i>. In Proceedings of the
+ * 19th International Conference on Artificial Intelligence and Statistics (pp.
+ * 240–248).</li>
+ * <li>Li, L., Jamieson, K., DeSalvo, G., Rostamizadeh, A., &amp; Talwalkar, A.
+ * (2018). <i>Hyperband: A Novel Bandit-Based Approach to Hyperparameter
+ * Optimization</i>. Journal of Machine Learning Research, 18(185), 1–52.</li>
+ * </ul>
+ *
+ * @author Edward Raff
+ */
+public class SuccessiveHalving extends ModelSearch
+{
+    private static final long serialVersionUID = 5170287254541936742L;
+
+    private int trials = 81;
+    private double eta = 3;
+    private double minResource = 1.0/27;
+    private boolean hyperband = false;
+    private boolean useWarmStarts = true;
+    private String budgetParameter = null;
+    private int maxBudget;
+
+    /**
+     * The distribution to sample each parameter from, or {@code null} if the
+     * parameter has a fixed set of values
+     */
+    private List<Distribution> searchDistributions;
+    /**
+     * The values to try for each parameter, or {@code null} if the parameter
+     * has a distribution
+     */
+    private List<double[]> searchValues;
+    /**
+     * The candidates evaluated during the last call to train
+     */
+    private List<Candidate> candidates = new ArrayList<>();
+
+    /**
+     * Creates a new SuccessiveHalving search to tune the specified parameters
+     * of a regression model. The parameters still need to be specified by
+     * calling one of the <tt>addParameter</tt> methods.
+     *
+     * @param baseRegressor the regressor to tune the parameters of
+     * @param folds the number of folds of cross-validation to perform to
+     * evaluate each combination of parameters
+     * @throws FailedToFitException if the base regressor does not implement
+     * {@link Parameterized}
+     */
+    public SuccessiveHalving(Regressor baseRegressor, int folds)
+    {
+        super(baseRegressor, folds);
+        searchDistributions = new ArrayList<>();
+        searchValues = new ArrayList<>();
+    }
+
+    /**
+     * Creates a new SuccessiveHalving search to tune the specified parameters
+     * of a classification model. The parameters still need to be specified by
+     * calling one of the <tt>addParameter</tt> methods.
+     *
+     * @param baseClassifier the classifier to tune the parameters of
+     * @param folds the number of folds of cross-validation to perform to
+     * evaluate each combination of parameters
+     * @throws FailedToFitException if the base classifier does not implement
+     * {@link Parameterized}
+     */
+    public SuccessiveHalving(Classifier baseClassifier, int folds)
+    {
+        super(baseClassifier, folds);
+        searchDistributions = new ArrayList<>();
+        searchValues = new ArrayList<>();
+    }
+
+    /**
+     * Copy constructor
+     * @param toCopy the object to copy
+     */
+    public SuccessiveHalving(SuccessiveHalving toCopy)
+    {
+        super(toCopy);
+        this.trials = toCopy.trials;
+        this.eta = toCopy.eta;
+        this.minResource = toCopy.minResource;
+        this.hyperband = toCopy.hyperband;
+        this.useWarmStarts = toCopy.useWarmStarts;
+        this.budgetParameter = toCopy.budgetParameter;
+        this.maxBudget = toCopy.maxBudget;
+        this.searchDistributions = new ArrayList<>(toCopy.searchDistributions.size());
+        for (Distribution d : toCopy.searchDistributions)
+            this.searchDistributions.add(d == null ? null : d.clone());
+        this.searchValues = new ArrayList<>(toCopy.searchValues.size());
+        for (double[] v : toCopy.searchValues)
+            this.searchValues.add(v == null ? null : Arrays.copyOf(v, v.length));
+        this.candidates = new ArrayList<>(toCopy.candidates.size());
+        for (Candidate c : toCopy.candidates)
+            this.candidates.add(new Candidate(c));
+    }
+
+    /**
+     * This method will automatically populate the search space with parameters
+     * based on which Parameter objects return non-null distributions.<br>
+     * <br>
+     * Note, using this method with Cross Validation has the potential for
+     * over-estimating the accuracy of results if the data set is actually used
+     * to for parameter guessing.
+     *
+     * @param data the data set to get parameter estimates from
+     * @return the number of parameters added
+     */
+    public int autoAddParameters(DataSet data)
+    {
+        Parameterized obj;
+        if (baseClassifier != null)
+            obj = (Parameterized) baseClassifier;
+        else
+            obj = (Parameterized) baseRegressor;
+        int totalParms = 0;
+        for (Parameter param : obj.getParameters())
+        {
+            if (param.getName().equals(budgetParameter))
+                continue;
+            Distribution dist = null;
+            if (param instanceof DoubleParameter)
+                dist = ((DoubleParameter) param).getGuess(data);
+            else if (param instanceof IntParameter)
+                dist = ((IntParameter) param).getGuess(data);
+            if (dist != null)
+            {
+                addParameter(param.getName(), dist);
+                totalParms++;
+            }
+        }
+
+        return totalParms;
+    }
+
+    /**
+     * Sets the number of candidates that will be sampled when at least one
+     * parameter was given a distribution. If every parameter was given a set
+     * of values, every combination is used instead. This value is not used
+     * when {@link #setHyperband(boolean) Hyperband} is enabled, as each
+     * bracket determines its own number of candidates.
+     *
+     * @param trials the number of candidates to start with
+     */
+    public void setTrials(int trials)
+    {
+        if (trials < 1)
+            throw new IllegalArgumentException("number of trials must be positive, not " + trials);
+        this.trials = trials;
+    }
+
+    /**
+     *
+     * @return the number of candidates to start with
+     */
+    public int getTrials()
+    {
+        return trials;
+    }
+
+    /**
+     * Sets the reduction factor &eta;. At each rung only the best 1/&eta; of
+     * the candidates are kept, and each survivor is given &eta; times as much
+     * resource.
+     *
+     * @param eta the reduction factor, which must be greater than 1
+     */
+    public void setEta(double eta)
+    {
+        if (!(eta > 1) || Double.isInfinite(eta))
+            throw new IllegalArgumentException("eta must be greater than 1, not " + eta);
+        this.eta = eta;
+    }
+
+    /**
+     *
+     * @return the reduction factor
+     */
+    public double getEta()
+    {
+        return eta;
+    }
+
+    /**
+     * Sets the fraction of the full resource that is used by the first rung.
+     * The number of rungs is determined by how many times this can be
+     * multiplied by &eta; before reaching the full resource.
+     *
+     * @param minResource the fraction of the resource to start with, in
+     * (0, 1]
+     */
+    public void setMinResource(double minResource)
+    {
+        if (!(minResource > 0 && minResource <= 1))
+            throw new IllegalArgumentException("minimum resource must be in (0, 1], not " + minResource);
+        this.minResource = minResource;
+    }
+
+    /**
+     *
+     * @return the fraction of the full resource used by the first rung
+     */
+    public double getMinResource()
+    {
+        return minResource;
+    }
+
+    /**
+     * Sets whether the Hyperband algorithm should be used. Instead of one round
+     * of successive halving, Hyperband runs one bracket for every rung. The
+     * first bracket starts many candidates at the smallest resource, and the
+     * last starts a few candidates at the full resource. Candidates are always
+     * sampled when Hyperband is used.
+     *
+     * @param hyperband {@code true} to use Hyperband, {@code false} to use a
+     * single round of successive halving
+     */
+    public void setHyperband(boolean hyperband)
+    {
+        this.hyperband = hyperband;
+    }
+
+    /**
+     *
+     * @return {@code true} if Hyperband will be used
+     */
+    public boolean isHyperband()
+    {
+        return hyperband;
+    }
+
+    /**
+     * Sets whether or not warm starts will be used, when the model supports
+     * them. Warm starts are only used when the data set can be used by the
+     * model, so a model that can only be warm started from the same data will
+     * only be warm started when a budget parameter is used.
+     *
+     * @param useWarmStarts {@code true} if warm starts should be used
+     */
+    public void setUseWarmStarts(boolean useWarmStarts)
+    {
+        this.useWarmStarts = useWarmStarts;
+    }
+
+    /**
+     *
+     * @return {@code true} if warm starts will be used when possible
+     */
+    public boolean isUseWarmStarts()
+    {
+        return useWarmStarts;
+    }
+
+    /**
+     * Sets an integer parameter of the model, such as the number of iterations
+     * or epochs, to use as the resource instead of the amount of data. Every
+     * rung uses all of the data, and the parameter is set to the rung's
+     * fraction of the given maximum.
+     *
+     * @param name the name of the parameter, or {@code null} to use the
+     * amount of data as the resource
+     * @param maxBudget the value of the parameter for the final rung
+     */
+    public void setBudgetParameter(String name, int maxBudget)
+    {
+        if (name != null)
+        {
+            if (!(getParameterByName(name) instanceof IntParameter))
+                throw new IllegalArgumentException("Parameter " + name + " is not for int values");
+            if (maxBudget < 1)
+                throw new IllegalArgumentException("maximum budget must be positive, not " + maxBudget);
+        }
+        this.budgetParameter = name;
+        this.maxBudget = maxBudget;
+    }
+
+    /**
+     *
+     * @return the name of the parameter used as the resource, or {@code null}
+     * if the amount of data is used
+     */
+    public String getBudgetParameter()
+    {
+        return budgetParameter;
+    }
+
+    /**
+     *
+     * @return the value of the budget parameter used by the final rung
+     */
+    public int getMaxBudget()
+    {
+        return maxBudget;
+    }
+
+    /**
+     * Adds a new parameter to be altered for the model being tuned, with
+     * values sampled from the given distribution.
+     *
+     * @param name the name of the parameter
+     * @param dist the distribution to sample from for this parameter
+     */
+    public void addParameter(String name, Distribution dist)
+    {
+        addParameter(name, dist, null);
+    }
+
+    /**
+     * Adds a new double parameter to be altered for the model being tuned.
+     *
+     * @param name the name of the parameter
+     * @param values the values to try for the specified parameter
+     */
+    public void addParameter(String name, double... values)
+    {
+        if (!(getParameterByName(name) instanceof DoubleParameter))
+            throw new IllegalArgumentException("Parameter " + name + " is not for double values");
+        addParameter(name, null, Arrays.copyOf(values, values.length));
+    }
+
+    /**
+     * Adds a new integer parameter to be altered for the model being tuned.
+     *
+     * @param name the name of the parameter
+     * @param values the values to try for the specified parameter
+     */
+    public void addParameter(String name, int... values)
+    {
+        if (!(getParameterByName(name) instanceof IntParameter))
+            throw new IllegalArgumentException("Parameter " + name + " is not for int values");
+        addParameter(name, null, Arrays.stream(values).asDoubleStream().toArray());
+    }
+
+    private void addParameter(String name, Distribution dist, double[] values)
+    {
+        Parameter param = getParameterByName(name);
+        if (!(param instanceof DoubleParameter || param instanceof IntParameter))
+            throw new IllegalArgumentException("Parameter " + name + " is not for double or int values");
+        if (name.equals(budgetParameter))
+            throw new IllegalArgumentException("Parameter " + name + " is already used as the budget");
+        if (values != null && values.length == 0)
+            throw new IllegalArgumentException("At least one value must be given for parameter " + name);
+        searchParams.add(param);
+        searchDistributions.add(dist == null ? null : dist.clone());
+        searchValues.add(values);
+    }
+
+    /**
+     * Returns every candidate evaluated during the last call to train, in the
+     * order they were created.
+     *
+     * @return the list of candidates evaluated
+     */
+    public List<Candidate> getCandidates()
+    {
+        return Collections.unmodifiableList(candidates);
+    }
+
+    /**
+     *
+     * @return the total resource spent on all candidates during the last call
+     * to train
+     */
+    public double getTotalResourceSpent()
+    {
+        return candidates.stream().mapToDouble(Candidate::getResourceSpent).sum();
+    }
+
+    /**
+     * A set of parameter values evaluated by the search, and the resource spent
+     * evaluating it. When the amount of data is the resource, the resource is
+     * the number of data points used summed over the rungs. When a budget
+     * parameter is used, the resource is the sum of the budget values used,
+     * where a warm started model only pays for the increase in budget.
+     */
+    public static class Candidate implements Serializable
+    {
+        private static final long serialVersionUID = 3196480723151640384L;
+        private final double[] values;
+        private double score = Double.NaN;
+        private int lastRung = -1;
+        private int rungsCompleted;
+        private double resourceSpent;
+        /**
+         * The models trained at the last rung, for warm starting the next
+         */
+        private transient Object[] warmModels;
+
+        private Candidate(double[] values)
+        {
+            this.values = values;
+        }
+
+        private Candidate(Candidate toCopy)
+        {
+            this.values = Arrays.copyOf(toCopy.values, toCopy.values.length);
+            this.score = toCopy.score;
+            this.lastRung = toCopy.lastRung;
+            this.rungsCompleted = toCopy.rungsCompleted;
+            this.resourceSpent = toCopy.resourceSpent;
+        }
+
+        /**
+         *
+         * @return the value of each search parameter, in the order they were
+         * added
+         */
+        public double[] getValues()
+        {
+            return Arrays.copyOf(values, values.length);
+        }
+
+        /**
+         *
+         * @return the mean cross validation score from the last rung this
+         * candidate was evaluated at
+         */
+        public double getScore()
+        {
+            return score;
+        }
+
+        /**
+         *
+         * @return the number of rungs this candidate was evaluated at
+         */
+        public int getRungsCompleted()
+        {
+            return rungsCompleted;
+        }
+
+        /**
+         *
+         * @return the index of the last rung this candidate was evaluated at,
+         * where the largest index uses the full resource
+         */
+        public int getLastRung()
+        {
+            return lastRung;
+        }
+
+        /**
+         *
+         * @return the total resource spent evaluating this candidate
+         */
+        public double getResourceSpent()
+        {
+            return resourceSpent;
+        }
+    }
+
+    /**
+     * Evaluates one candidate at one rung, returning the mean score
+     */
+    private interface RungEvaluator
+    {
+        public double evaluate(Candidate c, int rung);
+    }
+
+    /**
+     *
+     * @return the index of the last rung, which uses the full resource
+     */
+    private int maxRung()
+    {
+        return (int) Math.floor(Math.log(1/minResource)/Math.log(eta) + 1e-9);
+    }
+
+    private double fraction(int rung)
+    {
+        return Math.pow(eta, rung-maxRung());
+    }
+
+    private int budget(int rung)
+    {
+        return (int) Math.max(1, Math.round(maxBudget*fraction(rung)));
+    }
+
+    /**
+     * Sets the parameters of the base model to the candidate's values and then
+     * clones it.
+     */
+    synchronized private <M> M createModel(Candidate c, int rung, Supplier<M> cloner)
+    {
+        for (int i = 0; i < searchParams.size(); i++)
+        {
+            Parameter param = searchParams.get(i);
+            if (param instanceof DoubleParameter)
+                ((DoubleParameter) param).setValue(c.values[i]);
+            else if (param instanceof IntParameter)
+                ((IntParameter) param).setValue((int) Math.round(c.values[i]));
+        }
+        if (budgetParameter != null)
+            ((IntParameter) getParameterByName(budgetParameter)).setValue(budget(rung));
+        return cloner.get();
+    }
+
+    private Candidate sampleCandidate(Random rand)
+    {
+        double[] values = new double[searchParams.size()];
+        for (int i = 0; i < values.length; i++)
+            if (searchDistributions.get(i) != null)
+                values[i] = searchDistributions.get(i).invCdf(rand.nextDouble());
+            else
+                values[i] = searchValues.get(i)[rand.nextInt(searchValues.get(i).length)];
+        return new Candidate(values);
+    }
+
+    /**
+     *
+     * @return every combination of the parameter values
+     */
+    private List<Candidate> gridCandidates()
+    {
+        List<Candidate> grid = new ArrayList<>();
+        int[] setTo = new int[searchParams.size()];
+        while (true)
+        {
+            double[] values = new double[setTo.length];
+            for (int i = 0; i < setTo.length; i++)
+                values[i] = searchValues.get(i)[setTo[i]];
+            grid.add(new Candidate(values));
+
+            int carryPos = 0;
+            while (carryPos < setTo.length && ++setTo[carryPos] >= searchValues.get(carryPos).length)
+                setTo[carryPos++] = 0;
+            if (carryPos == setTo.length)
+                return grid;
+        }
+    }
+
+    /**
+     * Runs the search, returning the best candidate evaluated at the full
+     * resource.
+     *
+     * @param parallel whether or not to use multiple threads
+     * @param lowerIsBetter whether lower scores are better
+     * @param warm whether the evaluator warm starts models, in which case a
+     * budget increase is only charged for the difference
+     * @param rungSizes the number of data points used at each rung
+     * @param evaluator the object to evaluate each candidate with
+     */
+    private Candidate search(boolean parallel, boolean lowerIsBetter, boolean warm, int[] rungSizes, RungEvaluator evaluator)
+    {
+        if (searchParams.isEmpty())
+            throw new FailedToFitException("No parameters were given to search over");
+        candidates = new ArrayList<>();
+        final int maxRung = maxRung();
+        Random rand = RandomUtil.getRandom();
+        boolean isGrid = !hyperband && searchDistributions.stream().allMatch(d -> d == null);
+
+        Comparator<Candidate> order = (a, b) -> (lowerIsBetter ? 1 : -1) * Double.compare(a.score, b.score);
+        Candidate best = null;
+
+        int firstBracket = hyperband ? maxRung : 0;
+        for (int s = firstBracket; s >= 0; s--)
+        {
+            List<Candidate> alive;
+            int startRung;
+            if (isGrid)
+            {
+                alive = gridCandidates();
+                startRung = 0;
+            }
+            else
+            {
+                int n = trials;
+                startRung = 0;
+                if (hyperband)
+                {
+                    n = (int) Math.ceil((maxRung+1)/(s+1.0)*Math.pow(eta, s));
+                    startRung = maxRung-s;
+                }
+                alive = new ArrayList<>(n);
+                for (int i = 0; i < n; i++)
+                    alive.add(sampleCandidate(rand));
+            }
+            candidates.addAll(alive);
+
+            for (int rung = startRung; rung <= maxRung; rung++)
+            {
+                final List<Candidate> toEval = alive;
+                final int r = rung;
+                ParallelUtils.run(parallel && trainModelsInParallel, toEval.size(), (int i) ->
+                {
+                    Candidate c = toEval.get(i);
+                    c.score = evaluator.evaluate(c, r);
+                    if (budgetParameter == null)
+                        c.resourceSpent += rungSizes[r];
+                    else if (warm && c.lastRung >= 0)
+                        c.resourceSpent += budget(r)-budget(c.lastRung);
+                    else
+                        c.resourceSpent += budget(r);
+                    c.lastRung = r;
+                    c.rungsCompleted++;
+                });
+
+                Collections.sort(alive, order);
+                int keep = rung == maxRung ? 0 : Math.max(1, (int) Math.floor(alive.size()/eta));
+                for (Candidate c : alive.subList(keep, alive.size()))
+                    c.warmModels = null;
+                if (rung == maxRung)
+                {
+                    if (best == null || order.compare(alive.get(0), best) < 0)
+                        best = alive.get(0);
+                    alive.get(0).warmModels = null;
+                }
+                alive = new ArrayList<>(alive.subList(0, keep));
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns the first {@code n} points of the given data set
+     */
+    private static ClassificationDataSet head(ClassificationDataSet data, int n)
+    {
+        if (n >= data.size())
+            return data;
+        ClassificationDataSet head = data.emptyClone();
+        for (int i = 0; i < n; i++)
+            head.addDataPoint(data.getDataPoint(i), data.getDataPointCategory(i), data.getWeight(i));
+        return head;
+    }
+
+    /**
+     * Returns the first {@code n} points of the given data set
+     */
+    private static RegressionDataSet head(RegressionDataSet data, int n)
+    {
+        if (n >= data.size())
+            return data;
+        RegressionDataSet head = data.emptyClone();
+        for (int i = 0; i < n; i++)
+        {
+            DataPoint dp = data.getDataPoint(i);
+            head.addDataPoint(dp, data.getTargetValue(i), data.getWeight(i));
+        }
+        return head;
+    }
+
+    @Override
+    public void train(final ClassificationDataSet dataSet, final boolean parallel)
+    {
+        final int maxRung = maxRung();
+        final List<ClassificationDataSet> preFolded = dataSet.cvSet(folds);
+
+        /*
+         * The folds are already in random order, so the first points of each
+         * fold are a random subsample. Smaller rungs use a prefix of the folds
+         * of larger rungs.
+         */
+        final List<List<ClassificationDataSet>> rungFolds = new ArrayList<>();
+        final List<List<ClassificationDataSet>> rungTrains = new ArrayList<>();
+        final int[] rungSizes = new int[maxRung+1];
+        for (int rung = 0; rung <= maxRung; rung++)
+        {
+            if (budgetParameter != null && rung < maxRung)
+            {
+                rungFolds.add(null);
+                rungTrains.add(null);
+                continue;
+            }
+            List<ClassificationDataSet> subFolds = new ArrayList<>(preFolded.size());
+            for (ClassificationDataSet fold : preFolded)
+            {
+                ClassificationDataSet sub = head(fold, (int) Math.ceil(fraction(rung)*fold.size()));
+                subFolds.add(sub);
+                rungSizes[rung] += sub.size();
+            }
+            List<ClassificationDataSet> trainCombinations = new ArrayList<>(subFolds.size());
+            for (int i = 0; i < subFolds.size(); i++)
+                trainCombinations.add(ClassificationDataSet.comineAllBut(subFolds, i));
+            rungFolds.add(subFolds);
+            rungTrains.add(trainCombinations);
+        }
+
+        final boolean warm = useWarmStarts && baseClassifier instanceof WarmClassifier
+                && (budgetParameter != null || !((WarmClassifier) baseClassifier).warmFromSameDataOnly());
+
+        Candidate best = search(parallel, classificationTargetScore.lowerIsBetter(), warm, rungSizes, (c, rung) ->
+        {
+            Classifier model = createModel(c, rung, baseClassifier::clone);
+            int dataRung = budgetParameter == null ? rung : maxRung;
+            ClassificationModelEvaluation cme = new ClassificationModelEvaluation(model, dataSet, !trainModelsInParallel && parallel);
+            cme.addScorer(classificationTargetScore.clone());
+            if (warm)
+            {
+                cme.setKeepModels(true);
+                cme.setWarmModels((Classifier[]) c.warmModels);
+            }
+            cme.evaluateCrossValidation(rungFolds.get(dataRung), rungTrains.get(dataRung));
+            if (warm)
+                c.warmModels = cme.getKeptModels();
+            return cme.getScoreStats(classificationTargetScore).getMean();
+        });
+
+        Classifier bestClassifier = createModel(best, maxRung, baseClassifier::clone);
+        if (trainFinalModel)
+            bestClassifier.train(dataSet, parallel);
+        trainedClassifier = bestClassifier;
+    }
+
+    @Override
+    public void train(final RegressionDataSet dataSet, final boolean parallel)
+    {
+        final int maxRung = maxRung();
+        final List<RegressionDataSet> preFolded = dataSet.cvSet(folds);
+
+        /*
+         * The folds are already in random order, so the first points of each
+         * fold are a random subsample. Smaller rungs use a prefix of the folds
+         * of larger rungs.
+         */
+        final List<List<RegressionDataSet>> rungFolds = new ArrayList<>();
+        final List<List<RegressionDataSet>> rungTrains = new ArrayList<>();
+        final int[] rungSizes = new int[maxRung+1];
+        for (int rung = 0; rung <= maxRung; rung++)
+        {
+            if (budgetParameter != null && rung < maxRung)
+            {
+                rungFolds.add(null);
+                rungTrains.add(null);
+                continue;
+            }
+            List<RegressionDataSet> subFolds = new ArrayList<>(preFolded.size());
+            for (RegressionDataSet fold : preFolded)
+            {
+                RegressionDataSet sub = head(fold, (int) Math.ceil(fraction(rung)*fold.size()));
+                subFolds.add(sub);
+                rungSizes[rung] += sub.size();
+            }
+            List<RegressionDataSet> trainCombinations = new ArrayList<>(subFolds.size());
+            for (int i = 0; i < subFolds.size(); i++)
+                trainCombinations.add(RegressionDataSet.comineAllBut(subFolds, i));
+            rungFolds.add(subFolds);
+            rungTrains.add(trainCombinations);
+        }
+
+        final boolean warm = useWarmStarts && baseRegressor instanceof WarmRegressor
+                && (budgetParameter != null || !((WarmRegressor) baseRegressor).warmFromSameDataOnly());
+
+        Candidate best = search(parallel, regressionTargetScore.lowerIsBetter(), warm, rungSizes, (c, rung) ->
+        {
+            Regressor model = createModel(c, rung, baseRegressor::clone);
+            int dataRung = budgetParameter == null ? rung : maxRung;
+            RegressionModelEvaluation rme = new RegressionModelEvaluation(model, dataSet, !trainModelsInParallel && parallel);
+            rme.addScorer(regressionTargetScore.clone());
+            if (warm)
+            {
+                rme.setKeepModels(true);
+                rme.setWarmModels((Regressor[]) c.warmModels);
+            }
+            rme.evaluateCrossValidation(rungFolds.get(dataRung), rungTrains.get(dataRung));
+            if (warm)
+                c.warmModels = rme.getKeptModels();
+            return rme.getScoreStats(regressionTargetScore).getMean();
+        });
+
+        Regressor bestRegressor = createModel(best, maxRung, baseRegressor::clone);
+        if (trainFinalModel)
+            bestRegressor.train(dataSet, parallel);
+        trainedRegressor = bestRegressor;
+    }
+
+    @Override
+    public SuccessiveHalving clone()
+    {
+        return new SuccessiveHalving(this);
+    }
+}
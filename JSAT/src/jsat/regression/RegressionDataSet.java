@@ -5,6 +5,7 @@ import java.util.*;
 import jsat.DataSet;
 import jsat.DataStore;
 import jsat.RowMajorStore;
+import jsat.SubsetStore;
 import jsat.classifiers.*;
 import jsat.linear.DenseVector;
 import jsat.linear.IndexValue;
@@ -124,6 +125,27 @@ public class RegressionDataSet extends DataSet<RegressionDataSet>
         int numer = list.get(exception).getNumNumericalVars();
         CategoricalData[] categories = list.get(exception).getCategories();
         
+        //if the folds are views of the same data, the combination can be a view too
+        List<DataStore> stores = new ArrayList<>(list.size());
+        for (RegressionDataSet rds : list)
+            stores.add(rds.datapoints);
+        SubsetStore combined = SubsetStore.combineAllBut(stores, exception);
+        if (combined != null)
+        {
+            DoubleList new_targets = new DoubleList(combined.size());
+            for (int i = 0; i < list.size(); i++)
+                if (i != exception)
+                    new_targets.addAll(list.get(i).targets);
+            RegressionDataSet rds = new RegressionDataSet(combined, new_targets);
+            int pos = 0;
+            for (int i = 0; i < list.size(); i++)
+                if (i != exception)
+                    for (int j = 0; j < list.get(i).size(); j++, pos++)
+                        if (list.get(i).weights != null)
+                            rds.setWeight(pos, list.get(i).getWeight(j));
+            return rds;
+        }
+        
         RegressionDataSet rds = new RegressionDataSet(numer, categories);
 
         //The list of data sets
@@ -266,43 +288,12 @@ public class RegressionDataSet extends DataSet<RegressionDataSet>
     }
 
     @Override
-    protected RegressionDataSet getSubset(List<Integer> indicies)
+    protected RegressionDataSet subsetOf(DataStore store, int[] rows)
     {
-	if (this.datapoints.rowMajor())
-	{
-	    RegressionDataSet newData = new RegressionDataSet(numNumerVals, categories);
-	    for (int i : indicies)
-		newData.addDataPoint(getDataPoint(i), getTargetValue(i));
-	    return newData;
-	}
-	else //copy columns at a time to make it faster please! 
-	{
-	    int new_n = indicies.size();
-	    //when we do the vectors, due to potential sparse inputs, we want to do this faster when iterating over values that may/may-not be good and spaced oddly
-	    Map<Integer, Integer> old_indx_to_new = new HashMap<>(indicies.size());
-	    for(int new_i = 0; new_i < indicies.size(); new_i++)
-		old_indx_to_new.put(indicies.get(new_i), new_i);
-	    
-	    DataStore new_ds = this.datapoints.emptyClone();
-	    Iterator<DataPoint> data_iter = this.datapoints.getRowIter();
-	    DoubleList new_targets = new DoubleList();
-	    int orig_pos = 0;
-	    while(data_iter.hasNext())
-	    {
-		DataPoint dp = data_iter.next();
-		if(old_indx_to_new.containsKey(orig_pos))
-		{
-		    DataPoint new_dp = new DataPoint(dp.getNumericalValues().clone(),Arrays.copyOf( dp.getCategoricalValues(), this.getNumCategoricalVars()), categories);
-		    new_ds.addDataPoint(new_dp);
-		    new_targets.add(this.getTargetValue(orig_pos));
-		}
-		orig_pos++;
-	    }
-	    new_ds.finishAdding();
-	    
-	    
-	    return new RegressionDataSet(new_ds, new_targets);
-	}
+        DoubleList newTargets = new DoubleList(rows.length);
+        for (int i : rows)
+            newTargets.add(targets.getD(i));
+        return new RegressionDataSet(store, newTargets);
     }
     
     /**
@@ -2,8 +2,13 @@
 package jsat.regression;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
+import jsat.DataSet;
 import jsat.classifiers.DataPoint;
+import jsat.linear.Matrix;
+import jsat.linear.Vec;
 
 /**
  *
@@ -13,6 +18,54 @@ public interface Regressor extends Cloneable, Serializable
 {
     public double regress(DataPoint data);
     
+    /**
+     * Performs regression on every data point in the given data set. If the 
+     * data set has only numeric features, this is done by 
+     * {@link #regressBatch(java.util.List, double[]) }.
+     * 
+     * @param data the data to regress
+     * @param out the array to store the predicted values in
+     */
+    default public void regress(DataSet data, double[] out)
+    {
+        if(data.getNumCategoricalVars() == 0)
+        {
+            regressBatch(data.getDataVectors(), out);
+            return;
+        }
+        for(int i = 0; i < data.size(); i++)
+            out[i] = regress(data.getDataPoint(i));
+    }
+    
+    /**
+     * Performs regression on every vector in the given list, where each vector
+     * holds only numeric features. Models that can score many points at once, 
+     * such as with a matrix product, should override this method. 
+     * 
+     * @param X the vectors to regress
+     * @param out the array to store the predicted values in
+     */
+    default public void regressBatch(List<Vec> X, double[] out)
+    {
+        for(int i = 0; i < X.size(); i++)
+            out[i] = regress(new DataPoint(X.get(i)));
+    }
+    
+    /**
+     * Performs regression on every row of the given matrix, where each row 
+     * holds only numeric features. 
+     * 
+     * @param X the matrix to regress, with one data point per row
+     * @param out the array to store the predicted values in
+     */
+    default public void regressBatch(Matrix X, double[] out)
+    {
+        List<Vec> rows = new ArrayList<>(X.rows());
+        for(int i = 0; i < X.rows(); i++)
+            rows.add(X.getRowView(i));
+        regressBatch(rows, out);
+    }
+    
     public void train(RegressionDataSet dataSet, boolean parallel);
     
     default public void train(RegressionDataSet dataSet)
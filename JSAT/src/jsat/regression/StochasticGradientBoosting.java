@@ -2,8 +2,15 @@
 package jsat.regression;
 
 import java.util.*;
+import jsat.classifiers.CategoricalData;
 import jsat.classifiers.DataPoint;
 import jsat.classifiers.DataPointPair;
+import jsat.classifiers.trees.BinnedData;
+import jsat.classifiers.trees.CompiledTrees;
+import jsat.classifiers.trees.DecisionTree;
+import jsat.classifiers.trees.NumericBinning;
+import jsat.classifiers.trees.TreeLearner;
+import jsat.classifiers.trees.TreeNodeVisitor;
 import jsat.exceptions.UntrainedModelException;
 import jsat.math.Function1D;
 import jsat.math.rootfinding.RootFinder;
@@ -227,6 +234,34 @@ public class StochasticGradientBoosting implements Regressor, Parameterized
         return result;
     }
     
+    /**
+     * Compiles the trained model into a flat, array based form that can make
+     * predictions faster than walking each tree. This is only possible when
+     * the weak learner and the strong learner (if used) are both
+     * {@link TreeLearner tree learners}.
+     *
+     * @param numNumeric the number of numeric features of the training data
+     * @param catInfo the categorical feature information of the training data
+     * @return the compiled model
+     * @throws UnsupportedOperationException if the learners are not trees
+     * @see CompiledTrees
+     */
+    public CompiledTrees compile(int numNumeric, CategoricalData[] catInfo)
+    {
+        if(F == null || F.isEmpty())
+            throw new UntrainedModelException();
+        List<TreeNodeVisitor> roots = new ArrayList<>(F.size());
+        double[] weights = new double[F.size()];
+        for(int i = 0; i < F.size(); i++)
+        {
+            if(!(F.get(i) instanceof TreeLearner))
+                throw new UnsupportedOperationException("Only tree learners can be compiled, not " + F.get(i).getClass().getSimpleName());
+            roots.add(((TreeLearner) F.get(i)).getTreeNodeVisitor());
+            weights[i] = coef.get(i);
+        }
+        return new CompiledTrees(roots, weights, CompiledTrees.Combination.SUM, 0, numNumeric, catInfo);
+    }
+    
     @Override
     public void train(RegressionDataSet dataSet, boolean parallel)
     {
@@ -236,9 +271,28 @@ public class StochasticGradientBoosting implements Regressor, Parameterized
         F = new ArrayList<>(maxIterations);
         coef = new DoubleList(maxIterations);
         
+        //Trees that bin their numeric features only need to do so once, since every iteration sees the same rows with new targets
+        final BinnedData binned;
+        if(weakLearner instanceof DecisionTree && ((DecisionTree) weakLearner).getMaxNumericBins() > 0 && dataSet.getNumNumericalVars() > 0)
+            binned = new BinnedData(dataSet, new NumericBinning(dataSet, ((DecisionTree) weakLearner).getMaxNumericBins()), parallel);
+        else
+            binned = null;
+        
         //Add the first learner. Either an instance of the weak learner, or a strong initial estimate
-        Regressor lastF = strongLearner == null ? weakLearner.clone() : strongLearner.clone();
-        lastF.train(dataSet, parallel);
+        Regressor lastF;
+        if(strongLearner == null)
+        {
+            lastF = weakLearner.clone();
+            if(binned != null)
+                ((DecisionTree) lastF).train(binned, binned.allRows(), parallel);
+            else
+                lastF.train(dataSet, parallel);
+        }
+        else
+        {
+            lastF = strongLearner.clone();
+            lastF.train(dataSet, parallel);
+        }
         F.add(lastF);
         coef.add(learningRate*getMinimizingErrorConst(dataSet, lastF));
         
@@ -247,6 +301,7 @@ public class StochasticGradientBoosting implements Regressor, Parameterized
          * the current total sum to know the current prediction value
          */
         final double[] currPredictions = new double[dataSet.size()];
+        final double[] residTargets = new double[dataSet.size()];
         
         
         final int randSampleSize = (int) Math.round(resids.size()*trainingProportion);
@@ -269,20 +324,41 @@ public class StochasticGradientBoosting implements Regressor, Parameterized
                 //The next set of residuals could be computed from the previous,
                 //but its more stable to just take the total residuals fromt he 
                 //source each time
-                resids.setTargetValue(j, (dataSet.getTargetValue(j)-currPredictions[j]));
+                residTargets[j] = dataSet.getTargetValue(j)-currPredictions[j];
+                resids.setTargetValue(j, residTargets[j]);
             }
             
             
             
             //Take a random sample
             Collections.shuffle(randOrder, rand);
-            RegressionDataSet subSet = resids.shallowClone();
-	    for(int i : randOrder.subList(0, randSampleSize))
-		subSet.addDataPoint(resids.getDataPoint(i), resids.getTargetValue(i), resids.getWeight(i));
-            
             final Regressor h = weakLearner.clone();
-            
-            h.train(subSet, parallel);
+            if(binned != null)
+            {
+                //the same rows as the copy below, but by index into the binned residuals
+                int[] rows = new int[resids.size()+randSampleSize];
+                double[] weights = new double[rows.length];
+                for(int j = 0; j < resids.size(); j++)
+                {
+                    rows[j] = j;
+                    weights[j] = resids.getWeight(j);
+                }
+                int pos = resids.size();
+                for(int i : randOrder.subList(0, randSampleSize))
+                {
+                    rows[pos] = i;
+                    weights[pos++] = resids.getWeight(i);
+                }
+                ((DecisionTree) h).train(binned.withTargets(residTargets), new BinnedData.Subset(rows, weights), parallel);
+            }
+            else
+            {
+                RegressionDataSet subSet = resids.shallowClone();
+                for(int i : randOrder.subList(0, randSampleSize))
+                    subSet.addDataPoint(resids.getDataPoint(i), resids.getTargetValue(i), resids.getWeight(i));
+
+                h.train(subSet, parallel);
+            }
             double y = getMinimizingErrorConst( resids, h);
             
             F.add(h);
@@ -1,8 +1,8 @@
 package jsat.text;
 
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
 import jsat.DataSet;
 import jsat.SimpleDataSet;
 import jsat.classifiers.CategoricalData;
@@ -12,6 +12,7 @@ import jsat.linear.Vec;
 import jsat.text.tokenizer.Tokenizer;
 import jsat.text.wordweighting.WordWeighting;
 import jsat.utils.IntList;
+import jsat.utils.StringUtils;
 
 /**
  * This class provides a framework for loading datasets made of Text documents
@@ -31,7 +32,10 @@ import jsat.utils.IntList;
  * Instance of this class will keep a reference to all originally added vectors.
  * To transform new texts into vectors without keeping references to all of the
  * original vectors, the {@link #getTextVectorCreator() } will return an object
- * that perform the transformation.
+ * that perform the transformation. <br>
+ * <br>
+ * Tokens are hashed directly from the characters given by the tokenizer, so
+ * no String needs to be created for each token. 
  * 
  * @author Edward Raff
  */
@@ -56,16 +60,30 @@ abstract public class HashedTextDataLoader implements TextVectorCreator
     
     /**
      * Temporary work space to use for tokenization
+     * @deprecated no longer used by this class, which hashes the tokens of
+     * each thread directly. Kept so that subclasses using it continue to
+     * work. 
      */
+    @Deprecated
     protected ThreadLocal<StringBuilder> workSpace;
     /**
      * Temporary storage space to use for tokenization
+     * @deprecated no longer used by this class, kept so that subclasses using
+     * it continue to work. 
      */
+    @Deprecated
     protected ThreadLocal<List<String>> storageSpace;
     /**
      * Temporary space to use when creating vectors
+     * @deprecated no longer used by this class, kept so that subclasses using
+     * it continue to work. 
      */
+    @Deprecated
     protected ThreadLocal<Map<String, Integer>> wordCounts;
+    /**
+     * Temporary space to use when creating vectors
+     */
+    private ThreadLocal<HashedDocument> localDocument;
     
     private TextVectorCreator tvc;
     
@@ -87,6 +105,7 @@ abstract public class HashedTextDataLoader implements TextVectorCreator
         this.workSpace = new ThreadLocal<StringBuilder>();
         this.storageSpace = new ThreadLocal<List<String>>();
         this.wordCounts = new ThreadLocal<Map<String, Integer>>();
+        this.localDocument = new ThreadLocal<HashedDocument>();
     }
     
     /**
@@ -117,45 +136,20 @@ abstract public class HashedTextDataLoader implements TextVectorCreator
     {
         if(noMoreAdding)
             throw new RuntimeException("Initial data set has been finalized");
-        StringBuilder localWorkSpace = workSpace.get();
-        List<String> localStorageSpace = storageSpace.get();
-        Map<String, Integer> localWordCounts = wordCounts.get();
-        if(localWorkSpace == null)
+        HashedDocument doc = localDocument.get();
+        if(doc == null)
         {
-            localWorkSpace = new StringBuilder();
-            localStorageSpace = new ArrayList<String>();
-            localWordCounts = new LinkedHashMap<String, Integer>();
-            workSpace.set(localWorkSpace);
-            storageSpace.set(localStorageSpace);
-            wordCounts.set(localWordCounts);
+            doc = new HashedDocument(dimensionSize);
+            localDocument.set(doc);
+            workSpace.set(doc.workSpace);
+            storageSpace.set(new ArrayList<String>());
+            wordCounts.set(new LinkedHashMap<String, Integer>());
         }
         
-        localWorkSpace.setLength(0);
-        localStorageSpace.clear();
-        
-        
-        tokenizer.tokenize(text, localWorkSpace, localStorageSpace);
-        
-        for(String word : localStorageSpace)
-        {
-            Integer count = localWordCounts.get(word);
-            if(count == null)
-                localWordCounts.put(word, 1);
-            else
-                localWordCounts.put(word, count+1);
-        }
+        doc.workSpace.setLength(0);
+        tokenizer.tokenize(text, doc.workSpace, doc);
         
-        SparseVector vec = new SparseVector(dimensionSize, localWordCounts.size());
-        for(Iterator<Entry<String, Integer>> iter = localWordCounts.entrySet().iterator(); iter.hasNext();)
-        {
-            Entry<String, Integer> entry = iter.next();
-            String word = entry.getKey();
-            //XXX This code generates a hashcode and then computes the absolute value of that hashcode. If the hashcode is Integer.MIN_VALUE, then the result will be negative as well (since Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE). 
-            int index = Math.abs(word.hashCode()) % dimensionSize;
-            vec.set(index, entry.getValue());
-            termDocumentFrequencys.addAndGet(index, entry.getValue());
-            iter.remove();
-        }
+        SparseVector vec = doc.toVector(termDocumentFrequencys);
         
         synchronized(vectors)
         {
@@ -175,6 +169,7 @@ abstract public class HashedTextDataLoader implements TextVectorCreator
         workSpace = null;
         storageSpace = null;
         wordCounts = null;
+        localDocument = null;
         
         final int[] frqs = new int[dimensionSize];
         for(int i = 0; i < termDocumentFrequencys.length(); i++)
@@ -199,12 +194,11 @@ abstract public class HashedTextDataLoader implements TextVectorCreator
             finishAdding();
         }
         
-        List<DataPoint> dataPoints= new ArrayList<DataPoint>(vectors.size());
-        
+        SimpleDataSet dataSet = new SimpleDataSet(dimensionSize, new CategoricalData[0]);
         for(SparseVector vec : vectors)
-            dataPoints.add(new DataPoint(vec, new int[0], new CategoricalData[0]));
+            dataSet.add(new DataPoint(vec));
         
-        return new SimpleDataSet(dataPoints);
+        return dataSet;
     }
 
     @Override
@@ -232,4 +226,62 @@ abstract public class HashedTextDataLoader implements TextVectorCreator
         return tvc;
     }
     
+    
+    /**
+     * The work space used by a thread to create the vector for a document
+     */
+    private static final class HashedDocument implements Consumer<CharSequence>
+    {
+        final StringBuilder workSpace = new StringBuilder();
+        private final int dimensionSize;
+        /**
+         * The feature index of each token in the current document
+         */
+        private int[] tokens = new int[256];
+        private int tokenCount = 0;
+
+        public HashedDocument(int dimensionSize)
+        {
+            this.dimensionSize = dimensionSize;
+        }
+
+        @Override
+        public void accept(CharSequence token)
+        {
+            if(tokenCount == tokens.length)
+                tokens = Arrays.copyOf(tokens, tokenCount*2);
+            //must match the index used by HashedTextVectorCreator
+            //XXX This code generates a hashcode and then computes the absolute value of that hashcode. If the hashcode is Integer.MIN_VALUE, then the result will be negative as well (since Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE). 
+            tokens[tokenCount++] = Math.abs(StringUtils.stringHashCode(token)) % dimensionSize;
+        }
+        
+        /**
+         * Creates the vector of token counts for the current document, and
+         * resets for the next document. 
+         * @param termFrequencys the total count of each feature, which will be 
+         * incremented by the counts in this document
+         * @return the vector of token counts
+         */
+        SparseVector toVector(AtomicIntegerArray termFrequencys)
+        {
+            Arrays.sort(tokens, 0, tokenCount);
+            int nnz = 0;
+            for(int i = 0; i < tokenCount; i++)
+                if(i == 0 || tokens[i] != tokens[i-1])
+                    nnz++;
+            int[] indices = new int[nnz];
+            double[] values = new double[nnz];
+            int pos = -1;
+            for(int i = 0; i < tokenCount; i++)
+            {
+                if(i == 0 || tokens[i] != tokens[i-1])
+                    indices[++pos] = tokens[i];
+                values[pos]++;
+            }
+            for(int j = 0; j < nnz; j++)
+                termFrequencys.addAndGet(indices[j], (int) values[j]);
+            tokenCount = 0;
+            return new SparseVector(indices, values, dimensionSize, nnz);
+        }
+    }
 }
@@ -4,20 +4,22 @@ package jsat.text;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.function.Consumer;
 
 import jsat.DataSet;
 import jsat.SimpleDataSet;
 import jsat.classifiers.CategoricalData;
 import jsat.classifiers.DataPoint;
 import jsat.datatransform.RemoveAttributeTransform;
+import jsat.linear.IndexValue;
 import jsat.linear.SparseVector;
 import jsat.linear.Vec;
 import jsat.text.tokenizer.Tokenizer;
 import jsat.text.wordweighting.WordWeighting;
 import jsat.utils.IntList;
 import jsat.utils.IntSet;
+import jsat.utils.StringUtils;
+import jsat.utils.concurrent.ParallelUtils;
 
 /**
  * This class provides a framework for loading datasets made of Text documents
@@ -37,8 +39,14 @@ import jsat.utils.IntSet;
  * Instance of this class will keep a reference to all originally added vectors.
  * To transform new texts into vectors without keeping references to all of the
  * original vectors, the {@link #getTextVectorCreator() } will return an object
- * that perform the transformation. 
-  
+ * that perform the transformation. <br>
+ * <br>
+ * Each thread adding documents builds its own vocabulary, where tokens are
+ * identified by a 64 bit hash of their characters and counted with primitive
+ * hash tables, so that threads never contend with each other and a String is
+ * only created the first time a thread sees a token. The vocabularies are
+ * merged, and the documents mapped to the final feature indices, when
+ * {@link #finishAdding() } is called. 
  *
  * @author Edward Raff 
  */
@@ -56,35 +64,62 @@ public abstract class TextDataLoader implements TextVectorCreator
     protected Tokenizer tokenizer;
     
     /**
-     * Maps words to their associated index in an array
+     * Maps words to their associated index in an array. Populated when 
+     * {@link #finishAdding() } is called. 
      */
     protected ConcurrentHashMap<String, Integer> wordIndex;
     /**
-     * list of all word tokens encountered in order of first observation
+     * list of all word tokens encountered in order of their index
      */
     protected List<String> allWords;
     /**
      * The map of integer counts of how many times each word token was seen. Key
-     * is the index of the word, value is the number of times it was seen. Using
-     * a map instead of a list so that it can be updated in a efficient thread
-     * safe way
+     * is the index of the word, value is the number of times it was seen. 
+     * Populated when {@link #finishAdding() } is called. 
+     * @deprecated no longer used by this class, which keeps the counts in an
+     * array. Kept so that subclasses reading it continue to work. 
      */
+    @Deprecated
     protected ConcurrentHashMap<Integer, AtomicInteger> termDocumentFrequencys;
+    /**
+     * The number of documents each word token was seen in, indexed by the 
+     * index of the word. Populated when {@link #finishAdding() } is called. 
+     */
+    private IntList docFrequencies;
     private WordWeighting weighting;
     
     /**
      * Temporary work space to use for tokenization
+     * @deprecated no longer used by this class, which tokenizes into each
+     * thread's own vocabulary. Kept so that subclasses using it continue to
+     * work. 
      */
+    @Deprecated
     protected ThreadLocal<StringBuilder> workSpace;
     /**
      * Temporary storage space to use for tokenization
+     * @deprecated no longer used by this class, kept so that subclasses using
+     * it continue to work. 
      */
+    @Deprecated
     protected ThreadLocal<List<String>> storageSpace;
     /**
      * Temporary space to use when creating vectors
+     * @deprecated no longer used by this class, kept so that subclasses using
+     * it continue to work. 
      */
+    @Deprecated
     protected ThreadLocal<Map<String, Integer>> wordCounts;
     
+    /**
+     * The vocabulary and documents of the thread adding documents
+     */
+    private ThreadLocal<Shard> localShard;
+    /**
+     * The vocabularies of all threads that have added documents
+     */
+    private List<Shard> shards;
+    
     private TextVectorCreator tvc;
     
     /**
@@ -92,8 +127,7 @@ public abstract class TextDataLoader implements TextVectorCreator
      * documents can be inserted
      */
     protected boolean noMoreAdding;
-    private final AtomicInteger currentLength = new AtomicInteger(0);
-    private volatile int documents;
+    private final AtomicInteger documents = new AtomicInteger(0);
 
     /**
      * Creates a new loader for text datasets
@@ -107,12 +141,15 @@ public abstract class TextDataLoader implements TextVectorCreator
         
         this.wordIndex = new ConcurrentHashMap<String, Integer>();
         this.termDocumentFrequencys = new ConcurrentHashMap<Integer, AtomicInteger>();
+        this.docFrequencies = new IntList();
         this.weighting = weighting;
         this.allWords = new ArrayList<String>();
         noMoreAdding = false;
         this.workSpace = new ThreadLocal<StringBuilder>();
         this.storageSpace = new ThreadLocal<List<String>>();
         this.wordCounts = new ThreadLocal<Map<String, Integer>>();
+        this.localShard = new ThreadLocal<Shard>();
+        this.shards = new ArrayList<Shard>();
     }
     
     /**
@@ -144,127 +181,26 @@ public abstract class TextDataLoader implements TextVectorCreator
     {
         if(noMoreAdding)
             throw new RuntimeException("Initial data set has been finalized");
-        StringBuilder localWorkSpace = workSpace.get();
-        List<String> localStorageSpace = storageSpace.get();
-        Map<String, Integer> localWordCounts = wordCounts.get();
-        if(localWorkSpace == null)
+        Shard shard = localShard.get();
+        if(shard == null)
         {
-            localWorkSpace = new StringBuilder();
-            localStorageSpace = new ArrayList<String>();
-            localWordCounts = new LinkedHashMap<String, Integer>();
-            workSpace.set(localWorkSpace);
-            storageSpace.set(localStorageSpace);
-            wordCounts.set(localWordCounts);
-        }
-
-        localWorkSpace.setLength(0);
-        localStorageSpace.clear();
-        localWordCounts.clear();
-        
-        tokenizer.tokenize(text, localWorkSpace, localStorageSpace);
-        
-        for(String word : localStorageSpace)
-        {
-            Integer count = localWordCounts.get(word);
-            if(count == null)
-                localWordCounts.put(word, 1);
-            else
-                localWordCounts.put(word, count+1);
-        }
-        
-        SparseVector vec = new SparseVector(currentLength.get()+1, localWordCounts.size());//+1 to avoid issues when its length is zero, will be corrected in finalization step anyway
-        for(Iterator<Map.Entry<String, Integer>> iter = localWordCounts.entrySet().iterator(); iter.hasNext();)
-        {
-            Map.Entry<String, Integer> entry = iter.next();
-            String word = entry.getKey();
-            
-            int ms_to_sleep = 1;
-            while(!addWord(word, vec, entry.getValue()))//try in a loop, expoential back off 
+            shard = new Shard();
+            localShard.set(shard);
+            workSpace.set(shard.workSpace);
+            storageSpace.set(new ArrayList<String>());
+            wordCounts.set(new LinkedHashMap<String, Integer>());
+            synchronized(shards)
             {
-                try
-                {
-                    Thread.sleep(ms_to_sleep);
-                    ms_to_sleep = Math.min(100, ms_to_sleep*2);
-                }
-                catch (InterruptedException ex)
-                {
-                    Logger.getLogger(TextDataLoader.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                shards.add(shard);
             }
         }
-        localWordCounts.clear();
-        
-        synchronized(vectors)
-        {
-            vectors.add(vec);
-            return documents++;
-        }
-    }
 
-    /**
-     * Does the work to add a given word to the sparse vector. May not succeed
-     * in race conditions when two ore more threads are trying to add a word at
-     * the same time.
-     *
-     * @param word the word to add to the vector
-     * @param vec the location to store the word occurrence
-     * @param entry the number of times the word occurred
-     * @return {@code true} if the word was successfully added. {@code false} if
-     * the word wasn't added due to a race- and should be tried again
-     */
-    private boolean addWord(String word, SparseVector vec, Integer value)
-    {
-        Integer indx = wordIndex.get(word);
-        if(indx == null)//this word has never been seen before!
-        {
-            Integer index_for_new_word;
-            if((index_for_new_word = wordIndex.putIfAbsent(word, -1)) == null)//I won the race to insert this word into the map
-            {
-                /*
-                * we need to do this increment after words to avoid a race
-                * condition where two people incrment currentLength for the
-                * same word, as that will throw off other word additions
-                * before we can fix the problem
-                */
-                index_for_new_word = currentLength.getAndIncrement();
-                wordIndex.put(word, index_for_new_word);//overwrite with correct value
-            }
-            if(index_for_new_word < 0)
-                return false;
-            
-            //possible race on tdf as well when two threads found same new word at the same time
-            AtomicInteger termCount = new AtomicInteger(0), tmp = null;
-            tmp = termDocumentFrequencys.putIfAbsent(index_for_new_word, termCount);
-            if(tmp != null)
-                termCount = tmp;
-            termCount.incrementAndGet();
-            
-            int newLen = Math.max(index_for_new_word+1, vec.length());
-            vec.setLength(newLen);
-            vec.set(index_for_new_word, value);
-        }
-        else//this word has been seen before
-        {
-            if(indx < 0)
-                return false;
-            
-            AtomicInteger toInc = termDocumentFrequencys.get(indx);
-            if (toInc == null)
-            {
-                //wordIndex and termDocumnetFrequences are not updated
-                //atomicly together, so could get index but not have tDF ready
-                toInc = termDocumentFrequencys.putIfAbsent(indx, new AtomicInteger(1));
-                if (toInc == null)//other person finished adding before we "fixed" via putIfAbsent
-                    toInc = termDocumentFrequencys.get(indx);
-            }
-            toInc.incrementAndGet();
-            
-            if (vec.length() <= indx)//happens when another thread sees the word first and adds it, then get check and find it- but haven't increased our vector legnth
-                vec.setLength(indx+1);
-            vec.set(indx, value);
-        }
+        shard.workSpace.setLength(0);
+        tokenizer.tokenize(text, shard.workSpace, shard);
         
-        return true;
+        int index = documents.getAndIncrement();
+        shard.addDocument(index);
+        return index;
     }
     
     /**
@@ -274,21 +210,69 @@ public abstract class TextDataLoader implements TextVectorCreator
     protected void finishAdding()
     {
         noMoreAdding = true;
+        localShard = null;
         
         workSpace = null;
         storageSpace = null;
         wordCounts = null;
         
-        int finalLength = currentLength.get();
-        int[] frqs = new int[finalLength];
-        for(Map.Entry<Integer, AtomicInteger> entry : termDocumentFrequencys.entrySet())
-            frqs[entry.getKey()] = entry.getValue().get();
-        for(SparseVector vec : vectors)
+        //merge the vocabulary of each thread, in order, into the final one
+        final Vocabulary vocab = new Vocabulary();
+        final int[][] localToGlobal = new int[shards.size()][];
+        for(int s = 0; s < shards.size(); s++)
         {
-            //Make sure all the vectors have the same length
-            vec.setLength(finalLength);
+            Shard shard = shards.get(s);
+            int[] map = localToGlobal[s] = new int[shard.words.size()];
+            for(int j = 0; j < map.length; j++)
+            {
+                map[j] = vocab.indexOf(shard.words.get(j));
+                vocab.docFreqs[map[j]] += shard.docFreqs[j];
+            }
         }
-        weighting.setWeight(vectors, IntList.view(frqs, finalLength));
+        
+        final int finalLength = vocab.words.size();
+        //now the documents from each thread can be mapped to their final indices
+        final SparseVector[] finalVectors = new SparseVector[documents.get()];
+        ParallelUtils.run(true, shards.size(), s ->
+        {
+            Shard shard = shards.get(s);
+            int[] map = localToGlobal[s];
+            for(int d = 0; d < shard.docs.size(); d++)
+            {
+                SparseVector local = shard.docs.get(d);
+                int nnz = local.nnz();
+                //sort by the new index, keeping the old position in the low bits
+                long[] order = new long[nnz];
+                double[] localValues = new double[nnz];
+                int pos = 0;
+                for(IndexValue iv : local)
+                {
+                    order[pos] = ((long) map[iv.getIndex()] << 32) | pos;
+                    localValues[pos++] = iv.getValue();
+                }
+                Arrays.sort(order);
+                int[] indices = new int[nnz];
+                double[] values = new double[nnz];
+                for(int j = 0; j < nnz; j++)
+                {
+                    indices[j] = (int) (order[j] >>> 32);
+                    values[j] = localValues[(int) order[j]];
+                }
+                finalVectors[shard.docIndex.getI(d)] = new SparseVector(indices, values, Math.max(finalLength, 1), nnz);
+            }
+            shard.docs.clear();
+        });
+        shards = null;
+        vectors.clear();
+        vectors.addAll(Arrays.asList(finalVectors));
+        
+        allWords = vocab.words;
+        for(int i = 0; i < finalLength; i++)
+            wordIndex.put(allWords.get(i), i);
+        docFrequencies = IntList.view(vocab.docFreqs, finalLength);
+        for(int i = 0; i < finalLength; i++)
+            termDocumentFrequencys.put(i, new AtomicInteger(vocab.docFreqs[i]));
+        weighting.setWeight(vectors, docFrequencies);
         
         System.out.println("Final Length: " + finalLength);
         for(SparseVector vec : vectors)
@@ -312,12 +296,11 @@ public abstract class TextDataLoader implements TextVectorCreator
             finishAdding();
         }
         
-        List<DataPoint> dataPoints= new ArrayList<DataPoint>(vectors.size());
-        
+        SimpleDataSet dataSet = new SimpleDataSet(allWords.size(), new CategoricalData[0]);
         for(SparseVector vec : vectors)
-            dataPoints.add(new DataPoint(vec, new int[0], new CategoricalData[0]));
+            dataSet.add(new DataPoint(vec));
         
-        return new SimpleDataSet(dataPoints);
+        return dataSet;
     }
     
     /**
@@ -358,20 +341,13 @@ public abstract class TextDataLoader implements TextVectorCreator
     }
     
     /**
-     * Returns the original token for the given index in the data set
+     * Returns the original token for the given index in the data set. Only
+     * available once all original documents have been loaded. 
      * @param index the numeric feature index
      * @return the word token associated with the index
      */
     public String getWordForIndex(int index)
     {
-        //lazy population of allWords array
-        if(allWords.size() != wordIndex.size())//we added since this was done
-        {
-            while(allWords.size() < wordIndex.size())
-                allWords.add("");
-            for(Map.Entry<String, Integer> entry : wordIndex.entrySet())
-                allWords.set(entry.getValue(), entry.getKey());
-        }
         if(index >= 0 && index < allWords.size())
             return allWords.get(index);
         else
@@ -385,7 +361,7 @@ public abstract class TextDataLoader implements TextVectorCreator
      */
     public int getTermFrequency(int index)
     {
-        return termDocumentFrequencys.get(index).get();
+        return docFrequencies.getI(index);
     }
     
     /**
@@ -400,10 +376,159 @@ public abstract class TextDataLoader implements TextVectorCreator
     {
         
         final Set<Integer> numericToRemove = new IntSet();
-        for(int i = 0; i < termDocumentFrequencys.size(); i++)
-            if(termDocumentFrequencys.get(i).get() < minCount)
+        for(int i = 0; i < docFrequencies.size(); i++)
+            if(docFrequencies.getI(i) < minCount)
                 numericToRemove.add(i);
         
         return new RemoveAttributeTransform(Collections.EMPTY_SET, numericToRemove);
     }
+    
+    /**
+     * A vocabulary of tokens, where each token is identified by a 64 bit hash
+     * of its characters. Tokens are given an index in the order they are first
+     * seen. Hash collisions between distinct tokens are not checked for, as 
+     * they are unlikely even with hundreds of millions of distinct tokens. 
+     */
+    private static class Vocabulary
+    {
+        /**
+         * Open addressing table of token hashes, paired with {@link #ids}
+         */
+        private long[] hashes = new long[1024];
+        /**
+         * The index+1 of the token for each hash, or zero if the slot is empty
+         */
+        private int[] ids = new int[1024];
+        /**
+         * Each token, in the order of its index
+         */
+        final List<String> words = new ArrayList<String>();
+        /**
+         * The number of documents each token was seen in
+         */
+        int[] docFreqs = new int[1024];
+
+        /**
+         * Returns the index of the given token, adding it to the vocabulary if
+         * it has not been seen before. 
+         * @param token the token to get the index of, a String will only be 
+         * created from it if the token is new
+         * @return the index of the token
+         */
+        int indexOf(CharSequence token)
+        {
+            final long hash = StringUtils.hash64(token);
+            int mask = hashes.length-1;
+            int i = (int) (hash ^ (hash >>> 32)) & mask;
+            while(ids[i] != 0)
+            {
+                if(hashes[i] == hash)
+                    return ids[i]-1;
+                i = (i+1) & mask;
+            }
+            
+            int id = words.size();
+            words.add(token.toString());
+            hashes[i] = hash;
+            ids[i] = id+1;
+            if(id >= docFreqs.length)
+                newTokenSpace(id*2);
+            if(words.size()*2 > hashes.length)//keep the load factor at or below 0.5
+                enlarge();
+            return id;
+        }
+        
+        /**
+         * Called when the per token arrays need to be grown
+         * @param size the new size for the per token arrays
+         */
+        protected void newTokenSpace(int size)
+        {
+            docFreqs = Arrays.copyOf(docFreqs, size);
+        }
+        
+        private void enlarge()
+        {
+            long[] oldHashes = hashes;
+            int[] oldIds = ids;
+            hashes = new long[oldHashes.length*2];
+            ids = new int[oldIds.length*2];
+            int mask = hashes.length-1;
+            for(int j = 0; j < oldIds.length; j++)
+                if(oldIds[j] != 0)
+                {
+                    long hash = oldHashes[j];
+                    int i = (int) (hash ^ (hash >>> 32)) & mask;
+                    while(ids[i] != 0)
+                        i = (i+1) & mask;
+                    hashes[i] = hash;
+                    ids[i] = oldIds[j];
+                }
+        }
+    }
+    
+    /**
+     * The vocabulary and documents added by a single thread. The documents
+     * use the local indices of the vocabulary until they are mapped to their
+     * final indices in {@link #finishAdding() }. 
+     */
+    private static final class Shard extends Vocabulary implements Consumer<CharSequence>
+    {
+        final StringBuilder workSpace = new StringBuilder();
+        /**
+         * The number of times each token occurred in the current document
+         */
+        private int[] counts = new int[1024];
+        /**
+         * The tokens that occurred in the current document
+         */
+        private int[] seen = new int[64];
+        private int seenCount = 0;
+        /**
+         * The global index of each document in {@link #docs}
+         */
+        final IntList docIndex = new IntList();
+        final List<SparseVector> docs = new ArrayList<SparseVector>();
+
+        @Override
+        public void accept(CharSequence token)
+        {
+            int id = indexOf(token);
+            if(counts[id]++ == 0)
+            {
+                if(seenCount == seen.length)
+                    seen = Arrays.copyOf(seen, seenCount*2);
+                seen[seenCount++] = id;
+            }
+        }
+
+        @Override
+        protected void newTokenSpace(int size)
+        {
+            super.newTokenSpace(size);
+            counts = Arrays.copyOf(counts, size);
+        }
+        
+        /**
+         * Creates the vector for the tokens seen since the last document, and
+         * resets the counts for the next document. 
+         * @param index the global index of the document
+         */
+        void addDocument(int index)
+        {
+            Arrays.sort(seen, 0, seenCount);
+            int[] indices = Arrays.copyOf(seen, seenCount);
+            double[] values = new double[seenCount];
+            for(int j = 0; j < seenCount; j++)
+            {
+                int id = indices[j];
+                values[j] = counts[id];
+                counts[id] = 0;
+                docFreqs[id]++;
+            }
+            docs.add(new SparseVector(indices, values, Math.max(words.size(), 1), seenCount));
+            docIndex.add(index);
+            seenCount = 0;
+        }
+    }
 }
@@ -3,6 +3,7 @@ package jsat.text.tokenizer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  *
@@ -102,6 +103,12 @@ public class NaiveTokenizer implements Tokenizer
 
     @Override
     public void tokenize(String input, StringBuilder workSpace, List<String> storageSpace)
+    {
+        tokenize(input, workSpace, (CharSequence token) -> storageSpace.add(token.toString()));
+    }
+
+    @Override
+    public void tokenize(CharSequence input, StringBuilder workSpace, Consumer<CharSequence> tokens)
     {
         for(int i = 0; i < input.length(); i++)
         {
@@ -118,13 +125,14 @@ public class NaiveTokenizer implements Tokenizer
             else //end of token
             {
                 if(workSpace.length() >= minTokenLength && workSpace.length() <= maxTokenLength)
-                    storageSpace.add(workSpace.toString());
+                    tokens.accept(workSpace);
                 workSpace.setLength(0);
             }
         }
         
         if(workSpace.length() >= minTokenLength && workSpace.length() <= maxTokenLength)
-            storageSpace.add(workSpace.toString());
+            tokens.accept(workSpace);
+        workSpace.setLength(0);
     }
 
     /**
@@ -2,7 +2,9 @@
 package jsat.text.tokenizer;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface for taking the text of a document and breaking it up into features.
@@ -40,4 +42,29 @@ public interface Tokenizer extends Serializable
      * tokens into
      */
     public void tokenize(String input, StringBuilder workSpace, List<String> storageSpace);
+    
+    /**
+     * Breaks the input into a series of tokens, and gives each token to the
+     * consumer as soon as it is found. Unlike the other tokenize methods, the
+     * token given may be a mutable sequence (such as the work space) that is
+     * only valid for the duration of the call to the consumer. This allows
+     * tokenizers to avoid creating a new String for every token, and callers
+     * must use {@link CharSequence#toString() } if they need to keep a token.
+     * <br>
+     * The default implementation calls
+     * {@link #tokenize(java.lang.String, java.lang.StringBuilder, java.util.List) }
+     * and gives each token to the consumer. <br>
+     * This method should be thread safe
+     *
+     * @param input the sequence of characters to tokenize
+     * @param workSpace an already allocated (but empty) string builder than can
+     * be used as a temporary work space.
+     * @param tokens the consumer that will be given each token in order
+     */
+    default public void tokenize(CharSequence input, StringBuilder workSpace, Consumer<CharSequence> tokens)
+    {
+        List<String> storageSpace = new ArrayList<String>();
+        tokenize(input.toString(), workSpace, storageSpace);
+        storageSpace.forEach(tokens);
+    }
 }
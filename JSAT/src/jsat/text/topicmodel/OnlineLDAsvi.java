@@ -1,26 +1,17 @@
 package jsat.text.topicmodel;
 
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import jsat.DataSet;
 import jsat.exceptions.FailedToFitException;
 import jsat.linear.DenseVector;
 import jsat.linear.IndexValue;
 import jsat.linear.ScaledVector;
-import jsat.linear.SparseVector;
 import jsat.linear.Vec;
 import jsat.math.FastMath;
 import jsat.parameters.Parameter;
 import jsat.parameters.Parameterized;
-import jsat.utils.DoubleList;
-import jsat.utils.FakeExecutor;
 import jsat.utils.IntList;
-import jsat.utils.ListUtils;
 import jsat.utils.SystemInfo;
 import jsat.utils.concurrent.ParallelUtils;
 import jsat.utils.random.RandomUtil;
@@ -123,40 +114,42 @@ public class OnlineLDAsvi implements Parameterized
     /*
      * Using lists instead of matricies b/c we want to use HDP-OnlineLDAsvi for 
      * when k is not specified <br>
-     * One row for each K topics, each vec is |W| long
+     * One row for each K topics, each vec is |W| long. Each is a ScaledVector
+     * so that the per update shrinkage of lambda is lazily applied to all of
+     * the words not present in the current batch. 
      * <br><br>
      * Lambda is also used to determine if the rest of the structures need to be
      * re-intialized. When lambda is {@code null} the structures need to be 
      * reinitialized. 
      */
     private List<Vec> lambda;
-    private List<Lock> lambdaLocks;
     /**
      * Used to store the sum of each vector in {@link #lambda}. Updated live to avoid uncessary changes
      */
-    private DoubleList lambdaSums;
+    private double[] lambdaSums;
     private int[] lastUsed;
-    private List<Vec> ELogBeta;//See equation 6 in 2010 paper
-    private List<Vec> ExpELogBeta;//See line 7 update in 2013 paper / equation (5) in 2010 paper
-
     /**
-     * Holds the temp vector used to store gamma 
-     * 
-     * Gamma contains the per document update counterpart to {@link #lambda}. 
-     * 
-     * We need one gamma for each document, and each will have a value for all K
-     * topics. 
+     * See line 7 update in 2013 paper / equation (5) in 2010 paper. Stored by
+     * word, so that the K topic values needed for a word are contiguous. A
+     * word's row is only allocated once the word has been seen, and is only 
+     * up to date if {@link #lastUsed} for the word is equal to {@link #t}.
+     */
+    private double[][] ExpELogBeta;
+    
+    /**
+     * The distinct words in the current batch of documents
      */
-    private ThreadLocal<Vec> gammaLocal;
+    private IntList batchWords;
     /**
-     * Holds the temp vector used to store the expectation of {@link #gammaLocal}
+     * The position of each word in {@link #batchWords}, or -1 if the word is
+     * not in the current batch
      */
-    private ThreadLocal<Vec> logThetaLocal;
+    private int[] batchPos;
     /**
-     * Holds the temp vector used to store the exponentiated expectation of 
-     * {@link #logThetaLocal} 
+     * The sufficient statistics accumulated by each thread for the current 
+     * batch. Each has a row of K values for each word in {@link #batchWords}. 
      */
-    private ThreadLocal<Vec> expLogThetaLocal;
+    private double[][] sstats;
 
     /**
      * Sets the number of topics that LDA will try to learn
@@ -167,30 +160,6 @@ public class OnlineLDAsvi implements Parameterized
         if(K < 2)
             throw new IllegalArgumentException("At least 2 topics must be learned");
         this.K = K;
-        gammaLocal = new ThreadLocal<Vec>()
-        {
-            @Override
-            protected Vec initialValue()
-            {
-                return new DenseVector(K);
-            }
-        };
-        logThetaLocal  = new ThreadLocal<Vec>()
-        {
-            @Override
-            protected Vec initialValue()
-            {
-                return new DenseVector(K);
-            }
-        };
-        expLogThetaLocal = new ThreadLocal<Vec>()
-        {
-            @Override
-            protected Vec initialValue()
-            {
-                return new DenseVector(K);
-            }
-        };
         
         lambda = null;
     }
@@ -376,11 +345,11 @@ public class OnlineLDAsvi implements Parameterized
      * @param sum the sum of the {@code input} vector
      * @param output the vector to store the transformed inputs in
      */
-    private void expandPsiMinusPsiSum(Vec input, double sum, Vec output)
+    private void expandPsiMinusPsiSum(double[] input, double sum, double[] output)
     {
         double psiSum = FastMath.digamma(sum);
-        for(int i = 0; i < input.length(); i++)
-            output.set(i, FastMath.digamma(input.get(i))-psiSum);
+        for(int i = 0; i < input.length; i++)
+            output[i] = FastMath.digamma(input[i])-psiSum;
     }
     
     /**
@@ -397,22 +366,40 @@ public class OnlineLDAsvi implements Parameterized
     }
     
     /**
-     * Performs an update of the LDA topic distributions based on the given 
-     * mini-batch of documents.  
+     * Performs an update of the LDA topic distributions based on the given
+     * mini-batch of documents.
      * @param docs the list of document vectors to update from
      */
     public void update(List<Vec> docs)
     {
-        update(docs, new FakeExecutor());
+        update(docs, false);
     }
-    
+
+    /**
+     * Performs an update of the LDA topic distributions based on the given
+     * mini-batch of documents.
+     * @param docs the list of document vectors to update from
+     * @param parallel {@code true} if the update should be done using
+     * multiple threads from the current execution context, {@code false} for
+     * a single thread
+     */
+    public void update(List<Vec> docs, boolean parallel)
+    {
+        update(docs, parallel, ParallelUtils.getNewExecutor(parallel));
+    }
+
     /**
-     * Performs an update of the LDA topic distribution based on the given 
-     * mini-batch of documents. 
+     * Performs an update of the LDA topic distribution based on the given
+     * mini-batch of documents.
      * @param docs the list of document vectors to update from
      * @param ex the source of threads for parallel execution
      */
     public void update(final List<Vec> docs, ExecutorService ex)
+    {
+        update(docs, true, ex);
+    }
+
+    private void update(final List<Vec> docs, boolean parallel, ExecutorService ex)
     {
         //need to init structure?
         if(lambda == null)
@@ -420,361 +407,429 @@ public class OnlineLDAsvi implements Parameterized
         /*
          * Make sure the beta values we will need are up to date
          */
-        updateBetas(docs, ex);
-        
+        collectWords(docs);
+        updateBetas(parallel, ex);
+
         /*
          * Note, on each update we dont modify or access lambda untill the very,
-         * end -  so we can interleave the "M" step into the final update 
-         * accumulation to avoid temp space allocation and more easily exploit 
+         * end -  so we can interleave the "M" step into the final update
+         * accumulation to avoid temp space allocation and more easily exploit
          * sparsity
-         * 
+         *
          */
-        
-        
+
+
         //2: Set the step-size schedule ρt appropriately.
         final double rho_t = Math.pow(tau0+(t++), -kappa);
-        
-        
+
+
         //pre-shrink the lambda values so we can add out updates later
         for(int k = 0; k < K; k++)
         {
             lambda.get(k).mutableMultiply(1-rho_t);
-            lambdaSums.set(k, lambdaSums.getD(k)*(1-rho_t));
+            lambdaSums[k] *= 1-rho_t;
         }
-        
+
         /*
          * As described in the 2010 paper, this part is the "E" step if we view
          * it as an EM algorithm
          */
-        
+
         //5: Initialize γ_dk =1, for k ∈ {1, . . . ,K}.
-        
+
         /*
-         * See note on page 3 from 2010 paper: "In practice, this algorithm 
+         * See note on page 3 from 2010 paper: "In practice, this algorithm
          * converges to a better solution if we reinitialize γ and φ before
          * each E step"
          */
-        final int P = SystemInfo.LogicalCores;
-        final CountDownLatch latch = new CountDownLatch(P);
+        final int P = parallel ? Math.max(1, Math.min(SystemInfo.LogicalCores, docs.size())) : 1;
+        final int B = batchWords.size();
+        if(sstats == null || sstats.length != P)
+            sstats = new double[P][];
         //main iner loop, outer is per document and inner most is per topic convergence
-        for(int id = 0; id < P; id++)
+        ParallelUtils.run(parallel, P, id ->
         {
-            final int ID = id;
-            ex.submit(new Runnable()
+            //each thread accumulates its statistics for only the words in this batch
+            double[] sstats_id = sstats[id];
+            if(sstats_id == null || sstats_id.length < B*K)
+                sstats_id = sstats[id] = new double[B*K];
+            else
+                Arrays.fill(sstats_id, 0, B*K, 0.0);
+
+            Random rand = RandomUtil.getRandom();
+            final double[] gamma_d = new double[K];
+            final double[] ELogTheta_d = new double[K];
+            final double[] ExpELogTheta_d = new double[K];
+            for(int d = ParallelUtils.getStartBlock(docs.size(), id, P); d < ParallelUtils.getEndBlock(docs.size(), id, P); d++)
             {
-                @Override
-                public void run()
+                final Vec doc = docs.get(d);
+                if(doc.nnz() == 0)
+                    continue;
+
+                /*
+                 * Make sure gamma and theta are set up and ready to start iterating
+                 */
+                prepareGammaTheta(gamma_d, ELogTheta_d, ExpELogTheta_d, rand);
+
+                int[] indexMap = new int[doc.nnz()];
+                double[] phiCols = new double[doc.nnz()];
+                double[][] betas = new double[doc.nnz()][];
+
+                //φ^k_dn ∝ exp{E[logθdk]+E[logβk,wdn ]}, k ∈ {1, . . . ,K}
+                computePhi(doc, indexMap, phiCols, betas, gamma_d, ELogTheta_d, ExpELogTheta_d);
+
+                //accumulate the sufficient statistics for the "M" step
+                for(int i = 0; i < indexMap.length; i++)
                 {
-                    Random rand = RandomUtil.getRandom();
-                    for(int d = ParallelUtils.getStartBlock(docs.size(), ID, P); d < ParallelUtils.getEndBlock(docs.size(), ID, P); d++)
-                    {
-                        final Vec doc = docs.get(d);
-                        if(doc.nnz() == 0)
-                            continue;
-                        final Vec ELogTheta_d = logThetaLocal.get();
-                        final Vec ExpELogTheta_d = expLogThetaLocal.get();
-                        final Vec gamma_d = gammaLocal.get();
-
-                        /*
-                         * Make sure gamma and theta are set up and ready to start iterating 
-                         */
-                        prepareGammaTheta(gamma_d, ELogTheta_d, ExpELogTheta_d, rand);
-
-                        int[] indexMap = new int[doc.nnz()];
-                        double[] phiCols = new double[doc.nnz()];
-
-                        //φ^k_dn ∝ exp{E[logθdk]+E[logβk,wdn ]}, k ∈ {1, . . . ,K}
-                        computePhi(doc, indexMap, phiCols, K, gamma_d, ELogTheta_d, ExpELogTheta_d);
-
-                        //accumulate updates, the "M" step
-                        IntList toUpdate = new IntList(K);
-                        ListUtils.addRange(toUpdate, 0, K, 1);
-                        Collections.shuffle(toUpdate, rand);//helps reduce contention caused by shared iteration order
-                        int updatePos = 0;
-                        while(!toUpdate.isEmpty())
-                        {
-                            int k = toUpdate.getI(updatePos);
-                            
-                            if(lambdaLocks.get(k).tryLock())
-                            {
-                                final double coeff = ExpELogTheta_d.get(k)*rho_t*D/docs.size();
-                                final Vec lambda_k = lambda.get(k);
-                                final Vec ExpELogBeta_k = ExpELogBeta.get(k);
-                                double lambdaSum_k = lambdaSums.getD(k);
-                                
-                                /*
-                                 * iterate and incremebt ourselves so that we can also compute 
-                                 * the new sums in 1 pass
-                                 */
-                                for(int i = 0; i < doc.nnz(); i++)
-                                {
-                                    int indx = indexMap[i];
-                                    double toAdd = coeff*phiCols[i]*ExpELogBeta_k.get(indx);
-                                    lambda_k.increment(indx, toAdd);
-                                    lambdaSum_k += toAdd;
-                                }
-
-                                lambdaSums.set(k, lambdaSum_k);
-                                lambdaLocks.get(k).unlock();
-                                
-                                toUpdate.remove(updatePos);
-                            }
-                            
-                            if(!toUpdate.isEmpty())
-                                updatePos = (updatePos+1) % toUpdate.size();
-                        }
-                    }
-                    
-                    latch.countDown();
+                    final int offset = batchPos[indexMap[i]]*K;
+                    final double phi = phiCols[i];
+                    for(int k = 0; k < K; k++)
+                        sstats_id[offset+k] += phi*ExpELogTheta_d[k];
                 }
-            });
-            
-        }
-       
-        try
-        {
-            latch.await();
-        }
-        catch (InterruptedException ex1)
+            }
+        }, ex);
+
+        //merge the statistics from each thread, and apply the "M" step to each topic
+        final double coeff = rho_t*D/docs.size();
+        ParallelUtils.run(parallel, K, k ->
         {
-            Logger.getLogger(OnlineLDAsvi.class.getName()).log(Level.SEVERE, null, ex1);
-        }
+            final Vec lambda_k = lambda.get(k);
+            double lambdaSum_k = lambdaSums[k];
+            for(int j = 0; j < B; j++)
+            {
+                double s = 0;
+                for(int id = 0; id < P; id++)
+                    s += sstats[id][j*K+k];
+                if(s == 0)
+                    continue;
+                final int indx = batchWords.getI(j);
+                final double toAdd = coeff*s*ExpELogBeta[indx][k];
+                lambda_k.increment(indx, toAdd);
+                lambdaSum_k += toAdd;
+            }
+            lambdaSums[k] = lambdaSum_k;
+        }, ex);
+
+        clearWords();
     }
-    
+
     /**
      * Fits the LDA model against the given data set
      * @param dataSet the data set to learn a topic model for
-     * @param topics the number of topics to learn 
+     * @param topics the number of topics to learn
      */
     public void model(DataSet dataSet, int topics)
     {
-        model(dataSet, topics, new FakeExecutor());
+        model(dataSet, topics, false);
     }
-    
+
+    /**
+     * Fits the LDA model against the given data set
+     * @param dataSet the data set to learn a topic model for
+     * @param topics the number of topics to learn
+     * @param parallel {@code true} if the model should be fit using multiple
+     * threads from the current execution context, {@code false} for a single
+     * thread
+     */
+    public void model(DataSet dataSet, int topics, boolean parallel)
+    {
+        model(dataSet, topics, parallel, ParallelUtils.getNewExecutor(parallel));
+    }
+
     /**
      * Fits the LDA model against the given data set
      * @param dataSet the data set to learn a topic model for
-     * @param topics the number of topics to learn 
+     * @param topics the number of topics to learn
      * @param ex the source of threads for parallel execution
      */
     public void model(DataSet dataSet, int topics, ExecutorService ex)
     {
         if(ex == null)
-            ex = new FakeExecutor();
+            model(dataSet, topics, false);
+        else
+            model(dataSet, topics, true, ex);
+    }
+
+    private void model(DataSet dataSet, int topics, boolean parallel, ExecutorService ex)
+    {
         //Use notation same as original paper
         setK(topics);
         setD(dataSet.size());
         setVocabSize(dataSet.getNumNumericalVars());
-        
+
         final List<Vec> docs = dataSet.getDataVectors();
-        
+
         for(int epoch = 0; epoch < epochs; epoch++)
         {
             Collections.shuffle(docs);
             for(int i = 0; i < D; i+=miniBatchSize)
             {
                 int to = Math.min(i+miniBatchSize, D);
-                update(docs.subList(i, to), ex);
+                update(docs.subList(i, to), parallel, ex);
             }
-            
+
         }
     }
 
     /**
      * Computes the topic distribution for the given document.<br>
-     * Note that the returned vector will be dense, but many of the values may 
-     * be very nearly zero. 
-     * 
+     * Note that the returned vector will be dense, but many of the values may
+     * be very nearly zero.
+     *
      * @param doc the document to find the topics for
      * @return a vector of the topic distribution for the given document
      */
     public Vec getTopics(Vec doc)
     {
-        Vec gamma = new DenseVector(K);
+        return getTopics(doc, RandomUtil.getRandom());
+    }
 
-        Random rand = RandomUtil.getRandom();
-        double lambdaInv = (W * K) / (D * 100.0);
+    /**
+     * Computes the topic distribution for every document in the given data
+     * set. This is more efficient than calling {@link #getTopics(jsat.linear.Vec) }
+     * for each document, as the topic values for each word are brought up to
+     * date once for the whole data set. This method should not be called while
+     * the model is being updated.
+     *
+     * @param dataSet the documents to find the topics for
+     * @param parallel {@code true} if multiple threads from the current
+     * execution context should be used, {@code false} for a single thread
+     * @return a list with the topic distribution for each document in the
+     * data set, in the same order
+     */
+    public List<Vec> getTopics(DataSet dataSet, boolean parallel)
+    {
+        final List<Vec> docs = dataSet.getDataVectors();
+        ExecutorService ex = ParallelUtils.getNewExecutor(parallel);
+        collectWords(docs);
+        updateBetas(parallel, ex);
+        clearWords();
 
-        for (int j = 0; j < gamma.length(); j++)
-            gamma.set(j, sampleExpoDist(lambdaInv, rand.nextDouble()) + eta);
+        final Vec[] topics = new Vec[docs.size()];
+        ParallelUtils.run(parallel, docs.size(), (start, end) ->
+        {
+            Random rand = RandomUtil.getRandom();
+            for(int i = start; i < end; i++)
+                topics[i] = getTopics(docs.get(i), rand);
+        }, ex);
+        return Arrays.asList(topics);
+    }
 
-        Vec eLogTheta_i = new DenseVector(K);
-        Vec expLogTheta_i = new DenseVector(K);
-        expandPsiMinusPsiSum(gamma, gamma.sum(), eLogTheta_i);
-        for (int j = 0; j < eLogTheta_i.length(); j++)
-            expLogTheta_i.set(j, FastMath.exp(eLogTheta_i.get(j)));
-        
-        computePhi(doc, new int[doc.nnz()], new double[doc.nnz()], K, gamma, eLogTheta_i, expLogTheta_i);
-        gamma.mutableDivide(gamma.sum());
-        return gamma;
+    private Vec getTopics(Vec doc, Random rand)
+    {
+        double[] gamma = new double[K];
+        double[] eLogTheta_i = new double[K];
+        double[] expLogTheta_i = new double[K];
+        prepareGammaTheta(gamma, eLogTheta_i, expLogTheta_i, rand);
+
+        computePhi(doc, new int[doc.nnz()], new double[doc.nnz()], new double[doc.nnz()][], gamma, eLogTheta_i, expLogTheta_i);
+        DenseVector toRet = new DenseVector(gamma);
+        toRet.mutableDivide(toRet.sum());
+        return toRet;
     }
-    
+
     /**
-     * Updates the Beta vectors associated with the {@link #gammaLocal gamma} 
-     * topic distributions so that they can be used to update against the given 
-     * batch of documents. Once updated, the Betas are the only items needed to 
-     * perform updates from the given batch, and the gamma values can be updated
-     * as the updates are computed. 
-     * 
-     * @param docs the mini batch of documents to update from
+     * Finds the distinct words in the given documents, and stores them in
+     * {@link #batchWords}. {@link #clearWords() } must be called once the
+     * words are no longer needed.
+     *
+     * @param docs the documents to get the words from
      */
-    private void updateBetas(final List<Vec> docs, ExecutorService ex)
+    private void collectWords(List<Vec> docs)
     {
-        final double[] digammaLambdaSum = new double[K];//TODO may want to move this out & reuse
-        for(int k = 0; k < K; k++)
-            digammaLambdaSum[k] = FastMath.digamma(W*eta+lambdaSums.getD(k));
-        List<List<Vec>> docSplits = ListUtils.splitList(docs, SystemInfo.LogicalCores);
-        final CountDownLatch latch = new CountDownLatch(docSplits.size());
-        for(final List<Vec> docsSub :  docSplits)
-        {
-            ex.submit(new Runnable()
+        for(Vec doc : docs)
+            for(IndexValue iv : doc)
             {
-
-                @Override
-                public void run()
+                int indx = iv.getIndex();
+                if(batchPos[indx] < 0)
                 {
-                    for(Vec doc : docsSub)//make sure out ELogBeta is up to date
-                        for(IndexValue iv : doc)
-                        {
-                            int indx = iv.getIndex();
-                            if(lastUsed[indx] != t)
-                            {
-                                for(int k = 0; k < K; k++)
-                                {
-                                    double lambda_kj = lambda.get(k).get(indx);
-
-                                    double logBeta_kj = FastMath.digamma(eta+lambda_kj)-digammaLambdaSum[k];
-                                    ELogBeta.get(k).set(indx, logBeta_kj);
-                                    ExpELogBeta.get(k).set(indx, FastMath.exp(logBeta_kj));
-                                }
-                                lastUsed[indx] = t;
-                            }
-                        }
-                    
-                    latch.countDown();
+                    batchPos[indx] = batchWords.size();
+                    batchWords.add(indx);
                 }
-            });
-        }
-        
-        try
+            }
+    }
+
+    private void clearWords()
+    {
+        for(int j = 0; j < batchWords.size(); j++)
+            batchPos[batchWords.getI(j)] = -1;
+        batchWords.clear();
+    }
+
+    /**
+     * Updates the Beta vectors associated with the words in
+     * {@link #batchWords} so that they can be used to update against the
+     * current batch of documents. Once updated, the Betas are the only items
+     * needed to perform updates from the given batch, and the gamma values can
+     * be updated as the updates are computed.
+     */
+    private void updateBetas(boolean parallel, ExecutorService ex)
+    {
+        final double[] digammaLambdaSum = getDigammaLambdaSums();
+        ParallelUtils.run(parallel, batchWords.size(), (start, end) ->
         {
-            latch.await();
-        }
-        catch (InterruptedException ex1)
+            for(int j = start; j < end; j++)//make sure out ExpELogBeta is up to date
+            {
+                int indx = batchWords.getI(j);
+                if(lastUsed[indx] != t)
+                {
+                    double[] row = ExpELogBeta[indx];
+                    if(row == null)
+                        row = new double[K];
+                    computeExpELogBeta(indx, digammaLambdaSum, row);
+                    ExpELogBeta[indx] = row;
+                    lastUsed[indx] = t;
+                }
+            }
+        }, ex);
+    }
+
+    private double[] getDigammaLambdaSums()
+    {
+        final double[] digammaLambdaSum = new double[K];
+        for(int k = 0; k < K; k++)
+            digammaLambdaSum[k] = FastMath.digamma(W*eta+lambdaSums[k]);
+        return digammaLambdaSum;
+    }
+
+    /**
+     * Computes the exponentiated expectation of log beta for every topic of
+     * the given word
+     * @param indx the index of the word
+     * @param digammaLambdaSum the digamma of the sum of each topic
+     * @param row the array to store the K values in
+     */
+    private void computeExpELogBeta(int indx, double[] digammaLambdaSum, double[] row)
+    {
+        for(int k = 0; k < K; k++)
         {
-            Logger.getLogger(OnlineLDAsvi.class.getName()).log(Level.SEVERE, null, ex1);
+            double lambda_kj = lambda.get(k).get(indx);
+
+            double logBeta_kj = FastMath.digamma(eta+lambda_kj)-digammaLambdaSum[k];
+            row[k] = FastMath.exp(logBeta_kj);
         }
     }
 
     /**
-     * Prepares gamma and the associated theta expectations are initialized so 
-     * that the iterative updates to them can begin. 
-     * 
-     * @param gamma_i will be completely overwritten 
-     * @param eLogTheta_i will be completely overwritten 
-     * @param expLogTheta_i will be completely overwritten 
+     * Prepares gamma and the associated theta expectations are initialized so
+     * that the iterative updates to them can begin.
+     *
+     * @param gamma_i will be completely overwritten
+     * @param eLogTheta_i will be completely overwritten
+     * @param expLogTheta_i will be completely overwritten
      * @param rand the source of randomness
      */
-    private void prepareGammaTheta(Vec gamma_i, Vec eLogTheta_i, Vec expLogTheta_i, Random rand)
+    private void prepareGammaTheta(double[] gamma_i, double[] eLogTheta_i, double[] expLogTheta_i, Random rand)
     {
         final double lambdaInv = (W * K) / (D * 100.0);
-        for (int j = 0; j < gamma_i.length(); j++)
-            gamma_i.set(j, sampleExpoDist(lambdaInv, rand.nextDouble()) + eta);
+        double gammaSum = 0;
+        for (int j = 0; j < gamma_i.length; j++)
+            gammaSum += gamma_i[j] = sampleExpoDist(lambdaInv, rand.nextDouble()) + eta;
 
-        expandPsiMinusPsiSum(gamma_i, gamma_i.sum(), eLogTheta_i);
-        for (int j = 0; j < eLogTheta_i.length(); j++)
-            expLogTheta_i.set(j, FastMath.exp(eLogTheta_i.get(j)));
+        expandPsiMinusPsiSum(gamma_i, gammaSum, eLogTheta_i);
+        for (int j = 0; j < eLogTheta_i.length; j++)
+            expLogTheta_i[j] = FastMath.exp(eLogTheta_i[j]);
     }
 
     /**
-     * Performs the main iteration to determine the topic distribution of the 
-     * given document against the current model parameters. The non zero values 
+     * Performs the main iteration to determine the topic distribution of the
+     * given document against the current model parameters. The non zero values
      * of phi will be stored in {@code indexMap} and {@code phiCols}
-     * 
+     *
      * @param doc the document to get the topic assignments for
-     * @param indexMap the array of integers to store the non zero document 
+     * @param indexMap the array of integers to store the non zero document
      * indices in
-     * @param phiCols the array to store the normalized non zero values of phi 
-     * in, where each value corresponds to the associated index in 
+     * @param phiCols the array to store the normalized non zero values of phi
+     * in, where each value corresponds to the associated index in
      * {@code indexMap}
-     * @param K the number of topics 
+     * @param betas the array to store the exponentiated expectation of log
+     * beta of each word in, where each value corresponds to the associated
+     * index in {@code indexMap}
      * @param gamma_d the initial value of γ that will be altered to the topic assignments, but not normalized
      * @param ELogTheta_d the expectation from γ per topic
      * @param ExpELogTheta_d the exponentiated vector for {@code ELogTheta_d}
      */
-    private void computePhi(final Vec doc, int[] indexMap, double[] phiCols, int K, final Vec gamma_d, final Vec ELogTheta_d, final Vec ExpELogTheta_d)
+    private void computePhi(final Vec doc, int[] indexMap, double[] phiCols, double[][] betas, final double[] gamma_d, final double[] ELogTheta_d, final double[] ExpELogTheta_d)
     {
         //φ^k_dn ∝ exp{E[logθdk]+E[logβk,wdn ]}, k ∈ {1, . . . ,K}
         /*
          * we have the exp versions of each, and exp(log(x)+log(y)) = x y
-         * so we can just use the doc product between the vectors per 
+         * so we can just use the doc product between the vectors per
          * document to get the normalization constan Z
-         * 
-         * When we update γ we multiply by the word, so non presnet words 
+         *
+         * When we update γ we multiply by the word, so non presnet words
          * have no impact. So we don't need ALL of the columbs from φ, but
-         * only the columns for which we have non zero words. 
+         * only the columns for which we have non zero words.
          */
 
         /*
          * normalized for each topic column (len K) of the words in this doc.
          * We only need to concern oursleves with the non zeros
-         * 
-         * Beacse we need to update several iterations, we will work with 
-         * the inernal stricture dirrectly instead of using expensitve 
-         * get/set on a Sparse Vector
+         *
+         * Beacse we need to update several iterations, we will work with
+         * the word counts and rows of beta dirrectly instead of using
+         * expensitve get/set on a Sparse Vector
          */
-        
+        final int K = gamma_d.length;
+        final double[] counts = new double[indexMap.length];
+        double[] digammaLambdaSum = null;
         int pos = 0;
-        final SparseVector updateVec = new SparseVector(indexMap, phiCols, W, doc.nnz());
         for(IndexValue iv : doc)
         {
             int wordIndex = iv.getIndex();
-            double sum = 0;
-            for(int i = 0; i < ExpELogTheta_d.length(); i++)
-                sum += ExpELogTheta_d.get(i)*ExpELogBeta.get(i).get(wordIndex);
-
+            double[] beta_w = ExpELogBeta[wordIndex];
+            if(lastUsed[wordIndex] != t)//out of date, compute what it should be without altering the model
+            {
+                if(digammaLambdaSum == null)
+                    digammaLambdaSum = getDigammaLambdaSums();
+                beta_w = new double[K];
+                computeExpELogBeta(wordIndex, digammaLambdaSum, beta_w);
+            }
             indexMap[pos] = wordIndex;
-            phiCols[pos] = iv.getValue()/(sum+1e-15);
+            betas[pos] = beta_w;
+            counts[pos] = iv.getValue();
             pos++;
         }
+        updatePhi(counts, betas, ExpELogTheta_d, phiCols);
+
+        final double[] betaSums = new double[K];
         //iterate till convergence or we hit arbitrary 100 limit (dont usually see more than 70)
         for(int iter = 0; iter < 100; iter++)
         {
+            //sum of φ_twk n_tw for each topic, accumulated one word row at a time
+            Arrays.fill(betaSums, 0.0);
+            for(int n = 0; n < betas.length; n++)
+            {
+                final double phi = phiCols[n];
+                final double[] beta_w = betas[n];
+                for(int k = 0; k < K; k++)
+                    betaSums[k] += phi*beta_w[k];
+            }
+
             double meanAbsChange = 0;
             double gamma_d_sum = 0;
             //γtk = α+ w φ_twk n_tw
             for(int k = 0; k < K; k++)
             {
-                final double origGamma_dk = gamma_d.get(k);
-                double gamma_dtk = alpha;
-
-                gamma_dtk += ExpELogTheta_d.get(k) * updateVec.dot(ExpELogBeta.get(k));
-                gamma_d.set(k, gamma_dtk);
+                final double origGamma_dk = gamma_d[k];
+                double gamma_dtk = alpha + ExpELogTheta_d[k] * betaSums[k];
+                gamma_d[k] = gamma_dtk;
                 meanAbsChange += Math.abs(gamma_dtk-origGamma_dk);
                 gamma_d_sum += gamma_dtk;
             }
-            
+
             //update Eq[log θtk] and our exponentated copy of it
             expandPsiMinusPsiSum(gamma_d, gamma_d_sum, ELogTheta_d);
-            for(int i = 0; i < ELogTheta_d.length(); i++)
-                ExpELogTheta_d.set(i, FastMath.exp(ELogTheta_d.get(i)));
-            
-            //update our column norm norms 
-            int indx = 0;
-            for(IndexValue iv : doc)
-            {
-                int wordIndex = iv.getIndex();
-                double sum = 0;
-                for(int i = 0; i < ExpELogTheta_d.length(); i++)
-                    sum += ExpELogTheta_d.get(i)*ExpELogBeta.get(i).get(wordIndex);
-                phiCols[indx] = iv.getValue() / (sum + 1e-15);
-                indx++;
-            }
-            
+            for(int i = 0; i < K; i++)
+                ExpELogTheta_d[i] = FastMath.exp(ELogTheta_d[i]);
+
+            //update our column norm norms
+            updatePhi(counts, betas, ExpELogTheta_d, phiCols);
+
             /*
              * //original papser uses a tighter bound, but our approximation
              * isn't that good - and this seems to work well enough
-             * 0.01 even seems to work, but need to try that more before 
+             * 0.01 even seems to work, but need to try that more before
              * switching
              */
             if(meanAbsChange < 0.001*K)
@@ -782,6 +837,25 @@ public class OnlineLDAsvi implements Parameterized
         }
     }
 
+    /**
+     * Computes the normalized non zero values of phi for each word
+     * @param counts the number of occurrences of each word
+     * @param betas the exponentiated expectation of log beta for each word
+     * @param ExpELogTheta_d the exponentiated expectation of log theta
+     * @param phiCols the location to store the values of phi for each word
+     */
+    private static void updatePhi(double[] counts, double[][] betas, double[] ExpELogTheta_d, double[] phiCols)
+    {
+        for(int n = 0; n < counts.length; n++)
+        {
+            final double[] beta_w = betas[n];
+            double sum = 0;
+            for(int k = 0; k < beta_w.length; k++)
+                sum += ExpELogTheta_d[k]*beta_w[k];
+            phiCols[n] = counts[n] / (sum + 1e-15);
+        }
+    }
+
     private void initialize()
     {
         if(K < 1)
@@ -790,26 +864,25 @@ public class OnlineLDAsvi implements Parameterized
             throw new FailedToFitException("Expected number of documents has not yet been specified");
         else if(W < 1)
             throw new FailedToFitException("Topic vocuabulary size has not yet been specified");
-        
+
         t = 0;
         //1: Initialize λ(0) randomly
         lambda = new ArrayList<Vec>(K);
-        lambdaLocks = new ArrayList<Lock>(K);
-        lambdaSums = new DoubleList(K);
-        ELogBeta = new ArrayList<Vec>(K);
-        ExpELogBeta = new ArrayList<Vec>(K);
+        lambdaSums = new double[K];
+        ExpELogBeta = new double[W][];
         lastUsed = new int[W];
         Arrays.fill(lastUsed, -1);
-        
+        batchWords = new IntList();
+        batchPos = new int[W];
+        Arrays.fill(batchPos, -1);
+        sstats = null;
+
         final double lambdaInv = (K*W)/(D*100.0);
         Random rand = RandomUtil.getRandom();
         for(int i = 0; i < K; i++)
         {
             Vec lambda_i = new DenseVector(W);
             lambda.add(new ScaledVector(lambda_i));
-            lambdaLocks.add(new ReentrantLock());
-            ELogBeta.add(new DenseVector(W));
-            ExpELogBeta.add(new DenseVector(W));
             double rowSum = 0;
             for(int j = 0; j < W; j++)
             {
@@ -817,8 +890,8 @@ public class OnlineLDAsvi implements Parameterized
                 lambda_i.set(j, sample);
                 rowSum += sample;
             }
-            lambdaSums.add(rowSum);
+            lambdaSums[i] = rowSum;
         }
-        //lambda has now been intialized, ELogBeta and ExpELogBeta will be intialized / updated lazily
+        //lambda has now been intialized, ExpELogBeta will be intialized / updated lazily
     }
 }
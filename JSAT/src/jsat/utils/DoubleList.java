@@ -178,6 +178,50 @@ public class DoubleList extends AbstractList<Double> implements Serializable, Ra
         return getD(index);
     }
     
+    /**
+     * Returns the value at the given index of a list of doubles. If the list
+     * is a DoubleList, the value is read directly from the backing array
+     * without creating a {@link Double} object. This should be used in place
+     * of {@link List#get(int) } by code that reads from a list of doubles in
+     * an inner loop, such as the acceleration caches of distance metrics and
+     * kernels.
+     *
+     * @param list the list to read from
+     * @param index the index of the value to get
+     * @return the value at the given index
+     */
+    public static double getD(List<Double> list, int index)
+    {
+        if(list instanceof DoubleList)
+            return ((DoubleList) list).getD(index);
+        return list.get(index);
+    }
+    
+    /**
+     * Creates a new DoubleList containing a copy of the given range of values
+     * from a list of doubles. If the source is a DoubleList, the values are
+     * copied directly from the backing array.
+     *
+     * @param list the list to copy values from
+     * @param fromIndex the first index to copy, inclusive
+     * @param toIndex the last index to copy, exclusive
+     * @return a new DoubleList with the values in the given range
+     */
+    public static DoubleList copyOfRange(List<Double> list, int fromIndex, int toIndex)
+    {
+        if(fromIndex < 0 || toIndex > list.size() || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("Invalid range [" + fromIndex + ", " + toIndex + ") for list of size " + list.size());
+        if(list instanceof DoubleList)
+        {
+            double[] src = ((DoubleList) list).array;
+            return new DoubleList(Arrays.copyOfRange(src, fromIndex, toIndex), toIndex-fromIndex);
+        }
+        DoubleList copy = new DoubleList(toIndex-fromIndex);
+        for(int i = fromIndex; i < toIndex; i++)
+            copy.add(list.get(i).doubleValue());
+        return copy;
+    }
+    
     /**
      * Operates exactly as {@link #set(int, java.lang.Double) }
      * @param index the index to set
@@ -187,7 +231,7 @@ public class DoubleList extends AbstractList<Double> implements Serializable, Ra
     public double set(int index, double element)
     {
         boundsCheck(index);
-        double ret = get(index);
+        double ret = array[index];
         array[index] = element;
         return ret;
     }
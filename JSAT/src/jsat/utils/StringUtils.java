@@ -240,4 +240,45 @@ public class StringUtils
         
         return sign * (mantissa*Math.pow(10, finalExpo));
     }
+    
+    /**
+     * Computes the same value as {@link String#hashCode() } for the given
+     * sequence of characters, without needing to create a String from them
+     *
+     * @param s the sequence of characters to hash
+     * @return the same hash code as {@code s.toString().hashCode()}
+     */
+    public static int stringHashCode(CharSequence s)
+    {
+        int h = 0;
+        for(int i = 0; i < s.length(); i++)
+            h = 31*h + s.charAt(i);
+        return h;
+    }
+    
+    /**
+     * Computes a 64 bit hash of the given sequence of characters. This is the
+     * FNV-1a hash over each character, followed by the finalization step of
+     * MurmurHash3 to mix the upper bits. The larger range makes collisions
+     * between distinct tokens unlikely enough that the hash can be used as the
+     * identity of a token, even for very large vocabularies.
+     *
+     * @param s the sequence of characters to hash
+     * @return a 64 bit hash of the characters
+     */
+    public static long hash64(CharSequence s)
+    {
+        long h = 0xcbf29ce484222325L;
+        for(int i = 0; i < s.length(); i++)
+        {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
 }
@@ -0,0 +1,555 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.utils.concurrent;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import jsat.utils.SystemInfo;
+
+/**
+ * An ExecutionContext is the single source of threads for parallel work in
+ * JSAT. It is backed by a work-stealing {@link ForkJoinPool}, whose
+ * parallelism is the thread budget shared by everything that runs in the
+ * context. A parallel region that is started from inside another one (for
+ * example, a model trained in parallel by a parallel grid search) forks its
+ * work into the same pool, and the waiting thread helps to execute it rather
+ * than blocking, so nesting never creates more threads than the budget. <br>
+ * <br>
+ * The context used by {@link ParallelUtils} and the learners is
+ * {@link #current() }. This is the {@link #getDefault() default} context,
+ * unless a different one has been set for the calling thread with
+ * {@link #runWith(java.lang.Runnable) } or
+ * {@link #callWith(java.util.function.Supplier) }. Work forked from a thread
+ * keeps the context it was started in. <br>
+ * <br>
+ * The size of the default context can be set with the {@code jsat.threads}
+ * system property, and otherwise uses {@link SystemInfo#LogicalCores}. A
+ * different pool may be given with {@link #setDefault(jsat.utils.concurrent.ExecutionContext)
+ * }.
+ *
+ * @author Edward Raff
+ */
+public class ExecutionContext
+{
+    /**
+     * The name of the system property that sets the number of threads used by
+     * the default context
+     */
+    public static final String THREADS_PROPERTY = "jsat.threads";
+
+    private static volatile ExecutionContext defaultContext;
+
+    /**
+     * The context, and how many parallel regions deep, the current thread is
+     */
+    private static final class Scope
+    {
+        ExecutionContext context;
+        int depth;
+    }
+
+    private static final ThreadLocal<Scope> SCOPE = ThreadLocal.withInitial(Scope::new);
+
+    /**
+     * An executor that submits to whatever the current context is
+     */
+    private static final ExecutorService CURRENT_EXECUTOR = new ContextExecutor(null);
+
+    private final ForkJoinPool pool;
+    private final boolean nested;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a new context with its own pool of daemon threads, that allows
+     * nested parallelism
+     *
+     * @param threads the maximum number of threads to use
+     */
+    public ExecutionContext(int threads)
+    {
+        this(threads, true);
+    }
+
+    /**
+     * Creates a new context with its own pool of daemon threads
+     *
+     * @param threads the maximum number of threads to use
+     * @param nested {@code true} if parallel regions started inside of another
+     * may split their work, or {@code false} to run them on the thread that
+     * started them
+     */
+    public ExecutionContext(int threads, boolean nested)
+    {
+        this(new ForkJoinPool(threads, (ForkJoinPool p) ->
+        {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setDaemon(true);
+            return t;
+        }, null, false), nested);
+    }
+
+    /**
+     * Creates a new context that runs its work in the given pool, and allows
+     * nested parallelism
+     *
+     * @param pool the pool to use
+     */
+    public ExecutionContext(ForkJoinPool pool)
+    {
+        this(pool, true);
+    }
+
+    /**
+     * Creates a new context that runs its work in the given pool
+     *
+     * @param pool the pool to use
+     * @param nested {@code true} if parallel regions started inside of another
+     * may split their work, or {@code false} to run them on the thread that
+     * started them
+     */
+    public ExecutionContext(ForkJoinPool pool, boolean nested)
+    {
+        if(pool == null)
+            throw new NullPointerException("pool can not be null");
+        this.pool = pool;
+        this.nested = nested;
+        this.executor = new ContextExecutor(this);
+    }
+
+    /**
+     * Returns the context that is used when none has been set for the current
+     * thread. It is created the first time it is needed.
+     *
+     * @return the default context
+     */
+    public static ExecutionContext getDefault()
+    {
+        ExecutionContext context = defaultContext;
+        if(context == null)
+            synchronized(ExecutionContext.class)
+            {
+                if(defaultContext == null)
+                    defaultContext = new ExecutionContext(Integer.getInteger(THREADS_PROPERTY, SystemInfo.LogicalCores));
+                context = defaultContext;
+            }
+        return context;
+    }
+
+    /**
+     * Sets the context to use when none has been set for the current thread.
+     * The pool of the previous default is not shut down.
+     *
+     * @param context the new default context
+     */
+    public static void setDefault(ExecutionContext context)
+    {
+        if(context == null)
+            throw new NullPointerException("context can not be null");
+        synchronized(ExecutionContext.class)
+        {
+            defaultContext = context;
+        }
+    }
+
+    /**
+     * Returns the context that parallel work started by the calling thread
+     * should use
+     *
+     * @return the current context
+     */
+    public static ExecutionContext current()
+    {
+        ExecutionContext context = SCOPE.get().context;
+        return context != null ? context : getDefault();
+    }
+
+    /**
+     * Returns an executor that runs tasks in whatever the
+     * {@link #current() current} context of the submitting thread is. See
+     * {@link #asExecutor() } for its behavior.
+     *
+     * @return an executor backed by the current context
+     */
+    public static ExecutorService currentExecutor()
+    {
+        return CURRENT_EXECUTOR;
+    }
+
+    /**
+     * Returns the context that backs the given executor, if it is one of the
+     * views returned by {@link #asExecutor() } or {@link #currentExecutor() }
+     * or is itself a {@link ForkJoinPool}.
+     *
+     * @param executor the executor to check
+     * @return the context behind {@code executor}, or {@code null} if it is
+     * some other kind of executor
+     */
+    public static ExecutionContext of(ExecutorService executor)
+    {
+        if(executor instanceof ContextExecutor)
+        {
+            ExecutionContext context = ((ContextExecutor) executor).context;
+            return context != null ? context : current();
+        }
+        else if(executor instanceof ForkJoinPool)
+        {
+            ExecutionContext context = current();
+            if(context.pool == executor)
+                return context;
+            return new ExecutionContext((ForkJoinPool) executor);
+        }
+        return null;
+    }
+
+    /**
+     * Runs the given code on the calling thread with this as the current
+     * context, so that all parallel work it starts uses this context.
+     *
+     * @param body the code to run
+     */
+    public void runWith(Runnable body)
+    {
+        callWith(() ->
+        {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the given code on the calling thread with this as the current
+     * context, so that all parallel work it starts uses this context.
+     *
+     * @param <T> the type of the result
+     * @param body the code to run
+     * @return the value returned by {@code body}
+     */
+    public <T> T callWith(Supplier<T> body)
+    {
+        Scope scope = SCOPE.get();
+        ExecutionContext old = scope.context;
+        scope.context = this;
+        try
+        {
+            return body.get();
+        }
+        finally
+        {
+            scope.context = old;
+        }
+    }
+
+    /**
+     * Returns the pool backing this context
+     *
+     * @return the pool backing this context
+     */
+    public ForkJoinPool getPool()
+    {
+        return pool;
+    }
+
+    /**
+     * Returns the number of threads this context will run work on
+     *
+     * @return the thread budget of this context
+     */
+    public int getParallelism()
+    {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Returns whether parallel regions inside another one may split their
+     * work
+     *
+     * @return {@code true} if nested parallelism is allowed
+     */
+    public boolean isNested()
+    {
+        return nested;
+    }
+
+    /**
+     * Returns {@code true} if the calling thread is running work for a
+     * parallel region, i.e., any work it starts would be nested.
+     *
+     * @return {@code true} if the calling thread is inside a parallel region
+     */
+    public static boolean inParallelRegion()
+    {
+        return SCOPE.get().depth > 0;
+    }
+
+    /**
+     * Returns {@code true} if a parallel region started from the calling
+     * thread may split its work across threads
+     *
+     * @return {@code true} if work may be split from the calling thread
+     */
+    public boolean canFork()
+    {
+        return nested || !inParallelRegion();
+    }
+
+    /**
+     * Returns an {@link ExecutorService} view of this context, for code that
+     * submits tasks and then waits on them. Tasks submitted from outside of
+     * any parallel region run in this context's pool. Tasks submitted from
+     * inside one are run immediately by the submitting thread, since a pool
+     * thread that blocks waiting on other tasks could otherwise starve the
+     * pool. Shutting down the view has no effect, as the pool belongs to the
+     * context.
+     *
+     * @return an executor backed by this context
+     */
+    public ExecutorService asExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Calls {@code lcr} on disjoint contiguous ranges that cover [0, N), using
+     * up to {@link #getParallelism() } ranges.
+     *
+     * @param N the number of items to process
+     * @param lcr the runnable over a contiguous range
+     */
+    public void run(int N, LoopChunkRunner lcr)
+    {
+        final int P = Math.min(getParallelism(), N);
+        invoke(P, (id) ->
+        {
+            lcr.run(ParallelUtils.getStartBlock(N, id, P), ParallelUtils.getEndBlock(N, id, P));
+            return null;
+        }, null);
+    }
+
+    /**
+     * Calls {@code lcr} on disjoint contiguous ranges that cover [0, N), using
+     * up to {@link #getParallelism() } ranges, and reduces the results in
+     * order.
+     *
+     * @param <T> the type of the result
+     * @param N the number of items to process
+     * @param lcr the reducer over a contiguous range
+     * @param reducer the method to combine the results of two ranges
+     * @return the reduced result, or {@code null} if {@code N} is zero
+     */
+    public <T> T run(int N, LoopChunkReducer<T> lcr, BinaryOperator<T> reducer)
+    {
+        final int P = Math.min(getParallelism(), N);
+        return invoke(P, (id) -> lcr.run(ParallelUtils.getStartBlock(N, id, P), ParallelUtils.getEndBlock(N, id, P)), reducer);
+    }
+
+    /**
+     * Calls {@code ir} on every index in [0, N), treating each index as its
+     * own task. This is meant for when the cost of each index varies a lot.
+     *
+     * @param N the number of items to process
+     * @param ir the runnable for a single index
+     */
+    public void run(int N, IndexRunnable ir)
+    {
+        invoke(N, (i) ->
+        {
+            ir.run(i);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Calls {@code ir} on every index in [0, N), treating each index as its
+     * own task, and reduces the results in order.
+     *
+     * @param <T> the type of the result
+     * @param N the number of items to process
+     * @param ir the reducer for a single index
+     * @param reducer the method to combine two results
+     * @return the reduced result, or {@code null} if {@code N} is zero
+     */
+    public <T> T run(int N, IndexReducer<T> ir, BinaryOperator<T> reducer)
+    {
+        return invoke(N, ir::run, reducer);
+    }
+
+    /**
+     * Runs the jobs [0, jobs), reducing their results in order
+     */
+    private <T> T invoke(int jobs, IntFunction<T> job, BinaryOperator<T> reducer)
+    {
+        if(jobs <= 0)
+            return null;
+        if(jobs == 1 || !canFork())
+        {
+            T result = job.apply(0);
+            for(int i = 1; i < jobs; i++)
+                result = reduce(reducer, result, job.apply(i));
+            return result;
+        }
+        return invoke(new Jobs<>(this, 0, jobs, job, reducer));
+    }
+
+    /**
+     * Runs the given task in this context's pool and waits for its result.
+     * If the calling thread already belongs to the pool, it will work on the
+     * task itself instead of blocking.
+     *
+     * @param <T> the type of the result
+     * @param task the task to run
+     * @return the result of the task
+     */
+    public <T> T invoke(ForkJoinTask<T> task)
+    {
+        if(ForkJoinTask.getPool() == pool)//cooperate with the region we are in
+            return task.invoke();
+        return pool.invoke(task);
+    }
+
+    private static <T> T reduce(BinaryOperator<T> reducer, T a, T b)
+    {
+        if(reducer == null || b == null)
+            return a;
+        if(a == null)
+            return b;
+        return reducer.apply(a, b);
+    }
+
+    /**
+     * Runs the given code with this as the current context, one parallel
+     * region deeper than the calling thread
+     */
+    <T> T enter(Supplier<T> body)
+    {
+        Scope scope = SCOPE.get();
+        ExecutionContext old = scope.context;
+        scope.context = this;
+        scope.depth++;
+        try
+        {
+            return body.get();
+        }
+        finally
+        {
+            scope.depth--;
+            scope.context = old;
+        }
+    }
+
+    /**
+     * Recursively splits a range of jobs in half, so that idle threads can
+     * steal the larger halves
+     */
+    private static class Jobs<T> extends RecursiveTask<T>
+    {
+        private static final long serialVersionUID = -3367251829417390672L;
+        private final ExecutionContext context;
+        private final int start, end;
+        private final IntFunction<T> job;
+        private final BinaryOperator<T> reducer;
+
+        public Jobs(ExecutionContext context, int start, int end, IntFunction<T> job, BinaryOperator<T> reducer)
+        {
+            this.context = context;
+            this.start = start;
+            this.end = end;
+            this.job = job;
+            this.reducer = reducer;
+        }
+
+        @Override
+        protected T compute()
+        {
+            if(end-start == 1)
+                return context.enter(() -> job.apply(start));
+            int mid = start + (end-start)/2;
+            Jobs<T> left = new Jobs<>(context, start, mid, job, reducer);
+            left.fork();
+            T right = new Jobs<>(context, mid, end, job, reducer).compute();
+            return reduce(reducer, left.join(), right);
+        }
+    }
+
+    /**
+     * The {@link ExecutorService} view of a context
+     */
+    private static class ContextExecutor extends AbstractExecutorService
+    {
+        /**
+         * The context to use, or {@code null} to use the current one
+         */
+        private final ExecutionContext context;
+
+        public ContextExecutor(ExecutionContext context)
+        {
+            this.context = context;
+        }
+
+        @Override
+        public void execute(Runnable command)
+        {
+            final ExecutionContext ctx = context != null ? context : current();
+            if(inParallelRegion())
+                command.run();
+            else
+                ctx.pool.execute(() -> ctx.enter(() ->
+                {
+                    command.run();
+                    return null;
+                }));
+        }
+
+        @Override
+        public void shutdown()
+        {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow()
+        {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+        {
+            return false;
+        }
+    }
+}
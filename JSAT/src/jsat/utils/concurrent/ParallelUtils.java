@@ -5,7 +5,6 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.function.BinaryOperator;
 import java.util.logging.Level;
@@ -25,18 +24,13 @@ public class ParallelUtils
 {
     /**
      * This object provides a re-usable source of threads for use without having
-     * to create a new thread pool. The cached executor service is used because
-     * no threads are created until needed. If the pool is unused for a long
-     * enough time, the threads will be destroyed. This avoids the user needing
-     * to do anything. This pool is filled with daemon threads, and so will not
-     * prevent program termination.
+     * to create a new thread pool. Tasks are run in the
+     * {@link ExecutionContext#current() current} {@link ExecutionContext}, so
+     * they share its thread budget with all other parallel work. Tasks
+     * submitted from inside of a parallel region are run by the submitting
+     * thread. Shutting down this executor has no effect.
      */
-    public static final ExecutorService CACHED_THREAD_POOL = Executors.newCachedThreadPool((Runnable r) ->
-    {
-        Thread t = Executors.defaultThreadFactory().newThread(r);
-        t.setDaemon(true);
-        return t;
-    });
+    public static final ExecutorService CACHED_THREAD_POOL = ExecutionContext.currentExecutor();
     
     /**
      * This helper method provides a convenient way to break up a computation
@@ -51,9 +45,10 @@ public class ParallelUtils
      */
     public static void run(boolean parallel, int N, LoopChunkRunner lcr)
     {
-        ExecutorService threadPool = Executors.newFixedThreadPool(SystemInfo.LogicalCores);
-        run(parallel, N, lcr, threadPool);
-        threadPool.shutdownNow();
+        if(!parallel)
+            lcr.run(0, N);
+        else
+            ExecutionContext.current().run(N, lcr);
     }
     
     /**
@@ -66,15 +61,23 @@ public class ParallelUtils
      * convenience so that only one set of code is needed to handle both cases.
      * @param N the total number of items to process. 
      * @param lcr the runnable over a contiguous range 
-     * @param threadPool the source of threads for the computation 
+     * @param threadPool the source of threads for the computation. If it is
+     * backed by an {@link ExecutionContext}, the work will be done in that
+     * context.
      */
     public static void run(boolean parallel, int N, LoopChunkRunner lcr, ExecutorService threadPool)
     {
-        if(!parallel)
+        if(!parallel || threadPool instanceof FakeExecutor)
         {
             lcr.run(0, N);
             return;
         }
+        ExecutionContext context = ExecutionContext.of(threadPool);
+        if(context != null)
+        {
+            context.run(N, lcr);
+            return;
+        }
         
         int cores_to_use = Math.min(SystemInfo.LogicalCores, N);
         final CountDownLatch latch = new CountDownLatch(cores_to_use);
@@ -103,10 +106,13 @@ public class ParallelUtils
     
     public static <T> T run(boolean parallel, int N, LoopChunkReducer<T> lcr, BinaryOperator<T> reducer, ExecutorService threadPool)
     {
-        if(!parallel)
+        if(!parallel || threadPool instanceof FakeExecutor)
         {
             return lcr.run(0, N);
         }
+        ExecutionContext context = ExecutionContext.of(threadPool);
+        if(context != null)
+            return context.run(N, lcr, reducer);
         
         
         int cores_to_use = Math.min(SystemInfo.LogicalCores, N);
@@ -145,10 +151,9 @@ public class ParallelUtils
     
     public static <T> T run(boolean parallel, int N, LoopChunkReducer<T> lcr, BinaryOperator<T> reducer)
     {
-        ExecutorService threadPool = Executors.newWorkStealingPool(SystemInfo.LogicalCores);
-        T toRet = run(parallel, N, lcr, reducer, threadPool);
-        threadPool.shutdownNow();
-        return toRet;
+        if(!parallel)
+            return lcr.run(0, N);
+        return ExecutionContext.current().run(N, lcr, reducer);
     }
     
     public static <T> T run(boolean parallel, int N, IndexReducer<T> ir, BinaryOperator<T> reducer)
@@ -161,14 +166,18 @@ public class ParallelUtils
             return runner;
         }
         
-        return range(N, parallel).mapToObj(j -> ir.run(j)).reduce(reducer).orElse(null);
+        return ExecutionContext.current().run(N, ir, reducer);
     }
     
     public static void run(boolean parallel, int N, IndexRunnable ir)
     {
-        ExecutorService threadPool = Executors.newWorkStealingPool(SystemInfo.LogicalCores);
-        run(parallel, N, ir, threadPool);
-        threadPool.shutdownNow();
+        if(!parallel)
+        {
+            for(int i = 0; i < N; i++)
+                ir.run(i);
+            return;
+        }
+        ExecutionContext.current().run(N, ir);
     }
     
     /**
@@ -185,16 +194,24 @@ public class ParallelUtils
      * convenience so that only one set of code is needed to handle both cases.
      * @param N the total number of items to process. 
      * @param ir the runnable over a contiguous range 
-     * @param threadPool the source of threads for the computation 
+     * @param threadPool the source of threads for the computation. If it is
+     * backed by an {@link ExecutionContext}, the work will be done in that
+     * context.
      */
     public static void run(boolean parallel, int N, IndexRunnable ir, ExecutorService threadPool)
     {
-        if(!parallel)
+        if(!parallel || threadPool instanceof FakeExecutor)
         {
             for(int i = 0; i < N; i++)
                 ir.run(i);
             return;
         }
+        ExecutionContext context = ExecutionContext.of(threadPool);
+        if(context != null)
+        {
+            context.run(N, ir);
+            return;
+        }
         
         final CountDownLatch latch = new CountDownLatch(N);
 
@@ -218,10 +235,18 @@ public class ParallelUtils
 
     }
     
+    /**
+     * Returns an executor to submit work to. 
+     * @param parallel {@code true} for an executor backed by the 
+     * {@link ExecutionContext#current() current} {@link ExecutionContext}, or 
+     * {@code false} for one that runs everything on the calling thread. 
+     * @return an executor for the requested level of parallelism. Shutting it
+     * down is allowed, but not needed. 
+     */
     public static ExecutorService getNewExecutor(boolean parallel)
     {
         if(parallel)
-            return Executors.newFixedThreadPool(SystemInfo.LogicalCores);
+            return CACHED_THREAD_POOL;
         else
             return new FakeExecutor();
     }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat;
+
+import java.util.Iterator;
+import java.util.Random;
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.classifiers.DataPoint;
+import jsat.classifiers.linear.NewGLMNET;
+import jsat.linear.DenseVector;
+import jsat.linear.IndexValue;
+import jsat.linear.Vec;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class CompressedColumnStoreTest
+{
+
+    public CompressedColumnStoreTest()
+    {
+    }
+
+    /**
+     * Creates a data set where each numeric column is suited to a different
+     * encoding.
+     */
+    private static SimpleDataSet getMixedData(int N, Random rand)
+    {
+        CategoricalData[] cats = new CategoricalData[]{new CategoricalData(3), new CategoricalData(40)};
+        SimpleDataSet data = new SimpleDataSet(8, cats);
+        for(int i = 0; i < N; i++)
+        {
+            Vec x = new DenseVector(8);
+            x.set(0, rand.nextGaussian());//dense double
+            x.set(1, (float) rand.nextGaussian());//dense float
+            x.set(2, rand.nextInt(5)*0.1);//dictionary
+            x.set(3, 2.5);//constant
+            x.set(4, i/100);//sorted with long runs
+            if(rand.nextDouble() < 0.05)
+                x.set(5, rand.nextGaussian());//sparse double
+            if(rand.nextDouble() < 0.05)
+                x.set(6, rand.nextInt(3)+1);//sparse dictionary
+            x.set(7, rand.nextDouble() < 0.01 ? Double.NaN : rand.nextInt(4));//dictionary with missing
+            int[] c = new int[]{rand.nextInt(3), rand.nextDouble() < 0.1 ? -1 : rand.nextInt(40)};
+            data.add(new DataPoint(x, c, cats));
+        }
+        return data;
+    }
+
+    private static void assertSameValue(double expected, double actual)
+    {
+        if(Double.isNaN(expected))
+            assertTrue(Double.isNaN(actual));
+        else
+            assertEquals(expected, actual, 0.0);
+    }
+
+    private static void checkSame(DataSet expected, DataStore store)
+    {
+        assertEquals(expected.size(), store.size());
+        assertEquals(expected.getNumNumericalVars(), store.numNumeric());
+        assertEquals(expected.getNumCategoricalVars(), store.numCategorical());
+        for(int i = 0; i < expected.size(); i++)
+        {
+            DataPoint a = expected.getDataPoint(i);
+            DataPoint b = store.getDataPoint(i);
+            for(int j = 0; j < expected.getNumNumericalVars(); j++)
+                assertSameValue(a.getNumericalValues().get(j), b.getNumericalValues().get(j));
+            assertArrayEquals(a.getCategoricalValues(), b.getCategoricalValues());
+        }
+
+        for(int j = 0; j < expected.getNumNumericalVars(); j++)
+        {
+            Vec col = store.getNumericColumn(j);
+            assertEquals(expected.size(), col.length());
+            int nnz = 0;
+            for(int i = 0; i < expected.size(); i++)
+            {
+                double v = expected.getDataPoint(i).getNumericalValues().get(j);
+                assertSameValue(v, col.get(i));
+                if(v != 0)
+                    nnz++;
+            }
+            assertEquals(nnz, col.nnz());
+            //iteration should visit exactly the non-zero values in order
+            int prev = -1;
+            for(IndexValue iv : col)
+            {
+                assertTrue(iv.getIndex() > prev);
+                prev = iv.getIndex();
+                assertSameValue(expected.getDataPoint(prev).getNumericalValues().get(j), iv.getValue());
+                nnz--;
+            }
+            assertEquals(0, nnz);
+            //starting part way through
+            int start = expected.size()/3;
+            Iterator<IndexValue> iter = col.getNonZeroIterator(start);
+            if(iter.hasNext())
+                assertTrue(iter.next().getIndex() >= start);
+        }
+
+        for(int j = 0; j < expected.getNumCategoricalVars(); j++)
+        {
+            int[] col = store.getCatColumn(j);
+            for(int i = 0; i < expected.size(); i++)
+                assertEquals(expected.getDataPoint(i).getCategoricalValue(j), col[i]);
+        }
+    }
+
+    @Test
+    public void testEncodings()
+    {
+        System.out.println("encodings");
+        SimpleDataSet data = getMixedData(5000, new XORWOW(13));
+        CompressedColumnStore store = new CompressedColumnStore(data.datapoints, false);
+
+        assertEquals(CompressedColumnStore.Encoding.DENSE_DOUBLE, store.getEncoding(0));
+        assertEquals(CompressedColumnStore.Encoding.DENSE_FLOAT, store.getEncoding(1));
+        assertEquals(CompressedColumnStore.Encoding.DENSE_DICTIONARY, store.getEncoding(2));
+        assertEquals(CompressedColumnStore.Encoding.RUN_LENGTH, store.getEncoding(3));
+        assertEquals(CompressedColumnStore.Encoding.RUN_LENGTH, store.getEncoding(4));
+        assertEquals(CompressedColumnStore.Encoding.SPARSE_DOUBLE, store.getEncoding(5));
+        assertEquals(CompressedColumnStore.Encoding.SPARSE_DICTIONARY, store.getEncoding(6));
+        assertEquals(CompressedColumnStore.Encoding.DENSE_DICTIONARY, store.getEncoding(7));
+
+        //8 columns of doubles and 2 of ints when uncompressed
+        long rawBytes = data.size()*(8L*Double.BYTES + 2*Integer.BYTES);
+        assertTrue(store.getCompressedBytes()*3 < rawBytes);
+
+        checkSame(data, store);
+        checkSame(data, store.clone());
+
+        store = new CompressedColumnStore(data.datapoints, true);
+        assertEquals(CompressedColumnStore.Encoding.DENSE_FLOAT, store.getEncoding(0));
+    }
+
+    @Test
+    public void testAlter()
+    {
+        System.out.println("alter");
+        Random rand = new XORWOW(7);
+        SimpleDataSet data = getMixedData(1000, rand);
+        SimpleDataSet extra = getMixedData(100, rand);
+        CompressedColumnStore store = new CompressedColumnStore(data.datapoints, false);
+
+        data.setDataPoint(10, extra.getDataPoint(0));
+        store.setDataPoint(10, extra.getDataPoint(0));
+        assertNull(store.getEncoding(0));
+        checkSame(data, store);
+        store.finishAdding();
+        checkSame(data, store);
+
+        for(int i = 1; i < extra.size(); i++)
+        {
+            data.add(extra.getDataPoint(i));
+            store.addDataPoint(extra.getDataPoint(i));
+        }
+        store.finishAdding();
+        checkSame(data, store);
+
+        store.setNumNumeric(10);
+        assertEquals(10, store.numNumeric());
+        assertEquals(0, store.getNumericColumn(9).nnz());
+        assertEquals(0.0, store.getDataPoint(5).getNumericalValues().get(9), 0.0);
+        store.setNumNumeric(8);
+        checkSame(data, store);
+    }
+
+    @Test
+    public void testColumnLearner()
+    {
+        System.out.println("columnLearner");
+        ClassificationDataSet train = FixedProblems.getSimpleKClassLinear(500, 2, new XORWOW(3));
+        ClassificationDataSet compressed = train.shallowClone();
+        compressed.setDataStore(new CompressedColumnStore());
+        assertFalse(compressed.rowMajor());
+
+        NewGLMNET expected = new NewGLMNET();
+        expected.setTolerance(1e-8);
+        expected.train(train);
+        NewGLMNET actual = new NewGLMNET();
+        actual.setTolerance(1e-8);
+        actual.train(compressed);
+
+        //coordinate order is random, so both only converge to the same solution up to the tolerance
+        double diff = expected.getRawWeight(0).subtract(actual.getRawWeight(0)).pNorm(2);
+        assertEquals(0.0, diff/expected.getRawWeight(0).pNorm(2), 0.05);
+
+        ClassificationDataSet test = FixedProblems.getSimpleKClassLinear(200, 2, new XORWOW(4));
+        for(int i = 0; i < test.size(); i++)
+            assertEquals(test.getDataPointCategory(i), actual.classify(test.getDataPoint(i)).mostLikely());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.classifiers.DataPoint;
+import jsat.linear.DenseVector;
+import jsat.linear.SparseVector;
+import jsat.linear.Vec;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class SubsetStoreTest
+{
+
+    public SubsetStoreTest()
+    {
+    }
+
+    private static ClassificationDataSet getData(int N, Random rand)
+    {
+        CategoricalData[] cats = new CategoricalData[]{new CategoricalData(4)};
+        ClassificationDataSet data = new ClassificationDataSet(20, cats, new CategoricalData(3));
+        for(int i = 0; i < N; i++)
+        {
+            Vec x = new SparseVector(20);
+            for(int j = 0; j < 3; j++)
+                x.set(rand.nextInt(20), rand.nextGaussian());
+            data.addDataPoint(x, new int[]{rand.nextInt(4)}, rand.nextInt(3), rand.nextDouble()+0.5);
+        }
+        return data;
+    }
+
+    private static void checkRows(DataSet data, int[] rows, DataStore view)
+    {
+        assertEquals(rows.length, view.size());
+        assertEquals(data.getNumNumericalVars(), view.numNumeric());
+        assertEquals(data.getNumCategoricalVars(), view.numCategorical());
+        for(int i = 0; i < rows.length; i++)
+        {
+            DataPoint a = data.getDataPoint(rows[i]);
+            DataPoint b = view.getDataPoint(i);
+            assertEquals(0.0, a.getNumericalValues().subtract(b.getNumericalValues()).pNorm(1), 0.0);
+            assertArrayEquals(a.getCategoricalValues(), b.getCategoricalValues());
+        }
+
+        Vec[] cols = view.getNumericColumns(java.util.Collections.EMPTY_SET);
+        for(int j = 0; j < data.getNumNumericalVars(); j++)
+        {
+            assertEquals(rows.length, cols[j].length());
+            int nnz = 0;
+            for(int i = 0; i < rows.length; i++)
+            {
+                double v = data.getDataPoint(rows[i]).getNumericalValues().get(j);
+                assertEquals(v, cols[j].get(i), 0.0);
+                if(v != 0)
+                    nnz++;
+            }
+            assertEquals(nnz, cols[j].nnz());
+        }
+        int[] catCol = view.getCatColumn(0);
+        for(int i = 0; i < rows.length; i++)
+            assertEquals(data.getDataPoint(rows[i]).getCategoricalValue(0), catCol[i]);
+    }
+
+    @Test
+    public void testView()
+    {
+        System.out.println("view");
+        Random rand = new XORWOW(42);
+        ClassificationDataSet data = getData(500, rand);
+        int[] rows = new int[800];
+        for(int i = 0; i < rows.length; i++)
+            rows[i] = rand.nextInt(data.size());
+
+        ClassificationDataSet colMajor = data.shallowClone();
+        colMajor.setDataStore(new ColumnMajorStore(true));
+        ClassificationDataSet compressed = data.shallowClone();
+        compressed.setDataStore(new CompressedColumnStore());
+
+        for(ClassificationDataSet d : new ClassificationDataSet[]{data, colMajor, compressed})
+        {
+            SubsetStore view = SubsetStore.of(d.datapoints, rows);
+            assertEquals(d.rowMajor(), view.rowMajor());
+            checkRows(d, rows, view);
+            checkRows(d, rows, view.clone());
+
+            //a view of a view refers to the original store
+            int[] subRows = Arrays.copyOf(rows, 100);
+            int[] expectedRows = new int[subRows.length];
+            for(int i = 0; i < subRows.length; i++)
+            {
+                subRows[i] = i*7 % rows.length;
+                expectedRows[i] = rows[subRows[i]];
+            }
+            checkRows(d, expectedRows, SubsetStore.of(view, subRows));
+        }
+    }
+
+    @Test
+    public void testAlter()
+    {
+        System.out.println("alter");
+        Random rand = new XORWOW(42);
+        ClassificationDataSet data = getData(100, rand);
+        DataPoint orig = data.getDataPoint(3);
+        ClassificationDataSet subset = data.getSubset(new int[]{3, 3, 7});
+        assertEquals(data.getDataPointCategory(3), subset.getDataPointCategory(1));
+        assertEquals(data.getWeight(7), subset.getWeight(2), 0.0);
+
+        //changes to the view don't effect the original data
+        DataPoint replacement = new DataPoint(new DenseVector(20), new int[]{0}, data.getCategories());
+        subset.setDataPoint(0, replacement);
+        subset.addDataPoint(replacement, 1, 2.0);
+        subset.setWeight(1, 10);
+        assertEquals(4, subset.size());
+        assertSame(replacement, subset.getDataPoint(0));
+        assertSame(orig, data.getDataPoint(3));
+        assertEquals(0.0, orig.getNumericalValues().subtract(subset.getDataPoint(1).getNumericalValues()).pNorm(1), 0.0);
+        assertTrue(data.getWeight(3) != 10);
+        assertEquals(100, data.size());
+    }
+
+    @Test
+    public void testCrossValidation()
+    {
+        System.out.println("crossValidation");
+        Random rand = new XORWOW(42);
+        ClassificationDataSet data = getData(503, rand);
+        List<ClassificationDataSet> folds = data.cvSet(5, rand);
+        int total = 0;
+        for(ClassificationDataSet fold : folds)
+        {
+            assertTrue(fold.datapoints instanceof SubsetStore);
+            total += fold.size();
+        }
+        assertEquals(data.size(), total);
+
+        for(int k = 0; k < folds.size(); k++)
+        {
+            ClassificationDataSet train = ClassificationDataSet.comineAllBut(folds, k);
+            assertTrue(train.datapoints instanceof SubsetStore);
+            assertEquals(data.size()-folds.get(k).size(), train.size());
+            int pos = 0;
+            for(int f = 0; f < folds.size(); f++)
+            {
+                if(f == k)
+                    continue;
+                for(int i = 0; i < folds.get(f).size(); i++, pos++)
+                {
+                    assertSame(folds.get(f).getDataPoint(i), train.getDataPoint(pos));
+                    assertEquals(folds.get(f).getDataPointCategory(i), train.getDataPointCategory(pos));
+                    assertEquals(folds.get(f).getWeight(i), train.getWeight(pos), 0.0);
+                }
+            }
+        }
+    }
+}
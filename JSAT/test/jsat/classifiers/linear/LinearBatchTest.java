@@ -1,13 +1,18 @@
 package jsat.classifiers.linear;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import jsat.FixedProblems;
+import jsat.classifiers.CategoricalResults;
 import jsat.classifiers.ClassificationDataSet;
 import jsat.classifiers.DataPointPair;
 import jsat.classifiers.svm.DCD;
 import jsat.classifiers.svm.DCDs;
 import jsat.datatransform.LinearTransform;
+import jsat.linear.SparseVector;
+import jsat.linear.Vec;
 import jsat.lossfunctions.*;
 import jsat.math.OnLineStatistics;
 import jsat.math.optimization.LBFGS;
@@ -249,6 +254,62 @@ public class LinearBatchTest
         }
     }
 
+    @Test
+    public void testClassifyBatch()
+    {
+        System.out.println("classifyBatch");
+        for(LossFunc loss : new LossFunc[]{new HingeLoss(), new SoftmaxLoss()})
+            for(int K : new int[]{2, 6})
+            {
+                LinearBatch linearBatch = new LinearBatch(loss, 1e-4);
+                linearBatch.train(FixedProblems.getSimpleKClassLinear(500, K, RandomUtil.getRandom()));
+
+                ClassificationDataSet test = FixedProblems.getSimpleKClassLinear(200, K, RandomUtil.getRandom());
+                List<Vec> sparse = new ArrayList<>();
+                for(Vec x : test.getDataVectors())
+                    sparse.add(new SparseVector(x));
+
+                double[][] fromSet = new double[test.size()][K];
+                double[][] fromMatrix = new double[test.size()][K];
+                double[][] fromSparse = new double[test.size()][K];
+                linearBatch.classify(test, fromSet);
+                linearBatch.classifyBatch(test.getDataMatrix(), fromMatrix);
+                linearBatch.classifyBatch(sparse, fromSparse);
+
+                for(int i = 0; i < test.size(); i++)
+                {
+                    CategoricalResults result = linearBatch.classify(test.getDataPoint(i));
+                    for(int j = 0; j < K; j++)
+                    {
+                        assertEquals(result.getProb(j), fromSet[i][j], 1e-10);
+                        assertEquals(result.getProb(j), fromMatrix[i][j], 1e-10);
+                        assertEquals(result.getProb(j), fromSparse[i][j], 1e-10);
+                    }
+                }
+            }
+    }
+    
+    @Test
+    public void testRegressBatch()
+    {
+        System.out.println("regressBatch");
+        LinearBatch linearBatch = new LinearBatch(new SquaredLoss(), 1e-4);
+        linearBatch.train(FixedProblems.getLinearRegression(500, RandomUtil.getRandom()));
+
+        RegressionDataSet test = FixedProblems.getLinearRegression(200, RandomUtil.getRandom());
+        double[] fromSet = new double[test.size()];
+        double[] fromMatrix = new double[test.size()];
+        linearBatch.regress(test, fromSet);
+        linearBatch.regressBatch(test.getDataMatrix(), fromMatrix);
+
+        for(int i = 0; i < test.size(); i++)
+        {
+            double pred = linearBatch.regress(test.getDataPoint(i));
+            assertEquals(pred, fromSet[i], 1e-8*Math.max(1, Math.abs(pred)));
+            assertEquals(pred, fromMatrix[i], 1e-8*Math.max(1, Math.abs(pred)));
+        }
+    }
+
     @Test()
     public void testTrainWarmRFast()
     {
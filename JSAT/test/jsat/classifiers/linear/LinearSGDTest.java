@@ -7,10 +7,16 @@ package jsat.classifiers.linear;
 import java.util.Random;
 import jsat.FixedProblems;
 import jsat.TestTools;
+import jsat.classifiers.CategoricalData;
 import jsat.classifiers.ClassificationDataSet;
 import jsat.classifiers.DataPointPair;
+import jsat.linear.DenseVector;
+import jsat.linear.SparseVector;
+import jsat.linear.Vec;
 import jsat.lossfunctions.HingeLoss;
+import jsat.lossfunctions.LogisticLoss;
 import jsat.lossfunctions.SquaredLoss;
+import jsat.math.decayrates.NoDecay;
 import jsat.math.optimization.stochastic.AdaGrad;
 import jsat.math.optimization.stochastic.GradientUpdater;
 import jsat.math.optimization.stochastic.RMSProp;
@@ -139,4 +145,90 @@ public class LinearSGDTest
             }
         }
     }
+
+    @Test
+    public void testHogwild()
+    {
+        System.out.println("hogwild");
+        for(GradientUpdater gu : new GradientUpdater[]{new SimpleSGD(), new AdaGrad()})
+        {
+            LinearSGD linearsgd = new LinearSGD(new HingeLoss(), 1e-4, 1e-5);
+            linearsgd.setGradientUpdater(gu);
+            linearsgd.setHogwild(true);
+
+            ClassificationDataSet train = FixedProblems.get2ClassLinear(500, RandomUtil.getRandom());
+            linearsgd.train(train, true);
+            ClassificationDataSet test = FixedProblems.get2ClassLinear(200, RandomUtil.getRandom());
+            for(DataPointPair<Integer> dpp : test.getAsDPPList())
+                assertEquals(dpp.getPair().longValue(), linearsgd.classify(dpp.getDataPoint()).mostLikely());
+
+            linearsgd = linearsgd.clone();
+            train = FixedProblems.getSimpleKClassLinear(500, 6, RandomUtil.getRandom());
+            linearsgd.train(train, true);
+            test = FixedProblems.getSimpleKClassLinear(200, 6, RandomUtil.getRandom());
+            for(DataPointPair<Integer> dpp : test.getAsDPPList())
+                assertEquals(dpp.getPair().longValue(), linearsgd.classify(dpp.getDataPoint()).mostLikely());
+        }
+        
+        LinearSGD linearsgd = new LinearSGD(new SquaredLoss(), 0.0, 0.0);
+        linearsgd.setEpochs(50);
+        linearsgd.setHogwild(true);
+        RegressionDataSet train = FixedProblems.getLinearRegression(10000, RandomUtil.getRandom());
+        linearsgd.train(train, true);
+        RegressionDataSet test = FixedProblems.getLinearRegression(200, RandomUtil.getRandom());
+        double err = 0;
+        for(int i = 0; i < test.size(); i++)
+            err += Math.abs(linearsgd.regress(test.getDataPoint(i))-test.getTargetValue(i))/test.size();
+        assertTrue(err <= test.getTargetValues().mean()*1.5);
+    }
+    
+    /**
+     * Hogwild training should converge to the same solution as sequential
+     * training on sparse data with both regularization penalties in use
+     */
+    @Test
+    public void testHogwildEquivalence()
+    {
+        System.out.println("hogwild equivalence");
+        Random rand = RandomUtil.getRandom();
+        int D = 2000;
+        Vec trueW = DenseVector.random(D, rand);
+        trueW.mutableSubtract(0.5);
+        ClassificationDataSet train = new ClassificationDataSet(D, new CategoricalData[0], new CategoricalData(2));
+        ClassificationDataSet test = new ClassificationDataSet(D, new CategoricalData[0], new CategoricalData(2));
+        for(int i = 0; i < 6000; i++)
+        {
+            Vec x = new SparseVector(D);
+            for(int j = 0; j < 20; j++)
+                x.set(rand.nextInt(D), rand.nextDouble());
+            int y = x.dot(trueW) > 0 ? 1 : 0;
+            if(i < 5000)
+                train.addDataPoint(x, y);
+            else
+                test.addDataPoint(x, y);
+        }
+        
+        LinearSGD serial = new LinearSGD(new LogisticLoss(), 0.1, new NoDecay(), 1e-4, 1e-6);
+        serial.setEpochs(5);
+        LinearSGD hogwild = serial.clone();
+        hogwild.setHogwild(true);
+        serial.train(train, true);
+        hogwild.train(train, true);
+        
+        int serialErrors = 0, hogwildErrors = 0;
+        for(int i = 0; i < test.size(); i++)
+        {
+            if(serial.classify(test.getDataPoint(i)).mostLikely() != test.getDataPointCategory(i))
+                serialErrors++;
+            if(hogwild.classify(test.getDataPoint(i)).mostLikely() != test.getDataPointCategory(i))
+                hogwildErrors++;
+        }
+        assertEquals(serialErrors, hogwildErrors, test.size()*0.03);
+        
+        Vec w_s = serial.getRawWeight(0);
+        Vec w_h = hogwild.getRawWeight(0);
+        double cosine = w_s.dot(w_h)/(w_s.pNorm(2)*w_h.pNorm(2));
+        assertTrue(cosine > 0.95);
+        assertEquals(w_s.pNorm(2), w_h.pNorm(2), w_s.pNorm(2)*0.1);
+    }
 }
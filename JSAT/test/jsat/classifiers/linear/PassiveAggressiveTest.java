@@ -94,4 +94,51 @@ public class PassiveAggressiveTest
         }
     }
 
+    @Test
+    public void testTrainC_Hogwild()
+    {
+        System.out.println("trainC hogwild");
+        ClassificationDataSet train = FixedProblems.get2ClassLinear(400, RandomUtil.getRandom());
+        
+        for(PassiveAggressive.Mode mode : PassiveAggressive.Mode.values())
+        {
+            PassiveAggressive pa = new PassiveAggressive();
+            pa.setMode(mode);
+            pa.setHogwild(true);
+            pa.train(train, true);
+
+            ClassificationDataSet test = FixedProblems.get2ClassLinear(400, RandomUtil.getRandom());
+
+            for(DataPointPair<Integer> dpp : test.getAsDPPList())
+                assertEquals(dpp.getPair().longValue(), pa.classify(dpp.getDataPoint()).mostLikely());
+        }
+    }
+
+    @Test
+    public void testTrainR_Hogwild()
+    {
+        System.out.println("train hogwild");
+        Random rand = new Random(123);
+        
+        for(PassiveAggressive.Mode mode : PassiveAggressive.Mode.values())
+        {
+            PassiveAggressive pa = new PassiveAggressive();
+            pa.setMode(mode);
+            pa.setEps(0.00001);
+            pa.setEpochs(10);
+            pa.setC(20);
+            pa.setHogwild(true);
+            pa.train(FixedProblems.getLinearRegression(400, rand), true);
+
+            for(DataPointPair<Double> dpp : FixedProblems.getLinearRegression(100, rand).getAsDPPList())
+            {
+                double truth = dpp.getPair();
+                double pred = pa.regress(dpp.getDataPoint());
+
+                double relErr = (truth-pred)/truth;
+                assertEquals(0.0, relErr, 0.1);//Give it a decent wiggle room b/c of regularization
+            }
+        }
+    }
+
 }
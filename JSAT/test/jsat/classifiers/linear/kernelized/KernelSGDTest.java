@@ -4,6 +4,7 @@ import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import jsat.FixedProblems;
+import jsat.classifiers.CategoricalResults;
 import jsat.classifiers.ClassificationDataSet;
 import jsat.distributions.kernels.KernelPoint;
 import jsat.distributions.kernels.RBFKernel;
@@ -153,6 +154,47 @@ public class KernelSGDTest
         assertTrue(errors / testSet.size() < 1);
     }
     
+    @Test
+    public void testClassifyBatch()
+    {
+        System.out.println("classifyBatch");
+        for(int K : new int[]{2, 3})
+        {
+            double[] radi = K == 2 ? new double[]{1.0, 4.0} : new double[]{1.0, 2.0, 4.0};
+            ClassificationDataSet trainSet = FixedProblems.getCircles(150, new Random(2), radi);
+            ClassificationDataSet testSet = FixedProblems.getCircles(50, new Random(3), radi);
+
+            KernelSGD classifier = new KernelSGD(new SoftmaxLoss(), new RBFKernel(0.5), 1e-5, KernelPoint.BudgetStrategy.STOP, 100);
+            classifier.train(trainSet);
+
+            double[][] fromSet = new double[testSet.size()][K];
+            classifier.classify(testSet, fromSet);
+            for (int i = 0; i < testSet.size(); i++)
+            {
+                CategoricalResults result = classifier.classify(testSet.getDataPoint(i));
+                for(int j = 0; j < K; j++)
+                    assertEquals(result.getProb(j), fromSet[i][j], 1e-10);
+            }
+        }
+    }
+
+    @Test
+    public void testRegressBatch()
+    {
+        System.out.println("regressBatch");
+        RegressionDataSet trainSet = FixedProblems.getSimpleRegression1(150, new Random(2));
+        RegressionDataSet testSet = FixedProblems.getSimpleRegression1(50, new Random(3));
+
+        KernelSGD classifier = new KernelSGD(new EpsilonInsensitiveLoss(0.1), new RBFKernel(0.5), 1e-5, KernelPoint.BudgetStrategy.MERGE_RBF, 50);
+        classifier.setEpochs(10);
+        classifier.train(trainSet);
+
+        double[] fromSet = new double[testSet.size()];
+        classifier.regress(testSet, fromSet);
+        for (int i = 0; i < testSet.size(); i++)
+            assertEquals(classifier.regress(testSet.getDataPoint(i)), fromSet[i], 1e-10);
+    }
+    
     @Test
     public void testClone()
     {
@@ -9,6 +9,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import jsat.FixedProblems;
 import jsat.TestTools;
+import jsat.classifiers.CategoricalResults;
 import jsat.classifiers.ClassificationDataSet;
 import jsat.regression.RegressionDataSet;
 import jsat.utils.SystemInfo;
@@ -102,4 +103,29 @@ public class DReDNetSimpleTest
     
     
 
+    @Test
+    public void testClassifyBatch()
+    {
+        System.out.println("classifyBatch");
+        ClassificationDataSet trainSet = FixedProblems.getInnerOuterCircle(2000, RandomUtil.getRandom());
+        ClassificationDataSet testSet = FixedProblems.getInnerOuterCircle(200, RandomUtil.getRandom());
+
+        DReDNetSimple net = new DReDNetSimple(500);
+        net.setEpochs(5);
+        net.train(trainSet);
+
+        double[][] fromSet = new double[testSet.size()][2];
+        double[][] fromMatrix = new double[testSet.size()][2];
+        net.classify(testSet, fromSet);
+        net.classifyBatch(testSet.getDataMatrix(), fromMatrix);
+        for (int i = 0; i < testSet.size(); i++)
+        {
+            CategoricalResults result = net.classify(testSet.getDataPoint(i));
+            for(int j = 0; j < 2; j++)
+            {
+                assertEquals(result.getProb(j), fromSet[i][j], 1e-10);
+                assertEquals(result.getProb(j), fromMatrix[i][j], 1e-10);
+            }
+        }
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.classifiers.neuralnetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import jsat.classifiers.neuralnetwork.activations.*;
+import jsat.classifiers.neuralnetwork.initializers.ConstantInit;
+import jsat.classifiers.neuralnetwork.initializers.GaussianNormalInit;
+import jsat.linear.DenseMatrix;
+import jsat.linear.DenseVector;
+import jsat.linear.Matrix;
+import jsat.linear.SparseVector;
+import jsat.linear.Vec;
+import jsat.math.optimization.stochastic.SimpleSGD;
+import jsat.utils.concurrent.ParallelUtils;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class SGDNetworkTrainerTest
+{
+
+    public SGDNetworkTrainerTest()
+    {
+    }
+
+    /**
+     * Splitting each mini batch across threads should produce the same
+     * updates as processing the whole mini batch at once
+     */
+    @Test
+    public void testDataParallel()
+    {
+        System.out.println("dataParallel");
+        Random rand = new XORWOW(123);
+
+        SGDNetworkTrainer serial = new SGDNetworkTrainer();
+        serial.setLayerSizes(6, 10, 8, 3);
+        serial.setLayersActivation(Arrays.asList(new ReLU(), new SigmoidLayer(), new SoftmaxLayer()));
+        serial.setDropoutInput(0);
+        serial.setDropoutHidden(0);
+        serial.setGradientUpdater(new SimpleSGD());
+        serial.setEta(0.1);
+        serial.setWeightInit(new GaussianNormalInit(0.1));
+        serial.setBiasInit(new ConstantInit(0.1));
+        serial.setup();
+
+        SGDNetworkTrainer dataParallel = new SGDNetworkTrainer(serial);
+        dataParallel.setDataParallel(true);
+
+        List<Vec> x = new ArrayList<>();
+        List<Vec> y = new ArrayList<>();
+        for(int i = 0; i < 50; i++)
+        {
+            Vec x_i = i % 2 == 0 ? DenseVector.random(6, rand) : new SparseVector(6);
+            x_i.set(rand.nextInt(6), rand.nextGaussian());
+            x.add(x_i);
+            Vec y_i = new DenseVector(3);
+            y_i.set(rand.nextInt(3), 1.0);
+            y.add(y_i);
+        }
+
+        ExecutorService ex = ParallelUtils.getNewExecutor(true);
+        for(int epoch = 0; epoch < 3; epoch++)
+            for(int i = 0; i < x.size(); i += 16)//last batch is smaller
+            {
+                int to = Math.min(i+16, x.size());
+                double err_s = serial.updateMiniBatch(x.subList(i, to), y.subList(i, to));
+                double err_p = dataParallel.updateMiniBatch(x.subList(i, to), y.subList(i, to), ex);
+                assertEquals(err_s, err_p, 1e-8);
+            }
+        ex.shutdownNow();
+
+        for(Vec x_i : x)
+        {
+            Vec out_s = serial.feedfoward(x_i);
+            Vec out_p = dataParallel.feedfoward(x_i);
+            assertEquals(0.0, out_s.subtract(out_p).pNorm(2), 1e-8);
+        }
+    }
+
+    /**
+     * The fused bias and activation must match adding the bias, and then
+     * activating
+     */
+    @Test
+    public void testFusedActivation()
+    {
+        System.out.println("fusedActivation");
+        Random rand = new XORWOW(123);
+        ActivationLayer[] layers = new ActivationLayer[]
+        {
+            new LinearLayer(), new ReLU(), new SigmoidLayer(), new TanhLayer(),
+            new SoftSignLayer(), new SoftmaxLayer()
+        };
+
+        for(boolean rowMajor : new boolean[]{false, true})
+            for(ActivationLayer layer : layers)
+            {
+                Matrix z = new DenseMatrix(5, 7);
+                for(int i = 0; i < z.rows(); i++)
+                    for(int j = 0; j < z.cols(); j++)
+                        z.set(i, j, rand.nextGaussian());
+                Vec bias = DenseVector.random(rowMajor ? 7 : 5, rand);
+
+                Matrix z_expected = z.clone();
+                for(int i = 0; i < z.rows(); i++)
+                    for(int j = 0; j < z.cols(); j++)
+                        z_expected.increment(i, j, bias.get(rowMajor ? j : i));
+                Matrix a_expected = new DenseMatrix(5, 7);
+                layer.activate(z_expected, a_expected, rowMajor);
+
+                Matrix a = new DenseMatrix(5, 7);
+                layer.activate(z, bias, a, rowMajor);
+                assertTrue(z_expected.equals(z, 1e-12));
+                assertTrue(a_expected.equals(a, 1e-12));
+            }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.classifiers.svm;
+
+import java.util.Random;
+import jsat.FixedProblems;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.distributions.kernels.RBFKernel;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class KernelRowCacheTest
+{
+
+    public KernelRowCacheTest()
+    {
+    }
+
+    @Test
+    public void testByteBudget()
+    {
+        System.out.println("byteBudget");
+        final int N = 100;
+        for(boolean useFloats : new boolean[]{false, true})
+        {
+            long rowBytes = KernelRowCache.bytesPerRow(N, useFloats);
+            KernelRowCache cache = new KernelRowCache(10*rowBytes, KernelRowCache.StandardEviction.LRU, useFloats);
+            KernelRowCache.Partition part = cache.getPartition(this, new RBFKernel(0.5), N);
+
+            for(int r = 0; r < 25; r++)
+            {
+                KernelRowCache.Row row = part.getRow(r);
+                assertTrue(Double.isNaN(row.get(r)));
+                row.set(r, r);
+                assertTrue(cache.getUsedBytes() <= cache.getMaxBytes());
+            }
+            assertEquals(10, cache.getNumRows());
+            assertEquals(25, cache.getMisses());
+            assertEquals(15, cache.getEvictions());
+            assertEquals(0, cache.getHits());
+
+            //LRU should have kept the last 10 rows
+            for(int r = 15; r < 25; r++)
+                assertEquals(r, part.getRow(r).get(r), 0.0);
+            assertEquals(10, cache.getHits());
+            assertEquals(25, cache.getMisses());
+        }
+    }
+
+    @Test
+    public void testKeys()
+    {
+        System.out.println("keys");
+        KernelRowCache cache = new KernelRowCache(1 << 20);
+        Object source_a = new Object();
+        Object source_b = new Object();
+
+        cache.getPartition(source_a, new RBFKernel(0.5), 10).getRow(0).set(1, 3.0);
+        //same source and kernel parameters, different kernel object
+        assertEquals(3.0, cache.getPartition(source_a, new RBFKernel(0.5), 10).getRow(0).get(1), 0.0);
+        //different parameters or sources should not see the value
+        assertTrue(Double.isNaN(cache.getPartition(source_a, new RBFKernel(2.0), 10).getRow(0).get(1)));
+        assertTrue(Double.isNaN(cache.getPartition(source_b, new RBFKernel(0.5), 10).getRow(0).get(1)));
+    }
+
+    @Test
+    public void testWorkingSetEviction()
+    {
+        System.out.println("workingSetEviction");
+        final int N = 50;
+        KernelRowCache cache = new KernelRowCache(4*KernelRowCache.bytesPerRow(N, false), KernelRowCache.StandardEviction.WORKING_SET, false);
+        KernelRowCache.Partition part = cache.getPartition(this, new RBFKernel(0.5), N);
+        for(int r = 0; r < 4; r++)
+            part.getRow(r).set(0, r);
+        //row 3 is the most recent, but out of the working set
+        part.setActive(3, false);
+        part.getRow(4);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(0.0, part.getRow(0).get(0), 0.0);
+        assertTrue(Double.isNaN(part.getRow(3).get(0)));
+    }
+
+    @Test
+    public void testSharedCacheSVM()
+    {
+        System.out.println("sharedCacheSVM");
+        ClassificationDataSet trainSet = FixedProblems.getInnerOuterCircle(150, new Random(2));
+        ClassificationDataSet testSet = FixedProblems.getInnerOuterCircle(50, new Random(3));
+
+        for(KernelRowCache.StandardEviction eviction : KernelRowCache.StandardEviction.values())
+        {
+            KernelRowCache cache = new KernelRowCache(1 << 22, eviction, false);
+            PlattSMO base = new PlattSMO(new RBFKernel(0.5));
+            base.setCacheMode(SupportVectorLearner.CacheMode.ROWS);
+            base.setSharedCache(cache);
+
+            for(double C : new double[]{1, 10, 100})
+            {
+                PlattSMO smo = base.clone();
+                smo.setC(C);
+                smo.train(trainSet);
+
+                PlattSMO reference = new PlattSMO(new RBFKernel(0.5));
+                reference.setCacheMode(SupportVectorLearner.CacheMode.NONE);
+                reference.setC(C);
+                reference.train(trainSet);
+
+                for (int i = 0; i < testSet.size(); i++)
+                {
+                    assertEquals(testSet.getDataPointCategory(i), smo.classify(testSet.getDataPoint(i)).mostLikely());
+                    assertEquals(reference.getScore(testSet.getDataPoint(i)), smo.getScore(testSet.getDataPoint(i)), 1e-10);
+                }
+
+                //all models after the first should re-use the rows
+                if(C > 1)
+                    assertTrue(cache.getHits() > 0);
+                assertTrue(cache.getMisses() <= trainSet.size());
+            }
+        }
+    }
+}
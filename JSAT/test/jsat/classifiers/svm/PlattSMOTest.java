@@ -148,6 +148,77 @@ public class PlattSMOTest
             }
     }
     
+    @Test
+    public void testTrainC_SecondOrder()
+    {
+        System.out.println("trainC_SecondOrder");
+        //large enough that the kernel rows and gradient updates are split across threads
+        ClassificationDataSet trainSet = FixedProblems.getInnerOuterCircle(600, new Random(2));
+        ClassificationDataSet testSet = FixedProblems.getInnerOuterCircle(50, new Random(3));
+
+        for (boolean parallel : new boolean[] {true, false})
+            for (boolean shrinking : new boolean[] {true, false})
+                for (SupportVectorLearner.CacheMode cacheMode : SupportVectorLearner.CacheMode.values())
+                {
+                    PlattSMO classifier = new PlattSMO(new RBFKernel(0.5));
+                    classifier.setCacheMode(cacheMode);
+                    classifier.setC(10);
+                    classifier.setSecondOrder(true);
+                    classifier.setShrinking(shrinking);
+                    classifier.train(trainSet, parallel);
+
+                    for (int i = 0; i < testSet.size(); i++)
+                        assertEquals(testSet.getDataPointCategory(i), classifier.classify(testSet.getDataPoint(i)).mostLikely());
+                }
+    }
+
+    @Test
+    public void testTrainC_SecondOrderMatchesFirstOrder()
+    {
+        System.out.println("trainC_SecondOrderMatchesFirstOrder");
+        ClassificationDataSet trainSet = FixedProblems.getInnerOuterCircle(150, new Random(2));
+        ClassificationDataSet testSet = FixedProblems.getInnerOuterCircle(50, new Random(3));
+
+        PlattSMO firstOrder = new PlattSMO(new RBFKernel(0.5));
+        firstOrder.setC(10);
+        firstOrder.setTolerance(1e-5);
+        firstOrder.train(trainSet);
+
+        PlattSMO secondOrder = firstOrder.clone();
+        secondOrder.setSecondOrder(true);
+        secondOrder.train(trainSet);
+
+        //both solve the same problem, so should give the same decision function
+        for (int i = 0; i < testSet.size(); i++)
+            assertEquals(firstOrder.getScore(testSet.getDataPoint(i)), secondOrder.getScore(testSet.getDataPoint(i)), 1e-3);
+    }
+
+    @Test
+    public void testTrain_RegressionDataSet_SecondOrder()
+    {
+        System.out.println("train_SecondOrder");
+        RegressionDataSet trainSet = FixedProblems.getSimpleRegression1(600, new Random(2));
+        RegressionDataSet testSet = FixedProblems.getSimpleRegression1(50, new Random(3));
+
+        for (boolean parallel : new boolean[] {true, false})
+            for (boolean shrinking : new boolean[] {true, false})
+                for (SupportVectorLearner.CacheMode cacheMode : SupportVectorLearner.CacheMode.values())
+                {
+                    PlattSMO smo = new PlattSMO(new RBFKernel(0.5));
+                    smo.setCacheMode(cacheMode);
+                    smo.setC(1);
+                    smo.setEpsilon(0.1);
+                    smo.setSecondOrder(true);
+                    smo.setShrinking(shrinking);
+                    smo.train(trainSet, parallel);
+
+                    double errors = 0;
+                    for (int i = 0; i < testSet.size(); i++)
+                        errors += Math.pow(testSet.getTargetValue(i) - smo.regress(testSet.getDataPoint(i)), 2);
+                    assertTrue(errors/testSet.size() < 1);
+                }
+    }
+    
     @Test()
     public void testTrainWarmCFastSMO()
     {
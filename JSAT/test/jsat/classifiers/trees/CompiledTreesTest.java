@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.classifiers.trees;
+
+import java.util.Random;
+import jsat.DataSet;
+import jsat.FixedProblems;
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.CategoricalResults;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.classifiers.Classifier;
+import jsat.classifiers.DataPoint;
+import jsat.classifiers.boosting.Bagging;
+import jsat.linear.DenseVector;
+import jsat.linear.Vec;
+import jsat.regression.RegressionDataSet;
+import jsat.regression.Regressor;
+import jsat.regression.StochasticGradientBoosting;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the compiled form of every tree model makes exactly the same
+ * predictions as the model it was compiled from.
+ *
+ * @author Edward Raff
+ */
+public class CompiledTreesTest
+{
+
+    public CompiledTreesTest()
+    {
+    }
+
+    /**
+     * Creates a data set with 3 numeric and 2 categorical features, with
+     * missing values in both kinds of features
+     */
+    private static DataSet getMixedData(int N, boolean classification, Random rand)
+    {
+        CategoricalData[] cats = new CategoricalData[]{new CategoricalData(4), new CategoricalData(2)};
+        DataSet data = classification
+                ? new ClassificationDataSet(3, cats, new CategoricalData(3))
+                : new RegressionDataSet(3, cats);
+        for (int i = 0; i < N; i++)
+        {
+            Vec x = new DenseVector(3);
+            for (int j = 0; j < 3; j++)
+                x.set(j, rand.nextDouble());
+            int[] c = new int[]{rand.nextInt(4), rand.nextInt(2)};
+            double y = x.get(0) + 2 * x.get(1) * c[1] + c[0] * 0.5;
+            if (rand.nextDouble() < 0.1)
+                x.set(rand.nextInt(3), Double.NaN);
+            if (rand.nextDouble() < 0.1)
+                c[rand.nextInt(2)] = -1;
+            DataPoint dp = new DataPoint(x, c, cats);
+            if (classification)
+                ((ClassificationDataSet) data).addDataPoint(dp, (int) Math.min(Math.max(y, 0), 2.99));
+            else
+                ((RegressionDataSet) data).addDataPoint(dp, y + rand.nextGaussian() * 0.1);
+        }
+        return data;
+    }
+
+    private static void checkClassification(Classifier model, CompiledTrees compiled, DataSet test)
+    {
+        double[][] out = new double[test.size()][3];
+        compiled.classify(test, out);
+        for (int i = 0; i < test.size(); i++)
+        {
+            CategoricalResults expected = model.classify(test.getDataPoint(i));
+            CategoricalResults actual = compiled.classify(test.getDataPoint(i));
+            for (int k = 0; k < expected.size(); k++)
+            {
+                assertEquals(expected.getProb(k), actual.getProb(k), 1e-8);
+                assertEquals(expected.getProb(k), out[i][k], 1e-8);
+            }
+        }
+    }
+
+    private static void checkRegression(Regressor model, CompiledTrees compiled, DataSet test)
+    {
+        double[] out = new double[test.size()];
+        compiled.regress(test, out);
+        for (int i = 0; i < test.size(); i++)
+        {
+            double expected = model.regress(test.getDataPoint(i));
+            assertEquals(expected, compiled.regress(test.getDataPoint(i)), 1e-8);
+            assertEquals(expected, out[i], 1e-8);
+        }
+    }
+
+    @Test
+    public void testDecisionTree()
+    {
+        System.out.println("DecisionTree");
+        Random rand = new XORWOW(13);
+        for (TreePruner.PruningMethod pruneMethod : TreePruner.PruningMethod.values())
+        {
+            ClassificationDataSet cTrain = (ClassificationDataSet) getMixedData(1000, true, rand);
+            DecisionTree tree = new DecisionTree();
+            tree.setPruningMethod(pruneMethod);
+            tree.setTestProportion(0.2);
+            tree.train(cTrain);
+            DataSet cTest = getMixedData(500, true, rand);
+            checkClassification(tree, tree.compile(3, cTrain.getCategories()), cTest);
+
+            RegressionDataSet rTrain = (RegressionDataSet) getMixedData(1000, false, rand);
+            tree = new DecisionTree();
+            tree.setPruningMethod(pruneMethod);
+            tree.setTestProportion(0.2);
+            tree.train(rTrain);
+            DataSet rTest = getMixedData(500, false, rand);
+            checkRegression(tree, tree.compile(3, rTrain.getCategories()), rTest);
+        }
+    }
+
+    @Test
+    public void testRandomForest()
+    {
+        System.out.println("RandomForest");
+        Random rand = new XORWOW(42);
+        for (int bins : new int[]{0, 16})
+        {
+            RandomForest rf = new RandomForest(20);
+            rf.setMaxNumericBins(bins);
+            ClassificationDataSet cTrain = (ClassificationDataSet) getMixedData(1000, true, rand);
+            rf.train(cTrain);
+            checkClassification(rf, rf.compile(3, cTrain.getCategories()), getMixedData(500, true, rand));
+
+            rf = new RandomForest(20);
+            rf.setMaxNumericBins(bins);
+            RegressionDataSet rTrain = (RegressionDataSet) getMixedData(1000, false, rand);
+            rf.train(rTrain);
+            checkRegression(rf, rf.compile(3, rTrain.getCategories()), getMixedData(500, false, rand));
+        }
+    }
+
+    @Test
+    public void testERTrees()
+    {
+        System.out.println("ERTrees");
+        Random rand = new XORWOW(7);
+        ERTrees ert = new ERTrees(20);
+        ClassificationDataSet cTrain = (ClassificationDataSet) getMixedData(1000, true, rand);
+        ert.train(cTrain);
+        checkClassification(ert, ert.compile(3, cTrain.getCategories()), getMixedData(500, true, rand));
+
+        ert = new ERTrees(20);
+        RegressionDataSet rTrain = (RegressionDataSet) getMixedData(1000, false, rand);
+        ert.train(rTrain);
+        checkRegression(ert, ert.compile(3, rTrain.getCategories()), getMixedData(500, false, rand));
+    }
+
+    @Test
+    public void testBagging()
+    {
+        System.out.println("Bagging");
+        Random rand = new XORWOW(3);
+        Bagging bagging = new Bagging((Classifier) new DecisionTree(), 1, true, 10, rand);
+        ClassificationDataSet cTrain = (ClassificationDataSet) getMixedData(1000, true, rand);
+        bagging.train(cTrain);
+        checkClassification(bagging, bagging.compile(3, cTrain.getCategories()), getMixedData(500, true, rand));
+    }
+
+    @Test
+    public void testStochasticGradientBoosting()
+    {
+        System.out.println("StochasticGradientBoosting");
+        Random rand = new XORWOW(5);
+        StochasticGradientBoosting sgb = new StochasticGradientBoosting(new DecisionTree(3), 50);
+        RegressionDataSet rTrain = (RegressionDataSet) getMixedData(1000, false, rand);
+        sgb.train(rTrain);
+        checkRegression(sgb, sgb.compile(3, rTrain.getCategories()), getMixedData(500, false, rand));
+    }
+
+    @Test
+    public void testDoubleArrayInput()
+    {
+        System.out.println("double[][]");
+        Random rand = new XORWOW(11);
+        RandomForest rf = new RandomForest(20);
+        ClassificationDataSet train = FixedProblems.getSimpleKClassLinear(1000, 3, rand);
+        rf.train(train);
+        CompiledTrees compiled = rf.compile(train.getNumNumericalVars(), train.getCategories());
+
+        ClassificationDataSet test = FixedProblems.getSimpleKClassLinear(200, 3, rand);
+        double[][] X = new double[test.size()][];
+        for (int i = 0; i < test.size(); i++)
+            X[i] = test.getDataPoint(i).getNumericalValues().arrayCopy();
+        double[][] out = new double[test.size()][3];
+        compiled.classify(X, out);
+        for (int i = 0; i < test.size(); i++)
+        {
+            CategoricalResults expected = rf.classify(test.getDataPoint(i));
+            for (int k = 0; k < 3; k++)
+                assertEquals(expected.getProb(k), out[i][k], 1e-8);
+        }
+    }
+}
@@ -274,6 +274,59 @@ public class DecisionTreeTest
                 }
     }
 
+    @Test
+    public void testTrainC_ClassificationDataSet_binned()
+    {
+        System.out.println("trainC");
+        
+        for (ImpurityScore.ImpurityMeasure gainMethod : ImpurityScore.ImpurityMeasure.values())
+            for(boolean parallel : new boolean[]{true, false})
+            {
+                DecisionTree instance = new DecisionTree();
+                instance.setGainMethod(gainMethod);
+                instance.setTestProportion(0.3);
+                instance.setMaxNumericBins(64);
+
+                int attempts = 3;
+                do
+                {
+                    ClassificationDataSet train = FixedProblems.getCircles(5000, 1.0, 10.0, 100.0);
+                    ClassificationDataSet test = FixedProblems.getCircles(200, 1.0, 10.0, 100.0);
+
+                    train.applyTransform(new InsertMissingValuesTransform(0.01));
+
+                    ClassificationModelEvaluation cme = new ClassificationModelEvaluation(instance, train, parallel);
+                    cme.evaluateTestSet(test);
+
+                    if(cme.getErrorRate() < 0.075)
+                        break;
+                }
+                while(attempts-- > 0);
+                assertTrue(attempts > 0);
+            }
+    }
+    
+    @Test
+    public void testTrain_RegressionDataSet_binned()
+    {
+        System.out.println("train");
+        for(boolean parallel : new boolean[]{true, false})
+        {
+            DecisionTree instance = new DecisionTree();
+            instance.setTestProportion(0.3);
+            instance.setMaxNumericBins(64);
+
+            RegressionDataSet train =  FixedProblems.getLinearRegression(3000, RandomUtil.getRandom());
+            RegressionDataSet test = FixedProblems.getLinearRegression(100, RandomUtil.getRandom());
+
+            train.applyTransform(new InsertMissingValuesTransform(0.01));
+
+            RegressionModelEvaluation rme = new RegressionModelEvaluation(instance, train, parallel);
+            rme.evaluateTestSet(test);
+
+            assertTrue(rme.getMeanError() <= test.getTargetValues().mean()*3);
+        }
+    }
     
     @Test
     public void testClone()
@@ -188,6 +188,45 @@ public class RandomForestTest
         }
     }
     
+    @Test
+    public void testTrainC_ClassificationDataSet_binned()
+    {
+        System.out.println("trainC");
+        for(boolean parallel : new boolean[]{true, false})
+        {
+            RandomForest instance = new RandomForest();
+            instance.setMaxNumericBins(64);
+
+            ClassificationDataSet train =  FixedProblems.getCircles(1000, 1.0, 10.0, 100.0);
+            //RF may not get boundry perfect, so use noiseless for testing
+            ClassificationDataSet test = FixedProblems.getCircles(100, 0.0, RandomUtil.getRandom(), 1.0, 10.0, 100.0);
+
+            ClassificationModelEvaluation cme = new ClassificationModelEvaluation(instance, train, parallel);
+            cme.evaluateTestSet(test);
+
+            assertEquals(0.0, cme.getErrorRate(), 0.05);
+        }
+    }
+    
+    @Test
+    public void testTrainC_RegressionDataSet_binned()
+    {
+        System.out.println("train");
+        for(boolean parallel : new boolean[]{true, false})
+        {
+            RandomForest instance = new RandomForest();
+            instance.setMaxNumericBins(64);
+
+            RegressionDataSet train =  FixedProblems.getLinearRegression(1000, RandomUtil.getRandom(), coefs);
+            RegressionDataSet test = FixedProblems.getLinearRegression(100, RandomUtil.getRandom(), coefs);
+
+            RegressionModelEvaluation rme = new RegressionModelEvaluation(instance, train, parallel);
+            rme.evaluateTestSet(test);
+
+            assertTrue(rme.getMeanError() <= test.getTargetValues().mean()*2.5);
+        }
+    }
+    
     @Test
     public void testTrainC_ClassificationDataSetMissingFeat()
     {
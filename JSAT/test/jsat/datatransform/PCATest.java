@@ -16,12 +16,19 @@
  */
 package jsat.datatransform;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import jsat.SimpleDataSet;
 import jsat.classifiers.ClassificationDataSet;
 import jsat.classifiers.ClassificationModelEvaluation;
 import jsat.classifiers.Classifier;
+import jsat.classifiers.DataPoint;
 import jsat.classifiers.knn.NearestNeighbour;
 import jsat.distributions.Normal;
+import jsat.linear.DenseVector;
+import jsat.linear.Vec;
 import jsat.utils.GridDataGenerator;
 import jsat.utils.random.XORWOW;
 import org.junit.After;
@@ -97,5 +104,44 @@ public class PCATest
         assertTrue(cme.getErrorRate() < (errorRate+0.01)*1.05);
     }
 
+    @Test
+    public void testFitMethods()
+    {
+        System.out.println("fitMethods");
+        //5 directions with a clear ordering of their variance, plus noise
+        Random rand = new XORWOW(13);
+        List<DataPoint> points = new ArrayList<DataPoint>();
+        for(int i = 0; i < 400; i++)
+        {
+            Vec x = new DenseVector(20);
+            for(int j = 0; j < x.length(); j++)
+                x.set(j, rand.nextGaussian()*(j < 5 ? 5.0/(j+1) : 0.01));
+            points.add(new DataPoint(x));
+        }
+        SimpleDataSet data = new SimpleDataSet(points);
+
+        PCA nipals = new PCA(5, 1e-10);
+        nipals.fit(data);
+
+        PCA randomized = new PCA(5);
+        randomized.setRandomized(true);
+        randomized.fit(data, true);
+
+        PCA partial = new PCA(5);
+        for(SimpleDataSet batch : data.cvSet(4, new Random(3)))
+            partial.partialFit(batch);
+
+        //all should find the same PCs, up to sign
+        for(PCA pca : Arrays.asList(randomized, partial))
+            for(int i = 0; i < data.size(); i++)
+            {
+                Vec expected = nipals.transform(data.getDataPoint(i)).getNumericalValues();
+                Vec found = pca.transform(data.getDataPoint(i)).getNumericalValues();
+                assertEquals(5, found.length());
+                for(int j = 0; j < 5; j++)
+                    assertEquals(Math.abs(expected.get(j)), Math.abs(found.get(j)), 1e-3);
+            }
+    }
+
     
 }
@@ -75,4 +75,40 @@ public class WhitenedZCATest
         assertTrue(Matrix.eye(3).equals(whiteCov, 1e-8));
 
     }
+
+    @Test
+    public void testTransformRandomized()
+    {
+        System.out.println("testTransformRandomized");
+        NormalM normal = new NormalM(new DenseVector(3), new DenseMatrix(new double[][]
+        {
+            {133.138,   -57.278,    40.250},
+            {-57.278,    25.056,   -17.500},
+            { 40.250,   -17.500,    12.250},
+        }));
+        
+        for(boolean partial : new boolean[]{true, false})
+        {
+            List<Vec> sample = normal.sample(500, new Random(17));
+            List<DataPoint> dataPoints  = new ArrayList<DataPoint>(sample.size());
+            for( Vec v : sample)
+                dataPoints.add(new DataPoint(v, new int[0], new CategoricalData[0]));
+
+            SimpleDataSet data = new SimpleDataSet(dataPoints);
+
+            WhitenedZCA transform = new WhitenedZCA(0, 3);
+            transform.setRandomized(true);
+            if(partial)
+                for(SimpleDataSet batch : data.cvSet(5, new Random(3)))
+                    transform.partialFit(batch);
+            else
+                transform.fit(data, true);
+
+            data.applyTransform(transform);
+
+            Matrix whiteCov = MatrixStatistics.covarianceMatrix(MatrixStatistics.meanVector(data), data);
+
+            assertTrue(Matrix.eye(3).equals(whiteCov, 1e-8));
+        }
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.io;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class ByteRangeLineReaderTest
+{
+
+    public ByteRangeLineReaderTest()
+    {
+    }
+
+    private static List<String> readAll(FileChannel channel, long[] bounds, int bufferSize)
+    {
+        List<String> lines = new ArrayList<>();
+        for(int i = 0; i < bounds.length-1; i++)
+        {
+            ByteRangeLineReader reader = new ByteRangeLineReader(channel, bounds[i], bounds[i+1], bufferSize);
+            while(reader.nextLine())
+                lines.add(reader.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Every line must be read exactly once, no matter where the ranges split
+     * the file
+     */
+    @Test
+    public void testSplits() throws Exception
+    {
+        System.out.println("splits");
+        String content = "\n\rfirst line\nsecond\r\n\r\nthird line is a bit longer\n\nx\n\r\nlast";
+        List<String> expected = Arrays.asList("first line", "second", "third line is a bit longer", "x", "last");
+
+        File tmp = File.createTempFile("byteRange", ".txt");
+        tmp.deleteOnExit();
+        try(Writer writer = new FileWriter(tmp))
+        {
+            writer.write(content);
+        }
+
+        try(FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            //tiny buffers force lines to span several reads
+            for(int bufferSize : new int[]{1, 4, 1024})
+            {
+                assertEquals(expected, readAll(channel, new long[]{0, size}, bufferSize));
+                for(long mid = 0; mid <= size; mid++)
+                    assertEquals(expected, readAll(channel, new long[]{0, mid, size}, bufferSize));
+                for(int pieces = 1; pieces < size; pieces++)
+                    assertEquals(expected, readAll(channel, ByteRangeLineReader.split(0, size, pieces), bufferSize));
+            }
+        }
+    }
+}
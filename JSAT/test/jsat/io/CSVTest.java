@@ -467,6 +467,52 @@ public class CSVTest
         }
     }
 
+    @Test
+    public void testReadParallel() throws IOException
+    {
+        System.out.println("read (parallel)");
+        Random rand = new XORWOW(5);
+        StringBuilder sb = new StringBuilder();
+        sb.append("header line\n");
+        String[] options = new String[]{"red", "green", "blue", "purple", ""};
+        for(int i = 0; i < 20000; i++)
+        {
+            sb.append(rand.nextInt(5)).append(", ");
+            sb.append(rand.nextGaussian()).append(",");
+            sb.append(rand.nextDouble() < 0.1 ? "" : Integer.toString(rand.nextInt(100))).append(" ,");
+            sb.append(options[rand.nextInt(options.length)]).append(",");
+            sb.append(options[rand.nextInt(options.length-1)]);
+            if(i % 7 == 0)
+                sb.append(" #a comment");
+            sb.append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        
+        File tmp = File.createTempFile("csvParallel", ".csv");
+        tmp.deleteOnExit();
+        try(Writer writer = new FileWriter(tmp))
+        {
+            writer.write(sb.toString());
+        }
+        Set<Integer> cat_cols = new HashSet<>(Arrays.asList(3, 4));
+        
+        for(boolean parallel : new boolean[]{false, true})
+        {
+            SimpleDataSet expected = CSV.read(new StringReader(sb.toString()), ',', 1, '#', cat_cols);
+            compareDataSetPoints(expected, CSV.read(tmp.toPath(), ',', 1, '#', cat_cols, parallel));
+            
+            ClassificationDataSet expected_c = CSV.readC(4, new StringReader(sb.toString()), ',', 1, '#', cat_cols);
+            ClassificationDataSet found_c = CSV.readC(4, tmp.toPath(), ',', 1, '#', cat_cols, parallel);
+            compareDataSetPoints(expected_c, found_c);
+            for(int i = 0; i < expected_c.size(); i++)
+                assertEquals(expected_c.getDataPointCategory(i), found_c.getDataPointCategory(i));
+            
+            RegressionDataSet expected_r = CSV.readR(1, new StringReader(sb.toString()), ',', 1, '#', cat_cols);
+            RegressionDataSet found_r = CSV.readR(1, tmp.toPath(), ',', 1, '#', cat_cols, parallel);
+            compareDataSetPoints(expected_r, found_r);
+            assertTrue(expected_r.getTargetValues().equals(found_r.getTargetValues()));
+        }
+    }
+
     private void compareDataSetPoints(DataSet<?> truth_data, DataSet<?> simpleIn)
     {
         assertEquals(truth_data.size(), simpleIn.size());
@@ -26,6 +26,8 @@ import jsat.SimpleDataSet;
 import jsat.classifiers.*;
 import jsat.datatransform.DenseSparceTransform;
 import jsat.linear.DenseVector;
+import jsat.linear.FloatDenseVector;
+import jsat.linear.FloatSparseVector;
 import jsat.linear.Vec;
 import jsat.regression.RegressionDataSet;
 import jsat.text.GreekLetters;
@@ -330,6 +332,161 @@ public class JSATDataTest
         
     }
 
+    @Test
+    public void testLoadMapped() throws Exception
+    {
+        System.out.println("loadMapped");
+        
+        ClassificationDataSet cds = simpleData.asClassificationDataSet(simpleData.getNumCategoricalVars()-1);
+        RegressionDataSet rds = simpleData.asRegressionDataSet(simpleData.getNumNumericalVars()-1);
+        
+        File tmp = File.createTempFile("jsat", ".jsat");
+        tmp.deleteOnExit();
+        try
+        {
+            for(boolean sparse : new boolean[]{false, true})
+            {
+                if(sparse)
+                {
+                    simpleData.applyTransform(new DenseSparceTransform(0.5));
+                    cds.applyTransform(new DenseSparceTransform(0.5));
+                    rds.applyTransform(new DenseSparceTransform(0.5));
+                }
+                
+                for(JSATData.FloatStorageMethod fpStoreMethod : JSATData.FloatStorageMethod.values())
+                    for(long segmentSize : new long[]{MappedDataStore.MAX_SEGMENT_SIZE, 200})
+                    {
+                        writeTo(tmp, simpleData, fpStoreMethod);
+                        checkDataSet(simpleData, JSATData.loadMapped(tmp, false, segmentSize), fpStoreMethod);
+                        
+                        writeTo(tmp, cds, fpStoreMethod);
+                        checkDataSet(cds, JSATData.loadMapped(tmp, false, segmentSize), fpStoreMethod);
+                        
+                        writeTo(tmp, rds, fpStoreMethod);
+                        checkDataSet(rds, JSATData.loadMapped(tmp, false, segmentSize), fpStoreMethod);
+                    }
+                
+                //forcing as standard should give back the original data
+                writeTo(tmp, cds, JSATData.FloatStorageMethod.AUTO);
+                checkDataSet(simpleData, JSATData.loadSimpleMapped(tmp));
+                writeTo(tmp, rds, JSATData.FloatStorageMethod.AUTO);
+                checkDataSet(simpleData, JSATData.loadSimpleMapped(tmp));
+            }
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+    
+    @Test
+    public void testMappedStoreViews() throws Exception
+    {
+        System.out.println("mappedStoreViews");
+        
+        File tmp = File.createTempFile("jsat", ".jsat");
+        tmp.deleteOnExit();
+        try
+        {
+            writeTo(tmp, simpleData, JSATData.FloatStorageMethod.FP64);
+            SimpleDataSet mapped = JSATData.loadSimpleMapped(tmp);
+            
+            for(int j = 0; j < simpleData.getNumNumericalVars(); j++)
+                assertTrue(simpleData.getNumericColumn(j).equals(mapped.getNumericColumn(j)));
+            
+            //views are read only, but clones can be altered
+            Vec x = mapped.getDataPoint(0).getNumericalValues();
+            try
+            {
+                x.set(0, 1.0);
+                fail("Mapped data should not be mutable");
+            }
+            catch(UnsupportedOperationException ex)
+            {
+                //expected
+            }
+            x = x.clone();
+            x.set(0, 1.0);
+            assertEquals(1.0, x.get(0), 0.0);
+            
+            //replacing and adding points should be kept in memory 
+            mapped.applyTransform(new DenseSparceTransform(0.5));
+            simpleData.applyTransform(new DenseSparceTransform(0.5));
+            checkDataSet(simpleData, mapped);
+            
+            DataPoint extra = simpleData.getDataPoint(0).clone();
+            mapped.add(extra);
+            assertEquals(simpleData.size()+1, mapped.size());
+            assertSame(extra, mapped.getDataPoint(simpleData.size()));
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+    
+    @Test
+    public void testFP32LoadsFloatVecs() throws Exception
+    {
+        System.out.println("FP32LoadsFloatVecs");
+        
+        for(boolean sparse : new boolean[]{false, true})
+        {
+            if(sparse)
+                simpleData.applyTransform(new DenseSparceTransform(0.5));
+            RegressionDataSet rds = new RegressionDataSet(simpleData.getNumNumericalVars(), simpleData.getCategories());
+            for(int i = 0; i < simpleData.size(); i++)
+                rds.addDataPoint(simpleData.getDataPoint(i), i*0.5);
+            
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            JSATData.writeData(rds, baos, JSATData.FloatStorageMethod.FP32);
+            RegressionDataSet readBack = (RegressionDataSet) JSATData.load(new ByteArrayInputStream(baos.toByteArray()));
+            
+            assertEquals(rds.size(), readBack.size());
+            for(int i = 0; i < rds.size(); i++)
+            {
+                Vec orig = rds.getDataPoint(i).getNumericalValues();
+                Vec x = readBack.getDataPoint(i).getNumericalValues();
+                assertEquals(orig.isSparse() ? FloatSparseVector.class : FloatDenseVector.class, x.getClass());
+                for(int j = 0; j < orig.length(); j++)
+                    assertEquals((float) orig.get(j), x.get(j), 0.0);
+                assertEquals(rds.getTargetValue(i), readBack.getTargetValue(i), 0.0);
+            }
+        }
+    }
+    
+    private static void writeTo(File file, DataSet data, JSATData.FloatStorageMethod fpStore) throws IOException
+    {
+        try(OutputStream out = new BufferedOutputStream(new FileOutputStream(file)))
+        {
+            JSATData.writeData(data, out, fpStore);
+        }
+    }
+    
+    /**
+     * Checks that two data sets are the same, up to the precision of the given
+     * storage method
+     */
+    private void checkDataSet(DataSet ogData, DataSet cpData, JSATData.FloatStorageMethod fpStore)
+    {
+        if(fpStore == JSATData.FloatStorageMethod.AUTO || fpStore == JSATData.FloatStorageMethod.FP64)
+        {
+            checkDataSet(ogData, cpData);
+            return;
+        }
+        //lossy storage, so compare against what the normal loader gives back
+        try
+        {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            JSATData.writeData(ogData, baos, fpStore);
+            checkDataSet(JSATData.load(new ByteArrayInputStream(baos.toByteArray())), cpData);
+        }
+        catch(IOException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+
     private void checkDataSet(DataSet ogData, DataSet cpData)
     {
         assertEquals(ogData.getClass().getCanonicalName(), cpData.getClass().getCanonicalName());
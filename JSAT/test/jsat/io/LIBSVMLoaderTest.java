@@ -19,14 +19,20 @@ package jsat.io;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import jsat.ColumnMajorStore;
 import jsat.DataStore;
 import jsat.RowMajorStore;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.classifiers.DataPointPair;
 
 import jsat.linear.DenseVector;
 import jsat.linear.Vec;
 import jsat.regression.RegressionDataSet;
 import jsat.utils.DoubleList;
+import jsat.utils.random.XORWOW;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -162,4 +168,69 @@ public class LIBSVMLoaderTest
                     }
     }
 
+    @Test
+    public void testLoadParallel() throws Exception
+    {
+        System.out.println("loadParallel");
+        Random rand = new XORWOW(11);
+        StringBuilder sb = new StringBuilder();
+        String[] newLines = new String[]{"\n", "\n\r", "\r\n", "\n\r\n"};
+        for(int i = 0; i < 20000; i++)
+        {
+            sb.append(rand.nextInt(4)-1);
+            for(int j = 1; j <= 30; j++)
+                if(rand.nextDouble() < 0.2)
+                    sb.append(rand.nextBoolean() ? " " : "   ").append(j).append(":").append(rand.nextInt(100)/10.0);
+            if(rand.nextBoolean())
+                sb.append(" ");
+            sb.append(newLines[rand.nextInt(newLines.length)]);
+        }
+        
+        File tmp = File.createTempFile("libsvmParallel", ".libsvm");
+        tmp.deleteOnExit();
+        try(Writer writer = new FileWriter(tmp))
+        {
+            writer.write(sb.toString());
+        }
+        
+        for(DataStore ds : new DataStore[]{new RowMajorStore(), new ColumnMajorStore()})
+            for(boolean parallel : new boolean[]{false, true})
+            {
+                RegressionDataSet expected_r = LIBSVMLoader.loadR(new StringReader(sb.toString()), 0.5, -1, ds);
+                RegressionDataSet found_r = LIBSVMLoader.loadR(tmp, 0.5, -1, ds, parallel);
+                assertEquals(expected_r.size(), found_r.size());
+                assertEquals(expected_r.getNumNumericalVars(), found_r.getNumNumericalVars());
+                for(int i = 0; i < expected_r.size(); i++)
+                {
+                    assertEquals(expected_r.getTargetValue(i), found_r.getTargetValue(i), 0.0);
+                    assertTrue(expected_r.getDataPoint(i).getNumericalValues().equals(found_r.getDataPoint(i).getNumericalValues()));
+                }
+
+                ClassificationDataSet expected_c = LIBSVMLoader.loadC(new StringReader(sb.toString()), 0.5, 40, ds);
+                ClassificationDataSet found_c = LIBSVMLoader.loadC(tmp, 0.5, 40, ds, parallel);
+                assertEquals(expected_c.size(), found_c.size());
+                assertEquals(40, found_c.getNumNumericalVars());
+                assertEquals(expected_c.getClassSize(), found_c.getClassSize());
+                for(int i = 0; i < expected_c.size(); i++)
+                {
+                    assertEquals(expected_c.getDataPointCategory(i), found_c.getDataPointCategory(i));
+                    assertTrue(expected_c.getDataPoint(i).getNumericalValues().equals(found_c.getDataPoint(i).getNumericalValues()));
+                }
+            }
+        
+        RegressionDataSet expected = LIBSVMLoader.loadR(new StringReader(sb.toString()), 0.5, 30);
+        for(boolean parallel : new boolean[]{false, true})
+            try(Stream<DataPointPair<Double>> stream = LIBSVMLoader.stream(tmp, 30))
+            {
+                List<DataPointPair<Double>> found = (parallel ? stream.parallel() : stream).collect(Collectors.toList());
+                assertEquals(expected.size(), found.size());
+                for(int i = 0; i < expected.size(); i++)
+                {
+                    assertEquals(expected.getTargetValue(i), found.get(i).getPair(), 0.0);
+                    assertEquals(30, found.get(i).getVector().length());
+                    assertTrue(expected.getDataPoint(i).getNumericalValues().equals(found.get(i).getVector()));
+                }
+            }
+    }
+
 }
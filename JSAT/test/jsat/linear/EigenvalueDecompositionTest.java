@@ -5,6 +5,8 @@
 package jsat.linear;
 
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -124,6 +126,42 @@ public class EigenvalueDecompositionTest
         assertTrue(eigenResultsRight(evd, SYM, 1e-8));
     }
     
+    @Test
+    public void testSymmetricLarge_ExecutorService()
+    {
+        //large enough that the divide and conquer solver has to merge sub problems
+        System.out.println("testSymmetricLarge_ExecutorService");
+        Random rand = new Random(123);
+        Matrix SYM = new DenseMatrix(300, 300);
+        for(int i = 0; i < SYM.rows(); i++)
+        {
+            SYM.set(i, i, rand.nextGaussian());
+            for(int j = i+1; j < SYM.cols(); j++)
+            {
+                SYM.set(i, j, rand.nextGaussian());
+                SYM.set(j, i, SYM.get(i, j));
+            }
+        }
+        ExecutorService threadpool = Executors.newFixedThreadPool(4);
+        try
+        {
+            EigenValueDecomposition serial = new EigenValueDecomposition(SYM.clone());
+            EigenValueDecomposition parallel = new EigenValueDecomposition(SYM.clone(), threadpool);
+            for(EigenValueDecomposition evd : new EigenValueDecomposition[]{serial, parallel})
+            {
+                assertFalse(evd.isComplex());
+                assertTrue(eigenResultsRight(evd, SYM, 1e-8));
+                Matrix V = evd.getV();
+                assertTrue(V.transposeMultiply(V).equals(Matrix.eye(SYM.rows()), 1e-10));
+            }
+            assertArrayEquals(serial.getRealEigenvalues(), parallel.getRealEigenvalues(), 1e-10);
+        }
+        finally
+        {
+            threadpool.shutdownNow();
+        }
+    }
+    
     @Test
     public void testRealRandomGenerated()
     {
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.Random;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class FloatDenseMatrixTest
+{
+
+    public FloatDenseMatrixTest()
+    {
+    }
+
+    private static DenseMatrix randomMatrix(int rows, int cols, Random rand)
+    {
+        DenseMatrix A = new DenseMatrix(rows, cols);
+        for(int i = 0; i < rows; i++)
+            for(int j = 0; j < cols; j++)
+                A.set(i, j, (rand.nextInt(64)-32)/4.0);
+        return A;
+    }
+
+    @Test
+    public void testMultiply()
+    {
+        System.out.println("multiply");
+        Random rand = new XORWOW(5);
+        DenseMatrix A = randomMatrix(13, 7, rand);
+        DenseMatrix B = randomMatrix(7, 9, rand);
+        FloatDenseMatrix fA = new FloatDenseMatrix(A);
+        FloatDenseMatrix fB = new FloatDenseMatrix(B);
+
+        assertTrue(A.equals(fA, 0.0));
+        assertTrue(A.multiply(B).equals(fA.multiply(fB), 1e-10));
+        assertTrue(A.multiply(B).equals(fA.multiply(B), 1e-10));
+        assertTrue(A.transposeMultiply(A).equals(fA.transposeMultiply(fA), 1e-10));
+
+        Vec x = FloatDenseVectorTest.randomVec(7, 1.0, rand, new DenseVector(7));
+        Vec y = FloatDenseVectorTest.randomVec(13, 1.0, rand, new DenseVector(13));
+        assertTrue(A.multiply(x).equals(fA.multiply(x), 1e-10));
+        assertTrue(A.multiply(x).equals(fA.multiply(new FloatDenseVector(x)), 1e-10));
+        assertTrue(A.transposeMultiply(2.0, y).equals(fA.transposeMultiply(2.0, y), 1e-10));
+
+        Matrix C = A.clone();
+        C.mutableAdd(2.0, A);
+        Matrix fC = fA.clone();
+        fC.mutableAdd(2.0, fA);
+        assertTrue(C.equals(fC, 1e-10));
+        assertTrue(A.transpose().equals(fA.transpose(), 0.0));
+    }
+
+    @Test
+    public void testChangeSize()
+    {
+        System.out.println("changeSize");
+        Random rand = new XORWOW(3);
+        DenseMatrix A = randomMatrix(5, 4, rand);
+        FloatDenseMatrix fA = new FloatDenseMatrix(A);
+        fA.changeSize(7, 6);
+        A.changeSize(7, 6);
+        assertTrue(A.equals(fA, 0.0));
+        fA.swapRows(0, 4);
+        A.swapRows(0, 4);
+        assertTrue(A.equals(fA, 0.0));
+        fA.changeSize(3, 2);
+        A.changeSize(3, 2);
+        assertTrue(A.equals(fA, 0.0));
+    }
+
+    @Test
+    public void testDecompositions()
+    {
+        System.out.println("decompositions");
+        Random rand = new XORWOW(7);
+        DenseMatrix A = randomMatrix(6, 6, rand);
+        for(int i = 0; i < 6; i++)
+            A.increment(i, i, 20);//well conditioned
+        FloatDenseMatrix fA = new FloatDenseMatrix(A);
+        Matrix[] lup = fA.clone().lup();
+        assertTrue(lup[2].multiply(fA).equals(lup[0].multiply(lup[1]), 1e-3));
+        Matrix[] qr = fA.clone().qr();
+        assertTrue(fA.equals(qr[0].multiply(qr[1]), 1e-3));
+    }
+}
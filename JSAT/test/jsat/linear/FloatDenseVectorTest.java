@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.Random;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class FloatDenseVectorTest
+{
+
+    public FloatDenseVectorTest()
+    {
+    }
+
+    /**
+     * Creates a random vector whose values are all exactly representable as
+     * floats, so that results can be compared to the double versions
+     */
+    static Vec randomVec(int length, double density, Random rand, Vec x)
+    {
+        for(int i = 0; i < length; i++)
+            if(rand.nextDouble() < density)
+                x.set(i, (rand.nextInt(200)-100)/8.0);
+        return x;
+    }
+
+    @Test
+    public void testAgainstDouble()
+    {
+        System.out.println("againstDouble");
+        Random rand = new XORWOW(11);
+        for(double density : new double[]{1.0, 0.3})
+        {
+            DenseVector a = (DenseVector) randomVec(50, 1.0, rand, new DenseVector(50));
+            Vec b = randomVec(50, density, rand, density == 1.0 ? new DenseVector(50) : new SparseVector(50));
+            FloatDenseVector fa = new FloatDenseVector(a);
+            Vec fb = density == 1.0 ? new FloatDenseVector(b) : new FloatSparseVector(b);
+
+            assertEquals(a.sum(), fa.sum(), 1e-10);
+            assertEquals(a.min(), fa.min(), 0.0);
+            assertEquals(a.max(), fa.max(), 0.0);
+            assertEquals(a.variance(), fa.variance(), 1e-8);
+            for(Vec other : new Vec[]{b, fb})
+            {
+                assertEquals(a.dot(b), fa.dot(other), 1e-8);
+                for(double p : new double[]{1, 2, 3})
+                    assertEquals(b.pNormDist(p, a), fa.pNormDist(p, other), 1e-8);
+                assertEquals(a.subtract(b).pNorm(Double.POSITIVE_INFINITY), fa.pNormDist(Double.POSITIVE_INFINITY, other), 0.0);
+            }
+            assertEquals(a.pNorm(2), fa.pNorm(2), 1e-8);
+            assertEquals(a.pNorm(Double.POSITIVE_INFINITY), fa.pNorm(Double.POSITIVE_INFINITY), 0.0);
+
+            a.mutableAdd(0.5, b);
+            fa.mutableAdd(0.5, fb);
+            assertTrue(a.equals(fa, 1e-10));
+            a.mutableMultiply(2);
+            fa.mutableMultiply(2);
+            assertTrue(a.equals(fa, 1e-10));
+            assertTrue(a.equals(fa.clone(), 1e-10));
+            assertArrayEquals(a.arrayCopy(), fa.arrayCopy(), 0.0);
+        }
+    }
+
+    @Test
+    public void testAccumulatesInDouble()
+    {
+        System.out.println("accumulatesInDouble");
+        //a float accumulator would stop growing at 2^24
+        FloatDenseVector x = new FloatDenseVector(1 << 25);
+        x.mutableAdd(1.0);
+        assertEquals(1 << 25, x.sum(), 0.0);
+        assertEquals(1 << 25, x.dot(x), 0.0);
+    }
+
+    @Test
+    public void testBacking()
+    {
+        System.out.println("backing");
+        float[] array = new float[]{1, 2, 3};
+        FloatDenseVector x = new FloatDenseVector(array);
+        x.set(1, 0.1);
+        assertEquals(0.1f, array[1], 0.0f);
+        assertEquals((double) 0.1f, x.get(1), 0.0);
+        x.setLength(5);
+        assertEquals(5, x.length());
+        assertEquals(0.0, x.get(4), 0.0);
+    }
+}
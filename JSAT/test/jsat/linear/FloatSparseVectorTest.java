@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.Iterator;
+import java.util.Random;
+import jsat.linear.distancemetrics.EuclideanDistance;
+import jsat.linear.distancemetrics.SquaredEuclideanDistance;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static jsat.linear.FloatDenseVectorTest.randomVec;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class FloatSparseVectorTest
+{
+
+    public FloatSparseVectorTest()
+    {
+    }
+
+    @Test
+    public void testAgainstDouble()
+    {
+        System.out.println("againstDouble");
+        Random rand = new XORWOW(17);
+        for(int trial = 0; trial < 20; trial++)
+        {
+            SparseVector a = (SparseVector) randomVec(60, 0.2, rand, new SparseVector(60));
+            SparseVector b = (SparseVector) randomVec(60, 0.2, rand, new SparseVector(60));
+            DenseVector d = (DenseVector) randomVec(60, 1.0, rand, new DenseVector(60));
+            FloatSparseVector fa = new FloatSparseVector(a);
+            FloatSparseVector fb = new FloatSparseVector(b);
+
+            assertEquals(a.nnz(), fa.nnz());
+            assertEquals(a.sum(), fa.sum(), 1e-10);
+            assertEquals(a.hashCode(), fa.hashCode());
+            for(Vec other : new Vec[]{b, fb})
+            {
+                assertEquals(a.dot(b), fa.dot(other), 1e-8);
+                assertEquals(a.dot(b), other.dot(fa), 1e-8);
+                for(double p : new double[]{1, 2, 3})
+                {
+                    assertEquals(a.pNormDist(p, b), fa.pNormDist(p, other), 1e-8);
+                    assertEquals(a.pNormDist(p, b), other.pNormDist(p, fa), 1e-8);
+                }
+                assertEquals(new SquaredEuclideanDistance().dist(a, b), new SquaredEuclideanDistance().dist(fa, other), 1e-8);
+            }
+            assertEquals(a.dot(d), fa.dot(d), 1e-8);
+            assertEquals(a.pNormDist(2, d), fa.pNormDist(2, d), 1e-8);
+            assertEquals(new EuclideanDistance().dist(a, d), new EuclideanDistance().dist(d, fa), 1e-8);
+            assertEquals(a.subtract(d).pNorm(Double.POSITIVE_INFINITY), fa.pNormDist(Double.POSITIVE_INFINITY, d), 1e-8);
+            assertEquals(a.subtract(b).pNorm(Double.POSITIVE_INFINITY), fa.pNormDist(Double.POSITIVE_INFINITY, fb), 1e-8);
+
+            a.mutableAdd(-1.5, b);
+            fa.mutableAdd(-1.5, fb);
+            assertTrue(a.equals(fa, 1e-10));
+            a.mutableAdd(0.25, d);
+            fa.mutableAdd(0.25, d);
+            assertTrue(a.equals(fa, 1e-10));
+            a.mutablePairwiseMultiply(b);
+            fa.mutablePairwiseMultiply(b);
+            assertTrue(a.equals(fa, 1e-10));
+            assertTrue(a.equals(fa.clone(), 1e-10));
+        }
+    }
+
+    @Test
+    public void testSetAndIterate()
+    {
+        System.out.println("setAndIterate");
+        FloatSparseVector x = new FloatSparseVector(20, 1);
+        x.set(10, 2.0);
+        x.set(3, 1.0);
+        x.set(15, 3.0);
+        x.increment(0, 4.0);
+        x.set(10, 0.0);
+        assertEquals(3, x.nnz());
+
+        Iterator<IndexValue> iter = x.getNonZeroIterator(1);
+        IndexValue iv = iter.next();
+        assertEquals(3, iv.getIndex());
+        assertEquals(1.0, iv.getValue(), 0.0);
+        iv = iter.next();
+        assertEquals(15, iv.getIndex());
+        assertEquals(3.0, iv.getValue(), 0.0);
+        assertFalse(iter.hasNext());
+
+        x.setLength(40);
+        x.set(39, 1.0);
+        assertEquals(40, x.length());
+        assertEquals(9.0, x.sum(), 0.0);
+    }
+}
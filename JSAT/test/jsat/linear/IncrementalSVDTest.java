@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import jsat.utils.random.RandomUtil;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class IncrementalSVDTest
+{
+
+    public IncrementalSVDTest()
+    {
+    }
+
+    @Test
+    public void testUpdate()
+    {
+        System.out.println("update");
+        Random rand = RandomUtil.getRandom(123);
+        Matrix A = RandomizedSVDTest.getLowRank(150, 30, rand);
+        double[] weights = new double[A.rows()];
+        List<Vec> X = new ArrayList<>();
+        for(int i = 0; i < A.rows(); i++)
+        {
+            weights[i] = 0.5 + rand.nextDouble();
+            X.add(new SparseVector(A.getRowView(i)));
+        }
+        Vec mean = new DenseVector(A.cols());
+        double sumOfWeights = 0;
+        for(int i = 0; i < A.rows(); i++)
+        {
+            mean.mutableAdd(weights[i], X.get(i));
+            sumOfWeights += weights[i];
+        }
+        mean.mutableDivide(sumOfWeights);
+
+        for(boolean center : new boolean[]{true, false})
+        {
+            Matrix B = new DenseMatrix(A.rows(), A.cols());
+            for(int i = 0; i < A.rows(); i++)
+                for(int j = 0; j < A.cols(); j++)
+                    B.set(i, j, Math.sqrt(weights[i])*(A.get(i, j)-(center ? mean.get(j) : 0)));
+            double[] expected = new SingularValueDecomposition(B).getSingularValues();
+
+            //keeping every singular value should give the exact answer
+            IncrementalSVD full = new IncrementalSVD(A.cols(), center);
+            //keeping a few more than the rank should be very close
+            IncrementalSVD truncated = new IncrementalSVD(12, center);
+            for(int start = 0; start < A.rows(); start += 23)
+            {
+                int end = Math.min(A.rows(), start+23);
+                full.update(X.subList(start, end), Arrays.copyOfRange(weights, start, end));
+                truncated.update(X.subList(start, end), Arrays.copyOfRange(weights, start, end));
+            }
+
+            assertEquals(sumOfWeights, full.getSumOfWeights(), 1e-10);
+            if(center)
+                assertTrue(mean.subtract(full.getMean()).pNorm(2) < 1e-10);
+            assertEquals(12, truncated.getVt().rows());
+            for(int i = 0; i < A.cols(); i++)
+                assertEquals(expected[i], full.getSingularValues()[i], 1e-8*expected[0]);
+            for(int i = 0; i < 9; i++)
+                assertEquals(expected[i], truncated.getSingularValues()[i], 1e-4*expected[i]);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class PackedGEMMTest
+{
+
+    public PackedGEMMTest()
+    {
+    }
+
+    private static DenseMatrix random(int rows, int cols, Random rand)
+    {
+        DenseMatrix A = new DenseMatrix(rows, cols);
+        for(int i = 0; i < rows; i++)
+            for(int j = 0; j < cols; j++)
+                A.set(i, j, rand.nextGaussian());
+        return A;
+    }
+
+    /**
+     * The simple definition of C = C + A B, used as the reference
+     */
+    private static Matrix naive(Matrix A, Matrix B, Matrix C)
+    {
+        Matrix result = C.clone();
+        for(int i = 0; i < A.rows(); i++)
+            for(int j = 0; j < B.cols(); j++)
+            {
+                double sum = 0;
+                for(int k = 0; k < A.cols(); k++)
+                    sum += A.get(i, k) * B.get(k, j);
+                result.increment(i, j, sum);
+            }
+        return result;
+    }
+
+    @Test
+    public void testGemm()
+    {
+        System.out.println("gemm");
+        Random rand = new XORWOW(42);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        //sizes chosen to hit partial micro-kernel and partial panel edges
+        int[][] sizes = new int[][]
+        {
+            {1, 1, 1}, {3, 5, 7}, {50, 61, 47}, {130, 67, 300}, {257, 258, 259}, {9, 600, 520}
+        };
+        for(int[] size : sizes)
+        {
+            int m = size[0], n = size[1], k = size[2];
+            DenseMatrix A = random(m, k, rand);
+            DenseMatrix B = random(k, n, rand);
+            DenseMatrix C = random(m, n, rand);
+            Matrix expected = naive(A, B, C);
+
+            for(ForkJoinPool p : new ForkJoinPool[]{null, pool})
+                for(int trans = 0; trans < 4; trans++)
+                {
+                    boolean transA = (trans & 1) != 0, transB = (trans & 2) != 0;
+                    double[][] result = toArray(C);
+                    PackedGEMM.gemm(toArray(transA ? A.transpose() : A), transA, toArray(transB ? B.transpose() : B), transB, result, m, n, k, p);
+                    assertTrue(expected.equals(new DenseMatrix(result), 1e-10));
+                }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testDenseMatrixMethods()
+    {
+        System.out.println("denseMatrixMethods");
+        Random rand = new XORWOW(7);
+        ExecutorService ex = Executors.newFixedThreadPool(3);
+        DenseMatrix A = random(140, 90, rand);
+        DenseMatrix B = random(90, 110, rand);
+        Matrix expected = naive(A, B, new DenseMatrix(140, 110));
+
+        assertTrue(expected.equals(A.multiply(B), 1e-10));
+        assertTrue(expected.equals(A.multiply(B, ex), 1e-10));
+        assertTrue(expected.equals(A.transpose().transposeMultiply(B), 1e-10));
+        assertTrue(expected.equals(A.transpose().transposeMultiply(B, ex), 1e-10));
+        assertTrue(expected.equals(A.multiplyTranspose(B.transpose()), 1e-10));
+        assertTrue(expected.equals(A.multiplyTranspose(B.transpose(), ex), 1e-10));
+        ex.shutdown();
+    }
+
+    private static double[][] toArray(Matrix A)
+    {
+        double[][] raw = new double[A.rows()][A.cols()];
+        for(int i = 0; i < raw.length; i++)
+            for(int j = 0; j < raw[i].length; j++)
+                raw[i][j] = A.get(i, j);
+        return raw;
+    }
+}
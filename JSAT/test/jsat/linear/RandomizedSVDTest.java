@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import jsat.utils.random.RandomUtil;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class RandomizedSVDTest
+{
+
+    public RandomizedSVDTest()
+    {
+    }
+
+    /**
+     * Creates a rank 10 matrix with a small amount of noise
+     */
+    static Matrix getLowRank(int n, int d, Random rand)
+    {
+        Matrix A = DenseMatrix.random(n, 10, rand).multiply(DenseMatrix.random(10, d, rand));
+        for(int i = 0; i < n; i++)
+            for(int j = 0; j < d; j++)
+                A.increment(i, j, 1e-4*rand.nextGaussian());
+        return A;
+    }
+
+    @Test
+    public void testLowRank()
+    {
+        System.out.println("lowRank");
+        Random rand = RandomUtil.getRandom(123);
+        Matrix A = getLowRank(200, 60, rand);
+        double[] expected = new SingularValueDecomposition(A.clone()).getSingularValues();
+
+        List<Vec> dense = new ArrayList<>();
+        List<Vec> sparse = new ArrayList<>();
+        for(int i = 0; i < A.rows(); i++)
+        {
+            dense.add(A.getRowView(i));
+            sparse.add(new SparseVector(A.getRowView(i)));
+        }
+
+        for(List<Vec> X : Arrays.asList(dense, sparse))
+            for(boolean parallel : new boolean[]{true, false})
+            {
+                RandomizedSVD svd = new RandomizedSVD(X, 10, parallel);
+                Matrix V = svd.getVt();
+                assertEquals(10, V.rows());
+                assertEquals(60, V.cols());
+                for(int i = 0; i < 10; i++)
+                {
+                    assertEquals(expected[i], svd.getSingularValues()[i], expected[i]*1e-6);
+                    //A^T A v = s^2 v
+                    Vec v = V.getRowView(i);
+                    Vec AtAv = A.transposeMultiply(1.0, A.multiply(v));
+                    AtAv.mutableDivide(Math.pow(expected[i], 2));
+                    assertTrue(AtAv.subtract(v).pNorm(2) < 1e-4);
+                }
+            }
+    }
+
+    @Test
+    public void testWeightedCentered()
+    {
+        System.out.println("weightedCentered");
+        Random rand = RandomUtil.getRandom(123);
+        Matrix A = getLowRank(150, 40, rand);
+        double[] weights = new double[A.rows()];
+        Vec center = new DenseVector(A.cols());
+        List<Vec> X = new ArrayList<>();
+        for(int i = 0; i < A.rows(); i++)
+        {
+            weights[i] = 0.5 + rand.nextDouble();
+            X.add(A.getRowView(i));
+        }
+        for(int j = 0; j < A.cols(); j++)
+            center.set(j, rand.nextGaussian());
+
+        //explicitly scaled and centered
+        Matrix B = new DenseMatrix(A.rows(), A.cols());
+        for(int i = 0; i < A.rows(); i++)
+            for(int j = 0; j < A.cols(); j++)
+                B.set(i, j, Math.sqrt(weights[i])*(A.get(i, j)-center.get(j)));
+        double[] expected = new SingularValueDecomposition(B).getSingularValues();
+
+        RandomizedSVD svd = new RandomizedSVD(X, weights, center, 8, 10, 4, rand, false);
+        for(int i = 0; i < 8; i++)
+            assertEquals(expected[i], svd.getSingularValues()[i], expected[i]*1e-6);
+    }
+}
@@ -424,4 +424,31 @@ public class SingularValueDecompositionTest
         x = instance.solve(E, threadpool);
         assertTrue(C.transposeMultiply(x).equals(E, instance.getCondition()));
     }
+
+    @Test
+    public void testLarge_ExecutorService()
+    {
+        System.out.println("testLarge_ExecutorService");
+        java.util.Random rand = new java.util.Random(123);
+        for(int[] dims : new int[][]{{250, 180}, {180, 250}})
+        {
+            Matrix X = Matrix.random(dims[0], dims[1], rand);
+            SingularValueDecomposition qr = new SingularValueDecomposition(X.clone(), 100);
+            SingularValueDecomposition serial = new SingularValueDecomposition(X.clone());
+            SingularValueDecomposition parallel = new SingularValueDecomposition(X.clone(), threadpool);
+            for(SingularValueDecomposition svd : new SingularValueDecomposition[]{serial, parallel})
+            {
+                assertArrayEquals(qr.getSingularValues(), svd.getSingularValues(), 1e-9);
+                Matrix U = svd.getU();
+                Matrix V = svd.getV();
+                int k = svd.getSingularValues().length;
+                assertTrue(U.transposeMultiply(U).equals(Matrix.eye(U.cols()), 1e-10));
+                assertTrue(V.transposeMultiply(V).equals(Matrix.eye(V.cols()), 1e-10));
+                Matrix US = new SubMatrix(U, 0, 0, U.rows(), k).clone();
+                for(int j = 0; j < k; j++)
+                    US.getColumnView(j).mutableMultiply(svd.getSingularValues()[j]);
+                assertTrue(US.multiplyTranspose(new SubMatrix(V, 0, 0, V.rows(), k)).equals(X, 1e-9));
+            }
+        }
+    }
 }
@@ -69,5 +69,39 @@ public class TruncatedSVDTest {
             }
         }
     }
+
+    @Test
+    public void testRandomized()
+    {
+        Random rand = RandomUtil.getRandom(123);
+        Matrix X_tall = DenseMatrix.random(100, 40, rand);
+        Matrix X_wide = DenseMatrix.random(40, 100, rand);
+        
+        for(Matrix X : Arrays.asList(X_tall, X_wide))
+        {
+            double origNorm = X.frobenius();
+            double prevNorm = X.frobenius();
+            for(int k = 1; k < 40; k+= 4)
+            {
+                TruncatedSVD svd = new TruncatedSVD(X, k, rand);
+
+                Matrix U = svd.getU();
+                Matrix V = svd.getV();
+                assertEquals(X.rows(), U.rows());
+                assertEquals(k, U.cols());
+                assertEquals(k, V.rows());
+                assertEquals(X.cols(), V.cols());
+
+                Matrix R = U.clone();
+                Matrix.diagMult(R, DenseVector.toDenseVec(svd.getSingularValues()));
+                R = R.multiply(V);
+
+                double cur_rec_cost = R.subtract(X).frobenius();
+                assertTrue(cur_rec_cost < prevNorm);
+                assertTrue(cur_rec_cost < origNorm);
+                prevNorm = cur_rec_cost;
+            }
+        }
+    }
     
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class VecOpsTest
+{
+    static final int N = 200;
+
+    public VecOpsTest()
+    {
+    }
+
+    /**
+     * Creates a collection of vectors of every supported storage type, with
+     * sparsity levels that exercise both the merge and the galloping sparse
+     * kernels.
+     */
+    static List<Vec> getVecs(Random rand)
+    {
+        List<Vec> vecs = new ArrayList<>();
+        for(int nnz : new int[]{0, 1, 3, 40, 150})
+        {
+            SparseVector s = new SparseVector(N);
+            for(int i = 0; i < nnz; i++)
+                s.set(rand.nextInt(N), rand.nextGaussian());
+            vecs.add(s);
+            vecs.add(new DenseVector(s));
+            //a dense view into the middle of a larger array
+            double[] backing = new double[N+17];
+            for(int i = 0; i < backing.length; i++)
+                backing[i] = rand.nextGaussian();
+            DenseVector view = new DenseVector(backing, 9, 9+N);
+            for(int i = 0; i < N; i++)
+                view.set(i, s.get(i));
+            vecs.add(view);
+            vecs.add(new ScaledVector(s.clone()));
+        }
+        return vecs;
+    }
+
+    static double naiveDot(Vec a, Vec b)
+    {
+        double sum = 0;
+        for(int i = 0; i < a.length(); i++)
+            sum += a.get(i)*b.get(i);
+        return sum;
+    }
+
+    static double naiveDistSqrd(Vec a, Vec b)
+    {
+        double sum = 0;
+        for(int i = 0; i < a.length(); i++)
+            sum += Math.pow(a.get(i)-b.get(i), 2);
+        return sum;
+    }
+
+    @Test
+    public void testDot()
+    {
+        System.out.println("dot");
+        List<Vec> vecs = getVecs(new XORWOW(123));
+        for(Vec a : vecs)
+            for(Vec b : vecs)
+            {
+                double expected = naiveDot(a, b);
+                assertEquals(expected, VecOps.dot(a, b), 1e-10);
+                assertEquals(expected, a.dot(b), 1e-10);
+            }
+    }
+
+    @Test
+    public void testDistanceSquared()
+    {
+        System.out.println("distanceSquared");
+        List<Vec> vecs = getVecs(new XORWOW(456));
+        for(Vec a : vecs)
+            for(Vec b : vecs)
+            {
+                double expected = naiveDistSqrd(a, b);
+                assertEquals(expected, VecOps.distanceSquared(a, b), 1e-10);
+                assertEquals(Math.sqrt(expected), a.pNormDist(2, b), 1e-10);
+            }
+    }
+
+    @Test
+    public void testCosine()
+    {
+        System.out.println("cosine");
+        List<Vec> vecs = getVecs(new XORWOW(789));
+        for(Vec a : vecs)
+            for(Vec b : vecs)
+            {
+                double denom = Math.sqrt(naiveDot(a, a)*naiveDot(b, b));
+                double expected = denom == 0 ? 0 : naiveDot(a, b)/denom;
+                assertEquals(expected, VecOps.cosine(a, b), 1e-10);
+            }
+    }
+
+    @Test
+    public void testAxpy()
+    {
+        System.out.println("axpy");
+        List<Vec> vecs = getVecs(new XORWOW(321));
+        for(Vec x : vecs)
+            for(Vec y : vecs)
+            {
+                Vec expected = new DenseVector(N);
+                for(int i = 0; i < N; i++)
+                    expected.set(i, y.get(i) + 0.5*x.get(i));
+
+                Vec y_c = y.clone();
+                VecOps.axpy(0.5, x, y_c);
+                for(int i = 0; i < N; i++)
+                    assertEquals(expected.get(i), y_c.get(i), 1e-10);
+            }
+
+        //updating a sparse vector with only indices it already has is done in place
+        SparseVector y = new SparseVector(N);
+        y.set(3, 1.0);
+        y.set(50, 2.0);
+        y.set(100, 3.0);
+        SparseVector x = new SparseVector(N);
+        x.set(50, 4.0);
+        x.set(100, -3.0);
+        VecOps.axpy(1.0, x, y);
+        assertEquals(1.0, y.get(3), 0.0);
+        assertEquals(6.0, y.get(50), 0.0);
+        assertEquals(0.0, y.get(100), 0.0);
+    }
+
+    @Test
+    public void testForEachNonZero()
+    {
+        System.out.println("forEachNonZero");
+        List<Vec> vecs = getVecs(new XORWOW(654));
+        vecs.add(new FloatDenseVector(vecs.get(vecs.size()-1)));
+        vecs.add(new FloatSparseVector(vecs.get(vecs.size()-1)));
+        for(Vec a : vecs)
+        {
+            double[] seen = new double[N];
+            int[] prev = {-1};
+            a.forEachNonZero((i, v) ->
+            {
+                assertTrue(i > prev[0]);
+                assertTrue(v != 0);
+                prev[0] = i;
+                seen[i] = v;
+            });
+            for(int i = 0; i < N; i++)
+                assertEquals(a.get(i), seen[i], 0.0);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear.vectorcollection;
+
+import java.util.Random;
+import jsat.TestTools;
+import jsat.linear.DenseVector;
+import jsat.linear.Vec;
+import jsat.linear.distancemetrics.EuclideanDistance;
+import jsat.utils.DoubleList;
+import jsat.utils.IntList;
+import jsat.utils.concurrent.ParallelUtils;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class HNSWTest
+{
+    private static final int DIM = 10;
+
+    public HNSWTest()
+    {
+    }
+
+    private static VectorArray<Vec> randomData(int N, Random rand)
+    {
+        VectorArray<Vec> vecCol = new VectorArray<>(new EuclideanDistance());
+        for(int i = 0; i < N; i++)
+            vecCol.add(DenseVector.random(DIM, rand));
+        return vecCol;
+    }
+
+    /**
+     * Returns the fraction of the true nearest neighbors found by the given
+     * collection, over a number of random queries
+     */
+    private static double knnRecall(VectorArray<Vec> truth, VectorCollection<Vec> collection, int k, Random rand)
+    {
+        int found = 0, total = 0;
+        IntList nn_true = new IntList();
+        IntList nn_test = new IntList();
+        DoubleList nd_true = new DoubleList();
+        DoubleList nd_test = new DoubleList();
+        for(int iters = 0; iters < 50; iters++)
+        {
+            Vec q = DenseVector.random(DIM, rand);
+            truth.search(q, k, nn_true, nd_true);
+            collection.search(q, k, nn_test, nd_test);
+            assertEquals(k, nn_test.size());
+            for(int i = 1; i < nd_test.size(); i++)
+                assertTrue(nd_test.getD(i-1) <= nd_test.getD(i));
+            found += nn_test.streamInts().filter(nn_true::contains).count();
+            total += k;
+        }
+        return found/(double)total;
+    }
+
+    @Test
+    public void testSearch_Vec_int()
+    {
+        System.out.println("search");
+        Random rand = new XORWOW(123);
+
+        VectorArray<Vec> vecCol = randomData(2500, rand);
+
+        HNSW<Vec> factory = new HNSW<>();
+        VectorCollection<Vec> collection0 = factory.clone();
+        collection0.build(vecCol, new EuclideanDistance());
+        VectorCollection<Vec> collection1 = TestTools.deepCopy(factory.clone());
+        collection1.build(true, vecCol, new EuclideanDistance());
+
+        collection0 = collection0.clone();
+        collection1 = TestTools.deepCopy(collection1.clone());
+
+        for(int k : new int[]{1, 5, 10, 20})
+        {
+            assertTrue(knnRecall(vecCol, collection0, k, rand) > 0.95);
+            assertTrue(knnRecall(vecCol, collection1, k, rand) > 0.95);
+        }
+    }
+
+    @Test
+    public void testSearch_Vec_double()
+    {
+        System.out.println("search");
+        Random rand = new XORWOW(123);
+
+        VectorArray<Vec> vecCol = randomData(2500, rand);
+
+        VectorCollection<Vec> collection = new HNSW<>(vecCol, new EuclideanDistance(), true);
+
+        IntList nn_true = new IntList();
+        IntList nn_test = new IntList();
+        DoubleList nd_true = new DoubleList();
+        DoubleList nd_test = new DoubleList();
+        int found = 0, total = 0;
+        for(int iters = 0; iters < 20; iters++)
+            for(double range : new double[]{0.5, 0.75, 1.0})
+            {
+                Vec q = vecCol.get(rand.nextInt(vecCol.size()));
+                vecCol.search(q, range, nn_true, nd_true);
+                collection.search(q, range, nn_test, nd_test);
+
+                for(int i = 0; i < nd_test.size(); i++)
+                    assertTrue(nd_test.getD(i) <= range);
+                found += nn_test.streamInts().filter(nn_true::contains).count();
+                total += nn_true.size();
+            }
+        assertTrue(found > 0.95*total);
+    }
+
+    @Test
+    public void testInsert()
+    {
+        System.out.println("insert");
+        Random rand = new XORWOW(123);
+
+        VectorArray<Vec> vecCol = randomData(2500, rand);
+
+        HNSW<Vec> serial = new HNSW<>(new EuclideanDistance());
+        for(Vec v : vecCol)
+            serial.insert(v);
+        assertEquals(vecCol.size(), serial.size());
+        assertTrue(knnRecall(vecCol, serial, 10, rand) > 0.95);
+
+        //insert from many threads at once, the order is not known ahead of time
+        HNSW<Vec> concurrent = new HNSW<>(new EuclideanDistance());
+        ParallelUtils.run(true, vecCol.size(), (int i) -> concurrent.insert(vecCol.get(i)));
+        assertEquals(vecCol.size(), concurrent.size());
+        VectorArray<Vec> inserted = new VectorArray<>(new EuclideanDistance());
+        for(int i = 0; i < concurrent.size(); i++)
+            inserted.add(concurrent.get(i));
+        assertTrue(knnRecall(inserted, concurrent, 10, rand) > 0.95);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear.vectorcollection;
+
+import java.util.Random;
+import jsat.TestTools;
+import jsat.linear.DenseVector;
+import jsat.linear.Vec;
+import jsat.linear.distancemetrics.EuclideanDistance;
+import jsat.utils.DoubleList;
+import jsat.utils.IntList;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class IVFPQTest
+{
+    private static final int DIM = 8;
+
+    public IVFPQTest()
+    {
+    }
+
+    /**
+     * Creates data from a few tight clusters, so that a small number of lists
+     * and subspace centers can represent it well
+     */
+    private static VectorArray<Vec> clusteredData(int N, Random rand)
+    {
+        Vec[] centers = new Vec[10];
+        for(int c = 0; c < centers.length; c++)
+            centers[c] = DenseVector.random(DIM, rand).multiply(10);
+        VectorArray<Vec> vecCol = new VectorArray<>(new EuclideanDistance());
+        for(int i = 0; i < N; i++)
+        {
+            Vec x = DenseVector.random(DIM, rand);
+            x.mutableAdd(centers[i % centers.length]);
+            vecCol.add(x);
+        }
+        return vecCol;
+    }
+
+    @Test
+    public void testSearch_Vec_int()
+    {
+        System.out.println("search");
+        Random rand = new XORWOW(123);
+        VectorArray<Vec> vecCol = clusteredData(3000, rand);
+
+        IVFPQ<Vec> factory = new IVFPQ<>(10, 4);
+        factory.setProbes(3);
+        factory.setReRank(50);
+        IVFPQ<Vec> collection0 = factory.clone();
+        collection0.build(false, vecCol, new EuclideanDistance());
+        IVFPQ<Vec> collection1 = factory.clone();
+        collection1.build(true, vecCol, new EuclideanDistance());
+        collection1 = TestTools.deepCopy(collection1.clone());
+
+        IntList nn_true = new IntList();
+        IntList nn_test = new IntList();
+        DoubleList nd_true = new DoubleList();
+        DoubleList nd_test = new DoubleList();
+        for(IVFPQ<Vec> collection : new IVFPQ[]{collection0, collection1})
+        {
+            int found = 0, total = 0;
+            for(int iters = 0; iters < 50; iters++)
+            {
+                Vec q = vecCol.get(rand.nextInt(vecCol.size()));
+                vecCol.search(q, 10, nn_true, nd_true);
+                collection.search(q, 10, nn_test, nd_test);
+                assertEquals(10, nn_test.size());
+                //re-ranked distances are exact
+                for(int i = 0; i < nn_test.size(); i++)
+                    assertEquals(q.pNormDist(2, vecCol.get(nn_test.get(i))), nd_test.getD(i), 1e-10);
+                found += nn_test.streamInts().filter(nn_true::contains).count();
+                total += 10;
+            }
+            assertTrue(found > 0.9*total);
+        }
+
+        //without re-ranking, the estimated distances are close to the truth
+        collection0.setReRank(0);
+        double err = 0;
+        for(int iters = 0; iters < 50; iters++)
+        {
+            Vec q = vecCol.get(rand.nextInt(vecCol.size()));
+            collection0.search(q, 5, nn_test, nd_test);
+            assertEquals(5, nn_test.size());
+            for(int i = 0; i < nn_test.size(); i++)
+            {
+                double exact = q.pNormDist(2, vecCol.get(nn_test.get(i)));
+                err += Math.abs(exact-nd_test.getD(i))/(50*5);
+            }
+        }
+        assertTrue(err < 0.5);
+    }
+
+    @Test
+    public void testSearch_Vec_double()
+    {
+        System.out.println("search");
+        Random rand = new XORWOW(123);
+        VectorArray<Vec> vecCol = clusteredData(3000, rand);
+
+        IVFPQ<Vec> collection = new IVFPQ<>(10, 4);
+        collection.setProbes(3);
+        collection.setReRank(1);
+        collection.build(vecCol, new EuclideanDistance());
+
+        IntList nn_true = new IntList();
+        IntList nn_test = new IntList();
+        DoubleList nd_true = new DoubleList();
+        DoubleList nd_test = new DoubleList();
+        for(int iters = 0; iters < 20; iters++)
+        {
+            Vec q = vecCol.get(rand.nextInt(vecCol.size()));
+            vecCol.search(q, 0.75, nn_true, nd_true);
+            collection.search(q, 0.75, nn_test, nd_test);
+            //re-ranking removes everything outside the range
+            for(int i = 0; i < nn_test.size(); i++)
+            {
+                assertTrue(nd_test.getD(i) <= 0.75);
+                assertTrue(nn_true.contains(nn_test.get(i)));
+            }
+            assertTrue(nn_test.contains(vecCol.indexOf(q)));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.linear.vectorcollection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import jsat.TestTools;
+import jsat.linear.DenseVector;
+import jsat.linear.Vec;
+import jsat.linear.distancemetrics.EuclideanDistance;
+import jsat.utils.DoubleList;
+import jsat.utils.IntList;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class KNNGraphTest
+{
+
+    public KNNGraphTest()
+    {
+    }
+
+    @Test
+    public void testBuild()
+    {
+        System.out.println("build");
+        Random rand = new XORWOW(123);
+
+        List<Vec> vecs = new ArrayList<>();
+        for(int i = 0; i < 1500; i++)
+            vecs.add(DenseVector.random(3, rand));
+        //skewed data, with a dense cluster and a few duplicates
+        for(int i = 0; i < 500; i++)
+            vecs.add(DenseVector.random(3, rand).multiply(0.01));
+        for(int i = 0; i < 5; i++)
+            vecs.add(vecs.get(i).clone());
+
+        VectorArray<Vec> truth = new VectorArray<>(new EuclideanDistance(), vecs);
+        int k = 7;
+
+        List<VectorCollection<Vec>> collections = new ArrayList<>();
+        collections.add(new VectorArray<>());
+        collections.add(new VPTree<>());
+        collections.add(new BallTree<>());
+        collections.add(new DefaultVectorCollection<>());
+
+        for(VectorCollection<Vec> vc : collections)
+            for(boolean parallel : new boolean[]{false, true})
+            {
+                VectorCollection<Vec> col = vc.clone();
+                col.build(parallel, vecs, new EuclideanDistance());
+                KNNGraph graph = KNNGraph.build(col, k, parallel);
+                graph = TestTools.deepCopy(graph);
+
+                assertEquals(vecs.size(), graph.size());
+                assertEquals(k, graph.getK());
+
+                IntList n = new IntList();
+                DoubleList d = new DoubleList();
+                for(int i = 0; i < vecs.size(); i++)
+                {
+                    truth.search(vecs.get(i), k+1, n, d);
+                    for(int j = 0; j < k; j++)
+                    {
+                        assertTrue(i != graph.getNeighbor(i, j));
+                        //ties may be in any order, so compare the distances
+                        assertEquals(d.getD(j+1), graph.getDistance(i, j), 1e-6);
+                        assertEquals(graph.getDistance(i, j), vecs.get(i).pNormDist(2, vecs.get(graph.getNeighbor(i, j))), 1e-6);
+                    }
+                }
+            }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckCompatible()
+    {
+        System.out.println("checkCompatible");
+        Random rand = new XORWOW(123);
+        List<Vec> vecs = new ArrayList<>();
+        for(int i = 0; i < 100; i++)
+            vecs.add(DenseVector.random(3, rand));
+        KNNGraph graph = KNNGraph.build(vecs, new EuclideanDistance(), 5, false);
+        graph.checkCompatible(100, 5);
+        graph.checkCompatible(100, 3);
+        graph.checkCompatible(100, 6);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.parameters;
+
+import jsat.classifiers.CategoricalData;
+import jsat.classifiers.ClassificationDataSet;
+import jsat.classifiers.Classifier;
+import jsat.distributions.Uniform;
+import jsat.distributions.discrete.UniformDiscrete;
+import jsat.linear.DenseVector;
+import jsat.parameters.GridSearchTest.DumbModel;
+import jsat.regression.RegressionDataSet;
+import jsat.regression.Regressor;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class SuccessiveHalvingTest
+{
+    ClassificationDataSet classData;
+    RegressionDataSet regData;
+
+    public SuccessiveHalvingTest()
+    {
+    }
+
+    @Before
+    public void setUp()
+    {
+        classData = new ClassificationDataSet(1, new CategoricalData[0], new CategoricalData(2));
+        for (int i = 0; i < 100; i++)
+            classData.addDataPoint(DenseVector.toDenseVec(1.0 * i), 0);
+        for (int i = 0; i < 100; i++)
+            classData.addDataPoint(DenseVector.toDenseVec(-1.0 * i), 1);
+
+        regData = new RegressionDataSet(1, new CategoricalData[0]);
+        for (int i = 0; i < 100; i++)
+            regData.addDataPoint(DenseVector.toDenseVec(1.0 * i), 0);
+        for (int i = 0; i < 100; i++)
+            regData.addDataPoint(DenseVector.toDenseVec(-1.0 * i), 1);
+    }
+
+    @Test
+    public void testClassificationGrid()
+    {
+        System.out.println("testClassificationGrid");
+        for (boolean parallel : new boolean[]{false, true})
+        {
+            SuccessiveHalving instance = new SuccessiveHalving((Classifier) new DumbModel(), 5);
+            instance.setMinResource(1.0/9);
+
+            instance.addParameter("Param1", 0, 1, 2, 3, 4);
+            instance.addParameter("Param2", 0.0, 1.0, 2.0, 3.0, 4.0);
+            instance.addParameter("Param3", 0, 1, 2, 3, 4);
+
+            instance = instance.clone();
+            instance.train(classData, parallel);
+            instance = instance.clone();
+
+            DumbModel model = (DumbModel) instance.getTrainedClassifier();
+            assertEquals(1, model.param1);
+            assertEquals(2, model.param2, 0.5);
+            assertEquals(3, model.param3);
+            assertFalse(model.wasWarmStarted);
+
+            //every combination is started, and 1/3 of them survive each rung
+            assertEquals(125, instance.getCandidates().size());
+            int[] reached = new int[3];
+            for (SuccessiveHalving.Candidate c : instance.getCandidates())
+                reached[c.getLastRung()]++;
+            assertEquals(125-41, reached[0]);
+            assertEquals(41-13, reached[1]);
+            assertEquals(13, reached[2]);
+            //the survivors used far less than the full data for every candidate
+            assertTrue(instance.getTotalResourceSpent() < 0.4*125*classData.size());
+        }
+    }
+
+    @Test
+    public void testClassificationHyperband()
+    {
+        System.out.println("testClassificationHyperband");
+        SuccessiveHalving instance = new SuccessiveHalving((Classifier) new DumbModel(), 5);
+        instance.setHyperband(true);
+        instance.setEta(5);
+        instance.setMinResource(1.0/25);
+
+        //values are sampled when using Hyperband
+        instance.addParameter("Param1", 0, 1);
+        instance.addParameter("Param2", new Uniform(1.0, 3.0));
+        instance.addParameter("Param3", 2, 3);
+
+        instance = instance.clone();
+        instance.train(classData, true);
+        instance = instance.clone();
+
+        DumbModel model = (DumbModel) instance.getTrainedClassifier();
+        assertEquals(1, model.param1);
+        assertEquals(2, model.param2, 0.5);
+        assertEquals(3, model.param3);
+        //brackets of 25, 8, and 3 candidates
+        assertEquals(25+8+3, instance.getCandidates().size());
+    }
+
+    @Test
+    public void testRegressionBudget()
+    {
+        System.out.println("testRegressionBudget");
+        SuccessiveHalving instance = new SuccessiveHalving((Regressor) new DumbModel(), 5);
+        instance.setTrials(5*5*5*5);
+        instance.setMinResource(1.0/3);
+        instance.setBudgetParameter("Param3", 3);
+
+        instance.addParameter("Param1", new UniformDiscrete(0, 5));
+        instance.addParameter("Param2", new Uniform(0.0, 5.0));
+
+        instance = instance.clone();
+        instance.train(regData, true);
+        instance = instance.clone();
+
+        DumbModel model = (DumbModel) instance.getTrainedRegressor();
+        assertEquals(1, model.param1);
+        assertEquals(2, model.param2, 0.5);
+        assertEquals(3, model.param3);
+        assertFalse(model.wasWarmStarted);
+
+        //warm started survivors only pay for the extra budget
+        for (SuccessiveHalving.Candidate c : instance.getCandidates())
+            if (c.getRungsCompleted() == 2)
+                assertEquals(3, c.getResourceSpent(), 0.0);
+            else
+                assertEquals(1, c.getResourceSpent(), 0.0);
+    }
+}
@@ -97,6 +97,26 @@ public class StochasticGradientBoostingTest
         assertTrue(rme.getMeanError() <= test.getTargetValues().mean() * 0.25);
     }
     
+    @Test
+    public void testTrainC_RegressionDataSet_binned()
+    {
+        System.out.println("train");
+        for(boolean parallel : new boolean[]{true, false})
+        {
+            DecisionTree weak = new DecisionTree();
+            weak.setMaxNumericBins(64);
+            StochasticGradientBoosting instance = new StochasticGradientBoosting(weak, 50);
+
+            RegressionDataSet train = FixedProblems.get2DLinearRegression(500, RandomUtil.getRandom());
+            RegressionDataSet test = FixedProblems.get2DLinearRegression(100, RandomUtil.getRandom());
+
+            RegressionModelEvaluation rme = new RegressionModelEvaluation(instance, train, parallel);
+            rme.evaluateTestSet(test);
+
+            assertTrue(rme.getMeanError() <= test.getTargetValues().mean() * 0.25);
+        }
+    }
+    
     @Test
     public void testClone()
     {
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.text;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import jsat.DataSet;
+import jsat.linear.IndexValue;
+import jsat.linear.Vec;
+import jsat.text.tokenizer.NaiveTokenizer;
+import jsat.text.wordweighting.WordCount;
+import jsat.utils.random.XORWOW;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class TextDataLoaderTest
+{
+    static List<String> docs;
+
+    static
+    {
+        Random rand = new XORWOW(42);
+        docs = new ArrayList<>();
+        for(int i = 0; i < 500; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int words = rand.nextInt(40);
+            for(int j = 0; j < words; j++)
+            {
+                //skewed so some words are common and most are rare
+                int w = (int) (Math.pow(rand.nextDouble(), 3)*3000);
+                sb.append(j % 7 == 0 ? "Word" : "word").append(w).append(j % 5 == 0 ? ", " : " ");
+            }
+            docs.add(sb.toString());
+        }
+    }
+
+    public TextDataLoaderTest()
+    {
+    }
+
+    /**
+     * Loads all the documents, using the given number of threads
+     */
+    static class Loader extends TextDataLoader
+    {
+        int threads;
+        int[] docIndex = new int[docs.size()];
+
+        public Loader(int threads)
+        {
+            super(new NaiveTokenizer(), new WordCount());
+            this.threads = threads;
+        }
+
+        @Override
+        public void initialLoad()
+        {
+            ExecutorService ex = Executors.newFixedThreadPool(threads);
+            for(int i = 0; i < docs.size(); i++)
+            {
+                final int i_ = i;
+                ex.submit(() -> docIndex[i_] = addOriginalDocument(docs.get(i_)));
+            }
+            ex.shutdown();
+            try
+            {
+                ex.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            catch (InterruptedException ex1)
+            {
+                throw new RuntimeException(ex1);
+            }
+        }
+    }
+
+    static class HashedLoader extends HashedTextDataLoader
+    {
+        public HashedLoader()
+        {
+            super(1024, new NaiveTokenizer(), new WordCount());
+        }
+
+        @Override
+        protected void initialLoad()
+        {
+            for(String doc : docs)
+                addOriginalDocument(doc);
+        }
+    }
+
+    static Map<String, Double> wordCounts(Vec vec, TextDataLoader loader)
+    {
+        Map<String, Double> counts = new HashMap<>();
+        for(IndexValue iv : vec)
+            counts.put(loader.getWordForIndex(iv.getIndex()), iv.getValue());
+        return counts;
+    }
+
+    @Test
+    public void testGetDataSet()
+    {
+        System.out.println("getDataSet");
+        Loader serial = new Loader(1);
+        DataSet serialData = serial.getDataSet();
+        assertEquals(docs.size(), serialData.size());
+
+        //a single thread should give words their index in order of first occurrence
+        NaiveTokenizer tokenizer = new NaiveTokenizer();
+        List<String> firstSeen = new ArrayList<>();
+        Map<String, Integer> docFreq = new HashMap<>();
+        for(String doc : docs)
+            for(String word : new HashSet<>(tokenizer.tokenize(doc)))
+                docFreq.merge(word, 1, Integer::sum);
+        for(String doc : docs)
+            for(String word : tokenizer.tokenize(doc))
+                if(!firstSeen.contains(word))
+                    firstSeen.add(word);
+        assertEquals(firstSeen.size(), serialData.getNumNumericalVars());
+        for(int i = 0; i < firstSeen.size(); i++)
+        {
+            assertEquals(firstSeen.get(i), serial.getWordForIndex(i));
+            assertEquals(docFreq.get(firstSeen.get(i)).intValue(), serial.getTermFrequency(i));
+            assertEquals(docFreq.get(firstSeen.get(i)).intValue(), serial.termDocumentFrequencys.get(i).get());
+        }
+
+        for(int i = 0; i < docs.size(); i++)
+        {
+            Map<String, Double> expected = new HashMap<>();
+            for(String word : tokenizer.tokenize(docs.get(i)))
+                expected.merge(word, 1.0, Double::sum);
+            assertEquals(expected, wordCounts(serialData.getDataPoint(i).getNumericalValues(), serial));
+            assertEquals(i, serial.docIndex[i]);
+        }
+
+        //multiple threads must produce the same documents, only the indices may change
+        Loader parallel = new Loader(4);
+        DataSet parallelData = parallel.getDataSet();
+        assertEquals(serialData.getNumNumericalVars(), parallelData.getNumNumericalVars());
+        for(int i = 0; i < docs.size(); i++)
+        {
+            int j = parallel.docIndex[i];
+            assertEquals(wordCounts(serialData.getDataPoint(i).getNumericalValues(), serial),
+                    wordCounts(parallelData.getDataPoint(j).getNumericalValues(), parallel));
+        }
+        for(int i = 0; i < firstSeen.size(); i++)
+        {
+            String word = parallel.getWordForIndex(i);
+            assertEquals(docFreq.get(word).intValue(), parallel.getTermFrequency(i));
+            Vec vec = parallel.newText(word);
+            assertEquals(1, vec.nnz());
+            assertEquals(i, vec.getNonZeroIterator().next().getIndex());
+        }
+    }
+
+    @Test
+    public void testHashedGetDataSet()
+    {
+        System.out.println("hashed getDataSet");
+        HashedLoader loader = new HashedLoader();
+        DataSet data = loader.getDataSet();
+        assertEquals(docs.size(), data.size());
+
+        TextVectorCreator tvc = loader.getTextVectorCreator();
+        for(int i = 0; i < docs.size(); i++)
+            assertTrue(tvc.newText(docs.get(i)).equals(data.getDataPoint(i).getNumericalValues(), 0.0));
+    }
+}
@@ -226,4 +226,146 @@ public class OnlineLDAsviTest
         return true;
     }
 
+    /**
+     * Test of the parallel model and batch getTopics methods, of class OnlineLDAsvi.
+     */
+    @Test
+    public void testModel_Parallel()
+    {
+        System.out.println("model parallel");
+        
+        int attempts = 3;
+        do
+        {   
+            //create the basis set to sample from
+            List<Vec> basis = new ArrayList<Vec>();
+
+            for(int i = 0; i < rows; i++)
+            {
+                Vec b0 = new SparseVector(rows*rows);
+                for(int a = 0; a < rows; a++)
+                    b0.set(i*5+a, 1.0);
+
+                Vec b1 = new SparseVector(rows*rows);
+                for(int a = 0; a < rows; a++)
+                    b1.set(a*rows+i, 1.0);
+
+                b0.mutableDivide(b0.sum());
+                b1.mutableDivide(b1.sum());
+                basis.add(b0);
+                basis.add(b1);
+            }
+
+            //create the training set
+            double alpha = 0.1;
+            List<DataPoint> docs = new ArrayList<DataPoint>();
+            Dirichlet dirichlet = new Dirichlet(new ConstantVector(alpha, basis.size()));
+            Random rand = RandomUtil.getRandom();
+            for(Vec topicSample : dirichlet.sample(100000, rand))
+                docs.add(new DataPoint(sampleDoc(topicSample, basis, rand), new int[0], new CategoricalData[0]));
+
+            OnlineLDAsvi lda = new OnlineLDAsvi();
+            lda.setAlpha(0.1);
+            lda.setEta(1.0/basis.size());
+            lda.setKappa(0.6);
+            lda.setMiniBatchSize(256);
+            lda.setTau0(64);
+            lda.setEpochs(1);
+
+            lda.model(new SimpleDataSet(docs), basis.size(), true);
+
+            if(passTest(lda, basis, dirichlet, rand) && passBatchTest(lda, basis, dirichlet, rand))
+               break; //you did it , skip out of here
+        }
+        while(attempts-- > 0);
+        assertTrue(attempts > 0);
+    }
+
+    /**
+     * Checks that the topic distributions computed for a whole data set at once
+     * are as accurate as those computed one document at a time
+     */
+    public boolean passBatchTest(OnlineLDAsvi lda, List<Vec> basis, Dirichlet dirichlet, Random rand)
+    {
+        //map from the LDA topics to the basis topics
+        Map<Integer, Integer> ldaTopicToBasis = new HashMap<Integer, Integer>();
+        for(int i = 0; i < lda.getK(); i++)
+        {
+            Vec topic = lda.getTopicVec(i);
+            int minIndx = 0;
+            double minDist = topic.subtract(basis.get(0)).pNorm(2);
+            for(int j = 1; j < basis.size(); j++)
+            {
+                double dist = topic.subtract(basis.get(j)).pNorm(2);
+                if(dist <minDist)
+                {
+                    minDist = dist;
+                    minIndx = j;
+                }
+            }
+            ldaTopicToBasis.put(i, minIndx);
+        }
+        
+        List<Vec> topicSamples = dirichlet.sample(100, rand);
+        List<DataPoint> testDocs = new ArrayList<DataPoint>();
+        for(Vec topicSample : topicSamples)
+            testDocs.add(new DataPoint(sampleDoc(topicSample, basis, rand)));
+        
+        for(boolean parallel : new boolean[]{false, true})
+        {
+            List<Vec> batchTopics = lda.getTopics(new SimpleDataSet(testDocs), parallel);
+            if(batchTopics.size() != testDocs.size())
+                return false;
+            for(int d = 0; d < testDocs.size(); d++)
+            {
+                Vec ldaTopics = batchTopics.get(d);
+                for(int i = 0; i < ldaTopics.length(); i++)
+                {
+                    double ldaVal = ldaTopics.get(i);
+                    if(ldaVal > 0.2)
+                    {
+                        if(Math.abs(topicSamples.get(d).get(ldaTopicToBasis.get(i)) - ldaVal) >  0.25)
+                            return false;
+                    }
+                }
+            }
+        }
+        
+        return true;
+    }
+
+    /**
+     * Samples a document of 100 words from the given mixture of the basis topics
+     */
+    private static Vec sampleDoc(Vec topicSample, List<Vec> basis, Random rand)
+    {
+        Vec doc = new DenseVector(basis.get(0).length());
+        for(int i = 0; i < 100; i++)
+        {
+            double topicRand = rand.nextDouble();
+            int topic = 0;
+            double sum = topicSample.get(0);
+            while(sum < topicRand)
+            {
+                sum+= topicSample.get(++topic);
+            }
+
+            //sample and index from the topic
+            Vec basisVec = basis.get(topic);
+            int randBasisWord = rand.nextInt(basisVec.nnz());
+
+            int pos = 0;
+            for(IndexValue iv : basisVec)
+            {
+                if(pos == randBasisWord)
+                {
+                    doc.increment(iv.getIndex(), 1.0);
+                    break;
+                }
+                pos++;
+            }
+        }
+        return doc;
+    }
+
 }
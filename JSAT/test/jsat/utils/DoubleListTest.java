@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class DoubleListTest
+{
+
+    public DoubleListTest()
+    {
+    }
+
+    /**
+     * Test of getD method, of class DoubleList.
+     */
+    @Test
+    public void testGetD_List_int()
+    {
+        System.out.println("getD");
+        DoubleList dl = new DoubleList();
+        List<Double> al = new ArrayList<>();
+        for(int i = 0; i < 20; i++)
+        {
+            dl.add(i*1.5);
+            al.add(i*1.5);
+        }
+
+        for(int i = 0; i < 20; i++)
+        {
+            assertEquals(i*1.5, DoubleList.getD(dl, i), 0.0);
+            assertEquals(i*1.5, DoubleList.getD(al, i), 0.0);
+        }
+
+        try
+        {
+            DoubleList.getD(dl, 20);
+            fail("Index out of bounds should have been thrown");
+        }
+        catch(IndexOutOfBoundsException ex)
+        {
+
+        }
+    }
+
+    /**
+     * Test of copyOfRange method, of class DoubleList.
+     */
+    @Test
+    public void testCopyOfRange()
+    {
+        System.out.println("copyOfRange");
+        DoubleList dl = new DoubleList();
+        List<Double> al = new ArrayList<>();
+        for(int i = 0; i < 20; i++)
+        {
+            dl.add(i*1.5);
+            al.add(i*1.5);
+        }
+
+        for(List<Double> source : new List[]{dl, al})
+        {
+            DoubleList copy = DoubleList.copyOfRange(source, 5, 12);
+            assertEquals(7, copy.size());
+            for(int i = 0; i < copy.size(); i++)
+                assertEquals(source.get(i+5), copy.getD(i), 0.0);
+
+            //must be a copy, not a view
+            copy.set(0, -1.0);
+            assertEquals(5*1.5, source.get(5), 0.0);
+
+            assertEquals(0, DoubleList.copyOfRange(source, 3, 3).size());
+        }
+    }
+
+}
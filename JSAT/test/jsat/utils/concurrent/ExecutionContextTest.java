@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2018 Edward Raff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.utils.concurrent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import jsat.utils.FakeExecutor;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Edward Raff
+ */
+public class ExecutionContextTest
+{
+
+    public ExecutionContextTest()
+    {
+    }
+
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+
+    @Before
+    public void setUp()
+    {
+    }
+
+    @After
+    public void tearDown()
+    {
+    }
+
+    @Test
+    public void testRun()
+    {
+        System.out.println("run");
+        ExecutionContext context = new ExecutionContext(3);
+        for(int N : new int[]{0, 1, 2, 7, 1000})
+        {
+            AtomicIntegerArray seen = new AtomicIntegerArray(N);
+            context.run(N, (start, end) ->
+            {
+                for(int i = start; i < end; i++)
+                    seen.incrementAndGet(i);
+            });
+            context.run(N, (int i) -> seen.incrementAndGet(i));
+            for(int i = 0; i < N; i++)
+                assertEquals(2, seen.get(i));
+
+            Long sum = context.run(N, (start, end) ->
+            {
+                long s = 0;
+                for(int i = start; i < end; i++)
+                    s += i;
+                return s;
+            }, (a, b) -> a + b);
+            assertEquals(N == 0 ? null : Long.valueOf(N*(long)(N-1)/2), sum);
+
+            //reductions should keep the order of the indices
+            String order = context.run(N, (int i) -> Integer.toString(i) + ",", (a, b) -> a + b);
+            StringBuilder expected = new StringBuilder();
+            for(int i = 0; i < N; i++)
+                expected.append(i).append(",");
+            assertEquals(N == 0 ? null : expected.toString(), order);
+        }
+    }
+
+    @Test
+    public void testNested()
+    {
+        System.out.println("nested");
+        final int threads = 2;
+        ExecutionContext context = new ExecutionContext(threads);
+        Set<Thread> used = ConcurrentHashMap.newKeySet();
+        AtomicIntegerArray seen = new AtomicIntegerArray(16*100);
+        context.run(16, (int outer) ->
+        {
+            assertTrue(ExecutionContext.inParallelRegion());
+            assertSame(context, ExecutionContext.current());
+            ParallelUtils.run(true, 100, (int inner) ->
+            {
+                used.add(Thread.currentThread());
+                seen.incrementAndGet(outer*100+inner);
+            });
+        });
+        assertFalse(ExecutionContext.inParallelRegion());
+        for(int i = 0; i < seen.length(); i++)
+            assertEquals(1, seen.get(i));
+        //the nested work should be spread over the pool, and never need more threads than it has
+        assertTrue(used.size() <= threads);
+        for(Thread t : used)
+            assertSame(context.getPool(), ((ForkJoinWorkerThread) t).getPool());
+    }
+
+    @Test
+    public void testNestedDisabled()
+    {
+        System.out.println("nestedDisabled");
+        ExecutionContext context = new ExecutionContext(2, false);
+        context.run(8, (int outer) ->
+        {
+            Thread outerThread = Thread.currentThread();
+            assertFalse(context.canFork());
+            ParallelUtils.run(true, 50, (int inner) -> assertSame(outerThread, Thread.currentThread()));
+        });
+        assertTrue(context.canFork());
+    }
+
+    @Test
+    public void testCallWith()
+    {
+        System.out.println("callWith");
+        ExecutionContext context = new ExecutionContext(2);
+        assertNotSame(context, ExecutionContext.current());
+        int found = context.callWith(() ->
+        {
+            assertSame(context, ExecutionContext.current());
+            //work forked from this thread uses the same context
+            return ParallelUtils.run(true, 10, (int i) -> ExecutionContext.current() == context ? 1 : 0, (a, b) -> a + b);
+        });
+        assertEquals(10, found);
+        assertNotSame(context, ExecutionContext.current());
+    }
+
+    @Test
+    public void testExecutor() throws Exception
+    {
+        System.out.println("executor");
+        ExecutionContext context = new ExecutionContext(2);
+        ExecutorService ex = context.asExecutor();
+        assertSame(context, ExecutionContext.of(ex));
+        assertSame(context.getPool(), ExecutionContext.of(context.getPool()).getPool());
+        assertNull(ExecutionContext.of(new FakeExecutor()));
+
+        Future<Thread> outside = ex.submit(() -> Thread.currentThread());
+        assertNotSame(Thread.currentThread(), outside.get());
+
+        //tasks submitted from inside a region should run on the submitting thread
+        context.run(4, (int i) ->
+        {
+            try
+            {
+                Thread me = Thread.currentThread();
+                assertSame(me, ParallelUtils.CACHED_THREAD_POOL.submit(() -> Thread.currentThread()).get());
+                assertSame(me, ex.submit(() -> Thread.currentThread()).get());
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+
+        //shutting down a view does not stop the context
+        ex.shutdownNow();
+        ParallelUtils.getNewExecutor(true).shutdownNow();
+        assertEquals(Integer.valueOf(45), ParallelUtils.run(true, 10, (int i) -> i, (a, b) -> a + b));
+        assertNotSame(Thread.currentThread(), ex.submit(() -> Thread.currentThread()).get());
+    }
+}